@@ -303,7 +303,7 @@ public class ARQ
      * choosing the value.
      * <p/>
      * Operations currently affected by this symbol: <br>
-     * ORDER BY, SPARQL Update, CONSTRUCT (optionally)
+     * ORDER BY, SPARQL Update, CONSTRUCT (optionally), hash joins, GROUP BY
      * <p/>
      * TODO: Give a reasonable suggested value here.  10,000?
      * <p/>
@@ -311,9 +311,17 @@ public class ARQ
      */
     // Some possible additions to the list:
     // Sort: DISTINCT, merge joins<br>
-    // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br>
+    // Hash table: MINUS, SERVICE, VALUES <br>
     public static final Symbol spillToDiskThreshold = SystemARQ.allocSymbol("spillToDiskThreshold") ;
 
+    /**
+     * The number of partitions of a GROUP BY that has spilled to disk (see {@link #spillToDiskThreshold})
+     * that are aggregated at the same time, each on its own thread.
+     * The value defaults to 1, which aggregates the partitions one after another on the query thread.
+     * Each partition being aggregated is held in memory.
+     */
+    public static final Symbol groupParallelism = SystemARQ.allocSymbol("groupParallelism") ;
+
     // Optimizer controls.
 
     /**
@@ -91,6 +91,9 @@ public class Lang
     /** The RDF syntax <a href="https://jena.apache.org/documentation/io/rdf-binary.html">RDF Thrift</a> */
     public static Lang RDFTHRIFT ;
 
+    /** RDF Columnar: binary RDF in blocks, see {@link org.apache.jena.riot.columnar.ColumnarRDF} */
+    public static Lang RDFCOLUMNAR ;
+
     /** <a href="https://w3c.github.io/shacl/shacl-compact-syntax/">SHACL Compact Syntax</a> (2020-07-01) */
     public static Lang SHACLC;
 
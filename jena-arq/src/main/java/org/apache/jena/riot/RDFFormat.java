@@ -31,6 +31,11 @@ public class RDFFormat {
      * incoming triple/quad stream
      */
     public static final RDFFormatVariant BLOCKS         = new RDFFormatVariant("blocks") ;
+    /**
+     * Print in blocks of the same subject, as {@link #BLOCKS}, formatting the blocks
+     * on several threads.
+     */
+    public static final RDFFormatVariant BLOCKS_PARALLEL = new RDFFormatVariant("blocks-parallel") ;
     /** Print out one per line */
     public static final RDFFormatVariant FLAT           = new RDFFormatVariant("flat") ;
 
@@ -40,6 +45,10 @@ public class RDFFormat {
     public static final RDFFormatVariant UTF8           = new RDFFormatVariant("utf-8") ;
     /** Variant for RDF Thrift using values */
     public static final RDFFormatVariant ValueEncoding  = new RDFFormatVariant("Value") ;
+    /** Variant for RDF Columnar : blocks are not compressed */
+    public static final RDFFormatVariant Uncompressed   = new RDFFormatVariant("uncompressed") ;
+    /** Variant for RDF Columnar : blocks are compressed with deflate */
+    public static final RDFFormatVariant Deflate        = new RDFFormatVariant("deflate") ;
 
     /** Turtle - pretty form */
     public static final RDFFormat        TURTLE_PRETTY  = new RDFFormat(Lang.TURTLE, PRETTY) ;
@@ -49,6 +58,8 @@ public class RDFFormat {
     public static final RDFFormat        TTL            = TURTLE_PRETTY ;
     /** Turtle - write in blocks of triples, with same subject, no nested object or RDF lists */
     public static final RDFFormat        TURTLE_BLOCKS  = new RDFFormat(Lang.TURTLE, BLOCKS) ;
+    /** Turtle - as {@link #TURTLE_BLOCKS}, with the blocks formatted in parallel */
+    public static final RDFFormat        TURTLE_BLOCKS_PARALLEL = new RDFFormat(Lang.TURTLE, BLOCKS_PARALLEL) ;
     /** Turtle - one line per triple  */
     public static final RDFFormat        TURTLE_FLAT    = new RDFFormat(Lang.TURTLE, FLAT) ;
 
@@ -76,6 +87,8 @@ public class RDFFormat {
     public static final RDFFormat        TRIG           = TRIG_PRETTY ;
     /** TriG - write in blocks of triples, with same subject, no nested object or RDF lists */
     public static final RDFFormat        TRIG_BLOCKS    = new RDFFormat(Lang.TRIG, BLOCKS) ;
+    /** TriG - as {@link #TRIG_BLOCKS}, with the blocks formatted in parallel */
+    public static final RDFFormat        TRIG_BLOCKS_PARALLEL = new RDFFormat(Lang.TRIG, BLOCKS_PARALLEL) ;
     /** TriG - one line per triple  */
     public static final RDFFormat        TRIG_FLAT      = new RDFFormat(Lang.TRIG, FLAT) ;
 
@@ -253,6 +266,19 @@ public class RDFFormat {
      */
     public static final RDFFormat RDF_THRIFT_VALUES     = new RDFFormat(Lang.RDFTHRIFT, ValueEncoding) ;
 
+    /**
+     * RDF Columnar output. Triples and quads are written in blocks, each with a
+     * dictionary of the terms it uses, and blocks are compressed with LZ4.
+     *
+     * @see #RDF_COLUMNAR_UNCOMPRESSED
+     * @see #RDF_COLUMNAR_DEFLATE
+     */
+    public static final RDFFormat RDF_COLUMNAR              = new RDFFormat(Lang.RDFCOLUMNAR) ;
+    /** RDF Columnar output without block compression. */
+    public static final RDFFormat RDF_COLUMNAR_UNCOMPRESSED = new RDFFormat(Lang.RDFCOLUMNAR, Uncompressed) ;
+    /** RDF Columnar output with deflate block compression: smaller and slower than {@link #RDF_COLUMNAR}. */
+    public static final RDFFormat RDF_COLUMNAR_DEFLATE      = new RDFFormat(Lang.RDFCOLUMNAR, Deflate) ;
+
     /**
      * The "null" output format (a sink that prints nothing, usually quite
      * efficiently)
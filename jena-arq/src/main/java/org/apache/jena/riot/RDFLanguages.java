@@ -49,6 +49,7 @@ public class RDFLanguages
     public static final String strLangTriX       = "TriX";
     public static final String strLangRDFPROTO   = "RDF-PROTO";
     public static final String strLangRDFTHRIFT  = "RDF-THRIFT";
+    public static final String strLangRDFCOLUMNAR = "RDF-COLUMNAR";
 
     /* ".owl" is not a formally registered file extension for OWL using RDF/XML. It
      * was mentioned in OWL1 (when there was formally only one syntax for publishing
@@ -152,6 +153,12 @@ public class RDFLanguages
                                                      .addAltNames("RDF_THRIFT", "RDFTHRIFT", "RDF/THRIFT", "TRDF")
                                                      .addFileExtensions("rt", "trdf")
                                                      .build();
+
+    /** RDF Columnar: binary RDF in blocks with a dictionary of terms per block. See {@link org.apache.jena.riot.columnar.ColumnarRDF}. */
+    public static final Lang RDFCOLUMNAR = LangBuilder.create(strLangRDFCOLUMNAR, contentTypeRDFColumnar)
+                                                     .addAltNames("RDF_COLUMNAR", "RDFCOLUMNAR", "RDF/COLUMNAR", "RCOL")
+                                                     .addFileExtensions("rcol")
+                                                     .build();
     /** Text */
     public static final Lang TEXT       = LangBuilder.create("text", contentTypeTextPlain)
                                                      .addAltNames("TEXT")
@@ -215,6 +222,7 @@ public class RDFLanguages
         Lang.TRIG       = RDFLanguages.TRIG;
         Lang.RDFPROTO   = RDFLanguages.RDFPROTO;
         Lang.RDFTHRIFT  = RDFLanguages.RDFTHRIFT;
+        Lang.RDFCOLUMNAR = RDFLanguages.RDFCOLUMNAR;
         Lang.TRIX       = RDFLanguages.TRIX;
         Lang.RDFNULL    = RDFLanguages.RDFNULL;
         Lang.SHACLC     = RDFLanguages.SHACLC;
@@ -245,6 +253,7 @@ public class RDFLanguages
         register(NQUADS);
         register(RDFPROTO);
         register(RDFTHRIFT);
+        register(RDFCOLUMNAR);
         register(TRIX);
         register(RDFNULL);
         register(SHACLC);
@@ -452,6 +452,41 @@ public class RDFParserBuilder {
      */
     public RDFParserBuilder checking(boolean flag) { this.checking = Optional.of(flag) ; return this; }
 
+    /**
+     * Parse N-Triples and N-Quads with {@code numThreads} threads.
+     * Triples and quads are sent to the {@link StreamRDF} in the order of the input.
+     * Other syntaxes are not affected.
+     * This sets {@link RIOT#symParserParallel} in the context.
+     * @see #parallel(int, boolean)
+     */
+    public RDFParserBuilder parallel(int numThreads) {
+        return parallel(numThreads, true);
+    }
+
+    /**
+     * Parse N-Triples and N-Quads with {@code numThreads} threads.
+     * If {@code ordered} is false, triples and quads are sent to the {@link StreamRDF}
+     * in blocks as they are ready, not in the order of the input; blank node labels
+     * still refer to the same blank node across the whole input.
+     * This sets {@link RIOT#symParserParallel} and {@link RIOT#symParserParallelOrdered} in the context.
+     */
+    public RDFParserBuilder parallel(int numThreads, boolean ordered) {
+        contextAcc.set(RIOT.symParserParallel, numThreads);
+        contextAcc.set(RIOT.symParserParallelOrdered, ordered);
+        return this;
+    }
+
+    /**
+     * Tokenize N-Triples and N-Quads at the byte level, which is faster for large
+     * inputs. This applies to InputStream sources, including when parsing in parallel.
+     * Other syntaxes are not affected.
+     * This sets {@link RIOT#symParserTokenizerBytes} in the context.
+     */
+    public RDFParserBuilder tokenizerBytes(boolean flag) {
+        contextAcc.set(RIOT.symParserTokenizerBytes, flag);
+        return this;
+    }
+
     /**
      * Set the {@link ErrorHandler} to use.
      * This replaces any previous setting.
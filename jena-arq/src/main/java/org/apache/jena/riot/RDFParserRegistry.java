@@ -29,6 +29,8 @@ import java.util.Set;
 
 import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.riot.columnar.ColumnarRDF;
+import org.apache.jena.riot.columnar.RiotColumnarException;
 import org.apache.jena.riot.lang.*;
 import org.apache.jena.riot.lang.extra.TurtleJCC;
 import org.apache.jena.riot.protobuf.ProtobufRDF;
@@ -79,6 +81,7 @@ public class RDFParserRegistry
         ReaderRIOTFactory parserFactoryRDFXML    = ReaderRIOTRDFXML.factory;
         ReaderRIOTFactory parserFactoryProtobuf  = ReaderRDFProtobuf.factory;
         ReaderRIOTFactory parserFactoryThrift    = ReaderRDFThrift.factory;
+        ReaderRIOTFactory parserFactoryColumnar  = ReaderRDFColumnar.factory;
         ReaderRIOTFactory parserFactoryTriX      = ReaderTriX.factory;
         ReaderRIOTFactory parserFactoryRDFNULL   = ReaderRDFNULL.factory;
 
@@ -89,6 +92,7 @@ public class RDFParserRegistry
         registerLangTriples(RDFXML,     parserFactoryRDFXML);
         registerLangTriples(RDFPROTO,   parserFactoryProtobuf);
         registerLangTriples(RDFTHRIFT,  parserFactoryTriX);
+        registerLangTriples(RDFCOLUMNAR, parserFactoryColumnar);
         registerLangTriples(TRIX,       parserFactoryTriX);
         registerLangTriples(RDFNULL,    parserFactoryRDFNULL);
 
@@ -109,6 +113,7 @@ public class RDFParserRegistry
         registerLangQuads(TRIG,         parserFactory);
         registerLangQuads(RDFPROTO,     parserFactoryProtobuf);
         registerLangQuads(RDFTHRIFT,    parserFactoryThrift);
+        registerLangQuads(RDFCOLUMNAR,  parserFactoryColumnar);
         registerLangQuads(TRIX,         parserFactoryTriX);
         registerLangQuads(RDFNULL,      parserFactoryRDFNULL);
 
@@ -189,6 +194,20 @@ public class RDFParserRegistry
 
         @Override
         public void read(InputStream in, String baseURI, ContentType ct, StreamRDF output, Context context) {
+            if ( context != null && ( RDFLanguages.sameLang(NTRIPLES, lang) || RDFLanguages.sameLang(NQUADS, lang) ) ) {
+                boolean bytes = context.isTrue(RIOT.symParserTokenizerBytes);
+                int parallel = context.getInt(RIOT.symParserParallel, 1);
+                if ( parallel > 1 ) {
+                    boolean ordered = ! context.isFalse(RIOT.symParserParallelOrdered);
+                    ParallelNTuplesParser.parse(in, lang, parserProfile, output, parallel, ordered, bytes);
+                    return;
+                }
+                if ( bytes ) {
+                    LangRIOT parser = RiotParsers.createParserBytes(in, lang, output, parserProfile);
+                    parser.parse();
+                    return;
+                }
+            }
             LangRIOT parser = RiotParsers.createParser(in, lang, output, parserProfile);
             parser.parse();
         }
@@ -271,5 +290,28 @@ public class RDFParserRegistry
             throw new RiotException("RDF Thrift : Reading binary data from a java.io.reader is not supported. Please use an InputStream");
         }
     }
-}
 
+    private static class ReaderRDFColumnar implements ReaderRIOT {
+        static ReaderRIOTFactory factory = (Lang language, ParserProfile profile) -> new ReaderRDFColumnar(profile);
+        private final ParserProfile profile;
+        public ReaderRDFColumnar(ParserProfile profile) { this.profile = profile; }
+
+        @Override
+        public void read(InputStream in, String baseURI, ContentType ct, StreamRDF output, Context context) {
+            try {
+                ColumnarRDF.inputStreamToStreamRDF(in, output);
+            } catch (RiotColumnarException ex) {
+                if ( profile != null && profile.getErrorHandler() != null )
+                    profile.getErrorHandler().error(ex.getMessage(), -1, -1);
+                else
+                    ErrorHandlerFactory.errorHandlerStd.error(ex.getMessage(), -1 , -1);
+                throw ex;
+            }
+        }
+
+        @Override
+        public void read(Reader reader, String baseURI, ContentType ct, StreamRDF output, Context context) {
+            throw new RiotException("RDF Columnar : Reading binary data from a java.io.reader is not supported. Please use an InputStream");
+        }
+    }
+}
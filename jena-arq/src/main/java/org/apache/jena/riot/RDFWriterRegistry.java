@@ -21,6 +21,8 @@ package org.apache.jena.riot;
 import java.util.* ;
 
 import org.apache.jena.atlas.lib.CharSpace ;
+import org.apache.jena.riot.columnar.WriterDatasetColumnar;
+import org.apache.jena.riot.columnar.WriterGraphColumnar;
 import org.apache.jena.riot.protobuf.WriterDatasetProtobuf;
 import org.apache.jena.riot.protobuf.WriterGraphProtobuf;
 import org.apache.jena.riot.system.RiotLib ;
@@ -66,6 +68,8 @@ public class RDFWriterRegistry
                 return new TurtleWriter() ;
             if ( Objects.equals(RDFFormat.TURTLE_BLOCKS, serialization) )
                 return new TurtleWriterBlocks() ;
+            if ( Objects.equals(RDFFormat.TURTLE_BLOCKS_PARALLEL, serialization) )
+                return new TurtleWriterBlocksParallel() ;
             if ( Objects.equals(RDFFormat.TURTLE_FLAT, serialization) )
                 return new TurtleWriterFlat() ;
 
@@ -95,6 +99,8 @@ public class RDFWriterRegistry
                 return new TriGWriter() ;
             if ( Objects.equals(RDFFormat.TRIG_BLOCKS, serialization) )
                 return new TriGWriterBlocks() ;
+            if ( Objects.equals(RDFFormat.TRIG_BLOCKS_PARALLEL, serialization) )
+                return new TriGWriterBlocksParallel() ;
             if ( Objects.equals(RDFFormat.TRIG_FLAT, serialization) )
                 return new TriGWriterFlat() ;
             if ( Objects.equals(RDFFormat.NQUADS_UTF8, serialization) )
@@ -123,6 +129,8 @@ public class RDFWriterRegistry
         WriterDatasetRIOTFactory wdsProtoFactory    = syntaxForm -> new WriterDatasetProtobuf(syntaxForm);
         WriterGraphRIOTFactory wgThriftFactory      = syntaxForm -> new WriterGraphThrift(syntaxForm);
         WriterDatasetRIOTFactory wdsThriftFactory   = syntaxForm -> new WriterDatasetThrift(syntaxForm);
+        WriterGraphRIOTFactory wgColumnarFactory    = syntaxForm -> new WriterGraphColumnar(syntaxForm);
+        WriterDatasetRIOTFactory wdsColumnarFactory = syntaxForm -> new WriterDatasetColumnar(syntaxForm);
         WriterGraphRIOTFactory wgTriXFactory        = syntaxForm -> new WriterTriX();
         WriterDatasetRIOTFactory wdsTriXFactory     = syntaxForm -> new WriterTriX() ;
 
@@ -151,6 +159,7 @@ public class RDFWriterRegistry
         register(Lang.RDFNULL,     RDFFormat.RDFNULL) ;
         register(Lang.RDFPROTO,    RDFFormat.RDF_PROTO) ;
         register(Lang.RDFTHRIFT,   RDFFormat.RDF_THRIFT) ;
+        register(Lang.RDFCOLUMNAR, RDFFormat.RDF_COLUMNAR) ;
 
         register(Lang.TRIX,        RDFFormat.TRIX) ;
         register(Lang.SHACLC,      RDFFormat.SHACLC);
@@ -159,6 +168,7 @@ public class RDFWriterRegistry
 
         register(RDFFormat.TURTLE_PRETTY,  wgfactory) ;
         register(RDFFormat.TURTLE_BLOCKS,  wgfactory) ;
+        register(RDFFormat.TURTLE_BLOCKS_PARALLEL, wgfactory) ;
         register(RDFFormat.TURTLE_FLAT,    wgfactory) ;
 
         register(RDFFormat.NTRIPLES,       wgfactory) ;
@@ -213,6 +223,7 @@ public class RDFWriterRegistry
         // Graphs in a quad format.
         register(RDFFormat.TRIG_PRETTY,    wgfactory) ;
         register(RDFFormat.TRIG_BLOCKS,    wgfactory) ;
+        register(RDFFormat.TRIG_BLOCKS_PARALLEL, wgfactory) ;
         register(RDFFormat.TRIG_FLAT,      wgfactory) ;
 
         register(RDFFormat.NQUADS,         wgfactory) ;
@@ -223,6 +234,9 @@ public class RDFWriterRegistry
         register(RDFFormat.RDF_PROTO_VALUES,    wgProtoFactory) ;
         register(RDFFormat.RDF_THRIFT,          wgThriftFactory) ;
         register(RDFFormat.RDF_THRIFT_VALUES,   wgThriftFactory) ;
+        register(RDFFormat.RDF_COLUMNAR,        wgColumnarFactory) ;
+        register(RDFFormat.RDF_COLUMNAR_UNCOMPRESSED, wgColumnarFactory) ;
+        register(RDFFormat.RDF_COLUMNAR_DEFLATE, wgColumnarFactory) ;
 
         register(RDFFormat.TRIX, wgTriXFactory) ;
 
@@ -230,6 +244,7 @@ public class RDFWriterRegistry
 
         register(RDFFormat.TRIG_PRETTY,    wdsfactory) ;
         register(RDFFormat.TRIG_BLOCKS,    wdsfactory) ;
+        register(RDFFormat.TRIG_BLOCKS_PARALLEL, wdsfactory) ;
         register(RDFFormat.TRIG_FLAT,      wdsfactory) ;
 
         register(RDFFormat.NQUADS,         wdsfactory) ;
@@ -240,6 +255,9 @@ public class RDFWriterRegistry
         register(RDFFormat.RDF_PROTO_VALUES,    wdsProtoFactory) ;
         register(RDFFormat.RDF_THRIFT,          wdsThriftFactory) ;
         register(RDFFormat.RDF_THRIFT_VALUES,   wdsThriftFactory) ;
+        register(RDFFormat.RDF_COLUMNAR,        wdsColumnarFactory) ;
+        register(RDFFormat.RDF_COLUMNAR_UNCOMPRESSED, wdsColumnarFactory) ;
+        register(RDFFormat.RDF_COLUMNAR_DEFLATE, wdsColumnarFactory) ;
 
         register(RDFFormat.TRIX, wdsTriXFactory) ;
     }
@@ -126,4 +126,33 @@ public class RIOT {
      * not output BASE even when given.
      */
     public static final Symbol symTurtleOmitBase = SystemARQ.allocSymbol(TURTLE_SYMBOL_BASE, "omitBase");
+
+    /**
+     * Number of threads for the {@link RDFFormat#TURTLE_BLOCKS_PARALLEL} and
+     * {@link RDFFormat#TRIG_BLOCKS_PARALLEL} writers. The default is the number of
+     * available processors.
+     */
+    public static final Symbol symTurtleParallelThreads = SystemARQ.allocSymbol(TURTLE_SYMBOL_BASE, "parallelThreads");
+
+    private static String PARSER_SYMBOL_BASE = "http://jena.apache.org/riot/parser#";
+
+    /**
+     * Number of threads for parsing N-Triples and N-Quads. The default is 1, which is
+     * the normal single threaded parser. See {@link org.apache.jena.riot.lang.ParallelNTuplesParser}.
+     */
+    public static final Symbol symParserParallel = SystemARQ.allocSymbol(PARSER_SYMBOL_BASE, "parallel");
+
+    /**
+     * When parsing with several threads ({@link #symParserParallel}), whether to send
+     * triples and quads to the StreamRDF in the order of the input. The default is true;
+     * setting it false sends each block of output as it is ready.
+     */
+    public static final Symbol symParserParallelOrdered = SystemARQ.allocSymbol(PARSER_SYMBOL_BASE, "parallelOrdered");
+
+    /**
+     * Tokenize N-Triples and N-Quads from an InputStream with the byte-level
+     * {@link org.apache.jena.riot.tokens.TokenizerBytes}. The default is false. Column
+     * numbers in error messages count bytes, not characters.
+     */
+    public static final Symbol symParserTokenizerBytes = SystemARQ.allocSymbol(PARSER_SYMBOL_BASE, "tokenizerBytes");
 }
@@ -74,6 +74,10 @@ public class WebContent {
     public static final String      contentTypeRDFProto          = "application/rdf+protobuf" ;
     public static final ContentType ctRDFProto                   = ContentType.create(contentTypeRDFProto) ;
 
+    // Unofficial
+    public static final String      contentTypeRDFColumnar       = "application/rdf+columnar" ;
+    public static final ContentType ctRDFColumnar                = ContentType.create(contentTypeRDFColumnar) ;
+
     // Name no longer supported - Jena 4.0.0.
 // public static final String contentTypeTriGAlt2 = "application/x-trig" ;
 // public static final ContentType ctTriGAlt2 =
@@ -133,6 +137,10 @@ public class WebContent {
     public static final String      contentTypeResultsThrift     = "application/sparql-results+thrift" ;
     public static final ContentType ctResultsThrift              = ContentType.create(contentTypeResultsThrift) ;
 
+    // Unofficial
+    public static final String      contentTypeResultsColumnar   = "application/sparql-results+columnar" ;
+    public static final ContentType ctResultsColumnar            = ContentType.create(contentTypeResultsColumnar) ;
+
     public static final String contentTypeSPARQLQuery = "application/sparql-query";
     public static final ContentType ctSPARQLQuery = ContentType.create(contentTypeSPARQLQuery);
 
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.riot.columnar;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+/** Encode bindings as a SPARQL result set in RDF Columnar. */
+public class Binding2Columnar implements AutoCloseable {
+    private final ColumnarWriter writer;
+    private final Var[] vars;
+    private final Node[] row;
+
+    public Binding2Columnar(OutputStream out, List<Var> vars, ColumnarCodec codec) {
+        this.writer = new ColumnarWriter(out, codec, CRDF.DftBlockRows);
+        this.vars = vars.toArray(new Var[0]);
+        this.row = new Node[this.vars.length];
+        writer.vars(vars);
+    }
+
+    public void output(Binding binding) {
+        for ( int i = 0 ; i < vars.length ; i++ )
+            row[i] = binding.get(vars[i]);
+        writer.row(row);
+    }
+
+    @Override
+    public void close() {
+        writer.finish();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.columnar;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.jena.atlas.io.IO;
+
+/** Growable byte array with varint and string encoding. */
+class BlockBuffer {
+    private byte[] bytes;
+    private int length = 0;
+
+    BlockBuffer() { this(1024); }
+
+    BlockBuffer(int size) { bytes = new byte[size]; }
+
+    int length()        { return length; }
+    byte[] bytes()      { return bytes; }
+    void reset()        { length = 0; }
+
+    private void ensure(int n) {
+        if ( length + n > bytes.length )
+            bytes = Arrays.copyOf(bytes, Math.max(2*bytes.length, length+n));
+    }
+
+    void writeByte(int b) {
+        ensure(1);
+        bytes[length++] = (byte)b;
+    }
+
+    void writeBytes(byte[] b, int off, int len) {
+        ensure(len);
+        System.arraycopy(b, off, bytes, length, len);
+        length += len;
+    }
+
+    void writeBuffer(BlockBuffer other) {
+        writeBytes(other.bytes, 0, other.length);
+    }
+
+    /** Unsigned varint, 7 bits per byte, low bits first. */
+    void writeVarint(int value) {
+        ensure(5);
+        while ( (value & ~0x7F) != 0 ) {
+            bytes[length++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte)value;
+    }
+
+    /** Signed varint: zig-zag so that small negative numbers are short. */
+    void writeZigZag(int value) {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    void writeString(String string) {
+        byte[] b = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(b.length);
+        writeBytes(b, 0, b.length);
+    }
+
+    void writeTo(OutputStream out) {
+        try { out.write(bytes, 0, length); }
+        catch (IOException ex) { IO.exception(ex); }
+    }
+}
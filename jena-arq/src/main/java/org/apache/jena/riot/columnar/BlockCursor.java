@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.columnar;
+
+import java.nio.charset.StandardCharsets;
+
+/** Read the encodings of {@link BlockBuffer} from a byte array. */
+class BlockCursor {
+    private final byte[] bytes;
+    private final int limit;
+    private int position;
+
+    BlockCursor(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.position = 0;
+        this.limit = length;
+    }
+
+    boolean hasMore() { return position < limit; }
+
+    int readByte() {
+        if ( position >= limit )
+            throw new RiotColumnarException("Unexpected end of block");
+        return bytes[position++] & 0xFF;
+    }
+
+    int readVarint() {
+        int value = 0;
+        for ( int shift = 0 ; shift < 35 ; shift += 7 ) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 )
+                return value;
+        }
+        throw new RiotColumnarException("Bad varint");
+    }
+
+    int readZigZag() {
+        int v = readVarint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    String readString() {
+        int len = readVarint();
+        if ( len < 0 || len > limit - position )
+            throw new RiotColumnarException("Bad string length: "+Integer.toUnsignedString(len));
+        String string = new String(bytes, position, len, StandardCharsets.UTF_8);
+        position += len;
+        return string;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.columnar;
+
+/**
+ * Constants for RDF Columnar.
+ * <p>
+ * A stream is the 4 bytes "RCOL", a version byte, then a sequence of blocks. A block
+ * is a header (codec, uncompressed length, stored length, all varints) followed by
+ * the stored bytes. The uncompressed block is:
+ * <ul>
+ * <li>the block kind,</li>
+ * <li>the directives (base and prefixes) that come before the rows of the block,</li>
+ * <li>the block dictionary: each term of the block once, in first-seen order, numbered from 1,</li>
+ * <li>the arity (3 for triples, 4 for quads, the number of variables for result rows),</li>
+ * <li>the number of rows,</li>
+ * <li>the columns, one after another, each entry the zig-zag varint of the difference
+ * from the previous entry in the column.</li>
+ * </ul>
+ * Term id 0 is "no term" (an undefined variable in a result row).
+ * A block only uses its own dictionary so blocks are independent.
+ */
+public class CRDF {
+    /*package*/ static final byte[] MAGIC       = { 'R', 'C', 'O', 'L' };
+    /*package*/ static final int    VERSION     = 1;
+
+    // Block kinds.
+    /*package*/ static final int BLOCK_ROWS     = 1;
+    /*package*/ static final int BLOCK_VARS     = 2;
+
+    // Directives.
+    /*package*/ static final int DIR_BASE       = 1;
+    /*package*/ static final int DIR_PREFIX     = 2;
+
+    // Dictionary entries.
+    /** IRI: length of the prefix shared with the previous IRI of the block, then the rest. */
+    /*package*/ static final int TERM_IRI       = 1;
+    /*package*/ static final int TERM_BNODE     = 2;
+    /** xsd:string literal */
+    /*package*/ static final int TERM_STRING    = 3;
+    /*package*/ static final int TERM_LANG      = 4;
+    /** Lexical form, then the id of the datatype IRI. */
+    /*package*/ static final int TERM_TYPED     = 5;
+    /** Ids of subject, predicate and object. */
+    /*package*/ static final int TERM_TRIPLE    = 6;
+    /*package*/ static final int TERM_VAR       = 7;
+
+    /*package*/ static final int NO_TERM        = 0;
+
+    /** Rows in a block. */
+    public static final int DftBlockRows        = 8192;
+    /** A block is also written when its dictionary reaches this size (bytes). */
+    /*package*/ static final int MaxDictionarySize = 4*1024*1024;
+}
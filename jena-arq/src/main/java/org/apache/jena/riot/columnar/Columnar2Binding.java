@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.riot.columnar;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+
+/** Decode a SPARQL result set in RDF Columnar to bindings, one block at a time. */
+public class Columnar2Binding extends IteratorSlotted<Binding> implements Iterator<Binding> {
+    private final ColumnarReader reader;
+    private final Deque<Binding> pending = new ArrayDeque<>();
+    private final BindingBuilder builder = Binding.builder();
+    private List<Var> vars = null;
+    private boolean finished = false;
+
+    private final ColumnarReader.Handler handler = new ColumnarReader.Handler() {
+        @Override
+        public void base(String base) {}
+
+        @Override
+        public void prefix(String prefix, String iri) {}
+
+        @Override
+        public void vars(List<Var> variables) {
+            if ( vars != null )
+                throw new RiotColumnarException("Result set variables given twice");
+            vars = variables;
+        }
+
+        @Override
+        public void row(Node[] row) {
+            if ( vars == null )
+                throw new RiotColumnarException("Result set rows before the variables");
+            if ( row.length != vars.size() )
+                throw new RiotColumnarException(String.format("Vars %d : Row length : %d", vars.size(), row.length));
+            builder.reset();
+            for ( int i = 0 ; i < row.length ; i++ ) {
+                if ( row[i] != null )
+                    builder.add(vars.get(i), row[i]);
+            }
+            pending.add(builder.build());
+        }
+    };
+
+    public Columnar2Binding(InputStream input) {
+        this.reader = new ColumnarReader(input);
+        // The variables are the first block.
+        if ( ! reader.readBlock(handler) ) {
+            finished = true;
+            vars = List.of();
+        }
+        if ( vars == null )
+            throw new RiotColumnarException("No result set variables");
+    }
+
+    public List<Var> getVars() { return vars; }
+
+    @Override
+    protected Binding moveToNext() {
+        while ( pending.isEmpty() ) {
+            if ( finished || ! reader.readBlock(handler) ) {
+                finished = true;
+                return null;
+            }
+        }
+        return pending.removeFirst();
+    }
+
+    @Override
+    protected boolean hasMore() {
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.riot.columnar;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+
+/** Decode RDF Columnar and send the triples, quads and directives to a {@link StreamRDF}. */
+public class Columnar2StreamRDF implements ColumnarReader.Handler {
+    private final StreamRDF dest;
+
+    public Columnar2StreamRDF(StreamRDF dest) {
+        this.dest = dest;
+    }
+
+    /** Read all the blocks of the input. Does not call {@link StreamRDF#start()} or {@link StreamRDF#finish()}. */
+    public void process(InputStream input) {
+        ColumnarReader reader = new ColumnarReader(input);
+        while ( reader.readBlock(this) ) {}
+    }
+
+    @Override
+    public void base(String base) {
+        dest.base(base);
+    }
+
+    @Override
+    public void prefix(String prefix, String iri) {
+        dest.prefix(prefix, iri);
+    }
+
+    @Override
+    public void vars(List<Var> vars) {
+        throw new RiotColumnarException("Result set variables in RDF data");
+    }
+
+    @Override
+    public void row(Node[] row) {
+        if ( row.length != 3 && row.length != 4 )
+            throw new RiotColumnarException("Row of "+row.length+" terms in RDF data");
+        if ( row[0] == null || row[1] == null || row[2] == null )
+            throw new RiotColumnarException("Missing term in a triple or quad");
+        if ( row.length == 3 || row[3] == null )
+            dest.triple(Triple.create(row[0], row[1], row[2]));
+        else
+            dest.quad(Quad.create(row[3], row[0], row[1], row[2]));
+    }
+}
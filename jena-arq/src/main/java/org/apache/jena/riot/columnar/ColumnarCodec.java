@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+import org.apache.jena.atlas.io.IO;
+
+/**
+ * Compression of the blocks of RDF Columnar.
+ * The codec is recorded for each block; a writer uses {@link #NONE} for a block that
+ * does not get smaller.
+ */
+public enum ColumnarCodec {
+    /** Blocks are not compressed. */
+    NONE(0) {
+        @Override
+        byte[] compress(byte[] bytes, int length) { return Arrays.copyOf(bytes, length); }
+        @Override
+        byte[] decompress(byte[] stored, int length) { return stored; }
+    },
+
+    /** LZ4 block format: fast, moderate compression. */
+    LZ4(1) {
+        @Override
+        byte[] compress(byte[] bytes, int length) {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream(length/2+16);
+            try ( BlockLZ4CompressorOutputStream out = new BlockLZ4CompressorOutputStream(bout) ) {
+                out.write(bytes, 0, length);
+            } catch (IOException ex) { IO.exception(ex); }
+            return bout.toByteArray();
+        }
+
+        @Override
+        byte[] decompress(byte[] stored, int length) {
+            try ( InputStream in = new BlockLZ4CompressorInputStream(new ByteArrayInputStream(stored)) ) {
+                return in.readNBytes(length);
+            } catch (IOException ex) { throw new RiotColumnarException("LZ4", ex); }
+        }
+    },
+
+    /** Deflate (zlib): slower than LZ4, better compression. */
+    DEFLATE(2) {
+        @Override
+        byte[] compress(byte[] bytes, int length) {
+            Deflater deflater = new Deflater();
+            try {
+                deflater.setInput(bytes, 0, length);
+                deflater.finish();
+                ByteArrayOutputStream bout = new ByteArrayOutputStream(length/4+16);
+                byte[] buffer = new byte[8192];
+                while ( ! deflater.finished() ) {
+                    int n = deflater.deflate(buffer);
+                    bout.write(buffer, 0, n);
+                }
+                return bout.toByteArray();
+            } finally { deflater.end(); }
+        }
+
+        @Override
+        byte[] decompress(byte[] stored, int length) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(stored);
+                byte[] bytes = new byte[length];
+                int n = 0;
+                while ( n < length ) {
+                    int x = inflater.inflate(bytes, n, length-n);
+                    if ( x == 0 && ( inflater.finished() || inflater.needsInput() ) )
+                        break;
+                    n += x;
+                }
+                return ( n == length ) ? bytes : Arrays.copyOf(bytes, n);
+            } catch (DataFormatException ex) {
+                throw new RiotColumnarException("Deflate", ex);
+            } finally { inflater.end(); }
+        }
+    };
+
+    private final int id;
+
+    private ColumnarCodec(int id) { this.id = id; }
+
+    /** The number recorded in the block header. */
+    public int id() { return id; }
+
+    /** Compress the first {@code length} bytes. */
+    abstract byte[] compress(byte[] bytes, int length);
+
+    /** Decompress to {@code length} bytes. The result may be shorter if the data is bad. */
+    abstract byte[] decompress(byte[] stored, int length);
+
+    /*package*/ static ColumnarCodec byId(int id) {
+        for ( ColumnarCodec codec : values() ) {
+            if ( codec.id == id )
+                return codec;
+        }
+        throw new RiotColumnarException("Unknown block codec: "+id);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.riot.columnar;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetStream;
+
+/**
+ * Operations on RDF Columnar, a binary encoding of RDF in blocks.
+ * <p>
+ * Each block has a dictionary of the terms it uses and the triples, quads or result
+ * rows of the block are stored as columns of term ids, delta encoded as varints.
+ * Blocks are compressed with LZ4 by default.
+ * Compared to RDF Thrift and RDF Protobuf, which encode each term of each triple, a
+ * repeated term costs one or two bytes within a block.
+ *
+ * @see CRDF
+ */
+public class ColumnarRDF {
+
+    /** The codec used for {@link RDFFormat#RDF_COLUMNAR} and when no codec is given. */
+    public static final ColumnarCodec DefaultCodec = ColumnarCodec.LZ4;
+
+    /** The block codec for an {@link RDFFormat} of {@link org.apache.jena.riot.Lang#RDFCOLUMNAR}. */
+    public static ColumnarCodec codec(RDFFormat format) {
+        if ( RDFFormat.RDF_COLUMNAR_UNCOMPRESSED.equals(format) )
+            return ColumnarCodec.NONE;
+        if ( RDFFormat.RDF_COLUMNAR_DEFLATE.equals(format) )
+            return ColumnarCodec.DEFLATE;
+        return DefaultCodec;
+    }
+
+    /**
+     * Create an {@link StreamRDF} for output. A filename ending {@code .gz} will have
+     * a gzip compressor added to the output path. A filename of "-" is {@code System.out}.
+     * Call {@link StreamRDF#start()}...{@link StreamRDF#finish()}.
+     *
+     * @param filename The file
+     * @return StreamRDF A stream to send to.
+     */
+    public static StreamRDF streamToFile(String filename) {
+        OutputStream out = IO.openOutputFile(filename);
+        out = IO.ensureBuffered(out);
+        return streamToOutputStream(out);
+    }
+
+    /** An {@link StreamRDF} that writes to an output stream using the default codec. */
+    public static StreamRDF streamToOutputStream(OutputStream out) {
+        return streamToOutputStream(out, DefaultCodec);
+    }
+
+    /**
+     * An {@link StreamRDF} that writes to an output stream.
+     * The output stream is flushed, not closed, by {@link StreamRDF#finish()}.
+     */
+    public static StreamRDF streamToOutputStream(OutputStream out, ColumnarCodec codec) {
+        return new StreamRDF2Columnar(IO.ensureBuffered(out), codec);
+    }
+
+    /**
+     * Decode the contents of the file and send to the {@link StreamRDF}.
+     * A filename ending {@code .gz} will have a gzip decompressor added.
+     * A filename of "-" is {@code System.in}.
+     * @param filename The file.
+     * @param dest Sink
+     */
+    public static void fileToStream(String filename, StreamRDF dest) {
+        InputStream in = IO.openFileBuffered(filename);
+        inputStreamToStreamRDF(in, dest);
+    }
+
+    /**
+     * Read an input stream and send the triples, quads, base and prefixes to the {@link StreamRDF}.
+     * @param input InputStream
+     * @param dest StreamRDF
+     */
+    public static void inputStreamToStreamRDF(InputStream input, StreamRDF dest) {
+        Columnar2StreamRDF decoder = new Columnar2StreamRDF(dest);
+        dest.start();
+        try {
+            decoder.process(IO.ensureBuffered(input));
+        } finally { dest.finish(); }
+    }
+
+    public static RowSet readRowSet(InputStream in) {
+        Columnar2Binding c2b = new Columnar2Binding(IO.ensureBuffered(in));
+        return RowSetStream.create(c2b.getVars(), c2b);
+    }
+
+    public static void writeRowSet(OutputStream out, RowSet rowSet) {
+        writeRowSet(out, rowSet, DefaultCodec);
+    }
+
+    public static void writeRowSet(OutputStream out, RowSet rowSet, ColumnarCodec codec) {
+        out = IO.ensureBuffered(out);
+        try ( Binding2Columnar b2c = new Binding2Columnar(out, rowSet.getResultVars(), codec) ) {
+            rowSet.forEachRemaining(b2c::output);
+        }
+        IO.flush(out);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.columnar;
+
+import static org.apache.jena.riot.columnar.CRDF.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.Var;
+
+/** Read RDF Columnar blocks and pass the contents to a {@link Handler}. */
+class ColumnarReader {
+
+    interface Handler {
+        void base(String base);
+        void prefix(String prefix, String iri);
+        void vars(List<Var> vars);
+        /** A row; a null is "no term". The array is reused for the next row. */
+        void row(Node[] row);
+    }
+
+    private final InputStream in;
+    private boolean headerRead = false;
+
+    ColumnarReader(InputStream in) {
+        this.in = in;
+    }
+
+    /** Read one block. Return false at the end of the input. */
+    boolean readBlock(Handler handler) {
+        readHeader();
+        int first = read();
+        if ( first < 0 )
+            return false;
+        ColumnarCodec codec = ColumnarCodec.byId(readVarint(first));
+        int length = readVarint(read());
+        int storedLength = readVarint(read());
+        if ( length < 0 || storedLength < 0 )
+            throw new RiotColumnarException("Bad block length");
+        byte[] stored = readBytes(storedLength);
+        byte[] bytes = codec.decompress(stored, length);
+        if ( bytes.length < length )
+            throw new RiotColumnarException("Block is shorter than its header says");
+        decode(new BlockCursor(bytes, length), handler);
+        return true;
+    }
+
+    private void decode(BlockCursor cursor, Handler handler) {
+        int kind = cursor.readVarint();
+        switch (kind) {
+            case BLOCK_VARS : {
+                int n = cursor.readVarint();
+                List<Var> vars = new ArrayList<>(n);
+                for ( int i = 0 ; i < n ; i++ )
+                    vars.add(Var.alloc(cursor.readString()));
+                handler.vars(vars);
+                return;
+            }
+            case BLOCK_ROWS :
+                decodeRows(cursor, handler);
+                return;
+            default :
+                throw new RiotColumnarException("Unknown block kind: "+kind);
+        }
+    }
+
+    private void decodeRows(BlockCursor cursor, Handler handler) {
+        int directiveCount = cursor.readVarint();
+        for ( int i = 0 ; i < directiveCount ; i++ ) {
+            int tag = cursor.readVarint();
+            switch (tag) {
+                case DIR_BASE :
+                    handler.base(cursor.readString());
+                    break;
+                case DIR_PREFIX : {
+                    String prefix = cursor.readString();
+                    handler.prefix(prefix, cursor.readString());
+                    break;
+                }
+                default :
+                    throw new RiotColumnarException("Unknown directive: "+tag);
+            }
+        }
+
+        Node[] terms = dictionary(cursor);
+        int arity = cursor.readVarint();
+        int rows = cursor.readVarint();
+        if ( rows == 0 )
+            return;
+        if ( arity < 0 || rows < 0 )
+            throw new RiotColumnarException("Bad block: arity = "+arity+", rows = "+rows);
+        int[][] columns = new int[arity][];
+        for ( int c = 0 ; c < arity ; c++ ) {
+            int[] column = new int[rows];
+            int previous = 0;
+            for ( int r = 0 ; r < rows ; r++ ) {
+                int id = previous + cursor.readZigZag();
+                if ( id < 0 || id >= terms.length )
+                    throw new RiotColumnarException("Bad term id: "+id);
+                column[r] = id;
+                previous = id;
+            }
+            columns[c] = column;
+        }
+        Node[] row = new Node[arity];
+        for ( int r = 0 ; r < rows ; r++ ) {
+            for ( int c = 0 ; c < arity ; c++ )
+                row[c] = terms[columns[c][r]];
+            handler.row(row);
+        }
+    }
+
+    /** The block dictionary. Index 0 is "no term". */
+    private static Node[] dictionary(BlockCursor cursor) {
+        int n = cursor.readVarint();
+        if ( n < 0 )
+            throw new RiotColumnarException("Bad dictionary size");
+        Node[] terms = new Node[n+1];
+        String lastIRI = "";
+        for ( int i = 1 ; i <= n ; i++ ) {
+            int tag = cursor.readVarint();
+            Node node;
+            switch (tag) {
+                case TERM_IRI : {
+                    int shared = cursor.readVarint();
+                    if ( shared < 0 || shared > lastIRI.length() )
+                        throw new RiotColumnarException("Bad IRI prefix length: "+shared);
+                    String iri = lastIRI.substring(0, shared) + cursor.readString();
+                    node = NodeFactory.createURI(iri);
+                    lastIRI = iri;
+                    break;
+                }
+                case TERM_BNODE :
+                    node = NodeFactory.createBlankNode(cursor.readString());
+                    break;
+                case TERM_STRING :
+                    node = NodeFactory.createLiteral(cursor.readString());
+                    break;
+                case TERM_LANG : {
+                    String lex = cursor.readString();
+                    node = NodeFactory.createLiteral(lex, cursor.readString());
+                    break;
+                }
+                case TERM_TYPED : {
+                    String lex = cursor.readString();
+                    Node dt = term(terms, i, cursor.readVarint());
+                    node = NodeFactory.createLiteral(lex, NodeFactory.getType(dt.getURI()));
+                    break;
+                }
+                case TERM_TRIPLE : {
+                    Node s = term(terms, i, cursor.readVarint());
+                    Node p = term(terms, i, cursor.readVarint());
+                    Node o = term(terms, i, cursor.readVarint());
+                    node = NodeFactory.createTripleNode(Triple.create(s, p, o));
+                    break;
+                }
+                case TERM_VAR :
+                    node = Var.alloc(cursor.readString());
+                    break;
+                default :
+                    throw new RiotColumnarException("Unknown term tag: "+tag);
+            }
+            terms[i] = node;
+        }
+        return terms;
+    }
+
+    /** A reference to an earlier term of the dictionary. */
+    private static Node term(Node[] terms, int current, int id) {
+        if ( id <= 0 || id >= current )
+            throw new RiotColumnarException("Bad term reference: "+id);
+        return terms[id];
+    }
+
+    // ---- Input
+
+    private void readHeader() {
+        if ( headerRead )
+            return;
+        headerRead = true;
+        byte[] magic = readBytesOrEOF(MAGIC.length);
+        if ( magic.length == 0 )
+            // Empty input - no blocks.
+            return;
+        if ( ! Arrays.equals(MAGIC, magic) )
+            throw new RiotColumnarException("Not RDF Columnar data");
+        int version = read();
+        if ( version != VERSION )
+            throw new RiotColumnarException("Unsupported RDF Columnar version: "+version);
+    }
+
+    private int read() {
+        try { return in.read(); }
+        catch (IOException ex) { IO.exception(ex); return -1; }
+    }
+
+    /** Varint from the stream; {@code first} is the first byte, already read. */
+    private int readVarint(int first) {
+        int value = 0;
+        int b = first;
+        for ( int shift = 0 ; shift < 35 ; shift += 7 ) {
+            if ( b < 0 )
+                throw new RiotColumnarException("Unexpected end of input");
+            value |= (b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 )
+                return value;
+            b = read();
+        }
+        throw new RiotColumnarException("Bad varint");
+    }
+
+    private byte[] readBytes(int length) {
+        byte[] bytes = readBytesOrEOF(length);
+        if ( bytes.length != length )
+            throw new RiotColumnarException("Unexpected end of input");
+        return bytes;
+    }
+
+    private byte[] readBytesOrEOF(int length) {
+        try { return in.readNBytes(length); }
+        catch (IOException ex) { IO.exception(ex); return null; }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.columnar;
+
+import static org.apache.jena.riot.columnar.CRDF.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.Var;
+
+/**
+ * Write rows of terms as RDF Columnar blocks.
+ * Rows are collected until the block is full, the arity changes, or a directive
+ * arrives after some rows.
+ */
+class ColumnarWriter {
+    private final OutputStream out;
+    private final ColumnarCodec codec;
+    private final int blockRows;
+    private boolean headerWritten = false;
+
+    // The block being built.
+    private final BlockBuffer directives = new BlockBuffer(256);
+    private int directiveCount = 0;
+    private final BlockBuffer dictionary = new BlockBuffer(64*1024);
+    private final Map<Node, Integer> ids = new HashMap<>();
+    private int termCount = 0;
+    private String lastIRI = "";
+    private int arity = -1;
+    private int rows = 0;
+    private int[][] columns = new int[0][];
+
+    private final BlockBuffer payload = new BlockBuffer(64*1024);
+    private final BlockBuffer header = new BlockBuffer(16);
+
+    ColumnarWriter(OutputStream out, ColumnarCodec codec, int blockRows) {
+        this.out = out;
+        this.codec = codec;
+        this.blockRows = Math.max(1, blockRows);
+    }
+
+    void base(String base) {
+        if ( rows > 0 )
+            flush();
+        directives.writeVarint(DIR_BASE);
+        directives.writeString(base);
+        directiveCount++;
+    }
+
+    void prefix(String prefix, String iri) {
+        if ( rows > 0 )
+            flush();
+        directives.writeVarint(DIR_PREFIX);
+        directives.writeString(prefix);
+        directives.writeString(iri);
+        directiveCount++;
+    }
+
+    /** Result set variables. Written as a block of their own. */
+    void vars(List<Var> vars) {
+        flush();
+        payload.reset();
+        payload.writeVarint(BLOCK_VARS);
+        payload.writeVarint(vars.size());
+        for ( Var v : vars )
+            payload.writeString(v.getVarName());
+        writeBlock();
+    }
+
+    /** Add a row. A null term is "no term". The array can be reused by the caller. */
+    void row(Node[] terms) {
+        if ( terms.length != arity ) {
+            if ( rows > 0 )
+                flush();
+            arity = terms.length;
+            if ( columns.length != arity ) {
+                columns = new int[arity][];
+                for ( int i = 0 ; i < arity ; i++ )
+                    columns[i] = new int[Math.min(blockRows, 1024)];
+            }
+        }
+        if ( arity > 0 && rows == columns[0].length ) {
+            int size = Math.min(blockRows, 2*rows);
+            for ( int i = 0 ; i < arity ; i++ )
+                columns[i] = Arrays.copyOf(columns[i], size);
+        }
+        for ( int i = 0 ; i < arity ; i++ )
+            columns[i][rows] = ( terms[i] == null ) ? NO_TERM : id(terms[i]);
+        rows++;
+        if ( rows >= blockRows || dictionary.length() >= MaxDictionarySize )
+            flush();
+    }
+
+    /** Write any pending block and flush the output stream. */
+    void finish() {
+        flush();
+        ensureHeader();
+        IO.flush(out);
+    }
+
+    // ---- Dictionary
+
+    private int id(Node node) {
+        Integer x = ids.get(node);
+        if ( x != null )
+            return x;
+        int id = encode(node);
+        ids.put(node, id);
+        return id;
+    }
+
+    private int encode(Node node) {
+        if ( node.isURI() ) {
+            String iri = node.getURI();
+            int shared = sharedPrefix(lastIRI, iri);
+            dictionary.writeVarint(TERM_IRI);
+            dictionary.writeVarint(shared);
+            dictionary.writeString(iri.substring(shared));
+            lastIRI = iri;
+        } else if ( node.isBlank() ) {
+            dictionary.writeVarint(TERM_BNODE);
+            dictionary.writeString(node.getBlankNodeLabel());
+        } else if ( node.isLiteral() ) {
+            String lang = node.getLiteralLanguage();
+            String dt = node.getLiteralDatatypeURI();
+            if ( lang != null && ! lang.isEmpty() ) {
+                dictionary.writeVarint(TERM_LANG);
+                dictionary.writeString(node.getLiteralLexicalForm());
+                dictionary.writeString(lang);
+            } else if ( dt == null || XSDDatatype.XSDstring.getURI().equals(dt) ) {
+                dictionary.writeVarint(TERM_STRING);
+                dictionary.writeString(node.getLiteralLexicalForm());
+            } else {
+                // The datatype is a term of the block, before the literal.
+                int dtId = id(NodeFactory.createURI(dt));
+                dictionary.writeVarint(TERM_TYPED);
+                dictionary.writeString(node.getLiteralLexicalForm());
+                dictionary.writeVarint(dtId);
+            }
+        } else if ( node.isNodeTriple() ) {
+            Triple t = node.getTriple();
+            int s = id(t.getSubject());
+            int p = id(t.getPredicate());
+            int o = id(t.getObject());
+            dictionary.writeVarint(TERM_TRIPLE);
+            dictionary.writeVarint(s);
+            dictionary.writeVarint(p);
+            dictionary.writeVarint(o);
+        } else if ( node.isVariable() ) {
+            dictionary.writeVarint(TERM_VAR);
+            dictionary.writeString(node.getName());
+        } else
+            throw new RiotColumnarException("Can't encode node: "+node);
+        return ++termCount;
+    }
+
+    private static int sharedPrefix(String s1, String s2) {
+        int n = Math.min(s1.length(), s2.length());
+        int i = 0;
+        while ( i < n && s1.charAt(i) == s2.charAt(i) )
+            i++;
+        // Do not split a surrogate pair.
+        if ( i > 0 && Character.isHighSurrogate(s1.charAt(i-1)) )
+            i--;
+        return i;
+    }
+
+    // ---- Blocks
+
+    private void flush() {
+        if ( rows == 0 && directiveCount == 0 )
+            return;
+        payload.reset();
+        payload.writeVarint(BLOCK_ROWS);
+        payload.writeVarint(directiveCount);
+        payload.writeBuffer(directives);
+        payload.writeVarint(termCount);
+        payload.writeBuffer(dictionary);
+        payload.writeVarint(rows == 0 ? 0 : arity);
+        payload.writeVarint(rows);
+        for ( int c = 0 ; rows > 0 && c < arity ; c++ ) {
+            int[] column = columns[c];
+            int previous = 0;
+            for ( int r = 0 ; r < rows ; r++ ) {
+                payload.writeZigZag(column[r] - previous);
+                previous = column[r];
+            }
+        }
+        writeBlock();
+
+        directives.reset();
+        directiveCount = 0;
+        dictionary.reset();
+        ids.clear();
+        termCount = 0;
+        lastIRI = "";
+        rows = 0;
+    }
+
+    private void writeBlock() {
+        ensureHeader();
+        int length = payload.length();
+        byte[] stored = ( codec == ColumnarCodec.NONE ) ? null : codec.compress(payload.bytes(), length);
+        // Store uncompressed if compression does not help (small blocks).
+        if ( stored != null && stored.length >= length )
+            stored = null;
+        ColumnarCodec blockCodec = ( stored == null ) ? ColumnarCodec.NONE : codec;
+        header.reset();
+        header.writeVarint(blockCodec.id());
+        header.writeVarint(length);
+        header.writeVarint(stored == null ? length : stored.length);
+        header.writeTo(out);
+        try {
+            if ( stored == null )
+                out.write(payload.bytes(), 0, length);
+            else
+                out.write(stored);
+        } catch (IOException ex) { IO.exception(ex); }
+    }
+
+    private void ensureHeader() {
+        if ( headerWritten )
+            return;
+        headerWritten = true;
+        try {
+            out.write(MAGIC);
+            out.write(VERSION);
+        } catch (IOException ex) { IO.exception(ex); }
+    }
+}
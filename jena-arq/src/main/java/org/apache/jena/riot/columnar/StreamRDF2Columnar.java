@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.riot.columnar;
+
+import java.io.OutputStream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Encode a {@link StreamRDF} as RDF Columnar.
+ * Quads in the default graph are written as triples.
+ */
+public class StreamRDF2Columnar implements StreamRDF, AutoCloseable {
+    private final ColumnarWriter writer;
+    private final Node[] row3 = new Node[3];
+    private final Node[] row4 = new Node[4];
+
+    public StreamRDF2Columnar(OutputStream out, ColumnarCodec codec) {
+        this(out, codec, CRDF.DftBlockRows);
+    }
+
+    public StreamRDF2Columnar(OutputStream out, ColumnarCodec codec, int blockRows) {
+        this.writer = new ColumnarWriter(out, codec, blockRows);
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void triple(Triple triple) {
+        row3[0] = triple.getSubject();
+        row3[1] = triple.getPredicate();
+        row3[2] = triple.getObject();
+        writer.row(row3);
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        if ( quad.getGraph() == null || quad.isDefaultGraph() ) {
+            triple(quad.asTriple());
+            return;
+        }
+        row4[0] = quad.getSubject();
+        row4[1] = quad.getPredicate();
+        row4[2] = quad.getObject();
+        row4[3] = quad.getGraph();
+        writer.row(row4);
+    }
+
+    @Override
+    public void base(String base) {
+        writer.base(base);
+    }
+
+    @Override
+    public void prefix(String prefix, String iri) {
+        writer.prefix(prefix, iri);
+    }
+
+    @Override
+    public void finish() {
+        writer.finish();
+    }
+
+    @Override
+    public void close() {
+        finish();
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RIOT;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.ErrorHandler;
+import org.apache.jena.riot.system.ParserProfile;
+import org.apache.jena.riot.system.ParserProfileWrapper;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.tokens.Token;
+import org.apache.jena.riot.tokens.TokenType;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerBytes;
+import org.apache.jena.riot.tokens.TokenizerText;
+
+/**
+ * Parse N-Triples or N-Quads using several threads.
+ * <p>
+ * The input is read in blocks which are split after the last newline, so each block
+ * is a sequence of complete lines. Each block is tokenized and parsed on a worker
+ * thread and the triples or quads are sent to the {@link StreamRDF} on the caller's
+ * thread, either in the order of the input or in the order blocks finish.
+ * Only a few blocks per worker are in-progress at any time so memory use is bounded.
+ * <p>
+ * Blank nodes are allocated by the {@link ParserProfile} for the whole parse, so a
+ * label means the same blank node in every block. Parse errors and warnings from the
+ * tokenizer and grammar are reported with the line number in the whole input; warnings
+ * from term checking report the line within the block.
+ * <p>
+ * This is used by {@link org.apache.jena.riot.RDFParser} when the context setting
+ * {@link RIOT#symParserParallel} is more than one.
+ */
+public class ParallelNTuplesParser {
+    /** Block size in bytes. */
+    public static final int DftBlockSize = 4*1024*1024;
+    // Blocks being parsed or waiting to be delivered, per worker.
+    private static final int InFlightPerWorker = 2;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    private ParallelNTuplesParser() {}
+
+    /**
+     * Parse N-Triples or N-Quads from the {@link InputStream} with {@code numWorkers}
+     * threads, sending the output to {@code output}. If {@code ordered} is false, blocks
+     * of output are sent as they are completed.
+     */
+    public static void parse(InputStream input, Lang lang, ParserProfile profile, StreamRDF output, int numWorkers, boolean ordered) {
+        parse(input, lang, profile, output, numWorkers, ordered, false);
+    }
+
+    /**
+     * Parse N-Triples or N-Quads from the {@link InputStream} with {@code numWorkers}
+     * threads, sending the output to {@code output}. If {@code byteTokenizer} is true,
+     * blocks are tokenized with {@link TokenizerBytes}.
+     */
+    public static void parse(InputStream input, Lang lang, ParserProfile profile, StreamRDF output,
+                             int numWorkers, boolean ordered, boolean byteTokenizer) {
+        parse(input, lang, profile, output, numWorkers, ordered, byteTokenizer, DftBlockSize);
+    }
+
+    /*package*/ static void parse(InputStream input, Lang lang, ParserProfile profile, StreamRDF output,
+                                  int numWorkers, boolean ordered, boolean byteTokenizer, int blockSize) {
+        boolean isQuads = RDFLanguages.sameLang(RDFLanguages.NQUADS, lang);
+        if ( ! isQuads && ! RDFLanguages.sameLang(RDFLanguages.NTRIPLES, lang) )
+            throw new RiotException("Parallel parsing is only for N-Triples and N-Quads: "+lang);
+        if ( numWorkers < 1 )
+            throw new IllegalArgumentException("Number of workers must be one or more: "+numWorkers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numWorkers, ParallelNTuplesParser::newThread);
+        CompletionService<CollectorStreamRDF> completion = new ExecutorCompletionService<>(executor);
+        Deque<Future<CollectorStreamRDF>> pending = new ArrayDeque<>();
+        int maxInFlight = numWorkers * InFlightPerWorker;
+        int inFlight = 0;
+        // All blocks share this for blank node allocation.
+        Object bnodeLock = new Object();
+        BlockReader blocks = new BlockReader(input, blockSize);
+
+        output.start();
+        try {
+            long lineOffset = 0;
+            for (;;) {
+                Block block = blocks.next();
+                if ( block == null )
+                    break;
+                Callable<CollectorStreamRDF> task = parseBlock(block, lineOffset, isQuads, byteTokenizer, profile, bnodeLock);
+                if ( ordered )
+                    pending.add(executor.submit(task));
+                else
+                    completion.submit(task);
+                inFlight++;
+                lineOffset += block.numLines;
+                if ( inFlight >= maxInFlight ) {
+                    deliver(ordered ? pending.removeFirst() : completion.take(), output);
+                    inFlight--;
+                }
+            }
+            while ( inFlight > 0 ) {
+                deliver(ordered ? pending.removeFirst() : completion.take(), output);
+                inFlight--;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RiotException("Interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+            output.finish();
+        }
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ParallelNTuples-"+threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static Callable<CollectorStreamRDF> parseBlock(Block block, long lineOffset, boolean isQuads, boolean byteTokenizer,
+                                                           ParserProfile profile, Object bnodeLock) {
+        return ()->{
+            ErrorHandler errorHandler = ( lineOffset == 0 || profile.getErrorHandler() == null )
+                ? profile.getErrorHandler()
+                : new ErrorHandlerLineOffset(profile.getErrorHandler(), lineOffset);
+            ParserProfile blockProfile = new ParserProfileBlock(profile, errorHandler, bnodeLock);
+            Tokenizer tokenizer = byteTokenizer
+                ? TokenizerBytes.create(block.bytes, 0, block.length, errorHandler)
+                : TokenizerText.create().source(new ByteArrayInputStream(block.bytes, 0, block.length)).errorHandler(errorHandler).build();
+            CollectorStreamRDF collector = new CollectorStreamRDF();
+            LangRIOT parser = isQuads
+                ? RiotParsers.createParserNQuads(tokenizer, collector, blockProfile)
+                : RiotParsers.createParserNTriples(tokenizer, collector, blockProfile);
+            parser.parse();
+            return collector;
+        };
+    }
+
+    private static void deliver(Future<CollectorStreamRDF> future, StreamRDF output) throws InterruptedException {
+        CollectorStreamRDF results;
+        try {
+            results = future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause;
+            if ( cause instanceof Error )
+                throw (Error)cause;
+            throw new RiotException(cause);
+        }
+        results.getTriples().forEach(output::triple);
+        results.getQuads().forEach(output::quad);
+    }
+
+    /** A sequence of complete lines. */
+    private static class Block {
+        final byte[] bytes;
+        final int length;
+        final long numLines;
+
+        Block(byte[] bytes, int length, long numLines) {
+            this.bytes = bytes;
+            this.length = length;
+            this.numLines = numLines;
+        }
+    }
+
+    /**
+     * Read an {@link InputStream} in blocks that end at a newline.
+     * The UTF-8 encoding of a character never includes the byte for newline so the
+     * split is always between characters.
+     */
+    private static class BlockReader {
+        private final InputStream input;
+        private final int blockSize;
+        // Bytes after the last newline of the previous block.
+        private byte[] carry = new byte[0];
+        private boolean eof = false;
+
+        BlockReader(InputStream input, int blockSize) {
+            this.input = input;
+            this.blockSize = blockSize;
+        }
+
+        /** The next block, or null at the end of the input. */
+        Block next() {
+            if ( eof )
+                return null;
+            byte[] buffer = Arrays.copyOf(carry, carry.length + blockSize);
+            int length = carry.length;
+            for (;;) {
+                length += fill(buffer, length);
+                if ( length < buffer.length ) {
+                    // End of input: the rest is the last block.
+                    eof = true;
+                    carry = null;
+                    if ( length == 0 )
+                        return null;
+                    return new Block(buffer, length, countNewlines(buffer, length));
+                }
+                int idx = lastNewline(buffer, length);
+                if ( idx >= 0 ) {
+                    carry = Arrays.copyOfRange(buffer, idx+1, length);
+                    return new Block(buffer, idx+1, countNewlines(buffer, idx+1));
+                }
+                // A line longer than the buffer.
+                buffer = Arrays.copyOf(buffer, buffer.length + blockSize);
+            }
+        }
+
+        private int fill(byte[] buffer, int start) {
+            try {
+                int total = 0;
+                while ( start+total < buffer.length ) {
+                    int n = input.read(buffer, start+total, buffer.length-start-total);
+                    if ( n < 0 )
+                        break;
+                    total += n;
+                }
+                return total;
+            } catch (IOException ex) { IO.exception(ex); return -1; }
+        }
+
+        private static int lastNewline(byte[] buffer, int length) {
+            for ( int i = length-1 ; i >= 0 ; i-- ) {
+                if ( buffer[i] == '\n' )
+                    return i;
+            }
+            return -1;
+        }
+
+        private static long countNewlines(byte[] buffer, int length) {
+            long count = 0;
+            for ( int i = 0 ; i < length ; i++ ) {
+                if ( buffer[i] == '\n' )
+                    count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The {@link ParserProfile} for one block: blank node allocation goes through the
+     * profile of the whole parse, one thread at a time. The rest of the profile is safe
+     * to use from several threads.
+     */
+    private static class ParserProfileBlock extends ParserProfileWrapper {
+        private final ErrorHandler errorHandler;
+        private final Object bnodeLock;
+
+        ParserProfileBlock(ParserProfile other, ErrorHandler errorHandler, Object bnodeLock) {
+            super(other);
+            this.errorHandler = errorHandler;
+            this.bnodeLock = bnodeLock;
+        }
+
+        @Override
+        public ErrorHandler getErrorHandler() {
+            return errorHandler;
+        }
+
+        @Override
+        public Node createBlankNode(Node scope, String label, long line, long col) {
+            synchronized(bnodeLock) {
+                return get().createBlankNode(scope, label, line, col);
+            }
+        }
+
+        @Override
+        public Node createBlankNode(Node scope, long line, long col) {
+            synchronized(bnodeLock) {
+                return get().createBlankNode(scope, line, col);
+            }
+        }
+
+        @Override
+        public Node create(Node currentGraph, Token token) {
+            if ( token.hasType(TokenType.BNODE) ) {
+                synchronized(bnodeLock) {
+                    return get().create(currentGraph, token);
+                }
+            }
+            return get().create(currentGraph, token);
+        }
+    }
+
+    /** Report line numbers in the whole input, not the block. */
+    private static class ErrorHandlerLineOffset implements ErrorHandler {
+        private final ErrorHandler other;
+        private final long lineOffset;
+
+        ErrorHandlerLineOffset(ErrorHandler other, long lineOffset) {
+            this.other = other;
+            this.lineOffset = lineOffset;
+        }
+
+        private long line(long line) {
+            return line < 0 ? line : line + lineOffset;
+        }
+
+        @Override
+        public void warning(String message, long line, long col) {
+            other.warning(message, line(line), col);
+        }
+
+        @Override
+        public void error(String message, long line, long col) {
+            other.error(message, line(line), col);
+        }
+
+        @Override
+        public void fatal(String message, long line, long col) {
+            other.fatal(message, line(line), col);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.riot.system.*;
 import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerBytes;
 import org.apache.jena.riot.tokens.TokenizerText;
 import org.apache.jena.sparql.core.Quad;
 
@@ -64,6 +65,18 @@ public class RiotParsers {
         return null;
     }
 
+    /**
+     * InputStream input for N-Triples and N-Quads, tokenized with
+     * {@link TokenizerBytes}. Returns null for other languages.
+     */
+    public static LangRIOT createParserBytes(InputStream input, Lang lang, StreamRDF dest, ParserProfile profile) {
+        if ( RDFLanguages.sameLang(NTRIPLES, lang) )
+            return createParserNTriples(TokenizerBytes.create(input, profile.getErrorHandler()), dest, profile);
+        if ( RDFLanguages.sameLang(NQUADS, lang) )
+            return createParserNQuads(TokenizerBytes.create(input, profile.getErrorHandler()), dest, profile);
+        return null;
+    }
+
     /** Reader input */
     public static LangRIOT createParser(Reader input, Lang lang, StreamRDF dest, ParserProfile profile) {
         if ( RDFLanguages.sameLang(RDFJSON, lang) ) {
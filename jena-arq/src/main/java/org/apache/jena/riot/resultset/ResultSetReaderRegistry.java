@@ -76,6 +76,7 @@ public class ResultSetReaderRegistry {
         register(RS_None,     factory) ;
         register(RS_Thrift,   factory) ;
         register(RS_Protobuf, factory) ;
+        register(RS_Columnar, factory) ;
     }
 
     private static class ResultSetReaderAdapter implements ResultSetReader {
@@ -73,6 +73,7 @@ public class ResultSetWriterRegistry {
         register(RS_Text,     factory) ;
         register(RS_Thrift,   factory) ;
         register(RS_Protobuf, factory) ;
+        register(RS_Columnar, factory) ;
         register(RS_None,     factory) ;
     }
 
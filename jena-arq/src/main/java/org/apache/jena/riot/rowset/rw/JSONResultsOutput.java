@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.rowset.rw;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.json.io.JSWriter;
+import org.apache.jena.atlas.lib.Chars;
+
+/**
+ * Byte output for {@link RowSetWriterJSON}.
+ * <p>
+ * Text is encoded as UTF-8 directly into a buffer which is written to the
+ * {@code OutputStream} in large chunks. There are no {@code Writer}s and no
+ * intermediate strings for quoted values.
+ * <p>
+ * The layout is the same as {@link IndentedWriter}: spaces up to the current
+ * indent are added before any output (or newline) at a column less than the indent.
+ * Strings are escaped as {@link JSWriter#outputQuotedString(String)} does.
+ * Text passed to {@code print} must not contain newlines.
+ */
+class JSONResultsOutput {
+    static final int DftBufferSize = 64*1024;
+    /** Largest number of bytes for one char: {@code \}{@code uXXXX}. */
+    private static final int MaxCharBytes = 6;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position = 0;
+    // In bytes. Only compared to the indent, which is always reached with ASCII.
+    private int column = 0;
+    private int currentIndent = 0;
+
+    JSONResultsOutput(OutputStream out) {
+        this(out, DftBufferSize);
+    }
+
+    JSONResultsOutput(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+    }
+
+    void incIndent(int x) { currentIndent += x; }
+
+    void decIndent(int x) { currentIndent -= x; }
+
+    /** Print a string which does not contain newlines. */
+    void print(String string) {
+        pad();
+        int len = string.length();
+        for ( int i = 0 ; i < len ; i++ ) {
+            char ch = string.charAt(i);
+            if ( ch < 0x80 ) {
+                if ( position >= buffer.length )
+                    flushBuffer();
+                buffer[position++] = (byte)ch;
+                column++;
+            } else
+                i = encodeChar(string, i);
+        }
+    }
+
+    /** Print already encoded bytes which do not contain newlines. */
+    void print(byte[] bytes) {
+        pad();
+        int len = bytes.length;
+        if ( len > buffer.length - position ) {
+            flushBuffer();
+            if ( len > buffer.length ) {
+                write(bytes, 0, len);
+                column += len;
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, len);
+        position += len;
+        column += len;
+    }
+
+    void println(String string) {
+        print(string);
+        println();
+    }
+
+    void println() {
+        pad();
+        if ( position >= buffer.length )
+            flushBuffer();
+        buffer[position++] = '\n';
+        column = 0;
+    }
+
+    /** Print a string as a quoted JSON string. */
+    void quote(String string) {
+        pad();
+        if ( buffer.length - position < 2*MaxCharBytes )
+            flushBuffer();
+        buffer[position++] = '"';
+        column++;
+        int len = string.length();
+        for ( int i = 0 ; i < len ; i++ ) {
+            if ( buffer.length - position < 2*MaxCharBytes )
+                flushBuffer();
+            char ch = string.charAt(i);
+            switch (ch) {
+                case '"' :  escape('"');  continue;
+                case '\\' : escape('\\'); continue;
+                case '\b' : escape('b');  continue;
+                case '\f' : escape('f');  continue;
+                case '\n' : escape('n');  continue;
+                case '\r' : escape('r');  continue;
+                case '\t' : escape('t');  continue;
+                case '/' :
+                    // Avoid "</" (for HTML).
+                    if ( i > 0 && string.charAt(i-1) == '<' )
+                        escape('/');
+                    else
+                        ascii('/');
+                    continue;
+                default :
+                    break;
+            }
+            if ( ch < 0x20 || (ch >= 0x7F && ch <= 0x9F) || (ch >= 0x2000 && ch < 0x2100) ) {
+                ascii('\\');
+                ascii('u');
+                ascii(Chars.hexDigitsUC[(ch >> 12) & 0xF]);
+                ascii(Chars.hexDigitsUC[(ch >> 8) & 0xF]);
+                ascii(Chars.hexDigitsUC[(ch >> 4) & 0xF]);
+                ascii(Chars.hexDigitsUC[ch & 0xF]);
+                continue;
+            }
+            if ( ch < 0x80 )
+                ascii(ch);
+            else
+                i = encodeChar(string, i);
+        }
+        buffer[position++] = '"';
+        column++;
+    }
+
+    /** The bytes of a string as a quoted JSON string, for use with {@link #print(byte[])}. */
+    static byte[] quoteBytes(String string) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(string.length()+8);
+        JSONResultsOutput x = new JSONResultsOutput(bytes, string.length()+2*MaxCharBytes+2);
+        x.quote(string);
+        x.flushBuffer();
+        return bytes.toByteArray();
+    }
+
+    /** Write buffered bytes and flush the {@code OutputStream}. */
+    void flush() {
+        flushBuffer();
+        IO.flush(out);
+    }
+
+    // ---- Internal
+
+    private void pad() {
+        if ( column >= currentIndent )
+            return;
+        int spaces = currentIndent - column;
+        for ( int i = 0 ; i < spaces ; i++ ) {
+            if ( position >= buffer.length )
+                flushBuffer();
+            buffer[position++] = ' ';
+        }
+        column = currentIndent;
+    }
+
+    private void escape(char ch) {
+        buffer[position++] = '\\';
+        buffer[position++] = (byte)ch;
+        column += 2;
+    }
+
+    // Caller ensures space in the buffer.
+    private void ascii(char ch) {
+        buffer[position++] = (byte)ch;
+        column++;
+    }
+
+    /**
+     * Encode a non-ASCII char as UTF-8; return the index of the last char used.
+     * An unpaired surrogate is written as '?', as the UTF-8 {@code Writer}s do.
+     */
+    private int encodeChar(String string, int i) {
+        if ( buffer.length - position < MaxCharBytes )
+            flushBuffer();
+        char ch = string.charAt(i);
+        if ( ch < 0x800 ) {
+            buffer[position++] = (byte)(0xC0 | (ch >> 6));
+            buffer[position++] = (byte)(0x80 | (ch & 0x3F));
+            column += 2;
+            return i;
+        }
+        if ( ! Character.isSurrogate(ch) ) {
+            buffer[position++] = (byte)(0xE0 | (ch >> 12));
+            buffer[position++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+            buffer[position++] = (byte)(0x80 | (ch & 0x3F));
+            column += 3;
+            return i;
+        }
+        if ( Character.isHighSurrogate(ch) && i+1 < string.length() && Character.isLowSurrogate(string.charAt(i+1)) ) {
+            int cp = Character.toCodePoint(ch, string.charAt(i+1));
+            buffer[position++] = (byte)(0xF0 | (cp >> 18));
+            buffer[position++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+            buffer[position++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+            buffer[position++] = (byte)(0x80 | (cp & 0x3F));
+            column += 4;
+            return i+1;
+        }
+        buffer[position++] = '?';
+        column++;
+        return i;
+    }
+
+    private void flushBuffer() {
+        if ( position == 0 )
+            return;
+        write(buffer, 0, position);
+        position = 0;
+    }
+
+    private void write(byte[] bytes, int offset, int length) {
+        try { out.write(bytes, offset, length); }
+        catch (IOException ex) { IO.exception(ex); }
+    }
+}
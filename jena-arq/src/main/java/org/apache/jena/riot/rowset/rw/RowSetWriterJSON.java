@@ -26,8 +26,8 @@ import java.util.Iterator;
 import java.util.Objects;
 
 import org.apache.jena.atlas.io.IO;
-import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.json.io.JSWriter;
+import org.apache.jena.atlas.lib.StrUtils;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
@@ -82,21 +82,25 @@ public class RowSetWriterJSON implements RowSetWriter {
 
     @Override
     public void write(OutputStream outStream, RowSet rowSet, Context context) {
-        IndentedWriter out = new IndentedWriter(outStream);
+        JSONResultsOutput out = new JSONResultsOutput(outStream);
         try {
             ResultSetWriterTableJSON x = new ResultSetWriterTableJSON(out, context);
             x.write(rowSet);
         }
         finally {
-            IO.flush(out);
+            out.flush();
         }
     }
 
     // Create once per write call.
     // This holds the state of the writing of one ResultSet.
+    //
+    // The output is bytes: fixed text is encoded once, and the quoted form of
+    // IRIs (including datatypes) is kept in a small cache because the same IRIs
+    // occur again and again in large results.
     static class ResultSetWriterTableJSON {
         private final NodeToLabel    labels;
-        private final  IndentedWriter out;
+        private final JSONResultsOutput out;
         /** Control whether the type/literal/fileds all go on one line. */
         private static final boolean MultiLineValues   = false;
         /** Control whether variables in header are one per line (minor). */
@@ -106,14 +110,25 @@ public class RowSetWriterJSON implements RowSetWriter {
         private static final int VarIndent = 2 ;
         private static final int OuterIndent = Math.min(2, MainIndent);
 
-        private ResultSetWriterTableJSON(OutputStream outStream, Context context) {
-            this(new IndentedWriter(outStream), context);
-        }
-
-        private ResultSetWriterTableJSON(IndentedWriter indentedOut, Context context) {
-            out = indentedOut;
-            out.setUnitIndent(MainIndent);
-
+        // Fixed text, as bytes.
+        private static final byte[] bTypeLiteral  = fixed(kType, kLiteral);
+        private static final byte[] bTypeURI      = fixed(kType, kUri);
+        private static final byte[] bTypeBNode    = fixed(kType, kBnode);
+        private static final byte[] bTypeTriple   = fixed(kType, kTriple);
+        private static final byte[] bXmlLang      = name(kXmlLang);
+        private static final byte[] bDatatype     = name(kDatatype);
+        private static final byte[] bValue        = name(kValue);
+        private static final byte[] bSubject      = name(kSubject);
+        private static final byte[] bPredicate    = name(kPredicate);
+        private static final byte[] bObject       = name(kObject);
+
+        /** Size of the IRI cache (a power of two). */
+        private static final int IRICacheSize = 1024;
+        private final String[] iriCacheKeys  = new String[IRICacheSize];
+        private final byte[][] iriCacheBytes = new byte[IRICacheSize][];
+
+        private ResultSetWriterTableJSON(JSONResultsOutput out, Context context) {
+            this.out = out;
             boolean outputGraphBNodeLabels = (context != null) && context.isTrue(ARQ.outputGraphBNodeLabels);
             labels = outputGraphBNodeLabels
                 ? SyntaxLabels.createNodeToLabelAsGiven()
@@ -131,11 +146,12 @@ public class RowSetWriterJSON implements RowSetWriter {
             println(out, "}");      // top level {}
         }
 
-
         private void writeRows(RowSet rowSet) {
-            println(out, quoteName(kResults), ": {");
+            quoteName(out, kResults);
+            println(out, ": {");
             incIndent(out);
-            println(out, quoteName(kBindings), ": [");
+            quoteName(out, kBindings);
+            println(out, ": [");
             incIndent(out);
 
             boolean firstRow = true;
@@ -157,7 +173,8 @@ public class RowSetWriterJSON implements RowSetWriter {
         // Write policy - write objects, leave point of output just after the closing "}"
 
         private void writeHeader(RowSet rs) {
-            println(out, quoteName(kHead),": {");
+            quoteName(out, kHead);
+            println(out, ": {");
             incIndent(out);
             writeHeaderLink(out, rs);
             writeHeaderVars(out, rs);
@@ -165,15 +182,16 @@ public class RowSetWriterJSON implements RowSetWriter {
             print(out, "}");
         }
 
-        private static void writeHeaderLink(IndentedWriter out, RowSet rs) {
+        private static void writeHeaderLink(JSONResultsOutput out, RowSet rs) {
             // ---- link
             // out.println("\"link\": [] ,") ;
         }
 
         //  "var": [  ... ]
-        private static void writeHeaderVars(IndentedWriter out, RowSet rs) {
+        private static void writeHeaderVars(JSONResultsOutput out, RowSet rs) {
             // On one line.
-            print(out, quoteName(kVars), ": [ ");
+            quoteName(out, kVars);
+            print(out, ": [ ");
             if ( MultiLineVarNames )
                 println(out);
             incIndent(out);
@@ -189,14 +207,13 @@ public class RowSetWriterJSON implements RowSetWriter {
             println(out, " ]");
         }
 
-        private void writeRow(IndentedWriter out, RowSet rowSet, Binding binding) {
+        private void writeRow(JSONResultsOutput out, RowSet rowSet, Binding binding) {
             print(out, "{ ");
             //incIndent(out);
             out.incIndent(VarIndent);
             boolean firstInRow = true;
             // Print in the order seen in the header.
-            for ( Iterator<Var> iter = rowSet.getResultVars().iterator() ; iter.hasNext() ; ) {
-                Var var = iter.next();
+            for ( Var var : rowSet.getResultVars() ) {
                 Node value = binding.get(var);
                 if ( value == null )
                     continue;
@@ -230,27 +247,24 @@ public class RowSetWriterJSON implements RowSetWriter {
          * i.e.    "var": { ... term ... }
          * Separating comma handled by caller writeRow
          */
-        private void writeVarValue(IndentedWriter out, Var var, Node value, boolean firstInRow) {
+        private void writeVarValue(JSONResultsOutput out, Var var, Node value, boolean firstInRow) {
             if ( value == null )
                 // Skip if no value.
                 return;
             println(out);
             // Do not use quoteName - varName may not be JSON-safe as a bare name.
-            print(out, quote(var.getVarName()), ": ");
+            quote(out, var.getVarName());
+            print(out, ": ");
             writeValue(out, value, MultiLineValues);
             // No newline - allow for " ,"
         }
 
-        private void writeValue(IndentedWriter out, Node value, boolean multiLine) {
+        private void writeValue(JSONResultsOutput out, Node value, boolean multiLine) {
             if ( multiLine || value.isNodeTriple() )
                 println(out, "{");
             else
                 print(out, "{ ");
             incIndent(out);
-            // Explicit unbound
-            // if ( value == null )
-            //     writeValueUnbound(out) ;
-            // else
             if ( value.isLiteral() )
                 writeValueLiteral(out, value, multiLine);
             else if ( value.isURI() )
@@ -273,67 +287,64 @@ public class RowSetWriterJSON implements RowSetWriter {
 
         // On entry to writeTerm : ready to start the "type" field.
 
-        private void writeValueUnbound(IndentedWriter out, boolean multiLine) {
-            print(out, quoteName(kType), ": ", quote(kUnbound), " , ") ;
-            if ( MultiLineValues )
-                println(out) ;
-            print(out, quoteName(kValue), ": null") ;
-        }
-
-        private void writeValueLiteral(IndentedWriter out, Node literal, boolean multiLine) {
-            String datatype = literal.getLiteralDatatypeURI();
+        private void writeValueLiteral(JSONResultsOutput out, Node literal, boolean multiLine) {
             String lang = literal.getLiteralLanguage();
 
+            out.print(bTypeLiteral);
             if ( Util.isSimpleString(literal) || Util.isLangString(literal) ) {
-                print(out, quoteName(kType), ": ", quote(kLiteral), " , ");
                 if ( multiLine )
                     println(out);
 
                 if ( lang != null && !lang.equals("") ) {
-                    print(out, quoteName(kXmlLang), ": ", quote(lang), " , ");
+                    out.print(bXmlLang);
+                    quote(out, lang);
+                    print(out, " , ");
                     if ( multiLine )
                         println(out);
                 }
             } else {
-                print(out, quoteName(kType), ": ", quote(kLiteral), " , ");
                 if ( MultiLineValues )
                     println(out);
 
-                print(out, quoteName(kDatatype), ": ", quote(datatype), " , ");
+                out.print(bDatatype);
+                out.print(quotedIRI(literal.getLiteralDatatypeURI()));
+                print(out, " , ");
                 if ( multiLine )
                     println(out);
             }
 
-            print(out, quoteName(kValue), ": ", quote(literal.getLiteralLexicalForm()));
+            out.print(bValue);
+            quote(out, literal.getLiteralLexicalForm());
         }
 
-        private void writeValueBlankNode(IndentedWriter out, Node resource, boolean multiLine) {
+        private void writeValueBlankNode(JSONResultsOutput out, Node resource, boolean multiLine) {
             String label = labels.get(null, resource);
             // Comes with leading "_:"
             label = label.substring(2);
 
-            print(out, quoteName(kType), ": ", quote(kBnode), " , ");
+            out.print(bTypeBNode);
             if ( multiLine )
                 println(out);
-            print(out, quoteName(kValue), ": ", quote(label));
+            out.print(bValue);
+            quote(out, label);
         }
 
-        private void writeValueURI(IndentedWriter out, Node resource, boolean multiLine) {
-            print(out, quoteName(kType), ": ", quote(kUri), " , ");
+        private void writeValueURI(JSONResultsOutput out, Node resource, boolean multiLine) {
+            out.print(bTypeURI);
             if ( multiLine )
                 println(out);
-            print(out, quoteName(kValue), ": ", quote(resource.getURI()));
-            return;
+            out.print(bValue);
+            out.print(quotedIRI(resource.getURI()));
         }
 
-        private void writeValueNodeTriple(IndentedWriter out, Node value, boolean multiLine) {
+        private void writeValueNodeTriple(JSONResultsOutput out, Node value, boolean multiLine) {
             Triple triple = value.getTriple();
-            print(out, quoteName(kType), ": ", quote(kTriple), " , ");
+            out.print(bTypeTriple);
             println(out);
 
             //if ( multiLineValues )
             // println(out);
-            print(out, quoteName(kValue), ": ");
+            out.print(bValue);
 
             // Allow for different multiline choice for triple components
             boolean multiLineInnerValue = multiLine;
@@ -344,17 +355,17 @@ public class RowSetWriterJSON implements RowSetWriter {
             incIndent(out);
 
             // ---
-            print(out, quoteName(kSubject), ": ");
+            out.print(bSubject);
             print(out, " ");
 
             writeValue(out, triple.getSubject(), multiLineInnerValue);
             println(out, " ,");
 
-            print(out, quoteName(kPredicate), ": ");
+            out.print(bPredicate);
             writeValue(out, triple.getPredicate(), multiLineInnerValue);
             println(out, " ,");
 
-            print(out, quoteName(kObject), ": ");
+            out.print(bObject);
             print(out, "  ");
             writeValue(out, triple.getObject(), multiLineInnerValue);
             // End of triple object.
@@ -365,13 +376,23 @@ public class RowSetWriterJSON implements RowSetWriter {
             return;
         }
 
-        private void writeValueNodeGraph(IndentedWriter out, Node value, boolean multiLine) {
+        private void writeValueNodeGraph(JSONResultsOutput out, Node value, boolean multiLine) {
             throw new UnsupportedOperationException("Graph terms");
         }
 
-        private static String quote(String string) {
-            // Scope for efficiency improvement.
-            return JSWriter.outputQuotedString(string);
+        /** The quoted form of an IRI, from the cache if possible. */
+        private byte[] quotedIRI(String iri) {
+            int idx = iri.hashCode() & (IRICacheSize-1);
+            if ( iri.equals(iriCacheKeys[idx]) )
+                return iriCacheBytes[idx];
+            byte[] bytes = JSONResultsOutput.quoteBytes(iri);
+            iriCacheKeys[idx] = iri;
+            iriCacheBytes[idx] = bytes;
+            return bytes;
+        }
+
+        private static void quote(JSONResultsOutput out, String string) {
+            out.quote(string);
         }
 
         // Quote a name (known to be JSON-safe)
@@ -379,29 +400,38 @@ public class RowSetWriterJSON implements RowSetWriter {
         // Some (the Java JSON code for one) JSON parsers accept an unquoted
         // string as a name of a name/value pair.
 
-        private static String quoteName(String string) {
+        private static void quoteName(JSONResultsOutput out, String string) {
             // All calls to quoteName are builtin keywords which are already safe.
             // but need the "" added.
-            //return "\""+string+"\"";
-            return quote(string);
+            quote(out, string);
+        }
+
+        /** {@code "name": } */
+        private static byte[] name(String name) {
+            return StrUtils.asUTF8bytes(JSWriter.outputQuotedString(name)+": ");
+        }
+
+        /** {@code "name": "value" , } */
+        private static byte[] fixed(String name, String value) {
+            return StrUtils.asUTF8bytes(JSWriter.outputQuotedString(name)+": "+JSWriter.outputQuotedString(value)+" , ");
         }
 
         // Intercept all operations - development assistance.
 
-        private static void incIndent(IndentedWriter out) {
-            out.incIndent();
+        private static void incIndent(JSONResultsOutput out) {
+            out.incIndent(MainIndent);
         }
 
-        private static void decIndent(IndentedWriter out) {
-            out.decIndent();
+        private static void decIndent(JSONResultsOutput out) {
+            out.decIndent(MainIndent);
         }
 
-        private static void print(IndentedWriter out, String... strings) {
+        private static void print(JSONResultsOutput out, String... strings) {
             for ( String s : strings )
                 out.print(s);
         }
 
-        private static void println(IndentedWriter out, String... strings) {
+        private static void println(JSONResultsOutput out, String... strings) {
             print(out, strings);
             out.println();
         }
@@ -51,6 +51,10 @@ import org.slf4j.LoggerFactory;
  * <p>
  * There are overheads, so this is only beneficial in some situations. Delivery to
  * the StreamRDF has an initial latency while the first batch of work is accumulated.
+ * <p>
+ * N-Triples and N-Quads can also be parsed using several threads by setting
+ * {@link RDFParserBuilder#parallel(int)} on the sources passed to
+ * {@link #asyncParseSources}, or {@link RIOT#symParserParallel} in the system context.
  */
 public class AsyncParser {
 
@@ -37,6 +37,17 @@ public class FactoryRDFCaching extends FactoryRDFStd {
 
     // Control the setup - for one thread; start size = 50% of full size, no stats
     private final Cache<String, Node> cache ;
+    // In front of the cache: the last node for each slot, found by String identity.
+    // Tokenizers that reuse the String object for a repeated IRI (TokenizerBytes) hit
+    // here. Each slot is one object so that a slot is always read consistently.
+    private final RecentNode[] recent = new RecentNode[RecentSize] ;
+    private static final int RecentSize = 1024 ;
+
+    private static final class RecentNode {
+        final String uriStr ;
+        final Node node ;
+        RecentNode(String uriStr, Node node) { this.uriStr = uriStr ; this.node = node ; }
+    }
 
     public FactoryRDFCaching() {
         this(DftNodeCacheSize, SyntaxLabels.createLabelToNode());
@@ -58,8 +69,14 @@ public class FactoryRDFCaching extends FactoryRDFStd {
 
     @Override
     public Node createURI(String uriStr) {
+        int idx = uriStr.hashCode() & (RecentSize-1) ;
+        RecentNode entry = recent[idx] ;
+        if ( entry != null && entry.uriStr == uriStr )
+            return entry.node ;
         try {
-            return cache.get(uriStr, ()->RiotLib.createIRIorBNode(uriStr)) ;
+            Node node = cache.get(uriStr, ()->RiotLib.createIRIorBNode(uriStr)) ;
+            recent[idx] = new RecentNode(uriStr, node) ;
+            return node ;
         }
         catch (ExecutionException e) {
             throw new RiotException("Execution exception filling cache <"+uriStr+">", e) ;
@@ -30,6 +30,7 @@ import org.apache.jena.atlas.lib.CharSpace ;
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.riot.* ;
+import org.apache.jena.riot.columnar.ColumnarRDF;
 import org.apache.jena.riot.protobuf.ProtobufRDF;
 import org.apache.jena.riot.thrift.ThriftRDF;
 import org.apache.jena.riot.writer.StreamWriterTriX ;
@@ -97,6 +98,13 @@ public class StreamRDFWriter {
         }
     } ;
 
+    private static StreamRDFWriterFactory streamWriterFactoryColumnar = new StreamRDFWriterFactory() {
+        @Override
+        public StreamRDF create(OutputStream output, RDFFormat format, Context context) {
+            return ColumnarRDF.streamToOutputStream(output, ColumnarRDF.codec(format)) ;
+        }
+    } ;
+
     private static StreamRDFWriterFactory streamWriterFactoryTriX = new StreamRDFWriterFactory() {
         @Override
         public StreamRDF create(OutputStream output, RDFFormat format, Context context) {
@@ -142,6 +150,7 @@ public class StreamRDFWriter {
         register(Lang.NQUADS,       RDFFormat.NQUADS) ;
         register(Lang.RDFPROTO,     RDFFormat.RDF_PROTO) ;
         register(Lang.RDFTHRIFT,    RDFFormat.RDF_THRIFT) ;
+        register(Lang.RDFCOLUMNAR,  RDFFormat.RDF_COLUMNAR) ;
         register(Lang.TRIX,         RDFFormat.TRIX) ;
         register(Lang.RDFNULL,      RDFFormat.RDFNULL) ;
 
@@ -164,6 +173,10 @@ public class StreamRDFWriter {
         register(RDFFormat.RDF_THRIFT,          streamWriterFactoryThrift) ;
         register(RDFFormat.RDF_THRIFT_VALUES,   streamWriterFactoryThrift) ;
 
+        register(RDFFormat.RDF_COLUMNAR,                streamWriterFactoryColumnar) ;
+        register(RDFFormat.RDF_COLUMNAR_UNCOMPRESSED,   streamWriterFactoryColumnar) ;
+        register(RDFFormat.RDF_COLUMNAR_DEFLATE,        streamWriterFactoryColumnar) ;
+
         register(RDFFormat.TRIX,            streamWriterFactoryTriX) ;
         register(RDFFormat.RDFNULL,         streamWriterFactoryNull) ;
     }
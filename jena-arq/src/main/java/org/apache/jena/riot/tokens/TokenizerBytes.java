@@ -0,0 +1,844 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens;
+
+import static org.apache.jena.atlas.lib.Chars.*;
+import static org.apache.jena.riot.system.RiotChars.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.SysRIOT;
+import org.apache.jena.riot.system.ErrorHandler;
+import org.apache.jena.riot.system.ErrorHandlerFactory;
+
+/**
+ * Tokenizer for N-Triples and N-Quads that works on the UTF-8 bytes of the input.
+ * <p>
+ * {@link TokenizerText} decodes the input to characters and builds each token image
+ * in a {@code StringBuilder}. This tokenizer scans a byte buffer. IRIs and language
+ * tags are looked up by their bytes in a cache of recently seen strings, so a repeated
+ * IRI is the same {@code String} object and no new string is created. Literals that
+ * have no escapes are made into strings directly from the buffer. Anything else,
+ * including escapes and errors, is decoded character by character with the same rules
+ * and messages as {@link TokenizerText}.
+ * <p>
+ * The tokens are those of N-Triples and N-Quads, including {@code <<} and {@code >>}
+ * for RDF-star. Other input is returned as {@link TokenType#KEYWORD} tokens for the
+ * parser to reject. Column numbers count bytes, not characters.
+ */
+public final class TokenizerBytes implements Tokenizer
+{
+    private static final int BufferSize = 128*1024;
+
+    // ASCII characters that end the fast path for reading an IRI.
+    private static final boolean[] iriSpecial = new boolean[128];
+    static {
+        for ( int i = 0 ; i <= 0x20 ; i++ )
+            iriSpecial[i] = true;
+        for ( char ch : new char[] {'<', '"', '{', '}', '|', '^', '`', '\\'} )
+            iriSpecial[ch] = true;
+    }
+
+    private final InputStream input;
+    private final ByteBuffer byteBuffer;
+    private final ErrorHandler errorHandler;
+    private final StringCache cache = new StringCache();
+    private final StringBuilder stringBuilder = new StringBuilder(200);
+
+    private byte[] buffer;
+    private int pos;
+    private int limit;
+    // Start of the bytes that must be kept when the buffer is refilled.
+    private int mark;
+    private boolean endOfInput;
+    private boolean started = false;
+
+    private long line = 1;
+    // Index in the buffer of the start of the current line. It is negative if the line
+    // started in an earlier fill of the buffer.
+    private long lineStart;
+    // Byte length of the codepoint last decoded by peekCodepoint.
+    private int cpLength;
+
+    private Token token = null;
+    private boolean finished = false;
+
+    /**
+     * Tokenize an {@link InputStream} of UTF-8.
+     * If the error handler is null, errors are exceptions and warnings are logged.
+     */
+    public static Tokenizer create(InputStream input, ErrorHandler errorHandler) {
+        Objects.requireNonNull(input, "InputStream");
+        return new TokenizerBytes(input, null, new byte[BufferSize], 0, 0, false, errorHandler);
+    }
+
+    /** Tokenize bytes of UTF-8. The bytes must not change while tokenizing. */
+    public static Tokenizer create(byte[] bytes, int offset, int length, ErrorHandler errorHandler) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        return new TokenizerBytes(null, null, bytes, offset, offset+length, true, errorHandler);
+    }
+
+    /**
+     * Tokenize the remaining bytes of a {@link ByteBuffer} of UTF-8, for example, a
+     * memory-mapped file. The position of the ByteBuffer is moved as it is read.
+     */
+    public static Tokenizer create(ByteBuffer bytes, ErrorHandler errorHandler) {
+        if ( bytes.hasArray() ) {
+            int offset = bytes.arrayOffset()+bytes.position();
+            int length = bytes.remaining();
+            bytes.position(bytes.limit());
+            return create(bytes.array(), offset, length, errorHandler);
+        }
+        return new TokenizerBytes(null, bytes, new byte[BufferSize], 0, 0, false, errorHandler);
+    }
+
+    private TokenizerBytes(InputStream input, ByteBuffer byteBuffer, byte[] buffer, int start, int limit, boolean endOfInput,
+                           ErrorHandler errorHandler) {
+        this.input = input;
+        this.byteBuffer = byteBuffer;
+        this.buffer = buffer;
+        this.pos = start;
+        this.mark = start;
+        this.lineStart = start;
+        this.limit = limit;
+        this.endOfInput = endOfInput;
+        this.errorHandler = (errorHandler != null) ? errorHandler : ErrorHandlerFactory.errorHandlerWarnOrExceptions(SysRIOT.getLogger());
+    }
+
+    @Override
+    public final boolean hasNext() {
+        if ( finished )
+            return false;
+        if ( token != null )
+            return true;
+        if ( ! started ) {
+            started = true;
+            skipBOM();
+        }
+        skip();
+        if ( peekByte() == -1 ) {
+            finished = true;
+            return false;
+        }
+        mark = pos;
+        token = parseToken();
+        return true;
+    }
+
+    @Override
+    public final boolean eof() {
+        return !hasNext();
+    }
+
+    @Override
+    public final Token next() {
+        if ( !hasNext() )
+            throw new NoSuchElementException();
+        Token t = token;
+        token = null;
+        return t;
+    }
+
+    @Override
+    public final Token peek() {
+        if ( !hasNext() )
+            return null;
+        return token;
+    }
+
+    @Override
+    public void close() {
+        if ( input != null )
+            IO.close(input);
+    }
+
+    @Override
+    public long getLine() {
+        return line;
+    }
+
+    @Override
+    public long getColumn() {
+        return pos - lineStart + 1;
+    }
+
+    // ---- Buffer
+
+    /**
+     * Read more input, keeping the bytes from {@code mark} onwards. Returns the
+     * distance the kept bytes moved down the buffer; {@code pos}, {@code mark} and
+     * {@code lineStart} are adjusted. At the end of the input, nothing is read and
+     * {@code limit} does not change.
+     */
+    private int fill() {
+        if ( endOfInput )
+            return 0;
+        int shift = mark;
+        int keep = limit - mark;
+        if ( shift > 0 )
+            System.arraycopy(buffer, mark, buffer, 0, keep);
+        else if ( keep == buffer.length )
+            // A token longer than the buffer.
+            buffer = Arrays.copyOf(buffer, 2*buffer.length);
+        limit = keep;
+        pos -= shift;
+        mark = 0;
+        lineStart -= shift;
+        int n = read(buffer, limit, buffer.length-limit);
+        if ( n < 0 )
+            endOfInput = true;
+        else
+            limit += n;
+        return shift;
+    }
+
+    private int read(byte[] bytes, int offset, int length) {
+        if ( byteBuffer != null ) {
+            if ( ! byteBuffer.hasRemaining() )
+                return -1;
+            int n = Math.min(length, byteBuffer.remaining());
+            byteBuffer.get(bytes, offset, n);
+            return n;
+        }
+        try {
+            for (;;) {
+                int n = input.read(bytes, offset, length);
+                if ( n != 0 )
+                    return n;
+            }
+        } catch (IOException ex) {
+            IO.exception(ex);
+            return -1;
+        }
+    }
+
+    /** The byte at {@code pos}, or -1 at the end of the input. */
+    private int peekByte() {
+        if ( pos == limit ) {
+            fill();
+            if ( pos == limit )
+                return -1;
+        }
+        return buffer[pos] & 0xFF;
+    }
+
+    /** The byte {@code ahead} bytes after {@code pos}, or -1 if the input ends before it. */
+    private int peekByte(int ahead) {
+        if ( pos+ahead >= limit ) {
+            fill();
+            if ( pos+ahead >= limit )
+                return -1;
+        }
+        return buffer[pos+ahead] & 0xFF;
+    }
+
+    /**
+     * Decode the codepoint at {@code pos}, without moving {@code pos}; its length in
+     * bytes is left in {@code cpLength}. Returns -1 at the end of the input.
+     */
+    private int peekCodepoint() {
+        int b = peekByte();
+        if ( b == -1 ) {
+            cpLength = 0;
+            return EOF;
+        }
+        if ( b < 0x80 ) {
+            cpLength = 1;
+            return b;
+        }
+        int len;
+        int cp;
+        if ( (b & 0xE0) == 0xC0 ) {
+            len = 2;
+            cp = b & 0x1F;
+        } else if ( (b & 0xF0) == 0xE0 ) {
+            len = 3;
+            cp = b & 0x0F;
+        } else if ( (b & 0xF8) == 0xF0 ) {
+            len = 4;
+            cp = b & 0x07;
+        } else {
+            fatal("Bad character encoding");
+            return EOF;
+        }
+        if ( peekByte(len-1) == -1 )
+            fatal("Bad character encoding");
+        for ( int i = 1 ; i < len ; i++ ) {
+            int x = buffer[pos+i];
+            if ( (x & 0xC0) != 0x80 )
+                fatal("Bad character encoding");
+            cp = (cp << 6) | (x & 0x3F);
+        }
+        cpLength = len;
+        return cp;
+    }
+
+    /** Read a codepoint. Returns -1 at the end of the input. */
+    private int readCodepoint() {
+        int cp = peekCodepoint();
+        pos += cpLength;
+        if ( cp == NL )
+            newLine();
+        return cp;
+    }
+
+    private void newLine() {
+        line++;
+        lineStart = pos;
+    }
+
+    private void skipBOM() {
+        if ( peekByte() == 0xEF && peekByte(1) == 0xBB && peekByte(2) == 0xBF ) {
+            pos += 3;
+            lineStart = pos;
+        }
+    }
+
+    // ---- Tokens
+
+    private void skip() {
+        for (;;) {
+            mark = pos;
+            int b = peekByte();
+            switch (b) {
+                case CH_HASH:
+                    // Comment. Skip to NL
+                    pos++;
+                    for (;;) {
+                        mark = pos;
+                        b = peekByte();
+                        if ( b == -1 || b == NL || b == CR )
+                            break;
+                        pos++;
+                    }
+                    continue;
+                case NL:
+                    pos++;
+                    newLine();
+                    continue;
+                case SPC: case TAB: case CR: case '\f':
+                    pos++;
+                    continue;
+                default:
+                    return;
+            }
+        }
+    }
+
+    private Token parseToken() {
+        token = new Token(getLine(), getColumn());
+        int b = peekByte();
+        switch (b) {
+            case CH_LT:
+                pos++;
+                if ( peekByte() == CH_LT ) {
+                    pos++;
+                    token.setType(TokenType.LT2);
+                    return token;
+                }
+                token.setImage(readIRI());
+                token.setType(TokenType.IRI);
+                return token;
+            case CH_QUOTE1: case CH_QUOTE2:
+                return readLiteral(b);
+            case CH_UNDERSCORE:
+                pos++;
+                if ( peekByte() == CH_COLON ) {
+                    pos++;
+                    token.setImage(readBlankNodeLabel());
+                    token.setType(TokenType.BNODE);
+                    return token;
+                }
+                token.setType(TokenType.UNDERSCORE);
+                return token;
+            case CH_DOT:
+                pos++;
+                token.setType(TokenType.DOT);
+                return token;
+            case CH_GT:
+                pos++;
+                if ( peekByte() == CH_GT ) {
+                    pos++;
+                    token.setType(TokenType.GT2);
+                    return token;
+                }
+                token.setType(TokenType.GT);
+                return token;
+            default:
+                token.setImage(readWord());
+                token.setType(TokenType.KEYWORD);
+                return token;
+        }
+    }
+
+    private Token readLiteral(int quote) {
+        // The token type is STRING.
+        // We incorporate this into a token for LITERAL_LANG or LITERAL_DT.
+        token.setType(TokenType.STRING);
+        pos++;
+        if ( peekByte() == quote ) {
+            pos++;
+            if ( peekByte() == quote ) {
+                pos++;
+                token.setImage(readLongString(quote));
+                token.setStringType(quote == CH_QUOTE1 ? StringType.LONG_STRING1 : StringType.LONG_STRING2);
+            } else {
+                // Two quotes then a non-quote: the empty string.
+                token.setImage("");
+                token.setStringType(quote == CH_QUOTE1 ? StringType.STRING1 : StringType.STRING2);
+            }
+        } else {
+            token.setImage(readString(quote));
+            token.setStringType(quote == CH_QUOTE1 ? StringType.STRING1 : StringType.STRING2);
+        }
+
+        // White space after lexical part of a literal.
+        skip();
+        int b = peekByte();
+        if ( b == CH_AT ) {
+            pos++;
+            Token mainToken = new Token(token);
+            mainToken.setType(TokenType.LITERAL_LANG);
+            mainToken.setSubToken1(token);
+            mainToken.setImage2(langTag());
+            token = mainToken;
+        } else if ( b == '^' ) {
+            expect("^^");
+            // White space is legal after a ^^.
+            skip();
+            Token mainToken = new Token(token);
+            mainToken.setSubToken1(token);
+            mainToken.setImage(token.getImage());
+            mark = pos;
+            Token subToken = parseToken();
+            if ( !subToken.isIRI() )
+                fatal("Datatype URI required after ^^ - URI or prefixed name expected");
+            mainToken.setSubToken2(subToken);
+            mainToken.setType(TokenType.LITERAL_DT);
+            token = mainToken;
+        }
+        return token;
+    }
+
+    private String readIRI() {
+        // Fast path: ASCII, no escapes, nothing to warn about.
+        int i = pos;
+        int hash = 0;
+        for (;;) {
+            if ( i == limit ) {
+                i -= fill();
+                if ( i == limit )
+                    break;
+            }
+            byte b = buffer[i];
+            if ( b == CH_GT ) {
+                String str = cache.get(buffer, pos, i, hash);
+                pos = i+1;
+                return str;
+            }
+            // Negative for bytes of non-ASCII characters.
+            if ( b < 0 || iriSpecial[b] )
+                break;
+            hash = 31*hash + b;
+            i++;
+        }
+        return readIRISlow();
+    }
+
+    // As TokenizerText.readIRI
+    private String readIRISlow() {
+        stringBuilder.setLength(0);
+        for (;;) {
+            int ch = readCodepoint();
+            switch(ch) {
+                case EOF:
+                    fatal("Broken IRI (End of file)"); return null;
+                case NL:
+                    fatal("Broken IRI (newline): %s", stringBuilder.toString()); return null;
+                case CR:
+                    fatal("Broken IRI (CR): %s", stringBuilder.toString()); return null;
+                case CH_GT:
+                    return stringBuilder.toString();
+                case CH_RSLASH:
+                    ch = readUnicodeEscape();
+                    break;
+                case CH_LT:
+                    fatal("Bad character in IRI (bad character: '<'): <%s[<]...>", stringBuilder.toString()); return null;
+                case TAB:
+                    error("Bad character in IRI (Tab character): <%s[tab]...>", stringBuilder.toString()); return null;
+                case '{': case '}': case '"': case '|': case '^': case '`' :
+                    warning("Illegal character in IRI (codepoint 0x%02X, '%c'): <%s[%c]...>", ch, (char)ch, stringBuilder.toString(), (char)ch);
+                    break;
+                case SPC:
+                    error("Bad character in IRI (space): <%s[space]...>", stringBuilder.toString());
+                    break;
+                default:
+                    if ( ch <= 0x19 )
+                        warning("Illegal character in IRI (control char 0x%02X): <%s[0x%02X]...>", ch, stringBuilder.toString(), ch);
+            }
+            if ( ch >= 0xA0 && ! isUcsChar(ch) )
+                warning("Illegal character in IRI (Not a ucschar: 0x%04X): <%s[U+%04X]...>", ch, stringBuilder.toString(), ch);
+            insertCodepoint(stringBuilder, ch);
+        }
+    }
+
+    private static boolean isUcsChar(int ch) {
+        boolean b = range(ch, 0xA0, 0xD7FF)  || range(ch, 0xF900, 0xFDCF)  || range(ch, 0xFDF0, 0xFFEF);
+        if ( b )
+            return true;
+        if ( ch < 0x1000 )
+            return false;
+        return
+            range(ch, 0x10000, 0x1FFFD) || range(ch, 0x20000, 0x2FFFD) || range(ch, 0x30000, 0x3FFFD) ||
+            range(ch, 0x40000, 0x4FFFD) || range(ch, 0x50000, 0x5FFFD) || range(ch, 0x60000, 0x6FFFD) ||
+            range(ch, 0x70000, 0x7FFFD) || range(ch, 0x80000, 0x8FFFD) || range(ch, 0x90000, 0x9FFFD) ||
+            range(ch, 0xA0000, 0xAFFFD) || range(ch, 0xB0000, 0xBFFFD) || range(ch, 0xC0000, 0xCFFFD) ||
+            range(ch, 0xD0000, 0xDFFFD) || range(ch, 0xE1000, 0xEFFFD);
+    }
+
+    private String readString(int quote) {
+        // Fast path: no escapes.
+        int i = pos;
+        boolean ascii = true;
+        for (;;) {
+            if ( i == limit ) {
+                i -= fill();
+                if ( i == limit )
+                    break;
+            }
+            byte b = buffer[i];
+            if ( b == quote ) {
+                String str;
+                if ( ascii )
+                    str = new String(buffer, pos, i-pos, StandardCharsets.ISO_8859_1);
+                else {
+                    str = new String(buffer, pos, i-pos, StandardCharsets.UTF_8);
+                    // Bad UTF-8 or U+FFFD in the input: report as the slow path does.
+                    if ( str.indexOf(REPLACEMENT) >= 0 )
+                        break;
+                }
+                pos = i+1;
+                return str;
+            }
+            if ( b == CH_RSLASH || b == NL )
+                break;
+            if ( b < 0 )
+                ascii = false;
+            i++;
+        }
+        return readStringSlow(quote);
+    }
+
+    // As TokenizerText.readString
+    private String readStringSlow(int endCh) {
+        stringBuilder.setLength(0);
+        for (;;) {
+            int ch = readCodepoint();
+            if ( ch == REPLACEMENT )
+                warning("Unicode replacement character U+FFFD in string");
+            else if ( ch == EOF )
+                fatal("Broken token: %s", stringBuilder.toString());
+            else if ( ch == NL )
+                fatal("Broken token (newline): %s", stringBuilder.toString());
+            else if ( ch == endCh )
+                return stringBuilder.toString();
+            else if ( ch == CH_RSLASH )
+                ch = readLiteralEscape();
+            insertCodepoint(stringBuilder, ch);
+        }
+    }
+
+    // As TokenizerText.readLongString
+    private String readLongString(int quoteChar) {
+        stringBuilder.setLength(0);
+        for (;;) {
+            int ch = readCodepoint();
+            if ( ch == REPLACEMENT )
+                warning("Input has Unicode replacement character U+FFFD in string");
+            else if ( ch == EOF )
+                fatal("Broken long string");
+            else if ( ch == quoteChar ) {
+                if ( peekByte() == quoteChar && peekByte(1) == quoteChar ) {
+                    pos += 2;
+                    return stringBuilder.toString();
+                }
+            } else if ( ch == CH_RSLASH )
+                ch = readLiteralEscape();
+            insertCodepoint(stringBuilder, ch);
+        }
+    }
+
+    private String readBlankNodeLabel() {
+        int b = peekByte();
+        if ( b == EOF )
+            fatal("Blank node label missing (EOF found)");
+        if ( isWhitespace(b) )
+            fatal("Blank node label missing");
+        if ( b < 0x80 ) {
+            // Fast path: ASCII.
+            if ( !isPNChars_U_N(b) )
+                fatal("Blank node label does not start with alphabetic or _ : '%c'", (char)b);
+            int i = pos+1;
+            for (;;) {
+                if ( i == limit ) {
+                    i -= fill();
+                    if ( i == limit )
+                        break;
+                }
+                byte x = buffer[i];
+                if ( x < 0 )
+                    return readBlankNodeLabelSlow();
+                if ( !isPNChars(x) && x != CH_DOT )
+                    break;
+                i++;
+            }
+            // Not ending in a DOT.
+            while ( buffer[i-1] == CH_DOT )
+                i--;
+            String str = new String(buffer, pos, i-pos, StandardCharsets.ISO_8859_1);
+            pos = i;
+            return str;
+        }
+        return readBlankNodeLabelSlow();
+    }
+
+    // As TokenizerText.readBlankNodeLabel
+    private String readBlankNodeLabelSlow() {
+        stringBuilder.setLength(0);
+        {
+            int ch = peekCodepoint();
+            if ( !isPNChars_U_N(ch) )
+                fatal("Blank node label does not start with alphabetic or _ : '%c'", (char)ch);
+            pos += cpLength;
+            if ( ch == REPLACEMENT )
+                warning("Unicode replacement character U+FFFD in blank node label");
+            insertCodepoint(stringBuilder, ch);
+        }
+        int chDot = 0;
+        for (;;) {
+            int ch = peekCodepoint();
+            if ( ch == EOF )
+                break;
+            if ( !(isPNChars(ch) || ch == CH_DOT) )
+                break;
+            pos += cpLength;
+            if ( chDot != 0 ) {
+                stringBuilder.append((char)chDot);
+                chDot = 0;
+            }
+            if ( ch != CH_DOT ) {
+                if ( ch == REPLACEMENT )
+                    warning("Unicode replacement character U+FFFD in blank node label");
+                insertCodepoint(stringBuilder, ch);
+            } else
+                chDot = ch;
+        }
+        if ( chDot == CH_DOT )
+            // The DOT is part of the token so it is still in the buffer.
+            pos--;
+        return stringBuilder.toString();
+    }
+
+    private String langTag() {
+        mark = pos;
+        int i = pos;
+        int hash = 0;
+        boolean seenDash = false;
+        int segment = 0;
+        for (;;) {
+            if ( i == limit ) {
+                i -= fill();
+                if ( i == limit )
+                    break;
+            }
+            byte b = buffer[i];
+            if ( b == '-' ) {
+                if ( segment == 0 ) {
+                    pos = i;
+                    fatal("Bad language tag");
+                }
+                seenDash = true;
+                segment = 0;
+            } else if ( seenDash ? isA2ZN(b) : isA2Z(b) )
+                segment++;
+            else
+                break;
+            hash = 31*hash + b;
+            i++;
+        }
+        if ( segment == 0 ) {
+            pos = i;
+            fatal("Bad language tag");
+        }
+        String str = cache.get(buffer, pos, i, hash);
+        pos = i;
+        return str;
+    }
+
+    // Anything else, to the next white space or delimiter.
+    private String readWord() {
+        int i = pos+1;
+        for (;;) {
+            if ( i == limit ) {
+                i -= fill();
+                if ( i == limit )
+                    break;
+            }
+            byte b = buffer[i];
+            if ( b == SPC || b == TAB || b == NL || b == CR || b == CH_LT || b == CH_GT
+                 || b == CH_QUOTE1 || b == CH_QUOTE2 || b == CH_HASH )
+                break;
+            i++;
+        }
+        String str = new String(buffer, pos, i-pos, StandardCharsets.UTF_8);
+        pos = i;
+        return str;
+    }
+
+    private void expect(String str) {
+        for ( int i = 0 ; i < str.length() ; i++ ) {
+            int b = peekByte();
+            if ( b == -1 )
+                fatal("End of input during expected string: %s", str);
+            if ( b != str.charAt(i) )
+                fatal("expected \"%s\"", str);
+            pos++;
+        }
+    }
+
+    // ---- Escapes
+
+    private int readUnicodeEscape() {
+        int ch = readCodepoint();
+        if ( ch == EOF )
+            fatal("Broken escape sequence");
+        switch (ch) {
+            case 'u': return readHexSequence(4);
+            case 'U': return readUnicode8Escape();
+            default:
+                fatal("Illegal unicode escape sequence value: \\%c (0x%02X)", ch, ch);
+        }
+        return 0;
+    }
+
+    private int readLiteralEscape() {
+        int c = readCodepoint();
+        if ( c == EOF )
+            fatal("Escape sequence not completed");
+        switch (c) {
+            case 'n':   return NL;
+            case 'r':   return CR;
+            case 't':   return TAB;
+            case 'f':   return '\f';
+            case 'b':   return BSPACE;
+            case '"':   return '"';
+            case '\'':  return '\'';
+            case '\\':  return '\\';
+            case 'u':   return readHexSequence(4);
+            case 'U':   return readUnicode8Escape();
+            default:
+                fatal("Illegal escape sequence value: %c (0x%02X)", c, c);
+                return 0;
+        }
+    }
+
+    private int readUnicode8Escape() {
+        int ch8 = readHexSequence(8);
+        if ( ch8 > Character.MAX_CODE_POINT )
+            fatal("Illegal code point in \\U sequence value: 0x%08X", ch8);
+        return ch8;
+    }
+
+    private int readHexSequence(int N) {
+        int x = 0;
+        for ( int i = 0 ; i < N ; i++ ) {
+            int ch = readCodepoint();
+            if ( ch == EOF )
+                fatal("Not a hexadecimal character (end of file)");
+            int d = valHexChar(ch);
+            if ( d == -1 )
+                fatal("Not a hexadecimal character: '%c'", (char)ch);
+            x = (x << 4) + d;
+        }
+        return x;
+    }
+
+    private void insertCodepoint(StringBuilder buffer, int ch) {
+        if ( Character.charCount(ch) == 1 )
+            buffer.append((char)ch);
+        else {
+            if ( !Character.isDefined(ch) && !Character.isSupplementaryCodePoint(ch) )
+                fatal("Illegal codepoint: 0x%04X", ch);
+            buffer.append(Character.toChars(ch));
+        }
+    }
+
+    // ---- Errors
+
+    /** Warning - can continue. */
+    private void warning(String message, Object... args) {
+        String msg = String.format(message, args);
+        errorHandler.warning(msg, getLine(), getColumn());
+    }
+
+    /** Error - can continue, but the caller should probably stop. */
+    private void error(String message, Object... args) {
+        String msg = String.format(message, args);
+        errorHandler.error(msg, getLine(), getColumn());
+    }
+
+    /** Structural error - unrecoverable. */
+    private void fatal(String message, Object... args) {
+        String msg = String.format(message, args);
+        long line = getLine();
+        long col = getColumn();
+        errorHandler.fatal(msg, line, col);
+        throw new RiotParseException(msg, line, col);
+    }
+
+    /**
+     * Strings by their (ASCII) bytes. Each slot holds the last string that hashed to
+     * it; this is cheap to maintain and catches the IRIs that repeat closely, such as
+     * predicates, classes, datatypes and the subject of a run of triples.
+     */
+    private static final class StringCache {
+        private static final int Size = 1 << 14;
+        private final byte[][] keys = new byte[Size][];
+        private final String[] values = new String[Size];
+
+        String get(byte[] bytes, int start, int end, int hash) {
+            int idx = (hash ^ (hash >>> 15)) & (Size-1);
+            byte[] key = keys[idx];
+            if ( key != null && Arrays.equals(key, 0, key.length, bytes, start, end) )
+                return values[idx];
+            String str = new String(bytes, start, end-start, StandardCharsets.ISO_8859_1);
+            keys[idx] = Arrays.copyOfRange(bytes, start, end);
+            values[idx] = str;
+            return str;
+        }
+    }
+}
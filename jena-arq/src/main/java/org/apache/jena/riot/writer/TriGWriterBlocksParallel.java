@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.writer;
+
+import java.io.OutputStream ;
+import java.io.Writer ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.irix.IRIs ;
+import org.apache.jena.riot.system.PrefixMap ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.util.Context ;
+
+/** TriG writer that prints blocks of quads clustered by adjacent same graph
+ *  and same subject, as {@link TriGWriterBlocks}, formatting the blocks on
+ *  several threads. The output is the same for any number of threads.
+ *  @see org.apache.jena.riot.RIOT#symTurtleParallelThreads
+ */
+public class TriGWriterBlocksParallel extends TriGWriterBase {
+    @Override
+    public void write(Writer out, DatasetGraph dsg, PrefixMap prefixMap, String baseURI, Context context) {
+        WriterBlocksParallel.writeDataset(WriterBlocksParallel.output(out), dsg, prefixMap, resolve(baseURI), context);
+        IO.flush(out);
+    }
+
+    @Override
+    public void write(OutputStream out, DatasetGraph dsg, PrefixMap prefixMap, String baseURI, Context context) {
+        WriterBlocksParallel.writeDataset(WriterBlocksParallel.output(out), dsg, prefixMap, resolve(baseURI), context);
+        IO.flush(out);
+    }
+
+    @Override
+    protected void output(IndentedWriter iOut, DatasetGraph dsg, PrefixMap prefixMap, String baseURI, Context context) {
+        WriterBlocksParallel.writeDataset(WriterBlocksParallel.output(iOut), dsg, prefixMap, baseURI, context);
+    }
+
+    private static String resolve(String baseURI) {
+        return ( baseURI == null ) ? null : IRIs.resolve(baseURI);
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.io.IndentedLineBuffer;
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RIOT;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.out.NodeFormatterTTL;
+import org.apache.jena.riot.out.NodeToLabel;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.util.Context;
+
+/**
+ * Engine for {@link TurtleWriterBlocksParallel} and {@link TriGWriterBlocksParallel}.
+ * <p>
+ * The data is read on the caller's thread, in the same order as the blocks writers
+ * read it, and cut into chunks of whole subject blocks. Each chunk is formatted by a
+ * {@link WriterStreamRDFBlocks} on a worker thread and the chunks are written in
+ * order, so the output does not depend on the number of threads. Only a few chunks
+ * per worker are in-progress at any time so memory use is bounded. Reading on the
+ * caller's thread means the data can be in a transaction.
+ * <p>
+ * Blank nodes are labelled from their internal label
+ * ({@link NodeToLabel#createBNodeByLabelEncoded()}) because each chunk is formatted
+ * separately.
+ */
+class WriterBlocksParallel<T> {
+    /** Triples per chunk; a chunk always ends at the end of a subject block. */
+    /*package*/ static final int DftChunkSize = 10_000;
+    // Chunks being formatted or waiting to be written, per worker.
+    private static final int InFlightPerWorker = 2;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    /** Destination for formatted text. {@code encode} is called on a worker thread. */
+    /*package*/ interface Output<X> {
+        X encode(String text);
+        void write(X encoded);
+    }
+
+    /*package*/ static Output<byte[]> output(OutputStream out) {
+        return new Output<>() {
+            @Override
+            public byte[] encode(String text) { return text.getBytes(StandardCharsets.UTF_8); }
+            @Override
+            public void write(byte[] bytes) {
+                try { out.write(bytes); }
+                catch (IOException ex) { IO.exception(ex); }
+            }
+        };
+    }
+
+    /*package*/ static Output<String> output(Writer out) {
+        return new Output<>() {
+            @Override
+            public String encode(String text) { return text; }
+            @Override
+            public void write(String text) {
+                try { out.write(text); }
+                catch (IOException ex) { IO.exception(ex); }
+            }
+        };
+    }
+
+    /*package*/ static Output<String> output(IndentedWriter out) {
+        return new Output<>() {
+            @Override
+            public String encode(String text) { return text; }
+            @Override
+            public void write(String text) { out.print(text); }
+        };
+    }
+
+    /*package*/ static <X> void writeGraph(Output<X> output, Graph graph, PrefixMap prefixMap, String baseURI, Context context) {
+        new WriterBlocksParallel<>(output, prefixMap, baseURI, context, DftChunkSize)
+            .write(graph.find(), null);
+    }
+
+    /*package*/ static <X> void writeDataset(Output<X> output, DatasetGraph dsg, PrefixMap prefixMap, String baseURI, Context context) {
+        new WriterBlocksParallel<>(output, prefixMap, baseURI, context, DftChunkSize)
+            .write(dsg.getDefaultGraph().find(), dsg.findNG(null, null, null, null));
+    }
+
+    private final Output<T> output;
+    // As given, for the PREFIX lines.
+    private final PrefixMap prefixMapDirectives;
+    // Copy, for reading on the worker threads.
+    private final PrefixMap prefixMap;
+    private final String baseURI;
+    private final Context context;
+    private final int numWorkers;
+    private final int chunkSize;
+
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+    private ExecutorService executor = null;
+    // Has any text been sent to the output?
+    private boolean started = false;
+
+    /*package*/ WriterBlocksParallel(Output<T> output, PrefixMap prefixMap, String baseURI, Context context, int chunkSize) {
+        this.output = output;
+        this.prefixMapDirectives = prefixMap;
+        this.prefixMap = ( prefixMap == null ) ? PrefixMapFactory.create() : PrefixMapFactory.create(prefixMap);
+        this.baseURI = baseURI;
+        this.context = ( context == null ) ? Context.emptyContext() : context;
+        int n = this.context.getInt(RIOT.symTurtleParallelThreads, Runtime.getRuntime().availableProcessors());
+        this.numWorkers = Math.max(1, n);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Write the default graph as triples, then the quads of the named graphs, with
+     * graph blocks for each run of quads with the same graph.
+     */
+    /*package*/ void write(Iterator<Triple> triples, Iterator<Quad> quads) {
+        executor = Executors.newFixedThreadPool(numWorkers, WriterBlocksParallel::newThread);
+        try {
+            text(directives());
+            writeTriples(triples);
+            if ( quads != null )
+                writeQuads(quads);
+            while ( ! pending.isEmpty() )
+                deliver(pending.removeFirst());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RiotException("Interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "WriterBlocks-"+threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void writeTriples(Iterator<Triple> iter) throws InterruptedException {
+        List<Triple> chunk = new ArrayList<>();
+        Node lastSubject = null;
+        while ( iter.hasNext() ) {
+            Triple triple = iter.next();
+            Node s = triple.getSubject();
+            if ( chunk.size() >= chunkSize && ! s.equals(lastSubject) ) {
+                chunk(chunk, null);
+                chunk = new ArrayList<>();
+            }
+            chunk.add(triple);
+            lastSubject = s;
+        }
+        if ( ! chunk.isEmpty() )
+            chunk(chunk, null);
+    }
+
+    private void writeQuads(Iterator<Quad> iter) throws InterruptedException {
+        List<Triple> chunk = new ArrayList<>();
+        Node lastGraph = null;
+        Node lastSubject = null;
+        while ( iter.hasNext() ) {
+            Quad quad = iter.next();
+            Node g = quad.getGraph();
+            Node s = quad.getSubject();
+            if ( ! Objects.equals(g, lastGraph) ) {
+                if ( lastGraph != null ) {
+                    chunk(chunk, lastGraph);
+                    chunk = new ArrayList<>();
+                    text("}\n");
+                }
+                text(startGraph(g));
+                lastGraph = g;
+            } else if ( chunk.size() >= chunkSize && ! s.equals(lastSubject) ) {
+                chunk(chunk, g);
+                chunk = new ArrayList<>();
+            }
+            chunk.add(quad.asTriple());
+            lastSubject = s;
+        }
+        if ( lastGraph != null ) {
+            chunk(chunk, lastGraph);
+            text("}\n");
+        }
+    }
+
+    /** Text formatted on this thread. */
+    private void text(String text) throws InterruptedException {
+        if ( text.isEmpty() )
+            return;
+        started = true;
+        add(CompletableFuture.completedFuture(output.encode(text)));
+    }
+
+    /** Format a chunk on a worker. */
+    private void chunk(List<Triple> triples, Node graph) throws InterruptedException {
+        // Top level blocks are separated by a blank line.
+        boolean topLevel = ( graph == null );
+        boolean leadingBlankLine = topLevel && started;
+        started = true;
+        add(executor.submit(()->output.encode(format(triples, topLevel, leadingBlankLine))));
+    }
+
+    private void add(Future<T> future) throws InterruptedException {
+        pending.add(future);
+        if ( pending.size() >= numWorkers * InFlightPerWorker )
+            deliver(pending.removeFirst());
+    }
+
+    private void deliver(Future<T> future) throws InterruptedException {
+        T item;
+        try {
+            item = future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause;
+            if ( cause instanceof Error )
+                throw (Error)cause;
+            throw new RiotException(cause);
+        }
+        output.write(item);
+    }
+
+    // ---- Formatting
+
+    private String directives() {
+        IndentedLineBuffer buffer = new IndentedLineBuffer();
+        WriterStreamRDFBlocks writer = new WriterStreamRDFBlocks(buffer, context);
+        writer.start();
+        if ( baseURI != null )
+            writer.base(baseURI);
+        if ( prefixMapDirectives != null )
+            prefixMapDirectives.forEach(writer::prefix);
+        writer.finish();
+        return buffer.asString();
+    }
+
+    // As WriterStreamRDFBlocks.startGraph for a named graph.
+    private String startGraph(Node g) {
+        IndentedLineBuffer buffer = new IndentedLineBuffer();
+        if ( started )
+            buffer.println();
+        NodeFormatterTTL fmt = new NodeFormatterTTL(baseURI, prefixMap, NodeToLabel.createBNodeByLabelEncoded());
+        fmt.format(buffer, g);
+        buffer.println(" {");
+        return buffer.asString();
+    }
+
+    private String format(List<Triple> triples, boolean topLevel, boolean leadingBlankLine) {
+        IndentedLineBuffer buffer = new IndentedLineBuffer();
+        WriterStreamRDFBlocks writer = new WriterStreamRDFBlocks(buffer, NodeToLabel.createBNodeByLabelEncoded(), context);
+        writer.setDirectives(baseURI, prefixMap);
+        if ( leadingBlankLine )
+            buffer.println();
+        if ( ! topLevel )
+            buffer.incIndent(WriterStreamRDFBlocks.INDENT_GNMD);
+        int start = 0;
+        for ( int i = 1 ; i <= triples.size() ; i++ ) {
+            Node s = triples.get(start).getSubject();
+            if ( i < triples.size() && s.equals(triples.get(i).getSubject()) )
+                continue;
+            if ( start > 0 && topLevel )
+                buffer.println();
+            writer.printBlock(s, triples.subList(start, i));
+            start = i;
+        }
+        return buffer.asString();
+    }
+}
@@ -171,6 +171,20 @@ public abstract class WriterStreamRDFBase implements StreamRDF
 
     protected void prefixSetup(String prefix, String iri) {}
 
+    /**
+     * Set the base and the prefixes without writing them, for output that is part of
+     * a document whose directives are written separately.
+     */
+    /*package*/ void setDirectives(String base, PrefixMap prefixes) {
+        baseURI = base;
+        prefixes.forEach((prefix, iri) -> {
+            if ( rdfNS.equals(iri) )
+                countPrefixesForRDF++;
+            pMap.add(prefix, iri);
+        });
+        setFormatter();
+    }
+
     protected void outputNode(Node n) {
         fmt.format(out, n);
     }
@@ -27,6 +27,8 @@ import java.util.Objects;
 import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RIOT ;
+import org.apache.jena.riot.out.NodeToLabel ;
 import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.sparql.util.Context;
 
@@ -49,6 +51,9 @@ abstract class WriterStreamRDFBatched extends WriterStreamRDFBase
     public WriterStreamRDFBatched(IndentedWriter output, Context context)
     { super(output, context) ; }
 
+    /*package*/ WriterStreamRDFBatched(IndentedWriter output, NodeToLabel nodeToLabel, Context context)
+    { super(output, nodeToLabel, WriterLib.directiveStyle(context), context.isFalseOrUndef(RIOT.symTurtleOmitBase)) ; }
+
     @Override
     protected final void startData()    { reset() ; }
 
@@ -27,6 +27,7 @@ import java.util.Objects;
 import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.out.NodeToLabel ;
 import org.apache.jena.riot.other.G;
 import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.sparql.util.Context;
@@ -80,6 +81,10 @@ public class WriterStreamRDFBlocks extends WriterStreamRDFBatched
         super(output, context) ;
     }
 
+    /*package*/ WriterStreamRDFBlocks(IndentedWriter output, NodeToLabel nodeToLabel, Context context) {
+        super(output, nodeToLabel, context) ;
+    }
+
     @Override
     protected void printBatchQuads(Node g, Node s, List<Quad> quads) {
         if ( g == null )
@@ -129,6 +134,12 @@ public class WriterStreamRDFBlocks extends WriterStreamRDFBatched
         lastGraph = null;
     }
 
+    /** Print one subject block, ending with " .", without any blank line before it. */
+    /*package*/ void printBlock(Node s, List<Triple> triples) {
+        printBatch(s, triples) ;
+        out.println(" .") ;
+    }
+
     private void printBatch(Node s, List<Triple> triples) {
         outputNode(s) ;
         if ( out.getCol() > LONG_SUBJECT )
@@ -67,6 +67,12 @@ public class SystemARQ
      * Use a plain graph (sameValueAs is term equality)
      */
     public static boolean UsePlainGraph         = false ;
+
+    /**
+     * Use the compact, dictionary encoded, in-memory graph
+     * ({@link org.apache.jena.mem.GraphMemCompact}) as the default graph.
+     */
+    public static boolean UseCompactGraph       = false ;
     
     /**
      * Sync a Model if it provides the underlying graph provides sync . Do nothing
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.apache.jena.atlas.data.BagFactory;
+import org.apache.jena.atlas.data.DataBag;
+import org.apache.jena.atlas.data.ThresholdPolicy;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.expr.ExprAggregator;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.aggregate.Accumulator;
+import org.apache.jena.sparql.expr.aggregate.AccumulatorMergeable;
+import org.apache.jena.sparql.system.SerializationFactoryFinder;
+
+/**
+ * The groups of a GROUP BY: group key to the accumulators for the aggregators.
+ * <p>
+ * When the number of groups passes the spill threshold
+ * ({@link ThresholdPolicyFactory#policyFromContext}), groups are partitioned by
+ * key to disk:
+ * <ul>
+ * <li>If all the aggregators can be calculated in parts
+ * ({@link AccumulatorMergeable}: COUNT, SUM, MIN, MAX, AVG), the state of each
+ * group in memory is written to its partition and the groups in memory are
+ * cleared. The input is pre-aggregated in memory between spills.
+ * <li>Otherwise, the groups in memory are kept, and input rows for any other
+ * group key are written to their partition.
+ * </ul>
+ * Each partition is then aggregated in memory, one after another or, with
+ * {@link ARQ#groupParallelism}, several at once.
+ */
+class GroupTable {
+    // Power of two.
+    private static final int PARTITIONS = 32;
+
+    private final VarExprList groupVars;
+    private final List<ExprAggregator> aggregators;
+    private final ExecutionContext execCxt;
+    private final ThresholdPolicy<Binding> policy;
+    private final boolean mergeable;
+
+    private Map<Binding, Accumulator[]> groups = new HashMap<>();
+    private List<DataBag<Binding>> partitions = null;
+    // Variables used to write the state of each aggregator.
+    private Var[][] stateVars = null;
+
+    GroupTable(VarExprList groupVars, List<ExprAggregator> aggregators, ExecutionContext execCxt) {
+        this.groupVars = groupVars;
+        this.aggregators = ( aggregators == null ) ? Collections.emptyList() : aggregators;
+        this.execCxt = execCxt;
+        this.policy = ( execCxt == null ) ? null : ThresholdPolicyFactory.policyFromContext(execCxt.getContext());
+        this.mergeable = isMergeable(this.aggregators);
+    }
+
+    private static boolean isMergeable(List<ExprAggregator> aggregators) {
+        for ( ExprAggregator agg : aggregators ) {
+            if ( ! ( agg.getAggregator().createAccumulator() instanceof AccumulatorMergeable ) )
+                return false;
+        }
+        return true;
+    }
+
+    /** Whether some groups have been written to disk. */
+    boolean isSpilled() {
+        return partitions != null;
+    }
+
+    void add(Binding binding) {
+        Binding key = genKey(groupVars, binding, execCxt);
+        Accumulator[] accs = groups.get(key);
+        if ( accs == null ) {
+            if ( isSpilled() && ! mergeable ) {
+                // Only the groups from before the spill are in memory.
+                partition(key).add(binding);
+                return;
+            }
+            accs = createAccumulators();
+            groups.put(key, accs);
+            if ( policy != null )
+                policy.increment(key);
+        }
+        for ( Accumulator acc : accs )
+            acc.accumulate(binding, execCxt);
+        if ( policy != null && policy.isThresholdExceeded() && ( mergeable || ! isSpilled() ) )
+            spill();
+    }
+
+    private Accumulator[] createAccumulators() {
+        return createAccumulators(aggregators);
+    }
+
+    static Accumulator[] createAccumulators(List<ExprAggregator> aggregators) {
+        Accumulator[] accs = new Accumulator[aggregators.size()];
+        for ( int i = 0 ; i < accs.length ; i++ )
+            accs[i] = aggregators.get(i).getAggregator().createAccumulator();
+        return accs;
+    }
+
+    private void spill() {
+        if ( partitions == null ) {
+            // Bags are created when first used; a bag with nothing added can not be read.
+            partitions = new ArrayList<>(PARTITIONS);
+            for ( int i = 0 ; i < PARTITIONS ; i++ )
+                partitions.add(null);
+        }
+        if ( ! mergeable )
+            return;
+        for ( Map.Entry<Binding, Accumulator[]> e : groups.entrySet() )
+            partition(e.getKey()).add(encodeState(e.getKey(), e.getValue()));
+        groups.clear();
+        policy.reset();
+    }
+
+    private DataBag<Binding> partition(Binding key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        int p = (h >>> 16) & (PARTITIONS-1);
+        DataBag<Binding> bag = partitions.get(p);
+        if ( bag == null ) {
+            bag = BagFactory.newDefaultBag(ThresholdPolicyFactory.count(0), SerializationFactoryFinder.bindingSerializationFactory());
+            partitions.set(p, bag);
+        }
+        return bag;
+    }
+
+    private Binding encodeState(Binding key, Accumulator[] accs) {
+        BindingBuilder builder = Binding.builder(key);
+        for ( int i = 0 ; i < accs.length ; i++ ) {
+            Node[] state = ((AccumulatorMergeable)accs[i]).getState();
+            Var[] vars = stateVars(i);
+            for ( int j = 0 ; j < state.length ; j++ ) {
+                if ( state[j] != null )
+                    builder.add(vars[j], state[j]);
+            }
+        }
+        return builder.build();
+    }
+
+    private Var[] stateVars(int i) {
+        if ( stateVars == null ) {
+            stateVars = new Var[aggregators.size()][];
+            // Not a group variable name.
+            String prefix = "_agg";
+            for ( Var v : groupVars.getVars() ) {
+                while ( v.getVarName().startsWith(prefix) )
+                    prefix = prefix+"_";
+            }
+            for ( int k = 0 ; k < stateVars.length ; k++ ) {
+                // Fixed length per aggregator.
+                int n = ((AccumulatorMergeable)createAccumulators()[k]).getState().length;
+                stateVars[k] = new Var[n];
+                for ( int j = 0 ; j < n ; j++ )
+                    stateVars[k][j] = Var.alloc(prefix+k+"_"+j);
+            }
+        }
+        return stateVars[i];
+    }
+
+    /** Merge an encoded state into the groups. */
+    private void mergeState(Map<Binding, Accumulator[]> groups, Binding row) {
+        BindingBuilder builder = Binding.builder();
+        for ( Var v : groupVars.getVars() ) {
+            Node n = row.get(v);
+            if ( n != null )
+                builder.add(v, n);
+        }
+        Binding key = builder.build();
+        Accumulator[] accs = groups.computeIfAbsent(key, k->createAccumulators());
+        for ( int i = 0 ; i < accs.length ; i++ ) {
+            Var[] vars = stateVars(i);
+            Node[] state = new Node[vars.length];
+            for ( int j = 0 ; j < vars.length ; j++ )
+                state[j] = row.get(vars[j]);
+            ((AccumulatorMergeable)accs[i]).merge(state);
+        }
+    }
+
+    /**
+     * The results: one binding per group with the group key and the values of the
+     * aggregators. Closing the iterator removes any temporary files.
+     */
+    Iterator<Binding> results() {
+        if ( ! isSpilled() ) {
+            Iterator<Binding> iter = results(groups, aggregators);
+            groups = null;
+            return iter;
+        }
+        Iterator<Binding> inMemory;
+        if ( mergeable ) {
+            // Everything goes through the partitions.
+            if ( ! groups.isEmpty() )
+                spill();
+            inMemory = Iter.nullIterator();
+        } else {
+            inMemory = results(groups, aggregators);
+        }
+        groups = null;
+
+        int parallelism = execCxt.getContext().getInt(ARQ.groupParallelism, 1);
+        Iterator<Binding> iter;
+        if ( parallelism <= 1 ) {
+            Iterator<Integer> partitionNumbers = IntStream.range(0, PARTITIONS).iterator();
+            iter = Iter.flatMap(partitionNumbers, p -> aggregatePartition(p).iterator());
+        } else {
+            // Batches of partitions.
+            Iterator<Integer> batches = IntStream.range(0, (PARTITIONS+parallelism-1)/parallelism).iterator();
+            iter = Iter.flatMap(batches, b -> aggregatePartitions(b*parallelism, Math.min(PARTITIONS, (b+1)*parallelism)));
+        }
+        return Iter.onClose(Iter.concat(inMemory, iter), this::close);
+    }
+
+    private Iterator<Binding> aggregatePartitions(int start, int finish) {
+        List<CompletableFuture<List<Binding>>> tasks = new ArrayList<>(finish-start);
+        for ( int p = start ; p < finish ; p++ ) {
+            int partition = p;
+            tasks.add(CompletableFuture.supplyAsync(()->aggregatePartition(partition), ForkJoinPool.commonPool()));
+        }
+        List<Binding> results = new ArrayList<>();
+        for ( CompletableFuture<List<Binding>> task : tasks )
+            results.addAll(task.join());
+        return results.iterator();
+    }
+
+    private List<Binding> aggregatePartition(int p) {
+        DataBag<Binding> bag = partitions.get(p);
+        if ( bag == null )
+            return Collections.emptyList();
+        Map<Binding, Accumulator[]> partitionGroups = new HashMap<>();
+        Iterator<Binding> rows = bag.iterator();
+        try {
+            while(rows.hasNext()) {
+                Binding row = rows.next();
+                if ( mergeable ) {
+                    mergeState(partitionGroups, row);
+                    continue;
+                }
+                Binding key = genKey(groupVars, row, execCxt);
+                Accumulator[] accs = partitionGroups.computeIfAbsent(key, k->createAccumulators());
+                for ( Accumulator acc : accs )
+                    acc.accumulate(row, execCxt);
+            }
+        } finally {
+            Iter.close(rows);
+        }
+        bag.close();
+        List<Binding> results = new ArrayList<>(partitionGroups.size());
+        results(partitionGroups, aggregators).forEachRemaining(results::add);
+        return results;
+    }
+
+    private void close() {
+        if ( partitions == null )
+            return;
+        for ( DataBag<Binding> bag : partitions ) {
+            if ( bag != null )
+                bag.close();
+        }
+    }
+
+    /** Results for groups in memory. */
+    private static Iterator<Binding> results(Map<Binding, Accumulator[]> groups, List<ExprAggregator> aggregators) {
+        if ( aggregators.isEmpty() )
+            return groups.keySet().iterator();
+        return Iter.map(groups.entrySet().iterator(), e->result(e.getKey(), e.getValue(), aggregators));
+    }
+
+    /** The binding for a group. */
+    static Binding result(Binding key, Accumulator[] accs, List<ExprAggregator> aggregators) {
+        BindingBuilder builder = Binding.builder(key);
+        for ( int i = 0 ; i < accs.length ; i++ ) {
+            NodeValue value = accs[i].getValue();
+            if ( value == null )
+                continue;
+            Var v = aggregators.get(i).getVar();
+            builder.add(v, value.asNode());
+        }
+        return builder.build();
+    }
+
+    static Binding genKey(VarExprList vars, Binding binding, ExecutionContext execCxt) {
+        // No group vars (implicit or explicit) => working on whole result set.
+        // Still need a BindingMap to assign to later.
+        BindingBuilder x = Binding.builder();
+        for ( Var var : vars.getVars() ) {
+            Node node = vars.get(var, binding, execCxt);
+            // Null returned for unbound and error.
+            if ( node != null ) {
+                x.add(var, node);
+            }
+        }
+        return x.build();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.expr.ExprAggregator;
+import org.apache.jena.sparql.expr.aggregate.Accumulator;
+
+/**
+ * GROUP BY for input where the rows of each group are next to each other, for
+ * example because the input is in order of the group key. Each group is output
+ * when the next group starts, so only the accumulators for one group are held.
+ * <p>
+ * The results are the same as {@link QueryIterGroup} only if the input is
+ * grouped: a group key that appears again later gives a second result row.
+ */
+public class QueryIterGroupSorted extends QueryIter1
+{
+    private final VarExprList groupVars;
+    private final List<ExprAggregator> aggregators;
+
+    private boolean started = false;
+    private Iterator<Binding> noInput = null;
+    private Binding currentKey = null;
+    private Accumulator[] currentAccs = null;
+    private Binding slot = null;
+
+    public QueryIterGroupSorted(QueryIterator qIter,
+                                VarExprList groupVars,
+                                List<ExprAggregator> aggregators,
+                                ExecutionContext execCxt) {
+        super(qIter, execCxt);
+        this.groupVars = groupVars;
+        this.aggregators = ( aggregators == null ) ? Collections.emptyList() : aggregators;
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        if ( slot != null )
+            return true;
+        slot = nextGroup();
+        return slot != null;
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        Binding b = slot;
+        slot = null;
+        return b;
+    }
+
+    private Binding nextGroup() {
+        QueryIterator input = getInput();
+        if ( ! started ) {
+            started = true;
+            if ( ! input.hasNext() )
+                noInput = QueryIterGroup.resultsNoInput(groupVars, aggregators);
+        }
+        if ( noInput != null )
+            return noInput.hasNext() ? noInput.next() : null;
+
+        while ( input.hasNext() ) {
+            Binding b = input.nextBinding();
+            Binding key = GroupTable.genKey(groupVars, b, getExecContext());
+            Binding result = null;
+            if ( currentKey != null && ! currentKey.equals(key) ) {
+                result = finishGroup();
+            }
+            if ( currentKey == null ) {
+                currentKey = key;
+                currentAccs = GroupTable.createAccumulators(aggregators);
+            }
+            for ( Accumulator acc : currentAccs )
+                acc.accumulate(b, getExecContext());
+            if ( result != null )
+                return result;
+        }
+        if ( currentKey != null )
+            return finishGroup();
+        return null;
+    }
+
+    private Binding finishGroup() {
+        Binding result = GroupTable.result(currentKey, currentAccs, aggregators);
+        currentKey = null;
+        currentAccs = null;
+        return result;
+    }
+
+    @Override
+    protected void requestSubCancel() {}
+
+    @Override
+    protected void closeSubIterator() {}
+}
@@ -18,9 +18,14 @@
 
 package org.apache.jena.sparql.engine.join;
 
+import java.util.ArrayList ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.Objects ;
+import java.util.stream.IntStream ;
 
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.core.Var ;
@@ -34,6 +39,10 @@ import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
  *  
  * This code materializes one input into the probe table
  * then hash joins the other input from the stream side.
+ * <p>
+ * If the probe table grows past the spill threshold ({@link ThresholdPolicyFactory#policyFromContext}),
+ * the probe rows and the stream rows are partitioned to disk and the join is completed
+ * one partition at a time. See {@link HashJoinPartitions}.
  */
 
 public abstract class AbstractIterHashJoin extends QueryIter2 {
@@ -44,9 +53,17 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     // See also stats in the probe table.
     
     protected final JoinKey               joinKey ;
-    protected final HashProbeTable        hashTable ;
+    protected HashProbeTable              hashTable ;
 
-    private QueryIterator               iterStream ;
+    private final ThresholdPolicy<Binding> policy ;     // Null for no spilling.
+    private HashJoinPartitions          partitions      = null ;
+    private HashProbeTable              probeTable ;    // Table for the stream rows currently being joined.
+    private boolean                     spillStream     = false ;
+    private List<Binding>               noKeyStream     = null ;    // Stream rows without the join key, when spilling.
+    private Iterator<Binding>           iterNoKey       = null ;
+
+    private final QueryIterator         streamInput ;
+    private Iterator<Binding>           iterStream ;
     private Binding                     rowStream       = null ;
     private Iterator<Binding>           iterCurrent ;
     private boolean                     yielded ;       // Flag to note when current probe causes a result. 
@@ -59,6 +76,16 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     private Binding slot = null ;
 
     protected AbstractIterHashJoin(JoinKey joinKey, QueryIterator probeIter, QueryIterator streamIter, ExecutionContext execCxt) {
+        this(joinKey, probeIter, streamIter, true, execCxt) ;
+    }
+
+    /**
+     * Hash join, with a flag to say whether the probe table may be spilled to disk.
+     * Spilling needs every probe row that a stream row can match to be known when
+     * that stream row is processed, and for there to be no processing of the probe
+     * table after the stream has been read.
+     */
+    protected AbstractIterHashJoin(JoinKey joinKey, QueryIterator probeIter, QueryIterator streamIter, boolean spillable, ExecutionContext execCxt) {
         super(probeIter, streamIter, execCxt) ;
         
         if ( joinKey == null ) {
@@ -76,7 +103,11 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         }
         
         this.joinKey = joinKey ;
+        this.streamInput = streamIter ;
         this.iterStream = streamIter ;
+        this.policy = ( spillable && execCxt != null )
+            ? ThresholdPolicyFactory.policyFromContext(execCxt.getContext())
+            : null ;
         this.hashTable = new HashProbeTable(joinKey) ;
         this.iterCurrent = null ;
         buildHashTable(probeIter) ;
@@ -88,12 +119,76 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         for (; iter1.hasNext();) {
             Binding row1 = iter1.next() ;
             s_countProbe ++ ;
+            if ( partitions != null && partitions.putProbe(row1) )
+                continue ;
             hashTable.put(row1) ;
+            if ( policy != null ) {
+                policy.increment(row1) ;
+                if ( policy.isThresholdExceeded() && ( partitions == null || ! partitions.allOnDisk() ) )
+                    spill() ;
+            }
         }
         iter1.close() ;
+        probeTable = hashTable ;
+        spillStream = ( partitions != null ) ;
+        if ( spillStream )
+            noKeyStream = new ArrayList<>() ;
         state = Phase.STREAM ;
     }
 
+    private void spill() {
+        if ( partitions == null )
+            partitions = new HashJoinPartitions(joinKey) ;
+        hashTable = partitions.spill(hashTable) ;
+        policy.reset() ;
+        hashTable.values().forEachRemaining(policy::increment) ;
+    }
+
+    /** Move to the next partition on disk, if any. */
+    private boolean nextPartition() {
+        if ( partitions == null )
+            return false ;
+        spillStream = false ;
+        int p = partitions.nextPartition() ;
+        if ( p < 0 )
+            return false ;
+        HashProbeTable table = new HashProbeTable(joinKey) ;
+        partitions.probeRows(p).forEachRemaining(table::put) ;
+        hashTable.getNoKey$().forEach(table::put) ;
+        probeTable = table ;
+        iterStream = partitions.streamRows(p) ;
+        return true ;
+    }
+
+    /**
+     * Join the stream rows without the join key with all the probe rows, including
+     * those on disk. The probe rows are read once; the results for each probe row
+     * are for all the stream rows.
+     */
+    private Iterator<Binding> joinNoKey(List<Binding> rows) {
+        boolean[] yieldedRows = new boolean[rows.size()] ;
+        Iterator<Binding> probeRows = Iter.concat(hashTable.values(), partitions.probeRows()) ;
+        Iterator<Binding> results = Iter.flatMap(probeRows, rowProbe -> {
+            List<Binding> x = new ArrayList<>() ;
+            for ( int i = 0 ; i < rows.size() ; i++ ) {
+                Binding r = Algebra.merge(rowProbe, rows.get(i)) ;
+                Binding r2 = ( r == null ) ? null : yieldOneResult(rowProbe, rows.get(i), r) ;
+                if ( r2 != null ) {
+                    yieldedRows[i] = true ;
+                    x.add(r2) ;
+                }
+            }
+            return x.iterator() ;
+        }) ;
+        // Evaluated after all the probe rows have been read.
+        Iterator<Binding> noMatch = IntStream.range(0, rows.size())
+            .filter(i -> ! yieldedRows[i])
+            .mapToObj(i -> noYieldedRows(rows.get(i)))
+            .filter(Objects::nonNull)
+            .iterator() ;
+        return Iter.concat(results, noMatch) ;
+    }
+
     @Override
     protected boolean hasNextBinding() {
         if ( isFinished() ) 
@@ -133,8 +228,23 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         for(;;) {
             // Ensure we are processing a row. 
             while ( iterCurrent == null ) {
+                if ( iterNoKey != null ) {
+                    if ( iterNoKey.hasNext() ) {
+                        s_countResults ++ ;
+                        return iterNoKey.next() ;
+                    }
+                    iterNoKey = null ;
+                }
                 // Move on to the next row from the right.
                 if ( ! iterStream.hasNext() ) {
+                    if ( noKeyStream != null ) {
+                        // Before any partition on disk is joined and deleted.
+                        iterNoKey = joinNoKey(noKeyStream) ;
+                        noKeyStream = null ;
+                        continue ;
+                    }
+                    if ( nextPartition() )
+                        continue ;
                     state = Phase.TRAILER ;
                     iterTail = joinFinished() ;
                     if ( iterTail != null )
@@ -142,8 +252,19 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
                     return null ;
                 }
                 rowStream = iterStream.next() ;
+                if ( spillStream ) {
+                    // Stream rows without the join key match all the probe rows, including those on disk.
+                    if ( JoinLib.hash(joinKey, rowStream) == JoinLib.noKeyHash ) {
+                        s_countScan ++ ;
+                        noKeyStream.add(rowStream) ;
+                        continue ;
+                    }
+                    // Partition on disk: join later.
+                    if ( partitions.putStream(rowStream) )
+                        continue ;
+                }
                 s_countScan ++ ;
-                iterCurrent = hashTable.getCandidates(rowStream) ;
+                iterCurrent = probeTable.getCandidates(rowStream) ;
                 yielded = false ;
             }
             
@@ -227,8 +348,10 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
             System.out.println(x) ;
         }
         // In case it's a peek iterator.
-        iterStream.close() ;
+        streamInput.close() ;
         hashTable.clear(); 
+        if ( partitions != null )
+            partitions.close() ;
     }
 
     @Override
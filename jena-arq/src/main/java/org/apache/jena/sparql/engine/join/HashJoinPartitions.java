@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.data.BagFactory;
+import org.apache.jena.atlas.data.DataBag;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.system.SerializationFactoryFinder;
+
+/**
+ * The on-disk partitions of a hash join when the probe table grows past the
+ * spill threshold (grace hash join).
+ * <p>
+ * Rows are partitioned by the join key hash. When the probe table first
+ * exceeds the threshold, all partitions except partition 0 are written to disk;
+ * partition 0 stays in memory so stream rows for it are joined as they arrive
+ * (hybrid hash join). If the probe table exceeds the threshold again, partition
+ * 0 is written to disk as well. Stream rows for partitions on disk are written
+ * to disk and joined, one partition at a time, after the stream has been read.
+ * <p>
+ * Rows with none of the join key variables are not partitioned. Probe rows of
+ * this kind stay in memory. Stream rows of this kind are kept in memory and, after
+ * the stream has been read, joined with all the probe rows in one pass over the
+ * probe rows.
+ */
+class HashJoinPartitions {
+    // Power of two.
+    /*package*/ static final int PARTITIONS = 32;
+
+    private final JoinKey joinKey;
+    private final List<DataBag<Binding>> probeBags = new ArrayList<>(PARTITIONS);
+    private final List<DataBag<Binding>> streamBags = new ArrayList<>(PARTITIONS);
+    private final boolean[] onDisk = new boolean[PARTITIONS];
+    private int nextPartition = 0;
+
+    HashJoinPartitions(JoinKey joinKey) {
+        this.joinKey = joinKey;
+        for ( int i = 0 ; i < PARTITIONS ; i++ ) {
+            probeBags.add(null);
+            streamBags.add(null);
+        }
+    }
+
+    /*package*/ static int partition(Object hash) {
+        // Spread the bits; the hash itself is also used for the buckets in the probe table.
+        long h = ((Long)hash) * 0x9E3779B97F4A7C15L;
+        return (int)(h >>> 32) & (PARTITIONS-1);
+    }
+
+    /**
+     * Write the partitions in the probe table to disk, leaving partition 0 in
+     * memory the first time. Return a new probe table with the rows that stay in
+     * memory.
+     */
+    HashProbeTable spill(HashProbeTable table) {
+        boolean first = ! onDisk[1];
+        for ( int i = first ? 1 : 0 ; i < PARTITIONS ; i++ )
+            onDisk[i] = true;
+        HashProbeTable table2 = new HashProbeTable(joinKey);
+        Iterator<Binding> iter = table.values();
+        while(iter.hasNext()) {
+            Binding row = iter.next();
+            if ( ! putProbe(row) )
+                table2.put(row);
+        }
+        table.clear();
+        return table2;
+    }
+
+    /** True when no more of the probe table can be written to disk. */
+    boolean allOnDisk() {
+        return onDisk[0];
+    }
+
+    /** Add a probe row: return true if it was written to disk. */
+    boolean putProbe(Binding row) {
+        return put(probeBags, row);
+    }
+
+    /** Add a stream row: return true if it was written to disk for joining later. */
+    boolean putStream(Binding row) {
+        return put(streamBags, row);
+    }
+
+    private boolean put(List<DataBag<Binding>> bags, Binding row) {
+        Object hash = JoinLib.hash(joinKey, row);
+        if ( hash == JoinLib.noKeyHash )
+            return false;
+        int p = partition(hash);
+        if ( ! onDisk[p] )
+            return false;
+        DataBag<Binding> bag = bags.get(p);
+        if ( bag == null ) {
+            bag = BagFactory.newDefaultBag(ThresholdPolicyFactory.count(0), SerializationFactoryFinder.bindingSerializationFactory());
+            bags.set(p, bag);
+        }
+        bag.add(row);
+        return true;
+    }
+
+    /** All the probe rows on disk. */
+    Iterator<Binding> probeRows() {
+        Iterator<Binding> iter = null;
+        for ( DataBag<Binding> bag : probeBags ) {
+            if ( bag != null )
+                iter = Iter.concat(iter, bag.iterator());
+        }
+        return iter == null ? Iter.nullIterator() : iter;
+    }
+
+    /**
+     * Move to the next partition on disk with stream rows to join.
+     * Return the partition number, or -1 if there are no more.
+     * The partitions already joined are deleted.
+     */
+    int nextPartition() {
+        if ( nextPartition > 0 )
+            close(nextPartition-1);
+        while ( nextPartition < PARTITIONS ) {
+            int p = nextPartition++;
+            // Stream rows with no probe rows in the partition still have to be
+            // processed (outer join, probe rows without the join key).
+            if ( streamBags.get(p) != null )
+                return p;
+            close(p);
+        }
+        return -1;
+    }
+
+    Iterator<Binding> probeRows(int p) {
+        DataBag<Binding> bag = probeBags.get(p);
+        return bag == null ? Iter.nullIterator() : bag.iterator();
+    }
+
+    Iterator<Binding> streamRows(int p) {
+        return streamBags.get(p).iterator();
+    }
+
+    private void close(int p) {
+        close(probeBags, p);
+        close(streamBags, p);
+    }
+
+    private static void close(List<DataBag<Binding>> bags, int p) {
+        DataBag<Binding> bag = bags.get(p);
+        if ( bag != null ) {
+            bag.close();
+            bags.set(p, null);
+        }
+    }
+
+    void close() {
+        for ( int i = 0 ; i < PARTITIONS ; i++ )
+            close(i);
+    }
+}
@@ -81,7 +81,8 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
     }
     
     private QueryIterHashLeftJoin_Left(JoinKey joinKey, QueryIterator left, QueryIterator right, ExprList conditions, ExecutionContext execCxt) {
-        super(joinKey, left, right, execCxt) ;
+        // The unmatched rows of the probe table are needed after the stream has been read.
+        super(joinKey, left, right, false, execCxt) ;
         this.conditions = conditions ;
     }
 
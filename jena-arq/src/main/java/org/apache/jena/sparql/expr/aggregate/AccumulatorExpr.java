@@ -21,6 +21,7 @@ package org.apache.jena.sparql.expr.aggregate;
 import java.util.HashSet ;
 import java.util.Set ;
 
+import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.expr.Expr ;
 import org.apache.jena.sparql.expr.ExprEvalException ;
@@ -80,6 +81,40 @@ public abstract class AccumulatorExpr implements Accumulator
 
     /** Get the count of accumulated values */ 
     protected long getAccCount() { return accCount ; }
+
+    // Support for AccumulatorMergeable.
+    // The state is the subclass values, then the accumulated count and the error count.
+
+    /** The state of this accumulator, given the subclass values. */
+    protected Node[] state(Node... values) {
+        Node[] state = new Node[values.length+2] ;
+        System.arraycopy(values, 0, state, 0, values.length) ;
+        state[values.length] = countNode(accCount) ;
+        state[values.length+1] = countNode(errorCount) ;
+        return state ;
+    }
+
+    /** Merge the counts of a state where the subclass has {@code numValues} values. */
+    protected void mergeCounts(Node[] state, int numValues) {
+        accCount += count(state[numValues]) ;
+        errorCount += count(state[numValues+1]) ;
+    }
+
+    static Node countNode(long count) {
+        return NodeValue.makeInteger(count).asNode() ;
+    }
+
+    static long count(Node node) {
+        return NodeValue.makeNode(node).getInteger().longValue() ;
+    }
+
+    static Node asNode(NodeValue nv) {
+        return nv == null ? null : nv.asNode() ;
+    }
+
+    static NodeValue asNodeValue(Node node) {
+        return node == null ? null : NodeValue.makeNode(node) ;
+    }
     
     /** Called if no errors to get the accumulated result */
     protected abstract NodeValue getAccValue() ; 
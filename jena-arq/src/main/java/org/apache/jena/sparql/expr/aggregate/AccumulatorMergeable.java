@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.expr.aggregate;
+
+import org.apache.jena.graph.Node ;
+
+/**
+ * An {@link Accumulator} for an aggregate that can be calculated in parts
+ * (COUNT, SUM, MIN, MAX, AVG). The state of one accumulator can be merged into
+ * another accumulator for the same aggregate, as if all the bindings had been
+ * passed to the one accumulator.
+ * <p>
+ * The state is an array of nodes, of fixed length for the aggregate, with null
+ * for "no value", so it can be written out as part of a binding.
+ */
+public interface AccumulatorMergeable extends Accumulator
+{
+    /** The current state of the accumulator. */
+    public Node[] getState() ;
+
+    /** Merge the state of another accumulator for the same aggregate. */
+    public void merge(Node[] state) ;
+}
@@ -65,7 +65,7 @@ public class AggAvg extends AggregatorBase
     }
     
     // ---- Accumulator
-    private static class AccAvg extends AccumulatorExpr
+    private static class AccAvg extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue total = noValuesToAvg ;
@@ -110,5 +110,25 @@ public class AggAvg extends AggregatorBase
             NodeValue nvCount = NodeValue.makeInteger(count) ;
             return XSDFuncOp.numDivide(total, nvCount) ;
         }
+
+        @Override
+        public Node[] getState()
+        {
+            Node nTotal = ( count == 0 ) ? null : total.asNode() ;
+            return state(nTotal, countNode(count)) ;
+        }
+
+        @Override
+        public void merge(Node[] state)
+        {
+            int c = (int)count(state[1]) ;
+            if ( c > 0 )
+            {
+                NodeValue nv = asNodeValue(state[0]) ;
+                total = ( count == 0 ) ? nv : XSDFuncOp.numAdd(nv, total) ;
+                count += c ;
+            }
+            mergeCounts(state, 2) ;
+        }
     }
 }
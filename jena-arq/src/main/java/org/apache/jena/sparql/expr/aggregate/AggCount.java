@@ -70,7 +70,7 @@ public class AggCount extends AggregatorBase
         return true ;
     }
 
-    static class AccCount implements Accumulator
+    static class AccCount implements AccumulatorMergeable
     {
         private long count = 0 ;
         public AccCount()   { }
@@ -80,5 +80,11 @@ public class AggCount extends AggregatorBase
         // Errors can't occur.
         @Override
         public NodeValue getValue()             { return NodeValue.makeInteger(count) ; }
+
+        @Override
+        public Node[] getState()                { return new Node[] {AccumulatorExpr.countNode(count)} ; }
+
+        @Override
+        public void merge(Node[] state)         { count += AccumulatorExpr.count(state[0]) ; }
     }
 }
@@ -56,7 +56,7 @@ public class AggCountVar extends AggregatorBase
     public Node getValueEmpty()     { return NodeConst.nodeZero ; } 
 
     // ---- Accumulator
-    private static class AccCountVar extends AccumulatorExpr
+    private static class AccCountVar extends AccumulatorExpr implements AccumulatorMergeable
     {
         private long count = 0 ;
         public AccCountVar(Expr expr)   { super(expr, false) ; }
@@ -76,5 +76,14 @@ public class AggCountVar extends AggregatorBase
 
         @Override
         public NodeValue getAccValue()             { return NodeValue.makeInteger(count) ; }
+
+        @Override
+        public Node[] getState()                    { return state(countNode(count)) ; }
+
+        @Override
+        public void merge(Node[] state) {
+            count += count(state[0]) ;
+            mergeCounts(state, 1) ;
+        }
     }
 }
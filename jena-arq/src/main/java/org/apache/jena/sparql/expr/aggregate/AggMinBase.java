@@ -40,7 +40,7 @@ abstract class AggMinBase extends AggregatorBase
     public final Node getValueEmpty()     { return null ; } 
 
     // ---- Accumulator
-    private static class AccMin extends AccumulatorExpr
+    private static class AccMin extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue minSoFar = null ;
@@ -73,5 +73,18 @@ abstract class AggMinBase extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return minSoFar ; }
+
+        @Override
+        public Node[] getState()
+        { return state(asNode(minSoFar)) ; }
+
+        @Override
+        public void merge(Node[] state)
+        {
+            NodeValue nv = asNodeValue(state[0]) ;
+            if ( nv != null && ( minSoFar == null || NodeValue.compareAlways(minSoFar, nv) > 0 ) )
+                minSoFar = nv ;
+            mergeCounts(state, 1) ;
+        }
     }
 }
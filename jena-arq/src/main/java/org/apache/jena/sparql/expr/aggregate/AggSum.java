@@ -59,7 +59,7 @@ public class AggSum  extends AggregatorBase
     } 
 
     // ---- Accumulator
-    private static class AccSum extends AccumulatorExpr
+    private static class AccSum extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue total = null ;
@@ -87,5 +87,18 @@ public class AggSum  extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return total ; }
+
+        @Override
+        public Node[] getState()
+        { return state(asNode(total)) ; }
+
+        @Override
+        public void merge(Node[] state)
+        {
+            NodeValue nv = asNodeValue(state[0]) ;
+            if ( nv != null )
+                total = ( total == null ) ? nv : XSDFuncOp.numAdd(nv, total) ;
+            mergeCounts(state, 1) ;
+        }
     }
 }
@@ -21,6 +21,7 @@ package org.apache.jena.sparql.graph;
 import org.apache.jena.graph.Factory;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.impl.GraphPlain;
+import org.apache.jena.mem.GraphMemCompact;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.sparql.SystemARQ;
@@ -53,11 +54,23 @@ public class GraphFactory {
         return new GraphTxn();
     }
 
+    /**
+     * Create an in-memory graph that stores nodes once, and triples as arrays of
+     * node ids, for large graphs. See {@link GraphMemCompact}.
+     */
+    public static GraphMemCompact createCompactGraph() {
+        return new GraphMemCompact();
+    }
+
     /** Create a graph - ARQ-wide default type */
     public static Graph createDefaultGraph() {
         // Normal usage is SystemARQ.UsePlainGraph = false and use
         // createJenaDefaultGraph
-        return SystemARQ.UsePlainGraph ? createPlainGraph() : createJenaDefaultGraph();
+        if ( SystemARQ.UsePlainGraph )
+            return createPlainGraph();
+        if ( SystemARQ.UseCompactGraph )
+            return createCompactGraph();
+        return createJenaDefaultGraph();
     }
 
     /** Create a graph - always the Jena default graph type */
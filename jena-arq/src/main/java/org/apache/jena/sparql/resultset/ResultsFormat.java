@@ -56,6 +56,7 @@ public class ResultsFormat extends Symbol
 
     static public ResultsFormat FMT_RS_THRIFT    = new ResultsFormat(contentTypeResultsThrift) ;
     static public ResultsFormat FMT_RS_PROTOBUF  = new ResultsFormat(contentTypeResultsProtobuf) ;
+    static public ResultsFormat FMT_RS_COLUMNAR  = new ResultsFormat(contentTypeResultsColumnar) ;
 
     static public ResultsFormat FMT_RS_CSV       = new ResultsFormat(contentTypeTextCSV) ;
     static public ResultsFormat FMT_RS_TSV       = new ResultsFormat(contentTypeTextTSV) ;
@@ -88,6 +89,7 @@ public class ResultsFormat extends Symbol
 
         names.put("srt",         FMT_RS_THRIFT) ;
         names.put("srp",         FMT_RS_PROTOBUF) ;
+        names.put("srcol",       FMT_RS_COLUMNAR) ;
 
         names.put("sse",         FMT_RS_SSE) ;
         names.put("csv",         FMT_RS_CSV) ;
@@ -169,6 +171,9 @@ public class ResultsFormat extends Symbol
         // -- Thrift
         if ( url.endsWith(".srp") )
             return FMT_RS_PROTOBUF;
+        // -- Columnar
+        if ( url.endsWith(".srcol") )
+            return FMT_RS_COLUMNAR;
 
         // -- SSE : http://jena.apache.org/documentation/notes/sse.html
         if ( url.endsWith(".sse") )
@@ -214,6 +219,7 @@ public class ResultsFormat extends Symbol
         mapResultsFormatToLang.put(ResultsFormat.FMT_RS_JSON,     ResultSetLang.RS_JSON) ;
         mapResultsFormatToLang.put(ResultsFormat.FMT_RS_THRIFT,   ResultSetLang.RS_Thrift) ;
         mapResultsFormatToLang.put(ResultsFormat.FMT_RS_PROTOBUF, ResultSetLang.RS_Protobuf) ;
+        mapResultsFormatToLang.put(ResultsFormat.FMT_RS_COLUMNAR, ResultSetLang.RS_Columnar) ;
         mapResultsFormatToLang.put(ResultsFormat.FMT_TEXT,        ResultSetLang.RS_Text);
     }
 
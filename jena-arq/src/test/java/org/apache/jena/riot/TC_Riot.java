@@ -19,6 +19,7 @@
 package org.apache.jena.riot;
 
 import org.apache.jena.riot.adapters.TS_RIOTAdapters ;
+import org.apache.jena.riot.columnar.TS_RDFColumnar;
 import org.apache.jena.riot.lang.TS_Lang ;
 import org.apache.jena.riot.out.TS_Out ;
 import org.apache.jena.riot.process.TS_Process ;
@@ -49,6 +50,7 @@ import org.junit.runners.Suite ;
     , TS_ResultSetRIOT.class
     , TS_RDFProtobuf.class
     , TS_RDFThrift.class
+    , TS_RDFColumnar.class
     , TS_RowSetRIOT.class
 
     , Scripts_LangSuite.class
@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.riot.columnar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.query.ResultSetFormatter;
+import org.apache.jena.query.ResultSetRewindable;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.sparql.sse.Item;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.sse.builders.BuilderRowSet;
+import org.junit.Test;
+
+public class TestColumnarResultSet {
+    static ResultSetRewindable rs0 = make
+        ("(resultset (?x ?y)"
+         , "   (row (?x _:a) (?y 3))"
+         , "   (row (?x 1) (?y 'a'))"
+         , "   (row (?y 'y'))"
+         , "   (row (?x _:a))"
+         , "   (row)"
+         , "   (row (?x 2) (?y 10))"
+         , "   (row (?x 2) (?y <<_:a :p :o>>))"
+         , ")"
+         );
+
+    static ResultSetRewindable rs1 = make
+        ("(resultset (?x ?y)"
+         , "   (row (?x 1) (?y 3))"
+         , "   (row (?x 1) (?y 'a'))"
+         , "   (row (?x 2) (?y <<:s :p :o>>))"
+         , ")"
+         );
+
+    static ResultSetRewindable rs2 = make
+        ("(resultset (?x ?y)"
+         , "   (row (?x 1) (?y 'a'))"
+         , "   (row (?x 2) (?y <<:s :p :o>>))"
+         , "   (row (?x 1) (?y 3))"
+         , ")"
+         );
+
+    static ResultSetRewindable rsEmpty = make("(resultset (?x ?y))");
+
+    static ResultSetRewindable rsNoVars = make
+        ("(resultset ()"
+         , "   (row)"
+         , "   (row)"
+         , ")"
+         );
+
+    @Test public void resultSet_01() { test(rs0); }
+
+    @Test public void resultSet_02() {
+        ResultSetRewindable r1 = test(rs1);
+        // not reordered
+        r1.reset();
+        rs2.reset();
+        assertFalse(ResultSetCompare.equalsByTermAndOrder(r1, rs2));
+        rs2.reset();
+    }
+
+    @Test public void resultSet_03() {
+        ResultSetRewindable r = test(rsEmpty);
+        assertEquals(2, r.getResultVars().size());
+        assertFalse(r.hasNext());
+    }
+
+    @Test public void resultSet_04() {
+        ResultSetRewindable r = test(rsNoVars);
+        assertEquals(2, r.size());
+    }
+
+    // More rows than a block.
+    @Test public void resultSet_05() {
+        Var x = Var.alloc("x");
+        Var y = Var.alloc("y");
+        List<Binding> rows = new ArrayList<>();
+        for ( int i = 0 ; i < 3*CRDF.DftBlockRows+10 ; i++ ) {
+            if ( i % 7 == 0 )
+                rows.add(BindingFactory.binding(x, NodeFactory.createURI("http://example/"+i)));
+            else
+                rows.add(BindingFactory.binding(x, NodeFactory.createURI("http://example/"+i),
+                                                y, NodeFactory.createLiteral("v"+(i%10))));
+        }
+        for ( ColumnarCodec codec : ColumnarCodec.values() ) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ColumnarRDF.writeRowSet(out, RowSetStream.create(List.of(x, y), rows.iterator()), codec);
+            RowSet rowSet = ColumnarRDF.readRowSet(new ByteArrayInputStream(out.toByteArray()));
+            List<Binding> rows2 = new ArrayList<>();
+            rowSet.forEachRemaining(rows2::add);
+            assertEquals(rows, rows2);
+        }
+    }
+
+    private static ResultSetRewindable test(ResultSetRewindable resultSet) {
+        resultSet.reset();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSetFormatter.output(out, resultSet, ResultSetLang.RS_Columnar);
+        resultSet.reset();
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        RowSet rs$ = ColumnarRDF.readRowSet(in);
+        ResultSetRewindable resultSet2 = ResultSetFactory.makeRewindable(rs$);
+        // Includes bnode labels.
+        assertTrue(ResultSetCompare.equalsExact(resultSet, resultSet2));
+        resultSet.reset();
+        resultSet2.reset();
+        return resultSet2;
+    }
+
+    private static ResultSetRewindable make(String ... strings) {
+        String s = StrUtils.strjoinNL(strings);
+        Item item = SSE.parse(s);
+        return ResultSetFactory.makeRewindable(BuilderRowSet.build(item));
+    }
+}
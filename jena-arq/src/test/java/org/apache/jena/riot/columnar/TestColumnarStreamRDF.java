@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.riot.columnar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.riot.thrift.ThriftRDF;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestColumnarStreamRDF {
+    @Parameters(name = "{index}: {0}")
+    public static Collection<Object[]> data() {
+        List<Object[]> x = new ArrayList<>();
+        for ( ColumnarCodec codec : ColumnarCodec.values() )
+            x.add(new Object[]{ codec.name(), codec });
+        return x;
+    }
+
+    static String gs = StrUtils.strjoinNL(
+        "(graph",
+        "  (_:a :p 123) ",
+        "  (_:a :p 'foo'@en) ",
+        "  (_:b :p '456') ",
+        "  (_:b :p '456.5'^^<http://www.w3.org/2001/XMLSchema#decimal>) ",
+        "  (_:b :q 'caf\u00E9 \uD83D\uDE00') ",
+        "  (<http://example/\u00E9> :p <<:s :p 'o'>>) ",
+        "  (<< _:a :q <<:s :p 1>> >> :r :o) ",
+        ")");
+
+    static Graph graph = SSE.parseGraph(gs);
+
+    static String dgs = StrUtils.strjoinNL(
+        "(dataset",
+        "  (graph (:s1 :p _:a) (:s2 :p _:a))" ,
+        "  (graph :g  (:s1 :p _:a))" ,
+        "  (graph _:a (:s2 :p _:a) (:s2 :p 'abc'@en))" ,
+        ")" );
+
+    static DatasetGraph datasetGraph = SSE.parseDatasetGraph(dgs);
+
+    private final ColumnarCodec codec;
+
+    public TestColumnarStreamRDF(String name, ColumnarCodec codec) {
+        this.codec = codec;
+    }
+
+    private byte[] write(int blockRows, Consumer<StreamRDF> action) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF stream = new StreamRDF2Columnar(out, codec, blockRows);
+        stream.start();
+        action.accept(stream);
+        stream.finish();
+        return out.toByteArray();
+    }
+
+    private static Graph readGraph(byte[] bytes) {
+        Graph g = GraphFactory.createGraphMem();
+        ColumnarRDF.inputStreamToStreamRDF(new ByteArrayInputStream(bytes), StreamRDFLib.graph(g));
+        return g;
+    }
+
+    private static DatasetGraph readDataset(byte[] bytes) {
+        DatasetGraph dsg = DatasetGraphFactory.create();
+        ColumnarRDF.inputStreamToStreamRDF(new ByteArrayInputStream(bytes), StreamRDFLib.dataset(dsg));
+        return dsg;
+    }
+
+    // Same terms, including blank nodes.
+    private static void sameTerms(Graph g1, Graph g2) {
+        assertEquals(g1.size(), g2.size());
+        g1.find().forEachRemaining(t -> assertTrue(t.toString(), g2.contains(t)));
+    }
+
+    @Test public void graph_01() {
+        byte[] bytes = write(CRDF.DftBlockRows, s->StreamRDFOps.graphToStream(graph, s));
+        Graph g2 = readGraph(bytes);
+        assertTrue(IsoMatcher.isomorphic(graph, g2));
+        sameTerms(graph, g2);
+    }
+
+    // Block per triple, and a block boundary inside each group.
+    @Test public void graph_02() {
+        for ( int blockRows : new int[] {1, 2, 3} ) {
+            byte[] bytes = write(blockRows, s->StreamRDFOps.graphToStream(graph, s));
+            sameTerms(graph, readGraph(bytes));
+        }
+    }
+
+    @Test public void graph_03() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDFWriter.write(out, graph, Lang.RDFCOLUMNAR, null);
+        Graph g2 = GraphFactory.createGraphMem();
+        RDFDataMgr.read(g2, new ByteArrayInputStream(out.toByteArray()), Lang.RDFCOLUMNAR);
+        sameTerms(graph, g2);
+    }
+
+    @Test public void dataset_01() {
+        byte[] bytes = write(2, s->StreamRDFOps.datasetToStream(datasetGraph, s));
+        DatasetGraph dsg2 = readDataset(bytes);
+        assertTrue(IsoMatcher.isomorphic(datasetGraph, dsg2));
+        datasetGraph.find().forEachRemaining(q -> assertTrue(q.toString(), dsg2.contains(q)));
+    }
+
+    @Test public void dataset_02() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, datasetGraph, RDFFormat.RDF_COLUMNAR_DEFLATE);
+        DatasetGraph dsg2 = DatasetGraphFactory.create();
+        RDFDataMgr.read(dsg2, new ByteArrayInputStream(out.toByteArray()), Lang.RDFCOLUMNAR);
+        assertTrue(IsoMatcher.isomorphic(datasetGraph, dsg2));
+    }
+
+    // Prefixes and base are kept, in order with the data.
+    @Test public void directives_01() {
+        List<String> events = new ArrayList<>();
+        byte[] bytes = write(CRDF.DftBlockRows, s->{
+            s.base("http://example/base");
+            s.prefix("ex", "http://example/");
+            s.triple(SSE.parseTriple("(:s :p :o)"));
+            s.prefix("", "http://example/ns#");
+            s.triple(SSE.parseTriple("(:s :p :o2)"));
+        });
+        StreamRDF dest = new StreamRDF() {
+            @Override public void start() {}
+            @Override public void triple(Triple triple) { events.add("T"); }
+            @Override public void quad(Quad quad) { events.add("Q"); }
+            @Override public void base(String base) { events.add("B "+base); }
+            @Override public void prefix(String prefix, String iri) { events.add("P "+prefix+" "+iri); }
+            @Override public void finish() {}
+        };
+        ColumnarRDF.inputStreamToStreamRDF(new ByteArrayInputStream(bytes), dest);
+        assertEquals(Arrays.asList("B http://example/base", "P ex http://example/", "T", "P  http://example/ns#", "T"), events);
+    }
+
+    @Test public void empty_01() {
+        byte[] bytes = write(CRDF.DftBlockRows, s->{});
+        assertEquals(0, readGraph(bytes).size());
+        assertEquals(0, readGraph(new byte[0]).size());
+    }
+
+    // Many rows, several blocks, repeated terms.
+    @Test public void large_01() {
+        Graph g = largeGraph();
+        PrefixMap pmap = PrefixMapFactory.create();
+        byte[] bytes = write(1000, s->StreamRDFOps.sendGraphToStream(g, s, null, pmap));
+        sameTerms(g, readGraph(bytes));
+    }
+
+    // The dictionary and column encoding is smaller than one term per triple slot.
+    @Test public void size_01() {
+        Graph g = largeGraph();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF stream = ThriftRDF.streamToOutputStream(out);
+        stream.start();
+        StreamRDFOps.graphToStream(g, stream);
+        stream.finish();
+        int sizeThrift = out.size();
+        byte[] bytes = write(CRDF.DftBlockRows, s->StreamRDFOps.graphToStream(g, s));
+        assertTrue("Columnar "+bytes.length+" : Thrift "+sizeThrift, bytes.length < sizeThrift/2);
+    }
+
+    @Test(expected=RiotException.class)
+    public void bad_01() {
+        readGraph(new byte[] {'R', 'D', 'F', ' ', 1});
+    }
+
+    @Test(expected=RiotException.class)
+    public void bad_02() {
+        byte[] bytes = write(CRDF.DftBlockRows, s->StreamRDFOps.graphToStream(graph, s));
+        readGraph(Arrays.copyOf(bytes, bytes.length-1));
+    }
+
+    private static Graph largeGraph() {
+        Graph g = GraphFactory.createGraphMem();
+        Node p1 = NodeFactory.createURI("http://example/p1");
+        Node p2 = NodeFactory.createURI("http://example/p2");
+        Node type = NodeFactory.createURI("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
+        Node cls = NodeFactory.createURI("http://example/Class");
+        for ( int i = 0 ; i < 5000 ; i++ ) {
+            Node s = NodeFactory.createURI("http://example/subject/"+i);
+            g.add(Triple.create(s, type, cls));
+            g.add(Triple.create(s, p1, NodeFactory.createLiteral("label "+(i%50), "en")));
+            g.add(Triple.create(s, p2, NodeFactory.createURI("http://example/subject/"+((i+1)%5000))));
+        }
+        return g;
+    }
+}
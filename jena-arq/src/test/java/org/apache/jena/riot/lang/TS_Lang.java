@@ -45,6 +45,7 @@ import org.junit.runners.Suite ;
     , TestParserFactory.class
     , TestPipedRDFIterators.class
     , TestCollectorStream.class
+    , TestParallelNTuplesParser.class
 })
 
 public class TS_Lang
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.*;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+
+public class TestParallelNTuplesParser {
+
+    // Small blocks so that the data is split many times and blank node labels are used across blocks.
+    private static final int blockSize = 200;
+
+    private static String dataNT(int n) {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append("_:b").append(i%7).append(" <http://example/p> <http://example/s").append(i).append("> .\n");
+            sb.append("<http://example/s").append(i).append("> <http://example/q> \"value ").append(i).append("\"@en .\n");
+            sb.append("<http://example/s").append(i).append("> <http://example/r> _:b").append((i+3)%7).append(" .\n");
+        }
+        return sb.toString();
+    }
+
+    private static String dataNQ(int n) {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append("_:b").append(i%7).append(" <http://example/p> \"").append(i).append("\"^^<http://www.w3.org/2001/XMLSchema#integer> <http://example/g").append(i%3).append("> .\n");
+            sb.append("<http://example/s").append(i).append("> <http://example/q> _:b").append((i+3)%7).append(" .\n");
+        }
+        return sb.toString();
+    }
+
+    private static InputStream input(String string) {
+        return new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ParserProfile profileAsGiven() {
+        return RiotLib.createParserProfile(RiotLib.factoryRDF(LabelToNode.createUseLabelAsGiven()),
+                                           ErrorHandlerFactory.errorHandlerExceptions(), false);
+    }
+
+    private static CollectorStreamRDF parseSequential(String data, Lang lang) {
+        CollectorStreamRDF collector = new CollectorStreamRDF();
+        RDFParser.fromString(data).lang(lang).labelToNode(LabelToNode.createUseLabelAsGiven()).parse(collector);
+        return collector;
+    }
+
+    private static CollectorStreamRDF parseParallel(String data, Lang lang, ParserProfile profile, boolean ordered) {
+        return parseParallel(data, lang, profile, ordered, false);
+    }
+
+    private static CollectorStreamRDF parseParallel(String data, Lang lang, ParserProfile profile, boolean ordered, boolean byteTokenizer) {
+        CollectorStreamRDF collector = new CollectorStreamRDF();
+        ParallelNTuplesParser.parse(input(data), lang, profile, collector, 4, ordered, byteTokenizer, blockSize);
+        return collector;
+    }
+
+    @Test public void parallel_ntriples_ordered() {
+        String data = dataNT(100);
+        List<Triple> expected = parseSequential(data, Lang.NTRIPLES).getTriples();
+        List<Triple> actual = parseParallel(data, Lang.NTRIPLES, profileAsGiven(), true).getTriples();
+        assertEquals(300, expected.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test public void parallel_ntriples_unordered() {
+        String data = dataNT(100);
+        List<Triple> expected = parseSequential(data, Lang.NTRIPLES).getTriples();
+        List<Triple> actual = parseParallel(data, Lang.NTRIPLES, profileAsGiven(), false).getTriples();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    @Test public void parallel_nquads_ordered() {
+        String data = dataNQ(100);
+        List<Quad> expected = parseSequential(data, Lang.NQUADS).getQuads();
+        List<Quad> actual = parseParallel(data, Lang.NQUADS, profileAsGiven(), true).getQuads();
+        assertEquals(200, expected.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test public void parallel_ntriples_bytes() {
+        String data = dataNT(100);
+        List<Triple> expected = parseSequential(data, Lang.NTRIPLES).getTriples();
+        List<Triple> actual = parseParallel(data, Lang.NTRIPLES, profileAsGiven(), true, true).getTriples();
+        assertEquals(expected, actual);
+    }
+
+    @Test public void parallel_nquads_bytes() {
+        String data = dataNQ(100);
+        List<Quad> expected = parseSequential(data, Lang.NQUADS).getQuads();
+        List<Quad> actual = parseParallel(data, Lang.NQUADS, profileAsGiven(), true, true).getQuads();
+        assertEquals(expected, actual);
+    }
+
+    @Test public void parallel_nquads_unordered() {
+        String data = dataNQ(100);
+        List<Quad> expected = parseSequential(data, Lang.NQUADS).getQuads();
+        List<Quad> actual = parseParallel(data, Lang.NQUADS, profileAsGiven(), false).getQuads();
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    // Blank node labels are scoped to the whole input, not the block.
+    @Test public void parallel_bnode_scope() {
+        String data = dataNT(100);
+        Graph expected = GraphFactory.createDefaultGraph();
+        RDFParser.fromString(data).lang(Lang.NTRIPLES).parse(expected);
+        Graph actual = GraphFactory.createDefaultGraph();
+        ParallelNTuplesParser.parse(input(data), Lang.NTRIPLES, RiotLib.dftProfile(), StreamRDFLib.graph(actual), 4, false, false, blockSize);
+
+        Set<Node> bnodes = new HashSet<>();
+        actual.find().forEachRemaining(t->{
+            if ( t.getSubject().isBlank() )
+                bnodes.add(t.getSubject());
+            if ( t.getObject().isBlank() )
+                bnodes.add(t.getObject());
+        });
+        assertEquals(7, bnodes.size());
+        assertTrue(expected.isIsomorphicWith(actual));
+    }
+
+    // A line longer than the block size.
+    @Test public void parallel_long_line() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<http://example/s> <http://example/p> \"");
+        for ( int i = 0 ; i < 5*blockSize ; i++ )
+            sb.append((char)('a'+i%26));
+        sb.append("\" .\n");
+        String data = dataNT(10)+sb+dataNT(10);
+        List<Triple> expected = parseSequential(data, Lang.NTRIPLES).getTriples();
+        List<Triple> actual = parseParallel(data, Lang.NTRIPLES, profileAsGiven(), true).getTriples();
+        assertEquals(expected, actual);
+    }
+
+    // No newline at the end of the input.
+    @Test public void parallel_no_final_newline() {
+        String data = dataNT(20)+"<http://example/s> <http://example/p> <http://example/o> .";
+        List<Triple> expected = parseSequential(data, Lang.NTRIPLES).getTriples();
+        List<Triple> actual = parseParallel(data, Lang.NTRIPLES, profileAsGiven(), true).getTriples();
+        assertEquals(expected, actual);
+    }
+
+    @Test public void parallel_empty() {
+        List<Triple> actual = parseParallel("", Lang.NTRIPLES, profileAsGiven(), true).getTriples();
+        assertTrue(actual.isEmpty());
+    }
+
+    // Errors report the line number in the whole input.
+    @Test public void parallel_error_line() {
+        String data = dataNT(20)+"<http://example/s> <http://example/p> .\n"+dataNT(20);
+        try {
+            parseParallel(data, Lang.NTRIPLES, profileAsGiven(), true);
+            fail("Expected a parse error");
+        } catch (RiotParseException ex) {
+            assertEquals(61, ex.getLine());
+        }
+    }
+
+    // Through RDFParser, using the context setting.
+    @Test public void parallel_rdfparser() {
+        String data = dataNQ(100);
+        DatasetGraph expected = DatasetGraphFactory.create();
+        RDFParser.fromString(data).lang(Lang.NQUADS).parse(expected);
+        DatasetGraph actual = DatasetGraphFactory.create();
+        RDFParser.source(input(data)).lang(Lang.NQUADS).parallel(3).parse(actual);
+        assertTrue(IsoMatcher.isomorphic(expected, actual));
+    }
+}
@@ -52,6 +52,7 @@ public class TestResultSetIO {
                        , RS_TSV
                        , RS_Thrift
                        , RS_Protobuf
+                       , RS_Columnar
         } ;
 
         List<Object[]> x = new ArrayList<>() ;
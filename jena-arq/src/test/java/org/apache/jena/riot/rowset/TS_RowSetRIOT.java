@@ -19,6 +19,7 @@
 package org.apache.jena.riot.rowset;
 
 import org.apache.jena.riot.rowset.rw.TestRowSetWriterCSV;
+import org.apache.jena.riot.rowset.rw.TestRowSetWriterJSON;
 import org.apache.jena.riot.rowset.rw.TestRowSetWriterTSV;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -26,7 +27,8 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestRowSetWriterCSV.class,
-    TestRowSetWriterTSV.class
+    TestRowSetWriterTSV.class,
+    TestRowSetWriterJSON.class
 })
 
 public class TS_RowSetRIOT { }
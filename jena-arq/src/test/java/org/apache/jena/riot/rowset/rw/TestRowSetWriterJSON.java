@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.rowset.rw;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.json.io.JSWriter;
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.rowset.RowSetReaderRegistry;
+import org.apache.jena.riot.rowset.RowSetWriter;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.sparql.sse.SSE;
+import org.junit.Test;
+
+public class TestRowSetWriterJSON {
+
+    private static Var x = Var.alloc("x");
+    private static Var y = Var.alloc("y");
+
+    @Test
+    public void json_layout_1() {
+        List<Binding> rows = List.of(
+            BindingFactory.binding(x, SSE.parseNode("<http://example/a>"), y, SSE.parseNode("'abc'@en")),
+            BindingFactory.binding(x, SSE.parseNode("123")));
+        String expected = StrUtils.strjoinNL
+            ("{ \"head\": {",
+             "    \"vars\": [ \"x\" , \"y\" ]",
+             "  } ,",
+             "  \"results\": {",
+             "    \"bindings\": [",
+             "      { ",
+             "        \"x\": { \"type\": \"uri\" , \"value\": \"http://example/a\" } ,",
+             "        \"y\": { \"type\": \"literal\" , \"xml:lang\": \"en\" , \"value\": \"abc\" }",
+             "      } ,",
+             "      { ",
+             "        \"x\": { \"type\": \"literal\" , \"datatype\": \"http://www.w3.org/2001/XMLSchema#integer\" , \"value\": \"123\" }",
+             "      }",
+             "    ]",
+             "  }",
+             "}",
+             "");
+        assertEquals(expected, write(List.of(x, y), rows));
+    }
+
+    @Test
+    public void json_layout_triple_term() {
+        List<Binding> rows = List.of(
+            BindingFactory.binding(x, NodeFactory.createTripleNode(SSE.parseTriple("(:s :p 'o')"))));
+        String expected = StrUtils.strjoinNL
+            ("{ \"head\": {",
+             "    \"vars\": [ \"x\" ]",
+             "  } ,",
+             "  \"results\": {",
+             "    \"bindings\": [",
+             "      { ",
+             "        \"x\": {",
+             "          \"type\": \"triple\" , ",
+             "          \"value\": {",
+             "            \"subject\":  { \"type\": \"uri\" , \"value\": \"http://example/s\" } ,",
+             "            \"predicate\": { \"type\": \"uri\" , \"value\": \"http://example/p\" } ,",
+             "            \"object\":   { \"type\": \"literal\" , \"value\": \"o\" }",
+             "          }",
+             "        }",
+             "      }",
+             "    ]",
+             "  }",
+             "}",
+             "");
+        assertEquals(expected, write(List.of(x), rows));
+    }
+
+    @Test
+    public void json_no_rows() {
+        String output = write(List.of(x), List.of());
+        assertTrue(output.contains("\"bindings\": ["));
+        roundTrip(List.of(x), List.of());
+    }
+
+    @Test
+    public void json_quote_1() {
+        testQuote("");
+        testQuote("abc");
+        testQuote("\"quoted\" \\ back");
+        testQuote("tab\tnl\ncr\rbs\bff\f");
+        testQuote("</script> a/b");
+        testQuote("\u0001\u001F\u007F\u0085\u009F");
+        testQuote("\u2000\u2028\u20AC\u2100");
+        testQuote("\u00E9 \u00FC \u4E2D\u6587");
+        testQuote("\uD83D\uDE00 emoji");
+    }
+
+    @Test
+    public void json_round_trip_large() {
+        // Enough output for several buffers, with repeated IRIs.
+        List<Binding> rows = new ArrayList<>();
+        for ( int i = 0 ; i < 5000 ; i++ ) {
+            Node s = NodeFactory.createURI("http://example/s"+(i%100));
+            Node o = ( i%3 == 0 )
+                ? NodeFactory.createLiteral("Value \"\u00E9\" "+i)
+                : NodeFactory.createBlankNode("b"+i);
+            rows.add(BindingFactory.binding(x, s, y, o));
+        }
+        roundTrip(List.of(x, y), rows);
+    }
+
+    /** Quoting matches {@link JSWriter}, both direct output and as bytes. */
+    private static void testQuote(String string) {
+        byte[] expected = JSWriter.outputQuotedString(string).getBytes(UTF_8);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        JSONResultsOutput out = new JSONResultsOutput(bout);
+        out.quote(string);
+        out.flush();
+        assertEquals(new String(expected, UTF_8), bout.toString(UTF_8));
+        assertEquals(new String(expected, UTF_8), new String(JSONResultsOutput.quoteBytes(string), UTF_8));
+    }
+
+    private static String write(List<Var> vars, List<Binding> rows) {
+        return new String(writeBytes(vars, rows), UTF_8);
+    }
+
+    private static byte[] writeBytes(List<Var> vars, List<Binding> rows) {
+        RowSetWriter writer = RowSetWriterJSON.factory.create(ResultSetLang.RS_JSON);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(out, RowSetStream.create(vars, rows.iterator()), null);
+        return out.toByteArray();
+    }
+
+    private static void roundTrip(List<Var> vars, List<Binding> rows) {
+        byte[] bytes = writeBytes(vars, rows);
+        RowSet rs1 = RowSetStream.create(vars, rows.iterator());
+        RowSet rs2 = RowSetReaderRegistry.getFactory(ResultSetLang.RS_JSON).create(ResultSetLang.RS_JSON)
+                .read(new ByteArrayInputStream(bytes), null);
+        assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+    }
+}
@@ -62,6 +62,10 @@ public class TestFormatRegistration
 
         add("TRDF",     x, RDFFormat.RDF_THRIFT, true, true) ;
         add("TRDF",     x, RDFFormat.RDF_THRIFT_VALUES, true, true) ;
+
+        add("RCOL",     x, RDFFormat.RDF_COLUMNAR, true, true) ;
+        add("RCOL",     x, RDFFormat.RDF_COLUMNAR_UNCOMPRESSED, true, true) ;
+        add("RCOL",     x, RDFFormat.RDF_COLUMNAR_DEFLATE, true, true) ;
         return x ;
     }
 
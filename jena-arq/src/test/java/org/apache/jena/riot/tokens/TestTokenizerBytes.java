@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens;
+
+import static org.apache.jena.riot.system.ErrorHandlerFactory.errorHandlerExceptions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.io.PeekReader;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+
+/** {@link TokenizerBytes} produces the same tokens as {@link TokenizerText}. */
+public class TestTokenizerBytes {
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Tokenizer tokenizer(String string) {
+        return TokenizerBytes.create(new ByteArrayInputStream(bytes(string)), errorHandlerExceptions());
+    }
+
+    private static List<Token> tokens(Tokenizer tokenizer) {
+        List<Token> tokens = new ArrayList<>();
+        tokenizer.forEachRemaining(tokens::add);
+        return tokens;
+    }
+
+    private static List<Token> tokensText(String string) {
+        PeekReader r = PeekReader.readString(string);
+        return tokens(TokenizerText.create().errorHandler(errorHandlerExceptions()).source(r).build());
+    }
+
+    private static void testSame(String string) {
+        List<Token> expected = tokensText(string);
+        List<Token> actual = tokens(tokenizer(string));
+        assertEquals(expected, actual);
+        for ( int i = 0 ; i < expected.size() ; i++ )
+            assertEquals(expected.get(i).getLine(), actual.get(i).getLine());
+    }
+
+    @Test public void tokenBytes_iri_1()     { testSame("<http://example/x>"); }
+    @Test public void tokenBytes_iri_2()     { testSame("  <>  "); }
+    @Test public void tokenBytes_iri_3()     { testSame("<abc\\u0041def>"); }
+    @Test public void tokenBytes_iri_4()     { testSame("<http://example/\u00E9\u4E2D>"); }
+
+    @Test public void tokenBytes_string_1()  { testSame("\"abc\""); }
+    @Test public void tokenBytes_string_2()  { testSame("'abc'"); }
+    @Test public void tokenBytes_string_3()  { testSame("\"\""); }
+    @Test public void tokenBytes_string_4()  { testSame("\"a\\tb\\n\\u0041\\U0001F600\""); }
+    @Test public void tokenBytes_string_5()  { testSame("\"caf\u00E9 \uD83D\uDE00\""); }
+    @Test public void tokenBytes_string_6()  { testSame("\"\"\"abc\ndef\"\"\""); }
+
+    @Test public void tokenBytes_literal_1() { testSame("\"abc\"@en"); }
+    @Test public void tokenBytes_literal_2() { testSame("\"abc\"@en-GB-1996"); }
+    @Test public void tokenBytes_literal_3() { testSame("\"123\"^^<http://www.w3.org/2001/XMLSchema#integer>"); }
+    @Test public void tokenBytes_literal_4() { testSame("\"123\" ^^ <http://www.w3.org/2001/XMLSchema#integer>"); }
+
+    @Test public void tokenBytes_bnode_1()   { testSame("_:b0"); }
+    @Test public void tokenBytes_bnode_2()   { testSame("_:a.b ."); }
+    @Test public void tokenBytes_bnode_3()   { testSame("_:abc."); }
+
+    @Test public void tokenBytes_triple_1()  { testSame("<http://example/s> <http://example/p> \"o\" .\n"); }
+    @Test public void tokenBytes_triple_2()  { testSame("# Comment\n_:b <http://example/p> <http://example/o> <http://example/g> . # More\r\n\n"); }
+    @Test public void tokenBytes_triple_3()  { testSame("<< <http://example/s> <http://example/p> 'o' >> <http://example/q> 'x' ."); }
+
+    @Test public void tokenBytes_bom() {
+        assertEquals(tokensText("<x>"), tokens(tokenizer("\uFEFF<x>")));
+    }
+
+    @Test public void tokenBytes_position() {
+        Tokenizer tokenizer = tokenizer("<x>\n  <y>");
+        Token t1 = tokenizer.next();
+        assertEquals(1, t1.getLine());
+        assertEquals(1, t1.getColumn());
+        Token t2 = tokenizer.next();
+        assertEquals(2, t2.getLine());
+        assertEquals(3, t2.getColumn());
+        assertFalse(tokenizer.hasNext());
+    }
+
+    // Repeated IRIs are the same string object.
+    @Test public void tokenBytes_iri_shared() {
+        List<Token> tokens = tokens(tokenizer("<http://example/p> <http://example/q> <http://example/p>"));
+        assertSame(tokens.get(0).getImage(), tokens.get(2).getImage());
+    }
+
+    // A token that crosses the end of the internal buffer.
+    @Test public void tokenBytes_large() {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 20000 ; i++ )
+            sb.append("<http://example/s").append(i).append("> <http://example/p> \"value caf\u00E9 ").append(i).append("\"@en .\n");
+        sb.append("<http://example/s> <http://example/p> \"");
+        for ( int i = 0 ; i < 300_000 ; i++ )
+            sb.append((char)('a'+i%26));
+        sb.append("\" .\n");
+        testSame(sb.toString());
+    }
+
+    @Test public void tokenBytes_bytebuffer() {
+        String string = "<http://example/s> <http://example/p> \"o\" .";
+        ByteBuffer bb = ByteBuffer.allocateDirect(100);
+        bb.put(bytes(string));
+        bb.flip();
+        assertEquals(tokensText(string), tokens(TokenizerBytes.create(bb, errorHandlerExceptions())));
+    }
+
+    @Test public void tokenBytes_byteArray() {
+        String string = "XX<http://example/s> <http://example/p> \"o\" .XX";
+        byte[] b = bytes(string);
+        Tokenizer tokenizer = TokenizerBytes.create(b, 2, b.length-4, errorHandlerExceptions());
+        assertEquals(tokensText(string.substring(2, string.length()-2)), tokens(tokenizer));
+    }
+
+    @Test(expected=RiotException.class)
+    public void tokenBytes_bad_iri_1()       { tokens(tokenizer("<abc def>")); }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_iri_2()       { tokens(tokenizer("<abc<def>")); }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_string_1()    { tokens(tokenizer("\"abc\ndef\"")); }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_string_2()    { tokens(tokenizer("\"abc")); }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_escape()      { tokens(tokenizer("\"\\q\"")); }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_langtag()     { tokens(tokenizer("\"abc\"@en-")); }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_utf8() {
+        byte[] b = { '"', (byte)0xC3, '"' };
+        tokens(TokenizerBytes.create(b, 0, b.length, errorHandlerExceptions()));
+    }
+
+    @Test public void tokenBytes_rdfparser() {
+        String data = StringsNQ;
+        DatasetGraph expected = DatasetGraphFactory.create();
+        RDFParser.fromString(data).lang(Lang.NQUADS).parse(expected);
+        DatasetGraph actual = DatasetGraphFactory.create();
+        RDFParser.source(new ByteArrayInputStream(bytes(data))).lang(Lang.NQUADS).tokenizerBytes(true).parse(StreamRDFLib.dataset(actual));
+        assertTrue(IsoMatcher.isomorphic(expected, actual));
+    }
+
+    private static final String StringsNQ = String.join("\n",
+        "<http://example/s> <http://example/p> <http://example/o> .",
+        "_:b <http://example/p> \"abc\"@en <http://example/g> .",
+        "_:b <http://example/q> \"1\"^^<http://www.w3.org/2001/XMLSchema#integer> <http://example/g> .",
+        "<http://example/s> <http://example/r> \"caf\\u00E9\\n\" _:g .",
+        "");
+}
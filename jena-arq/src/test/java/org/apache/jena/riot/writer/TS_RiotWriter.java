@@ -30,6 +30,7 @@ import org.junit.runners.Suite.SuiteClasses ;
     , TestRiotWriterDataset.class
     , TestRDFJSON.class
     , TestTurtleWriter.class
+    , TestWriterBlocksParallel.class
     , TestTriXWriter.class
     , TestWriteRDFXML.class
 })
@@ -45,6 +45,7 @@ public class TestRiotWriterDataset extends AbstractWriterTest
             , { RDFFormat.TRIG }
             , { RDFFormat.TRIG_PRETTY }
             , { RDFFormat.TRIG_BLOCKS }
+            , { RDFFormat.TRIG_BLOCKS_PARALLEL }
             , { RDFFormat.TRIG_FLAT }
             , { RDFFormat.JSONLD }
             , { RDFFormat.JSONLD_PRETTY }
@@ -56,6 +57,9 @@ public class TestRiotWriterDataset extends AbstractWriterTest
             , { RDFFormat.RDF_PROTO_VALUES }
             , { RDFFormat.RDF_THRIFT }
             , { RDFFormat.RDF_THRIFT_VALUES }
+            , { RDFFormat.RDF_COLUMNAR }
+            , { RDFFormat.RDF_COLUMNAR_UNCOMPRESSED }
+            , { RDFFormat.RDF_COLUMNAR_DEFLATE }
             , { RDFFormat.TRIX }
         });
     }
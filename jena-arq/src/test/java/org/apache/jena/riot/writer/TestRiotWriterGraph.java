@@ -50,6 +50,7 @@ public class TestRiotWriterGraph extends AbstractWriterTest
             , { RDFFormat.TURTLE }
             , { RDFFormat.TURTLE_PRETTY }
             , { RDFFormat.TURTLE_BLOCKS }
+            , { RDFFormat.TURTLE_BLOCKS_PARALLEL }
             , { RDFFormat.TURTLE_FLAT }
             , { RDFFormat.RDFXML }
             , { RDFFormat.RDFXML_PRETTY }
@@ -72,6 +73,7 @@ public class TestRiotWriterGraph extends AbstractWriterTest
             , { RDFFormat.TRIG }
             , { RDFFormat.TRIG_PRETTY }
             , { RDFFormat.TRIG_BLOCKS }
+            , { RDFFormat.TRIG_BLOCKS_PARALLEL }
             , { RDFFormat.TRIG_FLAT }
             , { RDFFormat.NQUADS_UTF8}
             , { RDFFormat.NQUADS_ASCII}
@@ -81,6 +83,9 @@ public class TestRiotWriterGraph extends AbstractWriterTest
             , { RDFFormat.RDF_PROTO_VALUES }
             , { RDFFormat.RDF_THRIFT }
             , { RDFFormat.RDF_THRIFT_VALUES }
+            , { RDFFormat.RDF_COLUMNAR }
+            , { RDFFormat.RDF_COLUMNAR_UNCOMPRESSED }
+            , { RDFFormat.RDF_COLUMNAR_DEFLATE }
 
             , { RDFFormat.TRIX }
         });
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.riot.*;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+
+public class TestWriterBlocksParallel {
+
+    private static String dataTTL(int n, boolean bnodes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        sb.append("PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n");
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append(":s").append(i).append(" rdf:type :T ; :p ").append(i).append(" ; :q \"value ").append(i).append("\"@en");
+            if ( bnodes )
+                sb.append(" ; :r _:b").append(i%5);
+            sb.append(" .\n");
+        }
+        return sb.toString();
+    }
+
+    private static String dataTriG(int n) {
+        StringBuilder sb = new StringBuilder(dataTTL(n, false));
+        for ( int g = 0 ; g < 3 ; g++ ) {
+            sb.append("<http://example/g").append(g).append("> {\n");
+            for ( int i = 0 ; i < n ; i++ )
+                sb.append("<http://example/s").append(i).append("> <http://example/p> ").append(g*n+i).append(" .\n");
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
+    private static Graph graph(String data) {
+        Graph graph = GraphFactory.createDefaultGraph();
+        RDFParser.fromString(data).lang(Lang.TTL).parse(graph);
+        return graph;
+    }
+
+    private static DatasetGraph dataset(String data) {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        RDFParser.fromString(data).lang(Lang.TRIG).parse(dsg);
+        return dsg;
+    }
+
+    private static Context threads(int n) {
+        Context cxt = new Context();
+        cxt.set(RIOT.symTurtleParallelThreads, n);
+        return cxt;
+    }
+
+    // Small chunks so the data is split many times.
+    private static String writeGraph(Graph graph, int threads, int chunkSize) {
+        StringWriter sw = new StringWriter();
+        PrefixMap pmap = PrefixMapFactory.create(graph.getPrefixMapping());
+        new WriterBlocksParallel<>(WriterBlocksParallel.output(sw), pmap, null, threads(threads), chunkSize)
+            .write(graph.find(), null);
+        return sw.toString();
+    }
+
+    private static String writeDataset(DatasetGraph dsg, int threads, int chunkSize) {
+        StringWriter sw = new StringWriter();
+        PrefixMap pmap = PrefixMapFactory.create(dsg.getDefaultGraph().getPrefixMapping());
+        new WriterBlocksParallel<>(WriterBlocksParallel.output(sw), pmap, null, threads(threads), chunkSize)
+            .write(dsg.getDefaultGraph().find(), dsg.findNG(null, null, null, null));
+        return sw.toString();
+    }
+
+    // Without blank nodes, the output is the same as the single threaded blocks writer.
+    @Test public void parallel_turtle_same_as_blocks() {
+        Graph graph = graph(dataTTL(100, false));
+        String expected = RDFWriter.source(graph).format(RDFFormat.TURTLE_BLOCKS).asString();
+        assertEquals(expected, RDFWriter.source(graph).format(RDFFormat.TURTLE_BLOCKS_PARALLEL).asString());
+        assertEquals(writeGraph(graph, 1, 1000), writeGraph(graph, 4, 7));
+    }
+
+    @Test public void parallel_trig_same_as_blocks() {
+        DatasetGraph dsg = dataset(dataTriG(50));
+        String expected = RDFWriter.source(dsg).format(RDFFormat.TRIG_BLOCKS).asString();
+        assertEquals(expected, RDFWriter.source(dsg).format(RDFFormat.TRIG_BLOCKS_PARALLEL).asString());
+        assertEquals(writeDataset(dsg, 1, 1000), writeDataset(dsg, 4, 7));
+    }
+
+    // The output does not depend on the number of threads.
+    @Test public void parallel_turtle_deterministic() {
+        Graph graph = graph(dataTTL(100, true));
+        String x1 = writeGraph(graph, 1, 7);
+        String x2 = writeGraph(graph, 3, 7);
+        String x3 = writeGraph(graph, 8, 7);
+        assertEquals(x1, x2);
+        assertEquals(x1, x3);
+    }
+
+    @Test public void parallel_turtle_bnodes() {
+        Graph graph = graph(dataTTL(100, true));
+        String output = writeGraph(graph, 4, 7);
+        Graph graph2 = graph(output);
+        assertTrue(graph.isIsomorphicWith(graph2));
+    }
+
+    @Test public void parallel_trig_roundtrip() {
+        DatasetGraph dsg = dataset(dataTriG(50));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, dsg, RDFFormat.TRIG_BLOCKS_PARALLEL);
+        DatasetGraph dsg2 = dataset(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(IsoMatcher.isomorphic(dsg, dsg2));
+    }
+
+    @Test public void parallel_empty() {
+        assertEquals("", writeGraph(GraphFactory.createDefaultGraph(), 2, 7));
+    }
+}
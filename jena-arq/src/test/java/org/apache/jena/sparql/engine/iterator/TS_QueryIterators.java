@@ -30,6 +30,7 @@ import org.junit.runners.Suite ;
     , TestDataBagDistinctOrder.class
     , TestCancelDistinct.class
     , TestSortedDataBagCancellation.class
+    , TestQueryIterGroup.class
 })
 public class TS_QueryIterators {
 
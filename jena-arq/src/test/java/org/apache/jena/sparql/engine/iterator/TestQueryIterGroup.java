@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.*;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory;
+import org.apache.jena.sparql.expr.ExprAggregator;
+import org.apache.jena.sparql.expr.ExprVar;
+import org.apache.jena.sparql.expr.aggregate.AggCount;
+import org.apache.jena.sparql.expr.aggregate.AggSum;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.junit.Test;
+
+/** GROUP BY in memory, spilled to disk, and on grouped input. */
+public class TestQueryIterGroup {
+    private static final String PREFIX = "PREFIX : <http://example/>\n";
+    private static Model data = data();
+
+    private static Model data() {
+        Graph graph = GraphFactory.createDefaultGraph();
+        for ( int i = 0 ; i < 600 ; i++ ) {
+            Node s = SSE.parseNode("<http://example/s"+(i%150)+">");
+            graph.add(s, SSE.parseNode(":p"), NodeFactory.createLiteral(Integer.toString(i), XSDDatatype.XSDinteger));
+            graph.add(s, SSE.parseNode(":q"), SSE.parseNode("'v"+(i%3)+"'"));
+        }
+        // Errors for SUM and AVG in some groups.
+        for ( int i = 0 ; i < 150 ; i += 20 )
+            graph.add(SSE.parseNode("<http://example/s"+i+">"), SSE.parseNode(":p"), SSE.parseNode("'abc'"));
+        return ModelFactory.createModelForGraph(graph);
+    }
+
+    @Test public void group_mergeable() {
+        test("SELECT ?s (COUNT(*) AS ?c) (COUNT(?o) AS ?co) (SUM(?o) AS ?sum) (AVG(?o) AS ?avg) (MIN(?o) AS ?min) (MAX(?o) AS ?max) { ?s :p ?o } GROUP BY ?s");
+    }
+
+    @Test public void group_mergeable_expr() {
+        test("SELECT ?k (COUNT(*) AS ?c) (SUM(?o) AS ?sum) { ?s :p ?o } GROUP BY (STR(?s) AS ?k)");
+    }
+
+    @Test public void group_not_mergeable() {
+        test("SELECT ?s (COUNT(DISTINCT ?o) AS ?c) (SUM(?o) AS ?sum) (GROUP_CONCAT(DISTINCT ?v; separator=',') AS ?vs) { ?s :p ?o ; :q ?v } GROUP BY ?s");
+    }
+
+    @Test public void group_no_aggregates() {
+        test("SELECT ?s ?v { ?s :q ?v } GROUP BY ?s ?v");
+    }
+
+    @Test public void group_having() {
+        test("SELECT ?s (MAX(?o) AS ?max) { ?s :p ?o } GROUP BY ?s HAVING (COUNT(*) > 4)");
+    }
+
+    @Test public void group_no_group_vars() {
+        test("SELECT (COUNT(*) AS ?c) (SUM(?o) AS ?sum) { ?s :p ?o }");
+    }
+
+    @Test public void group_no_rows() {
+        test("SELECT ?s (COUNT(*) AS ?c) { ?s :noSuchProperty ?o } GROUP BY ?s");
+        test("SELECT (COUNT(*) AS ?c) (SUM(?o) AS ?sum) { ?s :noSuchProperty ?o }");
+    }
+
+    /** Same results in memory, spilled, and spilled with partitions aggregated in parallel. */
+    private static void test(String queryString) {
+        Query query = QueryFactory.create(PREFIX+queryString);
+        ResultSetRewindable expected = exec(query, -1, 1);
+        ResultSetRewindable spilled = exec(query, 10, 1);
+        ResultSetRewindable parallel = exec(query, 10, 4);
+        assertTrue(ResultSetCompare.equalsByTerm(expected, spilled));
+        expected.reset();
+        assertTrue(ResultSetCompare.equalsByTerm(expected, parallel));
+    }
+
+    private static ResultSetRewindable exec(Query query, long threshold, int parallelism) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, data) ) {
+            if ( threshold >= 0 )
+                qExec.getContext().set(ARQ.spillToDiskThreshold, threshold);
+            qExec.getContext().set(ARQ.groupParallelism, parallelism);
+            return ResultSetFactory.makeRewindable(qExec.execSelect());
+        }
+    }
+
+    private static Var vKey = Var.alloc("k");
+    private static Var vVal = Var.alloc("x");
+    private static Var vCount = Var.alloc("count");
+    private static Var vSum = Var.alloc("sum");
+
+    private static VarExprList groupVars() {
+        VarExprList vars = new VarExprList();
+        vars.add(vKey);
+        return vars;
+    }
+
+    private static ExecutionContext execCxt(long threshold) {
+        Context cxt = new Context();
+        if ( threshold >= 0 )
+            cxt.set(ARQ.spillToDiskThreshold, threshold);
+        return new ExecutionContext(cxt, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null);
+    }
+
+    private static List<ExprAggregator> countAndSum() {
+        List<ExprAggregator> aggregators = new ArrayList<>();
+        aggregators.add(new ExprAggregator(vCount, new AggCount()));
+        aggregators.add(new ExprAggregator(vSum, new AggSum(new ExprVar(vVal))));
+        return aggregators;
+    }
+
+    private static Binding row(int key, int value) {
+        return BindingFactory.binding(vKey, NodeFactory.createLiteral("k"+key),
+                                      vVal, NodeFactory.createLiteral(Integer.toString(value), XSDDatatype.XSDinteger));
+    }
+
+    @Test public void group_table_spill() {
+        VarExprList groupVars = groupVars();
+        GroupTable table = new GroupTable(groupVars, countAndSum(), execCxt(5));
+        for ( int i = 0 ; i < 100 ; i++ )
+            table.add(row(i%20, i));
+        assertTrue(table.isSpilled());
+        List<Binding> results = new ArrayList<>();
+        table.results().forEachRemaining(results::add);
+        assertEquals(20, results.size());
+        for ( Binding b : results ) {
+            int k = Integer.parseInt(b.get(vKey).getLiteralLexicalForm().substring(1));
+            assertEquals(5, Integer.parseInt(b.get(vCount).getLiteralLexicalForm()));
+            // k + (k+20) + ... + (k+80)
+            assertEquals(5*k+200, Integer.parseInt(b.get(vSum).getLiteralLexicalForm()));
+        }
+    }
+
+    @Test public void group_table_no_spill() {
+        GroupTable table = new GroupTable(groupVars(), countAndSum(), execCxt(-1));
+        for ( int i = 0 ; i < 100 ; i++ )
+            table.add(row(i%20, i));
+        assertFalse(table.isSpilled());
+    }
+
+    @Test public void group_sorted() {
+        List<Binding> rows = new ArrayList<>();
+        for ( int k = 0 ; k < 10 ; k++ ) {
+            for ( int j = 0 ; j <= k ; j++ )
+                rows.add(row(k, j));
+        }
+        QueryIterator input = QueryIterPlainWrapper.create(rows.iterator());
+        QueryIterator qIter = new QueryIterGroupSorted(input, groupVars(), countAndSum(), execCxt(-1));
+        int k = 0;
+        while(qIter.hasNext()) {
+            Binding b = qIter.next();
+            assertEquals("k"+k, b.get(vKey).getLiteralLexicalForm());
+            assertEquals(k+1, Integer.parseInt(b.get(vCount).getLiteralLexicalForm()));
+            assertEquals(k*(k+1)/2, Integer.parseInt(b.get(vSum).getLiteralLexicalForm()));
+            k++;
+        }
+        qIter.close();
+        assertEquals(10, k);
+    }
+
+    @Test public void group_sorted_no_rows() {
+        QueryIterator input = QueryIterPlainWrapper.create(new ArrayList<Binding>().iterator());
+        // No group variables: one row.
+        QueryIterator qIter1 = new QueryIterGroupSorted(input, new VarExprList(), countAndSum(), execCxt(-1));
+        assertTrue(qIter1.hasNext());
+        Binding b = qIter1.next();
+        assertEquals("0", b.get(vCount).getLiteralLexicalForm());
+        assertFalse(qIter1.hasNext());
+        qIter1.close();
+
+        // Group variables: no rows.
+        QueryIterator input2 = QueryIterPlainWrapper.create(new ArrayList<Binding>().iterator());
+        QueryIterator qIter2 = new QueryIterGroupSorted(input2, groupVars(), countAndSum(), execCxt(-1));
+        assertFalse(qIter2.hasNext());
+        qIter2.close();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.algebra.TableFactory ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.util.Context ;
+import org.junit.Test ;
+
+/** Hash join where the probe table is spilled to disk. */
+public class TestHashJoinSpill extends AbstractTestInnerJoin {
+    // Zero: spill all the partitions, including partition 0.
+    private long threshold = 0 ;
+
+    static ExecutionContext execCxt(long threshold) {
+        Context context = new Context() ;
+        context.set(ARQ.spillToDiskThreshold, threshold) ;
+        return new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+
+    @Override
+    public QueryIterator join(JoinKey joinKey, Table left, Table right, ExprList conditions) {
+        ExecutionContext execCxt = execCxt(threshold) ;
+        return Join.hashJoin(joinKey, left.iterator(execCxt), right.iterator(execCxt), execCxt) ;
+    }
+
+    // Enough rows for a partition to stay in memory after the first spill.
+    static Table tableLarge(int N, int mod, String var, boolean noKeyRows) {
+        Var a = Var.alloc("a") ;
+        Var x = Var.alloc(var) ;
+        Table table = TableFactory.create() ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            if ( noKeyRows && i % 25 == 0 )
+                table.addBinding(BindingFactory.binding(x, NodeFactory.createLiteral("nokey"+i))) ;
+            else
+                table.addBinding(BindingFactory.binding(a, NodeFactory.createLiteral("v"+(i%mod)),
+                                                        x, NodeFactory.createLiteral(var+i))) ;
+        }
+        return table ;
+    }
+
+    @Test public void join_spill_large_1() {
+        Table left = tableLarge(250, 70, "b", false) ;
+        Table right = tableLarge(150, 90, "c", false) ;
+        Table expected = TableFactory.create(Join.nestedLoopJoin(left.iterator(null), right.iterator(null), null)) ;
+        assertTrue(expected.size() > 0) ;
+        threshold = 50 ;
+        testJoin("a", left, right, expected) ;
+    }
+
+    @Test public void join_spill_large_2() {
+        Table left = tableLarge(250, 70, "b", true) ;
+        Table right = tableLarge(150, 90, "c", true) ;
+        Table expected = TableFactory.create(Join.nestedLoopJoin(left.iterator(null), right.iterator(null), null)) ;
+        threshold = 50 ;
+        testJoin("a", left, right, expected) ;
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.algebra.TableFactory ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.junit.Test ;
+
+/** Left outer join where the right hand side probe table is spilled to disk */
+public class TestHashLeftJoin_RightSpill extends AbstractTestLeftJoin {
+    private long threshold = 0 ;
+
+    @Override
+    public QueryIterator join(JoinKey joinKey, Table left, Table right, ExprList conditions) {
+        ExecutionContext execCxt = TestHashJoinSpill.execCxt(threshold) ;
+        return QueryIterHashLeftJoin_Right.create(joinKey, left.iterator(execCxt), right.iterator(execCxt), conditions, execCxt) ;
+    }
+
+    @Test public void leftjoin_spill_large_1() {
+        Table left = TestHashJoinSpill.tableLarge(250, 70, "b", true) ;
+        Table right = TestHashJoinSpill.tableLarge(150, 90, "c", true) ;
+        Table expected = TableFactory.create(Join.nestedLoopLeftJoin(left.iterator(null), right.iterator(null), null, null)) ;
+        threshold = 50 ;
+        testJoin("a", left, right, expected) ;
+    }
+
+    @Test public void leftjoin_spill_large_2() {
+        Table left = TestHashJoinSpill.tableLarge(250, 70, "b", false) ;
+        Table right = TestHashJoinSpill.tableLarge(150, 90, "c", false) ;
+        Table expected = TableFactory.create(Join.nestedLoopLeftJoin(left.iterator(null), right.iterator(null), null, null)) ;
+        threshold = 50 ;
+        testJoin("a", left, right, expected) ;
+    }
+}
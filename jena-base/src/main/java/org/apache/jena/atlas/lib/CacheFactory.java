@@ -31,6 +31,16 @@ public class CacheFactory {
         return new CacheGuava<>(maxSize) ;
     }
 
+    /**
+     * Create a cache which has space for up to a certain number of objects,
+     * using CLOCK replacement. Lookups do not take a lock so this cache is
+     * suitable for heavily concurrent read access.
+     * The cache returns null for a cache miss.
+     */
+    public static <Key, Value> Cache<Key, Value> createClockCache(int maxSize) {
+        return new CacheClock<>(maxSize) ;
+    }
+
     /** Create a null cache */
     public static <Key, Value> Cache<Key, Value> createNullCache() {
         return new Cache0<>() ;
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.lib.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import org.apache.jena.atlas.AtlasException;
+import org.apache.jena.atlas.lib.Cache;
+
+/**
+ * A bounded, concurrent cache with CLOCK (second chance) replacement.
+ * <p>
+ * The cache is split into independent segments, chosen by key hash. A lookup
+ * ({@link #getIfPresent}) takes no lock: it is a read of a
+ * {@link ConcurrentHashMap} and, on a hit, sets the entry's "referenced" bit.
+ * Insertion and removal lock only the segment of the key. Eviction sweeps the
+ * clock hand of the segment, clearing referenced bits until an unreferenced
+ * entry is found.
+ * <p>
+ * The drop handler is called when an entry is evicted to make space, not on
+ * explicit removal.
+ */
+final public class CacheClock<K, V> implements Cache<K, V> {
+    // Small caches are one segment so they behave as a single CLOCK cache.
+    private static final int MinSegmentSize = 16;
+    private static final int MaxSegments    = 64;
+
+    private final Segment<K,V>[] segments;
+    private final int mask;
+    private BiConsumer<K, V> dropHandler = null;
+
+    public CacheClock(int maxSize) {
+        this(maxSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CacheClock(int maxSize, int concurrency) {
+        if ( maxSize <= 0 )
+            throw new IllegalArgumentException("CacheClock: size must be positive: "+maxSize);
+        int n = Math.max(1, Math.min(4*concurrency, maxSize/MinSegmentSize));
+        n = Math.min(Integer.highestOneBit(n), MaxSegments);
+        @SuppressWarnings("unchecked")
+        Segment<K,V>[] x = new Segment[n];
+        int base = maxSize / n;
+        int extra = maxSize % n;
+        for ( int i = 0 ; i < n ; i++ )
+            x[i] = new Segment<>(this, i < extra ? base+1 : base);
+        this.segments = x;
+        this.mask = n-1;
+    }
+
+    private Segment<K,V> segment(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & mask];
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return segment(key).map.containsKey(key);
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        Entry<K,V> e = segment(key).map.get(key);
+        if ( e == null )
+            return null;
+        // Avoid a write to shared memory if already set.
+        if ( ! e.referenced )
+            e.referenced = true;
+        return e.value;
+    }
+
+    @Override
+    public V getOrFill(K key, Callable<V> callable) {
+        V value = getIfPresent(key);
+        if ( value != null )
+            return value;
+        Segment<K,V> seg = segment(key);
+        synchronized(seg) {
+            Entry<K,V> e = seg.map.get(key);
+            if ( e != null )
+                return e.value;
+            try { value = callable.call(); }
+            catch (RuntimeException ex) { throw ex; }
+            catch (Exception ex) {
+                throw new AtlasException("Exception on cache fill", ex);
+            }
+            if ( value != null )
+                seg.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V thing) {
+        Segment<K,V> seg = segment(key);
+        synchronized(seg) {
+            if ( thing == null )
+                seg.remove(key);
+            else
+                seg.put(key, thing);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        Segment<K,V> seg = segment(key);
+        synchronized(seg) {
+            seg.remove(key);
+        }
+    }
+
+    /** {@inheritDoc}
+     * <p>
+     * This is a snapshot of the keys at the time of the call.
+     */
+    @Override
+    public Iterator<K> keys() {
+        List<K> x = new ArrayList<>();
+        for ( Segment<K,V> seg : segments )
+            x.addAll(seg.map.keySet());
+        return x.iterator();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for ( Segment<K,V> seg : segments ) {
+            if ( ! seg.map.isEmpty() )
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for ( Segment<K,V> seg : segments ) {
+            synchronized(seg) {
+                seg.clear();
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        long x = 0;
+        for ( Segment<K,V> seg : segments )
+            x += seg.map.size();
+        return x;
+    }
+
+    @Override
+    public void setDropHandler(BiConsumer<K, V> dropHandler) {
+        this.dropHandler = dropHandler;
+    }
+
+    private static final class Entry<K,V> {
+        final K key;
+        final V value;
+        volatile boolean referenced = false;
+        // Position in the clock ring. Guarded by the segment lock.
+        int slot;
+
+        Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /** A segment: lock-free map for lookup, clock ring for replacement (under the segment lock). */
+    private static final class Segment<K,V> {
+        final CacheClock<K,V> cache;
+        final ConcurrentHashMap<K, Entry<K,V>> map;
+        final Entry<K,V>[] ring;
+        int size = 0;
+        int hand = 0;
+
+        Segment(CacheClock<K,V> cache, int capacity) {
+            this.cache = cache;
+            this.map = new ConcurrentHashMap<>(2*capacity);
+            @SuppressWarnings("unchecked")
+            Entry<K,V>[] x = new Entry[capacity];
+            this.ring = x;
+        }
+
+        void put(K key, V value) {
+            Entry<K,V> e = new Entry<>(key, value);
+            Entry<K,V> old = map.get(key);
+            if ( old != null ) {
+                // Replace in place, keeping the reference state.
+                e.referenced = old.referenced;
+                e.slot = old.slot;
+                ring[e.slot] = e;
+                map.put(key, e);
+                return;
+            }
+            if ( size < ring.length ) {
+                e.slot = size;
+                ring[size++] = e;
+                map.put(key, e);
+                return;
+            }
+            // Full - sweep for a victim. Terminates within two rounds.
+            for ( ;; ) {
+                Entry<K,V> candidate = ring[hand];
+                if ( candidate.referenced ) {
+                    candidate.referenced = false;
+                    advance();
+                    continue;
+                }
+                map.remove(candidate.key);
+                e.slot = hand;
+                ring[hand] = e;
+                map.put(key, e);
+                advance();
+                BiConsumer<K,V> handler = cache.dropHandler;
+                if ( handler != null )
+                    handler.accept(candidate.key, candidate.value);
+                return;
+            }
+        }
+
+        void remove(K key) {
+            Entry<K,V> e = map.remove(key);
+            if ( e == null )
+                return;
+            // Move the last entry into the vacated slot.
+            int last = size-1;
+            if ( e.slot != last ) {
+                Entry<K,V> moved = ring[last];
+                moved.slot = e.slot;
+                ring[e.slot] = moved;
+            }
+            ring[last] = null;
+            size--;
+            if ( hand >= size )
+                hand = 0;
+        }
+
+        void clear() {
+            map.clear();
+            for ( int i = 0 ; i < size ; i++ )
+                ring[i] = null;
+            size = 0;
+            hand = 0;
+        }
+
+        private void advance() {
+            hand++;
+            if ( hand >= size )
+                hand = 0;
+        }
+    }
+}
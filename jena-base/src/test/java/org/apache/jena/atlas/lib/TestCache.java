@@ -59,6 +59,16 @@ public class TestCache
         }
     ;
 
+    private static CacheMaker<Integer, Integer> clock =
+        new CacheMaker<Integer, Integer>()
+        {
+        @Override
+        public Cache<Integer, Integer> make(int size) { return CacheFactory.createClockCache(size) ; }
+        @Override
+        public String name() { return "Clock" ; }
+        }
+    ;
+
     @Parameters
     public static Collection<Object[]> cacheMakers()
     {
@@ -69,6 +79,9 @@ public class TestCache
             , { standard , 10 }
             , { standard , 2 }
             , { standard , 1 }
+            , { clock , 10 }
+            , { clock , 2 }
+            , { clock , 1 }
         } ) ; 
     }
 
@@ -20,8 +20,10 @@ package org.apache.jena.atlas.lib;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.concurrent.Callable ;
+import java.util.concurrent.atomic.AtomicInteger ;
 
 import org.junit.Test ;
 
@@ -79,5 +81,32 @@ public class TestCache2
         assertEquals("10", str1) ;
     }
 
+    // Clock cache : second chance for a referenced entry.
+    @Test public void cacheClock_1()
+    {
+        Cache<Integer, String> cache = CacheFactory.createClockCache(2) ;
+        cache.put(1, "1") ;
+        cache.put(2, "2") ;
+        cache.getIfPresent(1) ;
+        cache.put(3, "3") ;
+        assertEquals(2, cache.size()) ;
+        assertEquals("1", cache.getIfPresent(1)) ;
+        assertNull(cache.getIfPresent(2)) ;
+        assertEquals("3", cache.getIfPresent(3)) ;
+    }
 
+    // Clock cache : drop handler on eviction.
+    @Test public void cacheClock_2()
+    {
+        Cache<Integer, String> cache = CacheFactory.createClockCache(100) ;
+        AtomicInteger dropped = new AtomicInteger(0) ;
+        cache.setDropHandler((k,v)->dropped.incrementAndGet()) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            cache.put(i, Integer.toString(i)) ;
+        assertTrue(cache.size() <= 100) ;
+        assertEquals(1000-cache.size(), dropped.get()) ;
+        cache.remove(999) ;
+        assertNull(cache.getIfPresent(999)) ;
+        assertEquals(1000-cache.size()-1, dropped.get()) ;
+    }
 }
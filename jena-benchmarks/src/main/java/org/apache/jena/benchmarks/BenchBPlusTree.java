@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * In-memory B+Tree with records of the shape of a TDB2 triple index
+ * (three 8 byte keys, no value): insert, find and range iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchBPlusTree {
+    private static final int RecordLength = 3*Long.BYTES;
+    /** Records read by each range scan. */
+    private static final int RangeLength = 1000;
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"100"})
+    public int order;
+
+    private RecordFactory recordFactory;
+    private Record[] records;
+    private BPlusTree bpt;
+
+    @Setup
+    public void setup() {
+        recordFactory = new RecordFactory(RecordLength, 0);
+        Random random = new Random(0x42505442L);
+        records = new Record[size];
+        for ( int i = 0 ; i < size ; i++ ) {
+            byte[] key = new byte[RecordLength];
+            Bytes.setLong(random.nextLong(), key, 0);
+            Bytes.setLong(random.nextInt(1000), key, 8);
+            Bytes.setLong(i, key, 16);
+            records[i] = recordFactory.create(key);
+        }
+        bpt = build();
+    }
+
+    private BPlusTree build() {
+        BPlusTree tree = BPlusTreeFactory.makeMem(order, RecordLength, 0);
+        tree.nonTransactional();
+        for ( Record r : records )
+            tree.insert(r);
+        return tree;
+    }
+
+    @Benchmark
+    public BPlusTree insert() {
+        return build();
+    }
+
+    @Benchmark
+    public int find() {
+        int found = 0;
+        for ( Record r : records ) {
+            if ( bpt.find(r) != null )
+                found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public long range() {
+        long count = 0;
+        // Scans from 100 start points.
+        int step = Math.max(1, size/100);
+        for ( int i = 0 ; i < size ; i += step ) {
+            Iterator<Record> iter = bpt.iterator(records[i], null);
+            for ( int j = 0 ; j < RangeLength && iter.hasNext() ; j++ ) {
+                iter.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long scan() {
+        long count = 0;
+        Iterator<Record> iter = bpt.iterator();
+        while ( iter.hasNext() ) {
+            iter.next();
+            count++;
+        }
+        return count;
+    }
+}
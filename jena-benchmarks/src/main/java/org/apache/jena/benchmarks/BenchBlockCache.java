@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.dboe.base.block.Block;
+import org.apache.jena.dboe.base.block.BlockCacheMode;
+import org.apache.jena.dboe.base.block.BlockMgr;
+import org.apache.jena.dboe.base.block.BlockMgrFactory;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Concurrent block reads from a direct-mode file through each kind of block cache
+ * ({@link BlockCacheMode}): the synchronized LRU cache and the concurrent cache.
+ * The read cache holds all the blocks, so after warmup every read is a cache hit
+ * and the benchmark measures contention on the cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchBlockCache {
+    private static final int BlockSize = 8*1024;
+
+    @Param({"lru", "concurrent"})
+    public BlockCacheMode cacheMode;
+
+    @Param({"4000"})
+    public int blocks;
+
+    private File file;
+    private BlockMgr blockMgr;
+    private long[] ids;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("bench-block-cache", ".dat");
+        file.delete();
+        blockMgr = BlockMgrFactory.createStdFile(file.getPath(), cacheMode, BlockSize, blocks, 100);
+        ids = new long[blocks];
+        blockMgr.beginUpdate();
+        for ( int i = 0 ; i < blocks ; i++ ) {
+            Block block = blockMgr.allocate(BlockSize);
+            block.getByteBuffer().putInt(0, i);
+            ids[i] = block.getId();
+            blockMgr.write(block);
+            blockMgr.release(block);
+        }
+        blockMgr.endUpdate();
+        blockMgr.sync();
+    }
+
+    @TearDown
+    public void teardown() {
+        blockMgr.close();
+        file.delete();
+    }
+
+    /** Per-thread choice of blocks. */
+    @State(Scope.Thread)
+    public static class Reader {
+        SplittableRandom random;
+
+        @Setup
+        public void setup() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    private int read(Reader reader) {
+        Block block = blockMgr.getRead(ids[reader.random.nextInt(ids.length)]);
+        int x = block.getByteBuffer().getInt(0);
+        blockMgr.release(block);
+        return x;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int read_threads_01(Reader reader) {
+        return read(reader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int read_threads_04(Reader reader) {
+        return read(reader);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int read_threads_16(Reader reader) {
+        return read(reader);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int read_threads_64(Reader reader) {
+        return read(reader);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.graph.Factory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@code find} on the in-memory graph ({@code GraphMem}) for each shape of triple pattern.
+ * Each operation is a set of finds with concrete terms taken from the data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchGraphFind {
+    private static final int NumPatterns = 1000;
+
+    @Param({"S??", "?P?", "??O", "SP?", "S?O", "?PO", "SPO"})
+    public String pattern;
+
+    @Param({"20000"})
+    public int subjects;
+
+    private Graph graph;
+    private List<Triple> patterns;
+
+    @Setup
+    public void setup() {
+        List<Triple> triples = DataGenerator.triples(subjects);
+        graph = Factory.createGraphMem();
+        triples.forEach(graph::add);
+        Random random = new Random(0x46494E44L);
+        patterns = new ArrayList<>(NumPatterns);
+        for ( int i = 0 ; i < NumPatterns ; i++ ) {
+            Triple t = triples.get(random.nextInt(triples.size()));
+            patterns.add(Triple.createMatch(slot(t.getSubject(), 0), slot(t.getPredicate(), 1), slot(t.getObject(), 2)));
+        }
+    }
+
+    private Node slot(Node n, int idx) {
+        return pattern.charAt(idx) == '?' ? Node.ANY : n;
+    }
+
+    @Benchmark
+    public long find() {
+        long count = 0;
+        // ?P? patterns match a large part of the graph.
+        int limit = pattern.equals("?P?") ? 10 : patterns.size();
+        for ( int i = 0 ; i < limit ; i++ ) {
+            ExtendedIterator<Triple> iter = graph.find(patterns.get(i));
+            while ( iter.hasNext() ) {
+                iter.next();
+                count++;
+            }
+            iter.close();
+        }
+        return count;
+    }
+}
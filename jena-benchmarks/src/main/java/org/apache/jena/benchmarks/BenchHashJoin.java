@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.join.QueryIterHashJoin;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory;
+import org.apache.jena.sparql.util.Context;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@link QueryIterHashJoin} of two tables of rows sharing one variable.
+ * The right side is hashed; the left side probes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchHashJoin {
+    private static final Var vKey = Var.alloc("s");
+    private static final Var vLeft = Var.alloc("x");
+    private static final Var vRight = Var.alloc("y");
+
+    @Param({"100000"})
+    public int leftSize;
+
+    @Param({"10000", "100000"})
+    public int rightSize;
+
+    /** Number of distinct join keys. */
+    @Param({"10000"})
+    public int keys;
+
+    private List<Binding> left;
+    private List<Binding> right;
+    private ExecutionContext execCxt;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0x4A4F494EL);
+        left = rows(random, leftSize, vLeft);
+        right = rows(random, rightSize, vRight);
+        execCxt = new ExecutionContext(new Context(), (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null);
+    }
+
+    private List<Binding> rows(Random random, int size, Var var) {
+        List<Binding> rows = new ArrayList<>(size);
+        for ( int i = 0 ; i < size ; i++ ) {
+            Node key = DataGenerator.subject(random.nextInt(keys));
+            Node value = NodeFactory.createLiteral(Integer.toString(i), XSDDatatype.XSDinteger);
+            rows.add(BindingFactory.binding(vKey, key, var, value));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public long join() {
+        QueryIterator leftIter = QueryIterPlainWrapper.create(left.iterator(), execCxt);
+        QueryIterator rightIter = QueryIterPlainWrapper.create(right.iterator(), execCxt);
+        QueryIterator qIter = QueryIterHashJoin.create(leftIter, rightIter, execCxt);
+        long count = 0;
+        while ( qIter.hasNext() ) {
+            qIter.next();
+            count++;
+        }
+        qIter.close();
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.dboe.base.file.BinaryDataFileMem;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Lookups in the TDB2 node table, without the node cache or inlining in front of it:
+ * node to NodeId (hash and B+Tree) and NodeId to node (read and decode).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchNodeTable {
+
+    @Param({"20000"})
+    public int subjects;
+
+    private List<Node> nodes;
+    private NodeTable nodeTable;
+    private List<NodeId> nodeIds;
+
+    @Setup
+    public void setup() {
+        Set<Node> distinct = new LinkedHashSet<>();
+        for ( Triple t : DataGenerator.triples(subjects) ) {
+            distinct.add(t.getSubject());
+            distinct.add(t.getPredicate());
+            distinct.add(t.getObject());
+        }
+        nodes = new ArrayList<>(distinct);
+        nodeTable = build();
+        nodeIds = new ArrayList<>(nodes.size());
+        for ( Node n : nodes )
+            nodeIds.add(nodeTable.getNodeIdForNode(n));
+    }
+
+    private NodeTable build() {
+        BPlusTree index = BPlusTreeFactory.makeMem(100, SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId);
+        index.nonTransactional();
+        NodeTable table = new NodeTableTRDF(index, new BinaryDataFileMem());
+        for ( Node n : nodes )
+            table.getAllocateNodeId(n);
+        return table;
+    }
+
+    @Benchmark
+    public NodeTable allocate() {
+        return build();
+    }
+
+    @Benchmark
+    public int nodeToNodeId() {
+        int found = 0;
+        for ( Node n : nodes ) {
+            if ( ! NodeId.isDoesNotExist(nodeTable.getNodeIdForNode(n)) )
+                found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int nodeIdToNode() {
+        int found = 0;
+        for ( NodeId nid : nodeIds ) {
+            if ( nodeTable.getNodeForNodeId(nid) != null )
+                found++;
+        }
+        return found;
+    }
+}
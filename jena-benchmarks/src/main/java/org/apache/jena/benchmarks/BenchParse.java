@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.StreamRDFCounting;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerText;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Parsing throughput: the text tokenizer on its own, and the N-Triples and Turtle
+ * parsers ({@code LangNTriples}, {@code LangTurtle}) to a counting sink.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchParse {
+
+    @Param({"N-Triples", "Turtle"})
+    public String syntax;
+
+    @Param({"20000"})
+    public int subjects;
+
+    private String text;
+    private Lang lang;
+
+    @Setup
+    public void setup() {
+        RDFFormat format = syntax.equals("Turtle") ? RDFFormat.TURTLE_BLOCKS : RDFFormat.NTRIPLES;
+        lang = format.getLang();
+        text = DataGenerator.text(subjects, format);
+    }
+
+    @Benchmark
+    public long tokenize() {
+        Tokenizer tokenizer = TokenizerText.create().fromString(text).build();
+        long count = 0;
+        while ( tokenizer.hasNext() ) {
+            tokenizer.next();
+            count++;
+        }
+        tokenizer.close();
+        return count;
+    }
+
+    @Benchmark
+    public long parse() {
+        StreamRDFCounting dest = StreamRDFLib.count();
+        RDFParser.fromString(text).lang(lang).parse(dest);
+        return dest.countTriples();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.StreamRDFCounting;
+import org.apache.jena.riot.system.ErrorHandlerFactory;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerBytes;
+import org.apache.jena.riot.tokens.TokenizerText;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * N-Triples from UTF-8 bytes: {@code TokenizerText}, which decodes to characters,
+ * against {@code TokenizerBytes}, on their own and in the parser to a counting sink.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchParseNTriples {
+
+    @Param({"text", "bytes"})
+    public String tokenizer;
+
+    @Param({"20000"})
+    public int subjects;
+
+    private byte[] bytes;
+    private boolean tokenizerBytes;
+
+    @Setup
+    public void setup() {
+        bytes = DataGenerator.text(subjects, RDFFormat.NTRIPLES).getBytes(StandardCharsets.UTF_8);
+        tokenizerBytes = tokenizer.equals("bytes");
+    }
+
+    @Benchmark
+    public long tokenize() {
+        Tokenizer tok = tokenizerBytes
+            ? TokenizerBytes.create(bytes, 0, bytes.length, ErrorHandlerFactory.errorHandlerStd)
+            : TokenizerText.create().source(new ByteArrayInputStream(bytes)).build();
+        long count = 0;
+        while ( tok.hasNext() ) {
+            tok.next();
+            count++;
+        }
+        tok.close();
+        return count;
+    }
+
+    @Benchmark
+    public long parse() {
+        StreamRDFCounting dest = StreamRDFLib.count();
+        RDFParser.source(new ByteArrayInputStream(bytes)).lang(Lang.NTRIPLES).tokenizerBytes(tokenizerBytes).parse(dest);
+        return dest.countTriples();
+    }
+}
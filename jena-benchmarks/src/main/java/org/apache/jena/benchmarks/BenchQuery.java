@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * End-to-end SPARQL: parse, optimize and execute, then read all the results,
+ * over the transactional in-memory dataset ({@code DatasetGraphInMemory})
+ * and an in-memory TDB2 database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchQuery {
+
+    @Param({"mem", "tdb2"})
+    public String store;
+
+    @Param({"lookup", "star", "path", "filter", "orderLimit", "group", "optional", "named"})
+    public String query;
+
+    @Param({"20000"})
+    public int subjects;
+
+    private DatasetGraph dsg;
+    private Query sparql;
+
+    @Setup
+    public void setup() {
+        switch (store) {
+            case "mem" :  dsg = DatasetGraphFactory.createTxnMem(); break;
+            case "tdb2" : dsg = DatabaseMgr.createDatasetGraph(); break;
+            default:
+                throw new IllegalArgumentException("Unknown store: "+store);
+        }
+        DataGenerator.load(dsg, subjects, 10);
+        sparql = QueryFactory.create(DataGenerator.PREFIXES+queryString(query));
+    }
+
+    @TearDown
+    public void teardown() {
+        dsg.close();
+    }
+
+    private static String queryString(String name) {
+        switch (name) {
+            case "lookup" :
+                return "SELECT * { :s100 ?p ?o }";
+            case "star" :
+                return "SELECT * { ?s a :C1 ; :label ?label ; :count ?count ; :date ?date }";
+            case "path" :
+                return "SELECT * { ?s a :C2 ; :link ?x . ?x :link ?y . ?y :address/:zip ?zip }";
+            case "filter" :
+                return "SELECT * { ?s :count ?count ; :value ?v FILTER(?count > 900000 && ?v < 5000) }";
+            case "orderLimit" :
+                return "SELECT * { ?s :date ?date } ORDER BY DESC(?date) LIMIT 10";
+            case "group" :
+                return "SELECT ?t (COUNT(*) AS ?c) (AVG(?count) AS ?avg) { ?s a ?t ; :count ?count } GROUP BY ?t";
+            case "optional" :
+                return "SELECT * { ?s a :C3 OPTIONAL { ?s :link ?x . ?x a :C4 } }";
+            case "named" :
+                return "SELECT ?g (COUNT(*) AS ?c) { GRAPH ?g { ?s :link ?x } } GROUP BY ?g";
+            default:
+                throw new IllegalArgumentException("Unknown query: "+name);
+        }
+    }
+
+    @Benchmark
+    public long query() {
+        return Txn.calculateRead(dsg, ()->{
+            RowSet rowSet = QueryExec.dataset(dsg).query(sparql).build().select();
+            long count = 0;
+            while ( rowSet.hasNext() ) {
+                rowSet.next();
+                count++;
+            }
+            return count;
+        });
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.resultset.ResultsWriter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * SPARQL JSON results output of {@code RowSetWriterJSON}, written to a discarding
+ * output stream. Each row is one generated triple as {@code ?s ?p ?o}, so there are
+ * IRIs, blank nodes, language tagged and typed literals.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchRowSetWriterJSON {
+
+    private static final Var varS = Var.alloc("s");
+    private static final Var varP = Var.alloc("p");
+    private static final Var varO = Var.alloc("o");
+    private static final List<Var> vars = List.of(varS, varP, varO);
+
+    @Param({"20000"})
+    public int subjects;
+
+    private List<Binding> rows;
+
+    @Setup
+    public void setup() {
+        List<Triple> triples = DataGenerator.triples(subjects);
+        rows = new ArrayList<>(triples.size());
+        for ( Triple t : triples )
+            rows.add(BindingFactory.binding(varS, t.getSubject(), varP, t.getPredicate(), varO, t.getObject()));
+    }
+
+    @Benchmark
+    public void write() {
+        ResultsWriter.create().lang(ResultSetLang.RS_JSON).write(OutputStream.nullOutputStream(), RowSetStream.create(vars, rows.iterator()));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.data.BagFactory;
+import org.apache.jena.atlas.data.SortedDataBag;
+import org.apache.jena.atlas.data.ThresholdPolicy;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.SortCondition;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingComparator;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.iterator.QueryIterSort;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory;
+import org.apache.jena.sparql.system.SerializationFactoryFinder;
+import org.apache.jena.sparql.util.Context;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * ORDER BY: {@link QueryIterSort}, and the {@link SortedDataBag} under it,
+ * in memory ({@code threshold} of -1) and spilling to disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchSort {
+    private static final Var vKey = Var.alloc("x");
+    private static final Var vValue = Var.alloc("s");
+
+    @Param({"200000"})
+    public int size;
+
+    /** Spill threshold, in rows; -1 for no spilling. */
+    @Param({"-1", "20000"})
+    public long threshold;
+
+    private List<Binding> rows;
+    private List<SortCondition> conditions;
+    private ExecutionContext execCxt;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0x534F5254L);
+        rows = new ArrayList<>(size);
+        for ( int i = 0 ; i < size ; i++ ) {
+            rows.add(BindingFactory.binding(vKey, NodeFactory.createLiteral(Integer.toString(random.nextInt()), XSDDatatype.XSDinteger),
+                                            vValue, DataGenerator.subject(i)));
+        }
+        conditions = new ArrayList<>();
+        conditions.add(new SortCondition(vKey, Query.ORDER_ASCENDING));
+        Context cxt = new Context();
+        if ( threshold >= 0 )
+            cxt.set(ARQ.spillToDiskThreshold, threshold);
+        execCxt = new ExecutionContext(cxt, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null);
+    }
+
+    @Benchmark
+    public long queryIterSort() {
+        QueryIterator input = QueryIterPlainWrapper.create(rows.iterator(), execCxt);
+        QueryIterator qIter = new QueryIterSort(input, conditions, execCxt);
+        long count = 0;
+        while ( qIter.hasNext() ) {
+            qIter.next();
+            count++;
+        }
+        qIter.close();
+        return count;
+    }
+
+    @Benchmark
+    public long sortedDataBag() {
+        ThresholdPolicy<Binding> policy = ( threshold >= 0 )
+            ? ThresholdPolicyFactory.count(threshold)
+            : ThresholdPolicyFactory.never();
+        SortedDataBag<Binding> bag = BagFactory.newSortedBag(policy, SerializationFactoryFinder.bindingSerializationFactory(),
+                                                             new BindingComparator(conditions));
+        long count = 0;
+        try {
+            rows.forEach(bag::add);
+            Iterator<Binding> iter = bag.iterator();
+            while ( iter.hasNext() ) {
+                iter.next();
+                count++;
+            }
+        } finally {
+            bag.close();
+        }
+        return count;
+    }
+}
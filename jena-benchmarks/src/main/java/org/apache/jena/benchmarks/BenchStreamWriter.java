@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.benchmarks;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.openjdk.jmh.annotations.*;
+
+/** Output throughput of the streaming writers, written to a discarding output stream. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchStreamWriter {
+
+    @Param({"N-Triples", "Turtle-blocks", "Turtle-flat", "RDF-Thrift", "RDF-Proto"})
+    public String format;
+
+    @Param({"20000"})
+    public int subjects;
+
+    private List<Triple> triples;
+    private RDFFormat rdfFormat;
+
+    @Setup
+    public void setup() {
+        triples = DataGenerator.triples(subjects);
+        rdfFormat = format(format);
+    }
+
+    private static RDFFormat format(String name) {
+        switch (name) {
+            case "N-Triples" :     return RDFFormat.NTRIPLES;
+            case "Turtle-blocks" : return RDFFormat.TURTLE_BLOCKS;
+            case "Turtle-flat" :   return RDFFormat.TURTLE_FLAT;
+            case "RDF-Thrift" :    return RDFFormat.RDF_THRIFT;
+            case "RDF-Proto" :     return RDFFormat.RDF_PROTO;
+            default:
+                throw new IllegalArgumentException("Unknown format: "+name);
+        }
+    }
+
+    @Benchmark
+    public void write() {
+        StreamRDF stream = StreamRDFWriter.getWriterStream(OutputStream.nullOutputStream(), rdfFormat);
+        stream.start();
+        StreamRDFOps.sendTriplesToStream(triples.iterator(), stream);
+        stream.finish();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.system.Txn;
+import org.apache.jena.vocabulary.RDF;
+
+/**
+ * Deterministic data for the benchmarks.
+ * The same number of subjects always gives the same triples, so runs can be compared
+ * and no data files are needed.
+ * <p>
+ * Each subject has a type, a language-tagged label, an integer, a decimal, a date-time,
+ * a blank node with a string, and two links to other subjects; that is 9 triples per subject.
+ */
+public class DataGenerator {
+    public static final String NS = "http://example/bench/";
+    public static final String PREFIXES = "PREFIX : <"+NS+">\n"
+                                        + "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n"
+                                        + "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n";
+    public static final int TRIPLES_PER_SUBJECT = 9;
+    /** Number of rdf:type classes. */
+    public static final int NUM_CLASSES = 20;
+
+    private static final long SEED = 0x4A656E61L;
+
+    public static final Node pLabel   = uri("label");
+    public static final Node pCount   = uri("count");
+    public static final Node pValue   = uri("value");
+    public static final Node pDate    = uri("date");
+    public static final Node pAddress = uri("address");
+    public static final Node pZip     = uri("zip");
+    public static final Node pLink    = uri("link");
+
+    public static Node uri(String localName) {
+        return NodeFactory.createURI(NS+localName);
+    }
+
+    public static Node subject(int i) {
+        return uri("s"+i);
+    }
+
+    public static Node typeClass(int i) {
+        return uri("C"+i);
+    }
+
+    /** Generate the triples for {@code numSubjects} subjects. */
+    public static List<Triple> triples(int numSubjects) {
+        Random random = new Random(SEED);
+        List<Triple> triples = new ArrayList<>(numSubjects*TRIPLES_PER_SUBJECT);
+        for ( int i = 0 ; i < numSubjects ; i++ ) {
+            Node s = subject(i);
+            triples.add(Triple.create(s, RDF.Nodes.type, typeClass(random.nextInt(NUM_CLASSES))));
+            triples.add(Triple.create(s, pLabel, NodeFactory.createLiteral("Label "+i, "en")));
+            triples.add(Triple.create(s, pCount, NodeFactory.createLiteral(Integer.toString(random.nextInt(2_000_000)-1_000_000), XSDDatatype.XSDinteger)));
+            String decimal = random.nextInt(10_000)+"."+random.nextInt(100);
+            triples.add(Triple.create(s, pValue, NodeFactory.createLiteral(decimal, XSDDatatype.XSDdecimal)));
+            String dateTime = String.format("%04d-%02d-%02dT%02d:%02d:%02dZ",
+                                            1990+random.nextInt(35), 1+random.nextInt(12), 1+random.nextInt(28),
+                                            random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            triples.add(Triple.create(s, pDate, NodeFactory.createLiteral(dateTime, XSDDatatype.XSDdateTime)));
+            Node address = NodeFactory.createBlankNode("b"+i);
+            triples.add(Triple.create(s, pAddress, address));
+            triples.add(Triple.create(address, pZip, NodeFactory.createLiteral(String.format("%05d", random.nextInt(100_000)))));
+            triples.add(Triple.create(s, pLink, subject(random.nextInt(numSubjects))));
+            triples.add(Triple.create(s, pLink, subject(random.nextInt(numSubjects))));
+        }
+        return triples;
+    }
+
+    /** A graph, of the default in-memory implementation, of the generated triples. */
+    public static Graph graph(int numSubjects) {
+        Graph graph = GraphFactory.createDefaultGraph();
+        triples(numSubjects).forEach(graph::add);
+        graph.getPrefixMapping().setNsPrefix("", NS);
+        graph.getPrefixMapping().setNsPrefixes(PrefixMapping.Standard);
+        return graph;
+    }
+
+    /**
+     * Load the generated data into a dataset: all of it into the default graph,
+     * and spread over {@code numGraphs} named graphs.
+     */
+    public static void load(DatasetGraph dsg, int numSubjects, int numGraphs) {
+        List<Triple> triples = triples(numSubjects);
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < triples.size() ; i++ ) {
+                Triple t = triples.get(i);
+                dsg.add(Quad.defaultGraphIRI, t.getSubject(), t.getPredicate(), t.getObject());
+                if ( numGraphs > 0 ) {
+                    // Keep the triples of one subject together.
+                    Node g = uri("g"+((i/TRIPLES_PER_SUBJECT)%numGraphs));
+                    dsg.add(g, t.getSubject(), t.getPredicate(), t.getObject());
+                }
+            }
+        });
+    }
+
+    /** The generated data as text in the given syntax. */
+    public static String text(int numSubjects, RDFFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, graph(numSubjects), format);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -51,7 +51,7 @@ public class tdbloader extends CmdTDBGraph {
     private static final ArgDecl argLoader  = new ArgDecl(ArgDecl.HasValue, "loader");
     private static final ArgDecl argSyntax  = new ArgDecl(ArgDecl.HasValue, "syntax");
 
-    private enum LoaderEnum { Basic, Parallel, Sequential, Light, Phased }
+    private enum LoaderEnum { Basic, Parallel, Sequential, Light, Phased, Online }
 
     private boolean    showProgress  = true;
     private boolean    generateStats = false;
@@ -66,7 +66,7 @@ public class tdbloader extends CmdTDBGraph {
     protected tdbloader(String[] argv) {
         super(argv);
 //        super.add(argStats, "Generate statistics");
-        super.add(argLoader, "--loader=", "Loader to use: 'basic', 'phased' (default), 'sequential', 'parallel' or 'light'");
+        super.add(argLoader, "--loader=", "Loader to use: 'basic', 'phased' (default), 'sequential', 'parallel', 'light' or 'online'");
         super.add(argSyntax, "--syntax=LANG", "Syntax of data from stdin");
     }
 
@@ -86,6 +86,8 @@ public class tdbloader extends CmdTDBGraph {
                 loader = LoaderEnum.Parallel;
             else if ( loadername.matches("light") )
                 loader = LoaderEnum.Light;
+            else if ( loadername.matches("online") )
+                loader = LoaderEnum.Online;
             else
                 throw new CmdException("Unrecognized value for --loader: "+loadername);
         }
@@ -247,6 +249,8 @@ public class tdbloader extends CmdTDBGraph {
                 return LoaderFactory.createLoader(LoaderPlans.loaderPlanLight, dsg, output);
             case Basic :
                 return LoaderFactory.basicLoader(dsg, gn, output);
+            case Online :
+                return LoaderFactory.onlineLoader(dsg, gn, output);
             default :
                 throw new InternalErrorException("Unrecognized loader: "+useLoader);
         }
@@ -36,7 +36,7 @@ public class CmdxBuildNodeTable extends AbstractCmdxLoad {
     protected void setCmdArgs() {
         super.add(argLocation,      "--loc=", "Database location");
         super.add(argTmpdir,        "--tmpdir=", "Temporary directory (defaults to --loc)");
-        super.add(argSortThreads,   "--threads=", "Number of threads; passed as an argument to sort(1)");
+        super.add(argSortThreads,   "--threads=", "Number of threads for sorting");
         //super.add(argSortNodeTableArgs, "--sortNodeTableArgs=", "Specialised argument for the sort for the node table");
     }
 
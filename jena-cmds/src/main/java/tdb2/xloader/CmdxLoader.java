@@ -34,13 +34,13 @@ import org.apache.jena.tdb2.xloader.BulkLoaderX;
 /**
  * A version of xloader/TDB2 that runs in a single JVM.
  * <p>
- * This still requires an external sort programme.
+ * Sorting is done in the JVM; no external sort programme is needed.
  * Normally, xloader is run by script which uses one JVM per operation.
  * Exiting the JVM and starting a new one clears the process state which is beneficial.
  * <p>
- * This program does not need much RAM. Do not set the heap size large.
- * 4Gbytes is enough, usually 2Gbytes is sufficient.
- * More heap is not faster (in fact, it is often slower).
+ * The sorts hold a quarter of the heap in memory (see {@code BulkLoaderX.SortMemory})
+ * and write the rest to temporary files in the tmpdir.
+ * 4Gbytes of heap is enough, usually 2Gbytes is sufficient.
  */
 public class CmdxLoader extends AbstractCmdxLoad {
 
@@ -56,7 +56,7 @@ public class CmdxLoader extends AbstractCmdxLoad {
     protected void setCmdArgs() {
         super.add(argLocation,      "--loc=", "Database location");
         super.add(argTmpdir,        "--tmpdir=", "Temporary directory (defaults to --loc)");
-        super.add(argSortThreads,   "--threads=", "Number of threads; passed as an argument to sort(1)");
+        super.add(argSortThreads,   "--threads=", "Number of threads for sorting");
     }
 
     @Override
@@ -0,0 +1,739 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.graph.Capabilities;
+import org.apache.jena.graph.GraphEvents;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.AllCapabilities;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.shared.AddDeniedException;
+import org.apache.jena.shared.DeleteDeniedException;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+import org.apache.jena.util.iterator.NullIterator;
+
+/**
+ * An in-memory graph for large data. Each node is held once, in a dictionary, and each
+ * triple is three {@code int} node ids held in arrays; there are no per-triple objects.
+ * <p>
+ * When updatable, each triple is on a chain for its subject, its predicate and its
+ * object, and in a hash table of triples: about 32 bytes a triple, not counting the nodes.
+ * After {@link #freeze()}, the graph is read-only and the triples are held sorted in SPO
+ * order, with POS and OSP orders as permutations, and found by binary search: 20 bytes a
+ * triple.
+ * <p>
+ * {@link #load} adds many triples in one step, sorting and removing duplicates at the
+ * end instead of checking each triple as it is added.
+ * <p>
+ * As for {@link GraphMem}, {@code find} and {@code contains} match literals by value.
+ * Updates are not thread-safe; a frozen graph can be read by several threads.
+ */
+public class GraphMemCompact extends GraphBase {
+    private static final int NoSlot = -1;
+    /** Marks a deleted triple slot, in the subject column. */
+    private static final int Deleted = -1;
+    /** Deleted slots are only reclaimed when there are at least this many of them. */
+    private static final int MinCompact = 1024;
+    private static final float LoadFactor = 0.75f;
+
+    private NodeDictionary dict;
+
+    // Triple slots: columns of node ids.
+    private int[] colS;
+    private int[] colP;
+    private int[] colO;
+    // Slots in use, including deleted slots.
+    private int top;
+    private int size;
+    private int deleted;
+
+    // Updatable: chains of slots by node, and the hash table of triples (slot+1, 0 for empty).
+    private int[] headS;
+    private int[] headP;
+    private int[] headO;
+    private int[] nextS;
+    private int[] nextP;
+    private int[] nextO;
+    private int[] hashTable;
+    private int hashThreshold;
+
+    // Frozen: the columns are sorted SPO; POS and OSP are permutations of the slots.
+    private boolean frozen = false;
+    private int[] indexPOS;
+    private int[] indexOSP;
+
+    private int modCount = 0;
+
+    public GraphMemCompact() {
+        reset();
+    }
+
+    private void reset() {
+        dict = new NodeDictionary();
+        allocateSlots(16);
+        headS = newHeads(16);
+        headP = newHeads(16);
+        headO = newHeads(16);
+        hashTable = new int[32];
+        hashThreshold = (int)(hashTable.length*LoadFactor);
+        top = 0;
+        size = 0;
+        deleted = 0;
+        frozen = false;
+        indexPOS = null;
+        indexOSP = null;
+    }
+
+    /** Whether the graph has been made read-only by {@link #freeze}. */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Make the graph read-only, and rebuild it in its most compact form, with the
+     * triples sorted for lookup by binary search.
+     */
+    public void freeze() {
+        checkOpen();
+        if ( frozen )
+            return;
+        rebuild(true);
+    }
+
+    /**
+     * Add many triples. Duplicates are removed after all the triples have been added,
+     * so this is faster, and needs less memory on the way, than adding the triples one
+     * at a time. If there are graph listeners, this is the same as calling
+     * {@link #add} for each triple.
+     */
+    public void load(Iterator<Triple> triples) {
+        checkOpen();
+        if ( frozen )
+            throw new AddDeniedException("GraphMemCompact: frozen");
+        if ( getEventManager().listening() ) {
+            triples.forEachRemaining(this::add);
+            return;
+        }
+        // Chains and the hash table are rebuilt at the end.
+        headS = headP = headO = null;
+        nextS = nextP = nextO = null;
+        hashTable = null;
+        modCount++;
+        try {
+            while ( triples.hasNext() ) {
+                Triple t = triples.next();
+                if ( top == colS.length )
+                    growColumns();
+                colS[top] = dict.getAllocateId(t.getSubject());
+                colP[top] = dict.getAllocateId(t.getPredicate());
+                colO[top] = dict.getAllocateId(t.getObject());
+                top++;
+            }
+        } finally {
+            rebuild(false);
+        }
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        if ( capabilities == null ) {
+            capabilities = new AllCapabilities() {
+                @Override public boolean addAllowed()    { return ! frozen; }
+                @Override public boolean deleteAllowed() { return ! frozen; }
+            };
+        }
+        return capabilities;
+    }
+
+    @Override
+    public void performAdd(Triple t) {
+        if ( frozen )
+            throw new AddDeniedException("GraphMemCompact: frozen");
+        if ( deleted > MinCompact && deleted > size )
+            rebuild(false);
+        int s = dict.getAllocateId(t.getSubject());
+        int p = dict.getAllocateId(t.getPredicate());
+        int o = dict.getAllocateId(t.getObject());
+        if ( findSlot(s, p, o) != NoSlot )
+            return;
+        if ( size >= hashThreshold )
+            resizeHash(hashTable.length << 1);
+        if ( top == colS.length )
+            growColumns();
+        int slot = top++;
+        colS[slot] = s;
+        colP[slot] = p;
+        colO[slot] = o;
+        link(slot);
+        hashInsert(slot);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void performDelete(Triple t) {
+        if ( frozen )
+            throw new DeleteDeniedException("GraphMemCompact: frozen");
+        int s = dict.getId(t.getSubject());
+        int p = dict.getId(t.getPredicate());
+        int o = dict.getId(t.getObject());
+        if ( s < 0 || p < 0 || o < 0 )
+            return;
+        int slot = findSlot(s, p, o);
+        if ( slot == NoSlot )
+            return;
+        // The slot stays on its chains until the graph is compacted.
+        hashRemove(slot);
+        colS[slot] = Deleted;
+        size--;
+        deleted++;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        if ( frozen )
+            throw new DeleteDeniedException("GraphMemCompact: frozen");
+        reset();
+        modCount++;
+        getEventManager().notifyEvent(this, GraphEvents.removeAll);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        dict = null;
+        colS = colP = colO = null;
+        headS = headP = headO = null;
+        nextS = nextP = nextO = null;
+        hashTable = null;
+        indexPOS = indexOSP = null;
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return size;
+    }
+
+    @Override
+    protected boolean graphBaseContains(Triple t) {
+        if ( ! t.isConcrete() )
+            return super.graphBaseContains(t);
+        int[] ss = dict.sameValue(t.getSubject());
+        int[] ps = dict.sameValue(t.getPredicate());
+        int[] os = dict.sameValue(t.getObject());
+        for ( int s : ss ) {
+            for ( int p : ps ) {
+                for ( int o : os ) {
+                    if ( contains(s, p, o) )
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean contains(int s, int p, int o) {
+        if ( ! frozen )
+            return findSlot(s, p, o) != NoSlot;
+        int lo = lowerBound(null, colS, 0, size, s);
+        int hi = lowerBound(null, colS, lo, size, s+1);
+        lo = lowerBound(null, colP, lo, hi, p);
+        hi = lowerBound(null, colP, lo, hi, p+1);
+        lo = lowerBound(null, colO, lo, hi, o);
+        return lo < hi && colO[lo] == o;
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple pattern) {
+        // null for "any"; empty for a node that is not in the graph.
+        int[] ss = ids(pattern.getSubject());
+        int[] ps = ids(pattern.getPredicate());
+        int[] os = ids(pattern.getObject());
+        if ( isEmpty(ss) || isEmpty(ps) || isEmpty(os) )
+            return NullIterator.instance();
+        if ( frozen )
+            return findFrozen(ss, ps, os);
+        // As GraphMem: subject, then object, then predicate.
+        if ( ss != null )
+            return new ChainIterator(ss, headS, nextS, ss, ps, os);
+        if ( os != null )
+            return new ChainIterator(os, headO, nextO, ss, ps, os);
+        if ( ps != null )
+            return new ChainIterator(ps, headP, nextP, ss, ps, os);
+        return new ChainIterator(null, null, null, ss, ps, os);
+    }
+
+    private int[] ids(Node node) {
+        return node.isConcrete() ? dict.sameValue(node) : null;
+    }
+
+    private static boolean isEmpty(int[] ids) {
+        return ids != null && ids.length == 0;
+    }
+
+    private Triple triple(int slot) {
+        return Triple.create(dict.getNode(colS[slot]), dict.getNode(colP[slot]), dict.getNode(colO[slot]));
+    }
+
+    private boolean matches(int slot, int[] ss, int[] ps, int[] os) {
+        return in(ss, colS[slot]) && in(ps, colP[slot]) && in(os, colO[slot]);
+    }
+
+    private static boolean in(int[] ids, int id) {
+        if ( ids == null )
+            return true;
+        for ( int x : ids ) {
+            if ( x == id )
+                return true;
+        }
+        return false;
+    }
+
+    // ---- Updatable form
+
+    private void allocateSlots(int capacity) {
+        colS = new int[capacity];
+        colP = new int[capacity];
+        colO = new int[capacity];
+        nextS = new int[capacity];
+        nextP = new int[capacity];
+        nextO = new int[capacity];
+    }
+
+    private void growColumns() {
+        int capacity = colS.length+(colS.length >> 1);
+        colS = Arrays.copyOf(colS, capacity);
+        colP = Arrays.copyOf(colP, capacity);
+        colO = Arrays.copyOf(colO, capacity);
+        // No chains during a load.
+        if ( nextS != null ) {
+            nextS = Arrays.copyOf(nextS, capacity);
+            nextP = Arrays.copyOf(nextP, capacity);
+            nextO = Arrays.copyOf(nextO, capacity);
+        }
+    }
+
+    private static int[] newHeads(int capacity) {
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, NoSlot);
+        return heads;
+    }
+
+    private static int[] growHeads(int[] heads, int minCapacity) {
+        if ( minCapacity <= heads.length )
+            return heads;
+        int capacity = Math.max(minCapacity, heads.length+(heads.length >> 1));
+        int[] newHeads = Arrays.copyOf(heads, capacity);
+        Arrays.fill(newHeads, heads.length, capacity, NoSlot);
+        return newHeads;
+    }
+
+    /** Put the slot at the front of the chains for its subject, predicate and object. */
+    private void link(int slot) {
+        int numNodes = dict.size();
+        if ( numNodes > headS.length ) {
+            headS = growHeads(headS, numNodes);
+            headP = growHeads(headP, numNodes);
+            headO = growHeads(headO, numNodes);
+        }
+        nextS[slot] = headS[colS[slot]];
+        headS[colS[slot]] = slot;
+        nextP[slot] = headP[colP[slot]];
+        headP[colP[slot]] = slot;
+        nextO[slot] = headO[colO[slot]];
+        headO[colO[slot]] = slot;
+    }
+
+    private static int hash(int s, int p, int o) {
+        int h = s*0x9E3779B9+p;
+        h = h*0x9E3779B9+o;
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int s, int p, int o) {
+        int mask = hashTable.length-1;
+        for ( int i = hash(s, p, o) & mask ; ; i = (i+1) & mask ) {
+            int x = hashTable[i];
+            if ( x == 0 )
+                return NoSlot;
+            int slot = x-1;
+            if ( colS[slot] == s && colP[slot] == p && colO[slot] == o )
+                return slot;
+        }
+    }
+
+    private void hashInsert(int slot) {
+        int mask = hashTable.length-1;
+        int i = hash(colS[slot], colP[slot], colO[slot]) & mask;
+        while ( hashTable[i] != 0 )
+            i = (i+1) & mask;
+        hashTable[i] = slot+1;
+    }
+
+    /** Remove a slot from the hash table, moving later entries back to close the gap. */
+    private void hashRemove(int slot) {
+        int mask = hashTable.length-1;
+        int i = hash(colS[slot], colP[slot], colO[slot]) & mask;
+        while ( hashTable[i] != slot+1 )
+            i = (i+1) & mask;
+        for ( int j = (i+1) & mask ; hashTable[j] != 0 ; j = (j+1) & mask ) {
+            int x = hashTable[j];
+            int home = hash(colS[x-1], colP[x-1], colO[x-1]) & mask;
+            // Move the entry at j to the gap at i unless its home is cyclically in (i, j].
+            boolean stays = ( i <= j ) ? ( i < home && home <= j ) : ( i < home || home <= j );
+            if ( ! stays ) {
+                hashTable[i] = x;
+                i = j;
+            }
+        }
+        hashTable[i] = 0;
+    }
+
+    private void resizeHash(int capacity) {
+        hashTable = new int[capacity];
+        hashThreshold = (int)(capacity*LoadFactor);
+        for ( int slot = 0 ; slot < top ; slot++ ) {
+            if ( colS[slot] != Deleted )
+                hashInsert(slot);
+        }
+    }
+
+    // ---- Rebuild: compaction, load and freeze.
+
+    /**
+     * Rebuild the graph: drop deleted slots and unused nodes, sort the triples in SPO
+     * order and remove duplicates, then build either the updatable or the frozen form.
+     */
+    private void rebuild(boolean freeze) {
+        int n = 0;
+        int[] slots = new int[top-deleted];
+        for ( int slot = 0 ; slot < top ; slot++ ) {
+            if ( colS[slot] != Deleted )
+                slots[n++] = slot;
+        }
+
+        // Renumber the nodes in use.
+        NodeDictionary newDict = new NodeDictionary(Math.min(dict.size(), 3*n));
+        int[] renumber = new int[dict.size()];
+        Arrays.fill(renumber, -1);
+        int[] s = renumber(slots, colS, renumber, newDict);
+        int[] p = renumber(slots, colP, renumber, newDict);
+        int[] o = renumber(slots, colO, renumber, newDict);
+        dict = newDict;
+
+        int maxId = newDict.size()-1;
+        int[] order = identity(n);
+        order = sortBy(order, o, maxId);
+        order = sortBy(order, p, maxId);
+        order = sortBy(order, s, maxId);
+
+        int capacity = freeze ? n : Math.max(16, n+(n >> 2));
+        colS = new int[capacity];
+        colP = new int[capacity];
+        colO = new int[capacity];
+        int m = 0;
+        for ( int i = 0 ; i < n ; i++ ) {
+            int x = order[i];
+            if ( m > 0 && colS[m-1] == s[x] && colP[m-1] == p[x] && colO[m-1] == o[x] )
+                continue;
+            colS[m] = s[x];
+            colP[m] = p[x];
+            colO[m] = o[x];
+            m++;
+        }
+        if ( freeze && m < n ) {
+            colS = Arrays.copyOf(colS, m);
+            colP = Arrays.copyOf(colP, m);
+            colO = Arrays.copyOf(colO, m);
+        }
+        top = m;
+        size = m;
+        deleted = 0;
+        modCount++;
+
+        if ( freeze ) {
+            // The slots are in SPO order, so a stable sort gives the rest of the key.
+            indexPOS = sortBy(sortBy(identity(m), colO, maxId), colP, maxId);
+            indexOSP = sortBy(identity(m), colO, maxId);
+            headS = headP = headO = null;
+            nextS = nextP = nextO = null;
+            hashTable = null;
+            frozen = true;
+            return;
+        }
+
+        nextS = new int[capacity];
+        nextP = new int[capacity];
+        nextO = new int[capacity];
+        headS = newHeads(Math.max(16, dict.size()));
+        headP = newHeads(Math.max(16, dict.size()));
+        headO = newHeads(Math.max(16, dict.size()));
+        // Backwards so that chains are in slot order.
+        for ( int slot = m-1 ; slot >= 0 ; slot-- )
+            link(slot);
+        int hashCapacity = Integer.highestOneBit(Math.max(16, (int)(m/LoadFactor))) << 1;
+        hashTable = new int[hashCapacity];
+        hashThreshold = (int)(hashCapacity*LoadFactor);
+        for ( int slot = 0 ; slot < m ; slot++ )
+            hashInsert(slot);
+    }
+
+    private int[] renumber(int[] slots, int[] column, int[] renumber, NodeDictionary newDict) {
+        int[] x = new int[slots.length];
+        for ( int i = 0 ; i < slots.length ; i++ ) {
+            int id = column[slots[i]];
+            if ( renumber[id] < 0 )
+                renumber[id] = newDict.getAllocateId(dict.getNode(id));
+            x[i] = renumber[id];
+        }
+        return x;
+    }
+
+    private static int[] identity(int n) {
+        int[] x = new int[n];
+        for ( int i = 0 ; i < n ; i++ )
+            x[i] = i;
+        return x;
+    }
+
+    /**
+     * Stable sort of {@code order} by {@code keys[order[i]]}: a radix sort on 16 bit
+     * digits, so one pass for fewer than 65536 nodes and two passes otherwise.
+     */
+    private static int[] sortBy(int[] order, int[] keys, int maxKey) {
+        int n = order.length;
+        int[] src = order;
+        int[] dst = new int[n];
+        int[] counts = new int[(1 << 16)+1];
+        for ( int shift = 0 ; shift < 32 && ( shift == 0 || (maxKey >>> shift) != 0 ) ; shift += 16 ) {
+            Arrays.fill(counts, 0);
+            for ( int i = 0 ; i < n ; i++ )
+                counts[((keys[src[i]] >>> shift) & 0xFFFF)+1]++;
+            for ( int b = 0 ; b < (1 << 16) ; b++ )
+                counts[b+1] += counts[b];
+            for ( int i = 0 ; i < n ; i++ )
+                dst[counts[(keys[src[i]] >>> shift) & 0xFFFF]++] = src[i];
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        return src;
+    }
+
+    // ---- Frozen form
+
+    private ExtendedIterator<Triple> findFrozen(int[] ss, int[] ps, int[] os) {
+        // Choose the index with the longest prefix of bound slots.
+        if ( ss != null && ps != null )
+            return new RangeIterator(null, colS, ss, colP, ps, ss, ps, os);
+        if ( ss != null && os != null )
+            return new RangeIterator(indexOSP, colO, os, colS, ss, ss, ps, os);
+        if ( ss != null )
+            return new RangeIterator(null, colS, ss, null, null, ss, ps, os);
+        if ( ps != null )
+            return new RangeIterator(indexPOS, colP, ps, colO, os, ss, ps, os);
+        if ( os != null )
+            return new RangeIterator(indexOSP, colO, os, null, null, ss, ps, os);
+        return new RangeIterator(null, null, null, null, null, ss, ps, os);
+    }
+
+    /** First position in [lo, hi) of the index with a key of at least {@code key}. */
+    private static int lowerBound(int[] index, int[] column, int lo, int hi, int key) {
+        while ( lo < hi ) {
+            int mid = (lo+hi) >>> 1;
+            int v = column[index == null ? mid : index[mid]];
+            if ( v < key )
+                lo = mid+1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // ---- Iterators
+
+    /** Iterate over the slots on chains, or all slots, checking for concurrent modification. */
+    private class ChainIterator extends NiceIterator<Triple> {
+        private final int[] starts;
+        private final int[] next;
+        private final int[] ss;
+        private final int[] ps;
+        private final int[] os;
+        private int startIdx = 0;
+        private int cursor;
+        private int ready = NoSlot;
+        private Triple current = null;
+        private int expectedModCount = modCount;
+
+        ChainIterator(int[] ids, int[] heads, int[] next, int[] ss, int[] ps, int[] os) {
+            if ( ids != null ) {
+                this.starts = new int[ids.length];
+                for ( int i = 0 ; i < ids.length ; i++ )
+                    starts[i] = ids[i] < heads.length ? heads[ids[i]] : NoSlot;
+                this.cursor = NoSlot;
+            } else {
+                this.starts = null;
+                this.cursor = 0;
+            }
+            this.next = next;
+            this.ss = ss;
+            this.ps = ps;
+            this.os = os;
+        }
+
+        private int advance() {
+            for ( ;; ) {
+                int slot;
+                if ( starts == null ) {
+                    if ( cursor >= top )
+                        return NoSlot;
+                    slot = cursor++;
+                } else {
+                    while ( cursor == NoSlot ) {
+                        if ( startIdx >= starts.length )
+                            return NoSlot;
+                        cursor = starts[startIdx++];
+                    }
+                    slot = cursor;
+                    cursor = next[slot];
+                }
+                if ( colS[slot] != Deleted && matches(slot, ss, ps, os) )
+                    return slot;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( modCount != expectedModCount )
+                throw new ConcurrentModificationException();
+            if ( ready == NoSlot )
+                ready = advance();
+            return ready != NoSlot;
+        }
+
+        @Override
+        public Triple next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            current = triple(ready);
+            ready = NoSlot;
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if ( current == null )
+                throw new IllegalStateException();
+            // Deleting leaves the slot on its chains so the iteration is unaffected.
+            delete(current);
+            current = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    /** Iterate over ranges of a sorted index of a frozen graph. */
+    private class RangeIterator extends NiceIterator<Triple> {
+        private final int[] index;
+        private final int[] ss;
+        private final int[] ps;
+        private final int[] os;
+        // Pairs of (start, end) positions in the index.
+        private final int[] ranges;
+        private int rangeIdx = 0;
+        private int position;
+        private int end;
+        private int ready = NoSlot;
+
+        /**
+         * Ranges of the index ({@code null} for SPO order) where the first column is one
+         * of {@code keys1} and, if not null, the second column is one of {@code keys2}.
+         */
+        RangeIterator(int[] index, int[] column1, int[] keys1, int[] column2, int[] keys2, int[] ss, int[] ps, int[] os) {
+            this.index = index;
+            this.ss = ss;
+            this.ps = ps;
+            this.os = os;
+            if ( keys1 == null ) {
+                ranges = new int[] {0, size};
+            } else {
+                int k2 = ( keys2 == null ) ? 1 : keys2.length;
+                int[] x = new int[2*keys1.length*k2];
+                int n = 0;
+                for ( int key1 : keys1 ) {
+                    int lo = lowerBound(index, column1, 0, size, key1);
+                    int hi = lowerBound(index, column1, lo, size, key1+1);
+                    if ( keys2 == null ) {
+                        x[n++] = lo;
+                        x[n++] = hi;
+                        continue;
+                    }
+                    for ( int key2 : keys2 ) {
+                        int lo2 = lowerBound(index, column2, lo, hi, key2);
+                        int hi2 = lowerBound(index, column2, lo2, hi, key2+1);
+                        x[n++] = lo2;
+                        x[n++] = hi2;
+                    }
+                }
+                ranges = x;
+            }
+            position = 0;
+            end = 0;
+        }
+
+        private int advance() {
+            for ( ;; ) {
+                while ( position >= end ) {
+                    if ( rangeIdx >= ranges.length )
+                        return NoSlot;
+                    position = ranges[rangeIdx++];
+                    end = ranges[rangeIdx++];
+                }
+                int slot = ( index == null ) ? position : index[position];
+                position++;
+                if ( matches(slot, ss, ps, os) )
+                    return slot;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( ready == NoSlot )
+                ready = advance();
+            return ready != NoSlot;
+        }
+
+        @Override
+        public Triple next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            Triple t = triple(ready);
+            ready = NoSlot;
+            return t;
+        }
+    }
+}
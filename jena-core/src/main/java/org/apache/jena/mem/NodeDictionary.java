@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem;
+
+import java.util.Arrays;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * Dictionary of nodes to dense integer ids (0, 1, 2, ...) for {@link GraphMemCompact}.
+ * <p>
+ * The hash table is open addressing over arrays, with no per-entry objects. Nodes are
+ * hashed by {@link Node#getIndexingValue()} so that all the nodes with the same value as
+ * a literal are found by probing from one place; see {@link #sameValue(Node)}.
+ * Nodes are never removed; a new dictionary is built when the graph is compacted.
+ */
+final class NodeDictionary {
+    private static final int[] NoIds = new int[0];
+    private static final float LoadFactor = 0.75f;
+
+    private Node[] nodes;
+    private int[] hashes;
+    private int size = 0;
+    // Id+1; 0 is an empty slot.
+    private int[] table;
+    private int threshold;
+
+    NodeDictionary() {
+        this(16);
+    }
+
+    NodeDictionary(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int)(expectedSize/LoadFactor))-1) << 1;
+        nodes = new Node[Math.max(16, expectedSize)];
+        hashes = new int[nodes.length];
+        table = new int[capacity];
+        threshold = (int)(capacity*LoadFactor);
+    }
+
+    /** Number of nodes. Ids are 0 to {@code size()-1}. */
+    int size() {
+        return size;
+    }
+
+    Node getNode(int id) {
+        return nodes[id];
+    }
+
+    /** The id of the node, or -1 if it is not in the dictionary. */
+    int getId(Node node) {
+        int hash = hash(node);
+        int mask = table.length-1;
+        for ( int i = hash & mask ; ; i = (i+1) & mask ) {
+            int x = table[i];
+            if ( x == 0 )
+                return -1;
+            int id = x-1;
+            if ( hashes[id] == hash && nodes[id].equals(node) )
+                return id;
+        }
+    }
+
+    /** The id of the node, adding the node if it is not in the dictionary. */
+    int getAllocateId(Node node) {
+        int hash = hash(node);
+        int mask = table.length-1;
+        int i = hash & mask;
+        for ( ; ; i = (i+1) & mask ) {
+            int x = table[i];
+            if ( x == 0 )
+                break;
+            int id = x-1;
+            if ( hashes[id] == hash && nodes[id].equals(node) )
+                return id;
+        }
+        int id = size;
+        if ( id == nodes.length ) {
+            int newLength = nodes.length+(nodes.length >> 1);
+            nodes = Arrays.copyOf(nodes, newLength);
+            hashes = Arrays.copyOf(hashes, newLength);
+        }
+        nodes[id] = node;
+        hashes[id] = hash;
+        table[i] = id+1;
+        size++;
+        if ( size > threshold )
+            resize();
+        return id;
+    }
+
+    /**
+     * The ids of the nodes that have the same value as the node: for literals, all the
+     * terms for the value; for other nodes, the node itself. Returns an empty array for
+     * no matches.
+     */
+    int[] sameValue(Node node) {
+        if ( ! node.isLiteral() ) {
+            int id = getId(node);
+            return id < 0 ? NoIds : new int[] {id};
+        }
+        int hash = hash(node);
+        int mask = table.length-1;
+        int[] ids = NoIds;
+        for ( int i = hash & mask ; ; i = (i+1) & mask ) {
+            int x = table[i];
+            if ( x == 0 )
+                return ids;
+            int id = x-1;
+            if ( hashes[id] == hash && nodes[id].sameValueAs(node) ) {
+                ids = Arrays.copyOf(ids, ids.length+1);
+                ids[ids.length-1] = id;
+            }
+        }
+    }
+
+    private void resize() {
+        int[] newTable = new int[table.length << 1];
+        int mask = newTable.length-1;
+        for ( int id = 0 ; id < size ; id++ ) {
+            int i = hashes[id] & mask;
+            while ( newTable[i] != 0 )
+                i = (i+1) & mask;
+            newTable[i] = id+1;
+        }
+        table = newTable;
+        threshold = (int)(newTable.length*LoadFactor);
+    }
+
+    private static int hash(Node node) {
+        int h = node.getIndexingValue().hashCode();
+        // Spread the bits: the table is indexed by the low bits.
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem.test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+import junit.framework.TestSuite;
+import org.apache.jena.graph.* ;
+import org.apache.jena.graph.test.AbstractTestGraph ;
+import org.apache.jena.mem.GraphMemCompact ;
+import org.apache.jena.shared.AddDeniedException ;
+import org.apache.jena.shared.DeleteDeniedException ;
+import org.apache.jena.shared.JenaException ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+
+public class TestGraphMemCompact extends AbstractTestGraph
+    {
+    public TestGraphMemCompact( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestGraphMemCompact.class ); }
+
+    @Override public Graph getGraph()
+        { return new GraphMemCompact(); }
+
+    private static final String[] patterns =
+        { "?? ?? ??", "s1 ?? ??", "?? P ??", "?? ?? o2", "s1 P ??", "s1 ?? o2", "?? P o2", "s1 P o2",
+          "?? ?? '1'xsd:int", "s3 ?? '01'xsd:integer", "?? Q '1'xsd:integer", "?? ?? absent", "absent ?? ??" };
+
+    private static List<Triple> data()
+        {
+        List<Triple> triples = new ArrayList<>();
+        for ( int i = 0 ; i < 50 ; i++ )
+            {
+            triples.add( triple( "s" + (i%7) + " P o" + (i%5) ) );
+            triples.add( triple( "s" + (i%11) + " Q o" + (i%3) ) );
+            triples.add( triple( "o" + (i%4) + " R s" + (i%9) ) );
+            }
+        triples.add( triple( "s3 Q '1'xsd:int" ) );
+        triples.add( triple( "s3 Q '01'xsd:int" ) );
+        triples.add( triple( "s4 Q '1'xsd:integer" ) );
+        return triples;
+        }
+
+    /** Compare find results, and sizes, with GraphMem. */
+    private static void assertSameFinds( Graph expected, Graph actual )
+        {
+        assertEquals( expected.size(), actual.size() );
+        for ( String p : patterns )
+            {
+            Triple pattern = triple( p );
+            assertEquals( p, iteratorToSet( expected.find( pattern ) ), iteratorToSet( actual.find( pattern ) ) );
+            assertEquals( p, expected.contains( pattern ), actual.contains( pattern ) );
+            }
+        }
+
+    public void testSameFindsAsGraphMem()
+        {
+        Graph expected = Factory.createGraphMem();
+        GraphMemCompact g = new GraphMemCompact();
+        data().forEach( expected::add );
+        data().forEach( g::add );
+        assertSameFinds( expected, g );
+        g.freeze();
+        assertTrue( g.isFrozen() );
+        assertSameFinds( expected, g );
+        }
+
+    public void testLoad()
+        {
+        Graph expected = Factory.createGraphMem();
+        data().forEach( expected::add );
+        GraphMemCompact g = new GraphMemCompact();
+        g.add( triple( "s1 P o1" ) );
+        // Duplicates, in the data and with the triple already in the graph.
+        g.load( data().iterator() );
+        g.load( data().iterator() );
+        assertSameFinds( expected, g );
+        g.add( triple( "x P y" ) );
+        g.delete( triple( "s1 P o1" ) );
+        expected.add( triple( "x P y" ) );
+        expected.delete( triple( "s1 P o1" ) );
+        assertSameFinds( expected, g );
+        }
+
+    public void testFrozenIsReadOnly()
+        {
+        GraphMemCompact g = new GraphMemCompact();
+        graphAdd( g, "x P y" );
+        g.freeze();
+        assertFalse( g.getCapabilities().addAllowed() );
+        try { g.add( triple( "a P b" ) ); fail( "Add to frozen graph" ); } catch (AddDeniedException ex) {}
+        try { g.delete( triple( "x P y" ) ); fail( "Delete from frozen graph" ); } catch (DeleteDeniedException ex) {}
+        try { g.load( data().iterator() ); fail( "Load into frozen graph" ); } catch (AddDeniedException ex) {}
+        assertTrue( g.contains( triple( "x P y" ) ) );
+        assertEquals( 1, g.size() );
+        }
+
+    public void testFreezeEmpty()
+        {
+        GraphMemCompact g = new GraphMemCompact();
+        g.freeze();
+        assertTrue( g.isEmpty() );
+        assertFalse( g.find( triple( "?? ?? ??" ) ).hasNext() );
+        assertFalse( g.contains( triple( "x P y" ) ) );
+        }
+
+    public void testCompaction()
+        {
+        // Enough deletes to trigger compaction on a later add.
+        Graph expected = Factory.createGraphMem();
+        GraphMemCompact g = new GraphMemCompact();
+        for ( int i = 0 ; i < 5000 ; i++ )
+            {
+            Triple t = triple( "s" + i + " P o" + (i%10) );
+            g.add( t );
+            expected.add( t );
+            }
+        for ( int i = 0 ; i < 5000 ; i++ )
+            {
+            if ( i%5 != 0 )
+                {
+                Triple t = triple( "s" + i + " P o" + (i%10) );
+                g.delete( t );
+                expected.delete( t );
+                }
+            }
+        g.add( triple( "s1 P o2" ) );
+        expected.add( triple( "s1 P o2" ) );
+        assertSameFinds( expected, g );
+        assertEquals( iteratorToSet( expected.find( triple( "?? P o5" ) ) ), iteratorToSet( g.find( triple( "?? P o5" ) ) ) );
+        }
+
+    public void testIteratorRemove()
+        {
+        Graph g = getGraphWith( "x P a; x P b; x Q c; y P a" );
+        ExtendedIterator<Triple> it = g.find( triple( "?? P ??" ) );
+        while ( it.hasNext() )
+            {
+            it.next();
+            it.remove();
+            }
+        assertEquals( 1, g.size() );
+        assertTrue( g.contains( triple( "x Q c" ) ) );
+        assertFalse( g.find( triple( "?? ?? a" ) ).hasNext() );
+        }
+
+    public void testAddThenNextThrowsCME()
+        {
+        Graph g = getGraphWith( "a P b; c Q d" );
+        ExtendedIterator<Triple> it = g.find( triple( "?? ?? ??" ) );
+        it.next();
+        g.add( triple( "change its state" ) );
+        try { it.next(); fail( "should have thrown ConcurrentModificationException" ); }
+        catch (ConcurrentModificationException e) {}
+        }
+
+    public void testDeleteThenNextThrowsCME()
+        {
+        Graph g = getGraphWith( "a P b; c Q d" );
+        ExtendedIterator<Triple> it = g.find( triple( "?? ?? ??" ) );
+        it.next();
+        g.delete( triple( "a P b" ) );
+        try { it.next(); fail( "should have thrown ConcurrentModificationException" ); }
+        catch (ConcurrentModificationException e) {}
+        }
+
+    public void testContainsConcreteDoesntUseFind()
+        {
+        Graph g = new GraphMemCompactWithoutFind();
+        graphAdd( g, "x P y; a Q b" );
+        assertTrue( g.contains( triple( "x P y" ) ) );
+        assertTrue( g.contains( triple( "a Q b" ) ) );
+        assertFalse( g.contains( triple( "a P y" ) ) );
+        assertFalse( g.contains( triple( "y R b" ) ) );
+        }
+
+    protected final class GraphMemCompactWithoutFind extends GraphMemCompact
+        {
+        @Override public ExtendedIterator<Triple> graphBaseFind( Triple t )
+            { throw new JenaException( "find is Not Allowed" ); }
+        }
+    }
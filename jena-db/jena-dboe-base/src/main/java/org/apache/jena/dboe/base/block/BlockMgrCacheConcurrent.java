@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caching block manager for concurrent readers.
+ * <p>
+ * Unlike {@link BlockMgrCache}, the read path is not synchronized on the
+ * BlockMgr. The read cache is a striped CLOCK cache
+ * ({@link CacheFactory#createClockCache}): a cache hit takes no lock, and a
+ * miss only locks one stripe of the cache while the block is read from the
+ * underlying BlockMgr.
+ * <p>
+ * Update operations are synchronized. There is only ever one writer (MRSW) and
+ * the writer works on blocks allocated in its own transaction, which readers in
+ * other transactions do not see.
+ */
+public class BlockMgrCacheConcurrent extends BlockMgrWrapper {
+    private static Logger            log            = LoggerFactory.getLogger(BlockMgrCacheConcurrent.class);
+
+    // Read cache : always present.
+    private final Cache<Long, Block> readCache;
+
+    // Delayed dirty writes. May be present, may not.
+    private final Cache<Long, Block> writeCache;
+
+    // Also enable the logging level.
+    public static boolean            globalLogging  = false;
+    private boolean                  logging        = false;
+    // ---- stats
+    private final LongAdder          cacheReadHits  = new LongAdder();
+    private final LongAdder          cacheMisses    = new LongAdder();
+    private final LongAdder          cacheWriteHits = new LongAdder();
+
+    static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+        if ( readSlots < 0 && writeSlots < 0 )
+            return blockMgr;
+        return new BlockMgrCacheConcurrent(readSlots, writeSlots, blockMgr);
+    }
+
+    private BlockMgrCacheConcurrent(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+        super(blockMgr);
+        if ( readSlots <= 0 )
+            readCache = CacheFactory.createNullCache();
+        else
+            readCache = CacheFactory.createClockCache(readSlots);
+        if ( writeSlots <= 0 )
+            writeCache = null;
+        else {
+            writeCache = CacheFactory.createClockCache(writeSlots);
+            // Called on eviction only, inside a synchronized update operation.
+            writeCache.setDropHandler((id, block) -> {
+                log("Cache spill: write block: %d", id);
+                BlockMgrCacheConcurrent.super.write(block);
+            });
+        }
+    }
+
+    @Override
+    public Block getRead(long id) {
+        Long key = id;
+        Block blk = readCache.getIfPresent(key);
+        if ( blk != null ) {
+            cacheReadHits.increment();
+            return blk;
+        }
+        // Writable blocks are readable.
+        if ( writeCache != null ) {
+            blk = writeCache.getIfPresent(key);
+            if ( blk != null ) {
+                cacheWriteHits.increment();
+                return blk;
+            }
+        }
+        cacheMisses.increment();
+        log("Miss/r: %d", id);
+        // Fill under the stripe lock so a concurrent overwrite is not lost.
+        return readCache.getOrFill(key, ()->super.getRead(id));
+    }
+
+    @Override
+    synchronized public Block getWrite(long _id) {
+        Long id = _id;
+        Block blk = null;
+        if ( writeCache != null )
+            blk = writeCache.getIfPresent(id);
+        if ( blk != null ) {
+            cacheWriteHits.increment();
+            log("Hit(w->w) : %d", id);
+            return blk;
+        }
+
+        // A requested block may be in the other cache. Promote it.
+        blk = readCache.getIfPresent(id);
+        if ( blk != null ) {
+            cacheReadHits.increment();
+            log("Hit(w->r) : %d", id);
+            return promote(blk);
+        }
+
+        cacheMisses.increment();
+        log("Miss/w: %d", id);
+        blk = super.getWrite(id);
+        if ( writeCache != null )
+            writeCache.put(id, blk);
+        return blk;
+    }
+
+    @Override
+    synchronized public Block allocate(int blockSize) {
+        return super.allocate(blockSize);
+    }
+
+    @Override
+    synchronized public Block promote(Block block) {
+        Long id = block.getId();
+        readCache.remove(id);
+        Block block2 = super.promote(block);
+        if ( writeCache != null )
+            writeCache.put(id, block2);
+        return block2;
+    }
+
+    @Override
+    synchronized public void write(Block block) {
+        Long id = block.getId();
+        log("WriteCache : %d", id);
+        if ( writeCache != null )
+            writeCache.put(id, block);
+        super.write(block);
+    }
+
+    @Override
+    synchronized public void overwrite(Block block) {
+        Long id = block.getId();
+        super.overwrite(block);
+        // Keep read cache up-to-date.
+        readCache.put(id, block);
+    }
+
+    @Override
+    synchronized public void free(Block block) {
+        Long id = block.getId();
+        log("Free  : %d", id);
+        readCache.remove(id);
+        if ( writeCache != null )
+            writeCache.remove(id);
+        super.free(block);
+    }
+
+    @Override
+    synchronized public void resetAlloc(long boundary) {
+        // On abort, clear the caches of inaccessible blocks.
+        removeFrom(readCache, boundary);
+        if ( writeCache != null )
+            removeFrom(writeCache, boundary);
+        super.resetAlloc(boundary);
+    }
+
+    private static void removeFrom(Cache<Long, Block> cache, long boundary) {
+        List<Long> removals = new ArrayList<>();
+        cache.keys().forEachRemaining((x)->{
+            if ( x >= boundary )
+                removals.add(x);
+        });
+        removals.forEach(cache::remove);
+    }
+
+    @Override
+    synchronized public boolean valid(int id) {
+        return super.valid(id);
+    }
+
+    @Override
+    synchronized public void sync() {
+        _sync(false);
+    }
+
+    @Override
+    synchronized public void syncForce() {
+        _sync(true);
+    }
+
+    @Override
+    synchronized public void close() {
+        syncFlush();
+        super.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheConcurrent:" + super.blockMgr.toString();
+    }
+
+    private void log(String fmt, Object... args) {
+        if ( !logging && !globalLogging )
+            return;
+        String msg = String.format(fmt, args);
+        if ( getLabel() != null )
+            msg = getLabel() + " : " + msg;
+        log.debug(msg);
+    }
+
+    private void _sync(boolean force) {
+        log("H=%d, M=%d, W=%d", cacheReadHits.sum(), cacheMisses.sum(), cacheWriteHits.sum());
+        boolean somethingWritten = syncFlush();
+        if ( force )
+            super.syncForce();
+        else if ( somethingWritten )
+            super.sync();
+    }
+
+    private boolean syncFlush() {
+        if ( writeCache == null || writeCache.isEmpty() )
+            return false;
+        log("Flush (write cache)");
+        Iterator<Long> iter = writeCache.keys();
+        while ( iter.hasNext() ) {
+            Long id = iter.next();
+            Block block = writeCache.getIfPresent(id);
+            if ( block == null )
+                continue;
+            super.write(block);
+            writeCache.remove(id);
+            // Often read after writing.
+            readCache.put(id, block);
+        }
+        super.sync();
+        return true;
+    }
+}
@@ -45,6 +45,7 @@ public class BlockMgrFactory {
     public static BlockMgr create(FileSet fileSet, String ext, BlockParams params) {
         return create(fileSet, ext,
                       params.getFileMode(),
+                      params.getBlockCacheMode(),
                       params.getBlockSize(),
                       params.getBlockReadCacheSize(),
                       params.getBlockWriteCacheSize());
@@ -56,10 +57,15 @@ public class BlockMgrFactory {
 
     // XXX Deprecate?
     public static BlockMgr create(FileSet fileSet, String ext, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return create(fileSet, ext, fileMode, null, blockSize, readBlockCacheSize, writeBlockCacheSize);
+    }
+
+    public static BlockMgr create(FileSet fileSet, String ext, FileMode fileMode, BlockCacheMode cacheMode,
+                                  int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
         if ( fileSet.isMem() )
             return createMem(fileSet.filename(ext), blockSize);
         else
-            return createFile(fileSet.filename(ext), fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize);
+            return createFile(fileSet.filename(ext), fileMode, cacheMode, blockSize, readBlockCacheSize, writeBlockCacheSize);
     }
 
     /** Create an in-memory block manager */
@@ -75,19 +81,25 @@ public class BlockMgrFactory {
     /** Create a BlockMgr backed by a real file */
     public static BlockMgr createFile(String filename, BlockParams params) {
         return createFile(filename,
-                          params.getFileMode(), params.getBlockSize(),
+                          params.getFileMode(), params.getBlockCacheMode(), params.getBlockSize(),
                           params.getBlockReadCacheSize(), params.getBlockWriteCacheSize());
     }
 
-        /** Create a BlockMgr backed by a real file */
+    /** Create a BlockMgr backed by a real file */
     public static BlockMgr createFile(String filename, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return createFile(filename, fileMode, null, blockSize, readBlockCacheSize, writeBlockCacheSize);
+    }
+
+    /** Create a BlockMgr backed by a real file, choosing the kind of block cache used for direct mode. */
+    public static BlockMgr createFile(String filename, FileMode fileMode, BlockCacheMode cacheMode,
+                                      int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
         if ( fileMode == null )
             fileMode = SystemIndex.fileMode();
         switch (fileMode) {
             case mapped :
                 return createMMapFile(filename, blockSize);
             case direct :
-                return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize);
+                return createStdFile(filename, cacheMode, blockSize, readBlockCacheSize, writeBlockCacheSize);
         }
         throw new DBOpEnvException("Unknown file mode: " + fileMode);
     }
@@ -101,9 +113,14 @@ public class BlockMgrFactory {
 
     /** Create a Block Manager using direct access (and a cache) */
     public static BlockMgr createStdFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return createStdFile(filename, null, blockSize, readBlockCacheSize, writeBlockCacheSize);
+    }
+
+    /** Create a Block Manager using direct access and the given kind of cache (null means {@link BlockCacheMode#lru}). */
+    public static BlockMgr createStdFile(String filename, BlockCacheMode cacheMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
         BlockAccess file = new BlockAccessDirect(filename, blockSize);
         BlockMgr blockMgr = wrapFileAccess(file, blockSize);
-        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize);
+        blockMgr = addCache(blockMgr, cacheMode, readBlockCacheSize, writeBlockCacheSize);
         return track(blockMgr);
     }
 
@@ -123,8 +140,19 @@ public class BlockMgrFactory {
      * @see #addCache(BlockMgr, FileSet, FileMode, int, int)
      */
     public static BlockMgr addCache(BlockMgr blockMgr, int readBlockCacheSize, int writeBlockCacheSize) {
-        if ( blockMgr instanceof BlockMgrCache )
+        return addCache(blockMgr, BlockCacheMode.lru, readBlockCacheSize, writeBlockCacheSize);
+    }
+
+    /**
+     * Add a caching layer of the given kind to a BlockMgr.
+     * A null {@code cacheMode} means {@link BlockCacheMode#lru}.
+     * This function always add the cache.
+     */
+    public static BlockMgr addCache(BlockMgr blockMgr, BlockCacheMode cacheMode, int readBlockCacheSize, int writeBlockCacheSize) {
+        if ( blockMgr instanceof BlockMgrCache || blockMgr instanceof BlockMgrCacheConcurrent )
             Log.warn(BlockMgrFactory.class, "BlockMgr already has a cache: " + blockMgr.getLabel());
+        if ( cacheMode == BlockCacheMode.concurrent )
+            return BlockMgrCacheConcurrent.create(readBlockCacheSize, writeBlockCacheSize, blockMgr);
         return BlockMgrCache.create(readBlockCacheSize, writeBlockCacheSize, blockMgr);
     }
 
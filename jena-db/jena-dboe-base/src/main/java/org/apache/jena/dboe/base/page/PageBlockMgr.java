@@ -18,6 +18,10 @@
 
 package org.apache.jena.dboe.base.page;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.logging.Log;
@@ -31,6 +35,7 @@ public class PageBlockMgr<T extends Page> implements Closeable
 {
     protected final BlockMgr blockMgr;
     protected BlockConverter<T> pageFactory;
+    private IntSupplier freeBlocks = null;
 
     protected PageBlockMgr(BlockConverter<T> pageFactory, BlockMgr blockMgr) {
         this.pageFactory = pageFactory;
@@ -48,9 +53,50 @@ public class PageBlockMgr<T extends Page> implements Closeable
         blockMgr.resetAlloc(boundary);
     }
 
+    /**
+     * Set a source of ids of blocks that are no longer in use and can be used for new
+     * pages instead of allocating fresh blocks. The source returns -1 when there is no
+     * such block. Pass null to always allocate fresh blocks.
+     */
+    public void setFreeBlocks(IntSupplier freeBlocks) {
+        this.freeBlocks = freeBlocks;
+    }
+
+    /** Allocate a block, reusing a free block if there is one. */
+    private Block allocate() {
+        if ( freeBlocks != null ) {
+            int id = freeBlocks.getAsInt();
+            if ( id >= 0 ) {
+                Block block = blockMgr.getWrite(id);
+                block.setReadOnly(false);
+                // As if freshly allocated.
+                ByteBuffer bb = block.getByteBuffer();
+                zero(bb);
+                bb.clear();
+                return block;
+            }
+        }
+        return blockMgr.allocate(-1);
+    }
+
+    private static final byte[] zeroBlock = new byte[8*1024];
+
+    /** Zero the whole of a byte buffer with bulk operations. */
+    private static void zero(ByteBuffer bb) {
+        if ( bb.hasArray() ) {
+            Arrays.fill(bb.array(), bb.arrayOffset(), bb.arrayOffset()+bb.capacity(), (byte)0);
+            return;
+        }
+        // Direct or mapped buffer.
+        ByteBuffer dst = bb.duplicate();
+        dst.clear();
+        while ( dst.hasRemaining() )
+            dst.put(zeroBlock, 0, Math.min(zeroBlock.length, dst.remaining()));
+    }
+
     /** Allocate a new thing */
     public T create(BlockType bType) {
-        Block block = blockMgr.allocate(-1);
+        Block block = allocate();
         block.setModified(true);
         T page = pageFactory.createFromBlock(block, bType);
         return page;
@@ -171,7 +217,7 @@ public class PageBlockMgr<T extends Page> implements Closeable
         Block block = page.getBackingBlock();
         block.getByteBuffer().rewind();
 
-        Block block2 =  blockMgr.allocate(-1);
+        Block block2 = allocate();
         block2.getByteBuffer().put(block.getByteBuffer());
         block2.getByteBuffer().rewind();
         block2.setReadOnly(false);
@@ -74,6 +74,9 @@ public class Names
     public static final String optFixed                 = "fixed.opt";
     public static final String optNone                  = "none.opt";
     public static final String optDefault               = optFixed;
+    /** Statistics maintained as the data changes */
+    public static final String liveStatsBaseName        = "live-stats";
+    public static final String extLiveStats             = "dat";
 
     public static final String extMeta                  = "info";
     public static final String directoryMetafile        = "this";          // Root name of the directory for a metafile.
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.apache.jena.atlas.lib.ByteBufferLib.fill;
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.ConfigTestDBOE;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestBlockMgrCacheConcurrent extends AbstractTestBlockMgr
+{
+    static final String filename = ConfigTestDBOE.getTestingDir()+"/block-mgr-concurrent";
+
+    @BeforeClass static public void remove1() { FileOps.delete(filename); }
+    @AfterClass  static public void remove2() { FileOps.delete(filename); }
+
+    @Override
+    protected BlockMgr make() {
+        FileOps.delete(filename);
+        // Small caches to force eviction.
+        return BlockMgrFactory.createStdFile(filename, BlockCacheMode.concurrent, BlkSize, 5, 3);
+    }
+
+    @Test
+    public void concurrentRead01() throws Exception {
+        int N = 50;
+        long[] ids = new long[N];
+        for ( int i = 0 ; i < N ; i++ ) {
+            Block block = blockMgr.allocate(BlkSize);
+            fill(block.getByteBuffer(), (byte)i);
+            ids[i] = block.getId();
+            blockMgr.write(block);
+            blockMgr.release(block);
+        }
+        blockMgr.sync();
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for ( int t = 0 ; t < threads ; t++ ) {
+                int seed = t;
+                results.add(executor.submit(()->{
+                    for ( int j = 0 ; j < 1000 ; j++ ) {
+                        int i = (seed*31+j*7) % N;
+                        Block block = blockMgr.getRead(ids[i]);
+                        ByteBuffer bb = block.getByteBuffer();
+                        assertEquals((byte)i, bb.get(0));
+                        assertEquals((byte)i, bb.get(BlkSize-1));
+                        blockMgr.release(block);
+                    }
+                }));
+            }
+            for ( Future<?> f : results )
+                f.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.dboe.trans.bplustree;
+
+import java.util.BitSet;
+
+/**
+ * The blocks of one block manager of a {@link BPlusTree} that are no longer
+ * reachable from any root in use and so can be written again.
+ * <p>
+ * Blocks are found by a scan from the root of a read transaction (see
+ * {@link BPlusTree#scanFreeBlocks}). They are first "pending" and become
+ * "available" when no transaction that can see an older root is active (see
+ * {@link BPlusTree#releaseFreeBlocks}). The write transaction takes available
+ * blocks; on abort, they are returned.
+ * <p>
+ * This is not persistent. After a restart, the blocks are found again by the next
+ * scan.
+ */
+final class BPTreeFreeBlocks {
+    private final BitSet available = new BitSet();
+    private BitSet pending = new BitSet();
+    // Taken by the active write transaction.
+    private final BitSet inUse = new BitSet();
+    // Taken or committed since the last scan started.
+    private BitSet recent = new BitSet();
+    // During a scan, blocks that may be reachable from a root the scan does not see.
+    private BitSet scanExclude = null;
+
+    /** Take a free block for the write transaction; return -1 if there are none. */
+    synchronized int take() {
+        int id = available.nextSetBit(0);
+        if ( id < 0 )
+            return -1;
+        available.clear(id);
+        inUse.set(id);
+        recent.set(id);
+        if ( scanExclude != null )
+            scanExclude.set(id);
+        return id;
+    }
+
+    /** The write transaction committed: blocks it took are now part of the tree. */
+    synchronized void committed() {
+        recent.or(inUse);
+        inUse.clear();
+    }
+
+    /** The write transaction aborted: blocks it took are free again. */
+    synchronized void aborted() {
+        available.or(inUse);
+        inUse.clear();
+    }
+
+    /**
+     * Start a scan. This is called after the scan's read transaction has begun so any
+     * block taken by a transaction that committed after that point is in
+     * {@code recent} or {@code inUse}.
+     */
+    synchronized void startScan() {
+        scanExclude = (BitSet)recent.clone();
+        scanExclude.or(inUse);
+        recent = new BitSet();
+    }
+
+    /**
+     * Finish a scan with the blocks not reachable from the root it used.
+     * Return the number of blocks that are newly pending.
+     */
+    synchronized long finishScan(BitSet unreachable) {
+        unreachable.andNot(scanExclude);
+        unreachable.andNot(available);
+        unreachable.andNot(pending);
+        unreachable.andNot(inUse);
+        scanExclude = null;
+        pending.or(unreachable);
+        return unreachable.cardinality();
+    }
+
+    /** Abandon a scan. */
+    synchronized void cancelScan() {
+        if ( scanExclude != null )
+            recent.or(scanExclude);
+        scanExclude = null;
+    }
+
+    /** Make the pending blocks available. Return the number of blocks. */
+    synchronized long release() {
+        long n = pending.cardinality();
+        available.or(pending);
+        pending = new BitSet();
+        return n;
+    }
+
+    /** Number of blocks available for reuse. */
+    synchronized long countAvailable() {
+        return available.cardinality();
+    }
+
+    /** Number of blocks found by a scan and waiting for older transactions to finish. */
+    synchronized long countPending() {
+        return pending.cardinality();
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.jena.dboe.trans.bplustree;
 
 import java.nio.ByteBuffer;
+import java.util.BitSet;
 import java.util.Iterator;
 
 import org.apache.jena.atlas.io.IndentedWriter;
@@ -128,6 +129,12 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
     private final BPlusTreeParams bpTreeParams;
     private Mode mode = Mode.TRANSACTIONAL;
     private BptTxnState nonTxnState = null;
+    // Allocation limits of the last commit. Changes with rootIdx.
+    private long committedBlocksNode = -1;
+    private long committedBlocksRecord = -1;
+    // Blocks no longer in use, found by scanFreeBlocks.
+    private final BPTreeFreeBlocks freeNodeBlocks = new BPTreeFreeBlocks();
+    private final BPTreeFreeBlocks freeRecordsBlocks = new BPTreeFreeBlocks();
 
     // Construction is a two stage process
     //    1/ Create the object, uninitialized
@@ -146,9 +153,31 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         // Some of these point to the BPlusTree object so we create the BPlusTree as
         // basic structure then initialize fully here.
         this.rootIdx = stateManager.getRoot();
+        this.committedBlocksNode = stateManager.getNodeBlocksLimit();
+        this.committedBlocksRecord = stateManager.getRecordsBlocksLimit();
         this.stateManager = stateManager;
         this.nodeManager = nodeManager;
         this.recordsMgr = recordsMgr;
+        nodeManager.setFreeBlocks(this::takeFreeNodeBlock);
+        recordsMgr.setFreeBlocks(this::takeFreeRecordsBlock);
+    }
+
+    private int takeFreeNodeBlock() {
+        if ( ! isTransactional() || ! super.isActiveTxn() || ! super.isWriteTxn() )
+            return -1;
+        int id = freeNodeBlocks.take();
+        if ( id >= 0 )
+            getDataState().reusedNodeBlock(id);
+        return id;
+    }
+
+    private int takeFreeRecordsBlock() {
+        if ( ! isTransactional() || ! super.isActiveTxn() || ! super.isWriteTxn() )
+            return -1;
+        int id = freeRecordsBlocks.take();
+        if ( id >= 0 )
+            getDataState().reusedRecordsBlock(id);
+        return id;
     }
 
     private BPTreeNode getRootRead() {
@@ -457,6 +486,87 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         finally { releaseRootRead(root); }
     }
 
+    /**
+     * Find the blocks that are not reachable from the root of the current read
+     * transaction and are below its allocation limits. These blocks are not used by
+     * this transaction or by any later one but may still be used by active
+     * transactions that started earlier. Call {@link #releaseFreeBlocks()} when there
+     * are no such transactions.
+     * <p>
+     * Only the branch nodes are read. {@code perBlock} is called for each block
+     * visited, for example, to limit the rate of the scan or to abandon it by throwing
+     * an exception.
+     * <p>
+     * Return the number of blocks newly found.
+     */
+    public long scanFreeBlocks(Runnable perBlock) {
+        if ( ! isTransactional() )
+            throw new BPTreeException("Not a transactional B+Tree");
+        super.requireTxn();
+        if ( super.isWriteTxn() )
+            throw new BPTreeException("Scan for free blocks in a write transaction");
+        BptTxnState state = getDataState();
+        BitSet nodes = new BitSet();
+        BitSet records = new BitSet();
+        freeNodeBlocks.startScan();
+        freeRecordsBlocks.startScan();
+        boolean completed = false;
+        startReadBlkMgr();
+        try {
+            markReachable(state.getRoot(), nodes, records, perBlock);
+            completed = true;
+        } finally {
+            finishReadBlkMgr();
+            if ( ! completed ) {
+                freeNodeBlocks.cancelScan();
+                freeRecordsBlocks.cancelScan();
+            }
+        }
+        // Unreachable = not marked, below the limits of this transaction.
+        nodes.flip(0, (int)state.boundaryBlocksNode);
+        records.flip(0, (int)state.boundaryBlocksRecord);
+        return freeNodeBlocks.finishScan(nodes) + freeRecordsBlocks.finishScan(records);
+    }
+
+    private void markReachable(int id, BitSet nodes, BitSet records, Runnable perBlock) {
+        nodes.set(id);
+        perBlock.run();
+        BPTreeNode node = nodeManager.getRead(id, BPlusTreeParams.UnsetParent);
+        try {
+            // A node with count n has n+1 pointers.
+            int numPtrs = node.getCount() + 1;
+            for ( int i = 0 ; i < numPtrs ; i++ ) {
+                int childId = node.getPtrBuffer().get(i);
+                if ( node.isLeaf() ) {
+                    records.set(childId);
+                    perBlock.run();
+                } else
+                    markReachable(childId, nodes, records, perBlock);
+            }
+        } finally {
+            node.release();
+        }
+    }
+
+    /**
+     * Make the blocks found by {@link #scanFreeBlocks} available to write
+     * transactions. Call only when every transaction active at the time of the scan
+     * has finished. Return the number of blocks.
+     */
+    public long releaseFreeBlocks() {
+        return freeNodeBlocks.release() + freeRecordsBlocks.release();
+    }
+
+    /** Number of blocks, nodes and records, available for reuse. */
+    public long countFreeBlocks() {
+        return freeNodeBlocks.countAvailable() + freeRecordsBlocks.countAvailable();
+    }
+
+    /** Number of blocks, nodes and records, found by a scan and not yet released. */
+    public long countPendingFreeBlocks() {
+        return freeNodeBlocks.countPending() + freeRecordsBlocks.countPending();
+    }
+
     public void nonTransactional() {
         setMode(Mode.MUTABLE);
     }
@@ -492,6 +602,8 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
     public void recover(ByteBuffer ref) {
         stateManager.setState(ref);
         rootIdx = stateManager.getRoot();
+        committedBlocksNode = stateManager.getNodeBlocksLimit();
+        committedBlocksRecord = stateManager.getRecordsBlocksLimit();
         nodeManager.resetAlloc(stateManager.getNodeBlocksLimit());
         recordsMgr.resetAlloc(stateManager.getRecordsBlocksLimit());
     }
@@ -506,6 +618,10 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
 
     @Override
     protected BptTxnState _begin(ReadWrite readWrite, TxnId txnId) {
+        if ( readWrite == ReadWrite.READ )
+            // The limits of the committed state, not including blocks a concurrent
+            // writer has allocated. Readers do not use the limits except to scan.
+            return new BptTxnState(rootIdx, committedBlocksNode, committedBlocksRecord);
         return createState();
     }
 
@@ -526,8 +642,10 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
 
     @Override
     protected ByteBuffer _commitPrepare(TxnId txnId, BptTxnState state) {
-        nodeManager.getBlockMgr().sync();
-        recordsMgr.getBlockMgr().sync();
+        if ( ! isDeferredSync() ) {
+            nodeManager.getBlockMgr().sync();
+            recordsMgr.getBlockMgr().sync();
+        }
 
         long nodeLimit = nodeManager.allocLimit();
         long recordsLimit = recordsMgr.allocLimit();
@@ -540,7 +658,13 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
     protected void _commit(TxnId txnId, BptTxnState state) {
         if ( isWriteTxn() ) {
             rootIdx = state.getRoot();
-            stateManager.sync();
+            committedBlocksNode = stateManager.getNodeBlocksLimit();
+            committedBlocksRecord = stateManager.getRecordsBlocksLimit();
+            // When deferred, the state is written by syncCommittedState.
+            if ( ! isDeferredSync() )
+                stateManager.sync();
+            freeNodeBlocks.committed();
+            freeRecordsBlocks.committed();
         }
     }
 
@@ -555,13 +679,33 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
             nodeManager.resetAlloc(state.boundaryBlocksNode);
             recordsMgr.resetAlloc(state.boundaryBlocksRecord);
             stateManager.setState(state.initialroot, state.boundaryBlocksNode, state.boundaryBlocksRecord);
-            stateManager.sync();
+            // The committed state may not be on disk yet.
+            if ( ! isDeferredSync() )
+                stateManager.sync();
+            freeNodeBlocks.aborted();
+            freeRecordsBlocks.aborted();
         }
     }
 
     @Override
     protected void _complete(TxnId txnId, BptTxnState state) {}
 
+    @Override
+    public boolean supportsDeferredSync() {
+        return true;
+    }
+
+    @Override
+    public void syncCommittedData() {
+        nodeManager.getBlockMgr().sync();
+        recordsMgr.getBlockMgr().sync();
+    }
+
+    @Override
+    public void syncCommittedState() {
+        stateManager.sync();
+    }
+
     @Override
     protected void _shutdown() {}
 }
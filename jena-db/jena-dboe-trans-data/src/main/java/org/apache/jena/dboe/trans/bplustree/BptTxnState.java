@@ -18,6 +18,8 @@
 
 package org.apache.jena.dboe.trans.bplustree;
 
+import java.util.BitSet;
+
 /** Transactional state of a {@link BPlusTree} */
 final class BptTxnState {
     final int initialroot;
@@ -29,6 +31,10 @@ final class BptTxnState {
     final long boundaryBlocksNode;
     final long boundaryBlocksRecord;
 
+    // Blocks below the boundary that are free and have been taken by this write transaction.
+    private BitSet reusedBlocksNode = null;
+    private BitSet reusedBlocksRecord = null;
+
     BptTxnState(int initRoot, long boundaryNode, long boundaryRecords) {
         this.initialroot = initRoot;
         this.root = initRoot;
@@ -39,13 +45,25 @@ final class BptTxnState {
     boolean modifiableNodeBlock(int id) {
         if ( BPT.forcePromoteModes )
             return ! BPT.promoteDuplicateNodes;
-        return id >= boundaryBlocksNode;
+        return id >= boundaryBlocksNode || ( reusedBlocksNode != null && reusedBlocksNode.get(id) );
     }
 
     boolean modifiableRecordsBlock(int id) {
         if ( BPT.forcePromoteModes )
             return ! BPT.promoteDuplicateRecords;
-        return id >= boundaryBlocksRecord;
+        return id >= boundaryBlocksRecord || ( reusedBlocksRecord != null && reusedBlocksRecord.get(id) );
+    }
+
+    void reusedNodeBlock(int id) {
+        if ( reusedBlocksNode == null )
+            reusedBlocksNode = new BitSet();
+        reusedBlocksNode.set(id);
+    }
+
+    void reusedRecordsBlock(int id) {
+        if ( reusedBlocksRecord == null )
+            reusedBlocksRecord = new BitSet();
+        reusedBlocksRecord.set(id);
     }
 
     @Override
@@ -140,7 +140,8 @@ public class TransBinaryDataFile extends TransactionalComponentLifecycle<TransBi
     @Override
     protected ByteBuffer _commitPrepare(TxnId txnId, TxnBinFile txnResetState) {
         // Force to disk but do not set the on-disk state to record that.
-        binFile.sync();
+        if ( ! isDeferredSync() )
+            binFile.sync();
         fileState.length(binFile.length());
         return fileState.getState();
     }
@@ -149,7 +150,9 @@ public class TransBinaryDataFile extends TransactionalComponentLifecycle<TransBi
     protected void _commit(TxnId txnId, TxnBinFile txnResetState) {
         if ( isWriteTxn() ) {
             // Force data to disk happens in _commitPrepare
-            fileState.writeState();
+            // When deferred, syncCommittedData and syncCommittedState do the writing.
+            if ( ! isDeferredSync() )
+                fileState.writeState();
             committedLength.set(binFile.length());
         }
     }
@@ -175,6 +178,21 @@ public class TransBinaryDataFile extends TransactionalComponentLifecycle<TransBi
     @Override
     protected void _complete(TxnId txnId, TxnBinFile state) {}
 
+    @Override
+    public boolean supportsDeferredSync() {
+        return true;
+    }
+
+    @Override
+    public void syncCommittedData() {
+        binFile.sync();
+    }
+
+    @Override
+    public void syncCommittedState() {
+        fileState.sync();
+    }
+
     @Override
     protected void _shutdown() {}
 
@@ -42,6 +42,8 @@ public class TransBlob extends TransactionalComponentLifecycle<TransBlob.BlobSta
 
     private final AtomicReference<ByteBuffer> blobRef = new AtomicReference<>();
     private final BufferChannel file;
+    // Committed but not written to the file (deferred sync).
+    private volatile boolean unwritten = false;
 
     static class BlobState {
         private boolean hasChanged = false;
@@ -191,6 +193,10 @@ public class TransBlob extends TransactionalComponentLifecycle<TransBlob.BlobSta
             return;
         // Change reference.
         blobRef.set(state.getByteBuffer());
+        if ( isDeferredSync() ) {
+            unwritten = true;
+            return;
+        }
         // Write to persistent storage.
         // It's in the journal already, and is rewritten from the journal
         // if there is a crash at this point.
@@ -206,6 +212,19 @@ public class TransBlob extends TransactionalComponentLifecycle<TransBlob.BlobSta
     @Override
     protected void _complete(TxnId txnId, BlobState state) {}
 
+    @Override
+    public boolean supportsDeferredSync() {
+        return true;
+    }
+
+    @Override
+    public void syncCommittedState() {
+        if ( unwritten ) {
+            unwritten = false;
+            writeBlobState();
+        }
+    }
+
     @Override
     protected void _shutdown() {}
 
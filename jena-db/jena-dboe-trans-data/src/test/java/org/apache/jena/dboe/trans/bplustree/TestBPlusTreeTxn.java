@@ -202,4 +202,66 @@ public class TestBPlusTreeTxn extends Assert {
         } );
     }
 
+    // Blocks no longer in use are found and reused.
+    @Test public void bptree_txn_free_01() {
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 1, 2, 3, 4, 5, 6));
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 7, 8));
+        long found = Txn.calculateRead(thing, () -> bpt.scanFreeBlocks(()->{}));
+        assertTrue(found > 0);
+        assertEquals(0, bpt.countFreeBlocks());
+        assertEquals(found, bpt.releaseFreeBlocks());
+        assertEquals(found, bpt.countFreeBlocks());
+
+        // Scan again: nothing new.
+        long found2 = Txn.calculateRead(thing, () -> bpt.scanFreeBlocks(()->{}));
+        assertEquals(0, found2);
+
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 9));
+        assertTrue(bpt.countFreeBlocks() < found);
+        Txn.executeRead(thing, () -> IndexTestLib.testIndexContents(bpt, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    }
+
+    // Blocks taken by an aborted transaction are free again.
+    @Test public void bptree_txn_free_02() {
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 1, 2, 3, 4, 5, 6));
+        Txn.executeWrite(thing, () -> IndexTestLib.delete(bpt, 1, 2));
+        Txn.executeRead(thing, () -> bpt.scanFreeBlocks(()->{}));
+        long free = bpt.releaseFreeBlocks();
+        assertTrue(free > 0);
+
+        thing.begin(ReadWrite.WRITE);
+        IndexTestLib.add(bpt, 10, 11);
+        thing.abort();
+        thing.end();
+        assertEquals(free, bpt.countFreeBlocks());
+        Txn.executeRead(thing, () -> IndexTestLib.testIndexContents(bpt, 3, 4, 5, 6));
+    }
+
+    // A reader that started before the scan keeps its view.
+    @Test public void bptree_txn_free_03() {
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 1, 2, 3, 4, 5, 6));
+        thing.begin(ReadWrite.READ);
+        // Another thread: change the tree, scan, release and reuse.
+        Thread thread = new Thread(() -> {
+            Txn.executeWrite(thing, () -> IndexTestLib.delete(bpt, 1, 2, 3));
+            Txn.executeRead(thing, () -> bpt.scanFreeBlocks(()->{}));
+            // Not released: blocks are pending, the reader is still active.
+            Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 7, 8, 9));
+        });
+        thread.start();
+        try { thread.join(); } catch (InterruptedException ex) { fail(); }
+        assertTrue(bpt.countPendingFreeBlocks() > 0);
+        assertEquals(0, bpt.countFreeBlocks());
+        IndexTestLib.testIndexContents(bpt, 1, 2, 3, 4, 5, 6);
+        thing.end();
+        bpt.releaseFreeBlocks();
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 10));
+        Txn.executeRead(thing, () -> IndexTestLib.testIndexContents(bpt, 4, 5, 6, 7, 8, 9, 10));
+    }
 }
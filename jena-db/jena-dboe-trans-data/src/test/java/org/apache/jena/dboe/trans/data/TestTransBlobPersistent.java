@@ -28,6 +28,9 @@ import org.apache.jena.system.Txn;
 import org.apache.jena.dboe.transaction.Transactional;
 import org.apache.jena.dboe.transaction.TransactionalFactory;
 import org.apache.jena.dboe.transaction.txn.ComponentId;
+import org.apache.jena.dboe.transaction.txn.Durability;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.dboe.transaction.txn.TransactionalBase;
 import org.apache.jena.dboe.transaction.txn.journal.Journal;
 import org.junit.*;
 
@@ -113,5 +116,42 @@ public class TestTransBlobPersistent extends Assert {
             assertEquals(str, s);
         }
     }
-}
 
+    // Group commit: on disk when commit returns.
+    @Test public void transBlobFile_group_1() throws Exception {
+        Journal journal = Journal.create(Location.create(DIR));
+        BufferChannel chan = BufferChannelFile.create(DATA);
+        TransBlob transBlob = new TransBlob(ComponentId.allocLocal(), chan);
+        TransactionalBase transactional = (TransactionalBase)TransactionalFactory.createTransactional(journal, transBlob);
+        TransactionCoordinator coord = transactional.getTxnMgr();
+        coord.setDurability(Durability.GROUP);
+
+        Txn.executeWrite(transactional, ()->transBlob.setString("one"));
+        assertEquals(0, coord.countPendingCommits());
+        assertEquals("one", FileUtils.readWholeFileAsUTF8(DATA));
+        coord.shutdown();
+        chan.close();
+    }
+
+    // Async commit: visible, then on disk when flushed.
+    @Test public void transBlobFile_async_1() throws Exception {
+        Journal journal = Journal.create(Location.create(DIR));
+        BufferChannel chan = BufferChannelFile.create(DATA);
+        TransBlob transBlob = new TransBlob(ComponentId.allocLocal(), chan);
+        TransactionalBase transactional = (TransactionalBase)TransactionalFactory.createTransactional(journal, transBlob);
+        TransactionCoordinator coord = transactional.getTxnMgr();
+        coord.setGroupCommit(60_000, 1000);
+        coord.setDurability(Durability.ASYNC);
+
+        Txn.executeWrite(transactional, ()->transBlob.setString("one"));
+        assertEquals(1, coord.countPendingCommits());
+        assertEquals("one", TestTransBlob.read(transactional, transBlob));
+        assertEquals("", FileUtils.readWholeFileAsUTF8(DATA));
+
+        coord.flush();
+        assertEquals(0, coord.countPendingCommits());
+        assertEquals("one", FileUtils.readWholeFileAsUTF8(DATA));
+        coord.shutdown();
+        chan.close();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.transaction.txn;
+
+/**
+ * When the commit of a write transaction is on disk.
+ *
+ * @see TransactionCoordinator#setDurability(Durability)
+ */
+public enum Durability {
+    /** The commit is on disk when {@code commit()} returns. Each commit syncs the journal and the components. */
+    SYNC,
+    /**
+     * Commits are made durable in groups: commits within a short window share
+     * one journal write and one sync of each component. {@code commit()} returns
+     * when the commit is on disk but other transactions may see the changes
+     * from slightly before then.
+     */
+    GROUP,
+    /**
+     * As {@link #GROUP} but {@code commit()} returns without waiting for the
+     * commit to be on disk. The last commits can be lost if the system fails.
+     */
+    ASYNC
+}
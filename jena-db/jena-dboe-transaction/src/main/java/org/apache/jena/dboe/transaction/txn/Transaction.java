@@ -62,6 +62,8 @@ public class Transaction implements TransactionInfo {
     private final long dataVersion;
     private final TxnType txnType;
     private ReadWrite mode;
+    // Group commit: the commit to wait for before commit() returns.
+    private long durableCommit = 0;
 
     public Transaction(TransactionCoordinator txnMgr, TxnType txnType, ReadWrite readWrite, TxnId txnId, long dataVersion, List<SysTrans> components) {
         Objects.requireNonNull(txnMgr);
@@ -180,6 +182,7 @@ public class Transaction implements TransactionInfo {
         }
         setState(COMMITTED);
         endInternal();
+        txnMgr.awaitDurable(this);
     }
 
     public void abort() {
@@ -235,6 +238,20 @@ public class Transaction implements TransactionInfo {
         setState(ACTIVE);
     }
 
+    /*package*/ void setDurableCommit(long seq) {
+        durableCommit = seq;
+    }
+
+    /*package*/ long getDurableCommit() {
+        return durableCommit;
+    }
+
+    /** Whether components leave making the commit durable to the coordinator. */
+    /*package*/ boolean isDeferredSync() {
+        TransactionCoordinator coordinator = txnMgr;
+        return coordinator != null && coordinator.isDeferredSync();
+    }
+
     /** Require a WRITE transaction - do not try to promote. */
     public void requireWriteTxn() {
         checkState(ACTIVE);
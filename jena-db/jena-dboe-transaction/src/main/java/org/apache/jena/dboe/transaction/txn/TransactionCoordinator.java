@@ -28,6 +28,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
@@ -61,6 +62,12 @@ import org.slf4j.Logger;
  * Exclusive mode is when the current thread is the only active code : no readers, no writers.
  * <p>
  * See {@link #startExclusiveMode()}/{@link #tryExclusiveMode()} {@link #finishExclusiveMode()}, {@link #execExclusive(Runnable)}
+ * <h3>Group commit</h3>
+ * With {@link Durability#GROUP} or {@link Durability#ASYNC}, a write transaction
+ * commits in memory, releases the writer lock and leaves the journal write and the
+ * syncs to a background flush that covers all the commits in a short window.
+ * <p>
+ * See {@link #setDurability(Durability)}, {@link #setGroupCommit(long, int)}, {@link #flush()}
  *
  * @see Transaction
  * @see TransactionalComponent
@@ -114,6 +121,28 @@ public class TransactionCoordinator {
     // Coordinator wide lock object.
     private Object coordinatorLock = new Object();
 
+    // Group commit.
+    public static final long DefaultGroupCommitWindowMillis = 10;
+    public static final int  DefaultGroupCommitMaxCommits   = 64;
+    private volatile Durability durability = Durability.SYNC;
+    private volatile long groupCommitWindowMillis = DefaultGroupCommitWindowMillis;
+    private volatile int groupCommitMaxCommits = DefaultGroupCommitMaxCommits;
+    // Held by the writer from prepare to the end of commit or abort, and during a flush,
+    // so that a flush only sees the state of committed transactions.
+    // Lock order: syncLock, coordinatorLock, groupLock.
+    private final ReentrantLock syncLock = new ReentrantLock();
+    // Journal entries of the writer between prepare and commit. Guarded by syncLock.
+    private final List<PrepareState> preparedEntries = new ArrayList<>();
+    // Journal entries of each commit that is not yet durable. Guarded by groupLock.
+    private final List<List<PrepareState>> pendingCommits = new ArrayList<>();
+    private final Object groupLock = new Object();
+    // Counts of deferred commits: all of them, those on disk, and those covered by a failed flush.
+    private long commitSeq = 0;
+    private long durableSeq = 0;
+    private long failedSeq = 0;
+    private Throwable flushFailure = null;
+    private Thread groupCommitThread = null;
+
     @FunctionalInterface
     public interface ShutdownHook { void shutdown(); }
 
@@ -148,6 +177,8 @@ public class TransactionCoordinator {
      */
     public TransactionCoordinator add(TransactionalComponent elt) {
         checkAllowModification();
+        if ( durability != Durability.SYNC && ! elt.supportsDeferredSync() )
+            throw new TransactionException("Component does not support deferred sync: "+elt.getComponentId());
         components.add(elt);
         return this;
     }
@@ -162,6 +193,11 @@ public class TransactionCoordinator {
         return this;
     }
 
+    /** Apply an action to each {@link TransactionalComponent}. */
+    public void forEachComponent(Consumer<? super TransactionalComponent> action) {
+        components.forEachComponent(action);
+    }
+
     public TransactionCoordinator addListener(TransactionListener listener) {
         checkAllowModification();
         listeners.add(listener);
@@ -304,6 +340,23 @@ public class TransactionCoordinator {
         return coordinatorState;
     }
 
+    /**
+     * Capture the per-thread state of a read transaction, running on the calling
+     * thread, so that other threads can read within the same transaction.
+     * The transaction stays attached to the calling thread.
+     */
+    public TransactionThreadState captureThreadState(Transaction txn) {
+        Objects.requireNonNull(txn);
+        if ( ! txn.isReadTxn() )
+            throw new TransactionException("captureThreadState: Not a read transaction: "+txn.getTxnId());
+        TransactionThreadState threadState = new TransactionThreadState(txn);
+        components.forEachComponent(c -> {
+            if ( c instanceof TransactionalComponentLifecycle )
+                threadState.capture((TransactionalComponentLifecycle<?>)c);
+        });
+        return threadState;
+    }
+
     public void attach(TransactionCoordinatorState coordinatorState) {
         Transaction txn = coordinatorState.transaction;
         txn.attach();
@@ -321,6 +374,9 @@ public class TransactionCoordinator {
             return;
         if ( ! silent && countActive() > 0 )
             FmtLog.warn(SysErr, "Transactions active: W=%d, R=%d", countActiveWriter(), countActiveReaders());
+        stopGroupCommit();
+        try { flush(); }
+        catch (RuntimeException ex) { SysErr.warn("Exception flushing commits during shutdown", ex); }
         components.forEach((id, c) -> c.shutdown());
         shutdownHooks.forEach((h)-> h.shutdown());
         coordinatorLock = null;
@@ -442,6 +498,7 @@ public class TransactionCoordinator {
      */
     public void blockWriters() {
         acquireWriterLock(true);
+        flush();
     }
 
     /** Try to block all writers, or return if can't at the moment.
@@ -469,7 +526,10 @@ public class TransactionCoordinator {
      * @return true if the operation succeeded and writers are blocked
      */
     public boolean tryBlockWriters(boolean canBlock) {
-        return acquireWriterLock(canBlock);
+        if ( ! acquireWriterLock(canBlock) )
+            return false;
+        flush();
+        return true;
     }
     /** Allow writers.
      * This must be used in conjunction with {@link #blockWriters()} or {@link #tryBlockWriters()}
@@ -499,6 +559,204 @@ public class TransactionCoordinator {
         finally { enableWriters(); }
     }
 
+    /**
+     * Set when commits of write transactions are on disk. The default is {@link Durability#SYNC}.
+     * <p>
+     * With {@link Durability#GROUP} and {@link Durability#ASYNC}, the changes of
+     * a write transaction are visible to other transactions once it commits in memory,
+     * which is before they are on disk. With {@link Durability#ASYNC}, the last
+     * commits are lost if the system fails before they are flushed; the database
+     * remains consistent.
+     * <p>
+     * Commits not yet on disk are flushed before the change.
+     * All the components must support deferred sync to use {@link Durability#GROUP}
+     * or {@link Durability#ASYNC}.
+     *
+     * @see #setGroupCommit(long, int)
+     */
+    public void setDurability(Durability mode) {
+        Objects.requireNonNull(mode);
+        if ( mode != Durability.SYNC ) {
+            components.forEachComponent(c -> {
+                if ( ! c.supportsDeferredSync() )
+                    throw new TransactionException("Component does not support deferred sync: "+c.getComponentId());
+            });
+        }
+        syncLock.lock();
+        try {
+            flush$();
+            durability = mode;
+        } finally { syncLock.unlock(); }
+        if ( mode == Durability.SYNC )
+            stopGroupCommit();
+        else
+            startGroupCommit();
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Set the group commit window: commits are flushed to disk together, the
+     * flush happening at most {@code windowMillis} after the first of them, or as soon
+     * as there are {@code maxCommits} to flush.
+     */
+    public void setGroupCommit(long windowMillis, int maxCommits) {
+        if ( windowMillis < 0 )
+            throw new IllegalArgumentException("Negative window: "+windowMillis);
+        if ( maxCommits < 1 )
+            throw new IllegalArgumentException("Group size must be at least one: "+maxCommits);
+        groupCommitWindowMillis = windowMillis;
+        groupCommitMaxCommits = maxCommits;
+        synchronized(groupLock) {
+            groupLock.notifyAll();
+        }
+    }
+
+    public long getGroupCommitWindowMillis() {
+        return groupCommitWindowMillis;
+    }
+
+    public int getGroupCommitMaxCommits() {
+        return groupCommitMaxCommits;
+    }
+
+    /*package*/ boolean isDeferredSync() {
+        return durability != Durability.SYNC;
+    }
+
+    /** Number of committed transactions that are not yet on disk. */
+    public long countPendingCommits() {
+        synchronized(groupLock) {
+            return pendingCommits.size();
+        }
+    }
+
+    /**
+     * Put all committed transactions on disk. This may wait for a write
+     * transaction that is committing. With {@link Durability#SYNC}, there is
+     * nothing to do.
+     */
+    public void flush() {
+        syncLock.lock();
+        try { flush$(); }
+        finally { syncLock.unlock(); }
+    }
+
+    // Inside syncLock: no writer is between prepare and the end of commit or abort.
+    private void flush$() {
+        List<List<PrepareState>> commits;
+        long seq;
+        synchronized(groupLock) {
+            if ( pendingCommits.isEmpty() )
+                return;
+            commits = new ArrayList<>(pendingCommits);
+            seq = commitSeq;
+        }
+        try {
+            // Data first, then the journal (the commit point on disk), then the state
+            // of the components. Recovery replays the journal if the state was not written.
+            components.forEachComponent(c -> c.syncCommittedData());
+            journal.startWrite();
+            try {
+                for ( List<PrepareState> entries : commits ) {
+                    entries.forEach(journal::write);
+                    journal.writeJournal(JournalEntry.COMMIT);
+                }
+                journal.commitWrite();
+            } finally { journal.endWrite(); }
+            components.forEachComponent(c -> c.syncCommittedState());
+            journal.truncate(0);
+            journal.sync();
+        } catch (RuntimeException ex) {
+            synchronized(groupLock) {
+                failedSeq = seq;
+                flushFailure = ex;
+                groupLock.notifyAll();
+            }
+            throw ex;
+        }
+        synchronized(groupLock) {
+            pendingCommits.clear();
+            durableSeq = seq;
+            groupLock.notifyAll();
+        }
+    }
+
+    /**
+     * Wait until the commit of a transaction is on disk, for {@link Durability#GROUP}.
+     * Called after the transaction has finished so that the writer lock and
+     * the exclusive mode lock are not held while waiting.
+     */
+    /*package*/ void awaitDurable(Transaction transaction) {
+        long seq = transaction.getDurableCommit();
+        if ( seq <= 0 )
+            return;
+        boolean interrupted = false;
+        try {
+            synchronized(groupLock) {
+                while ( durableSeq < seq ) {
+                    if ( failedSeq >= seq )
+                        throw new TransactionException("Transaction committed but not made durable", flushFailure);
+                    try { groupLock.wait(); }
+                    catch (InterruptedException ex) { interrupted = true; }
+                }
+            }
+        } finally {
+            if ( interrupted )
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startGroupCommit() {
+        synchronized(groupLock) {
+            if ( groupCommitThread != null )
+                return;
+            groupCommitThread = new Thread(this::groupCommit, "GroupCommit");
+            groupCommitThread.setDaemon(true);
+            groupCommitThread.start();
+        }
+    }
+
+    private void stopGroupCommit() {
+        synchronized(groupLock) {
+            groupCommitThread = null;
+            groupLock.notifyAll();
+        }
+    }
+
+    // The background flush: wait for a commit, then for the window to pass or the group to fill.
+    private void groupCommit() {
+        Thread thread = Thread.currentThread();
+        try {
+            for (;;) {
+                synchronized(groupLock) {
+                    while ( groupCommitThread == thread && pendingCommits.isEmpty() )
+                        groupLock.wait();
+                    if ( groupCommitThread != thread )
+                        return;
+                    long deadline = System.currentTimeMillis() + groupCommitWindowMillis;
+                    while ( groupCommitThread == thread && pendingCommits.size() < groupCommitMaxCommits ) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if ( remaining <= 0 )
+                            break;
+                        groupLock.wait(remaining);
+                    }
+                }
+                try {
+                    flush();
+                } catch (RuntimeException ex) {
+                    SysErr.warn("Exception during group commit flush: "+ex.getMessage(), ex);
+                    // Try again later.
+                    Thread.sleep(Math.max(groupCommitWindowMillis, 100));
+                }
+            }
+        } catch (InterruptedException ex) {
+            SysLog.warn("Group commit thread interrupted");
+        }
+    }
+
     /** Start a transaction. This may block. */
     public Transaction begin(TxnType txnType) {
         return begin(txnType, true);
@@ -543,7 +801,6 @@ public class TransactionCoordinator {
             }
         }
         Transaction transaction = begin$(txnType);
-        startActiveTransaction(transaction);
         transaction.begin();
         notifyBegin(transaction);
         return transaction;
@@ -576,6 +833,8 @@ public class TransactionCoordinator {
                 //complete();
                 throw ex;
             }
+            // Active from the same point as its data version, see getOldestActiveDataVersion.
+            startActiveTransaction(transaction);
             return transaction;
         }
     }
@@ -713,9 +972,18 @@ public class TransactionCoordinator {
     /*package*/ void executePrepare(Transaction transaction) {
         // Do here because it needs access to the journal.
         notifyPrepareStart(transaction);
+        // Released at the end of commit or abort.
+        syncLock.lock();
+        preparedEntries.clear();
+        boolean deferred = isDeferredSync();
         transaction.getComponents().forEach(sysTrans -> {
             ByteBuffer data = sysTrans.commitPrepare();
             if ( data != null ) {
+                if ( deferred ) {
+                    // Kept until flushed; components may reuse the ByteBuffer.
+                    preparedEntries.add(new PrepareState(sysTrans.getComponentId(), copy(data)));
+                    return;
+                }
                 PrepareState s = new PrepareState(sysTrans.getComponentId(), data);
                 journal.write(s);
             }
@@ -731,18 +999,60 @@ public class TransactionCoordinator {
             return;
         }
         // Writer
-        journal.startWrite();
+        syncLock.lock();
+        Durability mode = durability;
+        long seq = 0;
         try {
-            executeCommitWriter(transaction, commit, finish, sysabort);
-            journal.commitWrite();
-        } catch (TransactionException ex) {
-            throw ex;
-        } catch (Throwable th) {
-            throw th;
-        } finally { journal.endWrite(); }
+            if ( mode == Durability.SYNC ) {
+                journal.startWrite();
+                try {
+                    executeCommitWriter(transaction, commit, finish, sysabort);
+                    journal.commitWrite();
+                } catch (TransactionException ex) {
+                    throw ex;
+                } catch (Throwable th) {
+                    throw th;
+                } finally { journal.endWrite(); }
+            } else {
+                seq = executeCommitDeferred(transaction, commit, finish);
+            }
+        } finally { releaseSyncLock(); }
+        if ( mode == Durability.GROUP )
+            transaction.setDurableCommit(seq);
         notifyCommitFinish(transaction);
     }
 
+    // Commit in memory; the journal entries are written by a later flush.
+    private long executeCommitDeferred(Transaction transaction, Runnable commit, Runnable finish) {
+        synchronized(coordinatorLock) {
+            List<PrepareState> entries = new ArrayList<>(preparedEntries);
+            preparedEntries.clear();
+            commit.run();
+            finish.run();
+            advanceDataVersion();
+            synchronized(groupLock) {
+                pendingCommits.add(entries);
+                groupLock.notifyAll();
+                return ++commitSeq;
+            }
+        }
+    }
+
+    // Release all holds (prepare and commit or abort) of the writer.
+    private void releaseSyncLock() {
+        while ( syncLock.isHeldByCurrentThread() )
+            syncLock.unlock();
+    }
+
+    private static ByteBuffer copy(ByteBuffer data) {
+        ByteBuffer src = data.duplicate();
+        src.rewind();
+        ByteBuffer bb = ByteBuffer.allocate(src.remaining());
+        bb.put(src);
+        bb.flip();
+        return bb;
+    }
+
     private void executeCommitWriter(Transaction transaction, Runnable commit, Runnable finish, Runnable sysabort) {
         synchronized(coordinatorLock) {
             try {
@@ -802,6 +1112,15 @@ public class TransactionCoordinator {
         dataVersion.incrementAndGet();
     }
 
+    /**
+     * The current data version. This increases each time a write transaction
+     * commits, after the commit has finished, so any transaction that begins after
+     * the data version has been read sees data at least as new as that version.
+     */
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
     /** Test whether the thread is interrupted and if it is, abort the transaction. */
     private void abandonIfInterruped(Transaction txn, Runnable sysabort, String msg) {
         // Clears interrupted status
@@ -844,7 +1163,14 @@ public class TransactionCoordinator {
 
     /*package*/ void executeAbort(Transaction transaction, Runnable abort) {
         notifyAbortStart(transaction);
-        abort.run();
+        if ( transaction.isWriteTxn() ) {
+            syncLock.lock();
+            try {
+                preparedEntries.clear();
+                abort.run();
+            } finally { releaseSyncLock(); }
+        } else
+            abort.run();
         notifyAbortFinish(transaction);
     }
 
@@ -890,6 +1216,20 @@ public class TransactionCoordinator {
         exclusivitylock.readLock().unlock();
     }
 
+    /**
+     * The lowest data version of any active transaction, or the current data version
+     * if there are no active transactions. Data that is not visible at this version is
+     * not visible to any active transaction or to any that starts later.
+     */
+    public long getOldestActiveDataVersion() {
+        synchronized(coordinatorLock) {
+            long version = dataVersion.get();
+            for ( Transaction txn : activeTransactions )
+                version = Math.min(version, txn.getDataVersion());
+            return version;
+        }
+    }
+
     public long countActiveReaders()    { return activeReadersCount.get(); }
     public long countActiveWriter()     { return activeWritersCount.get(); }
     public long countActive()           { return activeTransactionCount.get(); }
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.transaction.txn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.dboe.transaction.txn.TransactionalComponentLifecycle.ComponentState;
+
+/**
+ * The per-thread state of a read transaction, captured on the thread running the
+ * transaction, so that other threads can perform read operations as part of the
+ * same transaction.
+ * <p>
+ * A helper thread calls {@link #attach} before accessing the data and
+ * {@link #release} afterwards. The transaction must not finish while any helper
+ * thread is attached.
+ *
+ * @see TransactionCoordinator#captureThreadState
+ */
+public class TransactionThreadState {
+    private final Transaction transaction;
+    private final List<Runnable> attachActions = new ArrayList<>();
+    private final List<TransactionalComponentLifecycle<?>> components = new ArrayList<>();
+
+    /*package*/ TransactionThreadState(Transaction transaction) {
+        this.transaction = transaction;
+    }
+
+    /*package*/ <X> void capture(TransactionalComponentLifecycle<X> component) {
+        ComponentState<X> state = component.getComponentState();
+        components.add(component);
+        attachActions.add(()->component.setComponentState(state));
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /** Set the transaction state on the calling thread. */
+    public void attach() {
+        attachActions.forEach(Runnable::run);
+    }
+
+    /** Remove the transaction state from the calling thread. */
+    public void release() {
+        components.forEach(TransactionalComponentLifecycle::releaseThreadState);
+    }
+}
@@ -147,6 +147,29 @@ public interface TransactionalComponent
      */
     public void complete(Transaction transaction);
 
+    // ---- Deferred sync (group commit)
+
+    /**
+     * Whether the component can defer making commits durable, for
+     * {@link Durability#GROUP} and {@link Durability#ASYNC}.
+     * When {@link Transaction} says the sync is deferred, the component does not
+     * force changes to disk in {@link #commitPrepare}, {@link #commit} or {@link #abort};
+     * the coordinator calls {@link #syncCommittedData} and {@link #syncCommittedState} later.
+     */
+    public default boolean supportsDeferredSync() { return false; }
+
+    /**
+     * Force to disk the data of committed transactions.
+     * This is done before the journal entries of the commits are written.
+     */
+    public default void syncCommittedData() {}
+
+    /**
+     * Write the persistent state of the last committed transaction.
+     * This is done after the journal entries of the commits are on disk.
+     */
+    public default void syncCommittedState() {}
+
     // ---- End of operations
 
     /** Detach this component from the transaction of the current thread
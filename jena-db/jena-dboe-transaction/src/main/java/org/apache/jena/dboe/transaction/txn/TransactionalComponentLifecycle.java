@@ -354,6 +354,12 @@ public abstract class TransactionalComponentLifecycle<X> implements Transactiona
         return txn.isWriteTxn();
     }
 
+    /** Whether the commit of the current transaction is made durable later by the coordinator. */
+    protected boolean isDeferredSync() {
+        Transaction txn = getTransaction();
+        return txn != null && txn.isDeferredSync();
+    }
+
     protected void checkTxn() {
         if ( ! isActiveTxn() )
             throw new TransactionException("Not in a transaction");
@@ -87,6 +87,21 @@ public class TransactionalComponentWrapper implements TransactionalComponent {
         other.complete(transaction);
     }
 
+    @Override
+    public boolean supportsDeferredSync() {
+        return other.supportsDeferredSync();
+    }
+
+    @Override
+    public void syncCommittedData() {
+        other.syncCommittedData();
+    }
+
+    @Override
+    public void syncCommittedState() {
+        other.syncCommittedState();
+    }
+
     @Override
     public SysTransState detach() {
         return other.detach();
@@ -19,12 +19,15 @@
 package org.apache.jena.tdb2;
 
 import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.transaction.txn.Durability;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.sys.DatabaseConnection;
 import org.apache.jena.tdb2.sys.DatabaseOps;
+import org.apache.jena.tdb2.sys.IncrementalCompaction;
 import org.apache.jena.tdb2.sys.TDBInternal;
 
 /** Operations for TDBS DatasetGraph, including admin operations
@@ -80,6 +83,49 @@ public class DatabaseMgr {
         DatabaseOps.compact(dsg, shouldDeleteOld);
     }
 
+    /**
+     * Compact a TDB database in place, while it continues to be used.
+     * Blocks of the indexes that are no longer in use are reused by later updates;
+     * the files are not made smaller.
+     * See {@link IncrementalCompaction}.
+     *
+     * @param container
+     * @param maxBlocksPerSecond Limit on the rate of the scan; 0 or less means no limit.
+     * @return Bytes made available for reuse.
+     */
+    public static long compactIncremental(DatasetGraph container, long maxBlocksPerSecond) {
+        IncrementalCompaction compaction = new IncrementalCompaction(container, maxBlocksPerSecond);
+        compaction.run();
+        return compaction.getBytesReclaimed();
+    }
+
+    /**
+     * Set when commits to a TDB database are on disk.
+     * See {@link TransactionCoordinator#setDurability(Durability)}.
+     * <p>
+     * {@link Durability#GROUP} shares the journal write and the file syncs between the
+     * commits in a short window; {@link Durability#ASYNC} does not wait for them, so the
+     * last commits can be lost if the system fails.
+     *
+     * @param container
+     * @param durability
+     */
+    public static void setDurability(DatasetGraph container, Durability durability) {
+        TDBInternal.requireStorage(container).getTxnSystem().getTxnMgr().setDurability(durability);
+    }
+
+    /**
+     * Set the window for group commit: commits are put on disk together at most
+     * {@code windowMillis} after the first of them, or when there are {@code maxCommits}.
+     *
+     * @param container
+     * @param windowMillis
+     * @param maxCommits
+     */
+    public static void setGroupCommit(DatasetGraph container, long windowMillis, int maxCommits) {
+        TDBInternal.requireStorage(container).getTxnSystem().getTxnMgr().setGroupCommit(windowMillis, maxCommits);
+    }
+
     /**
      * Create a backup for a switchable TDB database. This is the normal dataset type for
      * on-disk TDB2 databases.
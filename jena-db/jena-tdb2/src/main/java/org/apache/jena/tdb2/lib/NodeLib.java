@@ -52,6 +52,7 @@ public class NodeLib {
     private static String URI           = "uri";
     private static String LITERAL       = "literal";
     private static String TRIPLE_TERM   = "tripleTerm";
+    private static String NAMESPACE     = "namespace";
 
     public static void setHash(Hash h, Node n) {
         if ( n.isURI() )
@@ -75,6 +76,14 @@ public class NodeLib {
             throw new TDBException("Attempt to hash something strange: " + n);
     }
 
+    /**
+     * Set the hash for an IRI namespace, for a node table that keeps its namespaces
+     * in the same index as its nodes. This is not the hash of any node.
+     */
+    public static void setHashNamespace(Hash h, String namespace) {
+        hash(h, namespace, null, null, NAMESPACE);
+    }
+
     private static int                 InitialPoolSize = 5;
     private static Pool<MessageDigest> digesters       = PoolSync.create(new PoolBase<MessageDigest>());
     static {
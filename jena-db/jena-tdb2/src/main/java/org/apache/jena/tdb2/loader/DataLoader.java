@@ -62,6 +62,12 @@ import org.apache.jena.riot.system.StreamRDF;
  * Because it uses many threads to write to persistent storage,
  * it can interfere with performance of other applications on the machine it is run on.
  *
+ * <h4>online</h4>
+ * The online loader is for a database that is in use. It sorts the data off to the side,
+ * then merges it into the indexes in short write transactions, so readers and other
+ * writers are not locked out. The load is not a single transaction; data becomes
+ * visible in stages.
+ *
  * <h4>{@code DataLoader} API</h4>
  *
  * To use a {@code DataLoader}:
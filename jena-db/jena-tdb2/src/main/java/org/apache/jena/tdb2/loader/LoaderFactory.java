@@ -30,6 +30,7 @@ import org.apache.jena.tdb2.loader.main.LoaderParallel;
 import org.apache.jena.tdb2.loader.main.LoaderPhased;
 import org.apache.jena.tdb2.loader.main.LoaderPlan;
 import org.apache.jena.tdb2.loader.main.LoaderPlans;
+import org.apache.jena.tdb2.loader.online.LoaderOnline;
 import org.apache.jena.tdb2.loader.sequential.LoaderSequential;
 import org.apache.jena.system.progress.MonitorOutput;
 
@@ -196,6 +197,39 @@ public class LoaderFactory {
         return new LoaderParallel(dsg, graphName, output);
     }
 
+    /**
+     * A loader for a database that is in use, such as one served by Fuseki.
+     * The data is sorted off to the side, then merged into the indexes in short write transactions.
+     * Readers keep their view of the database and other writers run between the loader's transactions.
+     * <p>
+     * The load is not a single transaction: data becomes visible in stages, and if loading fails,
+     * data merged so far remains.
+     * <p>
+     * Supply a {@link MonitorOutput} for the desirable progress and summary output messages
+     * or {@code null} for no output.
+     */
+    public static DataLoader onlineLoader(DatasetGraph dsg, MonitorOutput output) {
+        Objects.requireNonNull(dsg);
+        return new LoaderOnline(dsg, null, output);
+    }
+
+    /**
+     * An online loader to load a single graph in the destination {@code DatasetGraph}.
+     * See {@link #onlineLoader(DatasetGraph, MonitorOutput)} for loader characteristics.
+     * <p>
+     * Use {@link Quad#defaultGraphIRI} to load the default graph.
+     * <p>
+     * No other graphs in the destination {@code DatasetGraph} are touched. If quads
+     * data is read, default graph data is sent to the destination named graph but all
+     * other quad data is discarded.
+     *
+     * @see #onlineLoader(DatasetGraph, MonitorOutput)
+     */
+    public static DataLoader onlineLoader(DatasetGraph dsg, Node graphName, MonitorOutput output) {
+        Objects.requireNonNull(dsg);
+        return new LoaderOnline(dsg, graphName, output);
+    }
+
     /**
      * Return a loader to load a dataset, using the provided plan.
      * See {@link LoaderPlans} for the standard plans.
@@ -40,6 +40,7 @@ import org.apache.jena.system.progress.*;
 import org.apache.jena.tdb2.TDB2;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableCompressed;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
 import org.apache.jena.tdb2.store.tupletable.TupleIndex;
 import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
@@ -52,16 +53,20 @@ import org.slf4j.Logger;
 public class LoaderOps {
     /** Get the node storage for a {@Link NodeTable} */
     public static TransBinaryDataFile ntDataFile(NodeTable nt) {
-        NodeTableTRDF ntt = (NodeTableTRDF)(nt.baseNodeTable());
-        BinaryDataFile bdf = ntt.getData();
+        NodeTable base = nt.baseNodeTable();
+        BinaryDataFile bdf = ( base instanceof NodeTableCompressed )
+            ? ((NodeTableCompressed)base).getData()
+            : ((NodeTableTRDF)base).getData();
         TransBinaryDataFile tbdf = (TransBinaryDataFile)bdf;
         return tbdf;
     }
 
     /** Get the BPlusTree index for a {@Link NodeTable} */
     public static BPlusTree ntBPTree(NodeTable nt) {
-        NodeTableTRDF ntt = (NodeTableTRDF)(nt.baseNodeTable());
-        Index idx = ntt.getIndex();
+        NodeTable base = nt.baseNodeTable();
+        Index idx = ( base instanceof NodeTableCompressed )
+            ? ((NodeTableCompressed)base).getIndex()
+            : ((NodeTableTRDF)base).getIndex();
         return (BPlusTree)idx;
     }
 
@@ -36,6 +36,8 @@ import org.apache.jena.tdb2.loader.base.*;
 import org.apache.jena.system.progress.MonitorOutput;
 import org.apache.jena.system.progress.ProgressMonitor;
 import org.apache.jena.system.progress.ProgressMonitorOutput;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.solver.stats.StatsLive;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.StoragePrefixesTDB;
@@ -268,6 +270,10 @@ public class LoaderMain extends LoaderBase implements DataLoader {
         }
         super.finishBulk();
         dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
+        // The indexes were written directly, not through the tuple tables.
+        StatsLive liveStats = dsgtdb.getLiveStats();
+        if ( liveStats != null )
+            Txn.executeWrite(dsg, liveStats::rebuild);
     }
 
     /** Execute secondary index building of a {@link LoaderPlan} */
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader.online;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.system.progress.MonitorOutput;
+import org.apache.jena.system.progress.ProgressMonitor;
+import org.apache.jena.system.progress.ProgressMonitorOutput;
+import org.apache.jena.tdb2.loader.BulkLoaderException;
+import org.apache.jena.tdb2.loader.base.LoaderBase;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.apache.jena.tdb2.loader.main.LoaderConst;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.apache.jena.tdb2.xloader.ExternalSort;
+
+/**
+ * Loader for a database that is in use. The database is not locked for the
+ * duration of the load: other transactions, both readers and writers, run while
+ * the data is loaded.
+ * <p>
+ * Algorithm:
+ * <ul>
+ * <li>Parse: the data is collected into chunks; each chunk allocates its
+ * {@code NodeIds} in a short write transaction, on a separate thread while the
+ * next chunk is parsed. The tuples of {@code NodeIds} are sorted and made
+ * unique, off to the side, by an {@link ExternalSort}.
+ * <li>Merge: the sorted tuples are inserted into the indexes in short write
+ * transactions of {@link #MergeChunkSize} tuples. Each transaction adds to all
+ * the indexes of a table, with the tuples in the order of each index.
+ * </ul>
+ * Readers see the database as it was when they started. Other writers run
+ * between the transactions of the loader.
+ * <p>
+ * The load is not one transaction. Data becomes visible chunk by chunk during
+ * the merge phase. If the load fails, data already merged remains; nodes
+ * allocated for data that was not merged remain in the node table, unused.
+ * The load fails if the database is compacted while loading.
+ */
+public class LoaderOnline extends LoaderBase {
+
+    public static final int DataTickPoint   = 1_000_000;
+    public static final int DataSuperTick   = 10;
+
+    /** Number of tuples in each write transaction of the merge phase. */
+    public static int MergeChunkSize = 20_000;
+
+    private final DatasetGraphTDB dsgtdb;
+    private final StreamRDF stream;
+    private final ExecutorService allocator;
+    private Future<?> pendingChunk = null;
+
+    private Path tmpdir = null;
+    private ExternalSort triplesSort = null;
+    private ExternalSort quadsSort = null;
+
+    private List<Triple> triples = new ArrayList<>();
+    private List<Quad> quads = new ArrayList<>();
+    private Map<String, String> prefixes = new LinkedHashMap<>();
+
+    private long countTriples = 0;
+    private long countQuads = 0;
+
+    public LoaderOnline(DatasetGraph dsg, Node graphName, MonitorOutput output) {
+        super(dsg, graphName, output);
+        if ( ! TDBInternal.isBackedByTDB(dsg) )
+            throw new BulkLoaderException("Not a TDB2 database");
+        this.dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        this.allocator = Executors.newSingleThreadExecutor(runnable->{
+            Thread thread = new Thread(runnable, "LoaderOnline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        StreamRDF s = new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                triples.add(triple);
+                countTriples++;
+                if ( triples.size() + quads.size() >= LoaderConst.ChunkSize )
+                    dispatchChunk();
+            }
+
+            @Override
+            public void quad(Quad quad) {
+                if ( quad.isTriple() || quad.isDefaultGraph() ) {
+                    triple(quad.asTriple());
+                    return;
+                }
+                quads.add(quad);
+                countQuads++;
+                if ( triples.size() + quads.size() >= LoaderConst.ChunkSize )
+                    dispatchChunk();
+            }
+
+            @Override
+            public void prefix(String prefix, String iri) {
+                prefixes.put(prefix, iri);
+            }
+        };
+        this.stream = LoaderOps.toNamedGraph(s, graphName);
+    }
+
+    @Override
+    public void startBulk() {
+        super.startBulk();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors()/2);
+        long memory = ExternalSort.defaultMemory()/2;
+        try {
+            tmpdir = Files.createTempDirectory("tdb2-load-");
+        } catch (IOException ex) {
+            throw new BulkLoaderException("Failed to create a temporary directory", ex);
+        }
+        triplesSort = new ExternalSort(3*NodeId.SIZE, 3*NodeId.SIZE, true, tmpdir, memory, threads, true);
+        quadsSort = new ExternalSort(4*NodeId.SIZE, 4*NodeId.SIZE, true, tmpdir, memory, threads, true);
+    }
+
+    @Override
+    public void finishBulk() {
+        try {
+            dispatchChunk();
+            awaitChunk();
+            allocator.shutdown();
+            merge("Triples", triplesSort, 3, db->db.getTripleTable().getNodeTupleTable().getTupleTable());
+            merge("Quads", quadsSort, 4, db->db.getQuadTable().getNodeTupleTable().getTupleTable());
+        } finally {
+            cleanup();
+        }
+        super.finishBulk();
+    }
+
+    @Override
+    public void finishException(Exception ex) {
+        // Let an allocation finish before removing the sorters it uses.
+        try { awaitChunk(); }
+        catch (RuntimeException ex2) {}
+        allocator.shutdownNow();
+        cleanup();
+        super.finishException(ex);
+    }
+
+    // ---- Parse phase.
+
+    /** Pass the current chunk to the allocator thread. */
+    private void dispatchChunk() {
+        if ( triples.isEmpty() && quads.isEmpty() && prefixes.isEmpty() )
+            return;
+        List<Triple> chunkTriples = triples;
+        List<Quad> chunkQuads = quads;
+        Map<String, String> chunkPrefixes = prefixes;
+        triples = new ArrayList<>();
+        quads = new ArrayList<>();
+        prefixes = new LinkedHashMap<>();
+        // One chunk allocating while the next is parsed.
+        awaitChunk();
+        pendingChunk = allocator.submit(()->allocate(chunkTriples, chunkQuads, chunkPrefixes));
+    }
+
+    private void awaitChunk() {
+        if ( pendingChunk == null )
+            return;
+        try {
+            pendingChunk.get();
+        } catch (InterruptedException ex) {
+            throw new BulkLoaderException("Interrupted", ex);
+        } catch (ExecutionException ex) {
+            if ( ex.getCause() instanceof RuntimeException )
+                throw (RuntimeException)ex.getCause();
+            throw new BulkLoaderException("Failed to allocate nodes", ex.getCause());
+        } finally {
+            pendingChunk = null;
+        }
+    }
+
+    /** Allocate the NodeIds for a chunk, then add the tuples to the sorters. */
+    private void allocate(List<Triple> chunkTriples, List<Quad> chunkQuads, Map<String, String> chunkPrefixes) {
+        List<byte[]> tripleRecords = new ArrayList<>(chunkTriples.size());
+        List<byte[]> quadRecords = new ArrayList<>(chunkQuads.size());
+        Txn.executeWrite(dsg, ()->{
+            DatasetGraphTDB db = checkStorage();
+            chunkPrefixes.forEach((prefix, iri)->dsg.prefixes().add(prefix, iri));
+            NodeTable tripleNodes = db.getTripleTable().getNodeTupleTable().getNodeTable();
+            for ( Triple triple : chunkTriples )
+                tripleRecords.add(record(tripleNodes, triple.getSubject(), triple.getPredicate(), triple.getObject()));
+            NodeTable quadNodes = db.getQuadTable().getNodeTupleTable().getNodeTable();
+            for ( Quad quad : chunkQuads )
+                quadRecords.add(record(quadNodes, quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject()));
+        });
+        // Only NodeIds that have been committed.
+        tripleRecords.forEach(triplesSort::add);
+        quadRecords.forEach(quadsSort::add);
+    }
+
+    private static byte[] record(NodeTable nodeTable, Node...nodes) {
+        byte[] record = new byte[nodes.length*NodeId.SIZE];
+        for ( int i = 0; i < nodes.length ; i++ ) {
+            NodeId nodeId = nodeTable.getAllocateNodeId(nodes[i]);
+            NodeIdFactory.set(nodeId, record, i*NodeId.SIZE);
+        }
+        return record;
+    }
+
+    // ---- Merge phase.
+
+    /** Insert the sorted tuples into the live indexes, in short write transactions. */
+    private void merge(String label, ExternalSort sorter, int tupleLen, Function<DatasetGraphTDB, TupleTable> table) {
+        if ( sorter.count() == 0 )
+            return;
+        Iterator<byte[]> iter = sorter.sorted();
+        List<Tuple<NodeId>> chunk = new ArrayList<>(MergeChunkSize);
+        long count = 0;
+        long transactions = 0;
+        while(iter.hasNext()) {
+            chunk.add(tuple(iter.next(), tupleLen));
+            if ( chunk.size() >= MergeChunkSize || ! iter.hasNext() ) {
+                List<Tuple<NodeId>> tuples = chunk;
+                Txn.executeWrite(dsg, ()->table.apply(checkStorage()).addAllSorted(tuples));
+                count += tuples.size();
+                transactions++;
+                chunk = new ArrayList<>(MergeChunkSize);
+            }
+        }
+        if ( output != null )
+            output.print("%s: merged %,d in %,d transactions", label, count, transactions);
+    }
+
+    private static Tuple<NodeId> tuple(byte[] record, int tupleLen) {
+        NodeId[] nodeIds = new NodeId[tupleLen];
+        for ( int i = 0; i < tupleLen ; i++ )
+            nodeIds[i] = NodeIdFactory.get(record, i*NodeId.SIZE);
+        return TupleFactory.create(nodeIds);
+    }
+
+    /** The NodeIds of the loader are only valid in the storage they were allocated in. */
+    private DatasetGraphTDB checkStorage() {
+        DatasetGraphTDB db = TDBInternal.getDatasetGraphTDB(dsg);
+        if ( db != dsgtdb )
+            throw new BulkLoaderException("Database storage changed (compaction?) during loading");
+        return db;
+    }
+
+    private void cleanup() {
+        if ( triplesSort != null )
+            triplesSort.close();
+        if ( quadsSort != null )
+            quadsSort.close();
+        triplesSort = null;
+        quadsSort = null;
+        if ( tmpdir != null ) {
+            try { Files.deleteIfExists(tmpdir); }
+            catch (IOException ex) {}
+            tmpdir = null;
+        }
+    }
+
+    @Override
+    public StreamRDF stream() {
+        return stream;
+    }
+
+    @Override
+    protected ProgressMonitor createProgressMonitor(MonitorOutput output) {
+        return ProgressMonitorOutput.create(output, "<unset>", DataTickPoint, DataSuperTick);
+    }
+
+    @Override
+    protected boolean bulkUseTransaction() {
+        return false;
+    }
+
+    @Override
+    public long countTriples() {
+        return countTriples;
+    }
+
+    @Override
+    public long countQuads() {
+        return countQuads;
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.jena.tdb2.loader.base.LoaderOps;
 import org.apache.jena.system.progress.MonitorOutput;
 import org.apache.jena.system.progress.ProgressMonitor;
 import org.apache.jena.system.progress.ProgressMonitorOutput;
+import org.apache.jena.tdb2.solver.stats.StatsLive;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.sys.TDBInternal;
 
@@ -93,6 +94,10 @@ public class LoaderSequential extends LoaderBase {
     public void finishBulk() {
         triplesLoader.loadDataFinish();
         quadsLoader.loadDataFinish();
+        // The indexes were written directly.
+        StatsLive liveStats = dsgtdb.getLiveStats();
+        if ( liveStats != null )
+            liveStats.rebuild();
         super.finishBulk();
         //dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
     }
@@ -20,9 +20,11 @@ package org.apache.jena.tdb2.params;
 
 import java.util.Objects;
 
+import org.apache.jena.dboe.base.block.BlockCacheMode;
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.index.IndexParams;
 import org.apache.jena.tdb2.params.StoreParamsBuilder.Item;
+import org.apache.jena.tdb2.store.nodetable.NodeTableFormat;
 
 /** System parameters for a TDB database instance.
  * <p>
@@ -47,9 +49,12 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            blockSize;
     /*package*/ final Item<Integer>            blockReadCacheSize;
     /*package*/ final Item<Integer>            blockWriteCacheSize;
+    /*package*/ final Item<BlockCacheMode>     blockCacheMode;
     /*package*/ final Item<Integer>            Node2NodeIdCacheSize;
     /*package*/ final Item<Integer>            NodeId2NodeCacheSize;
     /*package*/ final Item<Integer>            NodeMissCacheSize;
+    /*package*/ final Item<Long>               nodeCacheOffHeapSize;
+    /*package*/ final Item<Boolean>            liveStats;
     /*package*/ final Item<Integer>            prefixNode2NodeIdCacheSize;
     /*package*/ final Item<Integer>            prefixNodeId2NodeCacheSize;
     /*package*/ final Item<Integer>            prefixNodeMissCacheSize;
@@ -63,6 +68,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
      */
 
     /*package*/ final Item<String>             nodeTableBaseName;
+    /*package*/ final Item<NodeTableFormat>    nodeTableFormat;
 
     /*package*/ final Item<String>             primaryIndexTriples;
     /*package*/ final Item<String[]>           tripleIndexes;
@@ -88,15 +94,17 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
 
     /*package*/ StoreParams(Item<FileMode> fileMode, Item<Integer> blockSize,
                             Item<Integer> blockReadCacheSize, Item<Integer> blockWriteCacheSize,
+                            Item<BlockCacheMode> blockCacheMode,
 
 
                             Item<Integer> node2NodeIdCacheSize, Item<Integer> nodeId2NodeCacheSize,
-                            Item<Integer> nodeMissCacheSize,
+                            Item<Integer> nodeMissCacheSize, Item<Long> nodeCacheOffHeapSize,
+                            Item<Boolean> liveStats,
 
                             Item<Integer> prefixNode2NodeIdCacheSize, Item<Integer> prefixNodeId2NodeCacheSize,
                             Item<Integer> prefixNodeMissCacheSize,
 
-                            Item<String> nodeTableBaseName,
+                            Item<String> nodeTableBaseName, Item<NodeTableFormat> nodeTableFormat,
                             Item<String> primaryIndexTriples, Item<String[]> tripleIndexes,
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
 
@@ -106,16 +114,20 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         this.blockSize              = blockSize;
         this.blockReadCacheSize     = blockReadCacheSize;
         this.blockWriteCacheSize    = blockWriteCacheSize;
+        this.blockCacheMode         = blockCacheMode;
 
         this.Node2NodeIdCacheSize   = node2NodeIdCacheSize;
         this.NodeId2NodeCacheSize   = nodeId2NodeCacheSize;
         this.NodeMissCacheSize      = nodeMissCacheSize;
+        this.nodeCacheOffHeapSize   = nodeCacheOffHeapSize;
+        this.liveStats              = liveStats;
 
         this.prefixNode2NodeIdCacheSize   = prefixNode2NodeIdCacheSize;
         this.prefixNodeId2NodeCacheSize   = prefixNodeId2NodeCacheSize;
         this.prefixNodeMissCacheSize      = prefixNodeMissCacheSize;
 
         this.nodeTableBaseName      = nodeTableBaseName;
+        this.nodeTableFormat        = nodeTableFormat;
 
         this.primaryIndexTriples    = primaryIndexTriples;
         this.tripleIndexes          = tripleIndexes;
@@ -182,6 +194,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return blockWriteCacheSize.isSet;
     }
 
+    @Override
+    public BlockCacheMode getBlockCacheMode() {
+        return blockCacheMode.value;
+    }
+
+    @Override
+    public boolean isSetBlockCacheMode() {
+        return blockCacheMode.isSet;
+    }
+
     @Override
     public Integer getNode2NodeIdCacheSize() {
         return Node2NodeIdCacheSize.value;
@@ -212,6 +234,26 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return NodeMissCacheSize.isSet;
     }
 
+    @Override
+    public Long getNodeCacheOffHeapSize() {
+        return nodeCacheOffHeapSize.value;
+    }
+
+    @Override
+    public boolean isSetNodeCacheOffHeapSize() {
+        return nodeCacheOffHeapSize.isSet;
+    }
+
+    @Override
+    public Boolean isLiveStats() {
+        return liveStats.value;
+    }
+
+    @Override
+    public boolean isSetLiveStats() {
+        return liveStats.isSet;
+    }
+
     @Override
     public Integer getPrefixNode2NodeIdCacheSize() {
         return prefixNode2NodeIdCacheSize.value;
@@ -250,6 +292,14 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return nodeTableBaseName.isSet;
     }
 
+    public NodeTableFormat getNodeTableFormat() {
+        return nodeTableFormat.value;
+    }
+
+    public boolean isSetNodeTableFormat() {
+        return nodeTableFormat.isSet;
+    }
+
     public String getPrimaryIndexTriples() {
         return primaryIndexTriples.value;
     }
@@ -291,11 +341,15 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "blockSize", getBlockSize(), blockSize.isSet);
         fmt(buff, "readCacheSize", getBlockReadCacheSize(), blockReadCacheSize.isSet);
         fmt(buff, "writeCacheSize", getBlockWriteCacheSize(), blockWriteCacheSize.isSet);
+        fmt(buff, "blockCacheMode", getBlockCacheMode().toString(), blockCacheMode.isSet);
         fmt(buff, "Node2NodeIdCacheSize", getNode2NodeIdCacheSize(), Node2NodeIdCacheSize.isSet);
         fmt(buff, "NodeId2NodeCacheSize", getNodeId2NodeCacheSize(), NodeId2NodeCacheSize.isSet);
         fmt(buff, "NodeMissCacheSize", getNodeMissCacheSize(), NodeMissCacheSize.isSet);
+        fmt(buff, "NodeCacheOffHeapSize", getNodeCacheOffHeapSize(), nodeCacheOffHeapSize.isSet);
+        fmt(buff, "liveStats", isLiveStats().toString(), liveStats.isSet);
 
         fmt(buff, "nodeTableBaseName", getNodeTableBaseName(), nodeTableBaseName.isSet);
+        fmt(buff, "nodeTableFormat", getNodeTableFormat().toString(), nodeTableFormat.isSet);
         fmt(buff, "primaryIndexTriples", getPrimaryIndexTriples(), primaryIndexTriples.isSet);
         fmt(buff, "tripleIndexes", getTripleIndexes(), tripleIndexes.isSet);
         fmt(buff, "primaryIndexQuads", getPrimaryIndexQuads(), primaryIndexQuads.isSet);
@@ -322,7 +376,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         buff.append(String.format("%-20s   %s%s\n", name, dftStr, value));
     }
 
-    private void fmt(StringBuilder buff, String name, int value, boolean isSet) {
+    private void fmt(StringBuilder buff, String name, long value, boolean isSet) {
         String dftStr = "";
         if ( ! isSet )
             dftStr = "dft:";
@@ -345,14 +399,22 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false;
         if ( !sameValues(params1.blockWriteCacheSize, params2.blockWriteCacheSize) )
             return false;
+        if ( !sameValues(params1.blockCacheMode, params2.blockCacheMode) )
+            return false;
         if ( !sameValues(params1.Node2NodeIdCacheSize, params2.Node2NodeIdCacheSize) )
             return false;
         if ( !sameValues(params1.NodeId2NodeCacheSize, params2.NodeId2NodeCacheSize) )
             return false;
         if ( !sameValues(params1.NodeMissCacheSize, params2.NodeMissCacheSize) )
             return false;
+        if ( !sameValues(params1.nodeCacheOffHeapSize, params2.nodeCacheOffHeapSize) )
+            return false;
+        if ( !sameValues(params1.liveStats, params2.liveStats) )
+            return false;
         if ( !sameValues(params1.nodeTableBaseName, params2.nodeTableBaseName) )
             return false;
+        if ( !sameValues(params1.nodeTableFormat, params2.nodeTableFormat) )
+            return false;
         if ( !sameValues(params1.primaryIndexTriples, params2.primaryIndexTriples) )
             return false;
         if ( !sameValues(params1.tripleIndexes, params2.tripleIndexes) )
@@ -381,11 +443,15 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((Node2NodeIdCacheSize == null) ? 0 : Node2NodeIdCacheSize.hashCode());
         result = prime * result + ((NodeId2NodeCacheSize == null) ? 0 : NodeId2NodeCacheSize.hashCode());
         result = prime * result + ((NodeMissCacheSize == null) ? 0 : NodeMissCacheSize.hashCode());
+        result = prime * result + ((nodeCacheOffHeapSize == null) ? 0 : nodeCacheOffHeapSize.hashCode());
+        result = prime * result + ((liveStats == null) ? 0 : liveStats.hashCode());
         result = prime * result + ((blockReadCacheSize == null) ? 0 : blockReadCacheSize.hashCode());
         result = prime * result + ((blockSize == null) ? 0 : blockSize.hashCode());
         result = prime * result + ((blockWriteCacheSize == null) ? 0 : blockWriteCacheSize.hashCode());
+        result = prime * result + ((blockCacheMode == null) ? 0 : blockCacheMode.hashCode());
         result = prime * result + ((fileMode == null) ? 0 : fileMode.hashCode());
         result = prime * result + ((nodeTableBaseName == null) ? 0 : nodeTableBaseName.hashCode());
+        result = prime * result + ((nodeTableFormat == null) ? 0 : nodeTableFormat.hashCode());
         result = prime * result + ((prefixTableBaseName == null) ? 0 : prefixTableBaseName.hashCode());
         result = prime * result + ((prefixIndexes == null) ? 0 : prefixIndexes.hashCode());
         result = prime * result + ((primaryIndexPrefix == null) ? 0 : primaryIndexPrefix.hashCode());
@@ -420,6 +486,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false;
         } else if ( !NodeMissCacheSize.equals(other.NodeMissCacheSize) )
             return false;
+        if ( nodeCacheOffHeapSize == null ) {
+            if ( other.nodeCacheOffHeapSize != null )
+                return false;
+        } else if ( !nodeCacheOffHeapSize.equals(other.nodeCacheOffHeapSize) )
+            return false;
+        if ( liveStats == null ) {
+            if ( other.liveStats != null )
+                return false;
+        } else if ( !liveStats.equals(other.liveStats) )
+            return false;
         if ( blockReadCacheSize == null ) {
             if ( other.blockReadCacheSize != null )
                 return false;
@@ -435,6 +511,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false;
         } else if ( !blockWriteCacheSize.equals(other.blockWriteCacheSize) )
             return false;
+        if ( blockCacheMode == null ) {
+            if ( other.blockCacheMode != null )
+                return false;
+        } else if ( !blockCacheMode.equals(other.blockCacheMode) )
+            return false;
         if ( fileMode == null ) {
             if ( other.fileMode != null )
                 return false;
@@ -445,6 +526,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false;
         } else if ( !nodeTableBaseName.equals(other.nodeTableBaseName) )
             return false;
+        if ( nodeTableFormat == null ) {
+            if ( other.nodeTableFormat != null )
+                return false;
+        } else if ( !nodeTableFormat.equals(other.nodeTableFormat) )
+            return false;
         if ( prefixTableBaseName == null ) {
             if ( other.prefixTableBaseName != null )
                 return false;
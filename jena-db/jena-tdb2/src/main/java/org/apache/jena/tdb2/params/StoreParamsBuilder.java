@@ -18,7 +18,9 @@
 
 package org.apache.jena.tdb2.params;
 
+import org.apache.jena.dboe.base.block.BlockCacheMode;
 import org.apache.jena.dboe.base.block.FileMode;
+import org.apache.jena.tdb2.store.nodetable.NodeTableFormat;
 
 public class StoreParamsBuilder {
     // Immutable.
@@ -68,12 +70,18 @@ public class StoreParamsBuilder {
 
     private Item<Integer>            blockWriteCacheSize   = new Item<>(StoreParamsConst.blockWriteCacheSize, false);
 
+    private Item<BlockCacheMode>     blockCacheMode        = new Item<>(StoreParamsConst.blockCacheMode, false);
+
     private Item<Integer>            Node2NodeIdCacheSize  = new Item<>(StoreParamsConst.Node2NodeIdCacheSize, false);
 
     private Item<Integer>            NodeId2NodeCacheSize  = new Item<>(StoreParamsConst.NodeId2NodeCacheSize, false);
 
     private Item<Integer>            NodeMissCacheSize     = new Item<>(StoreParamsConst.NodeMissCacheSize, false);
 
+    private Item<Long>               nodeCacheOffHeapSize  = new Item<>(StoreParamsConst.NodeCacheOffHeapSize, false);
+
+    private Item<Boolean>            liveStats             = new Item<>(StoreParamsConst.LiveStats, false);
+
     private Item<Integer>            prefixNode2NodeIdCacheSize  = new Item<>(StoreParamsConst.Node2NodeIdCacheSize, false);
 
     private Item<Integer>            prefixNodeId2NodeCacheSize  = new Item<>(StoreParamsConst.NodeId2NodeCacheSize, false);
@@ -86,6 +94,8 @@ public class StoreParamsBuilder {
 
     private Item<String>             nodeTableBaseName     = new Item<>(StoreParamsConst.nodeTableBaseName, false);
 
+    private Item<NodeTableFormat>    nodeTableFormat       = new Item<>(StoreParamsConst.nodeTableFormat, false);
+
     private Item<String>             primaryIndexTriples   = new Item<>(StoreParamsConst.primaryIndexTriples, false);
 
     private Item<String[]>           tripleIndexes         = new Item<>(StoreParamsConst.tripleIndexes, false);
@@ -127,6 +137,9 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetBlockWriteCacheSize() )
             b.blockWriteCacheSize(additionalParams.getBlockWriteCacheSize());
 
+        if ( additionalParams.isSetBlockCacheMode() )
+            b.blockCacheMode(additionalParams.getBlockCacheMode());
+
         if ( additionalParams.isSetNode2NodeIdCacheSize() )
             b.node2NodeIdCacheSize(additionalParams.getNode2NodeIdCacheSize());
 
@@ -136,6 +149,12 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeMissCacheSize() )
             b.nodeMissCacheSize(additionalParams.getNodeMissCacheSize());
 
+        if ( additionalParams.isSetNodeCacheOffHeapSize() )
+            b.nodeCacheOffHeapSize(additionalParams.getNodeCacheOffHeapSize());
+
+        if ( additionalParams.isSetLiveStats() )
+            b.liveStats(additionalParams.isLiveStats());
+
         return b.build();
     }
 
@@ -148,16 +167,20 @@ public class StoreParamsBuilder {
         this.blockSize              = other.blockSize;
         this.blockReadCacheSize     = other.blockReadCacheSize;
         this.blockWriteCacheSize    = other.blockWriteCacheSize;
+        this.blockCacheMode         = other.blockCacheMode;
 
         this.Node2NodeIdCacheSize   = other.Node2NodeIdCacheSize;
         this.NodeId2NodeCacheSize   = other.NodeId2NodeCacheSize;
         this.NodeMissCacheSize      = other.NodeMissCacheSize;
+        this.nodeCacheOffHeapSize   = other.nodeCacheOffHeapSize;
+        this.liveStats              = other.liveStats;
 
         this.prefixNode2NodeIdCacheSize   = other.prefixNode2NodeIdCacheSize;
         this.prefixNodeId2NodeCacheSize   = other.prefixNodeId2NodeCacheSize;
         this.prefixNodeMissCacheSize      = other.prefixNodeMissCacheSize;
 
         this.nodeTableBaseName      = other.nodeTableBaseName;
+        this.nodeTableFormat        = other.nodeTableFormat;
 
         this.primaryIndexTriples    = other.primaryIndexTriples;
         this.tripleIndexes          = other.tripleIndexes;
@@ -172,10 +195,11 @@ public class StoreParamsBuilder {
 
     public StoreParams build() {
         return new StoreParams(
-                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize,
-                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize,
+                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize, blockCacheMode,
+                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize, nodeCacheOffHeapSize,
+                 liveStats,
                  prefixNode2NodeIdCacheSize, prefixNodeId2NodeCacheSize, prefixNodeMissCacheSize,
-                 nodeTableBaseName,
+                 nodeTableBaseName, nodeTableFormat,
                  primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes,
                  prefixTableBaseName, primaryIndexPrefix,
@@ -218,6 +242,15 @@ public class StoreParamsBuilder {
         return this;
     }
 
+    public BlockCacheMode getBlockCacheMode() {
+        return blockCacheMode.value;
+    }
+
+    public StoreParamsBuilder blockCacheMode(BlockCacheMode blockCacheMode) {
+        this.blockCacheMode = new Item<>(blockCacheMode, true);
+        return this;
+    }
+
     public int getNode2NodeIdCacheSize() {
         return Node2NodeIdCacheSize.value;
     }
@@ -245,6 +278,24 @@ public class StoreParamsBuilder {
         return this;
     }
 
+    public long getNodeCacheOffHeapSize() {
+        return nodeCacheOffHeapSize.value;
+    }
+
+    public StoreParamsBuilder nodeCacheOffHeapSize(long nodeCacheOffHeapSize) {
+        this.nodeCacheOffHeapSize = new Item<>(nodeCacheOffHeapSize, true);
+        return this;
+    }
+
+    public boolean isLiveStats() {
+        return liveStats.value;
+    }
+
+    public StoreParamsBuilder liveStats(boolean liveStats) {
+        this.liveStats = new Item<>(liveStats, true);
+        return this;
+    }
+
     public int getPrefixNode2NodeIdCacheSize() {
         return prefixNode2NodeIdCacheSize.value;
     }
@@ -281,6 +332,15 @@ public class StoreParamsBuilder {
         return this;
     }
 
+    public NodeTableFormat getNodeTableFormat() {
+        return nodeTableFormat.value;
+    }
+
+    public StoreParamsBuilder nodeTableFormat(NodeTableFormat nodeTableFormat) {
+        this.nodeTableFormat = new Item<>(nodeTableFormat, true);
+        return this;
+    }
+
     public String getPrimaryIndexTriples() {
         return primaryIndexTriples.value;
     }
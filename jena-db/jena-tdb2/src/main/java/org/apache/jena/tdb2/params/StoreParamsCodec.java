@@ -26,10 +26,12 @@ import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.json.*;
 import org.apache.jena.atlas.lib.Lib;
 import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.dboe.base.block.BlockCacheMode;
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.sys.Names;
 import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.nodetable.NodeTableFormat;
 
 /** Encode and decode {@link StoreParams} */
 public class StoreParamsCodec {
@@ -90,10 +92,14 @@ public class StoreParamsCodec {
         encode(builder, key(fBlockSize),                params.getBlockSize());
         encode(builder, key(fBlockReadCacheSize),       params.getBlockReadCacheSize());
         encode(builder, key(fBlockWriteCacheSize),      params.getBlockWriteCacheSize());
+        encode(builder, key(fBlockCacheMode),           params.getBlockCacheMode().name());
         encode(builder, key(fNode2NodeIdCacheSize),     params.getNode2NodeIdCacheSize());
         encode(builder, key(fNodeId2NodeCacheSize),     params.getNodeId2NodeCacheSize());
         encode(builder, key(fNodeMissCacheSize),        params.getNodeMissCacheSize());
+        encode(builder, key(fNodeCacheOffHeapSize),     params.getNodeCacheOffHeapSize());
+        encode(builder, key(fLiveStats),                params.isLiveStats());
         encode(builder, key(fNodeTableBaseName),        params.getNodeTableBaseName());
+        encode(builder, key(fNodeTableFormat),          params.getNodeTableFormat().name());
         encode(builder, key(fPrimaryIndexTriples),      params.getPrimaryIndexTriples());
         encode(builder, key(fTripleIndexes),            params.getTripleIndexes());
         encode(builder, key(fPrimaryIndexQuads),        params.getPrimaryIndexQuads());
@@ -130,11 +136,15 @@ public class StoreParamsCodec {
                 case fBlockSize:               builder.blockSize(getInt(json, key));                       break ;
                 case fBlockReadCacheSize:      builder.blockReadCacheSize(getInt(json, key));              break ;
                 case fBlockWriteCacheSize:     builder.blockWriteCacheSize(getInt(json, key));             break ;
+                case fBlockCacheMode:          builder.blockCacheMode(BlockCacheMode.valueOf(getString(json, key))); break ;
                 case fNode2NodeIdCacheSize:    builder.node2NodeIdCacheSize(getInt(json, key));            break ;
                 case fNodeId2NodeCacheSize:    builder.nodeId2NodeCacheSize(getInt(json, key));            break ;
                 case fNodeMissCacheSize:       builder.nodeMissCacheSize(getInt(json, key));               break ;
+                case fNodeCacheOffHeapSize:    builder.nodeCacheOffHeapSize(getLong(json, key));           break ;
+                case fLiveStats:               builder.liveStats(getBoolean(json, key));                   break ;
 
                 case fNodeTableBaseName:       builder.nodeTableBaseName(getString(json, key));            break ;
+                case fNodeTableFormat:         builder.nodeTableFormat(NodeTableFormat.valueOf(getString(json, key))); break ;
                 case fPrimaryIndexTriples:     builder.primaryIndexTriples(getString(json, key));          break ;
                 case fTripleIndexes:           builder.tripleIndexes(getStringArray(json, key));           break ;
                 case fPrimaryIndexQuads:       builder.primaryIndexQuads(getString(json, key));            break ;
@@ -167,6 +177,20 @@ public class StoreParamsCodec {
         return x;
     }
 
+    private static Long getLong(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getLong: no such key: "+key);
+        Long x = json.get(key).getAsNumber().value().longValue();
+        return x;
+    }
+
+    private static Boolean getBoolean(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getBoolean: no such key: "+key);
+        Boolean x = json.get(key).getAsBoolean().value();
+        return x;
+    }
+
     private static String[] getStringArray(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getStringArray: no such key: "+key);
@@ -189,6 +213,10 @@ public class StoreParamsCodec {
             builder.key(name).value(value.toString());
             return;
         }
+        if ( value instanceof Boolean ) {
+            builder.key(name).value(((Boolean)value).booleanValue());
+            return;
+        }
         if ( value instanceof String[] ) {
             String[] x = (String[])value;
             builder.key(name);
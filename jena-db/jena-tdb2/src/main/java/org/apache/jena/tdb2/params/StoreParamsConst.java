@@ -18,8 +18,10 @@
 
 package org.apache.jena.tdb2.params;
 
+import org.apache.jena.dboe.base.block.BlockCacheMode;
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.tdb2.store.nodetable.NodeTableFormat;
 import org.apache.jena.tdb2.sys.SystemTDB;
 
 public class StoreParamsConst {
@@ -38,6 +40,9 @@ public class StoreParamsConst {
     public static final String   fBlockWriteCacheSize  = "block_write_cache_size";
     public static final int      blockWriteCacheSize   = SystemTDB.BlockWriteCacheSize;
 
+    public static final String   fBlockCacheMode       = "block_cache_mode";
+    public static final BlockCacheMode blockCacheMode  = SystemTDB.DefaultBlockCacheMode;
+
     public static final String   fNode2NodeIdCacheSize = "node2nodeid_cache_size";
     public static final int      Node2NodeIdCacheSize  = SystemTDB.Node2NodeIdCacheSize;
 
@@ -47,6 +52,12 @@ public class StoreParamsConst {
     public static final String   fNodeMissCacheSize    = "node_miss_cache_size";
     public static final int      NodeMissCacheSize     = SystemTDB.NodeMissCacheSize;
 
+    public static final String   fNodeCacheOffHeapSize = "node_cache_offheap_size";
+    public static final long     NodeCacheOffHeapSize  = SystemTDB.NodeCacheOffHeapSize;
+
+    public static final String   fLiveStats            = "live_stats";
+    public static final boolean  LiveStats             = SystemTDB.LiveStats;
+
     public static final String  fPrefixNode2NodeIdCacheSize  = "prefix_node2nodeid_cache_size";
     public static final int     PrefixNode2NodeIdCacheSize   =  SystemTDB.PrefixNode2NodeIdCacheSize;
 
@@ -63,6 +74,9 @@ public class StoreParamsConst {
     public static final String   fNodeTableBaseName    = "nodetable";
     public static final String   nodeTableBaseName     = Names.nodeTableBaseName;
 
+    public static final String   fNodeTableFormat      = "node_table_format";
+    public static final NodeTableFormat nodeTableFormat = NodeTableFormat.thrift;
+
     public static final String   fPrimaryIndexTriples  = "triple_index_primary";
     public static final String   primaryIndexTriples   = Names.primaryIndexTriples;
 
@@ -18,6 +18,7 @@
 
 package org.apache.jena.tdb2.params;
 
+import org.apache.jena.dboe.base.block.BlockCacheMode;
 import org.apache.jena.dboe.base.block.FileMode;
 
 /** Store parameters that can be adjusted after a store has been created,
@@ -39,6 +40,10 @@ public interface StoreParamsDynamic {
     public Integer getBlockWriteCacheSize();
     public boolean isSetBlockWriteCacheSize();
 
+    /** Kind of block cache (note: mapped files do not have a block cache) */
+    public BlockCacheMode getBlockCacheMode();
+    public boolean isSetBlockCacheMode();
+
     /** Node cache for Node{@literal ->}NodeId. */
     public Integer getNode2NodeIdCacheSize();
     public boolean isSetNode2NodeIdCacheSize();
@@ -51,6 +56,14 @@ public interface StoreParamsDynamic {
     public Integer getNodeMissCacheSize();
     public boolean isSetNodeMissCacheSize();
 
+    /** Off-heap node cache, in bytes, for the node table. Zero for none. */
+    public Long getNodeCacheOffHeapSize();
+    public boolean isSetNodeCacheOffHeapSize();
+
+    /** Maintain statistics for the BGP optimizer as data changes. */
+    public Boolean isLiveStats();
+    public boolean isSetLiveStats();
+
     // Same for prefix table.
     /** Node cache for Node{@literal ->}NodeId. */
     public Integer getPrefixNode2NodeIdCacheSize();
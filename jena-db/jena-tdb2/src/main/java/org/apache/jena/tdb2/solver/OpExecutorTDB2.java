@@ -20,10 +20,17 @@ package org.apache.jena.tdb2.solver;
 
 import java.util.function.Predicate;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.ARQInternalErrorException;
 import org.apache.jena.sparql.algebra.Op;
 import org.apache.jena.sparql.algebra.op.*;
@@ -32,9 +39,12 @@ import org.apache.jena.sparql.core.BasicPattern;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.core.Substitute;
 import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.iterator.QueryIterGroupSorted;
 import org.apache.jena.sparql.engine.iterator.QueryIterPeek;
+import org.apache.jena.sparql.engine.iterator.QueryIterRoot;
 import org.apache.jena.sparql.engine.main.OpExecutor;
 import org.apache.jena.sparql.engine.main.OpExecutorFactory;
 import org.apache.jena.sparql.engine.main.QC;
@@ -46,6 +56,9 @@ import org.apache.jena.sparql.mgt.Explain;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -135,6 +148,115 @@ public class OpExecutorTDB2 extends OpExecutor
         return super.execute(opFilter, input);
         }
 
+    @Override
+    protected QueryIterator execute(OpGroup opGroup, QueryIterator input)
+    {
+        if ( isForTDB && isGroupedScan(opGroup, input) ) {
+            // The scan returns the rows of each group together: stream the groups.
+            QueryIterator qIter = exec(opGroup.getSubOp(), input);
+            return new QueryIterGroupSorted(qIter, opGroup.getGroupVars(), opGroup.getAggregators(), execCxt);
+        }
+        return super.execute(opGroup, input);
+    }
+
+    /**
+     * Test whether the group is over a single triple or quad pattern, evaluated
+     * once, where the index scan returns the rows for each group key together.
+     * That is when every slot that comes before the last group variable in the
+     * order of the index is a constant or a group variable.
+     */
+    private boolean isGroupedScan(OpGroup opGroup, QueryIterator input) {
+        if ( ! ( input instanceof QueryIterRoot ) )
+            return false;
+        VarExprList groupVars = opGroup.getGroupVars();
+        if ( groupVars.isEmpty() || ! groupVars.getExprs().isEmpty() )
+            return false;
+        Tuple<Node> pattern = singlePattern(opGroup.getSubOp());
+        if ( pattern == null )
+            return false;
+
+        NodeTupleTable nodeTupleTable = nodeTupleTable(pattern);
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        NodeId[] ids = new NodeId[pattern.len()];
+        for ( int i = 0 ; i < pattern.len() ; i++ ) {
+            Node n = pattern.get(i);
+            ids[i] = Var.isVar(n) ? NodeId.NodeIdAny : nodeTable.getNodeIdForNode(n);
+        }
+        TupleIndex index = nodeTupleTable.getTupleTable().chooseIndex(TupleFactory.create(ids));
+        TupleMap tupleMap = index.getMapping();
+
+        List<Var> vars = groupVars.getVars();
+        Set<Var> seen = new HashSet<>();
+        for ( int k = 0 ; k < pattern.len() && seen.size() < vars.size() ; k++ ) {
+            Node n = pattern.get(tupleMap.mapIdx(k));
+            if ( ! Var.isVar(n) )
+                continue;
+            Var v = Var.alloc(n);
+            if ( ! vars.contains(v) )
+                return false;
+            seen.add(v);
+        }
+        return seen.size() == vars.size();
+    }
+
+    @Override
+    protected QueryIterator execute(OpTopN opTop, QueryIterator input)
+    {
+        if ( isForTDB && input instanceof QueryIterRoot && input.isJoinIdentity() ) {
+            // ORDER BY ?x LIMIT N on one pattern: read the index in order of ?x.
+            Tuple<Node> pattern = singlePattern(opTop.getSubOp());
+            if ( pattern != null && QC2.getFilter(execCxt.getContext()) == null ) {
+                QueryIterator qIter = TopNScan.access(nodeTupleTable(pattern), pattern, opTop, execCxt);
+                if ( qIter != null ) {
+                    input.close();
+                    return qIter;
+                }
+            }
+        }
+        return super.execute(opTop, input);
+    }
+
+    /**
+     * The pattern of a single triple or quad pattern operator, as a tuple for the
+     * triple table (3 slots) or the quad table (4 slots, graph first). Return null
+     * for any other operator, for the union graph, or if the pattern has a triple
+     * term.
+     */
+    private Tuple<Node> singlePattern(Op op) {
+        BasicPattern bgp;
+        Node gn;
+        if ( op instanceof OpQuadPattern ) {
+            bgp = ((OpQuadPattern)op).getBasicPattern();
+            gn = ((OpQuadPattern)op).getGraphNode();
+        } else if ( op instanceof OpBGP ) {
+            bgp = ((OpBGP)op).getPattern();
+            gn = ((GraphTDB)execCxt.getActiveGraph()).getGraphName();
+        } else
+            return null;
+        if ( bgp.size() != 1 )
+            return null;
+        gn = decideGraphNode(gn, execCxt);
+        if ( gn == Node.ANY )
+            // Union graph.
+            return null;
+        Triple triple = bgp.get(0);
+        Tuple<Node> pattern = ( gn == null )
+            ? TupleFactory.tuple(triple.getSubject(), triple.getPredicate(), triple.getObject())
+            : TupleFactory.tuple(gn, triple.getSubject(), triple.getPredicate(), triple.getObject());
+        for ( Node n : pattern ) {
+            if ( n.isNodeTriple() )
+                return null;
+        }
+        return pattern;
+    }
+
+    private NodeTupleTable nodeTupleTable(Tuple<Node> pattern) {
+        DatasetGraphTDB dsgtdb = ((GraphTDB)execCxt.getActiveGraph()).getDSG();
+        return ( pattern.len() == 3 )
+            ? dsgtdb.getTripleTable().getNodeTupleTable()
+            : dsgtdb.getQuadTable().getNodeTupleTable();
+    }
+
     // ---- Triple patterns
 
     @Override
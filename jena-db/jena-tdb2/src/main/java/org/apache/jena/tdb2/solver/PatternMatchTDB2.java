@@ -19,30 +19,40 @@
 package org.apache.jena.tdb2.solver;
 
 import static org.apache.jena.sparql.engine.main.solver.SolverLib.makeAbortable;
+import static org.apache.jena.sparql.engine.main.solver.SolverLib.tripleHasEmbTripleWithVars;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.transaction.txn.TransactionThreadState;
+import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
+import org.apache.jena.query.TxnType;
 import org.apache.jena.sparql.core.BasicPattern;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.iterator.Abortable;
 import org.apache.jena.sparql.engine.iterator.QueryIterAbortable;
+import org.apache.jena.sparql.util.VarUtils;
 import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.solver.stats.ReorderLiveStats;
+import org.apache.jena.tdb2.solver.stats.StatsLive;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
 
 /**
  * Entry to the basic pattern solver for TDB2.
@@ -57,7 +67,7 @@ public class PatternMatchTDB2 {
     {
         // Maybe default graph or named graph.
         NodeTupleTable ntt = graph.getNodeTupleTable();
-        return execute(ntt, graph.getGraphName(), pattern, input, filter, execCxt);
+        return execute(graph.getDSG(), ntt, graph.getGraphName(), pattern, input, filter, execCxt);
     }
 
     /** Non-reordering execution of a quad pattern, given an iterator of bindings as input.
@@ -69,14 +79,14 @@ public class PatternMatchTDB2 {
                                         ExecutionContext execCxt)
     {
         NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode);
-        return execute(ntt, graphNode, pattern, input, filter, execCxt);
+        return execute(ds, ntt, graphNode, pattern, input, filter, execCxt);
     }
 
     // The worker.  Callers choose the NodeTupleTable.
     //     graphNode may be Node.ANY, meaning we should make triples unique.
     //     graphNode may be null, meaning default graph
 
-    private static QueryIterator execute(NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern,
+    private static QueryIterator execute(DatasetGraphTDB dsg, NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern,
                                          QueryIterator input, Predicate<Tuple<NodeId>> filter,
                                          ExecutionContext execCxt)
     {
@@ -101,20 +111,29 @@ public class PatternMatchTDB2 {
         NodeTable nodeTable = nodeTupleTable.getNodeTable();
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLibTDB.convFromBinding(nodeTable));
         List<Abortable> killList = new ArrayList<>();
+        TransactionThreadState txnState = parallelTxnState(dsg, execCxt);
+        int batchSize = execCxt.getContext().getInt(SystemTDB.symParallelBGPBatchSize, SystemTDB.ParallelBGPBatchSize);
+
+        // Leading patterns sharing a variable are merge-joined if the indexes allow.
+        int mergeRun = mergeJoinRun(dsg, nodeTable, triples, execCxt);
+        if ( mergeRun > 0 ) {
+            List<Tuple<Node>> patternTuples = new ArrayList<>(mergeRun);
+            for ( Triple triple : triples.subList(0, mergeRun) )
+                patternTuples.add(patternTuple(graphNode, triple));
+            chain = StageMergeJoin.access(nodeTupleTable, chain, patternTuples, filter, anyGraph, execCxt);
+            chain = makeAbortable(chain, killList);
+        }
 
-        for ( Triple triple : triples ) {
-            Tuple<Node> patternTuple = null;
-            if ( graphNode == null )
-                // 3-tuples
-                patternTuple = TupleFactory.create3(triple.getSubject(), triple.getPredicate(), triple.getObject());
-            else
-                // 4-tuples.
-                patternTuple = TupleFactory.create4(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject());
+        for ( Triple triple : triples.subList(mergeRun, triples.size()) ) {
+            Tuple<Node> patternTuple = patternTuple(graphNode, triple);
             // Plain RDF, no RDF-star
             // chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt)
             // ;
             // RDF-star SA
-            chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple, anyGraph, filter, execCxt);
+            if ( txnState != null && ! tripleHasEmbTripleWithVars(triple) )
+                chain = StageMatchParallel.access(txnState, batchSize, nodeTupleTable, chain, patternTuple, filter, anyGraph, execCxt);
+            else
+                chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple, anyGraph, filter, execCxt);
 
             chain = makeAbortable(chain, killList);
         }
@@ -126,6 +145,58 @@ public class PatternMatchTDB2 {
         return new QueryIterAbortable(iterBinding, killList, input, execCxt);
     }
 
+    private static Tuple<Node> patternTuple(Node graphNode, Triple triple) {
+        if ( graphNode == null )
+            // 3-tuples
+            return TupleFactory.create3(triple.getSubject(), triple.getPredicate(), triple.getObject());
+        // 4-tuples.
+        return TupleFactory.create4(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject());
+    }
+
+    /**
+     * Return the number of leading triple patterns that all share a variable, for
+     * {@link StageMergeJoin}, or 0 if there are fewer than two or merge join is
+     * not enabled ({@link SystemTDB#symMergeJoin}). If the database has live
+     * statistics, also 0 if index nested loops are estimated to be cheaper.
+     */
+    private static int mergeJoinRun(DatasetGraphTDB dsg, NodeTable nodeTable, List<Triple> triples, ExecutionContext execCxt) {
+        if ( ! execCxt.getContext().isTrue(SystemTDB.symMergeJoin) )
+            return 0;
+        Set<Var> common = null;
+        int i = 0;
+        for ( ; i < triples.size() ; i++ ) {
+            Triple triple = triples.get(i);
+            if ( tripleHasEmbTripleWithVars(triple) )
+                break;
+            Set<Var> vars = VarUtils.getVars(triple);
+            if ( common != null )
+                vars.retainAll(common);
+            if ( vars.isEmpty() )
+                break;
+            common = vars;
+        }
+        if ( i < 2 )
+            return 0;
+        StatsLive stats = dsg.getLiveStats();
+        if ( stats != null && ! new ReorderLiveStats(stats, nodeTable, null).preferMergeJoin(triples.subList(0, i)) )
+            return 0;
+        return i;
+    }
+
+    /**
+     * Return the transaction state for worker threads if parallel evaluation is
+     * enabled ({@link SystemTDB#symParallelBGP}), else null. Only read transactions
+     * are evaluated in parallel.
+     */
+    private static TransactionThreadState parallelTxnState(DatasetGraphTDB dsg, ExecutionContext execCxt) {
+        if ( ! execCxt.getContext().isTrue(SystemTDB.symParallelBGP) )
+            return null;
+        if ( ! dsg.isInTransaction() || dsg.transactionType() != TxnType.READ )
+            return null;
+        TransactionalSystem txnSystem = dsg.getTxnSystem();
+        return txnSystem.getTxnMgr().captureThreadState(txnSystem.getThreadTransaction());
+    }
+
     private static Iterator<BindingNodeId> matchQuadPattern(Iterator<BindingNodeId> chain, Node graphNode, Triple tPattern,
                                                             NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple, boolean anyGraph,
                                                             Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.transaction.txn.TransactionThreadState;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * Parallel version of {@link StageMatchTuple}.
+ * <p>
+ * The input solutions are read in batches. Each batch is split into chunks and
+ * the chunks are matched against the indexes in parallel, with the worker
+ * threads joining the read transaction of the calling thread
+ * ({@link TransactionThreadState}). The results of a batch are concatenated in
+ * input order, so the output is the same, in the same order, as
+ * {@link StageMatchTuple}.
+ * <p>
+ * A batch of one input solution, such as the start of a BGP, is split instead by
+ * the range scan of its pattern: when the scan has more matches than the batch
+ * size, the values of the first unbound slot in index order are divided into
+ * sub-ranges ({@link TupleIndexRecord#findRange}) and the sub-ranges are scanned
+ * in parallel, a group of sub-ranges at a time, and concatenated in index order.
+ */
+class StageMatchParallel {
+    private static final int Parallelism = Runtime.getRuntime().availableProcessors();
+    // Sub-ranges per thread when splitting a range scan. Each group of sub-ranges is
+    // materialized, so more sub-ranges means less memory for the results at a time.
+    private static final int SubRangesPerThread = 16;
+    private static ExecutorService executor = null;
+
+    // Threads only ever run BGP stage work, so they have no transaction state of
+    // their own to be disturbed by attaching to the caller's transaction.
+    private static synchronized ExecutorService executor() {
+        if ( executor == null ) {
+            AtomicInteger counter = new AtomicInteger(0);
+            executor = Executors.newFixedThreadPool(Parallelism, r -> {
+                Thread thread = new Thread(r, "TDB2-BGP-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /* Entry point */
+    static Iterator<BindingNodeId> access(TransactionThreadState txnState, int batchSize,
+                                          NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, Tuple<Node> patternTuple,
+                                          Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
+        if ( Parallelism <= 1 )
+            return StageMatchTuple.access(nodeTupleTable, input, patternTuple, filter, anyGraph, execCxt);
+        Iterator<List<BindingNodeId>> batches = new IterBatch(input, batchSize);
+        return Iter.flatMap(batches, batch -> {
+            if ( batch.size() == 1 ) {
+                Iterator<BindingNodeId> iter = matchSplit(txnState, batchSize, nodeTupleTable, batch.get(0), patternTuple, filter, anyGraph);
+                if ( iter != null )
+                    return iter;
+            }
+            return matchBatch(txnState, nodeTupleTable, batch, patternTuple, filter, anyGraph, execCxt).iterator();
+        });
+    }
+
+    private static List<BindingNodeId> matchBatch(TransactionThreadState txnState, NodeTupleTable nodeTupleTable,
+                                                  List<BindingNodeId> batch, Tuple<Node> patternTuple,
+                                                  Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
+        int numChunks = Math.min(Parallelism, batch.size());
+        if ( numChunks <= 1 )
+            return matchChunk(nodeTupleTable, batch, patternTuple, filter, anyGraph, execCxt);
+        int chunkSize = (batch.size() + numChunks - 1) / numChunks;
+        List<Supplier<List<BindingNodeId>>> tasks = new ArrayList<>(numChunks);
+        for ( int start = 0 ; start < batch.size() ; start += chunkSize ) {
+            List<BindingNodeId> chunk = batch.subList(start, Math.min(start + chunkSize, batch.size()));
+            tasks.add(() -> matchChunk(nodeTupleTable, chunk, patternTuple, filter, anyGraph, execCxt));
+        }
+        return runTasks(txnState, tasks);
+    }
+
+    /**
+     * Run the tasks, the first on the calling thread and the others on worker
+     * threads in the transaction, and concatenate their results in order.
+     */
+    private static List<BindingNodeId> runTasks(TransactionThreadState txnState, List<Supplier<List<BindingNodeId>>> tasks) {
+        // Task zero is done on the calling thread, which is already in the transaction.
+        List<Future<List<BindingNodeId>>> futures = new ArrayList<>(tasks.size() - 1);
+        for ( Supplier<List<BindingNodeId>> task : tasks.subList(1, tasks.size()) ) {
+            Callable<List<BindingNodeId>> callable = () -> {
+                txnState.attach();
+                try {
+                    return task.get();
+                } finally {
+                    txnState.release();
+                }
+            };
+            futures.add(executor().submit(callable));
+        }
+
+        RuntimeException failure = null;
+        List<BindingNodeId> results = null;
+        try {
+            results = tasks.get(0).get();
+        } catch (RuntimeException ex) {
+            failure = ex;
+        }
+        // Wait for every worker, even after a failure, so that no worker is
+        // still using the transaction when this call returns.
+        for ( Future<List<BindingNodeId>> f : futures ) {
+            try {
+                List<BindingNodeId> x = await(f);
+                if ( failure == null )
+                    results.addAll(x);
+            } catch (ExecutionException ex) {
+                if ( failure == null ) {
+                    Throwable cause = ex.getCause();
+                    failure = ( cause instanceof RuntimeException )
+                        ? (RuntimeException)cause
+                        : new TDBException("Parallel basic graph pattern", cause);
+                }
+            }
+        }
+        if ( failure != null )
+            throw failure;
+        return results;
+    }
+
+    /**
+     * Match the pattern for one input solution by splitting the range scan. Return
+     * null if the scan can not be split, or has no more matches than the batch size.
+     */
+    private static Iterator<BindingNodeId> matchSplit(TransactionThreadState txnState, int batchSize,
+                                                      NodeTupleTable nodeTupleTable, BindingNodeId input, Tuple<Node> patternTuple,
+                                                      Predicate<Tuple<NodeId>> filter, boolean anyGraph) {
+        NodeId ids[] = new NodeId[patternTuple.len()];
+        Var[] vars = new Var[patternTuple.len()];
+        if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternTuple, input, ids, vars) )
+            return null;
+        Tuple<NodeId> pattern = TupleFactory.create(ids);
+        TupleIndex index = nodeTupleTable.getTupleTable().chooseIndex(pattern);
+        if ( ! ( index.baseTupleIndex() instanceof TupleIndexRecord ) )
+            return null;
+        TupleIndexRecord indexRecord = (TupleIndexRecord)index.baseTupleIndex();
+        int numBound = 0;
+        for ( NodeId id : ids ) {
+            if ( ! NodeId.isAny(id) )
+                numBound++;
+        }
+        if ( numBound == ids.length )
+            return null;
+        // Slot, in natural order, of the values to split.
+        int splitSlot = index.getMapping().mapIdx(numBound);
+        if ( anyGraph && splitSlot == 0 )
+            // The same triple in different graphs would be in different sub-ranges.
+            return null;
+
+        // Small scans are not split.
+        Iterator<Tuple<NodeId>> scan = indexRecord.findRange(pattern, 0, 0);
+        if ( scan == null )
+            // Bound slots are not leading in the index order.
+            return null;
+        long lo;
+        try {
+            if ( ! scan.hasNext() )
+                return Iter.nullIterator();
+            lo = NodeIdFactory.encode64(scan.next().get(splitSlot));
+            int count = 1;
+            while ( count <= batchSize && scan.hasNext() ) {
+                scan.next();
+                count++;
+            }
+            if ( count <= batchSize )
+                return null;
+        } finally { Iter.close(scan); }
+
+        long hi = lastValue(indexRecord, pattern, splitSlot, lo);
+        if ( hi == lo )
+            return null;
+        long[] bounds = splitRange(lo, hi, Parallelism * SubRangesPerThread);
+        List<Supplier<List<BindingNodeId>>> tasks = new ArrayList<>(bounds.length);
+        for ( int i = 0 ; i < bounds.length ; i++ ) {
+            long min = bounds[i];
+            long max = ( i+1 < bounds.length ) ? bounds[i+1] : 0;
+            tasks.add(() -> {
+                Iterator<Tuple<NodeId>> tuples = indexRecord.findRange(pattern, min, max);
+                List<BindingNodeId> results = new ArrayList<>();
+                StageMatchTuple.bindMatches(tuples, input, vars, filter, anyGraph).forEachRemaining(results::add);
+                return results;
+            });
+        }
+        // A group of sub-ranges at a time, one per thread.
+        List<List<Supplier<List<BindingNodeId>>>> groups = new ArrayList<>();
+        for ( int start = 0 ; start < tasks.size() ; start += Parallelism )
+            groups.add(tasks.subList(start, Math.min(start + Parallelism, tasks.size())));
+        return Iter.flatMap(groups.iterator(), group -> runTasks(txnState, group).iterator());
+    }
+
+    /**
+     * The greatest value, as {@link NodeIdFactory#encode64}, of a slot in the
+     * matches for a pattern, found by binary search over the range scans starting
+     * at a value. There is a match with value {@code lo}.
+     */
+    private static long lastValue(TupleIndexRecord index, Tuple<NodeId> pattern, int slot, long lo) {
+        long last = lo;
+        long low = lo + 1;
+        long high = -1L;
+        while ( last != -1L && Long.compareUnsigned(low, high) <= 0 ) {
+            long mid = low + ((high - low) >>> 1);
+            Iterator<Tuple<NodeId>> iter = index.findRange(pattern, mid, 0);
+            try {
+                if ( iter.hasNext() ) {
+                    last = NodeIdFactory.encode64(iter.next().get(slot));
+                    low = last + 1;
+                    if ( low == 0 )
+                        break;
+                } else {
+                    high = mid - 1;
+                }
+            } finally { Iter.close(iter); }
+        }
+        return last;
+    }
+
+    /** Divide the values {@code lo} to {@code hi}, unsigned, into up to {@code n} sub-ranges: return the start of each. */
+    private static long[] splitRange(long lo, long hi, int n) {
+        long width = hi - lo;
+        if ( Long.compareUnsigned(width, n) < 0 )
+            n = (int)width;
+        long step = Long.divideUnsigned(width, n);
+        long[] bounds = new long[n];
+        for ( int i = 0 ; i < n ; i++ )
+            bounds[i] = lo + i * step;
+        return bounds;
+    }
+
+    private static List<BindingNodeId> matchChunk(NodeTupleTable nodeTupleTable, List<BindingNodeId> chunk, Tuple<Node> patternTuple,
+                                                  Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
+        List<BindingNodeId> results = new ArrayList<>();
+        for ( BindingNodeId bnid : chunk )
+            StageMatchTuple.access(nodeTupleTable, bnid, patternTuple, filter, anyGraph, execCxt).forEachRemaining(results::add);
+        return results;
+    }
+
+    private static <X> X await(Future<X> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            for ( ;; ) {
+                try {
+                    return future.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if ( interrupted )
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Group an iterator into lists of up to batchSize items. */
+    private static class IterBatch implements Iterator<List<BindingNodeId>> {
+        private final Iterator<BindingNodeId> input;
+        private final int batchSize;
+
+        IterBatch(Iterator<BindingNodeId> input, int batchSize) {
+            this.input = input;
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return input.hasNext();
+        }
+
+        @Override
+        public List<BindingNodeId> next() {
+            if ( ! input.hasNext() )
+                throw new NoSuchElementException();
+            List<BindingNodeId> batch = new ArrayList<>(Math.min(batchSize, 1024));
+            while ( batch.size() < batchSize && input.hasNext() )
+                batch.add(input.next());
+            return batch;
+        }
+    }
+}
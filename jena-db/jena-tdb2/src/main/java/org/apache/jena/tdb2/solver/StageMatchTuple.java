@@ -44,7 +44,7 @@ class StageMatchTuple {
         });
     }
 
-    private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input, Tuple<Node> patternTuple,
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input, Tuple<Node> patternTuple,
                                                   Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
         // ---- Convert to NodeIds
         NodeId ids[] = new NodeId[patternTuple.len()];
@@ -62,7 +62,12 @@ class StageMatchTuple {
             System.out.println(x);
             iterMatches = x.iterator();
         }
+        return bindMatches(iterMatches, input, vars, filter, anyGraph);
+    }
 
+    /** Bindings for the tuples matching a pattern, from {@link #prepare}. */
+    static Iterator<BindingNodeId> bindMatches(Iterator<Tuple<NodeId>> iterMatches, BindingNodeId input, Var[] vars,
+                                               Predicate<Tuple<NodeId>> filter, boolean anyGraph) {
         // ** Allow a triple or quad filter here.
         if ( filter != null )
             iterMatches = Iter.filter(iterMatches, filter);
@@ -95,7 +100,7 @@ class StageMatchTuple {
         return Iter.iter(iterMatches).map(binder).removeNulls();
     }
 
-    private static BindingNodeId tupleToBinding(BindingNodeId input, Tuple<NodeId> tuple, Var[] var) {
+    static BindingNodeId tupleToBinding(BindingNodeId input, Tuple<NodeId> tuple, Var[] var) {
         // Reuseable BindingNodeId builder?
         BindingNodeId output = new BindingNodeId(input);
         for ( int i = 0 ; i < var.length ; i++ ) {
@@ -116,7 +121,7 @@ class StageMatchTuple {
      * null in the NodeIds. A variable that is not bound by the binding is placed in
      * the var array. Return false if preparation detects the pattern can not match.
      */
-    private static boolean prepare(NodeTable nodeTable, Tuple<Node> patternTuple, BindingNodeId input, NodeId ids[], Var[] var) {
+    static boolean prepare(NodeTable nodeTable, Tuple<Node> patternTuple, BindingNodeId input, NodeId ids[], Var[] var) {
         // Process the Node to NodeId conversion ourselves because
         // we wish to abort if an unknown node is seen.
         for ( int i = 0 ; i < patternTuple.len() ; i++ ) {
@@ -172,7 +177,7 @@ class StageMatchTuple {
         return nodeTable.getNodeIdForNode(node);
     }
 
-    private static Function<Tuple<NodeId>, Tuple<NodeId>> quadsToAnyTriples = item -> {
+    static Function<Tuple<NodeId>, Tuple<NodeId>> quadsToAnyTriples = item -> {
         return TupleFactory.create4(NodeId.NodeIdAny, item.get(1), item.get(2), item.get(3));
     };
 }
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.atlas.iterator.PeekIterator;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Sort-merge join of a run of triple or quad patterns that share a variable.
+ * <p>
+ * For each input binding, if every pattern has an index where the bound slots
+ * form the prefix of the index order and the next slot is the shared variable,
+ * then each pattern is one range scan, returning tuples in order of the shared
+ * variable, and the scans are merged. A scan that falls far behind the others
+ * starts again from the key it needs, so a selective pattern does not cause a
+ * scan of all of a broad one. For example, {@code ?s rdf:type :T . ?s :p :o}
+ * is two POS scans merged on {@code ?s}.
+ * <p>
+ * Otherwise the patterns are evaluated as in {@link StageMatchTuple}, by index
+ * nested loops.
+ */
+class StageMergeJoin {
+
+    /* Entry point */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, List<Tuple<Node>> patternTuples,
+                                          Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
+        return Iter.flatMap(input, bnid -> {
+            return access(nodeTupleTable, bnid, patternTuples, filter, anyGraph, execCxt);
+        });
+    }
+
+    private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input, List<Tuple<Node>> patternTuples,
+                                                  Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        int N = patternTuples.size();
+        NodeId[][] ids = new NodeId[N][];
+        Var[][] vars = new Var[N][];
+        for ( int j = 0 ; j < N ; j++ ) {
+            Tuple<Node> patternTuple = patternTuples.get(j);
+            ids[j] = new NodeId[patternTuple.len()];
+            vars[j] = new Var[patternTuple.len()];
+            if ( ! StageMatchTuple.prepare(nodeTable, patternTuple, input, ids[j], vars[j]) )
+                // Short cut - known unknown NodeId
+                return Iter.nullIterator();
+        }
+
+        ScanPlan[] plans = plan(nodeTupleTable.getTupleTable(), ids, vars, anyGraph);
+        if ( plans == null ) {
+            // No merge join possible: index nested loops.
+            Iterator<BindingNodeId> chain = Iter.singleton(input);
+            for ( Tuple<Node> patternTuple : patternTuples )
+                chain = StageMatchTuple.access(nodeTupleTable, chain, patternTuple, filter, anyGraph, execCxt);
+            return chain;
+        }
+
+        Scan[] scans = new Scan[N];
+        for ( int j = 0 ; j < N ; j++ )
+            scans[j] = new Scan(plans[j], TupleFactory.create(ids[j]), filter, anyGraph);
+        return Iter.flatMap(new IterMergeJoin(input, vars, scans), List::iterator);
+    }
+
+    /** The index to use for one pattern, and the slot (natural order) of the join variable. */
+    private static class ScanPlan {
+        final TupleIndex index;
+        final int keySlot;
+        ScanPlan(TupleIndex index, int keySlot) {
+            this.index = index;
+            this.keySlot = keySlot;
+        }
+    }
+
+    /**
+     * Number of tuples a scan steps over, looking for a join key, before it starts
+     * again from the key with {@link TupleIndexRecord#findRange}.
+     */
+    private static final int SeekDistance = 16;
+
+    /** The range scan for one pattern, in order of the join variable. */
+    private static class Scan {
+        private final ScanPlan plan;
+        private final Tuple<NodeId> pattern;
+        private final Predicate<Tuple<NodeId>> filter;
+        private final boolean anyGraph;
+        private Iterator<Tuple<NodeId>> base;
+        private PeekIterator<Tuple<NodeId>> iter;
+
+        Scan(ScanPlan plan, Tuple<NodeId> pattern, Predicate<Tuple<NodeId>> filter, boolean anyGraph) {
+            this.plan = plan;
+            this.pattern = pattern;
+            this.filter = filter;
+            this.anyGraph = anyGraph;
+            start(plan.index.find(pattern));
+        }
+
+        private void start(Iterator<Tuple<NodeId>> tuples) {
+            base = tuples;
+            Iterator<Tuple<NodeId>> iter = tuples;
+            if ( filter != null )
+                iter = Iter.filter(iter, filter);
+            if ( anyGraph ) {
+                // The index chosen ends in G. See StageMatchTuple.
+                iter = Iter.map(iter, StageMatchTuple.quadsToAnyTriples);
+                iter = Iter.distinctAdjacent(iter);
+            }
+            this.iter = PeekIterator.create(iter);
+        }
+
+        boolean hasNext() {
+            return iter.hasNext();
+        }
+
+        Tuple<NodeId> next() {
+            return iter.next();
+        }
+
+        NodeId key() {
+            return iter.peek().get(plan.keySlot);
+        }
+
+        /** Move to the first tuple with a join key that is not less than {@code key}. */
+        void seek(NodeId key) {
+            for ( int i = 0 ; i < SeekDistance ; i++ ) {
+                if ( ! iter.hasNext() || NodeIdFactory.compareIndexOrder(key(), key) >= 0 )
+                    return;
+                iter.next();
+            }
+            if ( ! iter.hasNext() || NodeIdFactory.compareIndexOrder(key(), key) >= 0 )
+                return;
+            // Far from the key: start again from the key.
+            if ( plan.index.baseTupleIndex() instanceof TupleIndexRecord ) {
+                TupleIndexRecord index = (TupleIndexRecord)plan.index.baseTupleIndex();
+                Iterator<Tuple<NodeId>> tuples = index.findRange(pattern, NodeIdFactory.encode64(key), 0);
+                if ( tuples != null ) {
+                    Iter.close(base);
+                    start(tuples);
+                    return;
+                }
+            }
+            while ( iter.hasNext() && NodeIdFactory.compareIndexOrder(key(), key) < 0 )
+                iter.next();
+        }
+    }
+
+    /**
+     * Find a variable that every pattern can be scanned in order of, and the
+     * indexes to use. Return null if there isn't one.
+     */
+    private static ScanPlan[] plan(TupleTable tupleTable, NodeId[][] ids, Var[][] vars, boolean anyGraph) {
+        int N = ids.length;
+        Var[] vars0 = vars[0];
+        // Join on a variable of the triple part, not the graph slot.
+        for ( int i = vars0.length-3 ; i < vars0.length ; i++ ) {
+            Var v = vars0[i];
+            if ( v == null )
+                continue;
+            ScanPlan[] plans = new ScanPlan[N];
+            for ( int j = 0 ; j < N ; j++ ) {
+                plans[j] = choose(tupleTable, ids[j], vars[j], v, anyGraph);
+                if ( plans[j] == null ) {
+                    plans = null;
+                    break;
+                }
+            }
+            if ( plans != null )
+                return plans;
+        }
+        return null;
+    }
+
+    /**
+     * Choose an index for which all the bound slots of the pattern come first and
+     * then the variable, so a range scan returns matches in order of the variable.
+     */
+    private static ScanPlan choose(TupleTable tupleTable, NodeId[] ids, Var[] vars, Var v, boolean anyGraph) {
+        int len = ids.length;
+        int numBound = 0;
+        for ( NodeId id : ids ) {
+            if ( ! NodeId.isAny(id) )
+                numBound++;
+        }
+        if ( numBound == len )
+            return null;
+        for ( TupleIndex index : tupleTable.getIndexes() ) {
+            if ( index == null )
+                continue;
+            TupleMap tupleMap = index.getMapping();
+            int k = 0;
+            while ( k < len && ! NodeId.isAny(ids[tupleMap.mapIdx(k)]) )
+                k++;
+            if ( k != numBound )
+                // A bound slot after the first unbound slot.
+                continue;
+            int keySlot = tupleMap.mapIdx(k);
+            if ( ! v.equals(vars[keySlot]) )
+                continue;
+            if ( anyGraph && tupleMap.mapIdx(len-1) != 0 )
+                // Union graph needs G last for duplicate removal.
+                continue;
+            return new ScanPlan(index, keySlot);
+        }
+        return null;
+    }
+
+    /** Merge the scans. Each element is the results for one value of the join variable. */
+    private static class IterMergeJoin extends IteratorSlotted<List<BindingNodeId>> {
+        private final BindingNodeId input;
+        private final Var[][] vars;
+        private final Scan[] scans;
+        private boolean exhausted = false;
+
+        IterMergeJoin(BindingNodeId input, Var[][] vars, Scan[] scans) {
+            this.input = input;
+            this.vars = vars;
+            this.scans = scans;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return ! exhausted;
+        }
+
+        @Override
+        protected List<BindingNodeId> moveToNext() {
+            int N = scans.length;
+            for ( ;; ) {
+                // Highest key at the head of the scans.
+                NodeId key = null;
+                for ( int j = 0 ; j < N ; j++ ) {
+                    if ( ! scans[j].hasNext() )
+                        return finish();
+                    NodeId x = scans[j].key();
+                    if ( key == null || NodeIdFactory.compareIndexOrder(x, key) > 0 )
+                        key = x;
+                }
+                // Advance every scan to the key.
+                boolean aligned = true;
+                for ( int j = 0 ; j < N ; j++ ) {
+                    scans[j].seek(key);
+                    if ( ! scans[j].hasNext() )
+                        return finish();
+                    if ( ! key.equals(scans[j].key()) )
+                        aligned = false;
+                }
+                if ( ! aligned )
+                    continue;
+
+                @SuppressWarnings("unchecked")
+                List<Tuple<NodeId>>[] groups = new List[N];
+                for ( int j = 0 ; j < N ; j++ ) {
+                    groups[j] = new ArrayList<>();
+                    while ( scans[j].hasNext() && key.equals(scans[j].key()) )
+                        groups[j].add(scans[j].next());
+                }
+                List<BindingNodeId> results = new ArrayList<>();
+                join(0, input, groups, results);
+                if ( ! results.isEmpty() )
+                    return results;
+            }
+        }
+
+        private List<BindingNodeId> finish() {
+            exhausted = true;
+            return null;
+        }
+
+        // Like StageMatchTuple.tupleToBinding except that the variables may be
+        // bound by an earlier pattern of the join.
+        private static BindingNodeId bind(BindingNodeId parent, Tuple<NodeId> tuple, Var[] var) {
+            BindingNodeId output = new BindingNodeId(parent);
+            for ( int i = 0 ; i < var.length ; i++ ) {
+                Var v = var[i];
+                if ( v == null )
+                    continue;
+                NodeId id = tuple.get(i);
+                NodeId current = output.get(v);
+                if ( current != null ) {
+                    if ( ! current.equals(id) )
+                        return null;
+                    continue;
+                }
+                output.put(v, id);
+            }
+            return output;
+        }
+
+        // Cross product of the groups, checking other shared variables.
+        private void join(int j, BindingNodeId binding, List<Tuple<NodeId>>[] groups, List<BindingNodeId> results) {
+            if ( j == groups.length ) {
+                results.add(binding);
+                return;
+            }
+            for ( Tuple<NodeId> tuple : groups[j] ) {
+                BindingNodeId b = bind(binding, tuple, vars[j]);
+                if ( b != null )
+                    join(j+1, b, groups, results);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.apache.jena.tdb2.store.NodeIdType.*;
+
+import java.util.*;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.atlas.iterator.PeekIterator;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.SortCondition;
+import org.apache.jena.sparql.algebra.op.OpTopN;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingComparator;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.iterator.QueryIterTopN;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdType;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * {@code ORDER BY ?x LIMIT N} on a single triple or quad pattern, reading an
+ * index in order of {@code ?x} and stopping after N rows.
+ * <p>
+ * In an index, inline NodeIds are in order of value within runs of the key
+ * space: for each integer type, the negative and then the non-negative values;
+ * for each date and date/time type, the values with the same timezone. If the
+ * constants of the pattern are the leading slots of an index and {@code ?x} is
+ * the next slot, each run is a range scan in order of {@code ?x}. The runs are
+ * merged and only the first N rows are read. Descending order reads each run
+ * back from its end, one window of the key space at a time, the windows growing
+ * in size.
+ * <p>
+ * All the rows with any other value of {@code ?x} (not inline, or some other
+ * inline type) are read. The rows go to {@link QueryIterTopN} as usual, which
+ * makes the final choice.
+ */
+class TopNScan {
+    private static final NodeIdType[] integerTypes = {
+        XSD_INTEGER, XSD_POSITIVE_INTEGER, XSD_NEGATIVE_INTEGER, XSD_NON_NEGATIVE_INTEGER, XSD_NON_POSITIVE_INTEGER,
+        XSD_LONG, XSD_INT, XSD_SHORT, XSD_BYTE,
+        XSD_UNSIGNEDLONG, XSD_UNSIGNEDINT, XSD_UNSIGNEDSHORT, XSD_UNSIGNEDBYTE
+    };
+    private static final NodeIdType[] dateTimeTypes = { XSD_DATETIME, XSD_DATETIMESTAMP, XSD_DATE };
+
+    // Inline values are 56 bits. Integers are twos-complement.
+    private static final long VALUE_BITS = 1L<<56;
+    private static final long SIGN_BIT = 1L<<55;
+    // Date/time values have the timezone as the top 7 bits. See DateTimeNode.
+    private static final int TZ_SHIFT = 49;
+    private static final int TZ_COUNT = 1<<7;
+    // First window when reading back from the end of a run.
+    private static final long WINDOW = 1L<<16;
+
+    /**
+     * Return an iterator for the top N of the pattern, or null if the sort
+     * conditions or the indexes are not suitable.
+     */
+    static QueryIterator access(NodeTupleTable nodeTupleTable, Tuple<Node> pattern, OpTopN opTop, ExecutionContext execCxt) {
+        List<SortCondition> conditions = opTop.getConditions();
+        if ( conditions.size() != 1 || ! conditions.get(0).getExpression().isVariable() )
+            return null;
+        Var var = conditions.get(0).getExpression().asVar();
+        boolean descending = conditions.get(0).getDirection() == Query.ORDER_DESCENDING;
+        long limit = opTop.getLimit();
+
+        int len = pattern.len();
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        NodeId[] ids = new NodeId[len];
+        Var[] vars = new Var[len];
+        int keySlot = -1;
+        for ( int i = 0 ; i < len ; i++ ) {
+            Node n = pattern.get(i);
+            if ( Var.isVar(n) ) {
+                vars[i] = Var.alloc(n);
+                ids[i] = NodeId.NodeIdAny;
+                if ( var.equals(n) ) {
+                    if ( keySlot >= 0 )
+                        // ?x used twice.
+                        return null;
+                    keySlot = i;
+                }
+                continue;
+            }
+            ids[i] = nodeTable.getNodeIdForNode(n);
+            if ( NodeId.isDoesNotExist(ids[i]) )
+                // No matches. Leave to the general code.
+                return null;
+        }
+        if ( keySlot < 0 )
+            return null;
+
+        TupleIndexRecord index = chooseIndex(nodeTupleTable.getTupleTable().getIndexes(), ids, keySlot);
+        if ( index == null )
+            return null;
+        Tuple<NodeId> patternIds = TupleFactory.create(ids);
+        BindingComparator comparator = new BindingComparator(conditions, execCxt);
+        int slot = keySlot;
+
+        // Merge the ordered runs.
+        List<PeekIterator<Tuple<NodeId>>> runs = new ArrayList<>();
+        for ( NodeIdType type : integerTypes ) {
+            long base = typeBase(type);
+            long[][] ranges = { {base+SIGN_BIT, base+VALUE_BITS}, {base, base+SIGN_BIT} };
+            addRun(runs, index, patternIds, ranges, descending, limit);
+        }
+        for ( NodeIdType type : dateTimeTypes ) {
+            long base = typeBase(type);
+            for ( int tz : timezones(index, patternIds, base, keySlot) ) {
+                long[][] ranges = { {base+((long)tz<<TZ_SHIFT), base+((long)(tz+1)<<TZ_SHIFT)} };
+                addRun(runs, index, patternIds, ranges, descending, limit);
+            }
+        }
+        Iterator<Tuple<NodeId>> ordered = Iter.limit(new MergeRuns(runs, t->keyBinding(var, t.get(slot)), comparator), limit);
+
+        // Everything else in the key slot.
+        Iterator<Tuple<NodeId>> others = null;
+        long start = 0;
+        for ( long[] block : orderedBlocks() ) {
+            if ( start != block[0] )
+                others = Iter.concat(others, index.findRange(patternIds, start, block[0]));
+            start = block[1];
+        }
+        others = Iter.concat(others, index.findRange(patternIds, start, 0));
+
+        BindingNodeId root = new BindingNodeId();
+        Iterator<BindingNodeId> rows = Iter.iter(Iter.concat(ordered, others))
+            .map(t->StageMatchTuple.tupleToBinding(root, t, vars))
+            .removeNulls();
+        QueryIterator qIter = QueryIterPlainWrapper.create(SolverLibTDB.convertToNodes(rows, nodeTable), execCxt);
+        return new QueryIterTopN(qIter, conditions, limit, false, execCxt);
+    }
+
+    /**
+     * An index where the bound slots come first and then the key slot, so a
+     * range scan returns matches in order of the key slot.
+     */
+    private static TupleIndexRecord chooseIndex(TupleIndex[] indexes, NodeId[] ids, int keySlot) {
+        int numBound = 0;
+        for ( NodeId id : ids ) {
+            if ( ! NodeId.isAny(id) )
+                numBound++;
+        }
+        for ( TupleIndex index : indexes ) {
+            if ( index == null )
+                continue;
+            TupleMap tupleMap = index.getMapping();
+            int k = 0;
+            while ( k < ids.length && ! NodeId.isAny(ids[tupleMap.mapIdx(k)]) )
+                k++;
+            if ( k != numBound || tupleMap.mapIdx(k) != keySlot )
+                continue;
+            TupleIndex base = index.baseTupleIndex();
+            if ( base instanceof TupleIndexRecord )
+                return (TupleIndexRecord)base;
+        }
+        return null;
+    }
+
+    /** The on-disk form of the smallest NodeId of an inline type. */
+    private static long typeBase(NodeIdType type) {
+        return NodeIdFactory.encode64(NodeIdFactory.createValue(type, 0));
+    }
+
+    /** The blocks of the key space, {@code [start, end)}, for the types with ordered runs, in order. */
+    private static List<long[]> orderedBlocks() {
+        List<long[]> blocks = new ArrayList<>();
+        for ( NodeIdType type : integerTypes )
+            blocks.add(new long[] {typeBase(type), typeBase(type)+VALUE_BITS});
+        for ( NodeIdType type : dateTimeTypes )
+            blocks.add(new long[] {typeBase(type), typeBase(type)+VALUE_BITS});
+        blocks.sort((b1, b2) -> Long.compareUnsigned(b1[0], b2[0]));
+        return blocks;
+    }
+
+    /** The timezones used by values of a date/time type, found by skipping through the index. */
+    private static List<Integer> timezones(TupleIndexRecord index, Tuple<NodeId> pattern, long base, int keySlot) {
+        List<Integer> timezones = new ArrayList<>();
+        int tz = 0;
+        while ( tz < TZ_COUNT ) {
+            Iterator<Tuple<NodeId>> iter = index.findRange(pattern, base+((long)tz<<TZ_SHIFT), base+VALUE_BITS);
+            try {
+                if ( ! iter.hasNext() )
+                    break;
+                long key = NodeIdFactory.encode64(iter.next().get(keySlot));
+                tz = (int)((key-base) >>> TZ_SHIFT);
+            } finally {
+                Iter.close(iter);
+            }
+            timezones.add(tz);
+            tz++;
+        }
+        return timezones;
+    }
+
+    /** Add a run, given as ranges in ascending order, if it has any rows. */
+    private static void addRun(List<PeekIterator<Tuple<NodeId>>> runs, TupleIndexRecord index, Tuple<NodeId> pattern,
+                               long[][] ranges, boolean descending, long limit) {
+        if ( ! hasRows(index, pattern, ranges) )
+            return;
+        Iterator<Tuple<NodeId>> iter = null;
+        if ( ! descending ) {
+            for ( long[] range : ranges )
+                iter = Iter.concat(iter, index.findRange(pattern, range[0], range[1]));
+        } else {
+            for ( int i = ranges.length-1 ; i >= 0 ; i-- )
+                iter = Iter.concat(iter, new IterBackwards(index, pattern, ranges[i][0], ranges[i][1], limit));
+        }
+        runs.add(PeekIterator.create(iter));
+    }
+
+    private static boolean hasRows(TupleIndexRecord index, Tuple<NodeId> pattern, long[][] ranges) {
+        for ( long[] range : ranges ) {
+            Iterator<Tuple<NodeId>> iter = index.findRange(pattern, range[0], range[1]);
+            try {
+                if ( iter.hasNext() )
+                    return true;
+            } finally {
+                Iter.close(iter);
+            }
+        }
+        return false;
+    }
+
+    private static Binding keyBinding(Var var, NodeId nodeId) {
+        return BindingFactory.binding(var, NodeId.extract(nodeId));
+    }
+
+    /**
+     * Read a range of the key space in reverse order, up to a limit on the number of
+     * tuples. Each window of the key space is read forwards, keeping the last tuples.
+     */
+    private static class IterBackwards extends IteratorSlotted<Tuple<NodeId>> {
+        private final TupleIndexRecord index;
+        private final Tuple<NodeId> pattern;
+        private final long min;
+        private long top;
+        private long window = WINDOW;
+        private long remaining;
+        private final Deque<Tuple<NodeId>> buffer = new ArrayDeque<>();
+
+        IterBackwards(TupleIndexRecord index, Tuple<NodeId> pattern, long min, long max, long limit) {
+            this.index = index;
+            this.pattern = pattern;
+            this.min = min;
+            this.top = max;
+            this.remaining = limit;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            while ( buffer.isEmpty() && remaining > 0 && top != min ) {
+                long bottom = ( Long.compareUnsigned(top-min, window) <= 0 ) ? min : top-window;
+                Iterator<Tuple<NodeId>> iter = index.findRange(pattern, bottom, top);
+                try {
+                    while(iter.hasNext()) {
+                        buffer.addFirst(iter.next());
+                        if ( buffer.size() > remaining )
+                            buffer.removeLast();
+                    }
+                } finally {
+                    Iter.close(iter);
+                }
+                remaining -= buffer.size();
+                top = bottom;
+                if ( window < (1L<<62) )
+                    window <<= 1;
+            }
+            return ! buffer.isEmpty();
+        }
+
+        @Override
+        protected Tuple<NodeId> moveToNext() {
+            return buffer.removeFirst();
+        }
+    }
+
+    /** Merge ordered runs. */
+    private static class MergeRuns extends IteratorSlotted<Tuple<NodeId>> {
+        private final PriorityQueue<PeekIterator<Tuple<NodeId>>> heads;
+        private final List<PeekIterator<Tuple<NodeId>>> runs;
+
+        MergeRuns(List<PeekIterator<Tuple<NodeId>>> runs, Function<Tuple<NodeId>, Binding> key, Comparator<Binding> comparator) {
+            this.runs = runs;
+            Comparator<PeekIterator<Tuple<NodeId>>> cmp = (r1, r2) -> comparator.compare(key.apply(r1.peek()), key.apply(r2.peek()));
+            this.heads = new PriorityQueue<>(Math.max(1, runs.size()), cmp);
+            heads.addAll(runs);
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return ! heads.isEmpty();
+        }
+
+        @Override
+        protected Tuple<NodeId> moveToNext() {
+            PeekIterator<Tuple<NodeId>> run = heads.poll();
+            Tuple<NodeId> tuple = run.next();
+            if ( run.hasNext() )
+                heads.add(run);
+            return tuple;
+        }
+
+        @Override
+        protected void closeIterator() {
+            runs.forEach(Iter::close);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProcIndexes;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.tdb2.solver.stats.StatsLiveCounts.PredicateSet;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * BGP reordering using the counts maintained by {@link StatsLive}.
+ * <p>
+ * The order is chosen greedily: at each step, the triple pattern with the
+ * smallest estimated number of matches per incoming row is chosen, preferring
+ * patterns connected by a variable to those already chosen. Estimates use the
+ * per-predicate distinct subject and object counts, the per-object counts and
+ * histograms for a constant object, and the characteristic sets for patterns
+ * that continue a star on a subject variable.
+ * <p>
+ * If there are no counts (empty database), the fallback reorder is used.
+ * <p>
+ * The same estimates are used to decide whether to merge join the leading patterns
+ * of a BGP ({@link #preferMergeJoin}).
+ */
+public class ReorderLiveStats implements ReorderTransformation {
+    private final StatsLive stats;
+    private final NodeTable nodeTable;
+    private final ReorderTransformation fallback;
+
+    // Index entries read for a lookup of one key, relative to reading one entry of a scan.
+    private static final double ProbeCost = 4;
+
+    public ReorderLiveStats(StatsLive stats, NodeTable nodeTable, ReorderTransformation fallback) {
+        this.stats = stats;
+        this.nodeTable = nodeTable;
+        this.fallback = ( fallback != null ) ? fallback : ReorderLib.identity();
+    }
+
+    @Override
+    public BasicPattern reorder(BasicPattern pattern) {
+        if ( pattern.size() <= 1 )
+            return pattern;
+        return reorderIndexes(pattern).reorder(pattern);
+    }
+
+    @Override
+    public ReorderProc reorderIndexes(BasicPattern pattern) {
+        if ( pattern.size() <= 1 )
+            return ReorderLib.identityProc();
+        StatsLiveCounts counts = stats.get();
+        if ( counts.getTriples() == 0 )
+            return fallback.reorderIndexes(pattern);
+
+        List<Triple> triples = pattern.getList();
+        int N = triples.size();
+        NodeId[][] ids = new NodeId[N][];
+        for ( int i = 0 ; i < N ; i++ )
+            ids[i] = resolve(triples.get(i));
+
+        Estimator estimator = new Estimator(counts);
+        boolean[] used = new boolean[N];
+        int[] order = new int[N];
+        for ( int step = 0 ; step < N ; step++ ) {
+            int best = -1;
+            double bestEstimate = 0;
+            boolean bestConnected = false;
+            for ( int i = 0 ; i < N ; i++ ) {
+                if ( used[i] )
+                    continue;
+                Triple t = triples.get(i);
+                double est = estimator.estimate(t, ids[i]);
+                // Patterns that match nothing go first, connected or not.
+                boolean connected = step == 0 || est == 0 || estimator.connected(t);
+                boolean better = ( best < 0 )
+                        || ( connected && ! bestConnected )
+                        || ( connected == bestConnected && est < bestEstimate );
+                if ( better ) {
+                    best = i;
+                    bestEstimate = est;
+                    bestConnected = connected;
+                }
+            }
+            order[step] = best;
+            used[best] = true;
+            estimator.bind(triples.get(best), ids[best]);
+        }
+        return new ReorderProcIndexes(order);
+    }
+
+    /**
+     * Whether the triple patterns, in execution order, are estimated to be cheaper
+     * to evaluate by merge join, which scans each pattern once, than by index nested
+     * loops, which look up each pattern once for each row of the patterns before it.
+     * Returns true if there are no counts.
+     */
+    public boolean preferMergeJoin(List<Triple> triples) {
+        StatsLiveCounts counts = stats.get();
+        if ( counts.getTriples() == 0 )
+            return true;
+        Estimator estimator = new Estimator(counts);
+        double rows = 1;
+        double nestedCost = 0;
+        double mergeCost = 0;
+        for ( int i = 0 ; i < triples.size() ; i++ ) {
+            Triple t = triples.get(i);
+            NodeId[] ids = resolve(t);
+            double est = estimator.estimate(t, ids);
+            nestedCost += ( i == 0 ) ? est : rows * (ProbeCost + est);
+            rows = rows * est;
+            mergeCost += new Estimator(counts).estimate(t, ids);
+            estimator.bind(t, ids);
+        }
+        return mergeCost <= nestedCost;
+    }
+
+    /** NodeIds for the constants in a triple pattern; null for variables. */
+    private NodeId[] resolve(Triple triple) {
+        return new NodeId[] {resolve(triple.getSubject()), resolve(triple.getPredicate()), resolve(triple.getObject())};
+    }
+
+    private NodeId resolve(Node n) {
+        if ( ! n.isConcrete() )
+            return null;
+        return nodeTable.getNodeIdForNode(n);
+    }
+
+    /** Estimation state for one reordering. */
+    private static class Estimator {
+        private final StatsLiveCounts counts;
+        private final Set<Var> bound = new HashSet<>();
+        // Subject variable to the predicates of the star so far.
+        private final Map<Var, PredicateSet> stars = new HashMap<>();
+        private final Map<PredicateSet, Long> starCache = new HashMap<>();
+
+        Estimator(StatsLiveCounts counts) {
+            this.counts = counts;
+        }
+
+        boolean connected(Triple t) {
+            return isBoundVar(t.getSubject()) || isBoundVar(t.getPredicate()) || isBoundVar(t.getObject());
+        }
+
+        void bind(Triple t, NodeId[] ids) {
+            Node s = t.getSubject();
+            if ( Var.isVar(s) && ids[1] != null && ! NodeId.isDoesNotExist(ids[1]) ) {
+                Var v = Var.alloc(s);
+                stars.put(v, stars.getOrDefault(v, PredicateSet.EMPTY).with(ids[1]));
+            }
+            bindVar(s);
+            bindVar(t.getPredicate());
+            bindVar(t.getObject());
+        }
+
+        private void bindVar(Node n) {
+            if ( Var.isVar(n) )
+                bound.add(Var.alloc(n));
+        }
+
+        private boolean isBoundVar(Node n) {
+            return Var.isVar(n) && bound.contains(n);
+        }
+
+        private boolean isBound(Node n, NodeId id) {
+            return id != null || isBoundVar(n);
+        }
+
+        /** Estimated matches of a triple pattern, per row of the variables bound so far. */
+        double estimate(Triple t, NodeId[] ids) {
+            for ( NodeId id : ids ) {
+                if ( NodeId.isDoesNotExist(id) )
+                    return 0;
+            }
+            boolean sBound = isBound(t.getSubject(), ids[0]);
+            boolean oBound = isBound(t.getObject(), ids[2]);
+            NodeId p = ids[1];
+            if ( p == null ) {
+                // Variable predicate.
+                double triples = counts.getTriples();
+                double subjects = Math.max(1, counts.getSubjects());
+                double objects = Math.max(1, counts.getObjects());
+                if ( sBound && oBound )
+                    return triples / (subjects * objects);
+                if ( sBound )
+                    return triples / subjects;
+                if ( oBound )
+                    return triples / objects;
+                return triples;
+            }
+            if ( ! counts.hasPredicate(p) )
+                return 0;
+            double count = counts.getPredicateCount(p);
+            double dS = Math.max(1, counts.getPredicateSubjects(p));
+            double dO = Math.max(1, counts.getPredicateObjects(p));
+            if ( sBound && oBound ) {
+                if ( ids[2] != null )
+                    return counts.estimateObject(p, ids[2]) / dS;
+                return count / (dS * dO);
+            }
+            if ( sBound )
+                return starFraction(t.getSubject(), p) * count / dS;
+            if ( oBound ) {
+                if ( ids[2] != null )
+                    return counts.estimateObject(p, ids[2]);
+                return count / dO;
+            }
+            return count;
+        }
+
+        /**
+         * For a subject variable that is already the subject of a star of predicates,
+         * the fraction of those subjects that also have predicate {@code p}.
+         */
+        private double starFraction(Node s, NodeId p) {
+            if ( ! Var.isVar(s) )
+                return 1.0;
+            PredicateSet star = stars.get(Var.alloc(s));
+            if ( star == null || star.size() == 0 || star.contains(p) )
+                return 1.0;
+            long base = starSubjects(star);
+            if ( base <= 0 || counts.getCharacteristicSetsSize() == 0 )
+                return 1.0;
+            long withP = starSubjects(star.with(p));
+            return (double)withP / base;
+        }
+
+        private long starSubjects(PredicateSet set) {
+            return starCache.computeIfAbsent(set, counts::getStarSubjects);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.util.*;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.PeekIterator;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.trans.data.TransBlob;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionListener;
+import org.apache.jena.tdb2.solver.stats.StatsLiveCounts.PredicateSet;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Statistics for the BGP optimizer, maintained as the data changes.
+ * <p>
+ * Each change made through the triple and quad tables is checked against the
+ * current state of the database (before the change) to work out how it affects
+ * the distinct counts. The changes of a write transaction are accumulated, then,
+ * at the start of prepare, applied to the last committed counts and written to
+ * a {@link TransBlob} so the new counts are journaled with the rest of the
+ * transaction. The in-memory counts used by queries are switched when the
+ * commit finishes. An abort drops the accumulated changes.
+ * <p>
+ * Changes made directly to the indexes (the bulk loaders) are not seen;
+ * {@link #rebuild} recalculates the counts from the data at the next commit.
+ */
+public class StatsLive implements TransactionListener, TupleTable.ChangeMonitor {
+    private static Logger log = LoggerFactory.getLogger(StatsLive.class);
+
+    private final TransBlob blob;
+    private TupleTable triples = null;
+    private TupleTable quads = null;
+
+    // Last committed counts. Not modified after publication.
+    private volatile StatsLiveCounts committed = StatsLiveCounts.empty();
+
+    // Write transaction state. There is only ever one writer.
+    private StatsLiveCounts delta = null;
+    private boolean rebuildNeeded = false;
+    private StatsLiveCounts pending = null;
+
+    public StatsLive(TransBlob blob) {
+        this.blob = blob;
+    }
+
+    /** Monitor the triple and quad tables. */
+    public void attach(TupleTable triples, TupleTable quads) {
+        this.triples = triples;
+        this.quads = quads;
+        triples.setChangeMonitor(this);
+        quads.setChangeMonitor(this);
+    }
+
+    /**
+     * Load the committed counts, after any journal recovery.
+     * Return false if there are no stored counts and a {@link #rebuild} is needed.
+     */
+    public boolean start() {
+        StatsLiveCounts x = StatsLiveCounts.decode(blob.getBlob());
+        if ( x == null )
+            return false;
+        committed = x;
+        return true;
+    }
+
+    /** The last committed counts. */
+    public StatsLiveCounts get() {
+        return committed;
+    }
+
+    /**
+     * Recalculate the counts from the data in the database when the current write
+     * transaction commits. Call this inside the write transaction.
+     */
+    public void rebuild() {
+        rebuildNeeded = true;
+        delta = null;
+    }
+
+    // ---- Transaction lifecycle
+
+    @Override
+    public void notifyTxnStart(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            reset();
+    }
+
+    @Override
+    public void notifyPrepareStart(Transaction transaction) {
+        if ( ! transaction.isWriteTxn() )
+            return;
+        if ( rebuildNeeded )
+            pending = calculate();
+        else if ( delta != null )
+            pending = committed.merge(delta);
+        else
+            return;
+        blob.setBlob(pending.encode());
+    }
+
+    @Override
+    public void notifyCommitFinish(Transaction transaction) {
+        if ( pending != null )
+            committed = pending;
+        reset();
+    }
+
+    @Override
+    public void notifyAbortFinish(Transaction transaction) {
+        reset();
+    }
+
+    private void reset() {
+        delta = null;
+        pending = null;
+        rebuildNeeded = false;
+    }
+
+    // ---- Incremental changes
+    // Called before the change happens.
+
+    @Override
+    public void beforeAdd(Tuple<NodeId> tuple) {
+        if ( rebuildNeeded )
+            return;
+        if ( exists(tuple) )
+            return;
+        NodeId s = subject(tuple);
+        NodeId p = predicate(tuple);
+        NodeId o = object(tuple);
+        StatsLiveCounts d = delta();
+        d.triples++;
+        long dS = 0;
+        long dO = 0;
+        if ( count(s, p, null, 1) == 0 ) {
+            // New predicate for the subject.
+            dS = 1;
+            PredicateSet before = predicatesOf(s);
+            if ( before.size() == 0 )
+                d.subjects++;
+            else
+                d.addCharSet(before, -1);
+            d.addCharSet(before.with(p), 1);
+        }
+        if ( count(null, p, o, 1) == 0 ) {
+            dO = 1;
+            if ( count(null, null, o, 1) == 0 )
+                d.objects++;
+        }
+        d.addPredicate(p, 1, dS, dO);
+        d.addObject(p, o, 1);
+        Long bucket = StatsLiveCounts.bucket(o);
+        if ( bucket != null )
+            d.addHistogram(p, bucket, 1, dO);
+    }
+
+    @Override
+    public void beforeDelete(Tuple<NodeId> tuple) {
+        if ( rebuildNeeded )
+            return;
+        if ( ! exists(tuple) )
+            return;
+        NodeId s = subject(tuple);
+        NodeId p = predicate(tuple);
+        NodeId o = object(tuple);
+        StatsLiveCounts d = delta();
+        d.triples--;
+        long dS = 0;
+        long dO = 0;
+        if ( count(s, p, null, 2) == 1 ) {
+            // Last use of the predicate for the subject.
+            dS = -1;
+            PredicateSet before = predicatesOf(s);
+            PredicateSet after = before.without(p);
+            d.addCharSet(before, -1);
+            if ( after.size() == 0 )
+                d.subjects--;
+            else
+                d.addCharSet(after, 1);
+        }
+        if ( count(null, p, o, 2) == 1 ) {
+            dO = -1;
+            if ( count(null, null, o, 2) == 1 )
+                d.objects--;
+        }
+        d.addPredicate(p, -1, dS, dO);
+        d.addObject(p, o, -1);
+        Long bucket = StatsLiveCounts.bucket(o);
+        if ( bucket != null )
+            d.addHistogram(p, bucket, -1, dO);
+    }
+
+    @Override
+    public void beforeClear() {
+        // One table is cleared; the other may still have data.
+        rebuild();
+    }
+
+    private StatsLiveCounts delta() {
+        if ( delta == null )
+            delta = new StatsLiveCounts();
+        return delta;
+    }
+
+    private static NodeId subject(Tuple<NodeId> t)   { return t.get(t.len()-3); }
+    private static NodeId predicate(Tuple<NodeId> t) { return t.get(t.len()-2); }
+    private static NodeId object(Tuple<NodeId> t)    { return t.get(t.len()-1); }
+
+    private boolean exists(Tuple<NodeId> tuple) {
+        TupleTable table = ( tuple.len() == 3 ) ? triples : quads;
+        Iterator<Tuple<NodeId>> iter = table.find(tuple);
+        try {
+            return iter.hasNext();
+        } finally { Iter.close(iter); }
+    }
+
+    /** Count matches of a triple pattern in any graph, stopping at {@code limit}. */
+    private long count(NodeId s, NodeId p, NodeId o, long limit) {
+        long x = count(triples.find(TupleFactory.create3(any(s), any(p), any(o))), limit);
+        if ( x >= limit )
+            return x;
+        return x + count(quads.find(TupleFactory.create4(NodeId.NodeIdAny, any(s), any(p), any(o))), limit-x);
+    }
+
+    private static long count(Iterator<Tuple<NodeId>> iter, long limit) {
+        try {
+            long x = 0;
+            while ( x < limit && iter.hasNext() ) {
+                iter.next();
+                x++;
+            }
+            return x;
+        } finally { Iter.close(iter); }
+    }
+
+    private static NodeId any(NodeId n) {
+        return n == null ? NodeId.NodeIdAny : n;
+    }
+
+    /** Predicates used with a subject, in any graph. */
+    private PredicateSet predicatesOf(NodeId s) {
+        Set<NodeId> preds = new HashSet<>();
+        triples.find(TupleFactory.create3(s, NodeId.NodeIdAny, NodeId.NodeIdAny)).forEachRemaining(t->preds.add(t.get(1)));
+        quads.find(TupleFactory.create4(NodeId.NodeIdAny, s, NodeId.NodeIdAny, NodeId.NodeIdAny)).forEachRemaining(t->preds.add(t.get(2)));
+        return PredicateSet.create(preds);
+    }
+
+    // ---- Full calculation
+
+    /** Calculate the counts by scanning the database. */
+    /*package*/ StatsLiveCounts calculate() {
+        StatsLiveCounts x = new StatsLiveCounts();
+        scanSubjects(x);
+        scanPredicates(x);
+        scanObjects(x);
+        log.debug("Rebuilt: {}", x);
+        return x;
+    }
+
+    // S, P, O order: triple count, subjects, distinct subjects per predicate, characteristic sets, histogram counts.
+    private void scanSubjects(StatsLiveCounts x) {
+        Iterator<Tuple<NodeId>> iter = scan("SPO", new int[] {0, 1, 2});
+        NodeId currentS = null;
+        NodeId currentP = null;
+        Set<NodeId> preds = new HashSet<>();
+        while ( iter.hasNext() ) {
+            Tuple<NodeId> t = iter.next();
+            NodeId s = t.get(0);
+            NodeId p = t.get(1);
+            NodeId o = t.get(2);
+            x.triples++;
+            boolean newS = ! s.equals(currentS);
+            if ( newS ) {
+                finishSubject(x, preds);
+                x.subjects++;
+                currentS = s;
+                currentP = null;
+            }
+            boolean newSP = ! p.equals(currentP);
+            if ( newSP ) {
+                preds.add(p);
+                currentP = p;
+            }
+            x.addPredicate(p, 1, newSP ? 1 : 0, 0);
+            Long bucket = StatsLiveCounts.bucket(o);
+            if ( bucket != null )
+                x.addHistogram(p, bucket, 1, 0);
+        }
+        finishSubject(x, preds);
+    }
+
+    private static void finishSubject(StatsLiveCounts x, Set<NodeId> preds) {
+        if ( preds.isEmpty() )
+            return;
+        PredicateSet cs = PredicateSet.create(preds);
+        preds.clear();
+        if ( x.charSets.containsKey(cs) || x.charSets.size() < StatsLiveCounts.MaxCharacteristicSets )
+            x.addCharSet(cs, 1);
+        else
+            x.charSetsDropped++;
+    }
+
+    // P, O order: distinct objects per predicate, object counts, histogram distinct counts.
+    private void scanPredicates(StatsLiveCounts x) {
+        Iterator<Tuple<NodeId>> iter = scan("POS", new int[] {1, 2, 0});
+        NodeId currentP = null;
+        NodeId currentO = null;
+        Map<NodeId, Long> objCounts = new HashMap<>();
+        while ( iter.hasNext() ) {
+            Tuple<NodeId> t = iter.next();
+            NodeId p = t.get(1);
+            NodeId o = t.get(2);
+            if ( ! p.equals(currentP) ) {
+                finishPredicate(x, currentP, objCounts);
+                currentP = p;
+                currentO = null;
+            }
+            boolean newPO = ! o.equals(currentO);
+            if ( newPO ) {
+                currentO = o;
+                x.addPredicate(p, 0, 0, 1);
+                Long bucket = StatsLiveCounts.bucket(o);
+                if ( bucket != null )
+                    x.addHistogram(p, bucket, 0, 1);
+            }
+            if ( objCounts != null ) {
+                objCounts.merge(o, 1L, Long::sum);
+                if ( objCounts.size() > StatsLiveCounts.MaxObjectsPerPredicate ) {
+                    x.objectsOverflow.add(p);
+                    objCounts = null;
+                }
+            }
+        }
+        finishPredicate(x, currentP, objCounts);
+    }
+
+    private static void finishPredicate(StatsLiveCounts x, NodeId p, Map<NodeId, Long> objCounts) {
+        if ( p == null || objCounts == null )
+            return;
+        x.objectCounts.put(p, new HashMap<>(objCounts));
+        objCounts.clear();
+    }
+
+    // O order: distinct objects.
+    private void scanObjects(StatsLiveCounts x) {
+        Iterator<Tuple<NodeId>> iter = scan("OSP", new int[] {2, 0, 1});
+        NodeId currentO = null;
+        while ( iter.hasNext() ) {
+            NodeId o = iter.next().get(2);
+            if ( ! o.equals(currentO) ) {
+                x.objects++;
+                currentO = o;
+            }
+        }
+    }
+
+    /**
+     * All triples, from the triple table and (ignoring the graph) the quad table,
+     * as (S,P,O) tuples, sorted by the given column order.
+     */
+    private Iterator<Tuple<NodeId>> scan(String order, int[] cols) {
+        Comparator<Tuple<NodeId>> cmp = (t1, t2) -> {
+            for ( int i : cols ) {
+                int c = NodeIdFactory.compareIndexOrder(t1.get(i), t2.get(i));
+                if ( c != 0 )
+                    return c;
+            }
+            return 0;
+        };
+        Iterator<Tuple<NodeId>> iter3 = sorted(triples, order, cmp);
+        Iterator<Tuple<NodeId>> iter4 = Iter.map(sorted(quads, order+"G", cmp),
+                                                 q->TupleFactory.create3(q.get(1), q.get(2), q.get(3)));
+        return merge(iter3, iter4, cmp);
+    }
+
+    private static Iterator<Tuple<NodeId>> sorted(TupleTable table, String indexName, Comparator<Tuple<NodeId>> cmp) {
+        for ( TupleIndex index : table.getIndexes() ) {
+            if ( index != null && index.getName().equals(indexName) )
+                return index.all();
+        }
+        // No index in the required order. Sort in-memory.
+        log.warn("No index {}: sorting in memory", indexName);
+        List<Tuple<NodeId>> x = Iter.toList(table.getIndex(0).all());
+        if ( table.getTupleLen() == 4 ) {
+            Comparator<Tuple<NodeId>> cmp4 = (q1, q2) -> cmp.compare(TupleFactory.create3(q1.get(1), q1.get(2), q1.get(3)),
+                                                                     TupleFactory.create3(q2.get(1), q2.get(2), q2.get(3)));
+            x.sort(cmp4);
+        } else
+            x.sort(cmp);
+        return x.iterator();
+    }
+
+    private static Iterator<Tuple<NodeId>> merge(Iterator<Tuple<NodeId>> iter1, Iterator<Tuple<NodeId>> iter2, Comparator<Tuple<NodeId>> cmp) {
+        PeekIterator<Tuple<NodeId>> peek1 = PeekIterator.create(iter1);
+        PeekIterator<Tuple<NodeId>> peek2 = PeekIterator.create(iter2);
+        return new Iterator<Tuple<NodeId>>() {
+            @Override
+            public boolean hasNext() {
+                return peek1.hasNext() || peek2.hasNext();
+            }
+
+            @Override
+            public Tuple<NodeId> next() {
+                if ( ! peek1.hasNext() )
+                    return peek2.next();
+                if ( ! peek2.hasNext() )
+                    return peek1.next();
+                return cmp.compare(peek1.peek(), peek2.peek()) <= 0 ? peek1.next() : peek2.next();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "StatsLive:"+committed;
+    }
+}
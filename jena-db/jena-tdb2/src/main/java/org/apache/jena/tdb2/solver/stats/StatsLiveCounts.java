@@ -0,0 +1,559 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.value.DateTimeNode;
+import org.apache.jena.tdb2.store.value.IntegerNode;
+import org.apache.jena.tdb2.sys.SystemTDB;
+
+/**
+ * Counts used for cardinality estimation, kept by {@link StatsLive}.
+ * <p>
+ * The same class is used for a committed, published, set of counts (which is
+ * then not changed) and for the changes made by a write transaction, where the
+ * counts are signed differences.
+ * <ul>
+ * <li>number of triples, distinct subjects, distinct objects
+ * <li>per predicate: number of triples, distinct subjects, distinct objects
+ * <li>per predicate with few distinct objects (e.g. {@code rdf:type}): the count for each object
+ * <li>characteristic sets: the number of subjects having exactly a given set of predicates
+ * <li>per predicate: a histogram of inline integer (log2 buckets) and date/dateTime (year buckets) objects
+ * </ul>
+ * All counts are over the default graph and all named graphs.
+ */
+public final class StatsLiveCounts {
+    /** Maximum number of characteristic sets kept. */
+    static final int MaxCharacteristicSets  = 10_000;
+    /** Per-object counts are kept for a predicate with at most this many distinct objects. */
+    static final int MaxObjectsPerPredicate = 1_000;
+
+    private static final int Version        = 1;
+    private static final int I_COUNT        = 0;
+    private static final int I_SUBJECTS     = 1;
+    private static final int I_OBJECTS      = 2;
+
+    long triples  = 0;
+    long subjects = 0;
+    long objects  = 0;
+    // Predicate -> count, distinct subjects, distinct objects
+    final Map<NodeId, long[]>               predicates      = new HashMap<>();
+    final Map<NodeId, Map<NodeId, Long>>    objectCounts    = new HashMap<>();
+    final Set<NodeId>                       objectsOverflow = new HashSet<>();
+    final Map<PredicateSet, Long>           charSets        = new HashMap<>();
+    long charSetsDropped = 0;
+    // Predicate -> bucket -> count, distinct
+    final Map<NodeId, Map<Long, long[]>>    histograms      = new HashMap<>();
+
+    /*package*/ StatsLiveCounts() {}
+
+    /** Empty counts. */
+    public static StatsLiveCounts empty() {
+        return new StatsLiveCounts();
+    }
+
+    // ---- Access
+
+    public long getTriples()    { return triples; }
+    public long getSubjects()   { return subjects; }
+    public long getObjects()    { return objects; }
+
+    public boolean hasPredicate(NodeId p) {
+        return predicates.containsKey(p);
+    }
+
+    /** Number of triples with predicate {@code p}. */
+    public long getPredicateCount(NodeId p) {
+        return predicateSlot(p, I_COUNT);
+    }
+
+    /** Number of distinct subjects of triples with predicate {@code p}. */
+    public long getPredicateSubjects(NodeId p) {
+        return predicateSlot(p, I_SUBJECTS);
+    }
+
+    /** Number of distinct objects of triples with predicate {@code p}. */
+    public long getPredicateObjects(NodeId p) {
+        return predicateSlot(p, I_OBJECTS);
+    }
+
+    private long predicateSlot(NodeId p, int idx) {
+        long[] x = predicates.get(p);
+        return x == null ? 0 : x[idx];
+    }
+
+    /**
+     * Number of triples with predicate {@code p} and object {@code o}, or -1 if
+     * not recorded because the predicate has too many distinct objects.
+     */
+    public long getObjectCount(NodeId p, NodeId o) {
+        if ( ! predicates.containsKey(p) )
+            return 0;
+        if ( objectsOverflow.contains(p) )
+            return -1;
+        Map<NodeId, Long> x = objectCounts.get(p);
+        if ( x == null )
+            return -1;
+        return x.getOrDefault(o, 0L);
+    }
+
+    /**
+     * Estimate of the number of triples with predicate {@code p} and object
+     * {@code o}, using the per-object counts, then the histogram of inline values,
+     * then the average over all objects of {@code p}.
+     */
+    public double estimateObject(NodeId p, NodeId o) {
+        long[] ps = predicates.get(p);
+        if ( ps == null )
+            return 0;
+        long c = getObjectCount(p, o);
+        if ( c >= 0 )
+            return c;
+        Long bucket = bucket(o);
+        if ( bucket != null ) {
+            Map<Long, long[]> h = histograms.get(p);
+            long[] b = ( h == null ) ? null : h.get(bucket);
+            if ( b == null || b[0] <= 0 )
+                return 0;
+            return (double)b[0] / Math.max(1, b[1]);
+        }
+        return (double)ps[I_COUNT] / Math.max(1, ps[I_OBJECTS]);
+    }
+
+    /**
+     * Number of subjects that have (at least) all the predicates in {@code preds},
+     * from the characteristic sets. The empty set gives the number of subjects.
+     */
+    public long getStarSubjects(PredicateSet preds) {
+        if ( preds.size() == 0 )
+            return subjects;
+        long x = 0;
+        for ( Map.Entry<PredicateSet, Long> e : charSets.entrySet() ) {
+            if ( e.getKey().containsAll(preds) )
+                x += e.getValue();
+        }
+        return x;
+    }
+
+    /** Number of characteristic sets recorded. */
+    public int getCharacteristicSetsSize() {
+        return charSets.size();
+    }
+
+    // ---- Changes (used for building and for deltas)
+
+    /*package*/ void addPredicate(NodeId p, long count, long distinctSubjects, long distinctObjects) {
+        long[] x = predicates.computeIfAbsent(p, k->new long[3]);
+        x[I_COUNT] += count;
+        x[I_SUBJECTS] += distinctSubjects;
+        x[I_OBJECTS] += distinctObjects;
+    }
+
+    /*package*/ void addObject(NodeId p, NodeId o, long count) {
+        objectCounts.computeIfAbsent(p, k->new HashMap<>()).merge(o, count, Long::sum);
+    }
+
+    /*package*/ void addCharSet(PredicateSet set, long count) {
+        charSets.merge(set, count, Long::sum);
+    }
+
+    /*package*/ void addHistogram(NodeId p, long bucket, long count, long distinct) {
+        long[] x = histograms.computeIfAbsent(p, k->new HashMap<>()).computeIfAbsent(bucket, k->new long[2]);
+        x[0] += count;
+        x[1] += distinct;
+    }
+
+    /**
+     * Histogram bucket for an inline value, or null if the NodeId is not an inline
+     * integer, date or dateTime.
+     * Integers are bucketed by sign and bit length, dates by year.
+     */
+    /*package*/ static Long bucket(NodeId o) {
+        switch (o.type()) {
+            case XSD_INTEGER: {
+                long v = IntegerNode.unpack56(o.getPtrLocation());
+                int b = ( v == 0 ) ? 0 : Long.SIZE - Long.numberOfLeadingZeros(Math.abs(v));
+                if ( v < 0 )
+                    b = -b;
+                return (1L << 32) | (b & 0xFFFFFFFFL);
+            }
+            case XSD_DATETIME: case XSD_DATETIMESTAMP: case XSD_DATE: {
+                int year = DateTimeNode.unpackYear(o.getPtrLocation());
+                return (2L << 32) | year;
+            }
+            default:
+                return null;
+        }
+    }
+
+    /** Return new counts: these counts with the changes in {@code delta} applied. */
+    /*package*/ StatsLiveCounts merge(StatsLiveCounts delta) {
+        StatsLiveCounts x = copy();
+        x.triples += delta.triples;
+        x.subjects += delta.subjects;
+        x.objects += delta.objects;
+
+        delta.predicates.forEach((p, d) -> {
+            long[] v = x.predicates.computeIfAbsent(p, k->new long[3]);
+            for ( int i = 0 ; i < v.length ; i++ )
+                v[i] += d[i];
+            if ( v[I_COUNT] <= 0 ) {
+                x.predicates.remove(p);
+                x.objectCounts.remove(p);
+                x.objectsOverflow.remove(p);
+                x.histograms.remove(p);
+            }
+        });
+
+        delta.objectCounts.forEach((p, d) -> {
+            if ( ! x.predicates.containsKey(p) || x.objectsOverflow.contains(p) )
+                return;
+            Map<NodeId, Long> m = x.objectCounts.computeIfAbsent(p, k->new HashMap<>());
+            d.forEach((o, c) -> {
+                long v = m.getOrDefault(o, 0L) + c;
+                if ( v > 0 )
+                    m.put(o, v);
+                else
+                    m.remove(o);
+            });
+            if ( m.size() > MaxObjectsPerPredicate ) {
+                x.objectCounts.remove(p);
+                x.objectsOverflow.add(p);
+            } else if ( m.isEmpty() )
+                x.objectCounts.remove(p);
+        });
+
+        delta.charSets.forEach((set, c) -> {
+            Long v = x.charSets.get(set);
+            if ( v == null ) {
+                if ( c <= 0 )
+                    return;
+                if ( x.charSets.size() >= MaxCharacteristicSets ) {
+                    x.charSetsDropped += c;
+                    return;
+                }
+                v = 0L;
+            }
+            v = v + c;
+            if ( v > 0 )
+                x.charSets.put(set, v);
+            else
+                x.charSets.remove(set);
+        });
+
+        delta.histograms.forEach((p, d) -> {
+            if ( ! x.predicates.containsKey(p) )
+                return;
+            Map<Long, long[]> m = x.histograms.computeIfAbsent(p, k->new HashMap<>());
+            d.forEach((bucket, c) -> {
+                long[] v = m.computeIfAbsent(bucket, k->new long[2]);
+                v[0] += c[0];
+                v[1] += c[1];
+                if ( v[0] <= 0 )
+                    m.remove(bucket);
+            });
+            if ( m.isEmpty() )
+                x.histograms.remove(p);
+        });
+        return x;
+    }
+
+    private StatsLiveCounts copy() {
+        StatsLiveCounts x = new StatsLiveCounts();
+        x.triples = triples;
+        x.subjects = subjects;
+        x.objects = objects;
+        predicates.forEach((p, v) -> x.predicates.put(p, v.clone()));
+        objectCounts.forEach((p, m) -> x.objectCounts.put(p, new HashMap<>(m)));
+        x.objectsOverflow.addAll(objectsOverflow);
+        x.charSets.putAll(charSets);
+        x.charSetsDropped = charSetsDropped;
+        histograms.forEach((p, m) -> {
+            Map<Long, long[]> m2 = new HashMap<>();
+            m.forEach((b, v) -> m2.put(b, v.clone()));
+            x.histograms.put(p, m2);
+        });
+        return x;
+    }
+
+    // ---- Encoding
+
+    /** Encode as bytes, for storage. */
+    /*package*/ ByteBuffer encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(Version);
+            out.writeLong(triples);
+            out.writeLong(subjects);
+            out.writeLong(objects);
+
+            out.writeInt(predicates.size());
+            for ( Map.Entry<NodeId, long[]> e : predicates.entrySet() ) {
+                writeNodeId(out, e.getKey());
+                for ( long v : e.getValue() )
+                    out.writeLong(v);
+            }
+
+            out.writeInt(objectCounts.size());
+            for ( Map.Entry<NodeId, Map<NodeId, Long>> e : objectCounts.entrySet() ) {
+                writeNodeId(out, e.getKey());
+                out.writeInt(e.getValue().size());
+                for ( Map.Entry<NodeId, Long> e2 : e.getValue().entrySet() ) {
+                    writeNodeId(out, e2.getKey());
+                    out.writeLong(e2.getValue());
+                }
+            }
+
+            out.writeInt(objectsOverflow.size());
+            for ( NodeId p : objectsOverflow )
+                writeNodeId(out, p);
+
+            out.writeInt(charSets.size());
+            for ( Map.Entry<PredicateSet, Long> e : charSets.entrySet() ) {
+                NodeId[] preds = e.getKey().predicates;
+                out.writeInt(preds.length);
+                for ( NodeId p : preds )
+                    writeNodeId(out, p);
+                out.writeLong(e.getValue());
+            }
+            out.writeLong(charSetsDropped);
+
+            out.writeInt(histograms.size());
+            for ( Map.Entry<NodeId, Map<Long, long[]>> e : histograms.entrySet() ) {
+                writeNodeId(out, e.getKey());
+                out.writeInt(e.getValue().size());
+                for ( Map.Entry<Long, long[]> e2 : e.getValue().entrySet() ) {
+                    out.writeLong(e2.getKey());
+                    out.writeLong(e2.getValue()[0]);
+                    out.writeLong(e2.getValue()[1]);
+                }
+            }
+            out.flush();
+            return ByteBuffer.wrap(bytes.toByteArray());
+        } catch (IOException ex) {
+            throw new TDBException("StatsLiveCounts.encode", ex);
+        }
+    }
+
+    /** Decode from bytes. Returns null if there are no bytes. */
+    /*package*/ static StatsLiveCounts decode(ByteBuffer bb) {
+        if ( bb == null || bb.remaining() == 0 )
+            return null;
+        byte[] b = new byte[bb.remaining()];
+        bb.duplicate().get(b);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+            int version = in.readInt();
+            if ( version != Version )
+                throw new TDBException("StatsLiveCounts: unrecognized version: "+version);
+            StatsLiveCounts x = new StatsLiveCounts();
+            x.triples = in.readLong();
+            x.subjects = in.readLong();
+            x.objects = in.readLong();
+
+            int n = in.readInt();
+            for ( int i = 0 ; i < n ; i++ ) {
+                NodeId p = readNodeId(in);
+                x.predicates.put(p, new long[] {in.readLong(), in.readLong(), in.readLong()});
+            }
+
+            n = in.readInt();
+            for ( int i = 0 ; i < n ; i++ ) {
+                NodeId p = readNodeId(in);
+                int m = in.readInt();
+                Map<NodeId, Long> counts = new HashMap<>();
+                for ( int j = 0 ; j < m ; j++ ) {
+                    NodeId o = readNodeId(in);
+                    counts.put(o, in.readLong());
+                }
+                x.objectCounts.put(p, counts);
+            }
+
+            n = in.readInt();
+            for ( int i = 0 ; i < n ; i++ )
+                x.objectsOverflow.add(readNodeId(in));
+
+            n = in.readInt();
+            for ( int i = 0 ; i < n ; i++ ) {
+                int len = in.readInt();
+                NodeId[] preds = new NodeId[len];
+                for ( int j = 0 ; j < len ; j++ )
+                    preds[j] = readNodeId(in);
+                x.charSets.put(new PredicateSet(preds), in.readLong());
+            }
+            x.charSetsDropped = in.readLong();
+
+            n = in.readInt();
+            for ( int i = 0 ; i < n ; i++ ) {
+                NodeId p = readNodeId(in);
+                int m = in.readInt();
+                Map<Long, long[]> h = new HashMap<>();
+                for ( int j = 0 ; j < m ; j++ ) {
+                    long bucket = in.readLong();
+                    h.put(bucket, new long[] {in.readLong(), in.readLong()});
+                }
+                x.histograms.put(p, h);
+            }
+            return x;
+        } catch (IOException ex) {
+            throw new TDBException("StatsLiveCounts.decode", ex);
+        }
+    }
+
+    private static void writeNodeId(DataOutputStream out, NodeId nodeId) throws IOException {
+        byte[] b = new byte[SystemTDB.SizeOfNodeId];
+        NodeIdFactory.set(nodeId, b);
+        out.write(b);
+    }
+
+    private static NodeId readNodeId(DataInputStream in) throws IOException {
+        byte[] b = new byte[SystemTDB.SizeOfNodeId];
+        in.readFully(b);
+        return NodeIdFactory.get(b);
+    }
+
+    /** Test for the same counts (characteristic sets dropped by the size limit are not compared). */
+    public boolean sameCounts(StatsLiveCounts other) {
+        if ( triples != other.triples || subjects != other.subjects || objects != other.objects )
+            return false;
+        if ( predicates.size() != other.predicates.size() )
+            return false;
+        for ( Map.Entry<NodeId, long[]> e : predicates.entrySet() ) {
+            if ( ! Arrays.equals(e.getValue(), other.predicates.get(e.getKey())) )
+                return false;
+        }
+        if ( ! objectCounts.equals(other.objectCounts) || ! objectsOverflow.equals(other.objectsOverflow) )
+            return false;
+        if ( ! charSets.equals(other.charSets) )
+            return false;
+        if ( histograms.size() != other.histograms.size() )
+            return false;
+        for ( Map.Entry<NodeId, Map<Long, long[]>> e : histograms.entrySet() ) {
+            Map<Long, long[]> h2 = other.histograms.get(e.getKey());
+            if ( h2 == null || h2.size() != e.getValue().size() )
+                return false;
+            for ( Map.Entry<Long, long[]> e2 : e.getValue().entrySet() ) {
+                if ( ! Arrays.equals(e2.getValue(), h2.get(e2.getKey())) )
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StatsLiveCounts[triples=%d, subjects=%d, objects=%d, predicates=%d, charSets=%d]",
+                             triples, subjects, objects, predicates.size(), charSets.size());
+    }
+
+    /** A set of predicates, as used for characteristic sets. */
+    public static final class PredicateSet {
+        private static final Comparator<NodeId> order = NodeIdFactory::compareIndexOrder;
+        private final NodeId[] predicates;
+        private final int hash;
+
+        private PredicateSet(NodeId[] sorted) {
+            this.predicates = sorted;
+            this.hash = Arrays.hashCode(sorted);
+        }
+
+        public static final PredicateSet EMPTY = new PredicateSet(new NodeId[0]);
+
+        public static PredicateSet create(Collection<NodeId> predicates) {
+            if ( predicates.isEmpty() )
+                return EMPTY;
+            SortedSet<NodeId> s = new TreeSet<>(order);
+            s.addAll(predicates);
+            return new PredicateSet(s.toArray(new NodeId[s.size()]));
+        }
+
+        public int size() {
+            return predicates.length;
+        }
+
+        public boolean contains(NodeId p) {
+            return Arrays.binarySearch(predicates, p, order) >= 0;
+        }
+
+        /** This set, with another predicate. */
+        public PredicateSet with(NodeId p) {
+            if ( contains(p) )
+                return this;
+            NodeId[] x = Arrays.copyOf(predicates, predicates.length+1);
+            x[predicates.length] = p;
+            Arrays.sort(x, order);
+            return new PredicateSet(x);
+        }
+
+        /** This set, without a predicate. */
+        public PredicateSet without(NodeId p) {
+            if ( ! contains(p) )
+                return this;
+            NodeId[] x = new NodeId[predicates.length-1];
+            int j = 0;
+            for ( NodeId n : predicates ) {
+                if ( ! n.equals(p) )
+                    x[j++] = n;
+            }
+            return new PredicateSet(x);
+        }
+
+        /** Whether every predicate in {@code other} is in this set. */
+        public boolean containsAll(PredicateSet other) {
+            if ( other.predicates.length > predicates.length )
+                return false;
+            // Both sorted.
+            int i = 0;
+            for ( NodeId p : other.predicates ) {
+                while ( i < predicates.length && order.compare(predicates[i], p) < 0 )
+                    i++;
+                if ( i == predicates.length || ! predicates[i].equals(p) )
+                    return false;
+                i++;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( this == obj )
+                return true;
+            if ( !(obj instanceof PredicateSet) )
+                return false;
+            return Arrays.equals(predicates, ((PredicateSet)obj).predicates);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(predicates);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.NodeLib;
 import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.solver.stats.StatsLive;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 
 final
@@ -43,16 +44,24 @@ public class DatasetGraphTDB extends DatasetGraphStorage
     private final TransactionalSystem txnSystem;
     private final StoreParams storeParams;
     private final ReorderTransformation reorderTransformation;
+    private final StatsLive liveStats;
     private boolean isClosed = false;
 
     public DatasetGraphTDB(Location location, StoreParams params, ReorderTransformation reorderTransformation,
                            StorageTDB storage, StoragePrefixes prefixes, TransactionalSystem txnSystem) {
+        this(location, params, reorderTransformation, storage, prefixes, txnSystem, null);
+    }
+
+    public DatasetGraphTDB(Location location, StoreParams params, ReorderTransformation reorderTransformation,
+                           StorageTDB storage, StoragePrefixes prefixes, TransactionalSystem txnSystem,
+                           StatsLive liveStats) {
         super(storage, prefixes, txnSystem);
         this.storageTDB = storage;
         this.location = location;
         this.storeParams = params;
         this.txnSystem = txnSystem;
         this.reorderTransformation = reorderTransformation;
+        this.liveStats = liveStats;
     }
 
     private void checkNotClosed() {
@@ -91,6 +100,11 @@ public class DatasetGraphTDB extends DatasetGraphStorage
         return reorderTransformation;
     }
 
+    /** The statistics maintained as data changes, or null if not enabled (see {@link StoreParams#isLiveStats}). */
+    public StatsLive getLiveStats() {
+        return liveStats;
+    }
+
     @Override
     public void close() {
         isClosed = true;
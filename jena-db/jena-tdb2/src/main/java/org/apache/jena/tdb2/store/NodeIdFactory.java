@@ -159,6 +159,22 @@ public class NodeIdFactory
         }
     }
 
+    /**
+     * The 64 bit on-disk form of a NodeId. The order of NodeIds in a
+     * {@code TupleIndex} is the unsigned order of this value.
+     */
+    public static long encode64(NodeId nodeId) {
+        return encode(nodeId);
+    }
+
+    /**
+     * Compare NodeIds in the order they appear in a {@code TupleIndex},
+     * which is the order of the on-disk form as unsigned bytes.
+     */
+    public static int compareIndexOrder(NodeId nodeId1, NodeId nodeId2) {
+        return Long.compareUnsigned(encode(nodeId1), encode(nodeId2));
+    }
+
     /** Relative {@code set} */
     public static void set(NodeId nodeId, ByteBuffer b) {
         long v2 = encode(nodeId);
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.UUID;
 
+import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.dboe.DBOpEnvException;
 import org.apache.jena.dboe.base.file.*;
@@ -36,6 +37,7 @@ import org.apache.jena.dboe.sys.Names;
 import org.apache.jena.dboe.trans.bplustree.BPlusTree;
 import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory;
 import org.apache.jena.dboe.trans.data.TransBinaryDataFile;
+import org.apache.jena.dboe.trans.data.TransBlob;
 import org.apache.jena.dboe.transaction.txn.*;
 import org.apache.jena.dboe.transaction.txn.journal.Journal;
 import org.apache.jena.query.ARQ;
@@ -47,9 +49,13 @@ import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.params.StoreParamsCodec;
 import org.apache.jena.tdb2.params.StoreParamsFactory;
+import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.solver.OpExecutorTDB2;
+import org.apache.jena.tdb2.solver.stats.ReorderLiveStats;
+import org.apache.jena.tdb2.solver.stats.StatsLive;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetable.NodeTableCache;
+import org.apache.jena.tdb2.store.nodetable.NodeTableCompressed;
 import org.apache.jena.tdb2.store.nodetable.NodeTableInline;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
@@ -110,8 +116,19 @@ public class TDB2StorageBuilder {
         // Freezes the TransactionCoordinator components
         txnCoord.start();
         ReorderTransformation reorderTranform = chooseReorderTransformation(location);
+        StatsLive liveStats = builder.liveStats;
+        if ( liveStats != null ) {
+            if ( ! liveStats.start() )
+                // No stored statistics : calculate them.
+                Txn.executeWrite(txnSystem, liveStats::rebuild);
+            if ( location == null || ! location.exists(Names.optNone) ) {
+                NodeTable nodeTable = storage.getTripleTable().getNodeTupleTable().getNodeTable();
+                reorderTranform = new ReorderLiveStats(liveStats, nodeTable, reorderTranform);
+                log.debug("Live statistics BGP optimizer");
+            }
+        }
         DatasetGraphTDB dsg = new DatasetGraphTDB(location, params, reorderTranform,
-                                                  storage, prefixes, txnSystem);
+                                                  storage, prefixes, txnSystem, liveStats);
 
         // Enable query processing.
         QC.setFactory(dsg.getContext(), OpExecutorTDB2.OpExecFactoryTDB);
@@ -189,6 +206,7 @@ public class TDB2StorageBuilder {
     // Accumulate TransactionalComponents as they are used to build the database.
     private final Collection<TransactionalComponent> components = new ArrayList<>();
     private final Collection<TransactionListener> listeners = new ArrayList<>();
+    private StatsLive liveStats = null;
 
     private TDB2StorageBuilder(TransactionalSystem txnSystem,
                         Location location, StoreParams params, ComponentIdMgr componentIdMgr) {
@@ -208,9 +226,29 @@ public class TDB2StorageBuilder {
         TripleTable tripleTable = buildTripleTable(nodeTable);
         QuadTable quadTable = buildQuadTable(nodeTable);
         StorageTDB dsg = new StorageTDB(txnSystem, tripleTable, quadTable);
+        liveStats = buildLiveStats(tripleTable, quadTable);
         return dsg;
     }
 
+    private StatsLive buildLiveStats(TripleTable tripleTable, QuadTable quadTable) {
+        FileSet fs = new FileSet(location, Names.liveStatsBaseName);
+        if ( ! params.isLiveStats() ) {
+            // Remove any statistics from when they were last enabled.
+            // They would be out of date if enabled again.
+            if ( ! fs.isMem() && fs.exists(Names.extLiveStats) )
+                FileOps.delete(fs.filename(Names.extLiveStats));
+            return null;
+        }
+        ComponentId cid = componentIdMgr.getComponentId(Names.liveStatsBaseName);
+        BufferChannel chan = FileFactory.createBufferChannel(fs, Names.extLiveStats);
+        TransBlob blob = new TransBlob(cid, chan);
+        components.add(blob);
+        StatsLive stats = new StatsLive(blob);
+        stats.attach(tripleTable.getNodeTupleTable().getTupleTable(), quadTable.getNodeTupleTable().getTupleTable());
+        listeners.add(stats);
+        return stats;
+    }
+
     private StoragePrefixes buildPrefixes() {
         NodeTable nodeTablePrefixes = buildNodeTable(params.getPrefixTableBaseName(), false);
         StoragePrefixesTDB prefixes = buildPrefixTable(nodeTablePrefixes);
@@ -294,7 +332,7 @@ public class TDB2StorageBuilder {
     private RangeIndex makeRangeIndex(RecordFactory recordFactory, String name) {
         ComponentId cid = componentIdMgr.getComponentId(name);
         FileSet fs = new FileSet(location, name);
-        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory);
+        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory, params.getBlockCacheMode());
         components.add(bpt);
         return bpt;
     }
@@ -317,7 +355,8 @@ public class TDB2StorageBuilder {
         int nodeToIdCacheSize   = isData ? params.getNode2NodeIdCacheSize() : params.getPrefixNode2NodeIdCacheSize();
         int idToNodeCacheSize   = isData ? params.getNodeId2NodeCacheSize() : params.getPrefixNodeId2NodeCacheSize();
         int missCacheSize       = isData ? params.getNodeMissCacheSize()    : params.getPrefixNodeMissCacheSize();
-        nodeTable = NodeTableCache.create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, missCacheSize);
+        long offHeapCacheSize   = isData ? params.getNodeCacheOffHeapSize() : 0;
+        nodeTable = NodeTableCache.create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, missCacheSize, offHeapCacheSize);
         return nodeTable;
     }
 
@@ -328,7 +367,17 @@ public class TDB2StorageBuilder {
         String dataname = name+"-data";
         TransBinaryDataFile transBinFile = makeBinaryDataFile(dataname);
         components.add(transBinFile);
-        return new NodeTableTRDF(index, transBinFile);
+        switch (params.getNodeTableFormat()) {
+            case compressed : {
+                NodeTableCompressed nodeTable = new NodeTableCompressed(index, transBinFile);
+                // Namespace entries are visible after commit.
+                listeners.add(nodeTable);
+                return nodeTable;
+            }
+            case thrift :
+            default :
+                return new NodeTableTRDF(index, transBinFile);
+        }
     }
 
     private TransBinaryDataFile makeBinaryDataFile(String name) {
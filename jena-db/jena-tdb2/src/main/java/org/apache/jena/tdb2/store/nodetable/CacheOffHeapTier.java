@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.tdb2.TDBException;
+
+/**
+ * A two level cache: an on-heap cache backed by an {@link OffHeapByteCache}.
+ * <p>
+ * Entries dropped from the on-heap cache are encoded into the off-heap cache.
+ * An on-heap miss looks in the off-heap cache, and a hit there is decoded and
+ * put back into the on-heap cache.
+ * <p>
+ * {@link #keys}, {@link #size} and {@link #isEmpty} are for the on-heap cache only.
+ * <p>
+ * There is no drop handler: {@link #setDropHandler} does nothing. Entries dropped
+ * from the on-heap cache go to the off-heap cache, which replaces old entries
+ * without a notification and holds encoded bytes, not the keys and values.
+ */
+public class CacheOffHeapTier<K, V> implements Cache<K, V> {
+    private final Cache<K, V> heapCache;
+    private final OffHeapByteCache offHeapCache;
+    private final Function<K, byte[]> keyEncoder;
+    private final Function<V, byte[]> valueEncoder;
+    private final Function<byte[], V> valueDecoder;
+
+    public CacheOffHeapTier(Cache<K, V> heapCache, OffHeapByteCache offHeapCache,
+                            Function<K, byte[]> keyEncoder,
+                            Function<V, byte[]> valueEncoder, Function<byte[], V> valueDecoder) {
+        this.heapCache = heapCache;
+        this.offHeapCache = offHeapCache;
+        this.keyEncoder = keyEncoder;
+        this.valueEncoder = valueEncoder;
+        this.valueDecoder = valueDecoder;
+        heapCache.setDropHandler((k,v) -> offHeapCache.put(keyEncoder.apply(k), valueEncoder.apply(v)));
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return getIfPresent(key) != null;
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        V value = heapCache.getIfPresent(key);
+        if ( value != null )
+            return value;
+        byte[] bytes = offHeapCache.get(keyEncoder.apply(key));
+        if ( bytes == null )
+            return null;
+        value = valueDecoder.apply(bytes);
+        heapCache.put(key, value);
+        return value;
+    }
+
+    @Override
+    public V getOrFill(K key, Callable<V> callable) {
+        V value = getIfPresent(key);
+        if ( value != null )
+            return value;
+        try { value = callable.call(); }
+        catch (RuntimeException ex) { throw ex; }
+        catch (Exception ex) { throw new TDBException("Exception on cache fill", ex); }
+        if ( value != null )
+            heapCache.put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(K key, V thing) {
+        heapCache.put(key, thing);
+    }
+
+    @Override
+    public void remove(K key) {
+        heapCache.remove(key);
+        offHeapCache.remove(keyEncoder.apply(key));
+    }
+
+    @Override
+    public Iterator<K> keys() {
+        return heapCache.keys();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heapCache.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        heapCache.clear();
+        offHeapCache.clear();
+    }
+
+    @Override
+    public long size() {
+        return heapCache.size();
+    }
+
+    /** Does nothing: the off-heap cache does not report the entries it drops. */
+    @Override
+    public void setDropHandler(BiConsumer<K, V> dropHandler) {}
+
+    public OffHeapByteCache getOffHeapCache() {
+        return offHeapCache;
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.jena.tdb2.store.nodetable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.Cache;
@@ -30,9 +31,16 @@ import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.dboe.transaction.txn.Transaction;
 import org.apache.jena.dboe.transaction.txn.TransactionListener;
 import org.apache.jena.graph.Node;
+import org.apache.jena.riot.thrift.ThriftConvert;
+import org.apache.jena.riot.thrift.wire.RDF_Term;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
 
 /**
  * Cache wrapper around a NodeTable. Assumes all access goes through this
@@ -77,31 +85,89 @@ public class NodeTableCache implements NodeTable, TransactionListener {
         int nodeToIdCacheSize   = isData ? params.getNode2NodeIdCacheSize() : params.getPrefixNode2NodeIdCacheSize();
         int idToNodeCacheSize   = isData ? params.getNodeId2NodeCacheSize() : params.getPrefixNodeId2NodeCacheSize();
         int missCacheSize       = isData ? params.getNodeMissCacheSize()    : params.getPrefixNodeMissCacheSize();
-        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, missCacheSize);
+        long offHeapCacheSize   = isData ? params.getNodeCacheOffHeapSize() : 0;
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, missCacheSize, offHeapCacheSize);
     }
 
     /** Build a node table cache. */
     public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, 0);
+    }
+
+    /**
+     * Build a node table cache, with an off-heap second level of {@code offHeapCacheSize} bytes.
+     * A size of zero means no off-heap caching.
+     */
+    public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                                   long offHeapCacheSize) {
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize);
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, offHeapCacheSize);
     }
 
-    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                           long offHeapCacheSize) {
         this.baseTable = baseTable;
+        // Off-heap space : NodeId->Node is used for results so it gets the larger share.
+        long offHeapNodeToId = offHeapCacheSize / 4;
+        long offHeapIdToNode = offHeapCacheSize - offHeapNodeToId;
         if ( nodeToIdCacheSize > 0 )
-            node2id_Cache = createCache("nodeToId", nodeToIdCacheSize, 1000);
+            node2id_Cache = createCache("nodeToId", nodeToIdCacheSize, 1000,
+                                        offHeapNodeToId, NodeTableCache::encodeNode, NodeTableCache::encodeNodeId, NodeTableCache::decodeNodeId);
         if ( idToNodeCacheSize > 0 )
-            id2node_Cache = createCache("idToNode", idToNodeCacheSize, 1000);
+            id2node_Cache = createCache("idToNode", idToNodeCacheSize, 1000,
+                                        offHeapIdToNode, NodeTableCache::encodeNodeId, NodeTableCache::encodeNode, NodeTableCache::decodeNode);
         if ( nodeMissesCacheSize > 0 )
             notPresent = CacheFactory.createCache(nodeMissesCacheSize);
     }
 
-    private static <Key, Value> ThreadBufferingCache<Key, Value> createCache(String label, int mainCachesize, int bufferSize) {
+    private static <Key, Value> ThreadBufferingCache<Key, Value> createCache(String label, int mainCachesize, int bufferSize,
+                                                                             long offHeapSize,
+                                                                             Function<Key, byte[]> keyEncoder,
+                                                                             Function<Value, byte[]> valueEncoder,
+                                                                             Function<byte[], Value> valueDecoder) {
         Cache<Key, Value> cache = CacheFactory.createCache(mainCachesize);
+        if ( offHeapSize > 0 )
+            cache = new CacheOffHeapTier<>(cache, new OffHeapByteCache(offHeapSize), keyEncoder, valueEncoder, valueDecoder);
         return new ThreadBufferingCache<>(label, cache, bufferSize);
     }
 
+    // ---- Encoding for the off-heap caches.
+    // Nodes are encoded as RDF_Term, as in the node table itself.
+
+    private static final ThreadLocal<TSerializer> serializer = ThreadLocal.withInitial(()->{
+        try { return new TSerializer(new TCompactProtocol.Factory()); }
+        catch (TException ex) { throw new TDBException("NodeTableCache", ex); }
+    });
+
+    private static final ThreadLocal<TDeserializer> deserializer = ThreadLocal.withInitial(()->{
+        try { return new TDeserializer(new TCompactProtocol.Factory()); }
+        catch (TException ex) { throw new TDBException("NodeTableCache", ex); }
+    });
+
+    private static byte[] encodeNode(Node node) {
+        RDF_Term term = ThriftConvert.convert(node, true);
+        try { return serializer.get().serialize(term); }
+        catch (TException ex) { throw new TDBException("NodeTableCache/encode", ex); }
+    }
+
+    private static Node decodeNode(byte[] bytes) {
+        RDF_Term term = new RDF_Term();
+        try { deserializer.get().deserialize(term, bytes); }
+        catch (TException ex) { throw new TDBException("NodeTableCache/decode", ex); }
+        return ThriftConvert.convert(term);
+    }
+
+    private static byte[] encodeNodeId(NodeId nodeId) {
+        byte[] bytes = new byte[NodeId.SIZE];
+        NodeIdFactory.set(nodeId, bytes);
+        return bytes;
+    }
+
+    private static NodeId decodeNodeId(byte[] bytes) {
+        return NodeIdFactory.get(bytes);
+    }
+
     // ---- Cache access, no going to underlying table.
 
     public Node getNodeForNodeIdCache(NodeId id) {
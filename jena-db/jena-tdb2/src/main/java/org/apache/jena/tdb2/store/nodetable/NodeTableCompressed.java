@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.index.Index;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionException;
+import org.apache.jena.dboe.transaction.txn.TransactionListener;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.thrift.RiotThriftException;
+import org.apache.jena.riot.thrift.ThriftConvert;
+import org.apache.jena.riot.thrift.wire.RDF_Term;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.lib.NodeLib;
+import org.apache.jena.tdb2.store.Hash;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+
+/**
+ * NodeTable storing nodes in a compressed form.
+ * <p>
+ * An IRI is stored as a reference to its namespace (up to the last '/' or '#') and
+ * the local part. Each namespace is stored once, as its own entry, and shared by
+ * the IRIs written after it. Other terms are stored as RDF Thrift; long ones are
+ * compressed with deflate.
+ * <p>
+ * Each entry in the data file is a 4 byte length, a one byte tag, then the encoding.
+ * The NodeId of a node is the file position of its entry, as for {@link NodeTableTRDF}.
+ * <p>
+ * Namespace entries are also in the node hash index, under a hash that is not the
+ * hash of any node, so a namespace is written once even when it is no longer in the
+ * in-memory cache, for example after a restart. {@link #all} does not include them.
+ */
+public class NodeTableCompressed extends NodeTableNative implements TransactionListener {
+    /** Namespaces shorter than this are not shared; the IRI is stored whole. */
+    public static int MinNamespaceLength = 10;
+    /** Terms with an RDF Thrift encoding of at least this many bytes are compressed. */
+    public static int CompressThreshold = 100;
+    /** Number of namespaces kept in memory. */
+    public static int NamespaceCacheSize = 10_000;
+
+    private static final byte TagThrift    = 1;   // RDF Thrift
+    private static final byte TagDeflate   = 2;   // varint(RDF Thrift length), deflated RDF Thrift
+    private static final byte TagIRI       = 3;   // varint(namespace entry position + 1, or 0), UTF-8 local part
+    private static final byte TagNamespace = 4;   // UTF-8 namespace
+
+    private static final int LenHeader     = Integer.BYTES;
+    // Bytes read in the first read of an entry; most entries are shorter.
+    private static final int ReadAhead     = 128;
+
+    private final BinaryDataFile diskFile;
+    // Namespaces of committed entries.
+    private final Cache<String, Long> namespaceToPosn;
+    private final Cache<Long, String> posnToNamespace;
+    // Namespace entries written by the active write transaction.
+    // They are made visible on commit and dropped on abort, when the entries are truncated.
+    private final Map<String, Long> pendingNamespaceToPosn = new HashMap<>();
+    private final Map<Long, String> pendingPosnToNamespace = new HashMap<>();
+
+    // Access is synchronized by NodeTableNative.
+    private final Deflater deflater = new Deflater();
+    private final Inflater inflater = new Inflater();
+    private final TSerializer serializer;
+    private final TDeserializer deserializer;
+
+    public NodeTableCompressed(Index nodeToId, BinaryDataFile objectFile) {
+        super(nodeToId);
+        this.diskFile = objectFile;
+        if ( ! diskFile.isOpen() )
+            diskFile.open();
+        this.namespaceToPosn = CacheFactory.createCache(NamespaceCacheSize);
+        this.posnToNamespace = CacheFactory.createCache(NamespaceCacheSize);
+        try {
+            this.serializer = new TSerializer(new TCompactProtocol.Factory());
+            this.deserializer = new TDeserializer(new TCompactProtocol.Factory());
+        } catch (TException ex) {
+            throw new TDBException("NodeTableCompressed", ex);
+        }
+    }
+
+    @Override
+    protected NodeId writeNodeToTable(Node node) {
+        try {
+            byte[] entry = node.isURI() ? encodeIRI(node.getURI()) : encodeTerm(node);
+            long x = writeEntry(entry);
+            return NodeIdFactory.createPtr(x);
+        }
+        catch(TransactionException ex) { throw ex; }
+        catch (Exception ex) {
+            throw new TDBException("NodeTableCompressed/Write", ex);
+        }
+    }
+
+    @Override
+    protected Node readNodeFromTable(NodeId id) {
+        long x = id.getPtrLocation();
+        ByteBuffer entry = ByteBuffer.wrap(readEntry(x));
+        try {
+            byte tag = entry.get();
+            switch (tag) {
+                case TagThrift :
+                    return decodeThrift(remaining(entry));
+                case TagDeflate : {
+                    int length = (int)getVarLong(entry);
+                    return decodeThrift(inflate(remaining(entry), length));
+                }
+                case TagIRI : {
+                    long ref = getVarLong(entry);
+                    String local = new String(remaining(entry), UTF_8);
+                    if ( ref == 0 )
+                        return NodeFactory.createURI(local);
+                    return NodeFactory.createURI(namespaceAt(ref-1)+local);
+                }
+                case TagNamespace :
+                    // Not a node.
+                    return null;
+                default :
+                    throw new TDBException("NodeTableCompressed/Read: bad entry tag "+tag+" at "+x);
+            }
+        }
+        catch (RiotThriftException ex) {
+            Log.error(this, "Bad encoding: NodeId = "+id);
+            throw ex;
+        }
+    }
+
+    // ---- Encode
+
+    private byte[] encodeIRI(String iri) {
+        int idx = Math.max(iri.lastIndexOf('/'), iri.lastIndexOf('#')) + 1;
+        long ref = 0;
+        String local = iri;
+        if ( idx >= MinNamespaceLength ) {
+            ref = namespace(iri.substring(0, idx)) + 1;
+            local = iri.substring(idx);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(local.length()+10);
+        out.write(TagIRI);
+        putVarLong(out, ref);
+        out.writeBytes(local.getBytes(UTF_8));
+        return out.toByteArray();
+    }
+
+    /** File position of the namespace entry, writing one if necessary. */
+    private long namespace(String namespace) {
+        Long posn = pendingNamespaceToPosn.get(namespace);
+        if ( posn == null )
+            posn = namespaceToPosn.getIfPresent(namespace);
+        if ( posn != null )
+            return posn;
+
+        Hash hash = new Hash(nodeHashToId.getRecordFactory().keyLength());
+        NodeLib.setHashNamespace(hash, namespace);
+        Record r = nodeHashToId.getRecordFactory().create(hash.getBytes());
+        Record r2 = nodeHashToId.find(r);
+        if ( r2 != null ) {
+            // Not written by this transaction (it would be pending) so committed.
+            long x = NodeIdFactory.get(r2.getValue(), 0).getPtrLocation();
+            namespaceToPosn.put(namespace, x);
+            posnToNamespace.put(x, namespace);
+            return x;
+        }
+
+        byte[] bytes = namespace.getBytes(UTF_8);
+        byte[] entry = new byte[1+bytes.length];
+        entry[0] = TagNamespace;
+        System.arraycopy(bytes, 0, entry, 1, bytes.length);
+        long x = writeEntry(entry);
+        NodeIdFactory.set(NodeIdFactory.createPtr(x), r.getValue(), 0);
+        if ( ! nodeHashToId.insert(r) )
+            throw new TDBException("NodeTableCompressed: namespace record mysteriously appeared");
+        pendingNamespaceToPosn.put(namespace, x);
+        pendingPosnToNamespace.put(x, namespace);
+        return x;
+    }
+
+    private byte[] encodeTerm(Node node) throws TException {
+        RDF_Term term = ThriftConvert.convert(node, true);
+        byte[] thrift = serializer.serialize(term);
+        if ( thrift.length >= CompressThreshold ) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(thrift.length);
+            out.write(TagDeflate);
+            putVarLong(out, thrift.length);
+            deflate(thrift, out);
+            if ( out.size() <= thrift.length )
+                return out.toByteArray();
+        }
+        byte[] entry = new byte[1+thrift.length];
+        entry[0] = TagThrift;
+        System.arraycopy(thrift, 0, entry, 1, thrift.length);
+        return entry;
+    }
+
+    private void deflate(byte[] bytes, ByteArrayOutputStream out) {
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, bytes.length)];
+        while ( ! deflater.finished() ) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+    }
+
+    /** All the nodes, not including the namespace entries. */
+    @Override
+    public Iterator<Pair<NodeId, Node>> all() {
+        return Iter.filter(super.all(), pair -> pair.getRight() != null);
+    }
+
+    // ---- Decode
+
+    private Node decodeThrift(byte[] bytes) {
+        RDF_Term term = new RDF_Term();
+        try { deserializer.deserialize(term, bytes); }
+        catch (TException ex) { throw new TDBException("NodeTableCompressed/Read", ex); }
+        return ThriftConvert.convert(term);
+    }
+
+    private byte[] inflate(byte[] bytes, int length) {
+        inflater.reset();
+        inflater.setInput(bytes);
+        byte[] result = new byte[length];
+        try {
+            int n = 0;
+            while ( n < length && ! inflater.finished() ) {
+                int x = inflater.inflate(result, n, length-n);
+                if ( x == 0 && inflater.needsInput() )
+                    break;
+                n += x;
+            }
+            if ( n != length )
+                throw new TDBException("NodeTableCompressed/Read: inflated "+n+" bytes, expected "+length);
+        } catch (DataFormatException ex) {
+            throw new TDBException("NodeTableCompressed/Read", ex);
+        }
+        return result;
+    }
+
+    private String namespaceAt(long posn) {
+        String namespace = pendingPosnToNamespace.get(posn);
+        if ( namespace == null )
+            namespace = posnToNamespace.getIfPresent(posn);
+        if ( namespace != null )
+            return namespace;
+        byte[] entry = readEntry(posn);
+        if ( entry.length == 0 || entry[0] != TagNamespace )
+            throw new TDBException("NodeTableCompressed/Read: not a namespace entry at "+posn);
+        namespace = new String(entry, 1, entry.length-1, UTF_8);
+        posnToNamespace.put(posn, namespace);
+        namespaceToPosn.put(namespace, posn);
+        return namespace;
+    }
+
+    // ---- Entries
+
+    private long writeEntry(byte[] entry) {
+        byte[] header = new byte[LenHeader];
+        Bytes.setInt(entry.length, header, 0);
+        long x = diskFile.write(header);
+        diskFile.write(entry);
+        return x;
+    }
+
+    private byte[] readEntry(long posn) {
+        byte[] buffer = new byte[ReadAhead];
+        int n = diskFile.read(posn, buffer);
+        if ( n < LenHeader )
+            throw new TDBException("NodeTableCompressed/Read: no entry at "+posn);
+        int length = Bytes.getInt(buffer, 0);
+        if ( length <= n - LenHeader )
+            return Arrays.copyOfRange(buffer, LenHeader, LenHeader+length);
+        byte[] entry = new byte[length];
+        int got = n - LenHeader;
+        System.arraycopy(buffer, LenHeader, entry, 0, got);
+        while ( got < length ) {
+            int x = diskFile.read(posn+LenHeader+got, entry, got, length-got);
+            if ( x <= 0 )
+                throw new TDBException("NodeTableCompressed/Read: short entry at "+posn);
+            got += x;
+        }
+        return entry;
+    }
+
+    private static byte[] remaining(ByteBuffer bb) {
+        byte[] bytes = new byte[bb.remaining()];
+        bb.get(bytes);
+        return bytes;
+    }
+
+    private static void putVarLong(ByteArrayOutputStream out, long value) {
+        while ( (value & ~0x7FL) != 0 ) {
+            out.write((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int)value);
+    }
+
+    private static long getVarLong(ByteBuffer bb) {
+        long value = 0;
+        int shift = 0;
+        while ( true ) {
+            byte b = bb.get();
+            value |= (long)(b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 )
+                return value;
+            shift += 7;
+        }
+    }
+
+    // -- TransactionListener
+
+    @Override
+    public void notifyTxnStart(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            dropPending();
+    }
+
+    @Override
+    public void notifyPromoteFinish(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            dropPending();
+    }
+
+    @Override
+    public void notifyCommitFinish(Transaction transaction) {
+        if ( transaction.isWriteTxn() ) {
+            synchronized (this) {
+                pendingNamespaceToPosn.forEach(namespaceToPosn::put);
+                pendingPosnToNamespace.forEach(posnToNamespace::put);
+                pendingNamespaceToPosn.clear();
+                pendingPosnToNamespace.clear();
+            }
+        }
+    }
+
+    @Override
+    public void notifyAbortStart(Transaction transaction) {
+        if ( transaction.isWriteTxn() )
+            dropPending();
+    }
+
+    private synchronized void dropPending() {
+        pendingNamespaceToPosn.clear();
+        pendingPosnToNamespace.clear();
+    }
+
+    // -- NodeTableNative
+
+    @Override
+    protected void syncSub() {
+        diskFile.sync();
+    }
+
+    @Override
+    protected void closeSub() {
+        if ( diskFile.isOpen() )
+            diskFile.close();
+        deflater.end();
+        inflater.end();
+    }
+
+    public Index getIndex()             { return nodeHashToId; }
+    public BinaryDataFile getData()     { return diskFile; }
+}
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A byte[] to byte[] cache held outside the Java heap, sized in bytes.
+ * <p>
+ * Entries are appended to a circular log in direct {@link ByteBuffer}s; when the
+ * log wraps round, the oldest entries are overwritten (FIFO replacement). The
+ * index is a set-associative hash table, also in direct memory, of log
+ * positions. An index slot whose entry has been overwritten in the log is
+ * detected by position and treated as empty, so there is no explicit eviction
+ * work.
+ * <p>
+ * The only Java objects are the chunk buffers, so a cache of many millions of
+ * entries does not add to garbage collection work.
+ * <p>
+ * Lookups run concurrently; updates are exclusive.
+ */
+public final class OffHeapByteCache {
+    // Log entry: int key length, int value length, key bytes, value bytes.
+    private static final int EntryHeader  = 2*Integer.BYTES;
+    // Assumed average entry size when sizing the index.
+    private static final int AvgEntrySize = 64;
+    private static final int BucketSize   = 8;
+    private static final int MaxChunkSize = 1<<30;
+    // Index slot: 16 bits hash tag, 48 bits (log position+1). Zero is empty.
+    private static final long PosMask     = (1L<<48)-1;
+
+    private final ByteBuffer[] logChunks;
+    private final int chunkSize;
+    private final long logCapacity;
+
+    private final ByteBuffer[] indexChunks;
+    private final int slotsPerIndexChunk;
+    private final long bucketMask;
+
+    private long writePos = 0;
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** Create an off-heap cache using approximately {@code capacityBytes} of direct memory. */
+    public OffHeapByteCache(long capacityBytes) {
+        if ( capacityBytes < 1024 )
+            throw new IllegalArgumentException("OffHeapByteCache: capacity too small: "+capacityBytes);
+        // Index : one slot per AvgEntrySize bytes, (8 bytes each).
+        long indexBytesTarget = capacityBytes / (AvgEntrySize/Long.BYTES + 1) ;
+        long numSlots = Long.highestOneBit(Math.max(BucketSize, indexBytesTarget/Long.BYTES));
+        long logBytes = capacityBytes - numSlots*Long.BYTES;
+
+        this.chunkSize = (int)Math.min(MaxChunkSize, logBytes);
+        int numLogChunks = (int)(logBytes / chunkSize);
+        this.logChunks = new ByteBuffer[numLogChunks];
+        for ( int i = 0 ; i < numLogChunks ; i++ )
+            logChunks[i] = ByteBuffer.allocateDirect(chunkSize);
+        this.logCapacity = (long)numLogChunks * chunkSize;
+
+        long indexBytes = numSlots*Long.BYTES;
+        int indexChunkBytes = (int)Math.min(MaxChunkSize, indexBytes);
+        this.slotsPerIndexChunk = indexChunkBytes / Long.BYTES;
+        int numIndexChunks = (int)(indexBytes / indexChunkBytes);
+        this.indexChunks = new ByteBuffer[numIndexChunks];
+        for ( int i = 0 ; i < numIndexChunks ; i++ )
+            indexChunks[i] = ByteBuffer.allocateDirect(indexChunkBytes);
+        this.bucketMask = numSlots/BucketSize - 1;
+    }
+
+    /** Return the value for a key, or null. */
+    public byte[] get(byte[] key) {
+        long h = hash(key);
+        rwLock.readLock().lock();
+        try {
+            long slot = find(key, h);
+            if ( slot < 0 ) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            long pos = (getSlot(slot) & PosMask) - 1;
+            ByteBuffer bb = logChunks[chunk(pos)];
+            int off = offset(pos);
+            int keyLen = bb.getInt(off);
+            int valueLen = bb.getInt(off+Integer.BYTES);
+            byte[] value = new byte[valueLen];
+            int start = off + EntryHeader + keyLen;
+            for ( int i = 0 ; i < valueLen ; i++ )
+                value[i] = bb.get(start+i);
+            return value;
+        } finally { rwLock.readLock().unlock(); }
+    }
+
+    /** Add or replace an entry. Entries that are too large are ignored. */
+    public void put(byte[] key, byte[] value) {
+        int len = EntryHeader + key.length + value.length;
+        if ( len > chunkSize / 8 )
+            return;
+        long h = hash(key);
+        rwLock.writeLock().lock();
+        try {
+            // Entries do not span chunks.
+            int off = offset(writePos);
+            if ( off + len > chunkSize )
+                writePos += chunkSize - off;
+            if ( writePos + len >= PosMask ) {
+                // Position space exhausted (after 2^48 bytes written). Start again.
+                clearInternal();
+            }
+            long pos = writePos;
+            ByteBuffer bb = logChunks[chunk(pos)];
+            off = offset(pos);
+            bb.putInt(off, key.length);
+            bb.putInt(off+Integer.BYTES, value.length);
+            int start = off + EntryHeader;
+            for ( int i = 0 ; i < key.length ; i++ )
+                bb.put(start+i, key[i]);
+            start += key.length;
+            for ( int i = 0 ; i < value.length ; i++ )
+                bb.put(start+i, value[i]);
+            writePos += len;
+
+            long slot = find(key, h);
+            if ( slot < 0 )
+                slot = victim(h);
+            setSlot(slot, (tag(h) << 48) | (pos+1));
+        } finally { rwLock.writeLock().unlock(); }
+    }
+
+    /** Remove an entry, if present. */
+    public void remove(byte[] key) {
+        long h = hash(key);
+        rwLock.writeLock().lock();
+        try {
+            long slot = find(key, h);
+            if ( slot >= 0 )
+                setSlot(slot, 0);
+        } finally { rwLock.writeLock().unlock(); }
+    }
+
+    public void clear() {
+        rwLock.writeLock().lock();
+        try {
+            clearInternal();
+        } finally { rwLock.writeLock().unlock(); }
+    }
+
+    private void clearInternal() {
+        for ( ByteBuffer bb : indexChunks ) {
+            for ( int i = 0 ; i < bb.capacity() ; i += Long.BYTES )
+                bb.putLong(i, 0L);
+        }
+        writePos = 0;
+    }
+
+    /** Bytes of direct memory used by this cache. */
+    public long capacityBytes() {
+        return logCapacity + (long)indexChunks.length * slotsPerIndexChunk * Long.BYTES;
+    }
+
+    public long hits()      { return hits.sum(); }
+    public long misses()    { return misses.sum(); }
+
+    // ---- Index
+
+    /** Slot number of the live entry for key, or -1. */
+    private long find(byte[] key, long h) {
+        long base = (h & bucketMask) * BucketSize;
+        long tag = tag(h);
+        for ( int i = 0 ; i < BucketSize ; i++ ) {
+            long slot = base+i;
+            long x = getSlot(slot);
+            if ( x == 0 || (x >>> 48) != tag )
+                continue;
+            long pos = (x & PosMask) - 1;
+            if ( ! isLive(pos) )
+                continue;
+            if ( keyEquals(pos, key) )
+                return slot;
+        }
+        return -1;
+    }
+
+    /** Choose a slot to replace: an empty or overwritten one, else the oldest. */
+    private long victim(long h) {
+        long base = (h & bucketMask) * BucketSize;
+        long oldestSlot = base;
+        long oldestPos = Long.MAX_VALUE;
+        for ( int i = 0 ; i < BucketSize ; i++ ) {
+            long slot = base+i;
+            long x = getSlot(slot);
+            if ( x == 0 )
+                return slot;
+            long pos = (x & PosMask) - 1;
+            if ( ! isLive(pos) )
+                return slot;
+            if ( pos < oldestPos ) {
+                oldestPos = pos;
+                oldestSlot = slot;
+            }
+        }
+        return oldestSlot;
+    }
+
+    private boolean isLive(long pos) {
+        return pos < writePos && pos >= writePos - logCapacity;
+    }
+
+    private boolean keyEquals(long pos, byte[] key) {
+        ByteBuffer bb = logChunks[chunk(pos)];
+        int off = offset(pos);
+        if ( bb.getInt(off) != key.length )
+            return false;
+        int start = off + EntryHeader;
+        for ( int i = 0 ; i < key.length ; i++ ) {
+            if ( bb.get(start+i) != key[i] )
+                return false;
+        }
+        return true;
+    }
+
+    private long getSlot(long slot) {
+        return indexChunks[(int)(slot / slotsPerIndexChunk)].getLong((int)(slot % slotsPerIndexChunk) * Long.BYTES);
+    }
+
+    private void setSlot(long slot, long value) {
+        indexChunks[(int)(slot / slotsPerIndexChunk)].putLong((int)(slot % slotsPerIndexChunk) * Long.BYTES, value);
+    }
+
+    // ---- Log
+
+    private int chunk(long pos) {
+        return (int)((pos % logCapacity) / chunkSize);
+    }
+
+    private int offset(long pos) {
+        return (int)((pos % logCapacity) % chunkSize);
+    }
+
+    private static long tag(long h) {
+        return (h >>> 48) & 0xFFFF;
+    }
+
+    // FNV-1a then a 64 bit finalizer (from MurmurHash3).
+    private static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for ( byte b : key ) {
+            h ^= (b & 0xFF);
+            h *= 0x100000001b3L;
+        }
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OffHeapByteCache[%,d bytes, hits=%,d, misses=%,d]", capacityBytes(), hits(), misses());
+    }
+}
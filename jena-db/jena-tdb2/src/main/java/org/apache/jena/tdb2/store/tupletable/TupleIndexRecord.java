@@ -28,6 +28,7 @@ import java.util.function.Predicate;
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.iterator.NullIterator;
 import org.apache.jena.atlas.iterator.SingletonIterator;
+import org.apache.jena.atlas.lib.Bytes;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
@@ -243,6 +244,45 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples;
     }
 
+    /**
+     * Find the tuples matching a pattern, in natural order, where the bound slots of
+     * the pattern are the leading slots of the index order, and the value of the next
+     * slot in index order is in a range. The range is given by the on-disk form of
+     * NodeIds ({@link NodeIdFactory#encode64}), compared as unsigned values: from
+     * {@code min}, inclusive, to {@code max}, exclusive. A {@code max} of zero is the
+     * end of the values for the pattern.
+     * <p>
+     * Return null if the bound slots of the pattern are not the leading slots of the
+     * index order.
+     */
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> patternNaturalOrder, long min, long max) {
+        Tuple<NodeId> pattern = tupleMap.map(patternNaturalOrder);
+        int numLeading = 0;
+        while ( numLeading < pattern.len() && ! NodeId.isAny(pattern.get(numLeading)) )
+            numLeading++;
+        if ( numLeading == pattern.len() )
+            return null;
+        for ( int i = numLeading+1 ; i < pattern.len() ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                return null;
+        }
+
+        Record minRec = factory.createKeyOnly();
+        Record maxRec = factory.createKeyOnly();
+        for ( int i = 0 ; i < numLeading ; i++ ) {
+            NodeIdFactory.set(pattern.get(i), minRec.getKey(), i*SizeOfNodeId);
+            NodeIdFactory.set(pattern.get(i), maxRec.getKey(), i*SizeOfNodeId);
+        }
+        Bytes.setLong(min, minRec.getKey(), numLeading*SizeOfNodeId);
+        if ( max != 0 )
+            Bytes.setLong(max, maxRec.getKey(), numLeading*SizeOfNodeId);
+        else if ( numLeading > 0 )
+            NodeIdFactory.setNext(pattern.get(numLeading-1), maxRec.getKey(), (numLeading-1)*SizeOfNodeId);
+        else
+            maxRec = null;
+        return index.iterator(minRec, maxRec, recordMapper);
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all()
     {
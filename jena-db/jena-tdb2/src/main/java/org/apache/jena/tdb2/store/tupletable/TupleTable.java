@@ -20,6 +20,8 @@ package org.apache.jena.tdb2.store.tupletable;
 
 import static java.lang.String.format;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -27,9 +29,11 @@ import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.Sync;
 import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +47,17 @@ public class TupleTable implements Sync, Closeable
     private final TupleIndex   scanAllIndex;   // Use this index if a complete scan is needed.
     private final int tupleLen;
     private boolean syncNeeded = false;
+    private ChangeMonitor monitor = null;
+
+    /**
+     * Called before a change is made through this {@code TupleTable}.
+     * Changes made directly to the indexes (e.g. by bulk loaders) are not seen.
+     */
+    public interface ChangeMonitor {
+        public void beforeAdd(Tuple<NodeId> tuple);
+        public void beforeDelete(Tuple<NodeId> tuple);
+        public void beforeClear();
+    }
 
     public TupleTable(int tupleLen, TupleIndex[] indexes)
     {
@@ -90,6 +105,8 @@ public class TupleTable implements Sync, Closeable
         // the indexes when the triple is already present.
         if ( tupleLen != t.len() )
             throw new TDBException(format("Mismatch: inserting tuple of length %d into a table of tuples of length %d", t.len(), tupleLen));
+        if ( monitor != null )
+            monitor.beforeAdd(t);
         for ( int i = 0; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue;
             indexes[i].add(t);
@@ -99,6 +116,11 @@ public class TupleTable implements Sync, Closeable
 
     /** Insert tuples */
     public void addAll(List<Tuple<NodeId>> t) {
+        if ( monitor != null ) {
+            // The monitor sees each tuple before any index changes for it.
+            t.forEach(this::add);
+            return;
+        }
         // Parallel.
         for ( int i = 0; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue;
@@ -107,10 +129,42 @@ public class TupleTable implements Sync, Closeable
         }
     }
 
+    /**
+     * Insert tuples, giving each index the tuples sorted into the order of that index
+     * so that the insertions go to neighbouring blocks.
+     * With a change monitor, this is {@link #addAll}.
+     */
+    public void addAllSorted(List<Tuple<NodeId>> t) {
+        if ( monitor != null ) {
+            t.forEach(this::add);
+            return;
+        }
+        List<Tuple<NodeId>> tuples = new ArrayList<>(t);
+        for ( int i = 0; i < indexes.length ; i++ ) {
+            if ( indexes[i] == null ) continue;
+            tuples.sort(indexOrder(indexes[i].getMapping()));
+            indexes[i].addAll(tuples);
+            syncNeeded = true;
+        }
+    }
+
+    private static Comparator<Tuple<NodeId>> indexOrder(TupleMap tupleMap) {
+        return (t1, t2) -> {
+            for ( int i = 0; i < t1.len() ; i++ ) {
+                int c = NodeIdFactory.compareIndexOrder(tupleMap.mapSlot(i, t1), tupleMap.mapSlot(i, t2));
+                if ( c != 0 )
+                    return c;
+            }
+            return 0;
+        };
+    }
+
     /** Delete a tuple */
     public void delete( Tuple<NodeId> t ) {
         if ( tupleLen != t.len() )
             throw new TDBException(format("Mismatch: deleting tuple of length %d from a table of tuples of length %d", t.len(), tupleLen));
+        if ( monitor != null )
+            monitor.beforeDelete(t);
 
         for ( TupleIndex index : indexes ) {
             if ( index == null )
@@ -121,6 +175,10 @@ public class TupleTable implements Sync, Closeable
 
     /** Delete tuples */
     public void deleteAll(List<Tuple<NodeId>> t) {
+        if ( monitor != null ) {
+            t.forEach(this::delete);
+            return;
+        }
         // Parallel.
         for ( int i = 0; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue;
@@ -146,7 +204,14 @@ public class TupleTable implements Sync, Closeable
 
         if ( numSlots == 0 )
             return scanAllIndex.all();
+        return chooseIndex(pattern).find(pattern);
+    }
 
+    /**
+     * The index that {@link #find} uses for a pattern - a slot of NodeId.NodeIdAny means match any.
+     * The matches are returned in the order of this index.
+     */
+    public TupleIndex chooseIndex(Tuple<NodeId> pattern) {
         int indexNumSlots = 0;
         TupleIndex index = null;
         for ( TupleIndex idx : indexes ) {
@@ -160,9 +225,17 @@ public class TupleTable implements Sync, Closeable
         }
 
         if ( index == null )
-            // No index at all.  Scan.
-            index = indexes[0];
-        return index.find(pattern);
+            // No index at all or no slots bound.  Scan.
+            index = ( indexNumSlots == 0 && isAllAny(pattern) ) ? scanAllIndex : indexes[0];
+        return index;
+    }
+
+    private static boolean isAllAny(Tuple<NodeId> pattern) {
+        for ( int i = 0; i < pattern.len() ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                return false;
+        }
+        return true;
     }
 
     @Override
@@ -187,6 +260,8 @@ public class TupleTable implements Sync, Closeable
     public boolean isEmpty()        { return indexes[0].isEmpty(); }
 
     public void clear() {
+        if ( monitor != null )
+            monitor.beforeClear();
         for ( TupleIndex idx : indexes ) {
             if ( idx != null )
                 idx.clear();
@@ -214,6 +289,11 @@ public class TupleTable implements Sync, Closeable
         indexes[i] = index;
     }
 
+    /** Set the monitor of changes made through this table; null for none. */
+    public void setChangeMonitor(ChangeMonitor monitor) {
+        this.monitor = monitor;
+    }
+
     /** Number of indexes on this tuple table */
     public int numIndexes()                             { return indexes.length; }
 }
@@ -174,6 +174,11 @@ public class DateTimeNode
         return unpack(v, false);
     }
 
+    /** The year of a packed xsd:dateTime or xsd:date. */
+    public static int unpackYear(long v) {
+        return (int)BitsLong.unpack(v, YEAR, YEAR + YEAR_LEN);
+    }
+
     // Avoid calls to String.format
     private static String unpack(long v, boolean isDateTime) {
         // YYYY:MM:DD => 13 bits year, 4 bits month, 5 bits day => 22 bits
@@ -56,6 +56,8 @@ public class ComponentIdMgr {
 
         setup(50, "nodes");
         setup(51, "nodes-data");
+
+        setup(60, "live-stats");
     }
 
     static void setup(int idx, String unitName) {
@@ -167,7 +167,7 @@ public class DatabaseOps {
 
 
     // JVM-wide :-(
-    private static Object compactionLock = new Object();
+    /*package*/ static final Object compactionLock = new Object();
 
 
     /**
@@ -256,11 +256,13 @@ public class DatabaseOps {
         txnMgr.tryBlockWriters();
         // txnMgr.begin(WRITE, false) will now bounce.
 
-        // Copy the latest generation.
-        DatasetGraphTDB dsgCompact = StoreConnection.connectCreate(loc2).getDatasetGraphTDB();
+        // Copy the latest generation, with the same storage settings.
+        DatasetGraphTDB dsgCompact = StoreConnection.connectCreate(loc2, dsgBase.getStoreParams()).getDatasetGraphTDB();
         CopyDSG.copy(dsgBase, dsgCompact);
 
         TransactionCoordinator txnMgr2 = dsgCompact.getTxnSystem().getTxnMgr();
+        txnMgr2.setGroupCommit(txnMgr.getGroupCommitWindowMillis(), txnMgr.getGroupCommitMaxCommits());
+        txnMgr2.setDurability(txnMgr.getDurability());
         txnMgr2.startExclusiveMode();
 
         txnMgr.startExclusiveMode();
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb2.sys;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compaction of a TDB2 database in place, while readers and the writer continue.
+ * <p>
+ * Write transactions on a B+Tree copy the blocks they change and leave the old
+ * blocks for older readers. {@link DatabaseOps#compact} reclaims the space by
+ * copying the database. Instead, this finds the blocks of each B+Tree that are no
+ * longer reachable from the current root, in a read transaction, and, when no
+ * transaction can see an older root, makes them available to be written again by
+ * later write transactions. The scan can be limited to a number of blocks per
+ * second.
+ * <p>
+ * The files do not get smaller; the free space is used before the files grow. The
+ * free blocks are only recorded in memory: after a restart, they are found again by
+ * the next compaction.
+ * <p>
+ * The node table data file is not compacted: node ids are offsets into it.
+ */
+public class IncrementalCompaction {
+    private static Logger LOG = LoggerFactory.getLogger(IncrementalCompaction.class);
+
+    /** Maximum time to wait for transactions that started before the scan to finish. */
+    public static final long WaitForReadersMillis = 60_000;
+
+    private final DatasetGraphTDB dsg;
+    private final long maxBlocksPerSecond;
+
+    private final AtomicLong blocksTotal = new AtomicLong(0);
+    private final AtomicLong blocksScanned = new AtomicLong(0);
+    private final AtomicLong blocksFound = new AtomicLong(0);
+    private final AtomicLong blocksReclaimed = new AtomicLong(0);
+    private volatile boolean finished = false;
+    private long startTime = -1;
+
+    /**
+     * Incremental compaction of a TDB2 database (switchable, or the storage dataset).
+     * @param dataset
+     * @param maxBlocksPerSecond Limit on the rate of the scan; 0 or less means no limit.
+     */
+    public IncrementalCompaction(DatasetGraph dataset, long maxBlocksPerSecond) {
+        DatasetGraph dsg = dataset;
+        if ( dsg instanceof DatasetGraphSwitchable )
+            dsg = ((DatasetGraphSwitchable)dsg).get();
+        if ( ! ( dsg instanceof DatasetGraphTDB ) )
+            throw new TDBException("Not a TDB2 database");
+        this.dsg = (DatasetGraphTDB)dsg;
+        this.maxBlocksPerSecond = maxBlocksPerSecond;
+    }
+
+    /**
+     * Scan the B+Trees of the database and make the blocks no longer in use
+     * available. Blocks found while older transactions are still active after
+     * {@link #WaitForReadersMillis} are made available by a later compaction.
+     * <p>
+     * Interrupting the thread abandons the scan.
+     */
+    public void run() {
+        synchronized(DatabaseOps.compactionLock) {
+            TransactionCoordinator txnMgr = dsg.getTxnSystem().getTxnMgr();
+            List<BPlusTree> trees = new ArrayList<>();
+            txnMgr.forEachComponent(c -> {
+                if ( c instanceof BPlusTree )
+                    trees.add((BPlusTree)c);
+            });
+            long blockSize = dsg.getStoreParams().getBlockSize();
+            LOG.debug("Incremental compaction: {} B+Trees", trees.size());
+            startTime = System.nanoTime();
+
+            // One read transaction so that all the trees are scanned at the same data version.
+            long version = Txn.calculateRead(dsg, ()->{
+                for ( BPlusTree bpt : trees )
+                    blocksTotal.addAndGet(bpt.getNodeManager().allocLimit() + bpt.getRecordsMgr().allocLimit());
+                for ( BPlusTree bpt : trees )
+                    blocksFound.addAndGet(bpt.scanFreeBlocks(this::perBlock));
+                return dsg.getTxnSystem().getThreadTransaction().getDataVersion();
+            });
+
+            if ( waitForOlderTransactions(txnMgr, version) ) {
+                // With group commit, the state on disk may still use the blocks.
+                txnMgr.flush();
+                long n = 0;
+                for ( BPlusTree bpt : trees )
+                    n += bpt.releaseFreeBlocks();
+                blocksReclaimed.addAndGet(n);
+                LOG.debug("Incremental compaction: reclaimed {} blocks ({} bytes)", n, n*blockSize);
+            } else
+                LOG.info("Incremental compaction: transactions still active, blocks remain pending");
+            finished = true;
+        }
+    }
+
+    private boolean waitForOlderTransactions(TransactionCoordinator txnMgr, long version) {
+        long deadline = System.currentTimeMillis() + WaitForReadersMillis;
+        while ( txnMgr.getOldestActiveDataVersion() < version ) {
+            if ( System.currentTimeMillis() > deadline )
+                return false;
+            try { Thread.sleep(100); }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Rate limiting: sleep when ahead of the allowed rate.
+    private void perBlock() {
+        long n = blocksScanned.incrementAndGet();
+        if ( Thread.currentThread().isInterrupted() )
+            throw new TDBException("Incremental compaction interrupted");
+        if ( maxBlocksPerSecond <= 0 || n % 64 != 0 )
+            return;
+        long due = startTime + TimeUnit.SECONDS.toNanos(n) / maxBlocksPerSecond;
+        long ahead = due - System.nanoTime();
+        if ( ahead > 0 ) {
+            try { TimeUnit.NANOSECONDS.sleep(ahead); }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new TDBException("Incremental compaction interrupted");
+            }
+        }
+    }
+
+    /** Estimate of the number of blocks to scan. */
+    public long getBlocksTotal()        { return blocksTotal.get(); }
+
+    /** Number of blocks visited so far. */
+    public long getBlocksScanned()      { return blocksScanned.get(); }
+
+    /** Number of blocks found to be no longer in use. */
+    public long getBlocksFound()        { return blocksFound.get(); }
+
+    /** Number of blocks made available for reuse. */
+    public long getBlocksReclaimed()    { return blocksReclaimed.get(); }
+
+    /** Bytes made available for reuse. */
+    public long getBytesReclaimed()     { return blocksReclaimed.get() * dsg.getStoreParams().getBlockSize(); }
+
+    public boolean isFinished()         { return finished; }
+}
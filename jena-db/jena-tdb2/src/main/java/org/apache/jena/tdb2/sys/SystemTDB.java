@@ -25,6 +25,7 @@ import java.util.Properties;
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.lib.PropertyUtils;
 import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.dboe.base.block.BlockCacheMode;
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.base.file.ProcessFileLock;
 import org.apache.jena.dboe.base.record.RecordFactory;
@@ -119,6 +120,15 @@ public class SystemTDB
     /** Experimental : triple and quad filtering at scan level */
     public static final Symbol symTupleFilter       = allocSymbol("tupleFilter");
 
+    /** Experimental : merge join of leading triple patterns that share a variable, when indexes allow */
+    public static final Symbol symMergeJoin         = allocSymbol("mergeJoin");
+
+    /** Experimental : evaluate basic graph patterns in parallel batches in read transactions */
+    public static final Symbol symParallelBGP       = allocSymbol("parallelBGP");
+
+    /** Number of solutions per batch for parallel basic graph pattern evaluation */
+    public static final Symbol symParallelBGPBatchSize = allocSymbol("parallelBGPBatchSize");
+
     private static final String PropertyFileKey1    = tdbPropertyRoot+".settings";
     private static final String PropertyFileKey2    = tdbSymbolPrefix+":settings";
 
@@ -173,6 +183,18 @@ public class SystemTDB
     /** Size of read block cache (32 bit systems only). Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 5*1000);
 
+    /** Size, in bytes, of the off-heap node table cache. Zero means no off-heap cache. */
+    public static final long NodeCacheOffHeapSize   = 0;
+
+    /** Whether to maintain statistics for the BGP optimizer as data changes. */
+    public static final boolean LiveStats           = false;
+
+    /** Kind of block cache for direct mode files. */
+    public static final BlockCacheMode DefaultBlockCacheMode = BlockCacheMode.lru;
+
+    /** Default number of solutions per batch for parallel basic graph pattern evaluation. */
+    public static final int ParallelBGPBatchSize    = intValue("ParallelBGPBatchSize", 1024);
+
     // ---- Misc
 
     /** Default BGP optimizer */
@@ -18,11 +18,8 @@
 
 package org.apache.jena.tdb2.xloader;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Objects;
 
-import org.apache.jena.tdb2.TDBException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +47,8 @@ public class BulkLoaderX {
     /**
      * Whether to compress intermediate sort files for the node table.
      * We'll need this amount of space for the final indexes so this isn't helpful.
+     * <p>
+     * Sort files are compressed with deflate, at the fastest setting.
      */
     public static boolean CompressSortNodeTableFiles = false;
 
@@ -58,24 +57,14 @@ public class BulkLoaderX {
      */
     public static boolean CompressSortIndexFiles = true;
 
-    // Ubuntu: it now (21.04) is at /usr/bin/gzip.
-    //   /bin has become a symbolic link to /usr/bin.
-    //   New installs of 20.04 have it at /usr/bin, upgrades have it at /bin.
-    /*package*/ static String gzipProgram() {
-        if ( programInstalledAt("/usr/bin/gzip") )
-            return "/usr/bin/gzip";
-        if ( programInstalledAt("/bin/gzip") )
-            return "/bin/gzip";
-        throw new TDBException("Can't find gzip program");
-    }
+    /**
+     * Memory, in bytes, for each sort to hold records in memory. Zero or negative
+     * means a quarter of the heap.
+     */
+    public static long SortMemory = -1;
 
-    private static boolean programInstalledAt(String pathname) {
-        Path path = Path.of(pathname);
-        if ( ! Files.exists(path) )
-            return false;
-        if ( ! Files.isExecutable(path) )
-            throw new TDBException(pathname+" is not executable by this process");
-        return true;
+    /*package*/ static long sortMemory() {
+        return SortMemory > 0 ? SortMemory : ExternalSort.defaultMemory();
     }
 
     public static Thread async(Runnable action, String threadName) {
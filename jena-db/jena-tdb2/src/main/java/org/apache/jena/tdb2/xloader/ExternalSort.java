@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb2.xloader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.tdb2.TDBException;
+
+/**
+ * External merge sort of binary records, in the JVM.
+ * <p>
+ * Records are byte arrays, ordered by their first {@code keyLength} bytes compared
+ * as unsigned values. Records are all of the same length or, if the record length is
+ * zero, of varying length (at least the key length).
+ * <p>
+ * Records are added by one thread. They are collected in memory, in chunks. When a chunk
+ * has used its share of the memory budget, it is sorted and written to a temporary
+ * file (a "run") by a worker thread while the next chunk is collected. At the end, the runs
+ * are merged, k-way, to give the sorted records. If there are more than
+ * {@link #MergeFanIn} runs, groups of runs are first merged into longer runs, in parallel.
+ * If all the records fit in one chunk, they are sorted in memory without temporary files.
+ * <p>
+ * With "unique", only the first record added for each key is kept.
+ */
+public class ExternalSort implements AutoCloseable {
+    /** Maximum number of runs merged at once. */
+    public static int MergeFanIn = 128;
+
+    /** Default memory budget: a quarter of the heap. */
+    public static long defaultMemory() {
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    // Approximate memory for a record in addition to its bytes: array header and reference.
+    private static final int RecordOverhead = 24;
+    private static final int BufferSize = 128*1024;
+
+    private final int keyLength;
+    private final int recordLength;
+    private final boolean unique;
+    private final Path tmpdir;
+    private final boolean compress;
+    private final long chunkMemory;
+    private final ExecutorService workers;
+    // Bound on the number of chunks being sorted and written, and so on memory used.
+    private final Semaphore chunkPermits;
+    private final Comparator<byte[]> comparator;
+
+    private List<byte[]> chunk = new ArrayList<>();
+    private long chunkUsed = 0;
+    private final List<Future<Run>> pending = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+    // All temporary files not yet deleted.
+    private final Set<Path> tempFiles = ConcurrentHashMap.newKeySet();
+    private long count = 0;
+    private boolean finished = false;
+
+    /** Sorted records in a temporary file. */
+    private static class Run {
+        final Path file;
+        final long count;
+        Run(Path file, long count) {
+            this.file = file;
+            this.count = count;
+        }
+    }
+
+    /**
+     * @param keyLength    Number of bytes, from the start of a record, that are compared.
+     * @param recordLength Length of each record; 0 for records of varying length.
+     * @param unique       Keep only the first record for each key.
+     * @param tmpdir       Directory for the temporary files.
+     * @param memory       Memory budget, in bytes, for records held in memory.
+     * @param threads      Number of threads sorting and writing chunks.
+     * @param compress     Whether to compress the temporary files.
+     */
+    public ExternalSort(int keyLength, int recordLength, boolean unique, Path tmpdir, long memory, int threads, boolean compress) {
+        if ( keyLength <= 0 )
+            throw new IllegalArgumentException("Key length must be positive: "+keyLength);
+        if ( recordLength != 0 && recordLength < keyLength )
+            throw new IllegalArgumentException("Record length "+recordLength+" is less than the key length "+keyLength);
+        if ( threads <= 0 )
+            threads = 1;
+        this.keyLength = keyLength;
+        this.recordLength = recordLength;
+        this.unique = unique;
+        this.tmpdir = Objects.requireNonNull(tmpdir);
+        this.compress = compress;
+        // One chunk being filled, and up to "threads" chunks being sorted.
+        this.chunkMemory = Math.max(1, memory / (threads+1));
+        this.chunkPermits = new Semaphore(threads);
+        this.workers = Executors.newFixedThreadPool(threads, runnable->{
+            Thread thread = new Thread(runnable, "ExternalSort");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.comparator = (r1, r2) -> Arrays.compareUnsigned(r1, 0, keyLength, r2, 0, keyLength);
+    }
+
+    /** Add a record. The byte array must not be changed afterwards. */
+    public void add(byte[] record) {
+        if ( finished )
+            throw new IllegalStateException("Sort already finished");
+        if ( recordLength == 0 ? record.length < keyLength : record.length != recordLength )
+            throw new IllegalArgumentException("Bad record length: "+record.length);
+        chunk.add(record);
+        chunkUsed += record.length + RecordOverhead;
+        count++;
+        if ( chunkUsed >= chunkMemory )
+            spill();
+    }
+
+    /** Number of records added. */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Finish adding records and return the sorted records.
+     * The temporary files are deleted when the iterator ends or when this sort is closed.
+     */
+    public Iterator<byte[]> sorted() {
+        if ( finished )
+            throw new IllegalStateException("Sort already finished");
+        finished = true;
+        if ( pending.isEmpty() ) {
+            // In memory.
+            byte[][] records = chunk.toArray(new byte[0][]);
+            chunk = null;
+            // Stable, so "unique" keeps the first record added.
+            Arrays.parallelSort(records, comparator);
+            workers.shutdown();
+            return unique(Arrays.asList(records).iterator());
+        }
+        if ( ! chunk.isEmpty() )
+            spill();
+        chunk = null;
+        waitForRuns();
+        while ( runs.size() > MergeFanIn )
+            mergePass();
+        workers.shutdown();
+        try {
+            return unique(new MergeIterator(new ArrayList<>(runs)));
+        } catch (IOException ex) {
+            IO.exception(ex);
+            return null;
+        }
+    }
+
+    /** Remove temporary files and stop the worker threads. */
+    @Override
+    public void close() {
+        finished = true;
+        chunk = null;
+        workers.shutdownNow();
+        for ( Future<Run> future : pending ) {
+            try { runs.add(future.get()); }
+            catch (InterruptedException | ExecutionException | CancellationException ex) {}
+        }
+        pending.clear();
+        runs.clear();
+        tempFiles.forEach(this::delete);
+    }
+
+    // Sort and write the current chunk on a worker thread.
+    private void spill() {
+        List<byte[]> records = chunk;
+        chunk = new ArrayList<>();
+        chunkUsed = 0;
+        try {
+            chunkPermits.acquire();
+        } catch (InterruptedException ex) {
+            throw new TDBException("Interrupted", ex);
+        }
+        try {
+            pending.add(workers.submit(()->{
+                try {
+                    records.sort(comparator);
+                    return writeRun(records.iterator());
+                } finally {
+                    chunkPermits.release();
+                }
+            }));
+        } catch (RejectedExecutionException ex) {
+            chunkPermits.release();
+            throw new TDBException("Sort workers have stopped", ex);
+        }
+    }
+
+    private void waitForRuns() {
+        try {
+            for ( Future<Run> future : pending )
+                runs.add(future.get());
+        } catch (InterruptedException ex) {
+            throw new TDBException("Interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new TDBException("Sort failed: "+ex.getCause().getMessage(), ex.getCause());
+        } finally {
+            pending.clear();
+        }
+    }
+
+    // Merge groups of runs into longer runs, in parallel.
+    private void mergePass() {
+        List<Run> current = new ArrayList<>(runs);
+        runs.clear();
+        for ( int i = 0 ; i < current.size() ; i += MergeFanIn ) {
+            List<Run> group = current.subList(i, Math.min(i+MergeFanIn, current.size()));
+            if ( group.size() == 1 ) {
+                runs.add(group.get(0));
+                continue;
+            }
+            pending.add(workers.submit(()->writeRun(new MergeIterator(group))));
+        }
+        waitForRuns();
+    }
+
+    private Run writeRun(Iterator<byte[]> records) throws IOException {
+        Path file = Files.createTempFile(tmpdir, "sort", ".tmp");
+        tempFiles.add(file);
+        long written = 0;
+        byte[] previous = null;
+        try ( DataOutputStream out = new DataOutputStream(output(file)) ) {
+            while ( records.hasNext() ) {
+                byte[] record = records.next();
+                // Drop duplicates early.
+                if ( unique && previous != null && comparator.compare(previous, record) == 0 )
+                    continue;
+                if ( recordLength == 0 )
+                    out.writeInt(record.length);
+                out.write(record);
+                previous = record;
+                written++;
+            }
+        }
+        return new Run(file, written);
+    }
+
+    private OutputStream output(Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        if ( compress )
+            out = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), BufferSize);
+        return new BufferedOutputStream(out, BufferSize);
+    }
+
+    private InputStream input(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if ( compress )
+            in = new InflaterInputStream(in, new Inflater(), BufferSize);
+        return new BufferedInputStream(in, BufferSize);
+    }
+
+    private void delete(Path file) {
+        tempFiles.remove(file);
+        try { Files.deleteIfExists(file); }
+        catch (IOException ex) { /* Best effort */ }
+    }
+
+    private Iterator<byte[]> unique(Iterator<byte[]> iter) {
+        if ( ! unique )
+            return iter;
+        return new IteratorSlotted<>() {
+            private byte[] previous = null;
+
+            @Override
+            protected byte[] moveToNext() {
+                while ( iter.hasNext() ) {
+                    byte[] record = iter.next();
+                    if ( previous == null || comparator.compare(previous, record) != 0 ) {
+                        previous = record;
+                        return record;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected boolean hasMore() {
+                return true;
+            }
+        };
+    }
+
+    /** Reads the records of a run. */
+    private class RunReader {
+        final int index;
+        final DataInputStream in;
+        long remaining;
+        byte[] current = null;
+
+        RunReader(int index, Run run) throws IOException {
+            this.index = index;
+            this.in = new DataInputStream(input(run.file));
+            this.remaining = run.count;
+        }
+
+        boolean advance() throws IOException {
+            if ( remaining == 0 ) {
+                current = null;
+                in.close();
+                return false;
+            }
+            int len = ( recordLength == 0 ) ? in.readInt() : recordLength;
+            current = new byte[len];
+            in.readFully(current);
+            remaining--;
+            return true;
+        }
+    }
+
+    /**
+     * K-way merge of runs. Records with the same key come out in the order of the runs.
+     * The run files are deleted when the iterator ends.
+     */
+    private class MergeIterator extends IteratorSlotted<byte[]> {
+        private final List<Run> inputs;
+        private final PriorityQueue<RunReader> queue;
+
+        MergeIterator(List<Run> inputs) throws IOException {
+            this.inputs = inputs;
+            Comparator<RunReader> order = (r1, r2) -> {
+                int x = comparator.compare(r1.current, r2.current);
+                return ( x != 0 ) ? x : Integer.compare(r1.index, r2.index);
+            };
+            this.queue = new PriorityQueue<>(Math.max(1, inputs.size()), order);
+            try {
+                for ( int i = 0 ; i < inputs.size() ; i++ ) {
+                    RunReader reader = new RunReader(i, inputs.get(i));
+                    if ( reader.advance() )
+                        queue.add(reader);
+                }
+            } catch (IOException ex) {
+                closeIterator();
+                throw ex;
+            }
+        }
+
+        @Override
+        protected byte[] moveToNext() {
+            RunReader reader = queue.poll();
+            if ( reader == null )
+                return null;
+            byte[] record = reader.current;
+            try {
+                if ( reader.advance() )
+                    queue.add(reader);
+            } catch (IOException ex) {
+                IO.exception(ex);
+            }
+            return record;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return true;
+        }
+
+        @Override
+        protected void closeIterator() {
+            queue.forEach(reader->IO.close(reader.in));
+            queue.clear();
+            inputs.forEach(run->delete(run.file));
+        }
+    }
+}
@@ -20,20 +20,17 @@ package org.apache.jena.tdb2.xloader;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 
 import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.Timer;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.atlas.logging.FmtLog;
-import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.dboe.base.block.BlockMgr;
 import org.apache.jena.dboe.base.file.BufferChannel;
 import org.apache.jena.dboe.base.file.Location;
@@ -58,27 +55,15 @@ import org.apache.jena.tdb2.sys.TDBInternal;
 import org.slf4j.Logger;
 
 /**
- * From a file of records, build a (packed) index by sorting the input records and
- * the writing the B+Tree bottom up.
+ * From a file of records, build a (packed) index by sorting the input records, with
+ * {@link ExternalSort}, and the writing the B+Tree bottom up.
  */
 public class ProcBuildIndexX
 {
     // Sort and build.
-
-    // K1="-k 1,1"
-    // K2="-k 2,2"
-    // K3="-k 3,3"
-    // K4="-k 4,4"
     //
-    // generate_index "$K1 $K2 $K3" "$DATA_TRIPLES" SPO
-    // generate_index "$K2 $K3 $K1" "$DATA_TRIPLES" POS
-    // generate_index "$K3 $K1 $K2" "$DATA_TRIPLES" OSP
-    // generate_index "$K1 $K2 $K3 $K4" "$DATA_QUADS" GSPO
-    // generate_index "$K1 $K3 $K4 $K2" "$DATA_QUADS" GPOS
-    // generate_index "$K1 $K4 $K2 $K3" "$DATA_QUADS" GOSP
-    // generate_index "$K2 $K3 $K4 $K1" "$DATA_QUADS" SPOG
-    // generate_index "$K3 $K4 $K2 $K1" "$DATA_QUADS" POSG
-    // generate_index "$K4 $K2 $K3 $K1" "$DATA_QUADS" OSPG
+    // The rows of the data file are sorted with the columns in index order,
+    // e.g. for POS, a row (S,P,O) is sorted as the record (P,O,S).
 
     public static void exec(String location, String indexName, int sortThreads, /*unused*/String sortIndexArgs, XLoaderFiles loaderFiles) {
 
@@ -105,32 +90,12 @@ public class ProcBuildIndexX
     }
 
     private static long buildIndex(DatasetGraph dsg, String indexName, int sortThreads, String sortIndexArgs, XLoaderFiles loaderFiles) {
-        long tickPoint = BulkLoaderX.DataTick;
-        int superTick = BulkLoaderX.DataSuperTick;
-        String K1 = "--key=1,1";
-        String K2 = "--key=2,2";
-        String K3 = "--key=3,3";
-        String K4 = "--key=4,4";
-
         switch (indexName) {
-            case "SPO" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.triplesFile, dsg, "SPO", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K1, K2, K3));
-            case "POS" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.triplesFile, dsg, "POS", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K2, K3, K1));
-            case "OSP" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.triplesFile, dsg, "OSP", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K3, K1, K2));
-            case "GSPO" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.quadsFile, dsg, "GSPO", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K1, K2, K3, K4));
-            case "GPOS" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.quadsFile, dsg, "GPOS", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K1, K3, K4, K2));
-            case "GOSP" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.quadsFile, dsg, "GOSP", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K1, K4, K2, K3));
-            case "SPOG" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.quadsFile, dsg, "SPOG", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K2, K3, K4, K1));
-            case "POSG" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.quadsFile, dsg, "POSG", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K3, K4, K2, K1));
-            case "OSPG" :
-                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.quadsFile, dsg, "OSPG", sortThreads, sortIndexArgs, tickPoint, superTick, loaderFiles.TMPDIR, List.of(K4, K2, K3, K1));
+            case "SPO" : case "POS" : case "OSP" :
+                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.triplesFile, dsg, indexName, sortThreads, loaderFiles.TMPDIR);
+            case "GSPO" : case "GPOS" : case "GOSP" :
+            case "SPOG" : case "POSG" : case "OSPG" :
+                return sort_build_index(BulkLoaderX.LOG_Index, loaderFiles.quadsFile, dsg, indexName, sortThreads, loaderFiles.TMPDIR);
             default :
                 throw new TDBException("Index name '" + indexName + "' not recognized");
         }
@@ -150,94 +115,40 @@ public class ProcBuildIndexX
     }
 
     private static long sort_build_index(Logger LOG, String datafile, DatasetGraph dsg, String indexName,
-                                         int sortThreads, String sortIndexArgs, long tickPoint, int superTick,
-                                         String TMPDIR,
-                                         List<String>sortKeyArgs) {
+                                         int sortThreads, String TMPDIR) {
         if ( isEmpty(datafile) )
             return 0;
-        // Sort task.
-        Process proc2;
-        OutputStream toSortOutputStream; // Not used. Input is a file.
-        InputStream fromSortInputStream;
 
         if ( sortThreads <= 0 )
             sortThreads = 2;
 
-        try {
-            //LOG.info("Step : external sort : "+indexName);
-            //if ( sortArgs != null ) {}
-
-            List<String> sortCmd = new ArrayList<>(Arrays.asList(
-                 "sort",
-                    "--temporary-directory="+TMPDIR,
-                    "--buffer-size=50%",
-                    "--parallel="+sortThreads,
-                    "--unique"
-            ));
-
-            if ( BulkLoaderX.CompressSortIndexFiles )
-                sortCmd.add("--compress-program="+BulkLoaderX.gzipProgram());
-
-            // Sort order
-            sortCmd.addAll(sortKeyArgs);
-
-            // Add the file to sort if not compressed.
-            if ( ! BulkLoaderX.CompressDataFiles )
-                sortCmd.add(datafile);
-            // else this process will decompress and send the data.
-
-            //if ( sortIndexArgs != null ) {}
-
-            ProcessBuilder pb2 = new ProcessBuilder(sortCmd);
-            pb2.environment().put("LC_ALL","C");
-            proc2 = pb2.start();
-
-            // To process. Not used if uncompressed file.
-            toSortOutputStream = proc2.getOutputStream();
-            // From process
-            fromSortInputStream = proc2.getInputStream(); // Needs buffering
-//            // Debug sort process.
-//            InputStream fromSortErrortStream = proc2.getErrorStream();
-//            IOUtils.copy(fromSortErrortStream, System.err);
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
+        int tupleLength = indexName.length();
+        String primaryOrder;
+        if ( tupleLength == 3 ) {
+            primaryOrder = Names.primaryIndexTriples;
+        } else if ( tupleLength == 4 ) {
+            primaryOrder = Names.primaryIndexQuads;
+        } else {
+            throw new TDBException("Index name: " + indexName);
         }
+        TupleMap colMap = TupleMap.create(primaryOrder, indexName);
+        int recordLength = SystemTDB.SizeOfNodeId * tupleLength;
 
-        if ( BulkLoaderX.CompressDataFiles ) {
+        // Records of the data file, with the columns in index order, are sorted as bytes.
+        try ( ExternalSort sorter = new ExternalSort(recordLength, recordLength, true, Path.of(TMPDIR),
+                                                     BulkLoaderX.sortMemory(), sortThreads, BulkLoaderX.CompressSortIndexFiles) ) {
             // Handles .gz
-            InputStream inData = IO.openFile(datafile);
-            try {
-                inData.transferTo(toSortOutputStream);
-                toSortOutputStream.close();
+            try ( InputStream input = IO.openFile(datafile) ) {
+                int rowBlock = 1000;
+                Iterator<Record> iter = new RecordsFromInput(input, tupleLength, colMap, rowBlock);
+                iter.forEachRemaining(record->sorter.add(record.getKey()));
             } catch (IOException ex) { IO.exception(ex); }
+            // This thread - run builder.
+            return indexBuilder(dsg, sorter.sorted(), indexName);
         }
-
-        // From sort, buffered.
-        InputStream input = IO.ensureBuffered(fromSortInputStream);
-        // This thread - run builder.
-        long count = indexBuilder(dsg, input, indexName);
-        try {
-            int exitCode = proc2.waitFor();
-            if ( exitCode != 0 ) {
-                String msg = IO.readWholeFileAsUTF8(proc2.getErrorStream());
-                String logMsg = String.format("Sort RC = %d : Error: %s", exitCode, msg);
-                Log.error(LOG, logMsg);
-                // ** Exit process
-                System.exit(exitCode);
-            }
-//            else
-//                LOG.info("Sort finished");
-        } catch (InterruptedException e) {
-            LOG.error("Failed to cleanly wait-for the subprocess");
-            throw new RuntimeException(e);
-        } finally {
-            IO.close(toSortOutputStream);
-            IO.close(fromSortInputStream);
-        }
-        return count;
     }
 
-    private static long indexBuilder(DatasetGraph dsg, InputStream input, String indexName) {
+    private static long indexBuilder(DatasetGraph dsg, Iterator<byte[]> input, String indexName) {
         long tickPoint = BulkLoaderX.DataTick;
         int superTick = BulkLoaderX.DataSuperTick;
 
@@ -255,16 +166,6 @@ public class ProcBuildIndexX
         if ( index == null )
             throw new TDBException("Can not find index: " + indexName);
 
-        String primaryOrder;
-        if ( tupleLength == 3 ) {
-            primaryOrder = Names.primaryIndexTriples;
-        } else if ( tupleLength == 4 ) {
-            primaryOrder = Names.primaryIndexQuads;
-        } else {
-            throw new TDBException("Index name: " + indexName);
-        }
-        TupleMap colMap = TupleMap.create(primaryOrder, indexName);
-
         int blockSize = SystemTDB.BlockSize;
         RecordFactory recordFactory = ((TupleIndexRecord)index).getRangeIndex().getRecordFactory();
 
@@ -278,8 +179,8 @@ public class ProcBuildIndexX
         BlockMgr blkMgrRecords = bpt.getRecordsMgr().getBlockMgr();
         BufferChannel blkState = bpt.getStateManager().getBufferChannel();
         // ----
-        int rowBlock = 1000;
-        Iterator<Record> iter = new RecordsFromInput(input, tupleLength, colMap, rowBlock);
+        // Sorted keys, in index order, are records.
+        Iterator<Record> iter = Iter.map(input, recordFactory::create);
         // ProgressMonitor.
         ProgressMonitor monitor = ProgressMonitorOutput.create(BulkLoaderX.LOG_Index, indexName, tickPoint, superTick);
         ProgressIterator<Record> iter2 = new ProgressIterator<>(iter, monitor);
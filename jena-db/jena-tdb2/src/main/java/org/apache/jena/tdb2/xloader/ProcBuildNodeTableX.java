@@ -18,23 +18,15 @@
 
 package org.apache.jena.tdb2.xloader;
 
-import static org.apache.jena.tdb2.xloader.BulkLoaderX.async;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
-import org.apache.jena.atlas.io.IO;
-import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.*;
 import org.apache.jena.atlas.logging.FmtLog;
-import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.dboe.base.file.BinaryDataFile;
 import org.apache.jena.dboe.base.file.BufferChannel;
 import org.apache.jena.dboe.base.file.FileFactory;
@@ -60,26 +52,27 @@ import org.apache.jena.system.progress.ProgressIterator;
 import org.apache.jena.system.progress.ProgressMonitorOutput;
 import org.apache.jena.system.progress.ProgressStreamRDF;
 import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.NodeLib;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.Hash;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.NodeIdFactory;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableFormat;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.apache.thrift.TException;
 import org.apache.thrift.TSerializer;
 import org.apache.thrift.protocol.TCompactProtocol;
-import org.slf4j.Logger;
 
 /*
  * Build the node table.
  *
  * <ul>
- * <li>Step 1: Extract nodes from the input parser, writes (hash, terms in encoded RDF Thrift).
- * <li>Step 2: Sort by hash and remove duplicates.
+ * <li>Step 1: Extract nodes from the input parser, sends (hash, terms in encoded RDF Thrift) to the sort.
+ * <li>Step 2: Sort by hash and remove duplicates ({@link ExternalSort}).
  * <li>Step 2: Write node table data file and write node table index (B+tree).
  * </ul>
  * Outcome: complete node table.
@@ -109,10 +102,9 @@ public class ProcBuildNodeTableX {
     /** @return Pair<triples, indexed nodes> */
     private static Pair<Long, Long> exec2(String DB, XLoaderFiles loaderFiles, int sortThreads, String sortNodeTableArgs, List<String> datafiles) {
 
-        //Threads - 1 parser, 1 builder, 2 sort.
         // Steps:
-        // 1 - parser to and pipe terms to sort
-        // 2 - sort
+        // 1 - parse and send terms to the sort
+        // 2 - sort : in-JVM external sort, sorting chunks on worker threads during step 1.
         // 3 - build node table from unique sort
 
         IRIProvider provider = SystemIRIx.getProvider();
@@ -121,252 +113,126 @@ public class ProcBuildNodeTableX {
         DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(DB);
         DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
         NodeTable nt = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable();
+        if ( ! ( nt.baseNodeTable() instanceof NodeTableTRDF ) )
+            // The node table is built from RDF Thrift encodings of the terms.
+            throw new TDBException("The xloader requires a node table in format '"+NodeTableFormat.thrift+"'");
         NodeTableTRDF nodeTable = (NodeTableTRDF)nt.baseNodeTable();
 
-        OutputStream toSortOutputStream;
-        InputStream fromSortInputStream;
-
         if ( sortThreads <= 0 )
             sortThreads = 2;
 
         // ** Step 2: The sort
-        Process procSort;
+        // Records are (hash, term in encoded RDF Thrift), sorted and made unique by hash.
+        ExternalSort sorter = new ExternalSort(SystemTDB.LenNodeHash, 0, true, Path.of(loaderFiles.TMPDIR),
+                                               BulkLoaderX.sortMemory(), sortThreads, BulkLoaderX.CompressSortNodeTableFiles);
         try {
-            //LOG.info("Step : external sort");
-            // Mutable list.
-            List<String> sortCmd = new ArrayList<>(Arrays.asList(
-                  "sort",
-                    "--temporary-directory="+loaderFiles.TMPDIR,
-                    "--buffer-size=50%",
-                    "--parallel="+sortThreads,
-                    "--unique",
-                    "--key=1,1"
-                    ));
-
-            if ( BulkLoaderX.CompressSortNodeTableFiles )
-                sortCmd.add("--compress-program="+BulkLoaderX.gzipProgram());
-
-            //if ( sortNodeTableArgs != null ) {}
-
-            ProcessBuilder pb2 = new ProcessBuilder(sortCmd);
-            pb2.environment().put("LC_ALL","C");
-            procSort = pb2.start();
-
-            // To process.
-            // Let the writer close it.
-            toSortOutputStream = procSort.getOutputStream();
-            // From process to the tree builder.
-            // Let the reader side close it.
-            fromSortInputStream = procSort.getInputStream();
-//            // Debug sort process.
-//            InputStream fromSortErrortStream = proc2.getErrorStream();
-//            IOUtils.copy(fromSortErrortStream, System.err);
-
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
+            // ** Step 1 : parse, send (hash, thrift bytes) to the sort.
+            long countParseTicks = parse(sorter, datafiles);
+            // ** Step 3 : build node table.
+            long countIndexedNodes = build(dsg, dsgtdb, nodeTable, sorter);
+            return Pair.create(countParseTicks, countIndexedNodes);
+        } finally {
+            sorter.close();
         }
+    }
 
-        // ** Step 1 : write intermediate file (hash, thrift bytes).
-        AtomicLong countParseTicks = new AtomicLong(-1);
-        AtomicLong countIndexedNodes = new AtomicLong(-1);
-
+    private static long parse(ExternalSort sorter, List<String> datafiles) {
         long tickPoint = BulkLoaderX.DataTick;
         int superTick = BulkLoaderX.DataSuperTick;
 
-        Runnable task1 = ()->{
-            ProgressMonitorOutput monitor = ProgressMonitorOutput.create(BulkLoaderX.LOG_Nodes, "Nodes", tickPoint, superTick);
-            OutputStream output = IO.ensureBuffered(toSortOutputStream);
-            // Counting.
-            StreamRDF worker = new NodeHashTmpStream(output);
-            ProgressStreamRDF stream = new ProgressStreamRDF(worker, monitor);
+        ProgressMonitorOutput monitor = ProgressMonitorOutput.create(BulkLoaderX.LOG_Nodes, "Nodes", tickPoint, superTick);
+        // Counting.
+        StreamRDF worker = new NodeHashTmpStream(sorter);
+        ProgressStreamRDF stream = new ProgressStreamRDF(worker, monitor);
+        monitor.start();
+        String label = monitor.getLabel();
+        datafiles.forEach( datafile->{
+            String basename = FileOps.basename(datafile);
+            monitor.setLabel(basename);
+            stream.start();
+            RDFParser.source(datafile).parse(stream);
+            stream.finish();
+        });
+        monitor.finish();
+        monitor.setLabel(label);
+
+        long x = monitor.getTime();
+        long count = monitor.getTicks();
+
+        double xSec = x/1000.0;
+        double rate = count/xSec;
+        FmtLog.info(BulkLoaderX.LOG_Nodes, "%s Parse (nodes): %s seconds : %,d triples/quads %,.0f TPS", BulkLoaderX.StageMarker,
+                    Timer.timeStr(x), count, rate);
+        return count;
+    }
+
+    private static long build(DatasetGraph dsg, DatasetGraphTDB dsgtdb, NodeTableTRDF nodeTable, ExternalSort sorter) {
+        Timer timer = new Timer();
+        // Don't start timer until the sort has produced something.
+
+        FileSet fileSet = new FileSet(dsgtdb.getLocation(), Names.nodeTableBaseName);
+        BufferChannel blkState = FileFactory.createBufferChannel(fileSet, Names.extBptState);
+        long idxTickPoint = BulkLoaderX.DataTick;
+        int idxSuperTick = BulkLoaderX.DataSuperTick;
+        ProgressMonitorOutput monitor = ProgressMonitorOutput.create(BulkLoaderX.LOG_Terms, "Index", idxTickPoint, idxSuperTick);
+
+        dsg.executeWrite(()->{
+            BinaryDataFile objectFile = nodeTable.getData();
+            Iterator<Record> rIter = records(sorter.sorted(), objectFile);
+            rIter = new ProgressIterator<>(rIter, monitor);
+            BPlusTree bpt1 = (BPlusTree)(nodeTable.getIndex());
+            BPlusTreeParams bptParams = bpt1.getParams();
+            RecordFactory factory = new RecordFactory(SystemTDB.LenNodeHash,  NodeId.SIZE);
+            // Wait until the sort has something ...
+            rIter.hasNext();
+            BulkLoaderX.LOG_Terms.info("Sort finished");
             monitor.start();
-            String label = monitor.getLabel();
-            datafiles.forEach( datafile->{
-                String basename = FileOps.basename(datafile);
-                monitor.setLabel(basename);
-                stream.start();
-                RDFParser.source(datafile).parse(stream);
-                stream.finish();
-            });
+            // .. then start the timer. It is closed after the transaction finishes.
+            timer.startTimer();
+
+            BPlusTree bpt2 = BPlusTreeRewriter.packIntoBPlusTree(rIter,
+                                                                 bptParams, factory, blkState,
+                                                                 bpt1.getNodeManager().getBlockMgr(),
+                                                                 bpt1.getRecordsMgr().getBlockMgr());
+            bpt2.sync();
+            //bpt1.sync();
+            objectFile.sync();
             monitor.finish();
-            monitor.setLabel(label);
-
-            IO.flush(output);
-            IO.close(output);
-
-            long x = monitor.getTime();
-
-            long count = monitor.getTicks();
-            countParseTicks.set(count);
-
-            double xSec = x/1000.0;
-            double rate = count/xSec;
-            FmtLog.info(BulkLoaderX.LOG_Nodes, "%s Parse (nodes): %s seconds : %,d triples/quads %,.0f TPS", BulkLoaderX.StageMarker,
-                        Timer.timeStr(x), count, rate);
-        };
-
-        // AsyncParser.asyncParse(files, output) but with logging.
-        Thread thread1 = async(task1, "AsyncParser");
-
-        // Step3: build node table.
-        Runnable task3 = ()->{
-            Timer timer = new Timer();
-            // Don't start timer until sort send something
-
-            // Process stream are already buffered.
-            InputStream input = IO.ensureBuffered(fromSortInputStream);
-
-            FileSet fileSet = new FileSet(dsgtdb.getLocation(), Names.nodeTableBaseName);
-            BufferChannel blkState = FileFactory.createBufferChannel(fileSet, Names.extBptState);
-            long idxTickPoint = BulkLoaderX.DataTick;
-            int idxSuperTick = BulkLoaderX.DataSuperTick;
-            ProgressMonitorOutput monitor = ProgressMonitorOutput.create(BulkLoaderX.LOG_Terms, "Index", idxTickPoint, idxSuperTick);
-
-            dsg.executeWrite(()->{
-                BinaryDataFile objectFile = nodeTable.getData();
-                Iterator<Record> rIter = records(BulkLoaderX.LOG_Terms, input, objectFile);
-                rIter = new ProgressIterator<>(rIter, monitor);
-                BPlusTree bpt1 = (BPlusTree)(nodeTable.getIndex());
-                BPlusTreeParams bptParams = bpt1.getParams();
-                RecordFactory factory = new RecordFactory(SystemTDB.LenNodeHash,  NodeId.SIZE);
-                // Wait until something has been received from the sort step
-                rIter.hasNext();
-                monitor.start();
-                // .. then start the timer. It is closed after the transaction finishes.
-                timer.startTimer();
-
-                BPlusTree bpt2 = BPlusTreeRewriter.packIntoBPlusTree(rIter,
-                                                                     bptParams, factory, blkState,
-                                                                     bpt1.getNodeManager().getBlockMgr(),
-                                                                     bpt1.getRecordsMgr().getBlockMgr());
-                bpt2.sync();
-                //bpt1.sync();
-                objectFile.sync();
-                monitor.finish();
-            });
-            IO.close(input);
-            long x = timer.endTimer();
-            long count = monitor.getTicks();
-            countIndexedNodes.set(count);
-            String rateStr = BulkLoaderX.rateStr(count, x);
-            FmtLog.info(BulkLoaderX.LOG_Terms, "%s Index terms: %s seconds : %,d indexed RDF terms : %s PerSecond", BulkLoaderX.StageMarker, Timer.timeStr(x), count, rateStr);
-        };
-        Thread thread3 = async(task3, "AsyncBuild");
-
-        try {
-            int exitCode = procSort.waitFor();
-            if ( exitCode != 0 ) {
-                String msg = IO.readWholeFileAsUTF8(procSort.getErrorStream());
-                String logMsg = String.format("Sort RC = %d : Error: %s", exitCode, msg);
-                Log.error(BulkLoaderX.LOG_Terms, logMsg);
-                // ** Exit process
-                System.exit(exitCode);
-            } else
-                BulkLoaderX.LOG_Terms.info("Sort finished");
-
-            // I/O Stream toSortOutputStream and fromSortInputStream closed by
-            // their users - step 1 and step 3.
-        } catch (InterruptedException e) {
-            BulkLoaderX.LOG_Nodes.error("Failed to cleanly wait-for the subprocess");
-            throw new RuntimeException(e);
-        }
-
-        BulkLoaderX.waitFor(thread1);
-        BulkLoaderX.waitFor(thread3);
-        return Pair.create(countParseTicks.get(), countIndexedNodes.get());
+        });
+        long x = timer.endTimer();
+        long count = monitor.getTicks();
+        String rateStr = BulkLoaderX.rateStr(count, x);
+        FmtLog.info(BulkLoaderX.LOG_Terms, "%s Index terms: %s seconds : %,d indexed RDF terms : %s PerSecond", BulkLoaderX.StageMarker, Timer.timeStr(x), count, rateStr);
+        return count;
     }
 
-    private static Iterator<Record> records(Logger logger, InputStream input, BinaryDataFile objectFile) {
-        return new IteratorNodeTableRecords(logger, input, objectFile);
+    private static Iterator<Record> records(Iterator<byte[]> input, BinaryDataFile objectFile) {
+        return Iter.map(input, new NodeTableRecord(objectFile));
     }
 
-    private static class IteratorNodeTableRecords extends IteratorSlotted<Record> {
+    /** Sorted (hash, thrift bytes) to a node table index record, writing the term to the node table data file. */
+    private static class NodeTableRecord implements Function<byte[], Record> {
         private final static RecordFactory factory = new RecordFactory(SystemTDB.LenNodeHash,  NodeId.SIZE);
-        private final byte[] bHash = new byte[SystemTDB.LenNodeHash];
         private final byte[] bbNodeId = new byte[NodeId.SIZE];
-        private final RDF_Term term = new RDF_Term();
-        private final Logger logger;
-        private final InputStream input;
         private final BinaryDataFile objectFile;
 
-        IteratorNodeTableRecords(Logger logger, InputStream input, BinaryDataFile objectFile) {
-            this.logger = logger;
-            this.input = input;
+        NodeTableRecord(BinaryDataFile objectFile) {
             this.objectFile = objectFile;
         }
 
-        long count = 0;
-        @Override
-        protected Record moveToNext() {
-            return calc();
-        }
-
         @Override
-        protected boolean hasMore() {
-            return true;
-        }
-
-        // One line of file encoded data to record.
-        private Record calc() {
-            count++;
-            try {
-                // read hash.
-                for ( int i = 0 ; i < 16 ; i++ ) {
-                    int x = hexRead(input);
-                    if ( x < 0 )
-                        return null;
-                    bHash[i] = (byte)(x&0xFF);
-                }
-                char ch0 = (char)input.read(); // space.
-                byte[] key = bHash;
-
-                ByteArrayOutputStream bout = new ByteArrayOutputStream();
-                // Read de-hexer
-                for(;;) {
-                    int v = hexRead(input);
-                    if ( v < 0 )
-                        break;
-                    bout.write(v);
-                }
-                byte[] thrift = bout.toByteArray();
-                ThriftConvert.termFromBytes(term, thrift);
-                // write to nodes.dat -> NodeId
-                long x = objectFile.length();
-                NodeId nodeId = NodeIdFactory.createPtr(x);
-                objectFile.write(thrift);
-                Bytes.setLong(nodeId.getPtrLocation(), bbNodeId);
-                Record r = factory.create(key, bbNodeId);
-                return r;
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                return null;
-            }
+        public Record apply(byte[] sortRecord) {
+            byte[] key = Arrays.copyOf(sortRecord, SystemTDB.LenNodeHash);
+            byte[] thrift = Arrays.copyOfRange(sortRecord, SystemTDB.LenNodeHash, sortRecord.length);
+            // write to nodes.dat -> NodeId
+            long x = objectFile.length();
+            NodeId nodeId = NodeIdFactory.createPtr(x);
+            objectFile.write(thrift);
+            Bytes.setLong(nodeId.getPtrLocation(), bbNodeId);
+            return factory.create(key, bbNodeId);
         }
     }
 
-    public static int hexRead(InputStream input) throws IOException {
-        int c1 = input.read();
-        if ( c1 < 0 )
-            return -1;
-        if ( c1 == '\n' || c1 == ' ')
-            return -1;
-        int c2 = input.read();
-        int b1 = Hex.hexByteToInt(c1);
-        int b2 = Hex.hexByteToInt(c2);
-        int b = (b1<<4)|b2;
-        return b;
-    }
-
-    public static void hexWrite(OutputStream output, int bits8) throws IOException {
-        int x1 = (bits8>>4) & 0xF;
-        int x2 = bits8 & 0xF;
-        byte ch1 = Bytes.hexDigitsUC[x1];
-        byte ch2 = Bytes.hexDigitsUC[x2];
-        output.write(ch1);
-        output.write(ch2);
-    }
-
-
     static byte[] hashNode(Node node) {
         NodeLib.setHash(hash, node);
         return hash.getBytes();
@@ -375,14 +241,14 @@ public class ProcBuildNodeTableX {
     private static Hash hash = new Hash(SystemTDB.LenNodeHash);
 
     //Cache needed to reduce duplicates
-    /** Write the intermediate sort file */
+    /** Send (hash, term in encoded RDF Thrift) records to the sort */
     static class NodeHashTmpStream implements StreamRDF {
 
-        private final OutputStream outputData;
+        private final ExternalSort sorter;
         private CacheSet<Node> cache = CacheFactory.createCacheSet(500_000);
 
-        NodeHashTmpStream(OutputStream outputFile) {
-            this.outputData = outputFile;
+        NodeHashTmpStream(ExternalSort sorter) {
+            this.sorter = sorter;
         }
 
         @Override
@@ -426,22 +292,15 @@ public class ProcBuildNodeTableX {
                 byte k[] = hash.getBytes();
                 RDF_Term term = ThriftConvert.convert(node, false);
                 byte[] tBytes = serializer.serialize(term);
-                write(outputData, k);
-                outputData.write(' ');
-                write(outputData, tBytes);
-                outputData.write('\n');
+                byte[] record = new byte[k.length+tBytes.length];
+                System.arraycopy(k, 0, record, 0, k.length);
+                System.arraycopy(tBytes, 0, record, k.length, tBytes.length);
+                sorter.add(record);
             } catch (TException e) {
                 e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
             }
         }
 
-        private static void write(OutputStream outputData, byte[] bytes) throws IOException {
-            for ( byte bits8 : bytes )
-                hexWrite(outputData, bits8);
-        }
-
         @Override
         public void base(String base) {}
 
@@ -449,8 +308,6 @@ public class ProcBuildNodeTableX {
         public void prefix(String prefix, String iri) {}
 
         @Override
-        public void finish() {
-            IO.flush(outputData);
-        }
+        public void finish() {}
     }
 }
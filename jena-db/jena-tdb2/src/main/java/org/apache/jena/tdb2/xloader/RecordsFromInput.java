@@ -26,13 +26,16 @@ import java.util.NoSuchElementException;
 
 import org.apache.jena.atlas.AtlasException;
 import org.apache.jena.atlas.lib.Bytes;
-import org.apache.jena.atlas.lib.Hex;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.sys.SysDB;
 import org.apache.jena.tdb2.sys.SystemTDB;
 
+/**
+ * Records from rows of longs, in binary as written by {@link WriteRows}. The columns
+ * of a row are placed in the record key in the order given by the {@link TupleMap}.
+ */
 final
 public class RecordsFromInput implements Iterator<Record>
 {
@@ -53,7 +56,7 @@ public class RecordsFromInput implements Iterator<Record>
         this.input = input;
         this.itemsPerRow = itemsPerRow;
         this.colMap = colMap;
-        this.rowLength = itemsPerRow*16 + itemsPerRow;   // Length in bytes of a row.
+        this.rowLength = itemsPerRow*SysDB.SizeOfLong;   // Length in bytes of a row.
         this.rowBlockSize = rowBlockSize;
         this.buffer = new byte[rowLength*rowBlockSize];
         this.idx = -1;
@@ -83,10 +86,8 @@ public class RecordsFromInput implements Iterator<Record>
 //        System.out.print("In:  ");
         for ( int i = 0; i < itemsPerRow; i++ )
         {
-            long x = Hex.getLong(buffer, idx);
-            idx += 16;
-            // Separator or end-of-line.
-            idx++;
+            long x = Bytes.getLong(buffer, idx);
+            idx += SysDB.SizeOfLong;
             int j = ( colMap == null ) ? i : colMap.putSlotIdx(i);
             int recordOffset = j*SysDB.SizeOfLong;
             Bytes.setLong(x, record.getKey(), recordOffset);
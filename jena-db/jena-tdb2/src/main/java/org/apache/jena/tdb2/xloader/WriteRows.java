@@ -22,13 +22,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.apache.jena.atlas.AtlasException;
-import org.apache.jena.atlas.lib.Hex;
+import org.apache.jena.atlas.lib.Bytes;
 
-/** Buffered writer of rows of longs, in hex. */
+/** Buffered writer of rows of longs, in binary (big-endian, 8 bytes each). */
 class WriteRows
 {
     private OutputStream output;
-    boolean atStartOfRow = true;
     private int itemsPerRow;
     private int rowBlock;
     private byte[] b;
@@ -39,7 +38,7 @@ class WriteRows
     WriteRows(OutputStream output, int itemsPerRow, int rowBlock) {
         this.output = output;
         this.itemsPerRow = itemsPerRow;
-        this.rowLength = 16 * itemsPerRow + itemsPerRow;
+        this.rowLength = Long.BYTES * itemsPerRow;
         this.rowBlock = rowBlock;
         // Does it's own buffering in exact rows.
         // BufferedOutputStream uses synchronized.
@@ -49,19 +48,11 @@ class WriteRows
     }
 
     public void write(long value) {
-        if ( !atStartOfRow ) {
-            b[idx] = ' ';
-            idx++;
-        } else
-            atStartOfRow = false;
-        Hex.formatUnsignedLongHex(b, idx, value, 16);
-        idx += 16;
+        Bytes.setLong(value, b, idx);
+        idx += Long.BYTES;
     }
 
     public void endOfRow() {
-        b[idx] = '\n';
-        idx++;
-        atStartOfRow = true;
         rows++;
         if ( rows == rowBlock )
             flush();
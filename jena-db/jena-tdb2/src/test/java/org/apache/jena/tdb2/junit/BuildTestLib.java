@@ -28,6 +28,8 @@ import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetable.NodeTableCache;
+import org.apache.jena.tdb2.store.nodetable.NodeTableCompressed;
+import org.apache.jena.tdb2.store.nodetable.NodeTableFormat;
 import org.apache.jena.tdb2.store.nodetable.NodeTableInline;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
 import org.apache.jena.tdb2.sys.SystemTDB;
@@ -56,7 +58,9 @@ public class BuildTestLib {
 
         Index index = buildRangeIndex(fs, recordFactory, params);
         BinaryDataFile bdf = createBinaryDataFile(location, basename+"-data");
-        NodeTable nt = new NodeTableTRDF(index, bdf);
+        NodeTable nt = ( params.getNodeTableFormat() == NodeTableFormat.compressed )
+            ? new NodeTableCompressed(index, bdf)
+            : new NodeTableTRDF(index, bdf);
         return nt;
     }
 
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.ThreadAction;
+import org.apache.jena.system.ThreadTxn;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.loader.online.LoaderOnline;
+import org.junit.After;
+import org.junit.Test;
+
+/** Loading into a database that is in use. */
+public class TestLoaderOnline {
+    private static String DIR = "testing/Loader/";
+    private static BiFunction<DatasetGraph, Node, DataLoader> online =
+        (dsg, gn)->LoaderFactory.onlineLoader(dsg, gn, AbstractTestLoader.output);
+
+    private final int mergeChunkSize = LoaderOnline.MergeChunkSize;
+
+    @After public void after() {
+        LoaderOnline.MergeChunkSize = mergeChunkSize;
+    }
+
+    private static DatasetGraph dataset() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().add(SSE.parseTriple("(:s :p 1)")));
+        return dsg;
+    }
+
+    private static long count(DatasetGraph dsg) {
+        return Iter.count(dsg.find());
+    }
+
+    @Test public void online_reader_1() {
+        DatasetGraph dsg = dataset();
+        AtomicLong seen = new AtomicLong(-1);
+        // Reader starts before the load and ends after it.
+        ThreadAction reader = ThreadTxn.threadTxnRead(dsg, ()->seen.set(count(dsg)));
+        AbstractTestLoader.load(dsg, online, DIR + "data-1.nq", DIR + "data-2.nt");
+        reader.run();
+        assertEquals(1, seen.get());
+        assertEquals(4, (long)Txn.calculateRead(dsg, ()->count(dsg)));
+    }
+
+    @Test public void online_writer_1() {
+        DatasetGraph dsg = dataset();
+        DataLoader loader = online.apply(dsg, null);
+        loader.startBulk();
+        loader.load(DIR + "data-2.nt");
+        // Another writer while the loader is active.
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().add(SSE.parseTriple("(:s :p 2)")));
+        loader.load(DIR + "data-1.nq");
+        loader.finishBulk();
+        assertEquals(5, (long)Txn.calculateRead(dsg, ()->count(dsg)));
+    }
+
+    @Test public void online_merge_chunks() {
+        LoaderOnline.MergeChunkSize = 1;
+        DatasetGraph dsg = dataset();
+        AbstractTestLoader.load(dsg, online, DIR + "data-3.trig", DIR + "data-2.nt", DIR + "data-2.nt");
+        DatasetGraph dsg2 = dataset();
+        AbstractTestLoader.load(dsg2, (d, gn)->LoaderFactory.basicLoader(d, gn, AbstractTestLoader.output),
+                                DIR + "data-3.trig", DIR + "data-2.nt");
+        long expected = Txn.calculateRead(dsg2, ()->count(dsg2));
+        assertEquals(expected, (long)Txn.calculateRead(dsg, ()->count(dsg)));
+    }
+}
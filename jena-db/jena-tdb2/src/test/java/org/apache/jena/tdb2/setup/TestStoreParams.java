@@ -20,11 +20,13 @@ package org.apache.jena.tdb2.setup;
 
 import org.apache.jena.atlas.json.JSON;
 import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.dboe.base.block.BlockCacheMode;
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.params.StoreParamsBuilder;
 import org.apache.jena.tdb2.params.StoreParamsCodec;
+import org.apache.jena.tdb2.store.nodetable.NodeTableFormat;
 
 import static org.junit.Assert.*;
 import org.junit.Test;
@@ -86,6 +88,27 @@ public class TestStoreParams {
         assertArrayEquals(expected, params.getTripleIndexes());
     }
 
+    @Test public void store_params_15() {
+        String xs = "{ \"tdb.block_cache_mode\": \"concurrent\" }";
+        JsonObject x = JSON.parse(xs);
+        StoreParams params = StoreParamsCodec.decode(x);
+        assertEquals(BlockCacheMode.concurrent, params.getBlockCacheMode());
+        assertTrue(params.isSetBlockCacheMode());
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+    }
+
+    @Test public void store_params_16() {
+        String xs = "{ \"tdb.node_table_format\": \"compressed\" }";
+        JsonObject x = JSON.parse(xs);
+        StoreParams params = StoreParamsCodec.decode(x);
+        assertEquals(NodeTableFormat.compressed, params.getNodeTableFormat());
+        assertTrue(params.isSetNodeTableFormat());
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertEquals(NodeTableFormat.thrift, StoreParams.getDftStoreParams().getNodeTableFormat());
+    }
+
     @Test(expected=TDBException.class)
     public void store_params_14() {
         String xs = "{ \"tdb.triples_indexes\" : [ \"POS\" , \"PSO\"] } "; // Misspelt.
@@ -24,7 +24,12 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestSolverTDB.class
+    , TestSolverParallel.class
+    , TestSolverMergeJoin.class
+    , TestSolverGroup.class
+    , TestSolverTopN.class
     , TestStats.class
+    , TestStatsLive.class
 })
 
 public class TS_SolverTDB
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * GROUP BY on a single triple pattern, which streams the groups when the index
+ * order keeps each group together, gives the same results as the general GROUP BY.
+ */
+public class TestSolverGroup {
+    static DatasetGraph dsg = null;
+    static DatasetGraph dsgMem = null;
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        dsgMem = DatasetGraphFactory.create();
+        Node p = NodeFactory.createURI("http://example/p");
+        Node q = NodeFactory.createURI("http://example/q");
+        Node g1 = NodeFactory.createURI("http://example/g1");
+        Node g2 = NodeFactory.createURI("http://example/g2");
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 200 ; i++ ) {
+                Node s = NodeFactory.createURI("http://example/s"+(i%40));
+                Node o = NodeFactory.createLiteral(Integer.toString(i%7), XSDDatatype.XSDinteger);
+                add(Quad.defaultGraphIRI, s, p, o);
+                add(Quad.defaultGraphIRI, s, q, NodeFactory.createLiteral("v"+(i%3)));
+                add(( i%2 == 0 ) ? g1 : g2, s, p, o);
+            }
+        });
+    }
+
+    private static void add(Node g, Node s, Node p, Node o) {
+        dsg.add(g, s, p, o);
+        dsgMem.add(g, s, p, o);
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    @Test public void group_scan_01() {
+        test("SELECT ?s (COUNT(*) AS ?c) { ?s ?p ?o } GROUP BY ?s");
+    }
+
+    @Test public void group_scan_02() {
+        test("SELECT ?s (SUM(?o) AS ?sum) (MAX(?o) AS ?max) { ?s :p ?o } GROUP BY ?s");
+    }
+
+    @Test public void group_scan_03() {
+        // Index order is by object: groups streamed.
+        test("SELECT ?o (COUNT(?s) AS ?c) { ?s :p ?o } GROUP BY ?o");
+    }
+
+    @Test public void group_scan_04() {
+        test("SELECT ?s ?p (COUNT(*) AS ?c) (MIN(?o) AS ?x) { ?s ?p ?o } GROUP BY ?s ?p");
+    }
+
+    @Test public void group_scan_05() {
+        // Group variables in a different order to the index order.
+        test("SELECT ?p (COUNT(*) AS ?c) { :s1 ?p ?o } GROUP BY ?o ?p");
+    }
+
+    @Test public void group_scan_05a() {
+        // Not a prefix of the index order: general GROUP BY.
+        test("SELECT ?o (COUNT(*) AS ?c) { :s1 ?p ?o } GROUP BY ?o");
+    }
+
+    @Test public void group_scan_06() {
+        test("SELECT ?g ?s (COUNT(*) AS ?c) { GRAPH ?g { ?s :p ?o } } GROUP BY ?g ?s");
+    }
+
+    @Test public void group_scan_07() {
+        test("SELECT ?s (COUNT(*) AS ?c) { GRAPH :g1 { ?s :p ?o } } GROUP BY ?s");
+    }
+
+    @Test public void group_scan_08() {
+        test("SELECT ?s (COUNT(*) AS ?c) { GRAPH <urn:x-arq:UnionGraph> { ?s :p ?o } } GROUP BY ?s");
+    }
+
+    @Test public void group_scan_09() {
+        test("SELECT (COUNT(*) AS ?c) { ?s :p ?o }");
+    }
+
+    @Test public void group_scan_10() {
+        test("SELECT ?s (COUNT(*) AS ?c) { ?s :noSuchProperty ?o } GROUP BY ?s", true);
+    }
+
+    private static void test(String queryString) {
+        test(queryString, false);
+    }
+
+    private static void test(String queryString, boolean emptyResults) {
+        Query query = QueryFactory.create(PREFIX+queryString);
+        List<Binding> expected = Iter.toList(QueryExec.dataset(dsgMem).query(query).build().select());
+        List<Binding> actual = Txn.calculateRead(dsg, ()->Iter.toList(QueryExec.dataset(dsg).query(query).build().select()));
+        assertEquals(emptyResults, expected.isEmpty());
+        assertEquals(counts(expected), counts(actual));
+        if ( ! emptyResults )
+            assertFalse(actual.isEmpty());
+    }
+
+    private static Map<Binding, Integer> counts(List<Binding> bindings) {
+        Map<Binding, Integer> counts = new HashMap<>();
+        bindings.forEach(b->counts.merge(b, 1, Integer::sum));
+        return counts;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Merge join of leading triple patterns gives the same results as index nested loops. */
+public class TestSolverMergeJoin {
+    static DatasetGraph dsg = null;
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        Node type = NodeFactory.createURI("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
+        Node T1 = NodeFactory.createURI("http://example/T1");
+        Node T2 = NodeFactory.createURI("http://example/T2");
+        Node p = NodeFactory.createURI("http://example/p");
+        Node q = NodeFactory.createURI("http://example/q");
+        Node sel = NodeFactory.createURI("http://example/sel");
+        Node x = NodeFactory.createURI("http://example/x");
+        Node g1 = NodeFactory.createURI("http://example/g1");
+        Node g2 = NodeFactory.createURI("http://example/g2");
+        Txn.executeWrite(dsg, ()->{
+            Graph graph = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < 300 ; i++ ) {
+                Node s = NodeFactory.createURI("http://example/s"+i);
+                Node g = ( i%2 == 0 ) ? g1 : g2;
+                if ( i%2 == 0 ) {
+                    graph.add(s, type, T1);
+                    dsg.add(g1, s, type, T1);
+                    dsg.add(g2, s, type, T1);
+                }
+                if ( i%3 == 0 ) {
+                    graph.add(s, type, T2);
+                    dsg.add(g, s, type, T2);
+                }
+                for ( int j = 0 ; j < 3 ; j++ ) {
+                    Node o = NodeFactory.createLiteral("v"+((i+j)%5));
+                    graph.add(s, p, o);
+                    dsg.add(g, s, p, o);
+                }
+                graph.add(s, q, s);
+                graph.add(s, q, NodeFactory.createURI("http://example/s"+((i+1)%300)));
+                if ( i == 4 || i == 150 || i == 298 ) {
+                    // Selective: few matches, far apart in the broad patterns.
+                    graph.add(s, sel, x);
+                    dsg.add(g, s, sel, x);
+                }
+            }
+        });
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    @Test public void merge_join_01() {
+        test("SELECT * { ?s a :T1 . ?s a :T2 }");
+    }
+
+    @Test public void merge_join_02() {
+        test("SELECT * { ?s a :T1 . ?s :p 'v2' . ?s a :T2 }");
+    }
+
+    @Test public void merge_join_03() {
+        // Shared variable with other variables.
+        test("SELECT * { ?s a :T2 . ?s :p ?o . ?s :q ?z }");
+    }
+
+    @Test public void merge_join_04() {
+        // Repeated variable in one pattern.
+        test("SELECT * { ?s a :T1 . ?s :q ?s }");
+    }
+
+    @Test public void merge_join_05() {
+        // No suitable index order: nested loops.
+        test("SELECT * { ?s :p ?a . ?s :p ?b }");
+    }
+
+    @Test public void merge_join_06() {
+        test("SELECT * { GRAPH ?g { ?s a :T1 . ?s a :T2 } }");
+    }
+
+    @Test public void merge_join_07() {
+        test("SELECT * { GRAPH :g1 { ?s a :T1 . ?s :p 'v1' } }");
+    }
+
+    @Test public void merge_join_08() {
+        // Union graph - duplicates removed.
+        test("SELECT * { GRAPH <urn:x-arq:UnionGraph> { ?s a :T1 . ?s :p 'v1' } }");
+    }
+
+    @Test public void merge_join_09() {
+        // Input binds the join variable.
+        test("SELECT * { VALUES ?s { :s0 :s6 :s7 } ?s a :T1 . ?s a :T2 }");
+    }
+
+    @Test public void merge_join_10() {
+        // Input does not bind the join variable.
+        test("SELECT * { VALUES ?o { 'v1' 'v3' } ?s :p ?o . ?s a :T2 }");
+    }
+
+    @Test public void merge_join_11() {
+        test("SELECT * { ?s a :T1 . ?s :p 'noSuchValue' }", true);
+    }
+
+    @Test public void merge_join_12() {
+        // One side selective.
+        test("SELECT * { ?s :sel :x . ?s :p ?o }");
+    }
+
+    @Test public void merge_join_13() {
+        test("SELECT * { ?s a :T1 . ?s :sel :x . ?s :q ?z }");
+    }
+
+    @Test public void merge_join_14() {
+        test("SELECT * { GRAPH ?g { ?s :sel :x . ?s :p ?o } }");
+    }
+
+    @Test public void merge_join_15() {
+        test("SELECT * { GRAPH <urn:x-arq:UnionGraph> { ?s :p ?o . ?s :sel :x } }");
+    }
+
+    private static void test(String queryString) {
+        test(queryString, false);
+    }
+
+    private static void test(String queryString, boolean emptyResults) {
+        String qs = PREFIX+queryString;
+        List<Binding> nestedLoop = Txn.calculateRead(dsg, ()->exec(qs, false));
+        List<Binding> mergeJoin = Txn.calculateRead(dsg, ()->exec(qs, true));
+        assertEquals(emptyResults, nestedLoop.isEmpty());
+        assertEquals(nestedLoop.size(), mergeJoin.size());
+        assertEquals(counts(nestedLoop), counts(mergeJoin));
+        if ( ! emptyResults )
+            assertFalse(mergeJoin.isEmpty());
+    }
+
+    private static Map<Binding, Integer> counts(List<Binding> bindings) {
+        Map<Binding, Integer> counts = new HashMap<>();
+        bindings.forEach(b->counts.merge(b, 1, Integer::sum));
+        return counts;
+    }
+
+    private static List<Binding> exec(String queryString, boolean mergeJoin) {
+        Query query = QueryFactory.create(queryString);
+        QueryExec qExec = QueryExec.dataset(dsg).query(query)
+                .set(SystemTDB.symMergeJoin, mergeJoin)
+                .build();
+        return Iter.toList(qExec.select());
+    }
+}
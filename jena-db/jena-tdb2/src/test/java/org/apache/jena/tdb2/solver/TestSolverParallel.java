@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.*;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Parallel basic graph pattern evaluation gives the same results, in the same order, as serial evaluation. */
+public class TestSolverParallel {
+    static DatasetGraph dsg = null;
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        Node p = NodeFactory.createURI("http://example/p");
+        Node q = NodeFactory.createURI("http://example/q");
+        Node r = NodeFactory.createURI("http://example/r");
+        Node g1 = NodeFactory.createURI("http://example/g1");
+        Node g2 = NodeFactory.createURI("http://example/g2");
+        Txn.executeWrite(dsg, ()->{
+            Graph graph = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < 500 ; i++ ) {
+                Node s = NodeFactory.createURI("http://example/s"+i);
+                for ( int j = 0 ; j < 5 ; j++ ) {
+                    Node o = NodeFactory.createURI("http://example/o"+((i+j)%100));
+                    graph.add(s, p, o);
+                    dsg.add(j%2 == 0 ? g1 : g2, s, p, o);
+                }
+                graph.add(s, q, NodeFactory.createLiteral("v"+(i%7)));
+                // Values of different kinds of NodeId: inline and in the node table.
+                Node v = ( i%3 == 0 ) ? NodeFactory.createLiteral(Integer.toString(i), XSDDatatype.XSDinteger)
+                       : ( i%3 == 1 ) ? NodeFactory.createURI("http://example/o"+(i%100))
+                       : NodeFactory.createLiteral("r"+i);
+                graph.add(s, r, v);
+            }
+            for ( int i = 0 ; i < 100 ; i++ ) {
+                Node o = NodeFactory.createURI("http://example/o"+i);
+                graph.add(o, q, NodeFactory.createLiteral("w"+i));
+            }
+        });
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    @Test public void parallel_bgp_01() {
+        test("SELECT * { ?s :p ?o . ?o :q ?v }");
+    }
+
+    @Test public void parallel_bgp_02() {
+        test("SELECT * { ?s :p ?o . ?s :q ?v . ?x :p ?o }");
+    }
+
+    @Test public void parallel_bgp_03() {
+        // Shared variable, repeated in one pattern.
+        test("SELECT * { ?s :p ?o . ?x :p ?o . ?x :p ?o }");
+    }
+
+    @Test public void parallel_bgp_04() {
+        // Constant with no match.
+        test("SELECT * { ?s :p ?o . ?o :q :notPresent }");
+    }
+
+    @Test public void parallel_bgp_05() {
+        test("SELECT * { GRAPH ?g { ?s :p ?o } . ?o :q ?v }");
+    }
+
+    @Test public void parallel_bgp_06() {
+        // Union graph: duplicate triples are removed in each stage.
+        test("SELECT * { GRAPH <urn:x-arq:UnionGraph> { ?s :p ?o . ?x :p ?o } }");
+    }
+
+    @Test public void parallel_bgp_07() {
+        // Input from an earlier operator.
+        test("SELECT * { VALUES ?v { 'v1' 'v3' } ?s :q ?v . ?s :p ?o . ?o :q ?w }");
+    }
+
+    @Test public void parallel_bgp_08() {
+        // Leading range scan over values of different kinds.
+        test("SELECT * { ?s :r ?v . ?s :q ?w }");
+    }
+
+    @Test public void parallel_bgp_09() {
+        // Leading scan of everything.
+        test("SELECT * { ?s ?p ?o . ?o :q ?w }");
+    }
+
+    @Test public void parallel_bgp_10() {
+        // Union graph, leading scan of everything.
+        test("SELECT * { GRAPH <urn:x-arq:UnionGraph> { ?s ?p ?o } }");
+    }
+
+    @Test public void parallel_bgp_write_txn() {
+        // Write transactions run serially.
+        String qs = PREFIX+"SELECT * { ?s :p ?o . ?o :q ?v }";
+        List<Binding> serial = Txn.calculateWrite(dsg, ()->exec(qs, false, 10));
+        List<Binding> parallel = Txn.calculateWrite(dsg, ()->exec(qs, true, 10));
+        assertEquals(serial, parallel);
+    }
+
+    private static void test(String queryString) {
+        String qs = PREFIX+queryString;
+        List<Binding> serial = Txn.calculateRead(dsg, ()->exec(qs, false, 0));
+        for ( int batchSize : new int[] {1, 7, 100, SystemTDB.ParallelBGPBatchSize} ) {
+            List<Binding> parallel = Txn.calculateRead(dsg, ()->exec(qs, true, batchSize));
+            assertEquals("Batch size = "+batchSize, serial, parallel);
+        }
+        if ( ! queryString.contains(":notPresent") )
+            assertFalse(serial.isEmpty());
+    }
+
+    private static List<Binding> exec(String queryString, boolean parallel, int batchSize) {
+        Query query = QueryFactory.create(queryString);
+        QueryExec qExec = QueryExec.dataset(dsg).query(query)
+                .set(SystemTDB.symParallelBGP, parallel)
+                .set(SystemTDB.symParallelBGPBatchSize, batchSize)
+                .build();
+        return Iter.toList(qExec.select());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * ORDER BY ?x LIMIT N on a single pattern, which reads the index in order of ?x
+ * where it can, gives the same results as sorting.
+ */
+public class TestSolverTopN {
+    static DatasetGraph dsg = null;
+    static DatasetGraph dsgMem = null;
+
+    private static final String PREFIX = "PREFIX : <http://example/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> ";
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        dsgMem = DatasetGraphFactory.create();
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 300 ; i++ ) {
+                Node s = SSE.parseNode("<http://example/s"+i+">");
+                // Integers, including negative ones, and some values in other types.
+                add(Quad.defaultGraphIRI, s, ":n", Integer.toString((i*37)%301-150));
+                if ( i%10 == 0 )
+                    add(Quad.defaultGraphIRI, s, ":n", "'"+(i%7)+"'^^xsd:int");
+                if ( i%25 == 0 )
+                    add(Quad.defaultGraphIRI, s, ":n", (i%50)+".5");
+                if ( i%30 == 0 )
+                    add(Quad.defaultGraphIRI, s, ":n", "'12345678901234567890123'^^xsd:integer");
+                if ( i%40 == 0 )
+                    add(Quad.defaultGraphIRI, s, ":n", "'x"+i+"'");
+                // Dates and times, in several timezones.
+                String tz = ( i%3 == 0 ) ? "Z" : ( i%3 == 1 ) ? "+05:00" : "-08:00";
+                String dt = String.format("'20%02d-%02d-%02dT%02d:00:00%s'^^xsd:dateTime", 10+i%12, 1+i%12, 1+i%28, i%24, tz);
+                add(Quad.defaultGraphIRI, s, ":date", dt);
+                add(SSE.parseNode(":g"+(i%2)), s, ":date", dt);
+                if ( i%50 == 0 )
+                    add(Quad.defaultGraphIRI, s, ":date", String.format("'20%02d-06-01T12:00:00'^^xsd:dateTime", 10+i%12));
+            }
+        });
+    }
+
+    private static void add(Node g, Node s, String p, String o) {
+        Node pn = SSE.parseNode(p);
+        Node on = SSE.parseNode(o);
+        dsg.add(g, s, pn, on);
+        dsgMem.add(g, s, pn, on);
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    @Test public void topN_01() {
+        test("SELECT * { ?s :n ?x } ORDER BY ?x LIMIT 10", "x");
+    }
+
+    @Test public void topN_02() {
+        test("SELECT * { ?s :n ?x } ORDER BY DESC(?x) LIMIT 10", "x");
+    }
+
+    @Test public void topN_03() {
+        test("SELECT * { ?s :date ?d } ORDER BY DESC(?d) LIMIT 20", "d");
+    }
+
+    @Test public void topN_04() {
+        test("SELECT * { ?s :date ?d } ORDER BY ?d LIMIT 20", "d");
+    }
+
+    @Test public void topN_05() {
+        test("SELECT ?d { ?s :date ?d } ORDER BY DESC(?d) LIMIT 5 OFFSET 3", "d");
+    }
+
+    @Test public void topN_06() {
+        test("SELECT * { GRAPH :g1 { ?s :date ?d } } ORDER BY DESC(?d) LIMIT 7", "d");
+    }
+
+    @Test public void topN_07() {
+        test("SELECT * { GRAPH ?g { ?s :date ?d } } ORDER BY ?d LIMIT 7", "d");
+    }
+
+    @Test public void topN_08() {
+        test("SELECT * { <http://example/s10> :n ?x } ORDER BY DESC(?x) LIMIT 2", "x");
+    }
+
+    @Test public void topN_09() {
+        // More than the number of rows.
+        test("SELECT * { <http://example/s0> ?p ?x } ORDER BY ?x LIMIT 50", "x");
+    }
+
+    @Test public void topN_10() {
+        // Not on the object.
+        test("SELECT * { ?s :n ?x } ORDER BY DESC(?s) LIMIT 5", "s");
+    }
+
+    @Test public void topN_11() {
+        test("SELECT * { ?s :noSuchProperty ?x } ORDER BY ?x LIMIT 5", null);
+    }
+
+    /** Compare the values of the sort variable, in order; other variables may differ for ties. */
+    private static void test(String queryString, String sortVar) {
+        Query query = QueryFactory.create(PREFIX+queryString);
+        List<Binding> expected = Iter.toList(QueryExec.dataset(dsgMem).query(query).build().select());
+        List<Binding> actual = Txn.calculateRead(dsg, ()->Iter.toList(QueryExec.dataset(dsg).query(query).build().select()));
+        assertEquals(expected.size(), actual.size());
+        if ( sortVar == null ) {
+            assertEquals(0, actual.size());
+            return;
+        }
+        assertFalse(actual.isEmpty());
+        assertEquals(values(expected, sortVar), values(actual, sortVar));
+    }
+
+    private static List<Node> values(List<Binding> bindings, String varName) {
+        Var v = Var.alloc(varName);
+        List<Node> values = new ArrayList<>();
+        bindings.forEach(b->values.add(b.get(v)));
+        return values;
+    }
+}
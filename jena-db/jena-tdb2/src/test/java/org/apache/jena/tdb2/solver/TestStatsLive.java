@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.params.StoreParamsBuilder;
+import org.apache.jena.tdb2.solver.stats.ReorderLiveStats;
+import org.apache.jena.tdb2.solver.stats.StatsLive;
+import org.apache.jena.tdb2.solver.stats.StatsLiveCounts;
+import org.apache.jena.tdb2.solver.stats.StatsLiveCounts.PredicateSet;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.TDB2StorageBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Statistics maintained at commit, and the reorder using them. */
+public class TestStatsLive {
+    private static StoreParams params = StoreParamsBuilder.create().liveStats(true).build();
+    private DatasetGraphTDB dsg;
+    private StatsLive stats;
+
+    @Before public void before() {
+        dsg = TDB2StorageBuilder.build(Location.mem(), params);
+        stats = dsg.getLiveStats();
+    }
+
+    @After public void after() {
+        dsg.shutdown();
+    }
+
+    private static void load(DatasetGraphTDB dsg) {
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 50 ; i++ ) {
+                Node s = SSE.parseNode("<http://example/s"+i+">");
+                dsg.add(Quad.defaultGraphIRI, s, node(":p"), SSE.parseNode(Integer.toString(i%7)));
+                dsg.add(Quad.defaultGraphIRI, s, node(":date"), SSE.parseNode("'20"+(10+i%5)+"-01-01T00:00:00Z'^^xsd:dateTime"));
+                dsg.add(Quad.defaultGraphIRI, s, node("rdf:type"), node( i%10 == 0 ? ":Rare" : ":Common"));
+                if ( i%2 == 0 )
+                    dsg.add(Quad.defaultGraphIRI, s, node(":q"), SSE.parseNode("'v"+i+"'"));
+                // Named graphs, including the same triple in two graphs.
+                if ( i%3 == 0 ) {
+                    dsg.add(node(":g1"), s, node(":p"), SSE.parseNode(Integer.toString(i%7)));
+                    dsg.add(node(":g2"), s, node(":p"), SSE.parseNode(Integer.toString(i%7)));
+                    dsg.add(node(":g2"), s, node(":r"), node(":o"));
+                }
+            }
+        });
+    }
+
+    private static Node node(String str) {
+        return SSE.parseNode(str);
+    }
+
+    private NodeId nodeId(String str) {
+        return Txn.calculateRead(dsg, ()->dsg.getTripleTable().getNodeTupleTable().getNodeTable().getNodeIdForNode(node(str)));
+    }
+
+    private void assertSameAsRebuild() {
+        StatsLiveCounts incremental = stats.get();
+        Txn.executeWrite(dsg, ()->stats.rebuild());
+        StatsLiveCounts rebuilt = stats.get();
+        assertNotSame(incremental, rebuilt);
+        assertTrue("Incremental: "+incremental+"\nRebuilt:     "+rebuilt, incremental.sameCounts(rebuilt));
+    }
+
+    @Test public void stats_empty() {
+        assertNotNull(stats);
+        assertEquals(0, stats.get().getTriples());
+        assertTrue(dsg.getReorderTransform() instanceof ReorderLiveStats);
+    }
+
+    @Test public void stats_add() {
+        load(dsg);
+        StatsLiveCounts counts = stats.get();
+        // 50*3 + 25 + 17*3
+        assertEquals(226, counts.getTriples());
+        assertEquals(50, counts.getSubjects());
+        NodeId p = nodeId(":p");
+        assertEquals(50+17*2, counts.getPredicateCount(p));
+        assertEquals(50, counts.getPredicateSubjects(p));
+        assertEquals(7, counts.getPredicateObjects(p));
+        NodeId type = nodeId("rdf:type");
+        assertEquals(5, counts.getObjectCount(type, nodeId(":Rare")));
+        assertEquals(45, counts.getObjectCount(type, nodeId(":Common")));
+        assertSameAsRebuild();
+    }
+
+    @Test public void stats_add_duplicates() {
+        load(dsg);
+        StatsLiveCounts counts1 = stats.get();
+        load(dsg);
+        StatsLiveCounts counts2 = stats.get();
+        assertTrue(counts1.sameCounts(counts2));
+    }
+
+    @Test public void stats_delete() {
+        load(dsg);
+        Txn.executeWrite(dsg, ()->{
+            dsg.delete(Quad.defaultGraphIRI, node(":s0"), node(":p"), node("0"));
+            dsg.deleteAny(Quad.defaultGraphIRI, node("<http://example/s1>"), Node.ANY, Node.ANY);
+            dsg.deleteAny(Quad.defaultGraphIRI, Node.ANY, node(":q"), Node.ANY);
+            dsg.deleteAny(node(":g2"), Node.ANY, Node.ANY, Node.ANY);
+            // Not present.
+            dsg.delete(Quad.defaultGraphIRI, node(":s0"), node(":p"), node(":noSuchNode"));
+        });
+        assertFalse(stats.get().hasPredicate(nodeId(":q")));
+        assertSameAsRebuild();
+    }
+
+    @Test public void stats_clear() {
+        load(dsg);
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().clear());
+        assertEquals(17*3, stats.get().getTriples());
+        assertSameAsRebuild();
+    }
+
+    @Test public void stats_abort() {
+        load(dsg);
+        StatsLiveCounts counts = stats.get();
+        dsg.begin(org.apache.jena.query.TxnType.WRITE);
+        dsg.add(Quad.defaultGraphIRI, node(":x"), node(":p"), node(":y"));
+        dsg.abort();
+        dsg.end();
+        assertSame(counts, stats.get());
+        assertSameAsRebuild();
+    }
+
+    @Test public void stats_star() {
+        load(dsg);
+        StatsLiveCounts counts = stats.get();
+        NodeId p = nodeId(":p");
+        NodeId q = nodeId(":q");
+        NodeId r = nodeId(":r");
+        assertEquals(50, counts.getStarSubjects(PredicateSet.create(Arrays.asList(p))));
+        assertEquals(25, counts.getStarSubjects(PredicateSet.create(Arrays.asList(p, q))));
+        // i%2 == 0 and i%3 == 0
+        assertEquals(9, counts.getStarSubjects(PredicateSet.create(Arrays.asList(q, r))));
+    }
+
+    @Test public void stats_object_counts() {
+        load(dsg);
+        StatsLiveCounts counts = stats.get();
+        NodeId date = nodeId(":date");
+        NodeId d = nodeId("'2012-01-01T00:00:00Z'^^xsd:dateTime");
+        assertEquals(10, counts.getObjectCount(date, d));
+        assertEquals(10, counts.estimateObject(date, d), 0.0001);
+    }
+
+    @Test public void stats_histogram() {
+        // Too many distinct objects for per-object counts.
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 2200 ; i++ )
+                dsg.add(Quad.defaultGraphIRI, node("<http://example/s"+i+">"), node(":n"), node(Integer.toString(i%1100)));
+        });
+        StatsLiveCounts counts = stats.get();
+        NodeId n = nodeId(":n");
+        assertEquals(-1, counts.getObjectCount(n, NodeId.inline(node("600"))));
+        // Bucket 512-1023, each value twice.
+        assertEquals(2, counts.estimateObject(n, NodeId.inline(node("600"))), 0.0001);
+        // No values in the bucket.
+        assertEquals(0, counts.estimateObject(n, NodeId.inline(node("5000"))), 0.0001);
+        assertEquals(0, counts.estimateObject(n, NodeId.inline(node("-1"))), 0.0001);
+        assertSameAsRebuild();
+    }
+
+    @Test public void stats_persist() {
+        Location location = Location.create(ConfigTest.getCleanDir());
+        DatasetGraphTDB dsg1 = TDB2StorageBuilder.build(location, params);
+        load(dsg1);
+        StatsLiveCounts counts1 = dsg1.getLiveStats().get();
+        dsg1.shutdown();
+
+        DatasetGraphTDB dsg2 = TDB2StorageBuilder.build(location, params);
+        StatsLiveCounts counts2 = dsg2.getLiveStats().get();
+        assertNotSame(counts1, counts2);
+        assertTrue(counts1.sameCounts(counts2));
+        dsg2.shutdown();
+
+        // Disabled: no statistics, and they are calculated when enabled again.
+        StoreParams params0 = StoreParamsBuilder.create().liveStats(false).build();
+        DatasetGraphTDB dsg3 = TDB2StorageBuilder.build(location, params0);
+        assertNull(dsg3.getLiveStats());
+        Txn.executeWrite(dsg3, ()->dsg3.add(Quad.defaultGraphIRI, node(":x"), node(":p"), node(":y")));
+        dsg3.shutdown();
+
+        DatasetGraphTDB dsg4 = TDB2StorageBuilder.build(location, params);
+        assertEquals(counts1.getTriples()+1, dsg4.getLiveStats().get().getTriples());
+        dsg4.shutdown();
+    }
+
+    @Test public void reorder_selective_first() {
+        load(dsg);
+        BasicPattern bgp = bgp("(bgp (?x :p ?v) (?x :q ?w) (?x rdf:type :Rare))");
+        BasicPattern bgp2 = Txn.calculateRead(dsg, ()->dsg.getReorderTransform().reorder(bgp));
+        assertEquals(bgp.get(2), bgp2.get(0));
+    }
+
+    @Test public void reorder_no_match_first() {
+        load(dsg);
+        BasicPattern bgp = bgp("(bgp (?x :p ?v) (?x :date ?d) (?x :q :noSuchNode))");
+        BasicPattern bgp2 = Txn.calculateRead(dsg, ()->dsg.getReorderTransform().reorder(bgp));
+        assertEquals(bgp.get(2), bgp2.get(0));
+    }
+
+    @Test public void reorder_connected() {
+        load(dsg);
+        // Prefer a pattern connected to those already chosen, even with a higher estimate.
+        BasicPattern bgp = bgp("(bgp (?y rdf:type :Rare) (?z :p ?v) (:s0 :p ?v))");
+        BasicPattern bgp2 = Txn.calculateRead(dsg, ()->dsg.getReorderTransform().reorder(bgp));
+        assertEquals(bgp.get(2), bgp2.get(0));
+        assertEquals(bgp.get(1), bgp2.get(1));
+        assertEquals(bgp.get(0), bgp2.get(2));
+    }
+
+    @Test public void merge_join_large() {
+        load(dsg);
+        ReorderLiveStats reorder = new ReorderLiveStats(stats, dsg.getTripleTable().getNodeTupleTable().getNodeTable(), null);
+        BasicPattern bgp = bgp("(bgp (?x :p ?v) (?x :date ?d))");
+        assertTrue(Txn.calculateRead(dsg, ()->reorder.preferMergeJoin(bgp.getList())));
+    }
+
+    @Test public void merge_join_selective_first() {
+        load(dsg);
+        ReorderLiveStats reorder = new ReorderLiveStats(stats, dsg.getTripleTable().getNodeTupleTable().getNodeTable(), null);
+        BasicPattern bgp = bgp("(bgp (?x rdf:type :Rare) (?x :p ?v))");
+        assertFalse(Txn.calculateRead(dsg, ()->reorder.preferMergeJoin(bgp.getList())));
+    }
+
+    private static BasicPattern bgp(String str) {
+        BasicPattern bgp = SSE.parseBGP(str);
+        BasicPattern x = new BasicPattern();
+        for ( Triple t : bgp )
+            x.add(t);
+        return x;
+    }
+}
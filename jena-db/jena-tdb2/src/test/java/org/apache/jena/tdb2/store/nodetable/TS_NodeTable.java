@@ -27,6 +27,9 @@ import org.junit.runners.Suite;
     , TestNodeTableStoredBase.class
     , TestNodeTableStored.class
     , TestNodeTable.class
+    , TestNodeTableOffHeap.class
+    , TestNodeTableCompressed.class
+    , TestOffHeapByteCache.class
 })
 public class TS_NodeTable
 {
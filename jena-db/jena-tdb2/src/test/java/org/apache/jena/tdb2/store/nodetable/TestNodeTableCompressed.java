@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.jena.dboe.base.file.BinaryDataFileMem;
+import org.apache.jena.dboe.base.file.FileSet;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.Index;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.junit.BuildTestLib;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.params.StoreParamsBuilder;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.sys.StoreConnection;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Test;
+
+public class TestNodeTableCompressed extends AbstractTestNodeTable
+{
+    private static StoreParams params =
+        StoreParamsBuilder.create()
+            .nodeId2NodeCacheSize(-1)
+            .node2NodeIdCacheSize(-1)
+            .nodeMissCacheSize(-1)
+            .nodeTableFormat(NodeTableFormat.compressed)
+            .build();
+
+    // Databases: default cache sizes.
+    private static StoreParams dbParams =
+        StoreParamsBuilder.create()
+            .nodeTableFormat(NodeTableFormat.compressed)
+            .build();
+
+    @Override
+    protected NodeTable createEmptyNodeTable()
+    {
+        // No cache, no inlining.
+        return BuildTestLib.makeNodeTableBase(Location.mem(), "test", params);
+    }
+
+    private static Index index() {
+        RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId);
+        return BuildTestLib.buildRangeIndex(new FileSet(Location.mem(), "test"), recordFactory, params);
+    }
+
+    private static List<Node> nodes() {
+        List<Node> nodes = new ArrayList<>();
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            nodes.add(NodeFactory.createURI("http://example.org/some/long/namespace/resource/"+i));
+            nodes.add(NodeFactory.createURI("http://example.org/vocab#property"+i));
+        }
+        nodes.add(NodeFactory.createURI("http://example.org/some/long/namespace/resource/"));
+        nodes.add(NodeFactory.createURI("urn:x:1"));
+        nodes.add(NodeFactory.createLiteral("long literal ".repeat(50)));
+        nodes.add(NodeFactory.createLiteral("long literal with language tag ".repeat(20), "en"));
+        return nodes;
+    }
+
+    private static List<NodeId> write(NodeTable nt, List<Node> nodes) {
+        List<NodeId> ids = new ArrayList<>();
+        nodes.forEach(n->ids.add(nt.getAllocateNodeId(n)));
+        return ids;
+    }
+
+    private static void check(NodeTable nt, List<Node> nodes, List<NodeId> ids) {
+        for ( int i = 0 ; i < nodes.size() ; i++ ) {
+            assertEquals(nodes.get(i), nt.getNodeForNodeId(ids.get(i)));
+            assertEquals(ids.get(i), nt.getNodeIdForNode(nodes.get(i)));
+        }
+    }
+
+    @Test public void nodetable_compressed_01() {
+        List<Node> nodes = nodes();
+        BinaryDataFile bdf1 = new BinaryDataFileMem();
+        NodeTable nt1 = new NodeTableCompressed(index(), bdf1);
+        check(nt1, nodes, write(nt1, nodes));
+
+        BinaryDataFile bdf2 = new BinaryDataFileMem();
+        NodeTable nt2 = new NodeTableTRDF(index(), bdf2);
+        write(nt2, nodes);
+        assertTrue("Compressed: "+bdf1.length()+" Thrift: "+bdf2.length(), bdf1.length() < bdf2.length()/2);
+    }
+
+    @Test public void nodetable_compressed_02() {
+        // Namespaces read from the data file by a new node table.
+        List<Node> nodes = nodes();
+        Index index = index();
+        BinaryDataFile bdf = new BinaryDataFileMem();
+        NodeTable nt1 = new NodeTableCompressed(index, bdf);
+        List<NodeId> ids = write(nt1, nodes);
+        NodeTable nt2 = new NodeTableCompressed(index, bdf);
+        check(nt2, nodes, ids);
+        // New nodes in existing namespaces.
+        List<Node> nodes2 = List.of(NodeFactory.createURI("http://example.org/vocab#other"),
+                                    NodeFactory.createURI("http://example.org/some/long/namespace/resource/other"));
+        check(nt2, nodes2, write(nt2, nodes2));
+    }
+
+    @Test public void nodetable_compressed_03() {
+        // Incompressible long literal.
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(1234);
+        for ( int i = 0 ; i < 500 ; i++ )
+            sb.appendCodePoint(0x4E00 + random.nextInt(0x5000));
+        testNode(NodeFactory.createLiteral(sb.toString()));
+    }
+
+    @Test public void nodetable_compressed_04() {
+        // Namespaces found again after they have left the cache.
+        int cacheSize = NodeTableCompressed.NamespaceCacheSize;
+        NodeTableCompressed.NamespaceCacheSize = 2;
+        try {
+            List<Node> nodes = nodes();
+            Index index = index();
+            BinaryDataFile bdf = new BinaryDataFileMem();
+            NodeTable nt1 = new NodeTableCompressed(index, bdf);
+            List<NodeId> ids = write(nt1, nodes);
+            for ( int i = 0 ; i < 10 ; i++ )
+                nt1.getAllocateNodeId(NodeFactory.createURI("http://example.org/other/namespace/"+i+"/x"));
+
+            List<Node> nodes2 = List.of(NodeFactory.createURI("http://example.org/vocab#other"),
+                                        NodeFactory.createURI("http://example.org/some/long/namespace/resource/other"));
+            long length = bdf.length();
+            List<NodeId> ids2 = write(nt1, nodes2);
+            assertTrue(bdf.length()-length <= maxGrowth(nodes2));
+            check(nt1, nodes, ids);
+            check(nt1, nodes2, ids2);
+            // Namespace entries are not nodes.
+            assertEquals((long)(nodes.size()+10+nodes2.size()), Iter.count(nt1.all()));
+        } finally {
+            NodeTableCompressed.NamespaceCacheSize = cacheSize;
+        }
+    }
+
+    // The most an IRI entry can take without writing its namespace:
+    // 4 byte length, tag, 3 byte varint, local part.
+    private static long maxGrowth(List<Node> iris) {
+        long x = 0;
+        for ( Node n : iris ) {
+            String iri = n.getURI();
+            int idx = Math.max(iri.lastIndexOf('/'), iri.lastIndexOf('#')) + 1;
+            x += 8 + iri.substring(idx).getBytes(UTF_8).length;
+        }
+        return x;
+    }
+
+    @Test public void nodetable_compressed_db_01() {
+        // Abort, then reuse the namespace.
+        DatasetGraph dsg = StoreConnection.connectCreate(Location.mem(), dbParams).getDatasetGraph();
+        Triple t1 = SSE.parseTriple("(<http://example.org/namespace/s1> <http://example.org/namespace/p> 1)");
+        Triple t2 = SSE.parseTriple("(<http://example.org/namespace/s2> <http://example.org/namespace/p> 2)");
+        dsg.begin(TxnType.WRITE);
+        dsg.getDefaultGraph().add(t1);
+        dsg.abort();
+        dsg.end();
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().add(t2));
+        Txn.executeRead(dsg, ()->{
+            assertEquals(1, dsg.getDefaultGraph().size());
+            assertTrue(dsg.getDefaultGraph().contains(t2));
+        });
+    }
+
+    @Test public void nodetable_compressed_db_02() {
+        // On disk, across restarts.
+        String dir = ConfigTest.getCleanDir();
+        Location loc = Location.create(dir);
+        TDBInternal.reset();
+        FileOps.clearAll(dir);
+        Triple t1 = SSE.parseTriple("(<http://example.org/namespace/s1> <http://example.org/namespace/p> 'abc')");
+        Triple t2 = SSE.parseTriple("(<http://example.org/namespace/s2> <http://example.org/namespace/p> 'def')");
+        try {
+            DatasetGraph dsg1 = StoreConnection.connectCreate(loc, dbParams).getDatasetGraph();
+            Txn.executeWrite(dsg1, ()->dsg1.getDefaultGraph().add(t1));
+            StoreConnection.internalExpel(loc, true);
+
+            DatasetGraph dsg2 = StoreConnection.connectCreate(loc).getDatasetGraph();
+            Txn.executeWrite(dsg2, ()->dsg2.getDefaultGraph().add(t2));
+            Txn.executeRead(dsg2, ()->{
+                assertEquals(2, dsg2.getDefaultGraph().size());
+                assertTrue(dsg2.getDefaultGraph().contains(t1));
+                assertTrue(dsg2.getDefaultGraph().contains(t2));
+            });
+        } finally {
+            StoreConnection.internalExpel(loc, true);
+        }
+    }
+
+    @Test public void nodetable_compressed_db_03() {
+        // After a restart, the data file does not grow for namespaces it already has.
+        String dir = ConfigTest.getCleanDir();
+        Location loc = Location.create(dir);
+        TDBInternal.reset();
+        FileOps.clearAll(dir);
+        Node p = NodeFactory.createURI("http://example.org/namespace/p");
+        try {
+            DatasetGraph dsg1 = StoreConnection.connectCreate(loc, dbParams).getDatasetGraph();
+            Txn.executeWrite(dsg1, ()->{
+                for ( int i = 0 ; i < 10 ; i++ )
+                    dsg1.getDefaultGraph().add(NodeFactory.createURI("http://example.org/data/s"+i), p,
+                                               NodeFactory.createURI("http://example.org/vocab#o"+i));
+            });
+            StoreConnection.internalExpel(loc, true);
+
+            DatasetGraphTDB dsg2 = StoreConnection.connectCreate(loc).getDatasetGraphTDB();
+            NodeTableCompressed nodeTable =
+                (NodeTableCompressed)dsg2.getTripleTable().getNodeTupleTable().getNodeTable().baseNodeTable();
+            long length = Txn.calculateRead(dsg2, ()->nodeTable.getData().length());
+            List<Node> iris = List.of(NodeFactory.createURI("http://example.org/data/s100"),
+                                      NodeFactory.createURI("http://example.org/vocab#o100"));
+            Txn.executeWrite(dsg2, ()->dsg2.getDefaultGraph().add(iris.get(0), p, iris.get(1)));
+            long growth = Txn.calculateRead(dsg2, ()->nodeTable.getData().length()) - length;
+            assertTrue(growth <= maxGrowth(iris));
+            Txn.executeRead(dsg2, ()->{
+                assertEquals(11, dsg2.getDefaultGraph().size());
+                assertTrue(dsg2.getDefaultGraph().contains(iris.get(0), p, iris.get(1)));
+            });
+        } finally {
+            StoreConnection.internalExpel(loc, true);
+        }
+    }
+}
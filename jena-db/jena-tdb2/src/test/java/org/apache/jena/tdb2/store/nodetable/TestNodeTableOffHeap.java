@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.tdb2.junit.BuildTestLib;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.params.StoreParamsBuilder;
+import org.apache.jena.tdb2.store.NodeId;
+import org.junit.Test;
+
+public class TestNodeTableOffHeap extends AbstractTestNodeTable
+{
+    @Override
+    protected NodeTable createEmptyNodeTable()
+    {
+        // Tiny on-heap caches so the off-heap level is used.
+        StoreParams params =
+            StoreParamsBuilder.create()
+                .nodeId2NodeCacheSize(2)
+                .node2NodeIdCacheSize(2)
+                .nodeMissCacheSize(10)
+                .nodeCacheOffHeapSize(1024*1024)
+                .build();
+        return BuildTestLib.makeNodeTable(Location.mem(), "test", params);
+    }
+
+    @Test public void nodetable_offheap_01() {
+        NodeTable nt = createEmptyNodeTable();
+        List<Node> nodes = new ArrayList<>();
+        List<NodeId> ids = new ArrayList<>();
+        for ( int i = 0 ; i < 500 ; i++ ) {
+            Node n = ( i % 2 == 0 )
+                ? NodeFactory.createURI("http://example/node/"+i)
+                : NodeFactory.createLiteral("literal "+i, "en");
+            nodes.add(n);
+            ids.add(nt.getAllocateNodeId(n));
+        }
+        for ( int j = 0 ; j < 2 ; j++ ) {
+            for ( int i = 0 ; i < nodes.size() ; i++ ) {
+                assertEquals(nodes.get(i), nt.getNodeForNodeId(ids.get(i)));
+                assertEquals(ids.get(i), nt.getNodeIdForNode(nodes.get(i)));
+            }
+        }
+    }
+}
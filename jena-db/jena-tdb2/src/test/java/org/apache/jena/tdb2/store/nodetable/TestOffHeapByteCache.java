@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.junit.Test;
+
+public class TestOffHeapByteCache
+{
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test public void offheap_01() {
+        OffHeapByteCache cache = new OffHeapByteCache(64*1024);
+        assertNull(cache.get(bytes("k")));
+        cache.put(bytes("k"), bytes("value"));
+        assertArrayEquals(bytes("value"), cache.get(bytes("k")));
+    }
+
+    @Test public void offheap_02() {
+        OffHeapByteCache cache = new OffHeapByteCache(64*1024);
+        cache.put(bytes("k"), bytes("value1"));
+        cache.put(bytes("k"), bytes("value2"));
+        assertArrayEquals(bytes("value2"), cache.get(bytes("k")));
+        cache.remove(bytes("k"));
+        assertNull(cache.get(bytes("k")));
+    }
+
+    @Test public void offheap_03() {
+        // Wrap round the log many times.
+        OffHeapByteCache cache = new OffHeapByteCache(16*1024);
+        int N = 10_000;
+        for ( int i = 0 ; i < N ; i++ )
+            cache.put(bytes("key"+i), bytes("value"+i));
+        // Oldest entries have gone.
+        assertNull(cache.get(bytes("key0")));
+        // Entries are either absent or correct.
+        int found = 0;
+        for ( int i = 0 ; i < N ; i++ ) {
+            byte[] v = cache.get(bytes("key"+i));
+            if ( v != null ) {
+                found++;
+                assertArrayEquals(bytes("value"+i), v);
+            }
+        }
+        assertTrue(found > 0);
+        assertArrayEquals(bytes("value"+(N-1)), cache.get(bytes("key"+(N-1))));
+    }
+
+    @Test public void offheap_04() {
+        OffHeapByteCache cache = new OffHeapByteCache(64*1024);
+        cache.put(bytes("k"), bytes("value"));
+        cache.clear();
+        assertNull(cache.get(bytes("k")));
+    }
+
+    @Test public void offheap_tier_01() {
+        // A drop handler is ignored and entries still move to the off-heap cache.
+        Cache<String, String> heap = CacheFactory.createClockCache(2);
+        Cache<String, String> cache = new CacheOffHeapTier<>(heap, new OffHeapByteCache(64*1024),
+                                                             TestOffHeapByteCache::bytes,
+                                                             TestOffHeapByteCache::bytes,
+                                                             b -> new String(b, StandardCharsets.UTF_8));
+        AtomicBoolean called = new AtomicBoolean(false);
+        cache.setDropHandler((k,v) -> called.set(true));
+        for ( int i = 0 ; i < 100 ; i++ )
+            cache.put("key"+i, "value"+i);
+        for ( int i = 0 ; i < 100 ; i++ )
+            assertEquals("value"+i, cache.getIfPresent("key"+i));
+        assertFalse(called.get());
+    }
+}
@@ -26,6 +26,8 @@ import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.base.Sys;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.sys.IO_DB;
+import org.apache.jena.dboe.transaction.txn.Durability;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.riot.RDFDataMgr;
@@ -36,8 +38,13 @@ import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.ConfigTest;
 import org.apache.jena.tdb2.DatabaseMgr;
 import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.params.StoreParamsBuilder;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableCompressed;
+import org.apache.jena.tdb2.store.nodetable.NodeTableFormat;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -254,6 +261,110 @@ public class TestDatabaseOps
         Txn.executeRead(dsg2, ()->assertTrue(dsg2.contains(quad2)) );
     }
 
+    @Test public void compact_incremental_1() {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        DatasetGraph dsg1 = ((DatasetGraphSwitchable)dsg).get();
+
+        Txn.executeWrite(dsg, ()-> {
+            dsg.add(quad2);
+            dsg.add(quad1);
+        });
+        Txn.executeWrite(dsg, ()->dsg.delete(quad2));
+
+        IncrementalCompaction compaction = new IncrementalCompaction(dsg, 0);
+        compaction.run();
+        assertTrue(compaction.isFinished());
+        assertTrue(compaction.getBlocksScanned() > 0);
+        assertTrue(compaction.getBlocksReclaimed() > 0);
+        assertEquals(compaction.getBlocksReclaimed()*((DatasetGraphTDB)dsg1).getStoreParams().getBlockSize(),
+                     compaction.getBytesReclaimed());
+
+        // Same database, blocks reused.
+        Txn.executeWrite(dsg, ()->dsg.add(quad2));
+        assertSame(dsg1, ((DatasetGraphSwitchable)dsg).get());
+        Txn.executeRead(dsg, ()-> {
+            assertTrue(dsg.contains(quad1));
+            assertTrue(dsg.contains(quad2));
+        });
+    }
+
+    @Test public void compact_node_table_format_1() {
+        StoreParams params = StoreParamsBuilder.create().nodeTableFormat(NodeTableFormat.compressed).build();
+        DatasetGraph dsg = DatabaseConnection.connectCreate(dir, params).getDatasetGraph();
+        assertTrue(baseNodeTable(dsg) instanceof NodeTableCompressed);
+        Txn.executeWrite(dsg, ()-> {
+            dsg.add(quad1);
+            dsg.add(quad2);
+        });
+
+        DatabaseMgr.compact(dsg, false);
+        assertEquals(NodeTableFormat.compressed, ((DatasetGraphTDB)((DatasetGraphSwitchable)dsg).get()).getStoreParams().getNodeTableFormat());
+        assertTrue(baseNodeTable(dsg) instanceof NodeTableCompressed);
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().add(triple3));
+
+        TDBInternal.reset();
+        DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(dir);
+        assertTrue(baseNodeTable(dsg2) instanceof NodeTableCompressed);
+        Txn.executeRead(dsg2, ()-> {
+            assertTrue(dsg2.contains(quad1));
+            assertTrue(dsg2.contains(quad2));
+            assertTrue(dsg2.getDefaultGraph().contains(triple3));
+        });
+    }
+
+    private static NodeTable baseNodeTable(DatasetGraph dsg) {
+        DatasetGraphTDB dsgtdb = (DatasetGraphTDB)((DatasetGraphSwitchable)dsg).get();
+        return dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable().baseNodeTable();
+    }
+
+    @Test public void group_commit_1() {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        DatabaseMgr.setGroupCommit(dsg, 5, 16);
+        DatabaseMgr.setDurability(dsg, Durability.GROUP);
+        TransactionCoordinator txnMgr = TDBInternal.getTransactionCoordinator(dsg);
+
+        Txn.executeWrite(dsg, ()->dsg.add(quad1));
+        assertEquals(0, txnMgr.countPendingCommits());
+
+        // Settings kept across compaction.
+        DatabaseMgr.compact(dsg, false);
+        TransactionCoordinator txnMgr2 = TDBInternal.getTransactionCoordinator(dsg);
+        assertNotSame(txnMgr, txnMgr2);
+        assertEquals(Durability.GROUP, txnMgr2.getDurability());
+        assertEquals(16, txnMgr2.getGroupCommitMaxCommits());
+
+        Txn.executeWrite(dsg, ()->dsg.add(quad2));
+        TDBInternal.reset();
+        DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(dir);
+        Txn.executeRead(dsg2, ()-> {
+            assertTrue(dsg2.contains(quad1));
+            assertTrue(dsg2.contains(quad2));
+        });
+    }
+
+    @Test public void async_commit_1() {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        // Flush only when asked.
+        DatabaseMgr.setGroupCommit(dsg, 60_000, 1000);
+        DatabaseMgr.setDurability(dsg, Durability.ASYNC);
+        TransactionCoordinator txnMgr = TDBInternal.getTransactionCoordinator(dsg);
+
+        Txn.executeWrite(dsg, ()->dsg.add(quad1));
+        Txn.executeWrite(dsg, ()->dsg.add(quad2));
+        assertEquals(2, txnMgr.countPendingCommits());
+        Txn.executeRead(dsg, ()->assertTrue(dsg.contains(quad2)));
+
+        txnMgr.flush();
+        assertEquals(0, txnMgr.countPendingCommits());
+        DatabaseMgr.setDurability(dsg, Durability.SYNC);
+        Txn.executeWrite(dsg, ()->dsg.delete(quad1));
+        assertEquals(0, txnMgr.countPendingCommits());
+        Txn.executeRead(dsg, ()-> {
+            assertFalse(dsg.contains(quad1));
+            assertTrue(dsg.contains(quad2));
+        });
+    }
+
     @Test public void backup_1() {
         DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
         Txn.executeWrite(dsg, ()-> {
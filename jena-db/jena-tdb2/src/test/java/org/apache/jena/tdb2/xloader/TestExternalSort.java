@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb2.xloader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestExternalSort {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] record(long key, long value) {
+        byte[] b = new byte[2*Long.BYTES];
+        Bytes.setLong(key, b, 0);
+        Bytes.setLong(value, b, Long.BYTES);
+        return b;
+    }
+
+    private static long key(byte[] record) {
+        return Bytes.getLong(record, 0);
+    }
+
+    private static long value(byte[] record) {
+        return Bytes.getLong(record, Long.BYTES);
+    }
+
+    private List<byte[]> sort(ExternalSort sorter, List<byte[]> records) {
+        try ( sorter ) {
+            records.forEach(sorter::add);
+            List<byte[]> results = new ArrayList<>();
+            sorter.sorted().forEachRemaining(results::add);
+            return results;
+        }
+    }
+
+    private static List<byte[]> data(int n, long seed) {
+        Random random = new Random(seed);
+        List<byte[]> records = new ArrayList<>();
+        for ( int i = 0 ; i < n ; i++ )
+            records.add(record(random.nextInt(n/2), i));
+        return records;
+    }
+
+    private static void checkSorted(List<byte[]> results, boolean unique) {
+        for ( int i = 1 ; i < results.size() ; i++ ) {
+            int x = Long.compareUnsigned(key(results.get(i-1)), key(results.get(i)));
+            if ( unique )
+                assertTrue(x < 0);
+            else
+                assertTrue(x <= 0);
+        }
+    }
+
+    @Test public void sort_memory() throws Exception {
+        Path tmp = folder.newFolder().toPath();
+        List<byte[]> records = data(1000, 1);
+        List<byte[]> results = sort(new ExternalSort(Long.BYTES, 2*Long.BYTES, false, tmp, 1_000_000_000L, 2, false), records);
+        assertEquals(records.size(), results.size());
+        checkSorted(results, false);
+        assertEquals(0, tmp.toFile().list().length);
+    }
+
+    @Test public void sort_runs() throws Exception {
+        Path tmp = folder.newFolder().toPath();
+        List<byte[]> records = data(10_000, 2);
+        // Small memory : many runs.
+        List<byte[]> results = sort(new ExternalSort(Long.BYTES, 2*Long.BYTES, false, tmp, 20_000, 3, false), records);
+        assertEquals(records.size(), results.size());
+        checkSorted(results, false);
+        assertEquals(0, tmp.toFile().list().length);
+    }
+
+    @Test public void sort_unique_first() throws Exception {
+        Path tmp = folder.newFolder().toPath();
+        List<byte[]> records = data(10_000, 3);
+        List<byte[]> results = sort(new ExternalSort(Long.BYTES, 2*Long.BYTES, true, tmp, 20_000, 2, true), records);
+        // Expected: first added for each key.
+        Map<Long, Long> expected = new TreeMap<>();
+        records.forEach(r->expected.putIfAbsent(key(r), value(r)));
+        assertEquals(expected.size(), results.size());
+        checkSorted(results, true);
+        results.forEach(r->assertEquals(expected.get(key(r)).longValue(), value(r)));
+        assertEquals(0, tmp.toFile().list().length);
+    }
+
+    @Test public void sort_merge_passes() throws Exception {
+        int fanIn = ExternalSort.MergeFanIn;
+        ExternalSort.MergeFanIn = 3;
+        try {
+            Path tmp = folder.newFolder().toPath();
+            List<byte[]> records = data(5_000, 4);
+            List<byte[]> results = sort(new ExternalSort(Long.BYTES, 2*Long.BYTES, false, tmp, 10_000, 2, false), records);
+            assertEquals(records.size(), results.size());
+            checkSorted(results, false);
+            assertEquals(0, tmp.toFile().list().length);
+        } finally {
+            ExternalSort.MergeFanIn = fanIn;
+        }
+    }
+
+    @Test public void sort_varying_length() throws Exception {
+        File tmp = folder.newFolder();
+        List<byte[]> records = new ArrayList<>();
+        for ( int i = 0 ; i < 2_000 ; i++ ) {
+            byte[] b = new byte[4+(i%7)];
+            Bytes.setInt(1000-(i%1000), b, 0);
+            records.add(b);
+        }
+        List<byte[]> results = sort(new ExternalSort(4, 0, true, tmp.toPath(), 5_000, 2, true), records);
+        assertEquals(1000, results.size());
+        for ( int i = 0 ; i < results.size() ; i++ ) {
+            assertEquals(i+1, Bytes.getInt(results.get(i), 0));
+            // First added for that key.
+            assertEquals(4+((1000-i-1)%7), results.get(i).length);
+        }
+        assertEquals(0, tmp.list().length);
+    }
+
+    @Test public void sort_unsigned() throws Exception {
+        Path tmp = folder.newFolder().toPath();
+        List<byte[]> records = List.of(record(-1L, 0), record(1L, 1), record(Long.MIN_VALUE, 2), record(0L, 3));
+        List<byte[]> results = sort(new ExternalSort(Long.BYTES, 2*Long.BYTES, false, tmp, 1_000_000, 1, false), records);
+        long[] keys = results.stream().mapToLong(TestExternalSort::key).toArray();
+        assertArrayEquals(new long[] {0L, 1L, Long.MIN_VALUE, -1L}, keys);
+    }
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.function.Function;
 
 import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.fuseki.server.QueryCache;
 import org.apache.jena.fuseki.servlets.*;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
@@ -49,6 +50,14 @@ public class AccessCtl_SPARQL_QueryDataset extends SPARQL_QueryDataset {
         return Collections.singletonList("user");
     }
 
+    @Override
+    protected QueryCache queryCache(HttpAction action) {
+        // Results depend on the user.
+        if ( DataAccessCtl.isAccessControlled(action.getDataService().getDataset()) )
+            return null;
+        return super.queryCache(action);
+    }
+
     /** Decide the dataset - this modifies the query
      *  If the query has a dataset description.
      */
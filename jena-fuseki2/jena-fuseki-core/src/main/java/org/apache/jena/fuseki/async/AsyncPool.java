@@ -75,7 +75,7 @@ public class AsyncPool
                 }
                 return null;
             };
-            AsyncTask asyncTask = new AsyncTask(c, this, taskId, displayName, dataService, requestId);
+            AsyncTask asyncTask = new AsyncTask(c, task, this, taskId, displayName, dataService, requestId);
             try {
                 /* Future<Object> future = */ executor.submit(asyncTask);
                 runningTasks.put(taskId, asyncTask);
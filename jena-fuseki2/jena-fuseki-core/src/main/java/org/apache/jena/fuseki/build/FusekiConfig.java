@@ -462,9 +462,36 @@ public class FusekiConfig {
         // This will overwrite old style entries of the same fuseki:name.
         endpoints2.forEach(dataService::addEndpoint);
 
+        // fuseki:maxConcurrentQueries, fuseki:maxConcurrentServiceQueries, fuseki:admissionWait
+        dataService.setQueryAdmission(queryAdmission(fusekiService));
         return dataService;
     }
 
+    /** Admission control for queries, or null if there are no limits in the service description. */
+    private static QueryAdmission queryAdmission(Resource fusekiService) {
+        int maxQueries = getInt(fusekiService, pMaxConcurrentQueries, QueryAdmission.Unlimited);
+        int maxServiceQueries = getInt(fusekiService, pMaxConcurrentServiceQueries, QueryAdmission.Unlimited);
+        if ( maxQueries < 0 && maxServiceQueries < 0 )
+            return null;
+        if ( maxQueries == 0 || maxServiceQueries == 0 )
+            throw exception("Maximum concurrent queries must be positive in service %s", nodeLabel(fusekiService));
+        long wait = getInt(fusekiService, pAdmissionWait, (int)QueryAdmission.DefaultWait);
+        return new QueryAdmission(maxQueries, maxServiceQueries, wait);
+    }
+
+    private static int getInt(Resource resource, Property property, int dftValue) {
+        RDFNode n = getZeroOrOne(resource, property);
+        if ( n == null )
+            return dftValue;
+        if ( ! n.isLiteral() )
+            throw exception("Not a literal for %s in %s", nodeLabel(property), nodeLabel(resource));
+        try {
+            return Integer.parseInt(n.asLiteral().getLexicalForm().trim());
+        } catch (NumberFormatException ex) {
+            throw exception("Not an integer for %s in %s: %s", nodeLabel(property), nodeLabel(resource), nodeLabel(n));
+        }
+    }
+
     /**
      *  Old style compatibility.
      *  For each endpoint in "endpoints1", ensure there is an endpoint on the dataset (endpoint name "") itself.
@@ -520,6 +547,7 @@ public class FusekiConfig {
      *     ja:context [ ja:cxtName "arq:queryTimeout" ;  ja:cxtValue "1000" ] ;
      *     ja:context [ ja:cxtName "arq:queryLimit" ;  ja:cxtValue "10000" ] ;
      *     ja:context [ ja:cxtName "tdb:defaultUnionGraph" ;  ja:cxtValue "true" ] ;
+     *     ja:context [ ja:cxtName "fuseki:queryCache" ;  ja:cxtValue "true" ] ;
      *
      *     and specials:
      *         fuseki:timeout "1000,1000" ;
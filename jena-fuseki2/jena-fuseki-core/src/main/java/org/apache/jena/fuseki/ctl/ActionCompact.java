@@ -22,12 +22,14 @@ import static java.lang.String.format;
 
 import com.github.jsonldjava.shaded.com.google.common.base.Predicate;
 
+import org.apache.jena.atlas.json.JsonBuilder;
 import org.apache.jena.fuseki.Fuseki;
 import org.apache.jena.fuseki.servlets.HttpAction;
 import org.apache.jena.fuseki.servlets.ServletOps;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphWrapper;
 import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.sys.IncrementalCompaction;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.slf4j.Logger;
 
@@ -91,6 +93,10 @@ public class ActionCompact extends ActionAsyncTask
         static private final Logger log = Fuseki.compactLog;
 
         private final boolean shouldDeleteOld;
+        // Compaction in place: reuse space within the database rather than copy it.
+        private final boolean incremental;
+        private final long blocksPerSecond;
+        private volatile IncrementalCompaction compaction = null;
 
         public CompactTask(HttpAction action) {
             super(action);
@@ -99,12 +105,34 @@ public class ActionCompact extends ActionAsyncTask
 
             this.shouldDeleteOld = ( deleteOldParam != null
                                      && ( deleteOldParam.isEmpty() || deleteOldParam.equalsIgnoreCase("true") ) );
+
+            String incrementalParam = action.getRequestParameter("incremental");
+            this.incremental = ( incrementalParam != null
+                                 && ( incrementalParam.isEmpty() || incrementalParam.equalsIgnoreCase("true") ) );
+
+            String rateParam = action.getRequestParameter("blocksPerSecond");
+            long rate = 0;
+            if ( rateParam != null ) {
+                try { rate = Long.parseLong(rateParam); }
+                catch (NumberFormatException ex) {
+                    ServletOps.errorBadRequest("Bad value for 'blocksPerSecond': "+rateParam);
+                }
+            }
+            this.blocksPerSecond = rate;
         }
 
         @Override
         public void run() {
             try {
                 DatasetGraph dsg = getTDB2(dataset);
+                if ( incremental ) {
+                    log.info(format("[%d] >>>> Start incremental compact %s", actionId, datasetName));
+                    compaction = new IncrementalCompaction(dsg, blocksPerSecond);
+                    compaction.run();
+                    log.info(format("[%d] <<<< Finish incremental compact %s : %d bytes reclaimed",
+                                    actionId, datasetName, compaction.getBytesReclaimed()));
+                    return;
+                }
                 log.info(format("[%d] >>>> Start compact %s", actionId, datasetName));
                 DatabaseMgr.compact(dsg, this.shouldDeleteOld);
                 log.info(format("[%d] <<<< Finish compact %s", actionId, datasetName));
@@ -114,5 +142,16 @@ public class ActionCompact extends ActionAsyncTask
                 throw ex;
             }
         }
+
+        @Override
+        public void describe(JsonBuilder builder) {
+            IncrementalCompaction c = compaction;
+            if ( c == null )
+                return;
+            builder.key(JsonConstCtl.compactBlocksTotal).value(c.getBlocksTotal());
+            builder.key(JsonConstCtl.compactBlocksScanned).value(c.getBlocksScanned());
+            builder.key(JsonConstCtl.compactBlocksReclaimed).value(c.getBlocksReclaimed());
+            builder.key(JsonConstCtl.compactBytesReclaimed).value(c.getBytesReclaimed());
+        }
     }
 }
@@ -117,6 +117,8 @@ public class ActionTasks extends ActionCtl
             builder.key(JsonConstCtl.finished).value(aTask.getFinishPoint());
         if ( aTask.wasSuccessful() != null )
             builder.key(JsonConstCtl.success).value(aTask.wasSuccessful());
+        if ( aTask.getTask() instanceof TaskBase )
+            ((TaskBase)aTask.getTask()).describe(builder);
         builder.finishObject("SingleTask");
     }
 }
@@ -27,4 +27,10 @@ public class JsonConstCtl {
     public static final String started          = "started";
     public static final String success          = "success";
 
+    // Incremental compaction
+    public static final String compactBlocksTotal     = "blocksTotal";
+    public static final String compactBlocksScanned   = "blocksScanned";
+    public static final String compactBlocksReclaimed = "blocksReclaimed";
+    public static final String compactBytesReclaimed  = "bytesReclaimed";
+
 }
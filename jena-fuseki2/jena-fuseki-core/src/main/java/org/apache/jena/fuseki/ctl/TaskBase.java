@@ -18,6 +18,7 @@
 
 package org.apache.jena.fuseki.ctl;
 
+import org.apache.jena.atlas.json.JsonBuilder;
 import org.apache.jena.fuseki.servlets.HttpAction;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.Transactional;
@@ -40,4 +41,7 @@ public abstract class TaskBase implements Runnable {
         this.transactional = dataset;
         this.datasetName = ActionCtl.getItemDatasetName(action);
     }
+
+    /** Add task specific details, such as progress, to the description of the task (a JSON object). */
+    public void describe(JsonBuilder builder) {}
 }
@@ -28,6 +28,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
 import org.apache.jena.ext.com.google.common.collect.ArrayListMultimap;
 import org.apache.jena.ext.com.google.common.collect.ListMultimap;
 import org.apache.jena.fuseki.Fuseki;
@@ -39,6 +40,7 @@ import org.apache.jena.query.TxnType;
 import org.apache.jena.riot.out.NodeFmtLib;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphWrapper;
+import org.apache.jena.tdb2.sys.TDBInternal;
 
 public class DataService {
     // Not final - it null'ed if closed to release the dataset state.
@@ -50,6 +52,9 @@ public class DataService {
     // Dataset-level authorization policy.
     private final AuthPolicy authPolicy;
 
+    // Bound on concurrent query execution, or null.
+    private final QueryAdmission queryAdmission;
+
     /**
      * Record which {@link DataAccessPoint DataAccessPoints} this {@code DataService} is
      * associated with. This is mainly for checking and development.
@@ -64,6 +69,11 @@ public class DataService {
     private final AtomicBoolean offlineInProgress       = new AtomicBoolean(false);
     private final AtomicBoolean acceptingRequests       = new AtomicBoolean(true);
 
+    // Write transactions committed by this DataService.
+    private final AtomicLong    commits                 = new AtomicLong(0);
+    // Query results for the endpoints that enable caching, or null.
+    private final QueryCache    queryCache;
+
     /** Builder for a new DataService. */
     public static Builder newBuilder() { return new Builder(); }
 
@@ -74,18 +84,29 @@ public class DataService {
 
     /** Return a new builder, populated by an existing DatasetService */
     public static Builder newBuilder(DataService dSrv) {
-        return new Builder(dSrv.dataset, dSrv.endpoints, dSrv.operationsMap, dSrv.authPolicy);
+        return new Builder(dSrv.dataset, dSrv.endpoints, dSrv.operationsMap, dSrv.authPolicy, dSrv.queryAdmission);
     }
 
     /** Create a {@code DataService} for the given dataset. */
-    private DataService(DatasetGraph dataset, Map<String, EndpointSet> endpoints, ListMultimap<Operation, Endpoint> operationsMap, AuthPolicy authPolicy) {
+    private DataService(DatasetGraph dataset, Map<String, EndpointSet> endpoints, ListMultimap<Operation, Endpoint> operationsMap, AuthPolicy authPolicy,
+                        QueryAdmission queryAdmission) {
         this.dataset = dataset;
         this.endpoints = Map.copyOf(endpoints);
         this.operationsMap = ArrayListMultimap.create(operationsMap);
         this.authPolicy = authPolicy;
+        this.queryAdmission = queryAdmission;
         counters.add(CounterName.Requests);
         counters.add(CounterName.RequestsGood);
         counters.add(CounterName.RequestsBad);
+        this.queryCache = createQueryCache();
+    }
+
+    private QueryCache createQueryCache() {
+        for ( Endpoint ep : operationsMap.get(Operation.Query) ) {
+            if ( QueryCache.isEnabled(ep.getContext()) )
+                return QueryCache.create(ep.getContext(), this::getDataVersion);
+        }
+        return null;
     }
 
     /*package*/ void noteDataAccessPoint(DataAccessPoint dap) {
@@ -278,6 +299,70 @@ public class DataService {
         activeTxn.decrementAndGet();
     }
 
+    /** Note that a write transaction has committed. Call after the commit has finished. */
+    public void commitTxn() {
+        commits.incrementAndGet();
+    }
+
+    /**
+     * Return the query result cache, or null if no query endpoint of this
+     * {@code DataService} enables caching.
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Return a token for the version of the data: the token is different (not
+     * {@code equals}) after a write transaction has committed. For TDB2, this
+     * includes the data version of the database so changes made other than by
+     * this {@code DataService} are seen; for other datasets, only write
+     * transactions through this {@code DataService} are counted.
+     * <p>
+     * Get the data version before starting a read transaction: the transaction
+     * then sees data at least as new as the version.
+     */
+    public Object getDataVersion() {
+        DatasetGraph dsg = dataset;
+        TransactionCoordinator coordinator = null;
+        if ( dsg != null ) {
+            DatasetGraph base = findTDB(dsg);
+            if ( isTDB2(base) )
+                coordinator = TDBInternal.getTransactionCoordinator(base);
+        }
+        if ( coordinator == null )
+            return new DataVersion(null, 0, commits.get());
+        // The database coordinator changes on compaction.
+        return new DataVersion(coordinator, coordinator.getDataVersion(), commits.get());
+    }
+
+    private static final class DataVersion {
+        private final Object source;
+        private final long sourceVersion;
+        private final long commits;
+
+        private DataVersion(Object source, long sourceVersion, long commits) {
+            this.source = source;
+            this.sourceVersion = sourceVersion;
+            this.commits = commits;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(source), sourceVersion, commits);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( this == obj )
+                return true;
+            if ( !(obj instanceof DataVersion) )
+                return false;
+            DataVersion other = (DataVersion)obj;
+            return source == other.source && sourceVersion == other.sourceVersion && commits == other.commits;
+        }
+    }
+
     /** Shutdown and never use again. */
     public synchronized void shutdown() {
         if ( state == CLOSING )
@@ -331,6 +416,9 @@ public class DataService {
     /** Returning null implies no authorization control */
     public AuthPolicy authPolicy() { return authPolicy; }
 
+    /** Returning null implies no bound on concurrent queries */
+    public QueryAdmission getQueryAdmission() { return queryAdmission; }
+
     public static class Builder {
         private DatasetGraph dataset = null;
 
@@ -340,14 +428,18 @@ public class DataService {
         // Dataset-level authorization policy.
         private AuthPolicy authPolicy = null;
 
+        private QueryAdmission queryAdmission = null;
+
         private Builder() {}
 
-        private Builder(DatasetGraph dataset, Map<String, EndpointSet> endpoints, ListMultimap<Operation, Endpoint> operationsMap,AuthPolicy authPolicy) {
+        private Builder(DatasetGraph dataset, Map<String, EndpointSet> endpoints, ListMultimap<Operation, Endpoint> operationsMap,AuthPolicy authPolicy,
+                        QueryAdmission queryAdmission) {
             this();
             this.dataset = dataset;
             this.endpoints.putAll(endpoints);
             this.operationsMap.putAll(operationsMap);
             this.authPolicy = authPolicy;
+            this.queryAdmission = queryAdmission;
         }
 
         public Builder dataset(DatasetGraph dsg) { this.dataset = dsg; return this; }
@@ -406,8 +498,14 @@ public class DataService {
             return this;
         }
 
+        /** Bound the number of queries executing at the same time. */
+        public Builder setQueryAdmission(QueryAdmission queryAdmission) {
+            this.queryAdmission = queryAdmission;
+            return this;
+        }
+
         public DataService build() {
-            return new DataService(dataset, endpoints, operationsMap, authPolicy);
+            return new DataService(dataset, endpoints, operationsMap, authPolicy, queryAdmission);
         }
     }
 }
@@ -71,6 +71,9 @@ public class Dispatcher {
      * and returns false (no error or response sent) if the request has not been handled.
      *
      * This function does not throw exceptions.
+     *
+     * If the server has a {@link RequestExecutor}, the request is processed
+     * asynchronously and this function returns {@code true}.
      */
     public static boolean dispatch(HttpServletRequest request, HttpServletResponse response) {
         DataAccessPointRegistry registry = DataAccessPointRegistry.get(request.getServletContext());
@@ -80,6 +83,9 @@ public class Dispatcher {
                 LOG.debug("No dispatch for '"+request.getRequestURI()+"'");
             return false;
         }
+        // Process on the request executor of the server, if any.
+        if ( RequestExecutor.execute(request, response, ()->process(dap, request, response)) )
+            return true;
         return process(dap, request, response);
     }
 
@@ -66,6 +66,10 @@ public class Endpoint implements Counters {
         counters.add(CounterName.Requests);
         counters.add(CounterName.RequestsGood);
         counters.add(CounterName.RequestsBad);
+        if ( operation == Operation.Query && QueryCache.isEnabled(context) ) {
+            counters.add(CounterName.QueryCacheHits);
+            counters.add(CounterName.QueryCacheMisses);
+        }
         // Default. Better to explicitly set later.
         //processor = OperationRegistry.get().findHandler(operation);
     }
@@ -52,6 +52,9 @@ public class FusekiVocab
     public static final Property pUnionDefaultGraph         = property("unionDefaultGraph");
     public static final Property pAllowTimeoutOverride      = property("allowTimeoutOverride");
     public static final Property pMaximumTimeoutOverride    = property("maximumTimeoutOverride");
+    public static final Property pMaxConcurrentQueries        = property("maxConcurrentQueries");
+    public static final Property pMaxConcurrentServiceQueries = property("maxConcurrentServiceQueries");
+    public static final Property pAdmissionWait               = property("admissionWait");
 
     // Server endpoints.
     public static final Property pServerPing        = property("pingEP");
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.fuseki.server;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for query execution on a {@link DataService}: a bound on the
+ * number of queries executing at the same time.
+ * <p>
+ * Queries that call a remote SERVICE are counted separately from other queries, so
+ * many slow federated queries do not delay the queries on the local data.
+ * <p>
+ * A query waits, in arrival order, for up to the wait time; if it is not admitted
+ * by then, it is rejected.
+ * <p>
+ * In a configuration file:
+ * <pre>
+ *   &lt;#service&gt; rdf:type fuseki:Service ;
+ *       fuseki:name "dataset" ;
+ *       fuseki:maxConcurrentQueries 16 ;
+ *       fuseki:maxConcurrentServiceQueries 1000 ;
+ *       fuseki:admissionWait 10000 ;
+ *       ...
+ * </pre>
+ */
+public class QueryAdmission {
+    /** Setting for no limit. */
+    public static final int  Unlimited       = -1;
+    /** Default wait for admission, in milliseconds. */
+    public static final long DefaultWait     = 10_000;
+
+    private final int maxQueries;
+    private final int maxServiceQueries;
+    private final Semaphore queries;
+    private final Semaphore serviceQueries;
+    private final long waitMillis;
+
+    /**
+     * @param maxQueries        Maximum number of queries executing at once, or {@link #Unlimited}.
+     * @param maxServiceQueries Maximum number of queries calling SERVICE executing at once, or {@link #Unlimited}.
+     * @param waitMillis        Maximum time to wait for admission; negative means wait without limit.
+     */
+    public QueryAdmission(int maxQueries, int maxServiceQueries, long waitMillis) {
+        if ( maxQueries == 0 || maxServiceQueries == 0 )
+            throw new IllegalArgumentException("Maximum concurrent queries must be positive or Unlimited");
+        this.maxQueries = maxQueries;
+        this.maxServiceQueries = maxServiceQueries;
+        this.queries = maxQueries < 0 ? null : new Semaphore(maxQueries, true);
+        this.serviceQueries = maxServiceQueries < 0 ? null : new Semaphore(maxServiceQueries, true);
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Wait to be admitted. Return true if admitted, when {@link #release} must be
+     * called after the query execution has finished. Return false if not admitted.
+     */
+    public boolean acquire(boolean isServiceQuery) {
+        Semaphore semaphore = semaphore(isServiceQuery);
+        if ( semaphore == null )
+            return true;
+        try {
+            if ( waitMillis < 0 ) {
+                semaphore.acquire();
+                return true;
+            }
+            return semaphore.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Release after an {@link #acquire} that returned true. */
+    public void release(boolean isServiceQuery) {
+        Semaphore semaphore = semaphore(isServiceQuery);
+        if ( semaphore != null )
+            semaphore.release();
+    }
+
+    private Semaphore semaphore(boolean isServiceQuery) {
+        return isServiceQuery ? serviceQueries : queries;
+    }
+
+    public int getMaxQueries() {
+        return maxQueries;
+    }
+
+    public int getMaxServiceQueries() {
+        return maxServiceQueries;
+    }
+
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    /** Number of queries executing, not calling SERVICE. Zero if not limited. */
+    public int activeQueries() {
+        return queries == null ? 0 : maxQueries - queries.availablePermits();
+    }
+
+    /** Number of queries calling SERVICE executing. Zero if not limited. */
+    public int activeServiceQueries() {
+        return serviceQueries == null ? 0 : maxServiceQueries - serviceQueries.availablePermits();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryAdmission[queries=%d, serviceQueries=%d, wait=%d]", maxQueries, maxServiceQueries, waitMillis);
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.fuseki.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.fuseki.Fuseki;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.resultset.SPARQLResult;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+
+/**
+ * Cache of query results for a {@link DataService}.
+ * <p>
+ * Results are held materialized, not serialized, so one entry serves every
+ * result format the client may ask for. An entry is only valid for the data
+ * version it was computed at (see {@link DataService#getDataVersion}). The cache
+ * holds the entries of one data version and is emptied when a newer one is seen,
+ * so a write transaction committing invalidates all results.
+ * <p>
+ * The cache is bounded by the number of entries and by an estimate of the
+ * memory used. Least recently used entries are dropped first. A result larger
+ * than a quarter of the memory bound is not cached.
+ * <p>
+ * Caching is enabled for a query endpoint by the context setting {@code fuseki:queryCache}:
+ * <pre>
+ *   fuseki:endpoint [
+ *       fuseki:operation fuseki:query ;
+ *       ja:context [ ja:cxtName "fuseki:queryCache" ; ja:cxtValue "true" ] ;
+ *       ja:context [ ja:cxtName "fuseki:queryCacheSize" ; ja:cxtValue "1000" ] ;
+ *       ja:context [ ja:cxtName "fuseki:queryCacheMaxBytes" ; ja:cxtValue "100000000" ] ;
+ *   ] ;
+ * </pre>
+ * All the query endpoints of a {@link DataService} enabling caching share one cache.
+ */
+public class QueryCache {
+    /** Endpoint context setting to enable the query cache. */
+    public static final Symbol symQueryCache         = Symbol.create(Fuseki.FusekiSymbolIRI+"queryCache");
+    /** Endpoint context setting for the maximum number of cached results. */
+    public static final Symbol symQueryCacheSize     = Symbol.create(Fuseki.FusekiSymbolIRI+"queryCacheSize");
+    /** Endpoint context setting for the maximum estimated memory of cached results, in bytes. */
+    public static final Symbol symQueryCacheMaxBytes = Symbol.create(Fuseki.FusekiSymbolIRI+"queryCacheMaxBytes");
+
+    public static final int  DefaultMaxEntries       = 1000;
+    public static final long DefaultMaxBytes         = 100L*1024*1024;
+
+    /** Whether the context (usually of an endpoint) enables the query cache. */
+    public static boolean isEnabled(Context context) {
+        return context != null && context.isTrue(symQueryCache);
+    }
+
+    /** Create a cache with the bounds given by the context, or the defaults. */
+    public static QueryCache create(Context context, Supplier<Object> dataVersion) {
+        int maxEntries = DefaultMaxEntries;
+        long maxBytes = DefaultMaxBytes;
+        if ( context != null ) {
+            maxEntries = context.getInt(symQueryCacheSize, maxEntries);
+            maxBytes = context.getLong(symQueryCacheMaxBytes, maxBytes);
+        }
+        return new QueryCache(maxEntries, maxBytes, dataVersion);
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Supplier<Object> dataVersion;
+
+    // Access order, for least recently used eviction.
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // The data version of the entries.
+    private Object version = null;
+    private long bytes = 0;
+
+    public QueryCache(int maxEntries, long maxBytes, Supplier<Object> dataVersion) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxBytes / 4;
+        this.dataVersion = dataVersion;
+    }
+
+    /** The current data version. Get this before the read transaction starts. */
+    public Object getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Return a result for the key computed at the data version, or null.
+     * Each call returns a new {@link SPARQLResult}.
+     */
+    public SPARQLResult get(String key, Object dataVersion) {
+        Entry entry;
+        synchronized(this) {
+            if ( ! isCurrent(dataVersion) )
+                return null;
+            entry = entries.get(key);
+        }
+        return entry == null ? null : entry.result();
+    }
+
+    /**
+     * Cache the result of executing a query at the data version, and return
+     * the result to send instead of the argument, which has been read from.
+     * The result is not cached if it is too large or if the data has changed
+     * since the data version.
+     */
+    public SPARQLResult put(String key, Object dataVersion, SPARQLResult result) {
+        Entry entry;
+        if ( result.isResultSet() ) {
+            RowSet rowSet = RowSet.adapt(result.getResultSet());
+            List<Var> vars = rowSet.getResultVars();
+            List<Binding> rows = new ArrayList<>();
+            long size = 64;
+            while ( rowSet.hasNext() ) {
+                Binding row = rowSet.next();
+                rows.add(row);
+                size += sizeOf(row);
+                if ( size > maxEntryBytes ) {
+                    // Too large : send the rows read so far then the rest.
+                    Iterator<Binding> iter = Iter.concat(rows.iterator(), rowSet);
+                    return new SPARQLResult(ResultSet.adapt(RowSetStream.create(vars, iter)));
+                }
+            }
+            entry = new Entry(vars, rows, size);
+        } else if ( result.isBoolean() ) {
+            entry = new Entry(result.getBooleanResult());
+        } else if ( result.isDataset() ) {
+            DatasetGraph dsg = result.getDataset().asDatasetGraph();
+            entry = new Entry(dsg, sizeOf(dsg));
+        } else if ( result.isModel() ) {
+            Graph graph = result.getModel().getGraph();
+            entry = new Entry(graph, sizeOf(graph));
+        } else if ( result.isJson() ) {
+            Iterator<JsonObject> jsonItems = result.getJsonItems();
+            List<JsonObject> items = new ArrayList<>();
+            long size = 64;
+            while ( jsonItems.hasNext() ) {
+                JsonObject item = jsonItems.next();
+                items.add(item);
+                size += 32 + 2L*item.toString().length();
+                if ( size > maxEntryBytes )
+                    return new SPARQLResult(Iter.concat(items.iterator(), jsonItems));
+            }
+            entry = new Entry(items, size);
+        } else {
+            return result;
+        }
+
+        if ( entry.size <= maxEntryBytes ) {
+            synchronized(this) {
+                if ( isCurrent(dataVersion) )
+                    add(key, entry);
+            }
+        }
+        return entry.result();
+    }
+
+    // Inside synchronized.
+    private boolean isCurrent(Object dataVersion) {
+        // The data version can only be current if it is the latest one.
+        Object latest = this.dataVersion.get();
+        if ( ! latest.equals(dataVersion) )
+            return false;
+        if ( ! latest.equals(version) ) {
+            // Data has changed: all entries are stale.
+            clear$();
+            version = latest;
+        }
+        return true;
+    }
+
+    // Inside synchronized.
+    private void add(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if ( previous != null )
+            bytes -= previous.size;
+        bytes += entry.size;
+        Iterator<Entry> iter = entries.values().iterator();
+        while ( iter.hasNext() && ( entries.size() > maxEntries || bytes > maxBytes ) ) {
+            Entry e = iter.next();
+            iter.remove();
+            bytes -= e.size;
+        }
+    }
+
+    /** Empty the cache. */
+    public synchronized void clear() {
+        clear$();
+    }
+
+    private void clear$() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /** Number of cached results. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Estimate of the memory used by the cached results, in bytes. */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    // Estimates of memory use.
+
+    private static long sizeOf(Binding binding) {
+        long[] size = { 32 };
+        binding.forEach((v,n)->size[0] += 16 + sizeOf(n));
+        return size[0];
+    }
+
+    private static long sizeOf(Graph graph) {
+        long size = 64;
+        Iterator<Triple> iter = graph.find();
+        try {
+            while ( iter.hasNext() )
+                size += sizeOf(iter.next());
+        } finally { Iter.close(iter); }
+        return size;
+    }
+
+    private static long sizeOf(DatasetGraph dsg) {
+        long size = 64;
+        Iterator<Quad> iter = dsg.find();
+        try {
+            while ( iter.hasNext() ) {
+                Quad quad = iter.next();
+                size += 48 + sizeOf(quad.getGraph()) + sizeOf(quad.asTriple());
+            }
+        } finally { Iter.close(iter); }
+        return size;
+    }
+
+    private static long sizeOf(Triple triple) {
+        return 48 + sizeOf(triple.getSubject()) + sizeOf(triple.getPredicate()) + sizeOf(triple.getObject());
+    }
+
+    private static long sizeOf(Node node) {
+        if ( node == null )
+            return 0;
+        if ( node.isURI() )
+            return 48 + 2L*node.getURI().length();
+        if ( node.isLiteral() )
+            return 64 + 2L*(node.getLiteralLexicalForm().length() + node.getLiteralLanguage().length());
+        if ( node.isNodeTriple() )
+            return 32 + sizeOf(node.getTriple());
+        return 48;
+    }
+
+    /** A materialized query result. */
+    private static class Entry {
+        final long size;
+        private final List<Var> vars;
+        private final List<Binding> rows;
+        private final Boolean booleanResult;
+        private final DatasetGraph dataset;
+        private final Graph graph;
+        private final List<JsonObject> jsonItems;
+
+        private Entry(List<Var> vars, List<Binding> rows, long size) {
+            this(size, vars, rows, null, null, null, null);
+        }
+
+        private Entry(boolean booleanResult) {
+            this(32, null, null, booleanResult, null, null, null);
+        }
+
+        private Entry(DatasetGraph dataset, long size) {
+            this(size, null, null, null, dataset, null, null);
+        }
+
+        private Entry(Graph graph, long size) {
+            this(size, null, null, null, null, graph, null);
+        }
+
+        private Entry(List<JsonObject> jsonItems, long size) {
+            this(size, null, null, null, null, null, jsonItems);
+        }
+
+        private Entry(long size, List<Var> vars, List<Binding> rows, Boolean booleanResult,
+                      DatasetGraph dataset, Graph graph, List<JsonObject> jsonItems) {
+            this.size = size;
+            this.vars = vars;
+            this.rows = rows;
+            this.booleanResult = booleanResult;
+            this.dataset = dataset;
+            this.graph = graph;
+            this.jsonItems = jsonItems;
+        }
+
+        /** A new {@link SPARQLResult} for the entry; the cached data is shared and only read. */
+        SPARQLResult result() {
+            if ( rows != null )
+                return new SPARQLResult(ResultSet.adapt(RowSetStream.create(vars, rows.iterator())));
+            if ( booleanResult != null )
+                return new SPARQLResult(booleanResult.booleanValue());
+            if ( dataset != null )
+                return new SPARQLResult(DatasetFactory.wrap(dataset));
+            if ( graph != null )
+                return new SPARQLResult(ModelFactory.createModelForGraph(graph));
+            return new SPARQLResult(jsonItems.iterator());
+        }
+    }
+}
@@ -337,6 +337,7 @@ public class HttpAction
     public void commit() {
         dataService.finishTxn();
         transactional.commit();
+        dataService.commitTxn();
         end();
     }
 
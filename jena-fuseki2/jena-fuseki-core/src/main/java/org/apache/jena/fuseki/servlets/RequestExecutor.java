@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.fuseki.servlets;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.fuseki.Fuseki;
+
+/**
+ * Execution of requests on threads of an {@link Executor}, not the servlet container
+ * thread, using servlet asynchronous processing. The container thread is returned to
+ * its pool while the request is processed, so requests that wait, such as a query
+ * calling a remote SERVICE, do not hold up the server thread pool.
+ * <p>
+ * With {@link #virtualThreads()}, each request runs on a new virtual thread. Virtual
+ * threads need JDK 21 or later.
+ * <p>
+ * The executor is set in the {@link ServletContext} of the server. Requests run on the
+ * container thread if there is no executor or the request does not support
+ * asynchronous processing (all filters and servlets before the point of dispatch must be
+ * declared "async supported").
+ */
+public class RequestExecutor {
+
+    private static final Executor virtualThreads = createVirtualThreadExecutor();
+
+    private RequestExecutor() {}
+
+    /** Set the {@link Executor} for the requests of a server. Null means run requests on the container thread. */
+    public static void set(ServletContext cxt, Executor executor) {
+        cxt.setAttribute(Fuseki.attrRequestExecutor, executor);
+    }
+
+    /** Get the {@link Executor} for the requests of a server, or null. */
+    public static Executor get(ServletContext cxt) {
+        return (Executor)cxt.getAttribute(Fuseki.attrRequestExecutor);
+    }
+
+    /** Whether the JVM provides virtual threads. */
+    public static boolean isVirtualThreadsAvailable() {
+        return virtualThreads != null;
+    }
+
+    /**
+     * An {@link Executor} that runs each task on a new virtual thread.
+     * Returns null if the JVM does not provide virtual threads.
+     */
+    public static Executor virtualThreads() {
+        return virtualThreads;
+    }
+
+    // Compiled for Java 11: Executors.newVirtualThreadPerTaskExecutor is JDK 21.
+    private static Executor createVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor)method.invoke(null);
+        } catch (Exception | LinkageError ex) {
+            // Not available, or a preview feature that is not enabled.
+            return null;
+        }
+    }
+
+    /**
+     * Process a request on the executor of the server.
+     * Return false, having done nothing, if the request should be processed by the caller
+     * on the current thread.
+     * <p>
+     * The processing returns whether it handled the request. If it did not, the request
+     * is dispatched again by the servlet container, which passes it to the servlets, not
+     * to the filters that have already seen it.
+     */
+    public static boolean execute(HttpServletRequest request, HttpServletResponse response, BooleanSupplier processing) {
+        Executor executor = get(request.getServletContext());
+        if ( executor == null || ! request.isAsyncSupported() || request.isAsyncStarted() )
+            return false;
+        AsyncContext asyncContext = request.startAsync(request, response);
+        // Query timeouts are applied by the query execution.
+        asyncContext.setTimeout(0);
+        Runnable task = ()->{
+            boolean handled = true;
+            try {
+                handled = processing.getAsBoolean();
+            } catch (Throwable th) {
+                FmtLog.error(Fuseki.serverLog, th, "Request execution: %s", request.getRequestURI());
+            } finally {
+                if ( handled )
+                    asyncContext.complete();
+                else
+                    asyncContext.dispatch();
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            // The executor is shutting down or is full. Run the task here.
+            task.run();
+        }
+        return true;
+    }
+}
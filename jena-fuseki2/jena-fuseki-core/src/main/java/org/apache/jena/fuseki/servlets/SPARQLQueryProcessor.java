@@ -19,6 +19,8 @@
 package org.apache.jena.fuseki.servlets;
 
 import static java.lang.String.format;
+import static org.apache.jena.fuseki.server.CounterName.QueryCacheHits;
+import static org.apache.jena.fuseki.server.CounterName.QueryCacheMisses;
 import static org.apache.jena.fuseki.server.CounterName.QueryTimeouts;
 import static org.apache.jena.fuseki.servlets.ActionExecLib.incCounter;
 import static org.apache.jena.riot.WebContent.ctHTMLForm;
@@ -39,16 +41,32 @@ import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.lib.Pair;
 import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.fuseki.Fuseki;
+import org.apache.jena.fuseki.server.DataService;
+import org.apache.jena.fuseki.server.Endpoint;
+import org.apache.jena.fuseki.server.QueryAdmission;
+import org.apache.jena.fuseki.server.QueryCache;
 import org.apache.jena.fuseki.system.FusekiNetLib;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.riot.web.HttpNames;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVisitorBase;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.algebra.walker.Walker;
+import org.apache.jena.sparql.core.DatasetDescription;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.Prologue;
 import org.apache.jena.sparql.engine.Timeouts;
 import org.apache.jena.sparql.exec.QueryExec;
 import org.apache.jena.sparql.exec.QueryExecDatasetBuilder;
 import org.apache.jena.sparql.exec.QueryExecutionAdapter;
+import org.apache.jena.sparql.expr.E_Now;
+import org.apache.jena.sparql.expr.E_Random;
+import org.apache.jena.sparql.expr.E_StrUUID;
+import org.apache.jena.sparql.expr.E_UUID;
+import org.apache.jena.sparql.expr.ExprFunction0;
+import org.apache.jena.sparql.expr.ExprVisitorBase;
 import org.apache.jena.sparql.resultset.SPARQLResult;
 import org.apache.jena.web.HttpSC;
 
@@ -264,6 +282,38 @@ public abstract class SPARQLQueryProcessor extends ActionService
             ServletOps.errorBadRequest("Error: \n" + queryString + "\n" + msg);
         }
 
+        // Query result cache, if enabled for the endpoint, and admission control.
+        // Both use the algebra expression, which is compiled once.
+        QueryCache queryCache = queryCache(action);
+        QueryAdmission admission = queryAdmission(action);
+        Op op = ( queryCache != null || admission != null ) ? Algebra.compile(query) : null;
+        String cacheKey = null;
+        Object dataVersion = null;
+        if ( queryCache != null ) {
+            cacheKey = cacheKey(action, query, op);
+            if ( cacheKey != null ) {
+                // Before the read transaction starts.
+                dataVersion = queryCache.getDataVersion();
+                SPARQLResult result = queryCache.get(cacheKey, dataVersion);
+                if ( result != null ) {
+                    incCounter(action.getEndpoint().getCounters(), QueryCacheHits);
+                    sendResults(action, result, query.getPrologue());
+                    return;
+                }
+                incCounter(action.getEndpoint().getCounters(), QueryCacheMisses);
+            }
+        }
+
+        // Bound the number of queries executing on the dataset.
+        boolean isServiceQuery = false;
+        if ( admission != null ) {
+            isServiceQuery = usesService(op);
+            if ( ! admission.acquire(isServiceQuery) ) {
+                action.log.info(format("[%d] Query not admitted: too many concurrent queries", action.id));
+                ServletOps.error(HttpSC.SERVICE_UNAVAILABLE_503, "Too many concurrent queries");
+            }
+        }
+
         // Assumes finished whole thing by end of sendResult.
         try {
             action.beginRead();
@@ -275,6 +325,8 @@ public abstract class SPARQLQueryProcessor extends ActionService
 
             try ( QueryExecution qExec = createQueryExecution(action, q, dataset); ) {
                 SPARQLResult result = executeQuery(action, qExec, query, queryStringLog);
+                if ( cacheKey != null )
+                    result = queryCache.put(cacheKey, dataVersion, result);
                 // Deals with exceptions itself.
                 sendResults(action, result, query.getPrologue());
             }
@@ -287,7 +339,11 @@ public abstract class SPARQLQueryProcessor extends ActionService
             // Additional counter information.
             incCounter(action.getEndpoint().getCounters(), QueryTimeouts);
             throw ex;
-        } finally { action.endRead(); }
+        } finally {
+            action.endRead();
+            if ( admission != null )
+                admission.release(isServiceQuery);
+        }
     }
 
     /**
@@ -298,6 +354,89 @@ public abstract class SPARQLQueryProcessor extends ActionService
      */
     protected abstract void validateQuery(HttpAction action, Query query);
 
+    /**
+     * Return the {@link QueryCache} for this request, or null for no caching.
+     * Caching is enabled by the endpoint context.
+     */
+    protected QueryCache queryCache(HttpAction action) {
+        DataService dataService = action.getDataService();
+        Endpoint endpoint = action.getEndpoint();
+        if ( dataService == null || endpoint == null || ! QueryCache.isEnabled(endpoint.getContext()) )
+            return null;
+        return dataService.getQueryCache();
+    }
+
+    /**
+     * Return the {@link QueryAdmission} for this request, or null for no limit on
+     * concurrent query execution.
+     */
+    protected QueryAdmission queryAdmission(HttpAction action) {
+        DataService dataService = action.getDataService();
+        return dataService == null ? null : dataService.getQueryAdmission();
+    }
+
+    /**
+     * The key for the {@link QueryCache}: the endpoint, the query form, the dataset
+     * description and the optimized algebra expression. The result format is not
+     * part of the key; results are cached before they are written.
+     * Returns null for a query that can not be cached: one that calls SERVICE or
+     * that uses a function with a different value each time (NOW, RAND, UUID, STRUUID).
+     * {@code op} is the algebra expression of the query, not optimized.
+     */
+    protected String cacheKey(HttpAction action, Query query, Op op) {
+        if ( ! isCacheable(op) )
+            return null;
+        op = Algebra.optimize(op, action.getContext());
+        StringBuilder sb = new StringBuilder();
+        sb.append(action.getEndpoint().getName()).append('\n');
+        sb.append(query.queryType()).append('\n');
+        DatasetDescription dsDesc = SPARQLProtocol.getDatasetDescription(action, query);
+        if ( dsDesc != null )
+            sb.append(dsDesc).append('\n');
+        switch (query.queryType()) {
+            case CONSTRUCT:
+                sb.append(query.getConstructTemplate().getQuads()).append('\n');
+                break;
+            case DESCRIBE:
+                sb.append(query.getResultURIs()).append('\n');
+                break;
+            case CONSTRUCT_JSON:
+                sb.append(query.getJsonMapping()).append('\n');
+                break;
+            default:
+        }
+        sb.append(op);
+        return sb.toString();
+    }
+
+    private static boolean isCacheable(Op op) {
+        if ( usesService(op) )
+            return false;
+        boolean[] cacheable = { true };
+        ExprVisitorBase exprVisitor = new ExprVisitorBase() {
+            @Override
+            public void visit(ExprFunction0 func) {
+                if ( func instanceof E_Now || func instanceof E_Random || func instanceof E_UUID || func instanceof E_StrUUID )
+                    cacheable[0] = false;
+            }
+        };
+        Walker.walk(op, new OpVisitorBase(), exprVisitor);
+        return cacheable[0];
+    }
+
+    /** Whether the algebra expression calls a remote SERVICE. */
+    private static boolean usesService(Op op) {
+        boolean[] service = { false };
+        OpVisitorBase opVisitor = new OpVisitorBase() {
+            @Override
+            public void visit(OpService opService) {
+                service[0] = true;
+            }
+        };
+        Walker.walk(op, opVisitor, new ExprVisitorBase());
+        return service[0];
+    }
+
     /** Create the {@link QueryExecution} for this operation.
      * @param action
      * @param query
@@ -27,6 +27,7 @@ import org.apache.jena.atlas.lib.Pair;
 import org.apache.jena.fuseki.Fuseki;
 import org.apache.jena.fuseki.server.DataAccessPoint;
 import org.apache.jena.fuseki.server.DataService;
+import org.apache.jena.fuseki.server.QueryCache;
 import org.apache.jena.fuseki.system.GraphLoadUtils;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
@@ -80,6 +81,12 @@ public class SPARQL_QueryGeneral extends ServletAction {
             return decideDatasetProtocol(action, query, queryStringLog);
         }
 
+        @Override
+        protected QueryCache queryCache(HttpAction action) {
+            // The dataset is read from the web for each request.
+            return null;
+        }
+
         /** Decide the {@code DatasetGraph} using only the protocol and query to calculate the dataset. */
         private static Pair<DatasetGraph, Query> decideDatasetProtocol(HttpAction action, Query query, String queryStringLog) {
             DatasetDescription datasetDesc = SPARQLProtocol.getDatasetDescription(action, query);
@@ -54,7 +54,13 @@ public class ServletAction extends HttpServlet {
     @Override
     protected void service(HttpServletRequest request, HttpServletResponse response) {
         HttpAction action = allocHttpActionServlet(request, response);
-        ActionExecLib.execAction(action, actionProcessor);
+        // Process on the request executor of the server, if any.
+        boolean async = RequestExecutor.execute(request, response, ()->{
+            ActionExecLib.execAction(action, actionProcessor);
+            return true;
+        });
+        if ( ! async )
+            ActionExecLib.execAction(action, actionProcessor);
     }
 
     private HttpAction allocHttpActionServlet(HttpServletRequest request, HttpServletResponse response) {
@@ -19,6 +19,8 @@
 package org.apache.jena.fuseki;
 
 import org.apache.jena.fuseki.server.TestDispatchOnURI;
+import org.apache.jena.fuseki.server.TestQueryAdmission;
+import org.apache.jena.fuseki.server.TestQueryCache;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -27,7 +29,9 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
     TestValidators.class,
-    TestDispatchOnURI.class
+    TestDispatchOnURI.class,
+    TestQueryCache.class,
+    TestQueryAdmission.class
 })
 public class TS_FusekiCore {}
 
@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.fuseki.server;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestQueryAdmission {
+
+    @Test public void admission_limit() {
+        QueryAdmission admission = new QueryAdmission(2, QueryAdmission.Unlimited, 0);
+        assertTrue(admission.acquire(false));
+        assertTrue(admission.acquire(false));
+        assertEquals(2, admission.activeQueries());
+        // Full: no wait.
+        assertFalse(admission.acquire(false));
+        admission.release(false);
+        assertTrue(admission.acquire(false));
+        admission.release(false);
+        admission.release(false);
+        assertEquals(0, admission.activeQueries());
+    }
+
+    @Test public void admission_service_separate() {
+        QueryAdmission admission = new QueryAdmission(1, 1, 0);
+        assertTrue(admission.acquire(false));
+        // SERVICE queries are counted separately.
+        assertTrue(admission.acquire(true));
+        assertFalse(admission.acquire(true));
+        assertFalse(admission.acquire(false));
+        assertEquals(1, admission.activeQueries());
+        assertEquals(1, admission.activeServiceQueries());
+        admission.release(true);
+        admission.release(false);
+        assertEquals(0, admission.activeServiceQueries());
+    }
+
+    @Test public void admission_unlimited() {
+        QueryAdmission admission = new QueryAdmission(QueryAdmission.Unlimited, QueryAdmission.Unlimited, 0);
+        for ( int i = 0 ; i < 100 ; i++ )
+            assertTrue(admission.acquire(i%2 == 0));
+        assertEquals(0, admission.activeQueries());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void admission_zero() {
+        new QueryAdmission(0, QueryAdmission.Unlimited, 0);
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.fuseki.server;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.resultset.SPARQLResult;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.junit.Test;
+
+public class TestQueryCache {
+
+    private static Var var = Var.alloc("x");
+
+    private static List<Binding> rows(int n) {
+        List<Binding> rows = new ArrayList<>();
+        for ( int i = 0 ; i < n ; i++ ) {
+            Node node = NodeFactory.createURI("http://example/x"+i);
+            rows.add(BindingFactory.binding(var, node));
+        }
+        return rows;
+    }
+
+    private static SPARQLResult result(List<Binding> rows) {
+        return new SPARQLResult(ResultSet.adapt(RowSetStream.create(List.of(var), rows.iterator())));
+    }
+
+    private static List<Binding> rows(SPARQLResult result) {
+        List<Binding> rows = new ArrayList<>();
+        RowSet.adapt(result.getResultSet()).forEachRemaining(rows::add);
+        return rows;
+    }
+
+    @Test public void queryCache_1() {
+        AtomicLong version = new AtomicLong(0);
+        QueryCache cache = new QueryCache(10, 100_000, version::get);
+        Object v0 = cache.getDataVersion();
+        assertNull(cache.get("q1", v0));
+
+        List<Binding> expected = rows(5);
+        SPARQLResult sent = cache.put("q1", v0, result(expected));
+        assertEquals(expected, rows(sent));
+        assertEquals(1, cache.size());
+        // Each result can be read.
+        assertEquals(expected, rows(cache.get("q1", v0)));
+        assertEquals(expected, rows(cache.get("q1", v0)));
+        assertNull(cache.get("q2", v0));
+    }
+
+    @Test public void queryCache_version_1() {
+        AtomicLong version = new AtomicLong(0);
+        QueryCache cache = new QueryCache(10, 100_000, version::get);
+        Object v0 = cache.getDataVersion();
+        cache.put("q1", v0, result(rows(5)));
+
+        version.incrementAndGet();
+        Object v1 = cache.getDataVersion();
+        assertNull(cache.get("q1", v1));
+        assertNull(cache.get("q1", v0));
+        assertEquals(0, cache.size());
+    }
+
+    @Test public void queryCache_version_2() {
+        AtomicLong version = new AtomicLong(0);
+        QueryCache cache = new QueryCache(10, 100_000, version::get);
+        Object v0 = cache.getDataVersion();
+        version.incrementAndGet();
+        // Data changed during execution : sent but not cached.
+        List<Binding> expected = rows(5);
+        assertEquals(expected, rows(cache.put("q1", v0, result(expected))));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("q1", cache.getDataVersion()));
+    }
+
+    @Test public void queryCache_bounds_1() {
+        AtomicLong version = new AtomicLong(0);
+        QueryCache cache = new QueryCache(2, 100_000, version::get);
+        Object v0 = cache.getDataVersion();
+        cache.put("q1", v0, result(rows(1)));
+        cache.put("q2", v0, result(rows(1)));
+        cache.get("q1", v0);
+        cache.put("q3", v0, result(rows(1)));
+        assertEquals(2, cache.size());
+        // Least recently used.
+        assertNull(cache.get("q2", v0));
+        assertNotNull(cache.get("q1", v0));
+        assertNotNull(cache.get("q3", v0));
+    }
+
+    @Test public void queryCache_bounds_2() {
+        AtomicLong version = new AtomicLong(0);
+        QueryCache cache = new QueryCache(10, 10_000, version::get);
+        Object v0 = cache.getDataVersion();
+        // Too large to cache - all rows sent.
+        List<Binding> expected = rows(1000);
+        assertEquals(expected, rows(cache.put("q1", v0, result(expected))));
+        assertEquals(0, cache.size());
+        assertTrue(cache.getBytes() <= 10_000);
+    }
+
+    @Test public void queryCache_boolean() {
+        AtomicLong version = new AtomicLong(0);
+        QueryCache cache = new QueryCache(10, 10_000, version::get);
+        Object v0 = cache.getDataVersion();
+        cache.put("q1", v0, new SPARQLResult(true));
+        SPARQLResult result = cache.get("q1", v0);
+        assertTrue(result.isBoolean());
+        assertTrue(result.getBooleanResult());
+    }
+
+    @Test public void queryCache_enabled() {
+        Context cxt = new Context();
+        assertFalse(QueryCache.isEnabled(cxt));
+        assertFalse(QueryCache.isEnabled(null));
+        cxt.set(QueryCache.symQueryCache, "true");
+        assertTrue(QueryCache.isEnabled(cxt));
+
+        Endpoint ep = Endpoint.create().operation(Operation.Query).context(cxt).build();
+        assertTrue(ep.getCounters().contains(CounterName.QueryCacheHits));
+        assertTrue(ep.getCounters().contains(CounterName.QueryCacheMisses));
+        DataService dSrv = DataService.newBuilder().addEndpoint(ep).build();
+        assertNotNull(dSrv.getQueryCache());
+
+        DataService dSrv2 = DataService.newBuilder().addEndpoint(Operation.Query).build();
+        assertNull(dSrv2.getQueryCache());
+    }
+
+    @Test public void dataVersion_tdb2() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        DataService dSrv = DataService.newBuilder(dsg).build();
+        Object v0 = dSrv.getDataVersion();
+        assertEquals(v0, dSrv.getDataVersion());
+        Txn.executeRead(dsg, ()->{});
+        assertEquals(v0, dSrv.getDataVersion());
+        // Change not through the DataService.
+        Txn.executeWrite(dsg, ()->dsg.add(SSE.parseQuad("(:g :s :p :o)")));
+        assertNotEquals(v0, dSrv.getDataVersion());
+    }
+
+    @Test public void dataVersion_commit() {
+        DataService dSrv = DataService.newBuilder().build();
+        Object v0 = dSrv.getDataVersion();
+        dSrv.commitTxn();
+        assertNotEquals(v0, dSrv.getDataVersion());
+    }
+}
@@ -24,8 +24,10 @@ import static org.apache.jena.fuseki.Fuseki.serverLog;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServlet;
@@ -388,6 +390,7 @@ public class FusekiServer {
         private boolean                  networkLoopback    = false;
         private int                      minThreads         = -1;
         private int                      maxThreads         = -1;
+        private Executor                 requestExecutor    = null;
 
         private boolean                  verbose            = false;
         private boolean                  withCompact        = false;
@@ -569,6 +572,38 @@ public class FusekiServer {
             return this;
         }
 
+        /**
+         * Process requests on virtual threads, one per request, instead of the Jetty
+         * thread pool. A Jetty thread is released while the request is processed, so
+         * requests that wait, such as queries calling a remote SERVICE, do not use up
+         * the server threads.
+         * <p>
+         * Virtual threads need JDK 21 or later. If they are not available, a warning
+         * is logged and requests are processed on the Jetty thread pool.
+         * @see #requestExecutor(Executor)
+         */
+        public Builder virtualThreads(boolean withVirtualThreads) {
+            if ( ! withVirtualThreads ) {
+                this.requestExecutor = null;
+                return this;
+            }
+            Executor executor = RequestExecutor.virtualThreads();
+            if ( executor == null )
+                Fuseki.configLog.warn("Virtual threads are not available in this JVM: requests use the server thread pool");
+            this.requestExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Process requests on threads of the {@link Executor}, not on the Jetty
+         * thread pool. Null for processing on the Jetty threads (the default).
+         * @see #virtualThreads(boolean)
+         */
+        public Builder requestExecutor(Executor executor) {
+            this.requestExecutor = executor;
+            return this;
+        }
+
         /** Add the "/$/tasks" servlet that responds with info about tasks run on the server */
         public Builder enableTasks(boolean withTasks) {
             this.withTasks = withTasks;
@@ -1303,6 +1338,8 @@ public class FusekiServer {
             servletAttr.forEach((n,v)->cxt.setAttribute(n, v));
 
             OperationRegistry.set(cxt, operationReg);
+            if ( requestExecutor != null )
+                RequestExecutor.set(cxt, requestExecutor);
             // DataAccessPointRegistry was created by buildStart so does not need copying.
             DataAccessPointRegistry.set(cxt, dapRegistry);
 
@@ -1394,13 +1431,13 @@ public class FusekiServer {
             if ( hasServerWideAuth() ) {
                 Predicate<String> auth = serverAuth::isAllowed;
                 AuthFilter authFilter = new AuthFilter(auth);
-                addFilter(context, "/*", authFilter);
+                addFilterHolder(context, "/*", asyncFilterHolder(authFilter));
             }
 
             // CORS, maybe
             if ( corsInitParams != null ) {
                 Filter corsFilter = new CrossOriginFilter();
-                FilterHolder holder = new FilterHolder(corsFilter);
+                FilterHolder holder = asyncFilterHolder(corsFilter);
                 holder.setInitParameters(corsInitParams);
                 addFilterHolder(context, "/*", holder);
             }
@@ -1408,7 +1445,7 @@ public class FusekiServer {
             // End of chain. May dispatch and not pass on requests.
             // Looks for any URL that starts with a dataset name.
             FusekiFilter ff = new FusekiFilter();
-            addFilter(context, "/*", ff);
+            addFilterHolder(context, "/*", asyncFilterHolder(ff));
 
             // and then any additional servlets and filters.
             if ( withPing )
@@ -1423,7 +1460,14 @@ public class FusekiServer {
                 addServlet(context, "/$/tasks/*", new ActionTasks());
 
             servlets.forEach((pathspecp, servlet) -> addServlet(context, pathspecp, servlet));
-            filters.forEach(pair -> addFilter(context, pair.getLeft(), pair.getRight()));
+            filters.forEach(pair -> {
+                FilterHolder holder = new FilterHolder(pair.getRight());
+                // Requests not handled by an asynchronous FusekiFilter return by an ASYNC dispatch.
+                EnumSet<DispatcherType> dispatches = ( requestExecutor == null )
+                    ? EnumSet.of(DispatcherType.REQUEST)
+                    : EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC);
+                context.addFilter(holder, pair.getLeft(), dispatches);
+            });
 
             // Finally, drop to state content if configured.
             if ( staticContentDir != null ) {
@@ -1464,12 +1508,16 @@ public class FusekiServer {
 
         private static void addServlet(ServletContextHandler context, String pathspec, HttpServlet httpServlet) {
             ServletHolder sh = new ServletHolder(httpServlet);
+            // Needed for processing with a RequestExecutor.
+            sh.setAsyncSupported(true);
             context.addServlet(sh, pathspec);
         }
 
-        private static void addFilter(ServletContextHandler context, String pathspec, Filter filter) {
+        /** Filter holder for a filter that allows requests to be processed with a {@link RequestExecutor}. */
+        private static FilterHolder asyncFilterHolder(Filter filter) {
             FilterHolder holder = new FilterHolder(filter);
-            addFilterHolder(context, pathspec, holder);
+            holder.setAsyncSupported(true);
+            return holder;
         }
 
         private static void addFilterHolder(ServletContextHandler context, String pathspec, FilterHolder holder) {
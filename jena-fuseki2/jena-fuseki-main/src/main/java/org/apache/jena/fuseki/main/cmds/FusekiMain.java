@@ -93,6 +93,7 @@ public class FusekiMain extends CmdARQ {
     private static ArgDecl  argWithStats    = new ArgDecl(ArgDecl.NoValue,  "withStats", "stats");
     private static ArgDecl  argWithMetrics  = new ArgDecl(ArgDecl.NoValue,  "withMetrics", "metrics");
     private static ArgDecl  argWithCompact  = new ArgDecl(ArgDecl.NoValue,  "withCompact", "compact");
+    private static ArgDecl  argVirtualThreads = new ArgDecl(ArgDecl.NoValue, "virtual-threads", "virtualThreads");
 
     private static ArgDecl  argAuth         = new ArgDecl(ArgDecl.HasValue, "auth");
 
@@ -192,6 +193,7 @@ public class FusekiMain extends CmdARQ {
         add(argWithStats,   "--stats",      "Enable /$/stats");
         add(argWithMetrics, "--metrics",    "Enable /$/metrics");
         add(argWithCompact, "--compact",    "Enable /$/compact/*");
+        add(argVirtualThreads, "--virtual-threads", "Process requests on virtual threads (JDK 21 and later)");
 
         super.modVersion.addClass(Fuseki.class);
     }
@@ -452,6 +454,7 @@ public class FusekiMain extends CmdARQ {
         serverConfig.withStats = contains(argWithStats);
         serverConfig.withMetrics = contains(argWithMetrics);
         serverConfig.withCompact = contains(argWithCompact);
+        serverConfig.virtualThreads = contains(argVirtualThreads);
     }
 
     private int portNumber(ArgDecl arg) {
@@ -569,6 +572,9 @@ public class FusekiMain extends CmdARQ {
         if ( serverConfig.withCompact )
             builder.enableCompact(true);
 
+        if ( serverConfig.virtualThreads )
+            builder.virtualThreads(true);
+
         return builder.build();
     }
 
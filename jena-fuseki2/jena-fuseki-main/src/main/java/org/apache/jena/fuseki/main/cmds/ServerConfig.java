@@ -51,6 +51,7 @@ class ServerConfig {
     public boolean withStats          = false;
     public boolean withMetrics        = false;
     public boolean withCompact        = false;
+    public boolean virtualThreads     = false;
 
     // This is set ...
     public DatasetGraph dsg           = null;
@@ -45,6 +45,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
   , TestQuery.class
   , TestSPARQLProtocol.class
+  , TestRequestExecutor.class
 
   // Test ping.
   , TestMetrics.class
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.fuseki.main;
+
+import static org.apache.jena.fuseki.main.FusekiTestLib.expectQueryFail;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.fuseki.server.DataService;
+import org.apache.jena.fuseki.server.Operation;
+import org.apache.jena.fuseki.server.QueryAdmission;
+import org.apache.jena.http.HttpOp;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.http.QueryExecHTTP;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.web.HttpSC;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Test Fuseki processing requests on a {@link FusekiServer.Builder#requestExecutor request executor}. */
+public class TestRequestExecutor {
+
+    private static FusekiServer server = null;
+    private static ExecutorService executorService = null;
+    private static String serverURL;
+
+    // Tasks run by the request executor.
+    private static AtomicInteger tasks = new AtomicInteger(0);
+    // Requests seen by the user filter.
+    private static AtomicInteger filtered = new AtomicInteger(0);
+    private static QueryAdmission admission = new QueryAdmission(1, QueryAdmission.Unlimited, 0);
+
+    @BeforeClass
+    public static void beforeClass() {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem();
+        Txn.executeWrite(dsg, ()->{
+            dsg.add(SSE.parseQuad("(_ :s :p 1)"));
+            dsg.add(SSE.parseQuad("(_ :s :p 2)"));
+        });
+        DataService dataService = DataService.newBuilder(dsg)
+            .addEndpoint(Operation.Query, "query")
+            .setQueryAdmission(admission)
+            .build();
+        executorService = Executors.newCachedThreadPool();
+        server = FusekiServer.create()
+            .port(0)
+            .requestExecutor(task -> {
+                tasks.incrementAndGet();
+                executorService.execute(task);
+            })
+            .add("/ds", dataService)
+            // Under the dataset, not a service of the dataset.
+            .addServlet("/ds/myServlet", new MyServlet())
+            .addFilter("/*", new MyFilter())
+            .build();
+        server.start();
+        serverURL = "http://localhost:" + server.getPort();
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        if ( server != null )
+            server.stop();
+        if ( executorService != null )
+            executorService.shutdownNow();
+    }
+
+    @Before
+    public void before() {
+        tasks.set(0);
+        filtered.set(0);
+    }
+
+    private static class MyServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            resp.getOutputStream().print("SERVLET");
+            resp.setStatus(200);
+        }
+    }
+
+    private static class MyFilter implements Filter {
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+            filtered.incrementAndGet();
+            chain.doFilter(request, response);
+        }
+    }
+
+    @Test public void requestExecutor_query() {
+        query(serverURL+"/ds/query", "SELECT * { ?s ?p ?o }", qExec->{
+            assertEquals(2, Iter.count(qExec.select()));
+        });
+        assertTrue(tasks.get() > 0);
+    }
+
+    @Test public void requestExecutor_redispatch() {
+        // Not handled by the dataset: dispatched again, through the filter, to the servlet.
+        String x = HttpOp.httpGetString(serverURL+"/ds/myServlet");
+        assertEquals("SERVLET", x);
+        assertTrue(tasks.get() > 0);
+        assertTrue(filtered.get() > 0);
+    }
+
+    @Test public void requestExecutor_admission() {
+        // Take the only place for a query.
+        assertTrue(admission.acquire(false));
+        try {
+            expectQueryFail(()->query(serverURL+"/ds/query", "ASK {}", qExec->qExec.ask()),
+                            HttpSC.Code.SERVICE_UNAVAILABLE);
+        } finally {
+            admission.release(false);
+        }
+        // Admitted again.
+        query(serverURL+"/ds/query", "ASK { ?s ?p ?o }", qExec->assertTrue(qExec.ask()));
+    }
+
+    private static void query(String URL, String query, Consumer<QueryExec> body) {
+        try (QueryExec qExec = QueryExecHTTP.newBuilder().endpoint(URL).queryString(query).build() ) {
+            body.accept(qExec);
+        }
+    }
+}
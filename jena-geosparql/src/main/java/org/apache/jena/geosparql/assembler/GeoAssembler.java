@@ -117,6 +117,11 @@ public class GeoAssembler extends DatasetAssembler {
         if (root.hasProperty(pSpatialIndexFile) )
             spatialIndexFilename = GraphUtils.getStringValue(root, pSpatialIndexFile);
 
+        // Persistent spatial index, updated as the dataset changes. Takes precedence over the spatial index file.
+        String spatialIndexDirectory = null;
+        if (root.hasProperty(pSpatialIndexDirectory) )
+            spatialIndexDirectory = GraphUtils.getStringValue(root, pSpatialIndexDirectory);
+
         // ---- Build
 
         Dataset dataset = DatasetFactory.wrap(base);
@@ -148,10 +153,25 @@ public class GeoAssembler extends DatasetAssembler {
             GeoSPARQLConfig.setupNoIndex(queryRewrite);
         }
 
+        if ( spatialIndexDirectory != null )
+            return preparePersistentSpatialIndex(dataset, spatialIndexDirectory);
+
         prepareSpatialExtension(dataset, spatialIndexFilename);
         return base;
     }
 
+    private static DatasetGraph preparePersistentSpatialIndex(Dataset dataset, String spatialIndexDirectory) {
+        try {
+            Dataset indexed = GeoSPARQLConfig.setupPersistentSpatialIndex(dataset, Path.of(spatialIndexDirectory).toFile());
+            return indexed.asDatasetGraph();
+        }
+        catch (SpatialIndexException ex) {
+            String msg = "Failed to create spatial index: "+ex.getMessage();
+            LOG.error(msg);
+            throw new JenaException(msg, ex);
+        }
+    }
+
     private static List<Integer> getListInteger(Resource r, Property p, int len) {
         String integers = GraphUtils.getStringValue(r, p);
         String[] values = integers.split(",");
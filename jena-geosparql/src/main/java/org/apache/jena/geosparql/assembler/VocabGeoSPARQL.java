@@ -73,6 +73,9 @@ public class VocabGeoSPARQL {
     // "File to load or store the spatial index. Default to " + SPATIAL_INDEX_FILE + " in TDB folder if using TDB and not set. Otherwise spatial index is not stored.
     public static final Property pSpatialIndexFile = property("spatialIndexFile");
 
+    // "Directory for a persistent spatial index, which is updated when the dataset changes."
+    public static final Property pSpatialIndexDirectory = property("spatialIndexDirectory");
+
     // Dataset
     public static final Property pDataset = property("dataset");
 }
@@ -26,9 +26,13 @@ import org.apache.jena.geosparql.implementation.index.IndexConfiguration.IndexOp
 import org.apache.jena.geosparql.implementation.index.QueryRewriteIndex;
 import org.apache.jena.geosparql.implementation.registry.SRSRegistry;
 import org.apache.jena.geosparql.implementation.vocabulary.Geo;
+import org.apache.jena.geosparql.spatial.DatasetGraphSpatialIndex;
 import org.apache.jena.geosparql.spatial.SpatialIndex;
+import org.apache.jena.geosparql.spatial.SpatialIndexDisk;
 import org.apache.jena.geosparql.spatial.SpatialIndexException;
 import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.function.FunctionRegistry;
 import org.apache.jena.sparql.pfunction.PropertyFunctionRegistry;
 
@@ -313,6 +317,24 @@ public class GeoSPARQLConfig {
         SpatialIndex.buildSpatialIndex(dataset, srsURI, spatialIndexFile);
     }
 
+    /**
+     * Setup a persistent Spatial Index in a directory, which is kept up to date
+     * as the Dataset changes.<br>
+     * The Spatial Index is opened if the directory contains one, otherwise it is
+     * built from the Dataset using the most frequent SRS URI in the Dataset.<br>
+     * Changes must be made through the returned Dataset to be indexed.
+     *
+     * @param dataset
+     * @param spatialIndexDirectory
+     * @return Dataset that updates the Spatial Index on commit.
+     * @throws SpatialIndexException
+     */
+    public static final Dataset setupPersistentSpatialIndex(Dataset dataset, File spatialIndexDirectory) throws SpatialIndexException {
+        SpatialIndexDisk spatialIndex = SpatialIndexDisk.buildSpatialIndex(dataset, spatialIndexDirectory.toPath());
+        DatasetGraph dsg = DatasetGraphSpatialIndex.wrap(dataset.asDatasetGraph(), spatialIndex);
+        return DatasetFactory.wrap(dsg);
+    }
+
     /**
      * Set the number of decimal places precision used in calculations and
      * coordinate transformations. Inaccuracies exist in these calculations and
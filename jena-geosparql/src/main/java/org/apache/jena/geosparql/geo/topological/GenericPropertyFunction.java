@@ -20,6 +20,7 @@ package org.apache.jena.geosparql.geo.topological;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.geosparql.geof.topological.GenericFilterFunction;
 import org.apache.jena.geosparql.implementation.GeometryWrapper;
 import org.apache.jena.geosparql.implementation.index.QueryRewriteIndex;
@@ -40,6 +41,7 @@ import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.binding.BindingFactory;
 import org.apache.jena.sparql.engine.iterator.QueryIterConcat;
 import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
 import org.apache.jena.sparql.engine.iterator.QueryIterSingleton;
 import org.apache.jena.sparql.expr.ExprEvalException;
 import org.apache.jena.sparql.pfunction.PFuncSimple;
@@ -107,17 +109,14 @@ public abstract class GenericPropertyFunction extends PFuncSimple {
 
         Graph graph = execCxt.getActiveGraph();
 
-        //Search for both Features and Geometry in the Graph. Reliant upon consistent usage of SpatialObject (which is base class of Feature and Geometry) if present.
-        ExtendedIterator<Triple> subjectTriples;
-        if (graph.contains(null, RDF.type.asNode(), Geo.SPATIAL_OBJECT_NODE)) {
-            subjectTriples = graph.find(null, RDF.type.asNode(), Geo.SPATIAL_OBJECT_NODE);
-        } else if (graph.contains(null, RDF.type.asNode(), Geo.FEATURE_NODE) || graph.contains(null, RDF.type.asNode(), Geo.GEOMETRY_NODE)) {
-            ExtendedIterator<Triple> featureTriples = graph.find(null, RDF.type.asNode(), Geo.FEATURE_NODE);
-            ExtendedIterator<Triple> geometryTriples = graph.find(null, RDF.type.asNode(), Geo.GEOMETRY_NODE);
-            subjectTriples = featureTriples.andThen(geometryTriples);
-        } else {
-            //Check for Geo Predicate Features in the Graph if no GeometryLiterals found.
-            subjectTriples = graph.find(null, SpatialExtension.GEO_LAT_NODE, null);
+        ExtendedIterator<Triple> subjectTriples = findSpatialTriples(graph);
+
+        //Relations that require the geometries to intersect are found by a spatial join rather than testing every pair.
+        if (!filterFunction.isDisjoint() && !filterFunction.isDisconnected() && !subject.equals(object)) {
+            Var objectVar = Var.alloc(object.getName());
+            List<Node> subjects = Iter.toList(Iter.map(subjectTriples, Triple::getSubject));
+            SpatialJoin spatialJoin = new SpatialJoin(graph, predicate, this, QueryRewriteIndex.retrieve(execCxt), findSpatialIndex(execCxt), subjects);
+            return QueryIterPlainWrapper.create(spatialJoin.exec(binding, subjectVar, objectVar), execCxt);
         }
 
         //Bind all the Spatial Objects or Geo Predicates once as the subject and search for corresponding Objects.
@@ -132,6 +131,44 @@ public abstract class GenericPropertyFunction extends PFuncSimple {
         return queryIterConcat;
     }
 
+    /**
+     * Search for both Features and Geometry in the Graph. Reliant upon
+     * consistent usage of SpatialObject (which is base class of Feature and
+     * Geometry) if present.
+     *
+     * @param graph
+     * @return Triples with the Spatial Objects as subject.
+     */
+    private static ExtendedIterator<Triple> findSpatialTriples(Graph graph) {
+        if (graph.contains(null, RDF.type.asNode(), Geo.SPATIAL_OBJECT_NODE)) {
+            return graph.find(null, RDF.type.asNode(), Geo.SPATIAL_OBJECT_NODE);
+        } else if (graph.contains(null, RDF.type.asNode(), Geo.FEATURE_NODE) || graph.contains(null, RDF.type.asNode(), Geo.GEOMETRY_NODE)) {
+            ExtendedIterator<Triple> featureTriples = graph.find(null, RDF.type.asNode(), Geo.FEATURE_NODE);
+            ExtendedIterator<Triple> geometryTriples = graph.find(null, RDF.type.asNode(), Geo.GEOMETRY_NODE);
+            return featureTriples.andThen(geometryTriples);
+        } else {
+            //Check for Geo Predicate Features in the Graph if no GeometryLiterals found.
+            return graph.find(null, SpatialExtension.GEO_LAT_NODE, null);
+        }
+    }
+
+    /**
+     * Spatial Index of the Dataset, if there is one.
+     *
+     * @param execCxt
+     * @return SpatialIndex or null.
+     */
+    private static SpatialIndex findSpatialIndex(ExecutionContext execCxt) {
+        if (!SpatialIndex.isDefined(execCxt)) {
+            return null;
+        }
+        try {
+            return SpatialIndex.retrieve(execCxt);
+        } catch (SpatialIndexException ex) {
+            throw new ExprEvalException(ex.getMessage(), ex);
+        }
+    }
+
     private QueryIterator oneBound(Binding binding, Node subject, Node predicate, Node object, ExecutionContext execCxt) {
 
         Graph graph = execCxt.getActiveGraph();
@@ -176,18 +213,7 @@ public abstract class GenericPropertyFunction extends PFuncSimple {
         Var unboundVar = Var.alloc(unboundNode.getName());
         QueryIterConcat queryIterConcat = new QueryIterConcat(execCxt);
 
-        //Search for both Features and Geometry in the Graph. Reliant upon consistent usage of SpatialObject (which is base class of Feature and Geometry) if present.
-        ExtendedIterator<Triple> spatialTriples;
-        if (graph.contains(null, RDF.type.asNode(), Geo.SPATIAL_OBJECT_NODE)) {
-            spatialTriples = graph.find(null, RDF.type.asNode(), Geo.SPATIAL_OBJECT_NODE);
-        } else if (graph.contains(null, RDF.type.asNode(), Geo.FEATURE_NODE) || graph.contains(null, RDF.type.asNode(), Geo.GEOMETRY_NODE)) {
-            ExtendedIterator<Triple> featureTriples = graph.find(null, RDF.type.asNode(), Geo.FEATURE_NODE);
-            ExtendedIterator<Triple> geometryTriples = graph.find(null, RDF.type.asNode(), Geo.GEOMETRY_NODE);
-            spatialTriples = featureTriples.andThen(geometryTriples);
-        } else {
-            //Check for Geo Predicate Features in the Graph if no GeometryLiterals found.
-            spatialTriples = graph.find(null, SpatialExtension.GEO_LAT_NODE, null);
-        }
+        ExtendedIterator<Triple> spatialTriples = findSpatialTriples(graph);
 
         while (spatialTriples.hasNext()) {
             Triple spatialTriple = spatialTriples.next();
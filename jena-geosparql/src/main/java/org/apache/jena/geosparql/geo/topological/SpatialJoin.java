@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.geosparql.geo.topological;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.datatypes.DatatypeFormatException;
+import org.apache.jena.geosparql.implementation.GeometryWrapper;
+import org.apache.jena.geosparql.implementation.SRSInfo;
+import org.apache.jena.geosparql.implementation.index.QueryRewriteIndex;
+import org.apache.jena.geosparql.implementation.vocabulary.Geo;
+import org.apache.jena.geosparql.spatial.SpatialIndex;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.util.FmtUtils;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.util.FactoryException;
+
+/**
+ * Spatial join of the Spatial Objects in a Graph for a topological relation
+ * with both subject and object unbound.<br>
+ * The results are the same, in the same order, as binding each Spatial Object
+ * as the subject in turn:<br>
+ * With a Spatial Index, the asserted objects of the subject and then the
+ * Features found by searching the index with the envelope of the subject, and
+ * their Geometries, that pass the test.<br>
+ * Without a Spatial Index, the Spatial Objects that are asserted objects of the
+ * subject or that pass the test. Their envelopes, in a common SRS, are placed
+ * in an STRtree built for the query and each subject is only tested against the
+ * Spatial Objects whose envelopes intersect its own, so the relation must not
+ * hold for disjoint geometries.<br>
+ * The Geometry Literal of each Spatial Object is found once.
+ */
+class SpatialJoin {
+
+    private final Graph graph;
+    private final Node predicate;
+    private final Property predicateProp;
+    private final GenericPropertyFunction propertyFunction;
+    private final QueryRewriteIndex queryRewriteIndex;
+    private final SpatialIndex spatialIndex;
+
+    //Geometry Literal of each Spatial Object, null if it has none.
+    private final Map<Node, Node> geometryLiterals = new HashMap<>();
+
+    //Without a Spatial Index: the Spatial Objects as candidate objects, in order.
+    private final List<Node> objects;
+    private final Map<Node, List<Integer>> objectPositions = new HashMap<>();
+    private final List<Envelope> objectEnvelopes = new ArrayList<>();
+    private final STRtree objectTree = new STRtree();
+    private final Map<Node, Envelope> spatialEnvelopes = new HashMap<>();
+
+    /**
+     *
+     * @param graph
+     * @param predicate
+     * @param propertyFunction
+     * @param queryRewriteIndex
+     * @param spatialIndex Spatial Index of the Dataset, null if there is none.
+     * @param spatialObjects Spatial Objects of the Graph, in the order they are
+     * bound as the subject.
+     */
+    SpatialJoin(Graph graph, Node predicate, GenericPropertyFunction propertyFunction, QueryRewriteIndex queryRewriteIndex, SpatialIndex spatialIndex, List<Node> spatialObjects) {
+        this.graph = graph;
+        this.predicate = predicate;
+        this.predicateProp = ResourceFactory.createProperty(predicate.getURI());
+        this.propertyFunction = propertyFunction;
+        this.queryRewriteIndex = queryRewriteIndex;
+        this.spatialIndex = spatialIndex;
+        this.objects = spatialObjects;
+
+        if (spatialIndex == null) {
+            build();
+        }
+    }
+
+    private void build() {
+
+        //Envelopes are in the SRS of the first Geometry Literal.
+        SRSInfo srsInfo = null;
+
+        for (int position = 0; position < objects.size(); position++) {
+            Node spatialObject = objects.get(position);
+            objectPositions.computeIfAbsent(spatialObject, k -> new ArrayList<>()).add(position);
+            Envelope envelope = null;
+            //Without query rewrite only the asserted relations are returned.
+            if (queryRewriteIndex.isIndexActive()) {
+                Node geometryLiteral = geometryLiteral(spatialObject);
+                if (geometryLiteral != null) {
+                    envelope = spatialEnvelopes.get(spatialObject);
+                    if (envelope == null) {
+                        GeometryWrapper geometry = extract(spatialObject, geometryLiteral);
+                        if (srsInfo == null) {
+                            srsInfo = geometry.getSrsInfo();
+                        }
+                        envelope = transform(spatialObject, geometry, srsInfo).getEnvelope();
+                        spatialEnvelopes.put(spatialObject, envelope);
+                    }
+                    //Empty geometries are not inserted and never match.
+                    objectTree.insert(envelope, position);
+                }
+            }
+            objectEnvelopes.add(envelope);
+        }
+        objectTree.build();
+    }
+
+    /**
+     * Bindings for each of the subjects and all the objects it has the
+     * relation with.
+     *
+     * @param binding
+     * @param subjectVar
+     * @param objectVar
+     * @return Bindings of subject and object.
+     */
+    Iterator<Binding> exec(Binding binding, Var subjectVar, Var objectVar) {
+        return Iter.flatMap(objects.iterator(), subject -> {
+            Binding subjectBind = BindingFactory.binding(binding, subjectVar, subject);
+            return Iter.map(findObjects(subject).iterator(), object -> BindingFactory.binding(subjectBind, objectVar, object));
+        });
+    }
+
+    /**
+     * Objects that the subject has the relation with.
+     *
+     * @param subject
+     * @return Objects of the relation.
+     */
+    List<Node> findObjects(Node subject) {
+        return spatialIndex != null ? findIndex(subject) : findTree(subject);
+    }
+
+    private List<Node> findIndex(Node subject) {
+
+        List<Node> results = findAsserted(subject);
+        Node subjectLiteral = geometryLiteral(subject);
+        if (subjectLiteral == null) {
+            return results;
+        }
+
+        GeometryWrapper geometry = extract(subject, subjectLiteral);
+        Envelope searchEnvelope = transform(subject, geometry, spatialIndex.getSrsInfo()).getEnvelope();
+        HashSet<Resource> features = spatialIndex.query(searchEnvelope);
+        Set<Node> asserted = new HashSet<>(results);
+        for (Resource feature : features) {
+            Node featureNode = feature.asNode();
+            if (!asserted.contains(featureNode) && test(subjectLiteral, featureNode)) {
+                results.add(featureNode);
+            }
+
+            //Also test all Geometry of the Features. All, some or one Geometry may have matched.
+            ExtendedIterator<Triple> featureGeometryTriples = graph.find(featureNode, Geo.HAS_GEOMETRY_NODE, null);
+            try {
+                while (featureGeometryTriples.hasNext()) {
+                    Node geomNode = featureGeometryTriples.next().getObject();
+                    if (!asserted.contains(geomNode) && test(subjectLiteral, geomNode)) {
+                        results.add(geomNode);
+                    }
+                }
+            } finally {
+                featureGeometryTriples.close();
+            }
+        }
+        return results;
+    }
+
+    private List<Node> findTree(Node subject) {
+
+        //Positions of the candidate objects that are asserted or that may pass the test.
+        Set<Integer> assertedPositions = new HashSet<>();
+        for (Node object : findAsserted(subject)) {
+            assertedPositions.addAll(objectPositions.getOrDefault(object, Collections.emptyList()));
+        }
+        TreeSet<Integer> candidates = new TreeSet<>(assertedPositions);
+
+        Node subjectLiteral = null;
+        Envelope subjectEnvelope = spatialEnvelopes.get(subject);
+        if (subjectEnvelope != null) {
+            subjectLiteral = geometryLiteral(subject);
+            @SuppressWarnings("unchecked")
+            List<Integer> positions = objectTree.query(subjectEnvelope);
+            for (Integer position : positions) {
+                if (objectEnvelopes.get(position).intersects(subjectEnvelope)) {
+                    candidates.add(position);
+                }
+            }
+        }
+
+        //Same order as the Spatial Objects.
+        List<Node> results = new ArrayList<>();
+        for (Integer position : candidates) {
+            Node object = objects.get(position);
+            if (assertedPositions.contains(position) || test(subjectLiteral, object)) {
+                results.add(object);
+            }
+        }
+        return results;
+    }
+
+    private List<Node> findAsserted(Node subject) {
+        List<Node> asserted = new ArrayList<>();
+        ExtendedIterator<Triple> assertedTriples = graph.find(subject, predicate, null);
+        try {
+            while (assertedTriples.hasNext()) {
+                asserted.add(assertedTriples.next().getObject());
+            }
+        } finally {
+            assertedTriples.close();
+        }
+        return asserted;
+    }
+
+    /**
+     * Test the relation of a subject, with a Geometry Literal, and an object
+     * that is not an asserted object of the subject.
+     */
+    private boolean test(Node subjectLiteral, Node object) {
+        if (!queryRewriteIndex.isIndexActive()) {
+            return false;
+        }
+        Node objectLiteral = geometryLiteral(object);
+        if (objectLiteral == null) {
+            return false;
+        }
+        return queryRewriteIndex.test(subjectLiteral, predicateProp, objectLiteral, propertyFunction);
+    }
+
+    private Node geometryLiteral(Node spatialObject) {
+        if (geometryLiterals.containsKey(spatialObject)) {
+            return geometryLiterals.get(spatialObject);
+        }
+        SpatialObjectGeometryLiteral spatialLiteral = SpatialObjectGeometryLiteral.retrieve(graph, spatialObject);
+        //Not a Feature or a Geometry or there is no GeometryLiteral so only asserted relations.
+        Node geometryLiteral = spatialLiteral.isValid() ? spatialLiteral.getGeometryLiteral() : null;
+        geometryLiterals.put(spatialObject, geometryLiteral);
+        return geometryLiteral;
+    }
+
+    private static GeometryWrapper extract(Node spatialObject, Node geometryLiteral) {
+        try {
+            return GeometryWrapper.extract(geometryLiteral);
+        } catch (DatatypeFormatException ex) {
+            throw new ExprEvalException(ex.getMessage() + ": " + FmtUtils.stringForNode(spatialObject) + ", " + FmtUtils.stringForNode(geometryLiteral), ex);
+        }
+    }
+
+    private static GeometryWrapper transform(Node spatialObject, GeometryWrapper geometry, SRSInfo srsInfo) {
+        try {
+            return geometry.transform(srsInfo);
+        } catch (MismatchedDimensionException | TransformException | FactoryException ex) {
+            throw new ExprEvalException(ex.getMessage() + ": " + FmtUtils.stringForNode(spatialObject), ex);
+        }
+    }
+
+}
@@ -67,12 +67,13 @@ import org.slf4j.LoggerFactory;
 public class GeometryWrapper implements Serializable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final int[] INTERSECTION_CELLS = {0, 1, 3, 4};
 
     private final DimensionInfo dimensionInfo;
     private final SRSInfo srsInfo;
     private final Geometry xyGeometry;
     private final Geometry parsingGeometry;
-    private PreparedGeometry preparedGeometry;
+    private transient volatile PreparedGeometry preparedGeometry;
     private Envelope envelope;
     private Geometry translateXYGeometry;
     private final String geometryDatatypeURI;
@@ -112,7 +113,7 @@ public class GeometryWrapper implements Serializable {
 
         this.parsingGeometry = parsingGeometry;
         this.xyGeometry = xyGeometry;
-        this.preparedGeometry = null; //Initialised when required by spatial relations checkPreparedGeometry.
+        this.preparedGeometry = null; //Initialised when required by spatial relations getPreparedGeometry.
         this.envelope = null; //Initialised when required by getEnvelope().
         this.translateXYGeometry = null; //Initialised when required by translateGeometry().
         this.geometryDatatypeURI = geometryDatatypeURI;
@@ -267,13 +268,75 @@ public class GeometryWrapper implements Serializable {
     }
 
     /**
-     * Checks whether the prepared geometry has been initialised.
-     * <br>Done lazily as expensive.
+     * Prepared geometry, initialised lazily.
+     * <br>Retained for as long as the GeometryWrapper, e.g. while in the
+     * GeometryLiteralIndex, so a frequently used operand is prepared once.
+     *
+     * @return Prepared geometry of the XY geometry.
+     */
+    private PreparedGeometry getPreparedGeometry() {
+        PreparedGeometry prepared = preparedGeometry;
+        if (prepared == null) {
+            prepared = PreparedGeometryFactory.prepare(xyGeometry);
+            preparedGeometry = prepared;
+        }
+        return prepared;
+    }
+
+    /**
+     * Intersects test using the prepared geometry of the operand with more
+     * points, which gains most from preparation.
+     *
+     * @param transformedGeometry In the same SRS as this GeometryWrapper.
+     * @return True if the geometries intersect.
+     */
+    private boolean preparedIntersects(GeometryWrapper transformedGeometry) {
+        if (transformedGeometry.xyGeometry.getNumPoints() > xyGeometry.getNumPoints()) {
+            return transformedGeometry.getPreparedGeometry().intersects(xyGeometry);
+        }
+        return getPreparedGeometry().intersects(transformedGeometry.xyGeometry);
+    }
+
+    /**
+     * Whether the intersection pattern requires the interiors or boundaries of
+     * the geometries to meet, so cannot match geometries that are disjoint.
+     *
+     * @param intersectionPattern
+     * @return True if the pattern requires intersection.
+     */
+    private static boolean isIntersectionRequired(String intersectionPattern) {
+        if (intersectionPattern.length() != 9) {
+            return false;
+        }
+        //Interior-Interior, Interior-Boundary, Boundary-Interior and Boundary-Boundary.
+        for (int i : INTERSECTION_CELLS) {
+            char c = Character.toUpperCase(intersectionPattern.charAt(i));
+            if (c == 'T' || c == '0' || c == '1' || c == '2') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the intersection pattern matches exactly the disjoint geometries,
+     * i.e. "FF*FF****".
+     *
+     * @param intersectionPattern
+     * @return True if the pattern is disjoint.
      */
-    private void checkPreparedGeometry() {
-        if (preparedGeometry == null) {
-            this.preparedGeometry = PreparedGeometryFactory.prepare(xyGeometry);
+    private static boolean isDisjointPattern(String intersectionPattern) {
+        if (intersectionPattern.length() != 9) {
+            return false;
+        }
+        for (int i = 0; i < 9; i++) {
+            char c = Character.toUpperCase(intersectionPattern.charAt(i));
+            boolean isIntersectionCell = i == 0 || i == 1 || i == 3 || i == 4;
+            if (isIntersectionCell ? c != 'F' : c != '*') {
+                return false;
+            }
         }
+        return true;
     }
 
     /**
@@ -761,6 +824,14 @@ public class GeometryWrapper implements Serializable {
      */
     public boolean relate(GeometryWrapper targetGeometry, String intersectionPattern) throws FactoryException, MismatchedDimensionException, TransformException {
         GeometryWrapper transformedGeometry = checkTransformSRS(targetGeometry);
+
+        //Prepared geometries decide intersection without computing the full intersection matrix.
+        if (isDisjointPattern(intersectionPattern)) {
+            return !preparedIntersects(transformedGeometry);
+        }
+        if (isIntersectionRequired(intersectionPattern) && !preparedIntersects(transformedGeometry)) {
+            return false;
+        }
         return xyGeometry.relate(transformedGeometry.xyGeometry, intersectionPattern);
     }
 
@@ -800,9 +871,8 @@ public class GeometryWrapper implements Serializable {
      * @throws org.opengis.referencing.operation.TransformException
      */
     public boolean contains(GeometryWrapper targetGeometry) throws FactoryException, MismatchedDimensionException, TransformException {
-        this.checkPreparedGeometry();
         GeometryWrapper transformedGeometry = checkTransformSRS(targetGeometry);
-        return this.preparedGeometry.contains(transformedGeometry.xyGeometry);
+        return getPreparedGeometry().contains(transformedGeometry.xyGeometry);
     }
 
     /**
@@ -813,9 +883,8 @@ public class GeometryWrapper implements Serializable {
      * @throws org.opengis.referencing.operation.TransformException
      */
     public boolean crosses(GeometryWrapper targetGeometry) throws FactoryException, MismatchedDimensionException, TransformException {
-        this.checkPreparedGeometry();
         GeometryWrapper transformedGeometry = checkTransformSRS(targetGeometry);
-        return this.preparedGeometry.crosses(transformedGeometry.xyGeometry);
+        return getPreparedGeometry().crosses(transformedGeometry.xyGeometry);
     }
 
     /**
@@ -826,9 +895,8 @@ public class GeometryWrapper implements Serializable {
      * @throws org.opengis.referencing.operation.TransformException
      */
     public boolean disjoint(GeometryWrapper targetGeometry) throws FactoryException, MismatchedDimensionException, TransformException {
-        this.checkPreparedGeometry();
         GeometryWrapper transformedGeometry = checkTransformSRS(targetGeometry);
-        return this.preparedGeometry.disjoint(transformedGeometry.xyGeometry);
+        return !preparedIntersects(transformedGeometry);
     }
 
     /**
@@ -877,9 +945,8 @@ public class GeometryWrapper implements Serializable {
      * @throws org.opengis.referencing.operation.TransformException
      */
     public boolean intersects(GeometryWrapper targetGeometry) throws FactoryException, MismatchedDimensionException, TransformException {
-        this.checkPreparedGeometry();
         GeometryWrapper transformedGeometry = checkTransformSRS(targetGeometry);
-        return this.preparedGeometry.intersects(transformedGeometry.xyGeometry);
+        return preparedIntersects(transformedGeometry);
     }
 
     /**
@@ -890,9 +957,8 @@ public class GeometryWrapper implements Serializable {
      * @throws org.opengis.referencing.operation.TransformException
      */
     public boolean overlaps(GeometryWrapper targetGeometry) throws FactoryException, MismatchedDimensionException, TransformException {
-        this.checkPreparedGeometry();
         GeometryWrapper transformedGeometry = checkTransformSRS(targetGeometry);
-        return this.preparedGeometry.overlaps(transformedGeometry.xyGeometry);
+        return getPreparedGeometry().overlaps(transformedGeometry.xyGeometry);
     }
 
     /**
@@ -903,9 +969,8 @@ public class GeometryWrapper implements Serializable {
      * @throws org.opengis.referencing.operation.TransformException
      */
     public boolean touches(GeometryWrapper targetGeometry) throws FactoryException, MismatchedDimensionException, TransformException {
-        this.checkPreparedGeometry();
         GeometryWrapper transformedGeometry = checkTransformSRS(targetGeometry);
-        return this.preparedGeometry.touches(transformedGeometry.xyGeometry);
+        return getPreparedGeometry().touches(transformedGeometry.xyGeometry);
     }
 
     /**
@@ -916,9 +981,12 @@ public class GeometryWrapper implements Serializable {
      * @throws org.opengis.referencing.operation.TransformException
      */
     public boolean within(GeometryWrapper targetGeometry) throws FactoryException, MismatchedDimensionException, TransformException {
-        this.checkPreparedGeometry();
         GeometryWrapper transformedGeometry = checkTransformSRS(targetGeometry);
-        return this.preparedGeometry.within(transformedGeometry.xyGeometry);
+        //Within is the converse of contains, which is accelerated for a prepared target, e.g. a region.
+        if (transformedGeometry.xyGeometry.getNumPoints() > xyGeometry.getNumPoints()) {
+            return transformedGeometry.getPreparedGeometry().contains(xyGeometry);
+        }
+        return getPreparedGeometry().within(transformedGeometry.xyGeometry);
     }
 
     /**
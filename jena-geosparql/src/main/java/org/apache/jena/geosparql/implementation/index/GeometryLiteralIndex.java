@@ -17,10 +17,8 @@
  */
 package org.apache.jena.geosparql.implementation.index;
 
-import io.github.galbiston.expiring_map.ExpiringMap;
 import static io.github.galbiston.expiring_map.MapDefaultValues.MAP_EXPIRY_INTERVAL;
 import static io.github.galbiston.expiring_map.MapDefaultValues.UNLIMITED_MAP;
-import java.util.Map;
 import org.apache.jena.geosparql.implementation.GeometryWrapper;
 import org.apache.jena.geosparql.implementation.datatype.GeometryDatatype;
 
@@ -33,8 +31,8 @@ public class GeometryLiteralIndex {
     private static boolean INDEX_ACTIVE = false;
     private static final String PRIMARY_INDEX_LABEL = "Primary Geometry Literal Index";
     private static final String SECONDARY_INDEX_LABEL = "Secondary Geometry Literal Index";
-    private static ExpiringMap<String, GeometryWrapper> PRIMARY_INDEX = new ExpiringMap<>(PRIMARY_INDEX_LABEL, UNLIMITED_MAP, MAP_EXPIRY_INTERVAL);
-    private static ExpiringMap<String, GeometryWrapper> SECONDARY_INDEX = new ExpiringMap<>(SECONDARY_INDEX_LABEL, UNLIMITED_MAP, MAP_EXPIRY_INTERVAL);
+    private static GeometryWrapperCache PRIMARY_INDEX = new GeometryWrapperCache(PRIMARY_INDEX_LABEL, UNLIMITED_MAP, MAP_EXPIRY_INTERVAL);
+    private static GeometryWrapperCache SECONDARY_INDEX = new GeometryWrapperCache(SECONDARY_INDEX_LABEL, UNLIMITED_MAP, MAP_EXPIRY_INTERVAL);
 
     public enum GeometryIndex {
         PRIMARY, SECONDARY
@@ -54,7 +52,7 @@ public class GeometryLiteralIndex {
         return geometryWrapper;
     }
 
-    private static GeometryWrapper retrieveMemoryIndex(String geometryLiteral, GeometryDatatype geometryDatatype, Map<String, GeometryWrapper> index, Map<String, GeometryWrapper> otherIndex) {
+    private static GeometryWrapper retrieveMemoryIndex(String geometryLiteral, GeometryDatatype geometryDatatype, GeometryWrapperCache index, GeometryWrapperCache otherIndex) {
 
         GeometryWrapper geometryWrapper;
 
@@ -94,6 +92,17 @@ public class GeometryLiteralIndex {
         SECONDARY_INDEX.setMaxSize(maxSize);
     }
 
+    /**
+     * Sets the maximum number of coordinates held by each Geometry Literal
+     * Index.
+     *
+     * @param maxWeight : use -1 for unlimited weight
+     */
+    public static final void setMaxWeight(long maxWeight) {
+        PRIMARY_INDEX.setMaxWeight(maxWeight);
+        SECONDARY_INDEX.setMaxWeight(maxWeight);
+    }
+
     /**
      * Sets the expiry time in milliseconds of the Geometry Literal Indexes, if
      * active.
@@ -121,6 +130,14 @@ public class GeometryLiteralIndex {
         return SECONDARY_INDEX.mappingCount();
     }
 
+    /**
+     *
+     * @return Number of coordinates held in the primary and secondary indexes.
+     */
+    public static final long getIndexWeight() {
+        return PRIMARY_INDEX.getWeight() + SECONDARY_INDEX.getWeight();
+    }
+
     /**
      *
      * @return True if index is active.
@@ -153,8 +170,8 @@ public class GeometryLiteralIndex {
      * @param expiryInterval
      */
     public static void reset(int maxSize, long expiryInterval) {
-        PRIMARY_INDEX = new ExpiringMap<>(PRIMARY_INDEX_LABEL, maxSize, expiryInterval);
-        SECONDARY_INDEX = new ExpiringMap<>(SECONDARY_INDEX_LABEL, maxSize, expiryInterval);
+        PRIMARY_INDEX = new GeometryWrapperCache(PRIMARY_INDEX_LABEL, maxSize, expiryInterval);
+        SECONDARY_INDEX = new GeometryWrapperCache(SECONDARY_INDEX_LABEL, maxSize, expiryInterval);
     }
 
 }
@@ -17,7 +17,6 @@
  */
 package org.apache.jena.geosparql.implementation.index;
 
-import io.github.galbiston.expiring_map.ExpiringMap;
 import static io.github.galbiston.expiring_map.MapDefaultValues.MAP_EXPIRY_INTERVAL;
 import static io.github.galbiston.expiring_map.MapDefaultValues.UNLIMITED_MAP;
 import org.apache.jena.geosparql.implementation.DimensionInfo;
@@ -40,7 +39,7 @@ public class GeometryTransformIndex {
 
     private static boolean INDEX_ACTIVE = false;
     private static final String GEOMETRY_TRANSFORM_LABEL = "Geometry Transform";
-    private static ExpiringMap<String, GeometryWrapper> GEOMETRY_TRANSFORM_INDEX = new ExpiringMap<>(GEOMETRY_TRANSFORM_LABEL, UNLIMITED_MAP, MAP_EXPIRY_INTERVAL);
+    private static GeometryWrapperCache GEOMETRY_TRANSFORM_INDEX = new GeometryWrapperCache(GEOMETRY_TRANSFORM_LABEL, UNLIMITED_MAP, MAP_EXPIRY_INTERVAL);
 
     /**
      *
@@ -102,6 +101,16 @@ public class GeometryTransformIndex {
         GEOMETRY_TRANSFORM_INDEX.setMaxSize(maxSize);
     }
 
+    /**
+     * Sets the maximum number of coordinates held by the Geometry Transform
+     * Index.
+     *
+     * @param maxWeight : use -1 for unlimited weight
+     */
+    public static final void setMaxWeight(long maxWeight) {
+        GEOMETRY_TRANSFORM_INDEX.setMaxWeight(maxWeight);
+    }
+
     /**
      * Sets the expiry time in milliseconds of the Geometry Transform Index, if
      * active.
@@ -120,6 +129,14 @@ public class GeometryTransformIndex {
         return GEOMETRY_TRANSFORM_INDEX.mappingCount();
     }
 
+    /**
+     *
+     * @return Number of coordinates held in the index.
+     */
+    public static final long getGeometryTransformIndexWeight() {
+        return GEOMETRY_TRANSFORM_INDEX.getWeight();
+    }
+
     /**
      *
      * @return True if index is active.
@@ -150,6 +167,6 @@ public class GeometryTransformIndex {
      * @param expiryInterval
      */
     public static void reset(int maxSize, long expiryInterval) {
-        GEOMETRY_TRANSFORM_INDEX = new ExpiringMap<>(GEOMETRY_TRANSFORM_LABEL, maxSize, expiryInterval);
+        GEOMETRY_TRANSFORM_INDEX = new GeometryWrapperCache(GEOMETRY_TRANSFORM_LABEL, maxSize, expiryInterval);
     }
 }
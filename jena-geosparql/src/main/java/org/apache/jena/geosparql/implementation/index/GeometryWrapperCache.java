@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.geosparql.implementation.index;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.jena.geosparql.implementation.GeometryWrapper;
+
+/**
+ * Concurrent cache of GeometryWrappers, bounded by the total number of
+ * coordinates held as well as by number of entries and time since last
+ * use.<br>
+ * GeometryWrappers keep their prepared geometry once a spatial relation has
+ * used it, so a frequently used operand is only parsed and prepared once while
+ * it stays in the cache.<br>
+ * Entries are evicted in CLOCK order: an entry used since it was last
+ * considered is given a second chance. There is no global lock; the entries
+ * are in a {@link ConcurrentHashMap} and the eviction order in a
+ * {@link ConcurrentLinkedQueue}.
+ */
+public class GeometryWrapperCache {
+
+    /**
+     * Default maximum number of coordinates held in a cache.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 10_000_000L;
+
+    /**
+     * Value for no limit on size or weight.
+     */
+    public static final int UNLIMITED = -1;
+
+    private final String label;
+    private final ConcurrentHashMap<String, Entry> map = new ConcurrentHashMap<>();
+    private final Queue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger clockSize = new AtomicInteger(0);
+    private final AtomicLong weight = new AtomicLong(0);
+    private volatile int maxSize;
+    private volatile long maxWeight = DEFAULT_MAX_WEIGHT;
+    private volatile long expiryInterval;
+    private volatile boolean expiryActive = false;
+
+    private static class Entry {
+
+        private final String key;
+        private final GeometryWrapper geometryWrapper;
+        private final int weight;
+        private volatile boolean used = false;
+        private volatile long lastUsed;
+
+        private Entry(String key, GeometryWrapper geometryWrapper, int weight, long now) {
+            this.key = key;
+            this.geometryWrapper = geometryWrapper;
+            this.weight = weight;
+            this.lastUsed = now;
+        }
+    }
+
+    /**
+     *
+     * @param label
+     * @param maxSize Maximum number of entries: use -1 for unlimited size.
+     * @param expiryInterval Milliseconds since last use: use 0 or negative for
+     * unlimited timeout.
+     */
+    public GeometryWrapperCache(String label, int maxSize, long expiryInterval) {
+        this.label = label;
+        this.maxSize = maxSize;
+        this.expiryInterval = expiryInterval;
+    }
+
+    /**
+     *
+     * @param key
+     * @return GeometryWrapper or null if not in the cache.
+     */
+    public GeometryWrapper get(String key) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            remove(entry);
+            return null;
+        }
+        if (!entry.used) {
+            entry.used = true;
+        }
+        if (expiryActive) {
+            entry.lastUsed = System.currentTimeMillis();
+        }
+        return entry.geometryWrapper;
+    }
+
+    /**
+     * Add a GeometryWrapper to the cache, evicting others if the cache is full.
+     * <br>A GeometryWrapper that exceeds the maximum weight on its own is not
+     * cached.
+     *
+     * @param key
+     * @param geometryWrapper
+     */
+    public void put(String key, GeometryWrapper geometryWrapper) {
+        int entryWeight = weigh(geometryWrapper);
+        long max = maxWeight;
+        if (maxSize == 0 || (max >= 0 && entryWeight > max)) {
+            return;
+        }
+
+        Entry entry = new Entry(key, geometryWrapper, entryWeight, System.currentTimeMillis());
+        Entry previous = map.put(key, entry);
+        weight.addAndGet(previous == null ? entryWeight : entryWeight - previous.weight);
+        clock.add(entry);
+        int queued = clockSize.incrementAndGet();
+        evict();
+
+        //Replaced and removed entries stay in the queue until reached, unless there are many.
+        if (queued > 2 * map.size() + 1024) {
+            purge();
+        }
+    }
+
+    /**
+     * Number of coordinates of the GeometryWrapper, as a measure of its memory
+     * and of the work to prepare it.
+     *
+     * @param geometryWrapper
+     * @return Weight of at least one.
+     */
+    static int weigh(GeometryWrapper geometryWrapper) {
+        return geometryWrapper.getXYGeometry().getNumPoints() + 1;
+    }
+
+    private boolean isFull() {
+        int size = maxSize;
+        long max = maxWeight;
+        return (size >= 0 && map.size() > size) || (max >= 0 && weight.get() > max);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        long interval = expiryInterval;
+        return expiryActive && interval > 0 && now - entry.lastUsed > interval;
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        //Each entry can be given a second chance once per pass.
+        int limit = 2 * clockSize.get() + 1;
+        while (isFull() && limit-- > 0) {
+            Entry entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            clockSize.decrementAndGet();
+            if (map.get(entry.key) != entry) {
+                //Already replaced or removed.
+                continue;
+            }
+            if (entry.used && !isExpired(entry, now)) {
+                entry.used = false;
+                clock.add(entry);
+                clockSize.incrementAndGet();
+            } else {
+                remove(entry);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (map.remove(entry.key, entry)) {
+            weight.addAndGet(-entry.weight);
+        }
+    }
+
+    /**
+     * Remove the queued entries that are no longer cached, and cached entries
+     * that have expired.
+     */
+    private void purge() {
+        long now = System.currentTimeMillis();
+        clock.removeIf(entry -> {
+            if (map.get(entry.key) != entry) {
+                clockSize.decrementAndGet();
+                return true;
+            }
+            if (isExpired(entry, now)) {
+                remove(entry);
+                clockSize.decrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Empty the cache.
+     */
+    public void clear() {
+        map.clear();
+        clock.clear();
+        clockSize.set(0);
+        weight.set(0);
+    }
+
+    /**
+     * Sets the maximum number of entries.
+     *
+     * @param maxSize : use -1 for unlimited size
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        if (maxSize == 0) {
+            clear();
+        } else {
+            evict();
+        }
+    }
+
+    /**
+     * Sets the maximum number of coordinates held.
+     *
+     * @param maxWeight : use -1 for unlimited weight
+     */
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    /**
+     * Sets the time in milliseconds after its last use that an entry expires.
+     *
+     * @param expiryInterval : use 0 or negative for unlimited timeout
+     */
+    public void setExpiryInterval(long expiryInterval) {
+        this.expiryInterval = expiryInterval;
+    }
+
+    /**
+     * Entries expire after the expiry interval.
+     */
+    public void startExpiry() {
+        expiryActive = true;
+    }
+
+    /**
+     * Entries do not expire.
+     */
+    public void stopExpiry() {
+        expiryActive = false;
+    }
+
+    /**
+     *
+     * @return Number of entries.
+     */
+    public long mappingCount() {
+        return map.mappingCount();
+    }
+
+    /**
+     *
+     * @return Number of coordinates held.
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return "GeometryWrapperCache{" + "label=" + label + ", size=" + map.size() + ", weight=" + weight.get() + ", maxSize=" + maxSize + ", maxWeight=" + maxWeight + ", expiryInterval=" + expiryInterval + '}';
+    }
+
+}
@@ -103,6 +103,18 @@ public class IndexConfiguration {
         QueryRewriteIndex.setMaxSize(queryRewriteIndex);
     }
 
+    /**
+     * Set the maximum number of coordinates held by the geometry indexes.<br>
+     * -1 for unlimited weight.
+     *
+     * @param geometryLiteralIndex
+     * @param geometryTransformIndex
+     */
+    public static final void setIndexMaxWeight(long geometryLiteralIndex, long geometryTransformIndex) {
+        GeometryLiteralIndex.setMaxWeight(geometryLiteralIndex);
+        GeometryTransformIndex.setMaxWeight(geometryTransformIndex);
+    }
+
     /**
      * Set the index expiry interval in milliseconds.
      *
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.geosparql.spatial;
+
+import static org.apache.jena.sparql.core.GraphView.createDefaultGraph;
+import static org.apache.jena.sparql.core.GraphView.createNamedGraph;
+
+import java.util.*;
+
+import org.apache.jena.geosparql.implementation.vocabulary.Geo;
+import org.apache.jena.geosparql.implementation.vocabulary.SpatialExtension;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.shared.JenaException;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphWrapper;
+import org.apache.jena.sparql.core.Quad;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * DatasetGraph that keeps a {@link SpatialIndexDisk} up to date.<br>
+ * Changes to Features, Geometries and Geo predicates are noted during a write
+ * transaction. On commit, the envelopes of the Features concerned are found in
+ * the transaction and recorded in the SpatialIndex, the dataset commits, and then
+ * the SpatialIndex update is committed.<br>
+ * Changes are only indexed when a write transaction commits.
+ */
+public class DatasetGraphSpatialIndex extends DatasetGraphWrapper {
+
+    private static final Set<Node> FEATURE_PREDICATES = Set.of(Geo.HAS_GEOMETRY_NODE, SpatialExtension.GEO_LAT_NODE, SpatialExtension.GEO_LON_NODE);
+    private static final Set<Node> GEOMETRY_PREDICATES = Set.of(Geo.HAS_SERIALIZATION_NODE, Geo.AS_WKT_NODE, Geo.AS_GML_NODE);
+
+    private final SpatialIndexDisk spatialIndex;
+    // Write transactions are on one thread.
+    private final ThreadLocal<Changes> changes = ThreadLocal.withInitial(Changes::new);
+
+    private static class Changes {
+        final Set<Node> features = new HashSet<>();
+        final Set<Node> geometries = new HashSet<>();
+
+        boolean isEmpty() {
+            return features.isEmpty() && geometries.isEmpty();
+        }
+    }
+
+    /**
+     * Wrap a DatasetGraph so that changes are indexed.<br>
+     * The SpatialIndex is set in the Context.
+     *
+     * @param dsg
+     * @param spatialIndex
+     * @return DatasetGraph
+     */
+    public static DatasetGraph wrap(DatasetGraph dsg, SpatialIndexDisk spatialIndex) {
+        DatasetGraph wrapped = new DatasetGraphSpatialIndex(dsg, spatialIndex);
+        wrapped.getContext().set(SpatialIndex.SPATIAL_INDEX_SYMBOL, spatialIndex);
+        return wrapped;
+    }
+
+    protected DatasetGraphSpatialIndex(DatasetGraph dsg, SpatialIndexDisk spatialIndex) {
+        super(dsg);
+        this.spatialIndex = spatialIndex;
+    }
+
+    public SpatialIndexDisk getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    @Override
+    public void add(Quad quad) {
+        super.add(quad);
+        record(quad.getSubject(), quad.getPredicate());
+    }
+
+    @Override
+    public void add(Node g, Node s, Node p, Node o) {
+        super.add(g, s, p, o);
+        record(s, p);
+    }
+
+    @Override
+    public void delete(Quad quad) {
+        super.delete(quad);
+        record(quad.getSubject(), quad.getPredicate());
+    }
+
+    @Override
+    public void delete(Node g, Node s, Node p, Node o) {
+        super.delete(g, s, p, o);
+        record(s, p);
+    }
+
+    @Override
+    public void deleteAny(Node g, Node s, Node p, Node o) {
+        recordMatching(g, s, p, o);
+        super.deleteAny(g, s, p, o);
+    }
+
+    @Override
+    public void addGraph(Node graphName, Graph graph) {
+        super.addGraph(graphName, graph);
+        for (Node predicate : FEATURE_PREDICATES) {
+            graph.find(Node.ANY, predicate, Node.ANY).forEachRemaining(t -> record(t.getSubject(), t.getPredicate()));
+        }
+        for (Node predicate : GEOMETRY_PREDICATES) {
+            graph.find(Node.ANY, predicate, Node.ANY).forEachRemaining(t -> record(t.getSubject(), t.getPredicate()));
+        }
+    }
+
+    @Override
+    public void removeGraph(Node graphName) {
+        recordMatching(graphName, Node.ANY, Node.ANY, Node.ANY);
+        super.removeGraph(graphName);
+    }
+
+    @Override
+    public void clear() {
+        recordMatching(Node.ANY, Node.ANY, Node.ANY, Node.ANY);
+        super.clear();
+    }
+
+    @Override
+    public Graph getDefaultGraph() {
+        return createDefaultGraph(this);
+    }
+
+    @Override
+    public Graph getGraph(Node graphNode) {
+        return createNamedGraph(this, graphNode);
+    }
+
+    @Override
+    public void commit() {
+        Changes txnChanges = changes.get();
+        changes.remove();
+        if (txnChanges.isEmpty() || !isInTransaction() || transactionMode() != ReadWrite.WRITE) {
+            super.commit();
+            return;
+        }
+        long batch;
+        try {
+            batch = spatialIndex.prepareUpdate(featureEnvelopes(txnChanges));
+        } catch (SpatialIndexException ex) {
+            throw new JenaException("Spatial index update failed: " + ex.getMessage(), ex);
+        }
+        try {
+            super.commit();
+        } catch (RuntimeException ex) {
+            try {
+                spatialIndex.abortUpdate(batch);
+            } catch (SpatialIndexException ex2) {
+                ex.addSuppressed(ex2);
+            }
+            throw ex;
+        }
+        try {
+            spatialIndex.commitUpdate(batch);
+        } catch (SpatialIndexException ex) {
+            // The dataset has committed. The new envelopes are in the index; old ones may remain.
+            throw new JenaException("Spatial index commit failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void abort() {
+        changes.remove();
+        super.abort();
+    }
+
+    @Override
+    public void end() {
+        changes.remove();
+        super.end();
+    }
+
+    /** The current envelopes of the Features affected by the changes. */
+    private Map<String, List<Envelope>> featureEnvelopes(Changes txnChanges) {
+        DatasetGraph dsg = getWrapped();
+        Set<Node> features = new HashSet<>(txnChanges.features);
+        for (Node geometry : txnChanges.geometries) {
+            dsg.find(Node.ANY, Node.ANY, Geo.HAS_GEOMETRY_NODE, geometry).forEachRemaining(q -> features.add(q.getSubject()));
+        }
+        String srsURI = spatialIndex.getSrsInfo().getSrsURI();
+        Map<String, List<Envelope>> envelopes = new HashMap<>();
+        for (Node feature : features) {
+            // As SpatialIndexStorage: features are URIs.
+            if (feature.isURI()) {
+                envelopes.put(feature.getURI(), SpatialIndex.getFeatureEnvelopes(dsg, feature, srsURI));
+            }
+        }
+        return envelopes;
+    }
+
+    private void record(Node subject, Node predicate) {
+        if (FEATURE_PREDICATES.contains(predicate)) {
+            changes.get().features.add(subject);
+        } else if (GEOMETRY_PREDICATES.contains(predicate)) {
+            changes.get().geometries.add(subject);
+        }
+    }
+
+    private void recordMatching(Node g, Node s, Node p, Node o) {
+        if (p != null && p.isConcrete()) {
+            if (FEATURE_PREDICATES.contains(p) || GEOMETRY_PREDICATES.contains(p)) {
+                find(g, s, p, o).forEachRemaining(q -> record(q.getSubject(), q.getPredicate()));
+            }
+            return;
+        }
+        for (Node predicate : FEATURE_PREDICATES) {
+            find(g, s, predicate, o).forEachRemaining(q -> record(q.getSubject(), q.getPredicate()));
+        }
+        for (Node predicate : GEOMETRY_PREDICATES) {
+            find(g, s, predicate, o).forEachRemaining(q -> record(q.getSubject(), q.getPredicate()));
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.geosparql.spatial;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * A static R-tree in a file, packed in Hilbert order of the item centres, and
+ * read through memory mapping. Opening the file only reads the header.
+ * <p>
+ * The layout is the one used by "Flatbush": the boxes of the items, then the
+ * boxes of each level of the tree, ending with the root, all in one array. Each
+ * box has an index which, for an item, is the feature number and, for a node,
+ * is the position of its first child. Boxes are floats, rounded outwards, so the
+ * tree may return a few extra candidates but never misses one.
+ * <p>
+ * File:
+ * <pre>
+ *   Header   magic, version, node size, item count, node count, level bounds,
+ *            feature count, SRS URI
+ *   Boxes    node count * 4 floats (minX, minY, maxX, maxY)
+ *   Indexes  node count * int
+ *   Features (feature count + 1) * long offsets, then the UTF-8 feature URIs.
+ * </pre>
+ * Sections start on 8 byte boundaries. All numbers are big-endian.
+ */
+class PackedRTree {
+
+    private static final int MAGIC = 0x4A475352;    // "JGSR"
+    private static final int VERSION = 1;
+    static final int DEFAULT_NODE_SIZE = 16;
+
+    // Map the file in chunks; no value, other than feature URI bytes, crosses a chunk boundary.
+    private static final int CHUNK_SIZE = 1 << 30;
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final String srsURI;
+    private final int nodeSize;
+    private final int numItems;
+    private final int numNodes;
+    private final int[] levelBounds;
+    private final int numFeatures;
+    private final long boxesStart;
+    private final long indexesStart;
+    private final long featuresStart;
+    private final long featureBytesStart;
+
+    /** Callback for query results: the item number and its feature. */
+    interface ItemVisitor {
+        void visit(int item, String feature);
+    }
+
+    private PackedRTree(MappedByteBuffer[] chunks, long fileSize) throws SpatialIndexException {
+        this.chunks = chunks;
+        long pos = 0;
+        if (fileSize < 32 || getInt(pos) != MAGIC) {
+            throw new SpatialIndexException("Not a spatial index file");
+        }
+        pos += 4;
+        int version = getInt(pos);
+        pos += 4;
+        if (version != VERSION) {
+            throw new SpatialIndexException("Unsupported spatial index file version: " + version);
+        }
+        nodeSize = getInt(pos);
+        pos += 4;
+        numItems = getInt(pos);
+        pos += 4;
+        numNodes = getInt(pos);
+        pos += 4;
+        int numLevels = getInt(pos);
+        pos += 4;
+        if (nodeSize < 2 || numItems < 0 || numNodes < numItems || numLevels < 0 || numLevels > 64) {
+            throw new SpatialIndexException("Bad spatial index file header");
+        }
+        levelBounds = new int[numLevels];
+        for (int i = 0; i < numLevels; i++) {
+            levelBounds[i] = getInt(pos);
+            pos += 4;
+        }
+        numFeatures = getInt(pos);
+        pos += 4;
+        int srsLength = getInt(pos);
+        pos += 4;
+        srsURI = getString(pos, srsLength);
+        pos += srsLength;
+
+        boxesStart = align(pos);
+        indexesStart = align(boxesStart + 16L * numNodes);
+        featuresStart = align(indexesStart + 4L * numNodes);
+        featureBytesStart = featuresStart + 8L * (numFeatures + 1);
+        if (featureBytesStart > fileSize) {
+            throw new SpatialIndexException("Spatial index file is truncated");
+        }
+    }
+
+    /** Open a file; only the header is read. */
+    static PackedRTree open(Path file) throws SpatialIndexException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int n = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[Math.max(n, 1)];
+            for (int i = 0; i < n; i++) {
+                long start = (long) i * CHUNK_SIZE;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+                chunks[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            // The mapping remains valid after the channel is closed.
+            return new PackedRTree(chunks, size);
+        } catch (IOException ex) {
+            throw new SpatialIndexException("Failed to open spatial index file: " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    String getSrsURI() {
+        return srsURI;
+    }
+
+    int size() {
+        return numItems;
+    }
+
+    /** Visit the items whose box intersects the envelope. */
+    void query(Envelope envelope, ItemVisitor visitor) {
+        if (numItems == 0 || envelope.isNull()) {
+            return;
+        }
+        double minX = envelope.getMinX();
+        double minY = envelope.getMinY();
+        double maxX = envelope.getMaxX();
+        double maxY = envelope.getMaxY();
+
+        int[] stack = new int[16];
+        int top = 0;
+        int nodeIndex = numNodes - 1;
+        while (true) {
+            int end = Math.min(nodeIndex + nodeSize, upperBound(nodeIndex));
+            for (int pos = nodeIndex; pos < end; pos++) {
+                long box = boxesStart + 16L * pos;
+                if (maxX < getFloat(box) || maxY < getFloat(box + 4) || minX > getFloat(box + 8) || minY > getFloat(box + 12)) {
+                    continue;
+                }
+                int index = getInt(indexesStart + 4L * pos);
+                if (nodeIndex < numItems) {
+                    visitor.visit(pos, feature(index));
+                } else {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * top);
+                    }
+                    stack[top++] = index;
+                }
+            }
+            if (top == 0) {
+                return;
+            }
+            nodeIndex = stack[--top];
+        }
+    }
+
+    /** The box of an item. */
+    Envelope envelope(int item) {
+        long box = boxesStart + 16L * item;
+        return new Envelope(getFloat(box), getFloat(box + 8), getFloat(box + 4), getFloat(box + 12));
+    }
+
+    /** The feature of an item. */
+    String itemFeature(int item) {
+        return feature(getInt(indexesStart + 4L * item));
+    }
+
+    private String feature(int featureIndex) {
+        long offsets = featuresStart + 8L * featureIndex;
+        long start = getLong(offsets);
+        long end = getLong(offsets + 8);
+        return getString(featureBytesStart + start, (int) (end - start));
+    }
+
+    /** End (exclusive) of the level containing the node. */
+    private int upperBound(int nodeIndex) {
+        for (int bound : levelBounds) {
+            if (nodeIndex < bound) {
+                return bound;
+            }
+        }
+        return numNodes;
+    }
+
+    // ---- Access to the mapped file.
+
+    private int getInt(long pos) {
+        return chunks[(int) (pos / CHUNK_SIZE)].getInt((int) (pos % CHUNK_SIZE));
+    }
+
+    private long getLong(long pos) {
+        return chunks[(int) (pos / CHUNK_SIZE)].getLong((int) (pos % CHUNK_SIZE));
+    }
+
+    private float getFloat(long pos) {
+        return chunks[(int) (pos / CHUNK_SIZE)].getFloat((int) (pos % CHUNK_SIZE));
+    }
+
+    private String getString(long pos, int length) {
+        byte[] bytes = new byte[length];
+        int done = 0;
+        while (done < length) {
+            long p = pos + done;
+            MappedByteBuffer chunk = chunks[(int) (p / CHUNK_SIZE)];
+            int offset = (int) (p % CHUNK_SIZE);
+            int n = Math.min(length - done, chunk.limit() - offset);
+            ByteBuffer bb = chunk.duplicate();
+            bb.position(offset);
+            bb.get(bytes, done, n);
+            done += n;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long align(long pos) {
+        return (pos + 7) & ~7L;
+    }
+
+    // ---- Writing
+
+    /**
+     * Write the items as a packed R-tree file.
+     * The file is written to a temporary file and then moved into place.
+     *
+     * @param file
+     * @param envelopes
+     * @param features Feature URI for each envelope.
+     * @param srsURI
+     * @param nodeSize
+     * @throws SpatialIndexException
+     */
+    static void write(Path file, List<Envelope> envelopes, List<String> features, String srsURI, int nodeSize) throws SpatialIndexException {
+        int numItems = envelopes.size();
+        nodeSize = Math.max(2, nodeSize);
+
+        // Levels of the tree.
+        int[] levelBounds = new int[64];
+        int numLevels = 0;
+        int n = numItems;
+        long numNodes = n;
+        levelBounds[numLevels++] = n;
+        if (numItems > 0) {
+            do {
+                n = (n + nodeSize - 1) / nodeSize;
+                numNodes += n;
+                levelBounds[numLevels++] = (int) Math.min(numNodes, Integer.MAX_VALUE);
+            } while (n != 1);
+        }
+        if (numNodes > Integer.MAX_VALUE / 4) {
+            throw new SpatialIndexException("Too many items for a spatial index file: " + numItems);
+        }
+        levelBounds = Arrays.copyOf(levelBounds, numLevels);
+
+        // Features
+        Map<String, Integer> featureIds = new HashMap<>();
+        ByteArrayBuffer featureBytes = new ByteArrayBuffer();
+        long[] featureOffsets = new long[16];
+        int[] itemFeatures = new int[numItems];
+        for (int i = 0; i < numItems; i++) {
+            String feature = features.get(i);
+            Integer id = featureIds.get(feature);
+            if (id == null) {
+                id = featureIds.size();
+                featureIds.put(feature, id);
+                if (id + 1 >= featureOffsets.length) {
+                    featureOffsets = Arrays.copyOf(featureOffsets, 2 * featureOffsets.length);
+                }
+                featureBytes.write(feature.getBytes(StandardCharsets.UTF_8));
+                featureOffsets[id + 1] = featureBytes.length();
+            }
+            itemFeatures[i] = id;
+        }
+        int numFeatures = featureIds.size();
+
+        // Hilbert order of the item centres.
+        Envelope extent = new Envelope();
+        for (Envelope envelope : envelopes) {
+            extent.expandToInclude(envelope);
+        }
+        long[] order = new long[numItems];
+        double width = extent.getWidth();
+        double height = extent.getHeight();
+        for (int i = 0; i < numItems; i++) {
+            Envelope envelope = envelopes.get(i);
+            int x = width == 0 ? 0 : (int) (HILBERT_MAX * ((envelope.getMinX() + envelope.getMaxX()) / 2 - extent.getMinX()) / width);
+            int y = height == 0 ? 0 : (int) (HILBERT_MAX * ((envelope.getMinY() + envelope.getMaxY()) / 2 - extent.getMinY()) / height);
+            // Unsigned Hilbert value, then the item number.
+            order[i] = ((hilbert(x, y) & 0xFFFFFFFFL) << 31) | i;
+        }
+        Arrays.sort(order);
+
+        float[] boxes = new float[4 * (int) numNodes];
+        int[] indexes = new int[(int) numNodes];
+        for (int pos = 0; pos < numItems; pos++) {
+            int item = (int) (order[pos] & Integer.MAX_VALUE);
+            Envelope envelope = envelopes.get(item);
+            boxes[4 * pos] = floatDown(envelope.getMinX());
+            boxes[4 * pos + 1] = floatDown(envelope.getMinY());
+            boxes[4 * pos + 2] = floatUp(envelope.getMaxX());
+            boxes[4 * pos + 3] = floatUp(envelope.getMaxY());
+            indexes[pos] = itemFeatures[item];
+        }
+        // Nodes: each level from the one below.
+        int pos = 0;
+        int nodePos = numItems;
+        for (int level = 0; level < numLevels - 1; level++) {
+            int end = levelBounds[level];
+            while (pos < end) {
+                int first = pos;
+                float minX = Float.POSITIVE_INFINITY;
+                float minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY;
+                float maxY = Float.NEGATIVE_INFINITY;
+                for (int i = 0; i < nodeSize && pos < end; i++, pos++) {
+                    minX = Math.min(minX, boxes[4 * pos]);
+                    minY = Math.min(minY, boxes[4 * pos + 1]);
+                    maxX = Math.max(maxX, boxes[4 * pos + 2]);
+                    maxY = Math.max(maxY, boxes[4 * pos + 3]);
+                }
+                boxes[4 * nodePos] = minX;
+                boxes[4 * nodePos + 1] = minY;
+                boxes[4 * nodePos + 2] = maxX;
+                boxes[4 * nodePos + 3] = maxY;
+                indexes[nodePos] = first;
+                nodePos++;
+            }
+        }
+
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream fout = Files.newOutputStream(tmpFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fout, 128 * 1024))) {
+            byte[] srsBytes = srsURI.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nodeSize);
+            out.writeInt(numItems);
+            out.writeInt((int) numNodes);
+            out.writeInt(numLevels);
+            for (int bound : levelBounds) {
+                out.writeInt(bound);
+            }
+            out.writeInt(numFeatures);
+            out.writeInt(srsBytes.length);
+            out.write(srsBytes);
+            long headerLength = 4L * (8 + numLevels) + srsBytes.length;
+            pad(out, align(headerLength) - headerLength);
+            // 16 bytes for each box so the indexes are aligned.
+            for (float f : boxes) {
+                out.writeFloat(f);
+            }
+            for (int i : indexes) {
+                out.writeInt(i);
+            }
+            pad(out, align(4L * numNodes) - 4L * numNodes);
+            for (int i = 0; i <= numFeatures; i++) {
+                out.writeLong(featureOffsets[i]);
+            }
+            featureBytes.writeTo(out);
+        } catch (IOException ex) {
+            throw new SpatialIndexException("Failed to write spatial index file: " + file + ": " + ex.getMessage(), ex);
+        }
+        SpatialIndexLog.forceAndMove(tmpFile, file);
+    }
+
+    private static void pad(DataOutputStream out, long n) throws IOException {
+        for (long i = 0; i < n; i++) {
+            out.write(0);
+        }
+    }
+
+    private static float floatDown(double d) {
+        float f = (float) d;
+        return f > d ? Math.nextDown(f) : f;
+    }
+
+    private static float floatUp(double d) {
+        float f = (float) d;
+        return f < d ? Math.nextUp(f) : f;
+    }
+
+    /**
+     * Hilbert curve index of (x,y), each in 0..2^16-1.
+     * This is the bit-parallel algorithm used by Flatbush.
+     */
+    static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >>> 1);
+        int B = (a >>> 1) ^ a;
+        int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = A; b = B; c = C; d = D;
+        A = ((a & (a >>> 2)) ^ (b & (b >>> 2)));
+        B = ((a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2)));
+        C ^= ((a & (c >>> 2)) ^ (b & (d >>> 2)));
+        D ^= ((b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2)));
+
+        a = A; b = B; c = C; d = D;
+        A = ((a & (a >>> 4)) ^ (b & (b >>> 4)));
+        B = ((a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4)));
+        C ^= ((a & (c >>> 4)) ^ (b & (d >>> 4)));
+        D ^= ((b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4)));
+
+        a = A; b = B; c = C; d = D;
+        C ^= ((a & (c >>> 8)) ^ (b & (d >>> 8)));
+        D ^= ((b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8)));
+
+        a = C ^ (C >>> 1);
+        b = D ^ (D >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return (i1 << 1) | i0;
+    }
+
+    /** Growable byte array, which can be larger than a {@code ByteArrayOutputStream}. */
+    private static class ByteArrayBuffer {
+        private byte[][] blocks = new byte[4][];
+        private int numBlocks = 0;
+        private int blockUsed = 0;
+        private static final int BLOCK = 1 << 20;
+        private long length = 0;
+
+        void write(byte[] bytes) {
+            int done = 0;
+            while (done < bytes.length) {
+                if (numBlocks == 0 || blockUsed == BLOCK) {
+                    if (numBlocks == blocks.length) {
+                        blocks = Arrays.copyOf(blocks, 2 * numBlocks);
+                    }
+                    blocks[numBlocks++] = new byte[BLOCK];
+                    blockUsed = 0;
+                }
+                int n = Math.min(bytes.length - done, BLOCK - blockUsed);
+                System.arraycopy(bytes, done, blocks[numBlocks - 1], blockUsed, n);
+                blockUsed += n;
+                done += n;
+            }
+            length += bytes.length;
+        }
+
+        long length() {
+            return length;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            for (int i = 0; i < numBlocks; i++) {
+                out.write(blocks[i], 0, i == numBlocks - 1 ? blockUsed : BLOCK);
+            }
+        }
+    }
+}
@@ -32,10 +32,13 @@ import org.apache.jena.geosparql.implementation.registry.SRSRegistry;
 import org.apache.jena.geosparql.implementation.vocabulary.Geo;
 import org.apache.jena.geosparql.implementation.vocabulary.SRS_URI;
 import org.apache.jena.geosparql.implementation.vocabulary.SpatialExtension;
+import org.apache.jena.graph.Node;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.ReadWrite;
 import org.apache.jena.rdf.model.*;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.util.Context;
 import org.apache.jena.sparql.util.Symbol;
@@ -75,6 +78,18 @@ public class SpatialIndex {
         this.srsInfo = SRSRegistry.getSRSInfo(SRS_URI.DEFAULT_WKT_CRS84);
     }
 
+    /**
+     * Built and empty Spatial Index, for subclasses that hold their own items.
+     *
+     * @param srsURI
+     */
+    protected SpatialIndex(String srsURI) {
+        this.strTree = new STRtree(MINIMUM_CAPACITY);
+        this.isBuilt = true;
+        this.strTree.build();
+        this.srsInfo = SRSRegistry.getSRSInfo(srsURI);
+    }
+
     /**
      * Unbuilt Spatial Index with provided capacity.
      *
@@ -469,8 +484,81 @@ public class SpatialIndex {
         return items;
     }
 
+    /**
+     * Find the envelopes of one Feature in all graphs of the DatasetGraph,
+     * transformed to the SRS URI.<br>
+     * Geometry literals of the Feature's Geometries are used if it has any,
+     * otherwise Geo predicates. Literals that cannot be read are skipped.
+     *
+     * @param datasetGraph
+     * @param feature
+     * @param srsURI
+     * @return Envelopes of the Feature, empty if it has no spatial data.
+     */
+    public static final List<Envelope> getFeatureEnvelopes(DatasetGraph datasetGraph, Node feature, String srsURI) {
+        List<Envelope> envelopes = new ArrayList<>();
+        boolean hasGeometry = false;
+        Iterator<Quad> geometryIter = datasetGraph.find(Node.ANY, feature, Geo.HAS_GEOMETRY_NODE, Node.ANY);
+        while (geometryIter.hasNext()) {
+            hasGeometry = true;
+            Node geometry = geometryIter.next().getObject();
+            List<Node> literals = objects(datasetGraph, geometry, Geo.HAS_SERIALIZATION_NODE);
+            if (literals.isEmpty()) {
+                literals.addAll(objects(datasetGraph, geometry, Geo.AS_WKT_NODE));
+                literals.addAll(objects(datasetGraph, geometry, Geo.AS_GML_NODE));
+            }
+            for (Node literal : literals) {
+                Envelope envelope = envelope(literal.getLiteralLexicalForm(), literal.getLiteralDatatypeURI(), srsURI);
+                if (envelope != null) {
+                    envelopes.add(envelope);
+                }
+            }
+        }
+
+        if (!hasGeometry) {
+            List<Node> lats = objects(datasetGraph, feature, SpatialExtension.GEO_LAT_NODE);
+            List<Node> lons = objects(datasetGraph, feature, SpatialExtension.GEO_LON_NODE);
+            if (!lats.isEmpty() && !lons.isEmpty()) {
+                try {
+                    float lat = ((Number) lats.get(0).getLiteralValue()).floatValue();
+                    float lon = ((Number) lons.get(0).getLiteralValue()).floatValue();
+                    Literal latLonPoint = ConvertLatLon.toLiteral(lat, lon);
+                    Envelope envelope = envelope(latLonPoint.getLexicalForm(), latLonPoint.getDatatypeURI(), srsURI);
+                    if (envelope != null) {
+                        envelopes.add(envelope);
+                    }
+                } catch (RuntimeException ex) {
+                    LOGGER.warn("Geo predicates: bad latitude or longitude for {}: {}", feature, ex.getMessage());
+                }
+            }
+        }
+        return envelopes;
+    }
+
+    private static List<Node> objects(DatasetGraph datasetGraph, Node subject, Node predicate) {
+        List<Node> objects = new ArrayList<>();
+        datasetGraph.find(Node.ANY, subject, predicate, Node.ANY).forEachRemaining(quad -> {
+            if (quad.getObject().isLiteral()) {
+                objects.add(quad.getObject());
+            }
+        });
+        return objects;
+    }
+
+    private static Envelope envelope(String lexicalForm, String datatypeURI, String srsURI) {
+        try {
+            GeometryWrapper geometryWrapper = GeometryWrapper.extract(lexicalForm, datatypeURI);
+            return geometryWrapper.convertSRS(srsURI).getEnvelope();
+        } catch (FactoryException | TransformException | RuntimeException ex) {
+            // RuntimeException includes MismatchedDimensionException and bad literals.
+            LOGGER.warn("Spatial Index: geometry literal not indexed: {}: {}", lexicalForm, ex.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Load a SpatialIndex from file.<br>
+     * A directory is opened as a {@link SpatialIndexDisk}.<br>
      * Index will be built and empty if file does not exist or is null.
      *
      * @param spatialIndexFile
@@ -479,7 +567,9 @@ public class SpatialIndex {
      */
     public static final SpatialIndex load(File spatialIndexFile) throws SpatialIndexException {
 
-        if (spatialIndexFile != null && spatialIndexFile.exists()) {
+        if (spatialIndexFile != null && spatialIndexFile.isDirectory() && SpatialIndexDisk.exists(spatialIndexFile.toPath())) {
+            return SpatialIndexDisk.open(spatialIndexFile.toPath());
+        } else if (spatialIndexFile != null && spatialIndexFile.exists()) {
             LOGGER.info("Loading Spatial Index - Started: {}", spatialIndexFile.getAbsolutePath());
             //Cannot directly store the SpatialIndex due to Resources not being serializable, use SpatialIndexStorage class.
             try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(spatialIndexFile))) {
@@ -0,0 +1,429 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.geosparql.spatial;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.jena.geosparql.configuration.GeoSPARQLOperations;
+import org.apache.jena.geosparql.configuration.SrsException;
+import org.apache.jena.geosparql.implementation.vocabulary.SRS_URI;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SpatialIndex kept in a directory, which can be updated after it is built.<br>
+ * The bulk of the index is a packed R-tree file which is memory mapped, so
+ * opening the index does not depend on its size. Updates since the file was
+ * written are kept in memory and in a log, and are merged into a new R-tree file
+ * when the log becomes large ({@link #compact()}).<br>
+ * Updates are made per feature: the new set of envelopes for a feature replaces
+ * the old one. {@link DatasetGraphSpatialIndex} makes the updates as the dataset
+ * commits.<br>
+ * The new envelopes of an update are added before the dataset commits, and the old
+ * ones are only removed after it has committed, so the index never misses a
+ * feature of the committed data. After a crash, an update that may or may not have
+ * committed is kept as an addition, which at worst gives a false candidate.
+ */
+public class SpatialIndexDisk extends SpatialIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    public static final String INDEX_FILE = "spatial.rtree";
+    public static final String LOG_FILE = "spatial.log";
+
+    /** Compact when the updates held in memory exceed this number of envelopes, or a quarter of the R-tree. */
+    private static final int COMPACT_THRESHOLD = 100_000;
+
+    private final Path directory;
+    private PackedRTree rtree;
+    private final SpatialIndexLog log;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Updates not yet in the R-tree file. All entries are in the quadtree.
+    private Quadtree overlay = new Quadtree();
+    private int overlaySize = 0;
+    /** Committed updates: the current entries of features whose R-tree entries are replaced. */
+    private final Map<String, List<Entry>> replaced = new HashMap<>();
+    /** Updates being committed. */
+    private final Map<Long, Map<String, List<Entry>>> pending = new HashMap<>();
+    /** Updates with no outcome in the log. */
+    private final List<Entry> inDoubt = new ArrayList<>();
+
+    private static class Entry {
+        final Envelope envelope;
+        final String feature;
+
+        Entry(Envelope envelope, String feature) {
+            this.envelope = envelope;
+            this.feature = feature;
+        }
+    }
+
+    private SpatialIndexDisk(Path directory, PackedRTree rtree) throws SpatialIndexException {
+        super(rtree.getSrsURI());
+        this.directory = directory;
+        this.rtree = rtree;
+        this.log = SpatialIndexLog.open(directory.resolve(LOG_FILE), new LogReplay());
+        for (Map<String, List<Entry>> batch : pending.values()) {
+            for (List<Entry> entries : batch.values()) {
+                inDoubt.addAll(entries);
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Create a SpatialIndex in a directory, replacing any existing one.
+     *
+     * @param directory
+     * @param spatialIndexItems
+     * @param srsURI
+     * @return SpatialIndex, ready for use and update.
+     * @throws SpatialIndexException
+     */
+    public static SpatialIndexDisk create(Path directory, Collection<SpatialIndexItem> spatialIndexItems, String srsURI) throws SpatialIndexException {
+        LOGGER.info("Writing Spatial Index - Started: {}", directory.toAbsolutePath());
+        List<Envelope> envelopes = new ArrayList<>(spatialIndexItems.size());
+        List<String> features = new ArrayList<>(spatialIndexItems.size());
+        for (SpatialIndexItem item : spatialIndexItems) {
+            if (item.getItem().isURIResource()) {
+                envelopes.add(item.getEnvelope());
+                features.add(item.getItem().getURI());
+            }
+        }
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(LOG_FILE));
+        } catch (IOException ex) {
+            throw new SpatialIndexException("Failed to prepare directory: " + directory + ": " + ex.getMessage(), ex);
+        }
+        PackedRTree.write(directory.resolve(INDEX_FILE), envelopes, features, srsURI, PackedRTree.DEFAULT_NODE_SIZE);
+        LOGGER.info("Writing Spatial Index - Completed: {}", directory.toAbsolutePath());
+        return open(directory);
+    }
+
+    /**
+     * Open the SpatialIndex in a directory.
+     *
+     * @param directory
+     * @return SpatialIndex, ready for use and update.
+     * @throws SpatialIndexException
+     */
+    public static SpatialIndexDisk open(Path directory) throws SpatialIndexException {
+        if (!exists(directory)) {
+            throw new SpatialIndexException("No spatial index in " + directory);
+        }
+        PackedRTree rtree = PackedRTree.open(directory.resolve(INDEX_FILE));
+        return new SpatialIndexDisk(directory, rtree);
+    }
+
+    /**
+     *
+     * @param directory
+     * @return True if the directory contains a SpatialIndex.
+     */
+    public static boolean exists(Path directory) {
+        return Files.isRegularFile(directory.resolve(INDEX_FILE));
+    }
+
+    /**
+     * Open the SpatialIndex in the directory, or build it from all graphs in the
+     * Dataset if there isn't one.<br>
+     * When building, the SRS URI is the most frequent found in the Dataset, or
+     * {@link SRS_URI#DEFAULT_WKT_CRS84} when there is no spatial data yet.<br>
+     * Dataset contains SpatialIndex in Context.
+     *
+     * @param dataset
+     * @param directory
+     * @return SpatialIndex opened or constructed.
+     * @throws SpatialIndexException
+     */
+    public static SpatialIndexDisk buildSpatialIndex(Dataset dataset, Path directory) throws SpatialIndexException {
+        SpatialIndexDisk spatialIndex;
+        if (exists(directory)) {
+            spatialIndex = open(directory);
+        } else {
+            String srsURI;
+            try {
+                srsURI = GeoSPARQLOperations.findModeSRS(dataset);
+            } catch (SrsException ex) {
+                srsURI = SRS_URI.DEFAULT_WKT_CRS84;
+            }
+            LOGGER.info("Building Spatial Index - Started");
+            Collection<SpatialIndexItem> items = findSpatialIndexItems(dataset, srsURI);
+            spatialIndex = create(directory, items, srsURI);
+            LOGGER.info("Building Spatial Index - Completed");
+        }
+        setSpatialIndex(dataset, spatialIndex);
+        return spatialIndex;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        lock.readLock().lock();
+        try {
+            return rtree.size() == 0 && overlaySize == 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isBuilt() {
+        return true;
+    }
+
+    @Override
+    public void build() {}
+
+    @Override
+    public HashSet<Resource> query(Envelope searchEnvelope) {
+        HashSet<Resource> results = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            rtree.query(searchEnvelope, (item, feature) -> {
+                if (!replaced.containsKey(feature)) {
+                    results.add(ResourceFactory.createResource(feature));
+                }
+            });
+            if (overlaySize > 0) {
+                for (Object obj : overlay.query(searchEnvelope)) {
+                    Entry entry = (Entry) obj;
+                    if (entry.envelope.intersects(searchEnvelope)) {
+                        results.add(ResourceFactory.createResource(entry.feature));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    // ---- Updates
+
+    /**
+     * Start an update: record the new envelopes of the features in the log and
+     * add them to the index. The old envelopes remain until {@link #commitUpdate}.
+     *
+     * @param features Feature URI to all its envelopes (empty if the feature has gone).
+     * @return Batch number for {@link #commitUpdate} or {@link #abortUpdate}.
+     * @throws SpatialIndexException
+     */
+    public long prepareUpdate(Map<String, List<Envelope>> features) throws SpatialIndexException {
+        lock.writeLock().lock();
+        try {
+            long batch = log.nextBatch();
+            log.writeBatch(batch, features);
+            Map<String, List<Entry>> entries = new HashMap<>();
+            for (Map.Entry<String, List<Envelope>> e : features.entrySet()) {
+                List<Entry> featureEntries = new ArrayList<>(e.getValue().size());
+                for (Envelope envelope : e.getValue()) {
+                    featureEntries.add(new Entry(envelope, e.getKey()));
+                }
+                entries.put(e.getKey(), featureEntries);
+            }
+            addPending(batch, entries);
+            return batch;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The update has committed: the new envelopes replace the old ones.
+     *
+     * @param batch
+     * @throws SpatialIndexException
+     */
+    public void commitUpdate(long batch) throws SpatialIndexException {
+        lock.writeLock().lock();
+        try {
+            log.writeCommit(batch);
+            applyCommit(batch);
+            if (pending.isEmpty() && overlaySize > Math.max(COMPACT_THRESHOLD, rtree.size() / 4)) {
+                compact$();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The update did not commit: remove its new envelopes.
+     *
+     * @param batch
+     * @throws SpatialIndexException
+     */
+    public void abortUpdate(long batch) throws SpatialIndexException {
+        lock.writeLock().lock();
+        try {
+            log.writeAbort(batch);
+            applyAbort(batch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write a new R-tree file with all the updates, and empty the log.
+     *
+     * @throws SpatialIndexException
+     */
+    public void compact() throws SpatialIndexException {
+        lock.writeLock().lock();
+        try {
+            if (!pending.isEmpty()) {
+                throw new SpatialIndexException("Spatial index has updates in progress");
+            }
+            compact$();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Release the log file. The index can still be queried. */
+    public void close() {
+        log.close();
+    }
+
+    private void compact$() throws SpatialIndexException {
+        LOGGER.info("Compacting Spatial Index: {}", directory.toAbsolutePath());
+        int size = rtree.size() + overlaySize;
+        List<Envelope> envelopes = new ArrayList<>(size);
+        List<String> features = new ArrayList<>(size);
+        for (int i = 0; i < rtree.size(); i++) {
+            String feature = rtree.itemFeature(i);
+            if (!replaced.containsKey(feature)) {
+                envelopes.add(rtree.envelope(i));
+                features.add(feature);
+            }
+        }
+        for (List<Entry> entries : replaced.values()) {
+            for (Entry entry : entries) {
+                envelopes.add(entry.envelope);
+                features.add(entry.feature);
+            }
+        }
+        for (Entry entry : inDoubt) {
+            envelopes.add(entry.envelope);
+            features.add(entry.feature);
+        }
+        Path file = directory.resolve(INDEX_FILE);
+        PackedRTree.write(file, envelopes, features, getSrsInfo().getSrsURI(), PackedRTree.DEFAULT_NODE_SIZE);
+        // The log is now contained in the file. Replaying it again would not change the index.
+        log.reset();
+        rtree = PackedRTree.open(file);
+        replaced.clear();
+        inDoubt.clear();
+        overlay = new Quadtree();
+        overlaySize = 0;
+    }
+
+    private void addPending(long batch, Map<String, List<Entry>> entries) {
+        pending.put(batch, entries);
+        for (List<Entry> featureEntries : entries.values()) {
+            for (Entry entry : featureEntries) {
+                overlay.insert(entry.envelope, entry);
+                overlaySize++;
+            }
+        }
+    }
+
+    private void applyCommit(long batch) {
+        Map<String, List<Entry>> entries = pending.remove(batch);
+        if (entries == null) {
+            return;
+        }
+        for (Map.Entry<String, List<Entry>> e : entries.entrySet()) {
+            List<Entry> old = replaced.put(e.getKey(), e.getValue());
+            if (old != null) {
+                removeAll(old);
+            }
+        }
+    }
+
+    private void applyAbort(long batch) {
+        Map<String, List<Entry>> entries = pending.remove(batch);
+        if (entries == null) {
+            return;
+        }
+        for (List<Entry> featureEntries : entries.values()) {
+            removeAll(featureEntries);
+        }
+    }
+
+    private void removeAll(List<Entry> entries) {
+        for (Entry entry : entries) {
+            if (overlay.remove(entry.envelope, entry)) {
+                overlaySize--;
+            }
+        }
+    }
+
+    /** Rebuild the in-memory state from the log. */
+    private class LogReplay implements SpatialIndexLog.Replay {
+        @Override
+        public void begin(long batch) {
+            pending.put(batch, new HashMap<>());
+        }
+
+        @Override
+        public void feature(long batch, String feature, List<Envelope> envelopes) {
+            Map<String, List<Entry>> entries = pending.computeIfAbsent(batch, b -> new HashMap<>());
+            List<Entry> featureEntries = new ArrayList<>(envelopes.size());
+            for (Envelope envelope : envelopes) {
+                Entry entry = new Entry(envelope, feature);
+                featureEntries.add(entry);
+                overlay.insert(envelope, entry);
+                overlaySize++;
+            }
+            entries.put(feature, featureEntries);
+        }
+
+        @Override
+        public void commit(long batch) {
+            applyCommit(batch);
+        }
+
+        @Override
+        public void abort(long batch) {
+            applyAbort(batch);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpatialIndexDisk{" + "directory=" + directory + ", srsInfo=" + getSrsInfo() + ", items=" + rtree.size() + ", updates=" + overlaySize + '}';
+    }
+}
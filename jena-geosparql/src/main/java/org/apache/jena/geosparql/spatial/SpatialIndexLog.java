@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.geosparql.spatial;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Append-only log of the updates to a {@link SpatialIndexDisk} since its
+ * R-tree file was written.
+ * <p>
+ * An update is a batch: a begin record, the new envelopes of each feature that
+ * changed, then a commit or abort record. Each batch is forced to disk before it
+ * is acted on. A torn record at the end of the log, from a crash, is removed when
+ * the log is opened.
+ */
+class SpatialIndexLog implements Closeable {
+
+    static final byte BEGIN = 1;
+    static final byte FEATURE = 2;
+    static final byte COMMIT = 3;
+    static final byte ABORT = 4;
+
+    /** Receives the records of the log when it is replayed. */
+    interface Replay {
+        void begin(long batch);
+        void feature(long batch, String feature, List<Envelope> envelopes);
+        void commit(long batch);
+        void abort(long batch);
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private long maxBatch = 0;
+
+    private SpatialIndexLog(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Open the log, replaying the complete records in it.
+     *
+     * @param file
+     * @param replay
+     * @return The log, ready for appending.
+     * @throws SpatialIndexException
+     */
+    static SpatialIndexLog open(Path file, Replay replay) throws SpatialIndexException {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            SpatialIndexLog log = new SpatialIndexLog(file, channel);
+            long end = log.replay(replay);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+            return log;
+        } catch (IOException ex) {
+            throw new SpatialIndexException("Failed to open spatial index log: " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /** A number for a new batch. */
+    long nextBatch() {
+        return ++maxBatch;
+    }
+
+    /** Size of the log in bytes. */
+    long size() {
+        try {
+            return channel.size();
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Write a batch of feature updates, without an outcome, and force it to disk.
+     *
+     * @param batch
+     * @param features
+     * @throws SpatialIndexException
+     */
+    void writeBatch(long batch, Map<String, List<Envelope>> features) throws SpatialIndexException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(BEGIN);
+            out.writeLong(batch);
+            for (Map.Entry<String, List<Envelope>> e : features.entrySet()) {
+                byte[] feature = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeByte(FEATURE);
+                out.writeInt(feature.length);
+                out.write(feature);
+                out.writeInt(e.getValue().size());
+                for (Envelope envelope : e.getValue()) {
+                    out.writeDouble(envelope.getMinX());
+                    out.writeDouble(envelope.getMinY());
+                    out.writeDouble(envelope.getMaxX());
+                    out.writeDouble(envelope.getMaxY());
+                }
+            }
+        } catch (IOException ex) {
+            throw new SpatialIndexException("Spatial index log: " + ex.getMessage(), ex);
+        }
+        append(bytes.toByteArray());
+    }
+
+    void writeCommit(long batch) throws SpatialIndexException {
+        writeOutcome(COMMIT, batch);
+    }
+
+    void writeAbort(long batch) throws SpatialIndexException {
+        writeOutcome(ABORT, batch);
+    }
+
+    private void writeOutcome(byte type, long batch) throws SpatialIndexException {
+        ByteBuffer bb = ByteBuffer.allocate(9);
+        bb.put(type);
+        bb.putLong(batch);
+        append(bb.array());
+    }
+
+    private void append(byte[] bytes) throws SpatialIndexException {
+        try {
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            while (bb.hasRemaining()) {
+                channel.write(bb);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new SpatialIndexException("Failed to write spatial index log: " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /** Empty the log. */
+    void reset() throws SpatialIndexException {
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        } catch (IOException ex) {
+            throw new SpatialIndexException("Failed to reset spatial index log: " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            // Ignore.
+        }
+    }
+
+    /** Replay the log; return the end of the last complete record. */
+    private long replay(Replay replay) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+        long position = 0;
+        long currentBatch = -1;
+        try (in) {
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    return position;
+                }
+                switch (type) {
+                    case BEGIN: {
+                        currentBatch = in.readLong();
+                        maxBatch = Math.max(maxBatch, currentBatch);
+                        replay.begin(currentBatch);
+                        position += 9;
+                        break;
+                    }
+                    case FEATURE: {
+                        int length = in.readInt();
+                        if (length < 0 || length > size) {
+                            return position;
+                        }
+                        byte[] bytes = in.readNBytes(length);
+                        if (bytes.length != length) {
+                            return position;
+                        }
+                        int count = in.readInt();
+                        if (count < 0 || count > size / 32) {
+                            return position;
+                        }
+                        List<Envelope> envelopes = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            double minX = in.readDouble();
+                            double minY = in.readDouble();
+                            double maxX = in.readDouble();
+                            double maxY = in.readDouble();
+                            envelopes.add(new Envelope(minX, maxX, minY, maxY));
+                        }
+                        replay.feature(currentBatch, new String(bytes, StandardCharsets.UTF_8), envelopes);
+                        position += 1 + 4 + length + 4 + 32L * count;
+                        break;
+                    }
+                    case COMMIT:
+                        replay.commit(in.readLong());
+                        position += 9;
+                        break;
+                    case ABORT:
+                        replay.abort(in.readLong());
+                        position += 9;
+                        break;
+                    default:
+                        return position;
+                }
+            }
+        } catch (EOFException ex) {
+            // Torn record.
+            return position;
+        }
+    }
+
+    /**
+     * Force a new file to disk and move it into place, replacing any existing file.
+     *
+     * @param tmpFile
+     * @param file
+     * @throws SpatialIndexException
+     */
+    static void forceAndMove(Path tmpFile, Path file) throws SpatialIndexException {
+        try {
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            throw new SpatialIndexException("Failed to replace " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+}
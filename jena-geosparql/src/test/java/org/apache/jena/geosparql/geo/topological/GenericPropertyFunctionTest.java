@@ -19,21 +19,28 @@ package org.apache.jena.geosparql.geo.topological;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.apache.jena.geosparql.configuration.GeoSPARQLConfig;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.FEATURE_A;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.FEATURE_B;
+import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.FEATURE_C;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.FEATURE_D;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.GEOMETRY_A;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.GEOMETRY_B;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.GEOMETRY_C_BLANK;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.GEOMETRY_D;
+import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.GEOMETRY_E;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.GEOMETRY_F;
+import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.LITERAL_B;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.GEO_FEATURE_Y;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.GEO_FEATURE_Z;
 import static org.apache.jena.geosparql.geo.topological.QueryRewriteTestData.TEST_SRS_URI;
 import org.apache.jena.geosparql.geo.topological.property_functions.simple_features.SfContainsPF;
 import org.apache.jena.geosparql.geo.topological.property_functions.simple_features.SfDisjointPF;
+import org.apache.jena.geosparql.implementation.datatype.WKTDatatype;
 import org.apache.jena.geosparql.implementation.index.IndexConfiguration.IndexOption;
 import org.apache.jena.geosparql.implementation.index.QueryRewriteIndex;
 import org.apache.jena.geosparql.implementation.vocabulary.Geo;
@@ -44,12 +51,15 @@ import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.vocabulary.RDF;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -67,6 +77,9 @@ public class GenericPropertyFunctionTest {
     private static Model model;
     private static Dataset dataset;
 
+    private static final Resource GEOMETRY_G = ResourceFactory.createResource("http://example.org#GeometryG");
+    private static final Resource NON_SPATIAL = ResourceFactory.createResource("http://example.org#NonSpatial");
+
     public GenericPropertyFunctionTest() {
     }
 
@@ -407,6 +420,172 @@ public class GenericPropertyFunctionTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of execEvaluated method, of class GenericPropertyFunction.
+     */
+    @Test
+    public void testExecEvaluated_unbound_no_index() {
+
+        String query = "PREFIX geo: <http://www.opengis.net/ont/geosparql#>\n"
+                + "\n"
+                + "SELECT ?subj ?obj\n"
+                + "WHERE{\n"
+                + "    ?subj geo:sfContains ?obj .\n"
+                + "}ORDER by ?subj ?obj";
+
+        Dataset noIndexDataset = DatasetFactory.wrap(model);
+        int result = 0;
+        try (QueryExecution qe = QueryExecutionFactory.create(query, noIndexDataset)) {
+            ResultSet rs = qe.execSelect();
+            while (rs.hasNext()) {
+                rs.nextSolution();
+                result++;
+            }
+        }
+
+        int expResult = 25;
+        assertEquals(expResult, result);
+    }
+
+    /**
+     * Test of execEvaluated method, of class GenericPropertyFunction.
+     */
+    @Test
+    public void testExecEvaluated_unbound_same_as_bound() {
+
+        String unboundQuery = "PREFIX geo: <http://www.opengis.net/ont/geosparql#>\n"
+                + "\n"
+                + "SELECT ?subj ?obj\n"
+                + "WHERE{\n"
+                + "    ?subj geo:sfIntersects ?obj .\n"
+                + "    FILTER(isIRI(?subj) && isIRI(?obj))\n"
+                + "}";
+
+        Set<List<Resource>> results = new HashSet<>();
+        try (QueryExecution qe = QueryExecutionFactory.create(unboundQuery, dataset)) {
+            ResultSet rs = qe.execSelect();
+            while (rs.hasNext()) {
+                QuerySolution qs = rs.nextSolution();
+                results.add(Arrays.asList(qs.getResource("subj"), qs.getResource("obj")));
+            }
+        }
+
+        Set<List<Resource>> expResults = new HashSet<>();
+        List<Resource> spatialObjects = Arrays.asList(FEATURE_A, FEATURE_B, FEATURE_C, FEATURE_D, GEOMETRY_A, GEOMETRY_B, GEOMETRY_D, GEOMETRY_E, GEOMETRY_F);
+        for (Resource spatialObject : spatialObjects) {
+            String boundQuery = "PREFIX geo: <http://www.opengis.net/ont/geosparql#>\n"
+                    + "\n"
+                    + "SELECT ?obj\n"
+                    + "WHERE{\n"
+                    + "    BIND(<" + spatialObject.getURI() + "> AS ?subj) \n"
+                    + "    ?subj geo:sfIntersects ?obj .\n"
+                    + "    FILTER(isIRI(?obj))\n"
+                    + "}";
+            try (QueryExecution qe = QueryExecutionFactory.create(boundQuery, dataset)) {
+                ResultSet rs = qe.execSelect();
+                while (rs.hasNext()) {
+                    QuerySolution qs = rs.nextSolution();
+                    expResults.add(Arrays.asList(spatialObject, qs.getResource("obj")));
+                }
+            }
+        }
+
+        assertEquals(expResults, results);
+    }
+
+    /**
+     * Test of execEvaluated method, of class GenericPropertyFunction.
+     */
+    @Test
+    public void testExecEvaluated_unbound_same_as_bound_mixed() throws SpatialIndexException {
+
+        //Spatial Objects with a Geometry and Geo Feature outside the Spatial Object category and asserted non-spatial objects.
+        Model mixedModel = createMixedData();
+        assertUnboundSameAsBound(mixedModel, Geo.SPATIAL_OBJECT_RES);
+    }
+
+    /**
+     * Test of execEvaluated method, of class GenericPropertyFunction.
+     */
+    @Test
+    public void testExecEvaluated_unbound_same_as_bound_mixed_no_spatial_object() throws SpatialIndexException {
+
+        //Features and Geometry, with a Spatial Object that is both, and a Geo Feature outside of their categories.
+        Model mixedModel = createMixedData();
+        mixedModel.removeAll(null, RDF.type, Geo.SPATIAL_OBJECT_RES);
+        mixedModel.add(FEATURE_B, RDF.type, Geo.GEOMETRY_RES);
+        mixedModel.add(FEATURE_B, Geo.HAS_SERIALIZATION_PROP, LITERAL_B);
+        assertUnboundSameAsBound(mixedModel, Geo.FEATURE_RES, Geo.GEOMETRY_RES);
+    }
+
+    private static Model createMixedData() {
+        Model mixedModel = ModelFactory.createDefaultModel();
+        mixedModel.add(QueryRewriteTestData.createTestData());
+        mixedModel.add(GEOMETRY_G, Geo.HAS_SERIALIZATION_PROP, ResourceFactory.createTypedLiteral("<http://www.opengis.net/def/crs/EPSG/0/27700> POINT(5 5)", WKTDatatype.INSTANCE));
+        mixedModel.add(GEOMETRY_G, RDF.type, Geo.GEOMETRY_RES);
+        mixedModel.add(GEOMETRY_A, Geo.SF_INTERSECTS_PROP, NON_SPATIAL);
+        mixedModel.add(GEOMETRY_B, Geo.SF_INTERSECTS_PROP, GEO_FEATURE_Y);
+        mixedModel.add(FEATURE_D, Geo.SF_INTERSECTS_PROP, GEOMETRY_A);
+        return mixedModel;
+    }
+
+    private static void assertUnboundSameAsBound(Model mixedModel, Resource... spatialClasses) throws SpatialIndexException {
+
+        Dataset indexDataset = SpatialIndex.wrapModel(mixedModel, TEST_SRS_URI);
+        Dataset noIndexDataset = DatasetFactory.wrap(mixedModel);
+
+        //The Spatial Objects of the first category found are bound as the subject.
+        List<Resource> spatialObjects = new ArrayList<>();
+        for (Resource spatialClass : spatialClasses) {
+            spatialObjects.addAll(mixedModel.listSubjectsWithProperty(RDF.type, spatialClass).toList());
+        }
+
+        for (Dataset testDataset : Arrays.asList(indexDataset, noIndexDataset)) {
+            String unboundQuery = "PREFIX geo: <http://www.opengis.net/ont/geosparql#>\n"
+                    + "\n"
+                    + "SELECT ?subj ?obj\n"
+                    + "WHERE{\n"
+                    + "    ?subj geo:sfIntersects ?obj .\n"
+                    + "    FILTER(isIRI(?subj) && isIRI(?obj))\n"
+                    + "}";
+
+            List<String> results = new ArrayList<>();
+            try (QueryExecution qe = QueryExecutionFactory.create(unboundQuery, testDataset)) {
+                ResultSet rs = qe.execSelect();
+                while (rs.hasNext()) {
+                    QuerySolution qs = rs.nextSolution();
+                    results.add(qs.getResource("subj") + " " + qs.getResource("obj"));
+                }
+            }
+
+            List<String> expResults = new ArrayList<>();
+            for (Resource spatialObject : spatialObjects) {
+                if (!spatialObject.isURIResource()) {
+                    continue;
+                }
+                String boundQuery = "PREFIX geo: <http://www.opengis.net/ont/geosparql#>\n"
+                        + "\n"
+                        + "SELECT ?obj\n"
+                        + "WHERE{\n"
+                        + "    BIND(<" + spatialObject.getURI() + "> AS ?subj) \n"
+                        + "    ?subj geo:sfIntersects ?obj .\n"
+                        + "    FILTER(isIRI(?obj))\n"
+                        + "}";
+                try (QueryExecution qe = QueryExecutionFactory.create(boundQuery, testDataset)) {
+                    ResultSet rs = qe.execSelect();
+                    while (rs.hasNext()) {
+                        QuerySolution qs = rs.nextSolution();
+                        expResults.add(spatialObject + " " + qs.getResource("obj"));
+                    }
+                }
+            }
+
+            Collections.sort(expResults);
+            Collections.sort(results);
+            assertEquals(expResults, results);
+        }
+    }
+
     /**
      * Test of execEvaluated method, of class GenericPropertyFunction.
      */
@@ -17,6 +17,8 @@
  */
 package org.apache.jena.geosparql.implementation;
 
+import java.util.Arrays;
+import java.util.List;
 import org.apache.jena.geosparql.implementation.datatype.GMLDatatype;
 import org.apache.jena.geosparql.implementation.datatype.WKTDatatype;
 import org.apache.jena.geosparql.implementation.jts.CustomGeometryFactory;
@@ -524,4 +526,47 @@ public class GeometryWrapperTest {
         assertEquals(expResult, result);
     }
     
+
+    /**
+     * Test of relate, intersects, disjoint and within methods, of class
+     * GeometryWrapper, against the JTS geometries.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRelate_prepared() throws Exception {
+
+        StringBuilder region = new StringBuilder("<http://www.opengis.net/def/crs/EPSG/0/27700> POLYGON((");
+        for (int i = 0; i < 200; i++) {
+            double angle = 2 * Math.PI * i / 200;
+            double radius = i % 2 == 0 ? 10 : 9;
+            region.append(radius * Math.cos(angle)).append(' ').append(radius * Math.sin(angle)).append(", ");
+        }
+        region.append("10 0))");
+
+        List<GeometryWrapper> geometries = Arrays.asList(
+                WKTDatatype.INSTANCE.read(region.toString()),
+                WKTDatatype.INSTANCE.read("<http://www.opengis.net/def/crs/EPSG/0/27700> POINT(0 0)"),
+                WKTDatatype.INSTANCE.read("<http://www.opengis.net/def/crs/EPSG/0/27700> POINT(10 0)"),
+                WKTDatatype.INSTANCE.read("<http://www.opengis.net/def/crs/EPSG/0/27700> POINT(20 20)"),
+                WKTDatatype.INSTANCE.read("<http://www.opengis.net/def/crs/EPSG/0/27700> LINESTRING(-20 0, 20 0)"),
+                WKTDatatype.INSTANCE.read("<http://www.opengis.net/def/crs/EPSG/0/27700> POLYGON((1 1, 2 1, 2 2, 1 2, 1 1))"),
+                WKTDatatype.INSTANCE.read("<http://www.opengis.net/def/crs/EPSG/0/27700> POLYGON((30 30, 40 30, 40 40, 30 40, 30 30))"));
+        List<String> patterns = Arrays.asList("FF*FF****", "T*F**FFF*", "T*****FF*", "FT*******", "F**T*****", "TFFFTFFFT", "T********", "****T****", "*********");
+
+        for (GeometryWrapper geometry1 : geometries) {
+            for (GeometryWrapper geometry2 : geometries) {
+                Geometry xy1 = geometry1.getXYGeometry();
+                Geometry xy2 = geometry2.getXYGeometry();
+                for (String pattern : patterns) {
+                    assertEquals(pattern + " " + xy1 + " " + xy2, xy1.relate(xy2, pattern), geometry1.relate(geometry2, pattern));
+                }
+                assertEquals(xy1.intersects(xy2), geometry1.intersects(geometry2));
+                assertEquals(xy1.disjoint(xy2), geometry1.disjoint(geometry2));
+                assertEquals(xy1.within(xy2), geometry1.within(geometry2));
+                assertEquals(xy1.contains(xy2), geometry1.contains(geometry2));
+            }
+        }
+    }
+
 }
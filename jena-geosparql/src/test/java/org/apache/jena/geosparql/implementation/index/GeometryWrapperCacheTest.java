@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.geosparql.implementation.index;
+
+import org.apache.jena.geosparql.implementation.GeometryWrapper;
+import org.apache.jena.geosparql.implementation.datatype.WKTDatatype;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class GeometryWrapperCacheTest {
+
+    private static final String POINT = "<http://www.opengis.net/def/crs/EPSG/0/27700> POINT(1 1)";
+    private static final String POLYGON = "<http://www.opengis.net/def/crs/EPSG/0/27700> POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))";
+
+    private static GeometryWrapper point(int i) {
+        return WKTDatatype.INSTANCE.read("<http://www.opengis.net/def/crs/EPSG/0/27700> POINT(" + i + " " + i + ")");
+    }
+
+    /**
+     * Test of get and put methods, of class GeometryWrapperCache.
+     */
+    @Test
+    public void testGetPut() {
+        GeometryWrapperCache instance = new GeometryWrapperCache("Test", GeometryWrapperCache.UNLIMITED, 0);
+        GeometryWrapper point = WKTDatatype.INSTANCE.read(POINT);
+        GeometryWrapper polygon = WKTDatatype.INSTANCE.read(POLYGON);
+        instance.put(POINT, point);
+        instance.put(POLYGON, polygon);
+
+        assertSame(point, instance.get(POINT));
+        assertSame(polygon, instance.get(POLYGON));
+        assertNull(instance.get("other"));
+        assertEquals(2, instance.mappingCount());
+        //Point has 1 coordinate, polygon 5.
+        assertEquals(2 + 6, instance.getWeight());
+
+        instance.put(POINT, polygon);
+        assertEquals(6 + 6, instance.getWeight());
+
+        instance.clear();
+        assertEquals(0, instance.mappingCount());
+        assertEquals(0, instance.getWeight());
+    }
+
+    /**
+     * Test of setMaxWeight method, of class GeometryWrapperCache.
+     */
+    @Test
+    public void testMaxWeight() {
+        GeometryWrapperCache instance = new GeometryWrapperCache("Test", GeometryWrapperCache.UNLIMITED, 0);
+        instance.setMaxWeight(20);
+        for (int i = 0; i < 100; i++) {
+            instance.put("p" + i, point(i));
+            assertTrue(instance.getWeight() <= 20);
+        }
+        assertEquals(10, instance.mappingCount());
+
+        //Too heavy on its own.
+        instance.setMaxWeight(5);
+        instance.put(POLYGON, WKTDatatype.INSTANCE.read(POLYGON));
+        assertNull(instance.get(POLYGON));
+        assertTrue(instance.getWeight() <= 5);
+    }
+
+    /**
+     * Test of eviction order, of class GeometryWrapperCache.
+     */
+    @Test
+    public void testSecondChance() {
+        GeometryWrapperCache instance = new GeometryWrapperCache("Test", 3, 0);
+        GeometryWrapper hot = point(0);
+        instance.put("hot", hot);
+        for (int i = 1; i < 100; i++) {
+            assertSame(hot, instance.get("hot"));
+            instance.put("p" + i, point(i));
+        }
+        assertEquals(3, instance.mappingCount());
+        assertSame(hot, instance.get("hot"));
+    }
+
+    /**
+     * Test of setMaxSize method, of class GeometryWrapperCache.
+     */
+    @Test
+    public void testMaxSize() {
+        GeometryWrapperCache instance = new GeometryWrapperCache("Test", 0, 0);
+        instance.put(POINT, WKTDatatype.INSTANCE.read(POINT));
+        assertEquals(0, instance.mappingCount());
+
+        instance.setMaxSize(5);
+        for (int i = 0; i < 10; i++) {
+            instance.put("p" + i, point(i));
+        }
+        assertEquals(5, instance.mappingCount());
+
+        instance.setMaxSize(2);
+        assertEquals(2, instance.mappingCount());
+        assertEquals(4, instance.getWeight());
+    }
+
+    /**
+     * Test of expiry, of class GeometryWrapperCache.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testExpiry() throws InterruptedException {
+        GeometryWrapperCache instance = new GeometryWrapperCache("Test", GeometryWrapperCache.UNLIMITED, 50);
+        instance.put(POINT, WKTDatatype.INSTANCE.read(POINT));
+        Thread.sleep(100);
+        //Expiry not started.
+        assertEquals(1, instance.mappingCount());
+        assertTrue(instance.get(POINT) != null);
+
+        instance.startExpiry();
+        Thread.sleep(100);
+        assertNull(instance.get(POINT));
+        assertEquals(0, instance.mappingCount());
+        assertEquals(0, instance.getWeight());
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.geosparql.spatial;
+
+import static org.apache.jena.geosparql.spatial.SpatialIndexTestData.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+import org.apache.jena.geosparql.configuration.GeoSPARQLConfig;
+import org.apache.jena.geosparql.implementation.vocabulary.Geo;
+import org.apache.jena.geosparql.implementation.vocabulary.SRS_URI;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.system.Txn;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ *
+ *
+ */
+public class SpatialIndexDiskTest {
+
+    private static final Resource PARIS_FEATURE = ResourceFactory.createResource("http://example.org/Feature#Paris");
+    private static final Resource PARIS_GEOMETRY = ResourceFactory.createResource("http://example.org/Geometry#Paris");
+
+    private static final Envelope ALL = new Envelope(-180, 180, -90, 90);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        GeoSPARQLConfig.setupNoIndex();
+    }
+
+    private static List<SpatialIndexItem> testItems() {
+        return List.of(new SpatialIndexItem(LONDON_GEOMETRY_WRAPPER.getEnvelope(), LONDON_FEATURE),
+                new SpatialIndexItem(NEW_YORK_GEOMETRY_WRAPPER.getEnvelope(), NEW_YORK_FEATURE),
+                new SpatialIndexItem(HONOLULU_GEOMETRY_WRAPPER.getEnvelope(), HONOLULU_FEATURE),
+                new SpatialIndexItem(PERTH_GEOMETRY_WRAPPER.getEnvelope(), PERTH_FEATURE),
+                new SpatialIndexItem(AUCKLAND_GEOMETRY_WRAPPER.getEnvelope(), AUCKLAND_FEATURE));
+    }
+
+    /**
+     * Test of create and query, against the in-memory SpatialIndex.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCreateQuery() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        SpatialIndexDisk instance = SpatialIndexDisk.create(directory, testItems(), SRS_URI.WGS84_CRS);
+        SpatialIndex expectedIndex = SpatialIndexTestData.createTestIndex();
+
+        List<Envelope> searchEnvelopes = List.of(ALL, new Envelope(51.4, 51.6, -0.2, 0.0),
+                new Envelope(-40.0, 60.0, -80.0, 0.0), new Envelope(0.0, 10.0, 0.0, 10.0));
+        for (Envelope searchEnvelope : searchEnvelopes) {
+            assertEquals(expectedIndex.query(searchEnvelope), instance.query(searchEnvelope));
+        }
+        assertEquals(SRS_URI.WGS84_CRS, instance.getSrsInfo().getSrsURI());
+        assertFalse(instance.isEmpty());
+        instance.close();
+    }
+
+    /**
+     * Test of open for an existing index.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOpen() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        assertFalse(SpatialIndexDisk.exists(directory));
+        SpatialIndexDisk.create(directory, testItems(), SRS_URI.WGS84_CRS).close();
+        assertTrue(SpatialIndexDisk.exists(directory));
+
+        SpatialIndexDisk instance = SpatialIndexDisk.open(directory);
+        HashSet<Resource> expResult = new HashSet<>(Arrays.asList(LONDON_FEATURE, NEW_YORK_FEATURE, HONOLULU_FEATURE, PERTH_FEATURE, AUCKLAND_FEATURE));
+        assertEquals(expResult, instance.query(ALL));
+        instance.close();
+
+        SpatialIndex loaded = SpatialIndex.load(directory.toFile());
+        assertTrue(loaded instanceof SpatialIndexDisk);
+        assertEquals(expResult, loaded.query(ALL));
+        ((SpatialIndexDisk) loaded).close();
+    }
+
+    /**
+     * Test of update, abort, replay of the log and compaction.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUpdate() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        SpatialIndexDisk instance = SpatialIndexDisk.create(directory, testItems(), SRS_URI.WGS84_CRS);
+
+        // Move London to Paris and add Paris.
+        Envelope paris = PARIS_GEOMETRY_WRAPPER.getEnvelope();
+        long batch = instance.prepareUpdate(Map.of(LONDON_FEATURE.getURI(), List.of(paris), PARIS_FEATURE.getURI(), List.of(paris)));
+        instance.commitUpdate(batch);
+        assertEquals(new HashSet<>(Arrays.asList(LONDON_FEATURE, PARIS_FEATURE)), instance.query(paris));
+        assertTrue(instance.query(LONDON_GEOMETRY_WRAPPER.getEnvelope()).isEmpty());
+
+        // Aborted removal of New York.
+        batch = instance.prepareUpdate(Map.of(NEW_YORK_FEATURE.getURI(), List.of()));
+        instance.abortUpdate(batch);
+        assertEquals(Set.of(NEW_YORK_FEATURE), instance.query(NEW_YORK_GEOMETRY_WRAPPER.getEnvelope()));
+
+        // Committed removal of Perth.
+        batch = instance.prepareUpdate(Map.of(PERTH_FEATURE.getURI(), List.of()));
+        instance.commitUpdate(batch);
+        HashSet<Resource> expResult = new HashSet<>(Arrays.asList(LONDON_FEATURE, PARIS_FEATURE, NEW_YORK_FEATURE, HONOLULU_FEATURE, AUCKLAND_FEATURE));
+        assertEquals(expResult, instance.query(ALL));
+        instance.close();
+
+        // Replay of the log.
+        instance = SpatialIndexDisk.open(directory);
+        assertEquals(expResult, instance.query(ALL));
+        assertTrue(instance.query(LONDON_GEOMETRY_WRAPPER.getEnvelope()).isEmpty());
+
+        instance.compact();
+        assertEquals(expResult, instance.query(ALL));
+        instance.close();
+
+        instance = SpatialIndexDisk.open(directory);
+        assertEquals(expResult, instance.query(ALL));
+        assertEquals(new HashSet<>(Arrays.asList(LONDON_FEATURE, PARIS_FEATURE)), instance.query(paris));
+        instance.close();
+    }
+
+    /**
+     * Test of an update without outcome: kept in the index when reopened.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUpdateInDoubt() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        SpatialIndexDisk instance = SpatialIndexDisk.create(directory, testItems(), SRS_URI.WGS84_CRS);
+        Envelope paris = PARIS_GEOMETRY_WRAPPER.getEnvelope();
+        instance.prepareUpdate(Map.of(PARIS_FEATURE.getURI(), List.of(paris)));
+        instance.close();
+
+        instance = SpatialIndexDisk.open(directory);
+        assertEquals(Set.of(PARIS_FEATURE), instance.query(paris));
+        instance.close();
+    }
+
+    /**
+     * Test of changes to a dataset updating the index on commit.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDatasetUpdate() throws Exception {
+        File directory = folder.newFolder();
+        Dataset dataset = DatasetFactory.createTxnMem();
+        Txn.executeWrite(dataset, () -> dataset.getDefaultModel().add(SpatialIndexTestData.createTestDataset().getDefaultModel()));
+        Dataset indexed = GeoSPARQLConfig.setupPersistentSpatialIndex(dataset, directory);
+        SpatialIndex spatialIndex = (SpatialIndex) indexed.getContext().get(SpatialIndex.SPATIAL_INDEX_SYMBOL);
+        assertTrue(spatialIndex instanceof SpatialIndexDisk);
+        Envelope paris = PARIS_GEOMETRY_WRAPPER.getEnvelope();
+        Envelope london = LONDON_GEOMETRY_WRAPPER.getEnvelope();
+
+        // Aborted add.
+        indexed.begin(ReadWrite.WRITE);
+        addParis(indexed.getDefaultModel());
+        indexed.abort();
+        indexed.end();
+        assertTrue(spatialIndex.query(paris).isEmpty());
+
+        // Committed add.
+        Txn.executeWrite(indexed, () -> addParis(indexed.getDefaultModel()));
+        assertEquals(Set.of(PARIS_FEATURE), spatialIndex.query(paris));
+
+        // Committed change of geometry.
+        Txn.executeWrite(indexed, () -> {
+            Model model = indexed.getDefaultModel();
+            model.removeAll(LONDON_GEOMETRY, Geo.HAS_SERIALIZATION_PROP, null);
+            model.add(LONDON_GEOMETRY, Geo.HAS_SERIALIZATION_PROP, PARIS_GEOMETRY_WRAPPER.asLiteral());
+        });
+        assertEquals(new HashSet<>(Arrays.asList(LONDON_FEATURE, PARIS_FEATURE)), spatialIndex.query(paris));
+        assertTrue(spatialIndex.query(london).isEmpty());
+
+        // Committed delete of a feature.
+        Txn.executeWrite(indexed, () -> indexed.getDefaultModel().removeAll(PARIS_FEATURE, null, null));
+        assertEquals(Set.of(LONDON_FEATURE), spatialIndex.query(paris));
+        ((SpatialIndexDisk) spatialIndex).close();
+
+        // Reopen.
+        SpatialIndexDisk instance = SpatialIndexDisk.open(directory.toPath());
+        assertEquals(Set.of(LONDON_FEATURE), instance.query(paris));
+        assertTrue(instance.query(london).isEmpty());
+        instance.close();
+    }
+
+    /**
+     * Test of index updates from a DatasetGraph wrapped directly.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWrap() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        SpatialIndexDisk instance = SpatialIndexDisk.create(directory, List.of(), SRS_URI.WGS84_CRS);
+        assertTrue(instance.isEmpty());
+        Dataset indexed = DatasetFactory.wrap(DatasetGraphSpatialIndex.wrap(DatasetGraphFactory.createTxnMem(), instance));
+        assertSame(instance, indexed.getContext().get(SpatialIndex.SPATIAL_INDEX_SYMBOL));
+
+        Txn.executeWrite(indexed, () -> addParis(indexed.getDefaultModel()));
+        assertEquals(Set.of(PARIS_FEATURE), instance.query(PARIS_GEOMETRY_WRAPPER.getEnvelope()));
+        assertFalse(instance.isEmpty());
+        instance.close();
+    }
+
+    private static void addParis(Model model) {
+        model.add(PARIS_FEATURE, Geo.HAS_GEOMETRY_PROP, PARIS_GEOMETRY);
+        model.add(PARIS_GEOMETRY, Geo.HAS_SERIALIZATION_PROP, PARIS_GEOMETRY_WRAPPER.asLiteral());
+    }
+}